@@ -275,6 +275,7 @@ public class FtcRobotControllerActivity extends Activity
 
     RobotLog.onApplicationStart();  // robustify against onCreate() following onDestroy() but using the same app instance, which apparently does happen
     RobotLog.vv(TAG, "onCreate()");
+    StartupTiming.mark("Activity created");
     ThemedActivity.appAppThemeToActivity(getTag(), this); // do this way instead of inherit to help AppInventor
 
     // Oddly, sometimes after a crash & restart the root activity will be something unexpected, like from the before crash? We don't yet understand
@@ -351,9 +352,11 @@ public class FtcRobotControllerActivity extends Activity
      * have permissions. So...
      */
     if (permissionsValidated) {
+      long scanStart = System.nanoTime();
       ClassManager.getInstance().setOnBotJavaClassHelper(onBotJavaHelper);
       ClassManagerFactory.registerFilters();
       ClassManagerFactory.processAllClasses();
+      StartupTiming.record("Class scan", scanStart);
     }
 
     cfgFileMgr = new RobotConfigFileManager(this);
@@ -666,6 +669,7 @@ public class FtcRobotControllerActivity extends Activity
 
   public void onServiceBind(final FtcRobotControllerService service) {
     RobotLog.vv(FtcRobotControllerService.TAG, "%s.controllerService=bound", TAG);
+    StartupTiming.mark("Service bound");
     controllerService = service;
     updateUI.setControllerService(controllerService);
 
@@ -728,9 +732,11 @@ public class FtcRobotControllerActivity extends Activity
       }
     }
 
+    long eventLoopStart = System.nanoTime();
     OpModeRegister userOpModeRegister = createOpModeRegister();
     eventLoop = new FtcEventLoop(hardwareFactory, userOpModeRegister, callback, this);
     FtcEventLoopIdle idleLoop = new FtcEventLoopIdle(hardwareFactory, userOpModeRegister, callback, this);
+    StartupTiming.record("Event loop created", eventLoopStart);
 
     controllerService.setCallback(callback);
     controllerService.setupRobot(eventLoop, idleLoop, runOnComplete);
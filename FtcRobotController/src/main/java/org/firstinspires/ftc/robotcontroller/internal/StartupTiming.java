@@ -0,0 +1,83 @@
+package org.firstinspires.ftc.robotcontroller.internal;
+
+import android.os.Process;
+import android.os.SystemClock;
+
+import com.qualcomm.robotcore.util.RobotLog;
+
+import java.util.Locale;
+
+/**
+ * {@link StartupTiming} records how long each phase of Robot Controller startup takes, so that a change
+ * to startup (such as adding an OpMode, a hook or a device driver for the class scan to find) can be measured
+ * on the robot.
+ *
+ * Each phase is recorded with the time it ended, in milliseconds since the app's process started, and how
+ * long it took.  Phases are written to the robot log as they are recorded, and {@link #summary()} returns
+ * them all, for display on telemetry.  Only the first {@link #MAX_PHASES} phases are kept.
+ */
+public final class StartupTiming {
+
+    public static final String TAG = "StartupTiming";
+
+    public static final int MAX_PHASES = 32;
+
+    private static final String[] names      = new String[MAX_PHASES];
+    private static final double[] endMs      = new double[MAX_PHASES];
+    private static final double[] durationMs = new double[MAX_PHASES];
+    private static int            count      = 0;
+
+    private StartupTiming() {
+    }
+
+    /**
+     * Record a phase that started at startNanos, and has just ended.
+     *
+     * @param name       what the phase was.
+     * @param startNanos {@link System#nanoTime()} when the phase started.
+     */
+    public static void record(String name, long startNanos) {
+        add(name, (System.nanoTime() - startNanos) / 1e6);
+    }
+
+    /**
+     * Record that startup has reached a point, with no duration.
+     */
+    public static void mark(String name) {
+        add(name, 0);
+    }
+
+    private static synchronized void add(String name, double duration) {
+        double sinceStart = SystemClock.elapsedRealtime() - Process.getStartElapsedRealtime();
+        RobotLog.ii(TAG, "%s: %.1f ms, at %.0f ms", name, duration, sinceStart);
+        if (count < MAX_PHASES) {
+            names[count]      = name;
+            endMs[count]      = sinceStart;
+            durationMs[count] = duration;
+            count++;
+        }
+    }
+
+    /** @return the number of phases recorded. */
+    public static synchronized int getCount() { return count; }
+
+    /** @return the name of phase i. */
+    public static synchronized String getName(int i) { return names[i]; }
+
+    /** @return when phase i ended, in milliseconds since the process started. */
+    public static synchronized double getEndMs(int i) { return endMs[i]; }
+
+    /** @return how long phase i took, in milliseconds. */
+    public static synchronized double getDurationMs(int i) { return durationMs[i]; }
+
+    /**
+     * @return one line per phase: its name, duration and end time.
+     */
+    public static synchronized String summary() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            builder.append(String.format(Locale.US, "%-28s %7.1f ms  at %6.0f ms%n", names[i], durationMs[i], endMs[i]));
+        }
+        return builder.toString();
+    }
+}
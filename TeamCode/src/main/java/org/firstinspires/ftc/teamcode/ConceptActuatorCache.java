@@ -0,0 +1,97 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.eventloop.opmode.Disabled;
+import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
+import com.qualcomm.robotcore.eventloop.opmode.TeleOp;
+import com.qualcomm.robotcore.hardware.DcMotor;
+import com.qualcomm.robotcore.hardware.DcMotorEx;
+import com.qualcomm.robotcore.hardware.Servo;
+import com.qualcomm.robotcore.util.ElapsedTime;
+import com.qualcomm.robotcore.util.Range;
+
+import org.firstinspires.ftc.teamcode.hardware.ActuatorCache;
+
+/*
+ * This OpMode is RobotTeleopTank_Iterative, with its motors and servos wrapped by an ActuatorCache.
+ *
+ * The sample sets both drive motors, the arm and both claw servos every loop, which is five hub commands per loop
+ * even while the sticks are still.  Here the loop sets them the same way, and actuators.flush() at the end of the
+ * loop sends only the values that have changed.  Telemetry shows the commands sent and suppressed, and the loop time.
+ *
+ * The hardware is RobotHardware's: "left_drive", "right_drive" and "arm" motors, and "left_hand" and "right_hand"
+ * servos.
+ */
+@TeleOp(name = "Concept: Actuator Cache", group = "Concept")
+@Disabled
+public class ConceptActuatorCache extends LinearOpMode {
+
+    static final double MID_SERVO      =  0.5;
+    static final double CLAW_SPEED     =  0.02;    // sets rate to move servo
+    static final double ARM_UP_POWER   =  0.50;    // Run arm motor up at 50% power
+    static final double ARM_DOWN_POWER = -0.25;    // Run arm motor down at -25% power
+
+    @Override
+    public void runOpMode() {
+        ActuatorCache actuators = new ActuatorCache();
+        DcMotorEx leftDrive  = actuators.motor(hardwareMap.get(DcMotorEx.class, "left_drive"));
+        DcMotorEx rightDrive = actuators.motor(hardwareMap.get(DcMotorEx.class, "right_drive"));
+        DcMotorEx leftArm    = actuators.motor(hardwareMap.get(DcMotorEx.class, "arm"));
+        Servo     leftClaw   = actuators.servo(hardwareMap.get(Servo.class, "left_hand"));
+        Servo     rightClaw  = actuators.servo(hardwareMap.get(Servo.class, "right_hand"));
+
+        leftDrive.setDirection(DcMotor.Direction.REVERSE);
+        rightDrive.setDirection(DcMotor.Direction.FORWARD);
+        leftDrive.setMode(DcMotor.RunMode.RUN_WITHOUT_ENCODER);
+        rightDrive.setMode(DcMotor.RunMode.RUN_WITHOUT_ENCODER);
+
+        double clawOffset = 0;
+        leftClaw.setPosition(MID_SERVO);
+        rightClaw.setPosition(MID_SERVO);
+        actuators.flush();
+
+        telemetry.addData(">", "Robot Ready.  Press Play.");
+        telemetry.update();
+        waitForStart();
+
+        ElapsedTime timer = new ElapsedTime();
+        long loops = 0;
+        while (opModeIsActive()) {
+            // Run wheels in tank mode (note: The joystick goes negative when pushed forward, so negate it)
+            double left  = -gamepad1.left_stick_y;
+            double right = -gamepad1.right_stick_y;
+            leftDrive.setPower(left);
+            rightDrive.setPower(right);
+
+            // Use gamepad left & right Bumpers to open and close the claw
+            if (gamepad1.right_bumper)
+                clawOffset += CLAW_SPEED;
+            else if (gamepad1.left_bumper)
+                clawOffset -= CLAW_SPEED;
+
+            // Move both servos to new position.  Assume servos are mirror image of each other.
+            clawOffset = Range.clip(clawOffset, -0.5, 0.5);
+            leftClaw.setPosition(MID_SERVO + clawOffset);
+            rightClaw.setPosition(MID_SERVO - clawOffset);
+
+            // Use gamepad buttons to move the arm up (Y) and down (A)
+            if (gamepad1.y)
+                leftArm.setPower(ARM_UP_POWER);
+            else if (gamepad1.a)
+                leftArm.setPower(ARM_DOWN_POWER);
+            else
+                leftArm.setPower(0.0);
+
+            // Send whatever changed.
+            actuators.flush();
+            loops++;
+
+            telemetry.addData("claw",  "Offset = %.2f", clawOffset);
+            telemetry.addData("left",  "%.2f", left);
+            telemetry.addData("right", "%.2f", right);
+            telemetry.addData("Commands", "%d sent, %d suppressed",
+                              actuators.getCommandsSent(), actuators.getCommandsSuppressed());
+            telemetry.addData("Loop", "%5.1f mS", timer.milliseconds() / loops);
+            telemetry.update();
+        }
+    }
+}
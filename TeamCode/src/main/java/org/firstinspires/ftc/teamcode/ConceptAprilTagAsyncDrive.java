@@ -0,0 +1,165 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.eventloop.opmode.Disabled;
+import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
+import com.qualcomm.robotcore.eventloop.opmode.TeleOp;
+import com.qualcomm.robotcore.hardware.DcMotor;
+import com.qualcomm.robotcore.util.Range;
+
+import org.firstinspires.ftc.robotcore.external.hardware.camera.WebcamName;
+import org.firstinspires.ftc.teamcode.telemetry.FastTelemetry;
+import org.firstinspires.ftc.teamcode.vision.AprilTagPublisher;
+import org.firstinspires.ftc.teamcode.vision.VisionResult;
+import org.firstinspires.ftc.vision.VisionPortal;
+import org.firstinspires.ftc.vision.apriltag.AprilTagDetection;
+import org.firstinspires.ftc.vision.apriltag.AprilTagProcessor;
+
+/*
+ * This OpMode is the RobotAutoDriveToAprilTagOmni sample, with the AprilTag processing decoupled from the control loop.
+ *
+ * The sample calls aprilTag.getDetections() inside its loop and recomputes drive/strafe/turn from whatever list
+ * comes back, so its loop effectively runs at the camera's frame rate.  Here, an AprilTagPublisher stage in the
+ * VisionPortal publishes each frame's detections (with capture time and sequence number) as soon as they are ready.
+ * The control loop runs at full rate and:
+ *  - only recomputes the automatic drive command when a NEW frame has arrived,
+ *  - knows how old the tag pose is, and treats the target as lost once it is older than MAX_POSE_AGE_MS,
+ *  - counts how many frames it has received.
+ *
+ * The motor names, gains and controls are the same as RobotAutoDriveToAprilTagOmni.
+ * Press and hold the Left Bumper to drive to the target.
+ */
+@TeleOp(name = "Concept: AprilTag Async Drive", group = "Concept")
+@Disabled
+public class ConceptAprilTagAsyncDrive extends LinearOpMode {
+
+    final double DESIRED_DISTANCE = 12.0;   // How close the camera should get to the target (inches)
+
+    final double SPEED_GAIN  = 0.02;
+    final double STRAFE_GAIN = 0.015;
+    final double TURN_GAIN   = 0.01;
+
+    final double MAX_AUTO_SPEED  = 0.5;
+    final double MAX_AUTO_STRAFE = 0.5;
+    final double MAX_AUTO_TURN   = 0.3;
+
+    final double MAX_POSE_AGE_MS = 150;     // A tag pose older than this is not used for driving.
+    final int    DESIRED_TAG_ID  = -1;      // Choose the tag you want to approach or set to -1 for ANY tag.
+
+    private DcMotor leftFrontDrive, rightFrontDrive, leftBackDrive, rightBackDrive;
+
+    @Override
+    public void runOpMode() {
+        AprilTagProcessor aprilTag  = new AprilTagProcessor.Builder().build();
+        AprilTagPublisher publisher = new AprilTagPublisher(aprilTag);
+        aprilTag.setDecimation(2);
+
+        // The publisher must come after the AprilTag processor, so it sees each frame's results.
+        VisionPortal visionPortal = new VisionPortal.Builder()
+                .setCamera(hardwareMap.get(WebcamName.class, "Webcam 1"))
+                .addProcessors(aprilTag, publisher)
+                .build();
+
+        leftFrontDrive  = hardwareMap.get(DcMotor.class, "leftfront_drive");
+        rightFrontDrive = hardwareMap.get(DcMotor.class, "rightfront_drive");
+        leftBackDrive   = hardwareMap.get(DcMotor.class, "leftback_drive");
+        rightBackDrive  = hardwareMap.get(DcMotor.class, "rightback_drive");
+        leftFrontDrive.setDirection(DcMotor.Direction.REVERSE);
+        leftBackDrive.setDirection(DcMotor.Direction.REVERSE);
+        rightFrontDrive.setDirection(DcMotor.Direction.FORWARD);
+        rightBackDrive.setDirection(DcMotor.Direction.FORWARD);
+
+        telemetry.addData(">", "Touch Play to start OpMode");
+        telemetry.update();
+        waitForStart();
+
+        FastTelemetry      fast       = new FastTelemetry(telemetry, 100);
+        FastTelemetry.Line targetLine = fast.addLine("Target", "ID %d  range %5.1f  bearing %4.0f  yaw %4.0f");
+        FastTelemetry.Line ageLine    = fast.addLine("Pose age", "%5.1f mS  (frame %d, %d skipped)");
+        FastTelemetry.Line loopLine   = fast.addLine("Loop", "%5.2f mS");
+        FastTelemetry.Line driveLine  = fast.addLine("Drive", "%5.2f, Strafe %5.2f, Turn %5.2f");
+
+        long   lastSequence = 0;
+        long   skipped      = 0;
+        double autoDrive    = 0, autoStrafe = 0, autoTurn = 0;
+        boolean targetValid = false;
+        long   lastLoop     = System.nanoTime();
+
+        while (opModeIsActive()) {
+            long now = System.nanoTime();
+            VisionResult result = publisher.getLatest();
+
+            // Only act on a frame the first time it is seen.
+            if (result.isNewerThan(lastSequence)) {
+                if (lastSequence != 0) {
+                    skipped += result.getSequence() - lastSequence - 1;
+                }
+                lastSequence = result.getSequence();
+
+                AprilTagDetection desiredTag = result.findTag(DESIRED_TAG_ID);
+                targetValid = (desiredTag != null);
+                if (targetValid) {
+                    double rangeError   = desiredTag.ftcPose.range - DESIRED_DISTANCE;
+                    double headingError = desiredTag.ftcPose.bearing;
+                    double yawError     = desiredTag.ftcPose.yaw;
+
+                    autoDrive  = Range.clip(rangeError * SPEED_GAIN, -MAX_AUTO_SPEED, MAX_AUTO_SPEED);
+                    autoTurn   = Range.clip(headingError * TURN_GAIN, -MAX_AUTO_TURN, MAX_AUTO_TURN);
+                    autoStrafe = Range.clip(-yawError * STRAFE_GAIN, -MAX_AUTO_STRAFE, MAX_AUTO_STRAFE);
+
+                    targetLine.set(0, desiredTag.id).set(1, desiredTag.ftcPose.range)
+                              .set(2, desiredTag.ftcPose.bearing).set(3, desiredTag.ftcPose.yaw);
+                }
+            }
+
+            double ageMs = result.getAgeNanos(now) / 1e6;
+            boolean targetFresh = targetValid && (ageMs < MAX_POSE_AGE_MS);
+
+            double drive, strafe, turn;
+            if (gamepad1.left_bumper && targetFresh) {
+                drive  = autoDrive;
+                strafe = autoStrafe;
+                turn   = autoTurn;
+            } else {
+                drive  = -gamepad1.left_stick_y  / 2.0;
+                strafe = -gamepad1.left_stick_x  / 2.0;
+                turn   = -gamepad1.right_stick_x / 3.0;
+            }
+            moveRobot(drive, strafe, turn);
+
+            targetLine.setVisible(targetFresh);
+            ageLine.set(0, ageMs).set(1, lastSequence).set(2, skipped);
+            loopLine.set(0, (now - lastLoop) / 1e6);
+            driveLine.set(0, drive).set(1, strafe).set(2, turn);
+            fast.update();
+            lastLoop = now;
+        }
+
+        visionPortal.close();
+    }
+
+    /**
+     * Move robot according to desired axes motions, as in RobotAutoDriveToAprilTagOmni.
+     */
+    public void moveRobot(double x, double y, double yaw) {
+        double leftFrontPower  = x - y - yaw;
+        double rightFrontPower = x + y + yaw;
+        double leftBackPower   = x + y - yaw;
+        double rightBackPower  = x - y + yaw;
+
+        double max = Math.max(Math.abs(leftFrontPower), Math.abs(rightFrontPower));
+        max = Math.max(max, Math.abs(leftBackPower));
+        max = Math.max(max, Math.abs(rightBackPower));
+
+        if (max > 1.0) {
+            leftFrontPower  /= max;
+            rightFrontPower /= max;
+            leftBackPower   /= max;
+            rightBackPower  /= max;
+        }
+
+        leftFrontDrive.setPower(leftFrontPower);
+        rightFrontDrive.setPower(rightFrontPower);
+        leftBackDrive.setPower(leftBackPower);
+        rightBackDrive.setPower(rightBackPower);
+    }
+}
@@ -0,0 +1,129 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.eventloop.opmode.Disabled;
+import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
+import com.qualcomm.robotcore.eventloop.opmode.TeleOp;
+import com.qualcomm.robotcore.util.ReadWriteFile;
+
+import org.firstinspires.ftc.robotcore.external.hardware.camera.WebcamName;
+import org.firstinspires.ftc.robotcore.external.hardware.camera.controls.ExposureControl;
+import org.firstinspires.ftc.robotcore.external.hardware.camera.controls.GainControl;
+import org.firstinspires.ftc.robotcore.internal.system.AppUtil;
+import org.firstinspires.ftc.teamcode.vision.AprilTagPublisher;
+import org.firstinspires.ftc.teamcode.vision.CameraExposureSettings;
+import org.firstinspires.ftc.teamcode.vision.ExposureTuner;
+import org.firstinspires.ftc.teamcode.vision.RecordedExposureSweep;
+import org.firstinspires.ftc.teamcode.vision.VisionResult;
+import org.firstinspires.ftc.vision.VisionPortal;
+import org.firstinspires.ftc.vision.apriltag.AprilTagProcessor;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * This OpMode finds the best manual exposure and gain for a webcam automatically, and saves them for other OpModes.
+ *
+ * It replaces the bumper-driven search in ConceptAprilTagOptimizeExposure with an ExposureTuner: place a tag in view
+ * at the distance it will normally be detected from, press Play, then press A.  The tuner sweeps exposure and gain,
+ * scoring each setting by detection rate, decision margin and processing time, and settles on the shortest exposure
+ * that detects reliably.
+ *
+ * The result is saved with CameraExposureSettings, so any OpMode can apply it with:
+ *     CameraExposureSettings settings = CameraExposureSettings.load("Webcam 1");
+ *     if (settings != null) settings.apply(visionPortal);
+ *
+ * Every frame the tuner used is also saved, to "exposure_sweep_<camera>.csv" in the same folder, so the search can be
+ * replayed off the robot with RecordedExposureSweep.
+ */
+@TeleOp(name = "Concept: AprilTag Auto Exposure", group = "Concept")
+@Disabled
+public class ConceptAprilTagAutoExposure extends LinearOpMode {
+
+    final String CAMERA_NAME = "Webcam 1";
+
+    @Override
+    public void runOpMode() {
+        AprilTagProcessor aprilTag  = new AprilTagProcessor.Builder().build();
+        AprilTagPublisher publisher = new AprilTagPublisher(aprilTag);
+        VisionPortal visionPortal = new VisionPortal.Builder()
+                .setCamera(hardwareMap.get(WebcamName.class, CAMERA_NAME))
+                .addProcessors(aprilTag, publisher)
+                .build();
+
+        // Wait for the camera, then read its exposure and gain ranges.
+        while (!isStopRequested() && visionPortal.getCameraState() != VisionPortal.CameraState.STREAMING) {
+            telemetry.addData("Camera", "Waiting");
+            telemetry.update();
+            sleep(20);
+        }
+        if (isStopRequested()) {
+            return;
+        }
+        ExposureControl exposureControl = visionPortal.getCameraControl(ExposureControl.class);
+        GainControl     gainControl     = visionPortal.getCameraControl(GainControl.class);
+        int minExposure = (int) exposureControl.getMinExposure(TimeUnit.MILLISECONDS) + 1;
+        int maxExposure = (int) exposureControl.getMaxExposure(TimeUnit.MILLISECONDS);
+        int minGain     = gainControl.getMinGain();
+        int maxGain     = gainControl.getMaxGain();
+
+        CameraExposureSettings saved = CameraExposureSettings.load(CAMERA_NAME);
+        if (saved != null) {
+            saved.apply(visionPortal);
+        }
+
+        RecordedExposureSweep recording = new RecordedExposureSweep();
+        ExposureTuner tuner = new ExposureTuner(
+                (exposureMs, gain) -> CameraExposureSettings.apply(visionPortal, exposureMs, gain),
+                minExposure, maxExposure, minGain, maxGain);
+
+        telemetry.addData("Saved", (saved == null) ? "none" : saved.getExposureMs() + " mS, gain " + saved.getGain());
+        telemetry.addData(">", "Touch Play, put a tag in view, then press A to tune");
+        telemetry.update();
+        waitForStart();
+
+        boolean tuning = false;
+        long    lastSequence = 0;
+
+        while (opModeIsActive()) {
+            if (gamepad1.a && !tuning) {
+                recording = new RecordedExposureSweep();
+                tuner.setFrameLog(recording);
+                tuner.start();
+                tuning = true;
+            }
+
+            VisionResult result = publisher.getLatest();
+            if (tuning && result.isNewerThan(lastSequence)) {
+                if (tuner.addFrame(result)) {
+                    tuning = false;
+                    ExposureTuner.Trial best = tuner.getBest();
+                    if (tuner.isReliable(best)) {
+                        saved = new CameraExposureSettings(best.getExposureMs(), best.getGain());
+                        saved.save(CAMERA_NAME);
+                    }
+                    ReadWriteFile.writeFile(
+                            AppUtil.getInstance().getSettingsFile("exposure_sweep_" + CAMERA_NAME + ".csv"),
+                            recording.toCsv());
+                }
+            }
+            lastSequence = result.getSequence();
+
+            telemetry.addData("Range", "Exposure %d - %d mS, Gain %d - %d", minExposure, maxExposure, minGain, maxGain);
+            telemetry.addData("Phase", "%s, %d settings tried", tuner.getPhase(), tuner.getTrials().size());
+            ExposureTuner.Trial trial = tuning ? tuner.getCurrent() : tuner.getBest();
+            if (trial != null) {
+                telemetry.addData(tuning ? "Trying" : "Best", "%d mS, gain %d", trial.getExposureMs(), trial.getGain());
+                telemetry.addData("Score", "%.0f%% detected, margin %.0f, %.1f mS  (%s)",
+                        trial.getDetectionRate() * 100, trial.getMeanMargin(), trial.getMeanProcessingMs(),
+                        tuner.isReliable(trial) ? "reliable" : "unreliable");
+            }
+            if (saved != null) {
+                telemetry.addData("Saved", "%d mS, gain %d", saved.getExposureMs(), saved.getGain());
+            }
+            telemetry.addData(">", tuning ? "Tuning ..." : "Press A to tune");
+            telemetry.update();
+            sleep(10);
+        }
+
+        visionPortal.close();
+    }
+}
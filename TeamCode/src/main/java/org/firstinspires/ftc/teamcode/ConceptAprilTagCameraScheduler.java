@@ -0,0 +1,103 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.eventloop.opmode.Disabled;
+import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
+import com.qualcomm.robotcore.eventloop.opmode.TeleOp;
+
+import org.firstinspires.ftc.robotcore.external.hardware.camera.WebcamName;
+import org.firstinspires.ftc.teamcode.telemetry.FastTelemetry;
+import org.firstinspires.ftc.teamcode.vision.AprilTagPublisher;
+import org.firstinspires.ftc.teamcode.vision.CameraScheduler;
+import org.firstinspires.ftc.teamcode.vision.VisionResult;
+import org.firstinspires.ftc.vision.VisionPortal;
+import org.firstinspires.ftc.vision.apriltag.AprilTagDetection;
+import org.firstinspires.ftc.vision.apriltag.AprilTagProcessor;
+
+/*
+ * This OpMode runs two cameras at once, like ConceptAprilTagMultiPortal, but within a fixed AprilTag CPU budget.
+ *
+ * A CameraScheduler measures each camera's processing time and keeps their total under BUDGET_MS_PER_SECOND,
+ * by raising a camera's decimation, or switching it to occasional scanning, when the total is too high.
+ * Whichever camera most recently saw a tag gets the best settings; with no tag in view, "Webcam 1" is preferred.
+ *
+ * The telemetry shows, for each camera: its level, processed and camera FPS, processing time per frame,
+ * its share of the budget, and how many frames it has dropped (delivered but not processed).
+ */
+@TeleOp(name = "Concept: AprilTag Camera Scheduler", group = "Concept")
+@Disabled
+public class ConceptAprilTagCameraScheduler extends LinearOpMode {
+
+    final double BUDGET_MS_PER_SECOND = 400;   // AprilTag processing allowed for both cameras, per second.
+    final long   WINDOW_MS            = 250;   // How often the scheduler re-balances.
+
+    @Override
+    public void runOpMode() {
+        int[] viewIds = VisionPortal.makeMultiPortalView(2, VisionPortal.MultiPortalLayout.VERTICAL);
+
+        // Each camera has its own AprilTag processor, followed by a publisher that reports its frame statistics.
+        // The publisher's start stage goes before the processor, so that only the processing itself is timed.
+        AprilTagProcessor aprilTag1  = AprilTagProcessor.easyCreateWithDefaults();
+        AprilTagProcessor aprilTag2  = AprilTagProcessor.easyCreateWithDefaults();
+        AprilTagPublisher publisher1 = new AprilTagPublisher(aprilTag1);
+        AprilTagPublisher publisher2 = new AprilTagPublisher(aprilTag2);
+
+        VisionPortal portal1 = new VisionPortal.Builder()
+                .setCamera(hardwareMap.get(WebcamName.class, "Webcam 1"))
+                .setLiveViewContainerId(viewIds[0])
+                .addProcessors(publisher1.getStartStage(), aprilTag1, publisher1)
+                .build();
+        VisionPortal portal2 = new VisionPortal.Builder()
+                .setCamera(hardwareMap.get(WebcamName.class, "Webcam 2"))
+                .setLiveViewContainerId(viewIds[1])
+                .addProcessors(publisher2.getStartStage(), aprilTag2, publisher2)
+                .build();
+
+        CameraScheduler scheduler = new CameraScheduler(BUDGET_MS_PER_SECOND, WINDOW_MS);
+        scheduler.addCamera("Webcam 1", CameraScheduler.Pipeline.of(portal1, aprilTag1), publisher1, 1);
+        scheduler.addCamera("Webcam 2", CameraScheduler.Pipeline.of(portal2, aprilTag2), publisher2, 0);
+
+        telemetry.addData(">", "Touch Play to start OpMode");
+        telemetry.update();
+        waitForStart();
+
+        FastTelemetry      fast       = new FastTelemetry(telemetry, 100);
+        FastTelemetry.Line budgetLine = fast.addLine("Budget", "%4.0f of %4.0f mS/s");
+        FastTelemetry.Line[] cameraLines = new FastTelemetry.Line[2];
+        for (int i = 0; i < cameraLines.length; i++) {
+            cameraLines[i] = fast.addLine(scheduler.getCameras().get(i).getName(),
+                    "%s dec %3.1f | %4.1f of %4.1f FPS | %5.1f mS | %4.0f mS/s | %d dropped");
+        }
+        FastTelemetry.Line tagLine = fast.addLine("Tag", "ID %d from %s, range %5.1f");
+
+        while (opModeIsActive()) {
+            scheduler.update();
+
+            // Use the freshest tag from either camera.
+            VisionResult result1 = publisher1.getLatest();
+            VisionResult result2 = publisher2.getLatest();
+            AprilTagDetection tag1 = result1.findTag(-1);
+            AprilTagDetection tag2 = result2.findTag(-1);
+            boolean useSecond = (tag2 != null) && (tag1 == null || result2.getCaptureNanos() > result1.getCaptureNanos());
+            AprilTagDetection tag = useSecond ? tag2 : tag1;
+
+            budgetLine.set(0, scheduler.getTotalCpuMsPerSecond()).set(1, scheduler.getBudgetMsPerSecond());
+            for (int i = 0; i < cameraLines.length; i++) {
+                CameraScheduler.Camera camera = scheduler.getCameras().get(i);
+                cameraLines[i].setText(0, scheduler.isScanning(camera.getLevel()) ? "SCAN" : "RUN ")
+                              .set(1, scheduler.getDecimation(camera.getLevel()))
+                              .set(2, camera.getFps()).set(3, camera.getCameraFps())
+                              .set(4, camera.getProcessingMs()).set(5, camera.getCpuMsPerSecond())
+                              .set(6, camera.getDroppedFrames());
+            }
+            tagLine.setVisible(tag != null);
+            if (tag != null) {
+                tagLine.set(0, tag.id).setText(1, useSecond ? "Webcam 2" : "Webcam 1").set(2, tag.ftcPose.range);
+            }
+            fast.update();
+            sleep(20);
+        }
+
+        portal1.close();
+        portal2.close();
+    }
+}
@@ -0,0 +1,95 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.eventloop.opmode.Disabled;
+import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
+import com.qualcomm.robotcore.eventloop.opmode.TeleOp;
+
+import org.firstinspires.ftc.robotcore.external.hardware.camera.WebcamName;
+import org.firstinspires.ftc.teamcode.telemetry.FastTelemetry;
+import org.firstinspires.ftc.vision.VisionPortal;
+import org.firstinspires.ftc.vision.apriltag.AprilTagDetection;
+import org.firstinspires.ftc.vision.apriltag.AprilTagProcessor;
+
+import java.util.List;
+
+/*
+ * This OpMode displays the same AprilTag information as the ConceptAprilTag sample, using FastTelemetry.
+ *
+ * Instead of building new Strings with String.format() for every detection on every loop, a fixed pool of
+ * telemetry lines is declared during init (enough for MAX_TAGS detections).  Each loop just stores the
+ * detection values into those lines, and hides the ones that aren't needed.  The lines are only re-rendered
+ * when their displayed values change, and only sent to the Driver Station every PUSH_INTERVAL_MS.
+ */
+@TeleOp(name = "Concept: AprilTag Fast Telemetry", group = "Concept")
+@Disabled
+public class ConceptAprilTagFastTelemetry extends LinearOpMode {
+
+    final int MAX_TAGS         = 4;     // Number of detections that can be displayed at once.
+    final int PUSH_INTERVAL_MS = 100;   // Minimum time between Driver Station updates.
+
+    private AprilTagProcessor aprilTag;
+    private VisionPortal      visionPortal;
+
+    private FastTelemetry      fast;
+    private FastTelemetry.Line countLine;
+    private final FastTelemetry.Line[] idLines     = new FastTelemetry.Line[MAX_TAGS];
+    private final FastTelemetry.Line[] xyzLines    = new FastTelemetry.Line[MAX_TAGS];
+    private final FastTelemetry.Line[] pryLines    = new FastTelemetry.Line[MAX_TAGS];
+    private final FastTelemetry.Line[] rbeLines    = new FastTelemetry.Line[MAX_TAGS];
+    private final FastTelemetry.Line[] centerLines = new FastTelemetry.Line[MAX_TAGS];
+
+    @Override
+    public void runOpMode() {
+        aprilTag = new AprilTagProcessor.Builder().build();
+        visionPortal = new VisionPortal.Builder()
+                .setCamera(hardwareMap.get(WebcamName.class, "Webcam 1"))
+                .addProcessor(aprilTag)
+                .build();
+
+        telemetry.addData(">", "Touch Play to start OpMode");
+        telemetry.update();
+        waitForStart();
+
+        // Declare every line that might be shown.  This is the only place that telemetry allocates.
+        fast = new FastTelemetry(telemetry, PUSH_INTERVAL_MS);
+        countLine = fast.addLine("# AprilTags Detected", "%d");
+        for (int i = 0; i < MAX_TAGS; i++) {
+            idLines[i]     = fast.addLine("\n====", "(ID %d) %s");
+            xyzLines[i]    = fast.addLine("XYZ", "%6.1f %6.1f %6.1f  (inch)");
+            pryLines[i]    = fast.addLine("PRY", "%6.1f %6.1f %6.1f  (deg)");
+            rbeLines[i]    = fast.addLine("RBE", "%6.1f %6.1f %6.1f  (inch, deg, deg)");
+            centerLines[i] = fast.addLine("Center", "%6.0f %6.0f   (pixels)");
+        }
+
+        while (opModeIsActive()) {
+            List<AprilTagDetection> currentDetections = aprilTag.getDetections();
+            countLine.set(0, currentDetections.size());
+
+            for (int i = 0; i < MAX_TAGS; i++) {
+                AprilTagDetection detection = (i < currentDetections.size()) ? currentDetections.get(i) : null;
+                boolean known = (detection != null) && (detection.metadata != null);
+
+                idLines[i].setVisible(detection != null);
+                xyzLines[i].setVisible(known);
+                pryLines[i].setVisible(known);
+                rbeLines[i].setVisible(known);
+                centerLines[i].setVisible(detection != null && !known);
+
+                if (known) {
+                    idLines[i].set(0, detection.id).setText(1, detection.metadata.name);
+                    xyzLines[i].set(0, detection.ftcPose.x).set(1, detection.ftcPose.y).set(2, detection.ftcPose.z);
+                    pryLines[i].set(0, detection.ftcPose.pitch).set(1, detection.ftcPose.roll).set(2, detection.ftcPose.yaw);
+                    rbeLines[i].set(0, detection.ftcPose.range).set(1, detection.ftcPose.bearing).set(2, detection.ftcPose.elevation);
+                } else if (detection != null) {
+                    idLines[i].set(0, detection.id).setText(1, "Unknown");
+                    centerLines[i].set(0, detection.center.x).set(1, detection.center.y);
+                }
+            }
+
+            fast.update();
+            sleep(20);
+        }
+
+        visionPortal.close();
+    }
+}
@@ -0,0 +1,119 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.eventloop.opmode.Disabled;
+import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
+import com.qualcomm.robotcore.eventloop.opmode.TeleOp;
+import com.qualcomm.robotcore.util.ReadWriteFile;
+
+import org.firstinspires.ftc.robotcore.external.hardware.camera.WebcamName;
+import org.firstinspires.ftc.robotcore.internal.system.AppUtil;
+import org.firstinspires.ftc.teamcode.localization.MultiTagLocalizer;
+import org.firstinspires.ftc.teamcode.telemetry.FastTelemetry;
+import org.firstinspires.ftc.teamcode.vision.AprilTagPublisher;
+import org.firstinspires.ftc.teamcode.vision.RecordedDetections;
+import org.firstinspires.ftc.teamcode.vision.VisionResult;
+import org.firstinspires.ftc.vision.VisionPortal;
+import org.firstinspires.ftc.vision.apriltag.AprilTagGameDatabase;
+import org.firstinspires.ftc.vision.apriltag.AprilTagProcessor;
+
+/*
+ * This OpMode shows the robot's field pose, solved from every AprilTag in view by a MultiTagLocalizer.
+ *
+ * ConceptAprilTag lists each tag's ftcPose separately, and the drive-to-tag samples use just one of them.  Here all of
+ * the current game's tags in a frame are fitted together, weighted by decision margin and range, so the pose holds
+ * steady as tags come and go.  With one tag in view, that tag's corners are used alone.
+ *
+ * The corner fit needs the lens intrinsics, so the same values are given to the AprilTagProcessor and the localizer.
+ * The ones below are the SDK's calibration for a Logitech C920 at 640x480: change them for another camera or
+ * resolution.  Also set where the camera is mounted on the robot.
+ *
+ * Press Y to start recording the detections, and Y again to save them to "tag_detections.txt" in the settings folder.
+ * The recording can be loaded back with RecordedDetections.fromText(), and replayed through a MultiTagLocalizer
+ * off the robot.
+ */
+@TeleOp(name = "Concept: AprilTag Multi-Tag", group = "Concept")
+@Disabled
+public class ConceptAprilTagMultiTag extends LinearOpMode {
+
+    final double FX = 622.001, FY = 622.001, CX = 319.803, CY = 241.251;   // Lens intrinsics, in pixels.
+
+    final double CAMERA_FORWARD = 6.0;      // Camera position relative to the robot's center of rotation (inches).
+    final double CAMERA_LEFT    = 0.0;
+    final double CAMERA_HEIGHT  = 8.0;      // Lens height above the floor (inches).
+    final double CAMERA_PITCH   = 0.0;      // Radians the camera is tipped up.
+
+    @Override
+    public void runOpMode() {
+        AprilTagProcessor aprilTag = new AprilTagProcessor.Builder()
+                .setLensIntrinsics(FX, FY, CX, CY)
+                .build();
+        AprilTagPublisher publisher = new AprilTagPublisher(aprilTag);
+        VisionPortal visionPortal = new VisionPortal.Builder()
+                .setCamera(hardwareMap.get(WebcamName.class, "Webcam 1"))
+                .addProcessors(aprilTag, publisher)
+                .build();
+
+        // The tag-to-field layout is built once, here.
+        MultiTagLocalizer localizer = new MultiTagLocalizer();
+        localizer.addLibrary(AprilTagGameDatabase.getCurrentGameTagLibrary());
+        localizer.setLensIntrinsics(FX, FY, CX, CY);
+        localizer.setCamera(CAMERA_FORWARD, CAMERA_LEFT, CAMERA_HEIGHT, CAMERA_PITCH);
+
+        telemetry.addData(">", "Touch Play to start OpMode");
+        telemetry.update();
+        waitForStart();
+
+        FastTelemetry      fast       = new FastTelemetry(telemetry, 100);
+        FastTelemetry.Line poseLine   = fast.addLine("Field pose", "%6.1f %6.1f %6.1f deg");
+        FastTelemetry.Line fitLine    = fast.addLine("Fit", "%s from %d of %d tags, %4.2f px RMS, %d iterations");
+        FastTelemetry.Line timeLine   = fast.addLine("Solve", "%5.1f uS");
+        FastTelemetry.Line recordLine = fast.addLine("Recording", "%d frames (Y to save)");
+        recordLine.setVisible(false);
+
+        RecordedDetections recording = null;
+        long    lastSequence = 0;
+        boolean wasY = false;
+
+        while (opModeIsActive()) {
+            VisionResult result = publisher.getLatest();
+            if (result.isNewerThan(lastSequence)) {
+                lastSequence = result.getSequence();
+
+                long start = System.nanoTime();
+                boolean solved = localizer.solve(result.getDetections());
+                timeLine.set(0, (System.nanoTime() - start) / 1e3);
+
+                if (solved) {
+                    poseLine.set(0, localizer.getX()).set(1, localizer.getY())
+                            .set(2, Math.toDegrees(localizer.getHeading()));
+                }
+                fitLine.setText(0, localizer.getMethod().name()).set(1, localizer.getTagCount())
+                       .set(2, localizer.getTagsSeen()).set(3, localizer.getRmsPixels())
+                       .set(4, localizer.getIterations());
+
+                if (recording != null) {
+                    recording.record(result.getCaptureNanos(), result.getDetections());
+                    recordLine.set(0, recording.getFrameCount());
+                }
+            }
+
+            if (gamepad1.y && !wasY) {
+                if (recording == null) {
+                    recording = new RecordedDetections();
+                    recordLine.set(0, 0).setVisible(true);
+                } else {
+                    ReadWriteFile.writeFile(AppUtil.getInstance().getSettingsFile("tag_detections.txt"),
+                                            recording.toText());
+                    recording = null;
+                    recordLine.setVisible(false);
+                }
+            }
+            wasY = gamepad1.y;
+
+            fast.update();
+            sleep(10);
+        }
+
+        visionPortal.close();
+    }
+}
@@ -0,0 +1,174 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.hardware.sparkfun.SparkFunOTOS;
+import com.qualcomm.robotcore.eventloop.opmode.Disabled;
+import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
+import com.qualcomm.robotcore.eventloop.opmode.TeleOp;
+import com.qualcomm.robotcore.hardware.DcMotor;
+import com.qualcomm.robotcore.util.Range;
+
+import org.firstinspires.ftc.robotcore.external.hardware.camera.WebcamName;
+import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
+import org.firstinspires.ftc.robotcore.external.navigation.DistanceUnit;
+import org.firstinspires.ftc.teamcode.localization.LatencyCompensatedPoseEstimator;
+import org.firstinspires.ftc.teamcode.localization.TagRelativePose;
+import org.firstinspires.ftc.teamcode.telemetry.FastTelemetry;
+import org.firstinspires.ftc.teamcode.vision.AprilTagPublisher;
+import org.firstinspires.ftc.teamcode.vision.VisionResult;
+import org.firstinspires.ftc.vision.VisionPortal;
+import org.firstinspires.ftc.vision.apriltag.AprilTagDetection;
+import org.firstinspires.ftc.vision.apriltag.AprilTagProcessor;
+
+/*
+ * This OpMode drives to an AprilTag using a latency-compensated pose, instead of the raw tag pose.
+ *
+ * The pose is tracked in the desired tag's own frame: the tag is at the origin, its face points along +X,
+ * and +Y is to the tag's left.  Holding the Left Bumper drives the robot to DESIRED_DISTANCE in front of the tag,
+ * squarely facing it (pose DESIRED_DISTANCE, 0, 180 degrees).
+ *
+ * A SparkFun OTOS (as in the SensorSparkFunOTOS sample) provides odometry every loop.  Each AprilTag frame is
+ * converted to a robot pose and applied to a LatencyCompensatedPoseEstimator at the frame's CAPTURE time, so the
+ * camera's processing delay no longer causes the robot to overshoot when approaching at speed.
+ *
+ * The motor names and drive conventions are the same as RobotAutoDriveToAprilTagOmni.
+ */
+@TeleOp(name = "Concept: AprilTag Pose Fusion", group = "Concept")
+@Disabled
+public class ConceptAprilTagPoseFusion extends LinearOpMode {
+
+    final double DESIRED_DISTANCE = 12.0;   // Inches in front of the tag.
+    final int    DESIRED_TAG_ID   = -1;     // Tag to approach, or -1 for ANY tag in the library.
+
+    final double CAMERA_FORWARD   = 6.0;    // Camera position relative to the robot's center of rotation (inches).
+    final double CAMERA_LEFT      = 0.0;
+
+    final double POSITION_GAIN    = 0.5;    // Fraction of each vision position error to correct.
+    final double HEADING_GAIN     = 0.3;    // Fraction of each vision heading error to correct.
+
+    final double SPEED_GAIN  = 0.03;        // Power per inch of forward error.
+    final double STRAFE_GAIN = 0.03;        // Power per inch of sideways error.
+    final double TURN_GAIN   = 0.6;         // Power per radian of heading error.
+    final double MAX_AUTO_SPEED  = 0.5;
+    final double MAX_AUTO_STRAFE = 0.5;
+    final double MAX_AUTO_TURN   = 0.3;
+
+    private DcMotor leftFrontDrive, rightFrontDrive, leftBackDrive, rightBackDrive;
+
+    @Override
+    public void runOpMode() {
+        AprilTagProcessor aprilTag  = new AprilTagProcessor.Builder().build();
+        AprilTagPublisher publisher = new AprilTagPublisher(aprilTag);
+        VisionPortal visionPortal = new VisionPortal.Builder()
+                .setCamera(hardwareMap.get(WebcamName.class, "Webcam 1"))
+                .addProcessors(aprilTag, publisher)
+                .build();
+
+        SparkFunOTOS otos = hardwareMap.get(SparkFunOTOS.class, "sensor_otos");
+        otos.setLinearUnit(DistanceUnit.INCH);
+        otos.setAngularUnit(AngleUnit.RADIANS);
+        otos.calibrateImu();
+        otos.resetTracking();
+
+        leftFrontDrive  = hardwareMap.get(DcMotor.class, "leftfront_drive");
+        rightFrontDrive = hardwareMap.get(DcMotor.class, "rightfront_drive");
+        leftBackDrive   = hardwareMap.get(DcMotor.class, "leftback_drive");
+        rightBackDrive  = hardwareMap.get(DcMotor.class, "rightback_drive");
+        leftFrontDrive.setDirection(DcMotor.Direction.REVERSE);
+        leftBackDrive.setDirection(DcMotor.Direction.REVERSE);
+
+        // 64 samples covers over 300 mS of history at a 5 mS loop, which is longer than the camera's latency.
+        LatencyCompensatedPoseEstimator estimator = new LatencyCompensatedPoseEstimator(64);
+        double[] tagPose = new double[3];
+        boolean  located = false;
+        long     lastSequence = 0;
+
+        telemetry.addData(">", "Touch Play to start OpMode");
+        telemetry.update();
+        waitForStart();
+
+        FastTelemetry      fast      = new FastTelemetry(telemetry, 100);
+        FastTelemetry.Line poseLine  = fast.addLine("Fused pose", "%6.1f %6.1f %6.1f deg");
+        FastTelemetry.Line tagLine   = fast.addLine("Tag pose", "%6.1f %6.1f %6.1f deg  (%5.1f mS old)");
+        FastTelemetry.Line countLine = fast.addLine("Corrections", "%d applied, %d too old");
+
+        while (opModeIsActive()) {
+            long now = System.nanoTime();
+
+            // Odometry, every loop.
+            SparkFunOTOS.Pose2D odometry = otos.getPosition();
+            estimator.addOdometry(now, odometry.x, odometry.y, odometry.h);
+
+            // Vision, whenever a new frame is available, applied at the time the frame was captured.
+            VisionResult result = publisher.getLatest();
+            if (result.isNewerThan(lastSequence)) {
+                lastSequence = result.getSequence();
+                AprilTagDetection tag = result.findTag(DESIRED_TAG_ID);
+                if (tag != null) {
+                    TagRelativePose.robotPoseFromTag(0, 0, 0, tag.ftcPose, CAMERA_FORWARD, CAMERA_LEFT, tagPose);
+                    if (!located) {
+                        estimator.setPose(tagPose[0], tagPose[1], tagPose[2]);
+                        located = true;
+                    } else {
+                        estimator.addVisionMeasurement(result.getCaptureNanos(), tagPose[0], tagPose[1], tagPose[2],
+                                                       POSITION_GAIN, HEADING_GAIN);
+                    }
+                    tagLine.set(0, tagPose[0]).set(1, tagPose[1]).set(2, Math.toDegrees(tagPose[2]))
+                           .set(3, result.getAgeNanos(now) / 1e6);
+                }
+            }
+
+            double drive, strafe, turn;
+            if (gamepad1.left_bumper && located) {
+                // Field-frame error to the goal pose, rotated into the robot's frame.
+                double heading = estimator.getHeading();
+                double errorX  = DESIRED_DISTANCE - estimator.getX();
+                double errorY  = 0 - estimator.getY();
+                double forward =  errorX * Math.cos(heading) + errorY * Math.sin(heading);
+                double left    = -errorX * Math.sin(heading) + errorY * Math.cos(heading);
+                double errorH  = LatencyCompensatedPoseEstimator.normalize(Math.PI - heading);
+
+                drive  = Range.clip(forward * SPEED_GAIN, -MAX_AUTO_SPEED, MAX_AUTO_SPEED);
+                strafe = Range.clip(left * STRAFE_GAIN, -MAX_AUTO_STRAFE, MAX_AUTO_STRAFE);
+                turn   = Range.clip(errorH * TURN_GAIN, -MAX_AUTO_TURN, MAX_AUTO_TURN);
+            } else {
+                drive  = -gamepad1.left_stick_y  / 2.0;
+                strafe = -gamepad1.left_stick_x  / 2.0;
+                turn   = -gamepad1.right_stick_x / 3.0;
+            }
+            moveRobot(drive, strafe, turn);
+
+            poseLine.set(0, estimator.getX()).set(1, estimator.getY()).set(2, Math.toDegrees(estimator.getHeading()));
+            countLine.set(0, estimator.getCorrectionsApplied()).set(1, estimator.getCorrectionsRejected());
+            fast.update();
+        }
+
+        visionPortal.close();
+    }
+
+    /**
+     * Move robot according to desired axes motions, as in RobotAutoDriveToAprilTagOmni.
+     * Positive X is forward, positive Y is strafe left, positive Yaw is counter-clockwise.
+     */
+    public void moveRobot(double x, double y, double yaw) {
+        double leftFrontPower  = x - y - yaw;
+        double rightFrontPower = x + y + yaw;
+        double leftBackPower   = x + y - yaw;
+        double rightBackPower  = x - y + yaw;
+
+        double max = Math.max(Math.abs(leftFrontPower), Math.abs(rightFrontPower));
+        max = Math.max(max, Math.abs(leftBackPower));
+        max = Math.max(max, Math.abs(rightBackPower));
+
+        if (max > 1.0) {
+            leftFrontPower  /= max;
+            rightFrontPower /= max;
+            leftBackPower   /= max;
+            rightBackPower  /= max;
+        }
+
+        leftFrontDrive.setPower(leftFrontPower);
+        rightFrontDrive.setPower(rightFrontPower);
+        leftBackDrive.setPower(leftBackPower);
+        rightBackDrive.setPower(rightBackPower);
+    }
+}
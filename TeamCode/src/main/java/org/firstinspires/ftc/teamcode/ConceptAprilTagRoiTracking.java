@@ -0,0 +1,110 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.hardware.rev.RevHubOrientationOnRobot;
+import com.qualcomm.robotcore.eventloop.opmode.Disabled;
+import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
+import com.qualcomm.robotcore.eventloop.opmode.TeleOp;
+import com.qualcomm.robotcore.hardware.IMU;
+
+import org.firstinspires.ftc.robotcore.external.hardware.camera.WebcamName;
+import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
+import org.firstinspires.ftc.teamcode.telemetry.FastTelemetry;
+import org.firstinspires.ftc.teamcode.vision.AprilTagRoiTracker;
+import org.firstinspires.ftc.vision.VisionPortal;
+import org.firstinspires.ftc.vision.apriltag.AprilTagDetection;
+import org.firstinspires.ftc.vision.apriltag.AprilTagProcessor;
+
+import java.util.List;
+
+/*
+ * This OpMode shows an AprilTagRoiTracker: AprilTag detection that, once it has found tags, searches only the
+ * regions where it expects them in the next frame, at full resolution.
+ *
+ * The camera stream shows each frame's search regions in yellow and the tags found in green.  Telemetry shows how
+ * the last frame was searched, what part of a full-resolution frame that was, and the tracker's mean time per frame.
+ * Press A to turn tracking off and on, to compare with searching the whole frame every frame, and dpad up and down
+ * to change the decimation of the whole-frame searches.  At decimation 1, tags are found from furthest away.
+ *
+ * The robot's turn rate is read from the IMU and given to the tracker, so that it keeps the tags through a turn.
+ * The lens intrinsics are the SDK's calibration for a Logitech C920 at 640x480: change them for another camera or
+ * resolution.  The hardware configuration is a webcam named "Webcam 1" and a REV Hub IMU named "imu".
+ *
+ * RoiTrackingSimulationTest compares the tracker with whole-frame searches, off the robot.
+ */
+@TeleOp(name = "Concept: AprilTag ROI Tracking", group = "Concept")
+@Disabled
+public class ConceptAprilTagRoiTracking extends LinearOpMode {
+
+    final double FX = 622.001, FY = 622.001, CX = 319.803, CY = 241.251;   // Lens intrinsics, in pixels.
+
+    final int SEARCH_INTERVAL = 15;         // Frames between whole-frame searches, to find new tags.
+
+    @Override
+    public void runOpMode() {
+        IMU imu = hardwareMap.get(IMU.class, "imu");
+        imu.initialize(new IMU.Parameters(new RevHubOrientationOnRobot(
+                RevHubOrientationOnRobot.LogoFacingDirection.UP, RevHubOrientationOnRobot.UsbFacingDirection.FORWARD)));
+
+        AprilTagProcessor aprilTag = new AprilTagProcessor.Builder()
+                .setLensIntrinsics(FX, FY, CX, CY)
+                .build();
+        AprilTagRoiTracker tracker = new AprilTagRoiTracker(aprilTag, FX, FY, CX, CY);
+        int decimation = 2;
+        tracker.setSearch(decimation, SEARCH_INTERVAL);
+        VisionPortal visionPortal = new VisionPortal.Builder()
+                .setCamera(hardwareMap.get(WebcamName.class, "Webcam 1"))
+                .addProcessor(tracker)              // Not aprilTag: the tracker runs it.
+                .build();
+
+        telemetry.addData(">", "Touch Play to start OpMode");
+        telemetry.update();
+        waitForStart();
+
+        FastTelemetry      fast       = new FastTelemetry(telemetry, 100);
+        FastTelemetry.Line modeLine   = fast.addLine("Tracking", "%s, whole frame at decimation %d (A, dpad)");
+        FastTelemetry.Line searchLine = fast.addLine("Last frame", "%s, %4.2f of a frame, %d tracks");
+        FastTelemetry.Line timeLine   = fast.addLine("Time", "%6.0f uS mean, %6.0f uS last");
+        FastTelemetry.Line countLine  = fast.addLine("Frames", "%d, %d searched whole, %d tracks lost");
+        FastTelemetry.Line tagLine    = fast.addLine("Tags", "%d: %s");
+
+        boolean tracking = true;
+        boolean wasA = false, wasUp = false, wasDown = false;
+        StringBuilder ids = new StringBuilder();      // Reused each loop: setText() copies it when it changes.
+
+        while (opModeIsActive()) {
+            tracker.setRobotYawRate(imu.getRobotAngularVelocity(AngleUnit.RADIANS).zRotationRate);
+
+            if (gamepad1.a && !wasA) {
+                tracking = !tracking;
+                tracker.setTracking(tracking);
+            }
+            if (gamepad1.dpad_up && !wasUp && decimation < 4) {
+                tracker.setSearch(++decimation, SEARCH_INTERVAL);
+            }
+            if (gamepad1.dpad_down && !wasDown && decimation > 1) {
+                tracker.setSearch(--decimation, SEARCH_INTERVAL);
+            }
+            wasA    = gamepad1.a;
+            wasUp   = gamepad1.dpad_up;
+            wasDown = gamepad1.dpad_down;
+
+            List<AprilTagDetection> detections = tracker.getDetections();
+            ids.setLength(0);
+            for (AprilTagDetection detection : detections) {
+                ids.append(detection.id).append(' ');
+            }
+
+            modeLine.setText(0, tracking ? "on" : "off").set(1, decimation);
+            searchLine.setText(0, tracker.getLastSearch().name()).set(1, tracker.getLastSearchedFraction())
+                      .set(2, tracker.getTrackCount());
+            timeLine.set(0, tracker.getMeanMicros()).set(1, tracker.getLastMicros());
+            countLine.set(0, tracker.getFrames()).set(1, tracker.getFullSearches()).set(2, tracker.getLostTracks());
+            tagLine.set(0, detections.size()).setText(1, ids);
+
+            fast.update();
+            sleep(20);
+        }
+
+        visionPortal.close();
+    }
+}
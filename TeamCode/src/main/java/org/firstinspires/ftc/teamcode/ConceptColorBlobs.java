@@ -0,0 +1,126 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.eventloop.opmode.Disabled;
+import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
+import com.qualcomm.robotcore.eventloop.opmode.TeleOp;
+
+import org.firstinspires.ftc.robotcore.external.hardware.camera.WebcamName;
+import org.firstinspires.ftc.teamcode.telemetry.FastTelemetry;
+import org.firstinspires.ftc.teamcode.vision.ColorBlobProcessor;
+import org.firstinspires.ftc.vision.VisionPortal;
+import org.opencv.core.Rect;
+import org.opencv.core.Scalar;
+
+/*
+ * This OpMode finds game pieces by color with a ColorBlobProcessor, and shows the largest ones and what each
+ * processing stage costs.
+ *
+ * Press X for blue pieces, B for red and Y for yellow.  Press dpad up and down to change the downscale, and A to look
+ * only at the bottom half of the frame (where pieces on the floor in front of the robot are).  The camera stream
+ * shows the blobs' bounding boxes, and the region when there is one.
+ *
+ * The HSV ranges below are a starting point: tune them under the field's lighting, with the camera's exposure fixed.
+ * The hardware configuration is a webcam named "Webcam 1".
+ */
+@TeleOp(name = "Concept: Color Blobs", group = "Concept")
+@Disabled
+public class ConceptColorBlobs extends LinearOpMode {
+
+    final int    WIDTH    = 640, HEIGHT = 480;   // Camera resolution.
+    final double MIN_AREA = 200;                 // Smallest piece to report, in frame pixels.
+
+    @Override
+    public void runOpMode() {
+        ColorBlobProcessor blobFinder = new ColorBlobProcessor(ColorBlobProcessor.ColorSpace.HSV);
+        blobFinder.setMinArea(MIN_AREA);
+        setColor(blobFinder, "Yellow");
+        VisionPortal visionPortal = new VisionPortal.Builder()
+                .setCamera(hardwareMap.get(WebcamName.class, "Webcam 1"))
+                .addProcessor(blobFinder)
+                .build();
+
+        telemetry.addData(">", "Touch Play to start OpMode");
+        telemetry.update();
+        waitForStart();
+
+        FastTelemetry      fast      = new FastTelemetry(telemetry, 100);
+        FastTelemetry.Line modeLine  = fast.addLine("Finding", "%s, downscale %d, %s (X/B/Y, dpad, A)");
+        FastTelemetry.Line countLine = fast.addLine("Blobs", "%d, frame %d, %4.0f mS old");
+        FastTelemetry.Line stageLine = fast.addLine("Stages", "convert %5.0f, threshold %5.0f, morph %5.0f, "
+                                                              + "blobs %5.0f uS");
+        FastTelemetry.Line meanLine  = fast.addLine("Mean", "%5.0f uS per frame");
+        FastTelemetry.Line[] blobLines = new FastTelemetry.Line[3];     // The largest blobs.
+        for (int b = 0; b < blobLines.length; b++) {
+            blobLines[b] = fast.addLine("Blob " + (b + 1),
+                                        "(%4.0f, %4.0f) area %6.0f, %4.0f deg, %3.1f long, %4.0f x %4.0f");
+        }
+
+        ColorBlobProcessor.Blobs blobs = blobFinder.newBlobs();
+        String  color     = "Yellow";
+        int     downscale = 2;
+        boolean region    = false;
+        boolean wasUp = false, wasDown = false, wasA = false;
+
+        while (opModeIsActive()) {
+            String wanted = gamepad1.x ? "Blue" : gamepad1.b ? "Red" : gamepad1.y ? "Yellow" : color;
+            if (!wanted.equals(color)) {
+                color = wanted;
+                setColor(blobFinder, color);
+            }
+            if (gamepad1.dpad_up && !wasUp && downscale < 8) {
+                blobFinder.setDownscale(++downscale);
+            }
+            if (gamepad1.dpad_down && !wasDown && downscale > 1) {
+                blobFinder.setDownscale(--downscale);
+            }
+            if (gamepad1.a && !wasA) {
+                region = !region;
+                blobFinder.setRegion(region ? new Rect(0, HEIGHT / 2, WIDTH, HEIGHT / 2) : null);
+            }
+            wasUp   = gamepad1.dpad_up;
+            wasDown = gamepad1.dpad_down;
+            wasA    = gamepad1.a;
+
+            if (blobFinder.read(blobs)) {
+                countLine.set(0, blobs.getCount()).set(1, blobs.getSequence()).set(2, blobs.getAgeNanos() / 1e6);
+                for (int b = 0; b < blobLines.length; b++) {
+                    blobLines[b].setVisible(b < blobs.getCount());
+                    if (b < blobs.getCount()) {
+                        blobLines[b].set(0, blobs.getCenterX(b)).set(1, blobs.getCenterY(b))
+                                    .set(2, blobs.getArea(b)).set(3, blobs.getAngle(b))
+                                    .set(4, blobs.getElongation(b))
+                                    .set(5, blobs.getWidth(b)).set(6, blobs.getHeight(b));
+                    }
+                }
+                stageLine.set(0, blobs.getStageNanos(ColorBlobProcessor.Stage.CONVERT) / 1e3)
+                         .set(1, blobs.getStageNanos(ColorBlobProcessor.Stage.THRESHOLD) / 1e3)
+                         .set(2, blobs.getStageNanos(ColorBlobProcessor.Stage.MORPHOLOGY) / 1e3)
+                         .set(3, blobs.getStageNanos(ColorBlobProcessor.Stage.BLOBS) / 1e3);
+                meanLine.set(0, blobFinder.getMeanMicros());
+            }
+            modeLine.setText(0, color).set(1, downscale).setText(2, region ? "bottom half" : "whole frame");
+
+            fast.update();
+            sleep(20);
+        }
+
+        visionPortal.close();
+    }
+
+    // HSV ranges for the game pieces: hue 0-180, saturation and value 0-255.  Red wraps around hue 0.
+    private static void setColor(ColorBlobProcessor blobFinder, String color) {
+        blobFinder.clearRanges();
+        switch (color) {
+            case "Blue":
+                blobFinder.addRange(new Scalar(100, 120, 60), new Scalar(130, 255, 255));
+                break;
+            case "Red":
+                blobFinder.addRange(new Scalar(0, 120, 60), new Scalar(8, 255, 255));
+                blobFinder.addRange(new Scalar(170, 120, 60), new Scalar(180, 255, 255));
+                break;
+            default:
+                blobFinder.addRange(new Scalar(15, 120, 100), new Scalar(35, 255, 255));
+                break;
+        }
+    }
+}
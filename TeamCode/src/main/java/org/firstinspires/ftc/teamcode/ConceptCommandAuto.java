@@ -0,0 +1,191 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.hardware.rev.RevHubOrientationOnRobot;
+import com.qualcomm.robotcore.eventloop.opmode.Autonomous;
+import com.qualcomm.robotcore.eventloop.opmode.Disabled;
+import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
+import com.qualcomm.robotcore.hardware.DcMotor;
+import com.qualcomm.robotcore.hardware.IMU;
+import com.qualcomm.robotcore.hardware.Servo;
+
+import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
+import org.firstinspires.ftc.teamcode.command.Command;
+import org.firstinspires.ftc.teamcode.command.CommandScheduler;
+import org.firstinspires.ftc.teamcode.command.Commands;
+import org.firstinspires.ftc.teamcode.command.Subsystem;
+import org.firstinspires.ftc.teamcode.control.MotorToPositionCommand;
+import org.firstinspires.ftc.teamcode.control.ProfileFollower;
+import org.firstinspires.ftc.teamcode.control.ProfiledEncoderDrive;
+import org.firstinspires.ftc.teamcode.control.ProfiledMoveCommand;
+import org.firstinspires.ftc.teamcode.control.TurnToHeadingCommand;
+import org.firstinspires.ftc.teamcode.hardware.ImuSampler;
+
+import java.util.function.DoubleSupplier;
+
+/*
+ * This OpMode runs a scoring cycle as Commands on a CommandScheduler, so the arm moves while the robot drives.
+ *
+ * RobotAutoDriveByGyro_Linear does each step with a blocking routine (driveStraight(), turnToHeading(),
+ * holdHeading()), so an arm could only move between drive steps.  Here there is a single loop, and each pass of
+ * scheduler.run() steps every running command: the arm rises while the robot drives forward, turns and approaches,
+ * the claw opens, and the arm lowers while the robot backs away and turns back.
+ *
+ * scoringCycle() builds the same plan one step at a time too, the way the blocking routines run it, for comparison.
+ *
+ * The hardware is RobotHardware's: "left_drive", "right_drive" and "arm" motors, "left_hand" and "right_hand"
+ * servos, and a REV Hub IMU named "imu".  The drive constants are RobotAutoDriveByGyro_Linear's.
+ */
+@Autonomous(name = "Concept: Command Auto", group = "Concept")
+@Disabled
+public class ConceptCommandAuto extends LinearOpMode {
+
+    static final double COUNTS_PER_MOTOR_REV  = 537.7;     // eg: GoBILDA 312 RPM Yellow Jacket
+    static final double DRIVE_GEAR_REDUCTION  = 1.0;       // No External Gearing.
+    static final double WHEEL_DIAMETER_INCHES = 4.0;       // For figuring circumference
+    static final double COUNTS_PER_INCH       = (COUNTS_PER_MOTOR_REV * DRIVE_GEAR_REDUCTION) /
+                                                (WHEEL_DIAMETER_INCHES * 3.1415);
+    static final double MAX_TICKS_PER_SECOND  = COUNTS_PER_MOTOR_REV * 312 / 60;
+    static final double MAX_INCHES_PER_SECOND = MAX_TICKS_PER_SECOND / COUNTS_PER_INCH;
+
+    static final double MAX_VELOCITY = 0.85 * MAX_INCHES_PER_SECOND;
+    static final double MAX_ACCEL    = 60;
+    static final double MAX_JERK     = 400;
+    static final double K_V          = 1.0 / MAX_INCHES_PER_SECOND;
+
+    static final double TURN_SPEED   = 0.2;
+    static final double HOLD_SECONDS = 0.5;
+
+    static final int    ARM_UP       = 1800;               // Arm encoder ticks at the scoring height.
+    static final double ARM_POWER    = 1.0;
+    static final double MID_SERVO    = 0.5;
+    static final double CLAW_OPEN    = 0.3;                // Offset from MID_SERVO.
+    static final double CLAW_SECONDS = 0.4;                // Time for the claw to open.
+
+    static final double LOOP_SECONDS = 0.005;
+
+    @Override
+    public void runOpMode() {
+        final DcMotor leftDrive  = hardwareMap.get(DcMotor.class, "left_drive");
+        final DcMotor rightDrive = hardwareMap.get(DcMotor.class, "right_drive");
+        final DcMotor armMotor   = hardwareMap.get(DcMotor.class, "arm");
+        final Servo   leftHand   = hardwareMap.get(Servo.class, "left_hand");
+        final Servo   rightHand  = hardwareMap.get(Servo.class, "right_hand");
+        leftDrive.setDirection(DcMotor.Direction.REVERSE);
+        rightDrive.setDirection(DcMotor.Direction.FORWARD);
+        for (DcMotor motor : new DcMotor[] {leftDrive, rightDrive, armMotor}) {
+            motor.setZeroPowerBehavior(DcMotor.ZeroPowerBehavior.BRAKE);
+            motor.setMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER);
+        }
+        leftDrive.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
+        rightDrive.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
+        leftHand.setPosition(MID_SERVO);
+        rightHand.setPosition(MID_SERVO);
+
+        IMU imu = hardwareMap.get(IMU.class, "imu");
+        imu.initialize(new IMU.Parameters(new RevHubOrientationOnRobot(
+                RevHubOrientationOnRobot.LogoFacingDirection.UP, RevHubOrientationOnRobot.UsbFacingDirection.FORWARD)));
+        final ImuSampler imuSampler = new ImuSampler(imu, 10_000);
+        DoubleSupplier heading = new DoubleSupplier() {
+            @Override
+            public double getAsDouble() {
+                return imuSampler.getHeading(AngleUnit.DEGREES);
+            }
+        };
+
+        // The subsystems, and the commands that use them.  Everything is planned now, so the commands don't allocate.
+        Subsystem driveBase = new Subsystem("drive");
+        Subsystem arm       = new Subsystem("arm");
+        Subsystem claw      = new Subsystem("claw");
+
+        ProfiledEncoderDrive drive = new ProfiledEncoderDrive(leftDrive, rightDrive, COUNTS_PER_INCH,
+                new ProfileFollower(K_V, 0.1 * K_V, 0, 0.15, 0, 0, 1.0),
+                new ProfileFollower(K_V, 0.1 * K_V, 0, 0.15, 0, 0, 1.0), LOOP_SECONDS);
+        int forward  = drive.addMove(30, 30, MAX_VELOCITY, MAX_ACCEL, MAX_JERK);
+        int approach = drive.addMove(12, 12, MAX_VELOCITY, MAX_ACCEL, MAX_JERK);
+        int back     = drive.addMove(-12, -12, MAX_VELOCITY, MAX_ACCEL, MAX_JERK);
+
+        Command openClaw = Commands.sequence(
+                Commands.instant(new Runnable() {
+                    @Override
+                    public void run() {
+                        leftHand.setPosition(MID_SERVO + CLAW_OPEN);
+                        rightHand.setPosition(MID_SERVO - CLAW_OPEN);
+                    }
+                }, claw),
+                Commands.waitSeconds(CLAW_SECONDS)).withName("Open claw");
+
+        Command cycle = scoringCycle(true,
+                new ProfiledMoveCommand(drive, forward, driveBase),
+                turn(leftDrive, rightDrive, heading, 90, driveBase),
+                new ProfiledMoveCommand(drive, approach, driveBase),
+                new MotorToPositionCommand(armMotor, ARM_UP, ARM_POWER, arm),
+                openClaw,
+                new ProfiledMoveCommand(drive, back, driveBase),
+                turn(leftDrive, rightDrive, heading, 0, driveBase),
+                new MotorToPositionCommand(armMotor, 0, ARM_POWER, arm));
+
+        CommandScheduler scheduler = new CommandScheduler();
+        scheduler.register(driveBase, arm, claw);
+
+        telemetry.addData(">", "Touch Play to start OpMode");
+        telemetry.update();
+
+        waitForStart();
+        imu.resetYaw();
+        imuSampler.start();
+        long cycleStart = System.nanoTime();
+
+        try {
+            scheduler.schedule(cycle);
+            while (opModeIsActive() && cycle.isScheduled()) {
+                scheduler.run(System.nanoTime());
+
+                telemetry.addData("Running", "%d commands", scheduler.getScheduledCount());
+                for (Subsystem subsystem : scheduler.getSubsystems()) {
+                    Command command = subsystem.getCurrentCommand();
+                    telemetry.addData(subsystem.getName(), (command == null) ? "idle" : command.getName());
+                }
+                telemetry.addData("Heading", "%5.1f", imuSampler.getHeading(AngleUnit.DEGREES));
+                telemetry.update();
+            }
+        } finally {
+            scheduler.cancelAll();
+            leftDrive.setPower(0);
+            rightDrive.setPower(0);
+            try {
+                imuSampler.stop();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        telemetry.addData("Cycle", "Complete in %.2f S", (System.nanoTime() - cycleStart) / 1e9);
+        telemetry.update();
+        sleep(1000);  // Pause to display final telemetry message.
+    }
+
+    /**
+     * Build the scoring cycle from its steps, either one step at a time or with the arm moving alongside the drive.
+     */
+    public static Command scoringCycle(boolean together, Command forward, Command turnOut, Command approach,
+                                       Command armUp, Command score, Command back, Command turnBack,
+                                       Command armDown) {
+        if (!together) {
+            return Commands.sequence(forward, turnOut, approach, armUp, score, back, turnBack, armDown)
+                           .withName("Cycle, one step at a time");
+        }
+        return Commands.sequence(
+                Commands.parallel(Commands.sequence(forward, turnOut, approach), armUp),
+                score,
+                Commands.parallel(Commands.sequence(back, turnBack), armDown))
+                .withName("Cycle, mechanisms together");
+    }
+
+    // turnToHeading() followed by holdHeading(), as in RobotAutoDriveByGyro_Linear.
+    private static Command turn(DcMotor left, DcMotor right, DoubleSupplier heading, double target,
+                                Subsystem driveBase) {
+        return Commands.sequence(
+                new TurnToHeadingCommand(left, right, heading, target, TURN_SPEED, 0, driveBase),
+                new TurnToHeadingCommand(left, right, heading, target, TURN_SPEED, HOLD_SECONDS, driveBase));
+    }
+}
@@ -0,0 +1,183 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.hardware.rev.RevHubOrientationOnRobot;
+import com.qualcomm.robotcore.eventloop.opmode.Disabled;
+import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
+import com.qualcomm.robotcore.eventloop.opmode.TeleOp;
+import com.qualcomm.robotcore.hardware.DcMotor;
+import com.qualcomm.robotcore.hardware.DcMotorEx;
+import com.qualcomm.robotcore.hardware.IMU;
+import com.qualcomm.robotcore.util.Range;
+
+import org.firstinspires.ftc.robotcore.external.hardware.camera.WebcamName;
+import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
+import org.firstinspires.ftc.robotcore.internal.system.AppUtil;
+import org.firstinspires.ftc.teamcode.hardware.ImuSampler;
+import org.firstinspires.ftc.teamcode.telemetry.FlightRecorder;
+import org.firstinspires.ftc.teamcode.telemetry.LoopProfiler;
+import org.firstinspires.ftc.teamcode.vision.AprilTagPublisher;
+import org.firstinspires.ftc.teamcode.vision.VisionResult;
+import org.firstinspires.ftc.vision.VisionPortal;
+import org.firstinspires.ftc.vision.apriltag.AprilTagDetection;
+import org.firstinspires.ftc.vision.apriltag.AprilTagProcessor;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/*
+ * This OpMode is a tank drive that records every loop to a FlightRecorder file: both drive motors' positions,
+ * velocities and powers, the IMU heading (from an ImuSampler), the latest AprilTag pose (from an AprilTagPublisher)
+ * and the loop's section timings (from a LoopProfiler).
+ *
+ * Each run writes FIRST/data/flight_yyyyMMdd_HHmmss.bin.  Pull it off the robot after the match and export it with
+ * FlightRecordDecoder (CSV, or one binary file per column) to plot what the robot actually did, loop by loop.
+ *
+ * The tag columns hold the most recent frame's values; tag.sequence changes when a new frame arrives, and the pose
+ * columns are NaN while no tag is in view.
+ *
+ * The hardware configuration is BasicOpMode_Linear's two drive motors, a REV Hub IMU named "imu"
+ * and a webcam named "Webcam 1".
+ */
+@TeleOp(name = "Concept: Flight Recorder", group = "Concept")
+@Disabled
+public class ConceptFlightRecorder extends LinearOpMode {
+
+    final int  CAPACITY      = 32768;      // Records kept; over five minutes at 100 loops per second.
+    final long IMU_PERIOD_US = 10_000;     // Read the IMU 100 times per second.
+
+    @Override
+    public void runOpMode() {
+        DcMotorEx leftDrive  = hardwareMap.get(DcMotorEx.class, "left_drive");
+        DcMotorEx rightDrive = hardwareMap.get(DcMotorEx.class, "right_drive");
+        leftDrive.setDirection(DcMotor.Direction.REVERSE);
+        rightDrive.setDirection(DcMotor.Direction.FORWARD);
+
+        IMU imu = hardwareMap.get(IMU.class, "imu");
+        imu.initialize(new IMU.Parameters(new RevHubOrientationOnRobot(
+                RevHubOrientationOnRobot.LogoFacingDirection.UP, RevHubOrientationOnRobot.UsbFacingDirection.FORWARD)));
+        ImuSampler imuSampler = new ImuSampler(imu, IMU_PERIOD_US);
+
+        AprilTagProcessor aprilTag  = AprilTagProcessor.easyCreateWithDefaults();
+        AprilTagPublisher publisher = new AprilTagPublisher(aprilTag);
+        VisionPortal portal = new VisionPortal.Builder()
+                .setCamera(hardwareMap.get(WebcamName.class, "Webcam 1"))
+                .addProcessors(aprilTag, publisher)
+                .build();
+
+        LoopProfiler profiler = new LoopProfiler(20);
+        int readSection    = profiler.addSection("hardware read");
+        int controlSection = profiler.addSection("control");
+        int writeSection   = profiler.addSection("hardware write");
+
+        // The columns, in record order.
+        FlightRecorder.Schema schema = new FlightRecorder.Schema();
+        int leftPosition   = schema.addInt("left.position");
+        int leftVelocity   = schema.addFloat("left.velocity");
+        int leftPower      = schema.addFloat("left.power");
+        int rightPosition  = schema.addInt("right.position");
+        int rightVelocity  = schema.addFloat("right.velocity");
+        int rightPower     = schema.addFloat("right.power");
+        int heading        = schema.addFloat("imu.heading");
+        int imuAge         = schema.addFloat("imu.age_ms");
+        int tagSequence    = schema.addInt("tag.sequence");
+        int tagId          = schema.addInt("tag.id");
+        int tagX           = schema.addFloat("tag.x");
+        int tagY           = schema.addFloat("tag.y");
+        int tagYaw         = schema.addFloat("tag.yaw");
+        int tagAge         = schema.addFloat("tag.age_ms");
+        int loopMicros     = schema.addInt("loop.us");
+        int readMicros     = schema.addInt("read.us");
+        int controlMicros  = schema.addInt("control.us");
+        int writeMicros    = schema.addInt("write.us");
+
+        String name = "flight_" + new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.US).format(new Date()) + ".bin";
+        File file = new File(AppUtil.ROBOT_DATA_DIR, name);
+        FlightRecorder recorder;
+        try {
+            recorder = new FlightRecorder(file, schema, CAPACITY);
+        } catch (IOException e) {
+            telemetry.addData("Error", "can't create %s: %s", file, e.getMessage());
+            telemetry.update();
+            portal.close();
+            waitForStart();
+            return;
+        }
+
+        telemetry.addData("Status", "Initialized");
+        telemetry.addData("Recording", file.getName());
+        telemetry.update();
+        waitForStart();
+
+        long lastTagSequence = -1;
+        try {
+            imu.resetYaw();
+            imuSampler.start();
+
+            while (opModeIsActive()) {
+                profiler.loop();
+
+                // The encoders are read here, the IMU and camera on their own threads.
+                int    leftTicks  = leftDrive.getCurrentPosition();
+                int    rightTicks = rightDrive.getCurrentPosition();
+                double leftSpeed  = leftDrive.getVelocity();
+                double rightSpeed = rightDrive.getVelocity();
+                VisionResult result = publisher.getLatest();
+                profiler.mark(readSection);
+
+                double drive = -gamepad1.left_stick_y;
+                double turn  =  gamepad1.right_stick_x;
+                double left  = Range.clip(drive + turn, -1.0, 1.0);
+                double right = Range.clip(drive - turn, -1.0, 1.0);
+                profiler.mark(controlSection);
+
+                leftDrive.setPower(left);
+                rightDrive.setPower(right);
+                profiler.mark(writeSection);
+
+                recorder.set(leftPosition, leftTicks).set(leftVelocity, leftSpeed).set(leftPower, left)
+                        .set(rightPosition, rightTicks).set(rightVelocity, rightSpeed).set(rightPower, right)
+                        .set(heading, imuSampler.getHeading(AngleUnit.DEGREES))
+                        .set(imuAge, imuSampler.getAgeNanos() / 1e6);
+
+                // Only touch the tag columns when a new frame has arrived.
+                if (result.isNewerThan(lastTagSequence)) {
+                    lastTagSequence = result.getSequence();
+                    AprilTagDetection tag = result.findTag(-1);
+                    recorder.set(tagSequence, (int) lastTagSequence)
+                            .set(tagId, (tag == null) ? -1 : tag.id)
+                            .set(tagX, (tag == null) ? Float.NaN : tag.ftcPose.x)
+                            .set(tagY, (tag == null) ? Float.NaN : tag.ftcPose.y)
+                            .set(tagYaw, (tag == null) ? Float.NaN : tag.ftcPose.yaw);
+                }
+                recorder.set(tagAge, result.getAgeNanos(System.nanoTime()) / 1e6);
+
+                // The timings of this loop's sections, and of the whole previous loop.
+                recorder.set(loopMicros, profiler.getLastMicros(LoopProfiler.LOOP))
+                        .set(readMicros, profiler.getLastMicros(readSection))
+                        .set(controlMicros, profiler.getLastMicros(controlSection))
+                        .set(writeMicros, profiler.getLastMicros(writeSection))
+                        .commit();
+
+                telemetry.addData("Recording", "%s, %d records", file.getName(), recorder.getRecordCount());
+                telemetry.addData("Motors", "left (%.2f), right (%.2f)", left, right);
+                telemetry.update();
+            }
+        } finally {
+            try {
+                imuSampler.stop();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            try {
+                recorder.close();
+            } catch (IOException e) {
+                telemetry.addData("Error", "can't save %s: %s", file, e.getMessage());
+                telemetry.update();
+            }
+            portal.close();
+        }
+    }
+}
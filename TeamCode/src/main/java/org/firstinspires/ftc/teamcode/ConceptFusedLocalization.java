@@ -0,0 +1,138 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.hardware.rev.RevHubOrientationOnRobot;
+import com.qualcomm.hardware.sparkfun.SparkFunOTOS;
+import com.qualcomm.robotcore.eventloop.opmode.Disabled;
+import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
+import com.qualcomm.robotcore.eventloop.opmode.TeleOp;
+import com.qualcomm.robotcore.hardware.DcMotor;
+import com.qualcomm.robotcore.hardware.IMU;
+import com.qualcomm.robotcore.util.Range;
+
+import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
+import org.firstinspires.ftc.robotcore.external.navigation.DistanceUnit;
+import org.firstinspires.ftc.teamcode.hardware.ImuSampler;
+import org.firstinspires.ftc.teamcode.localization.FusedLocalizer;
+import org.firstinspires.ftc.teamcode.telemetry.FastTelemetry;
+
+/*
+ * This OpMode tracks the robot's field pose with a FusedLocalizer, combining the drive encoders (as in
+ * RobotAutoDriveByEncoder_Linear), an IMU's yaw rate (as in SensorIMUOrthogonal) and a SparkFun OTOS (as in
+ * SensorSparkFunOTOS), and shows the pose, its uncertainty, and what each source says on its own.
+ *
+ * The sensors are read at different rates, which the filter takes care of:
+ *  - the encoders every loop,
+ *  - the IMU on an ImuSampler's thread every IMU_PERIOD_US, applied whenever a new reading is ready, at the time it
+ *    was taken,
+ *  - the OTOS every OTOS_INTERVAL loops, to leave the I2C bus free for the IMU in between.
+ * Drive with the left stick (forward and back) and the right stick (turn).  Press Y to put the robot back at the
+ * origin.  Lift the robot or push it sideways, so that one source is wrong, and watch the others hold the pose.
+ *
+ * The hardware configuration is RobotAutoDriveByEncoder_Linear's, plus an IMU named "imu" mounted as in
+ * SensorIMUOrthogonal, and an OTOS named "sensor_otos".  Set TRACK_WIDTH to the distance between the wheels.
+ */
+@TeleOp(name = "Concept: Fused Localization", group = "Concept")
+@Disabled
+public class ConceptFusedLocalization extends LinearOpMode {
+
+    final double COUNTS_PER_INCH = 1440 / (4.0 * Math.PI);   // As RobotAutoDriveByEncoder_Linear.
+    final double TRACK_WIDTH     = 16.0;                     // Inches between the left and right wheels.
+    final long   IMU_PERIOD_US   = 10_000;
+    final int    OTOS_INTERVAL   = 2;
+
+    @Override
+    public void runOpMode() throws InterruptedException {
+        DcMotor leftDrive  = hardwareMap.get(DcMotor.class, "left_drive");
+        DcMotor rightDrive = hardwareMap.get(DcMotor.class, "right_drive");
+        leftDrive.setDirection(DcMotor.Direction.REVERSE);
+        rightDrive.setDirection(DcMotor.Direction.FORWARD);
+
+        IMU imu = hardwareMap.get(IMU.class, "imu");
+        imu.initialize(new IMU.Parameters(new RevHubOrientationOnRobot(
+                RevHubOrientationOnRobot.LogoFacingDirection.UP, RevHubOrientationOnRobot.UsbFacingDirection.FORWARD)));
+        ImuSampler imuSampler = new ImuSampler(imu, IMU_PERIOD_US);
+
+        SparkFunOTOS otos = hardwareMap.get(SparkFunOTOS.class, "sensor_otos");
+        otos.setLinearUnit(DistanceUnit.INCH);
+        otos.setAngularUnit(AngleUnit.RADIANS);
+        otos.calibrateImu();
+        otos.resetTracking();
+        SparkFunOTOS.Pose2D otosPosition     = new SparkFunOTOS.Pose2D();
+        SparkFunOTOS.Pose2D otosVelocity     = new SparkFunOTOS.Pose2D();
+        SparkFunOTOS.Pose2D otosAcceleration = new SparkFunOTOS.Pose2D();
+
+        FusedLocalizer localizer = new FusedLocalizer();
+
+        telemetry.addData(">", "Touch Play to start OpMode");
+        telemetry.update();
+        waitForStart();
+
+        FastTelemetry      fast       = new FastTelemetry(telemetry, 100);
+        FastTelemetry.Line poseLine   = fast.addLine("Fused", "%6.1f %6.1f in %6.1f deg, +/- %4.2f in %4.1f deg");
+        FastTelemetry.Line speedLine  = fast.addLine("Velocity", "%5.1f fwd %5.1f left in/s, %5.1f deg/s");
+        FastTelemetry.Line otosLine   = fast.addLine("OTOS", "%6.1f %6.1f in %6.1f deg");
+        FastTelemetry.Line wheelLine  = fast.addLine("Encoders", "%6.1f %6.1f in %6.1f deg");
+        FastTelemetry.Line countLine  = fast.addLine("Updates", "%d applied, %d late");
+
+        imuSampler.start();
+        try {
+            int  lastLeft = leftDrive.getCurrentPosition(), lastRight = rightDrive.getCurrentPosition();
+            long lastImu  = 0;
+            int  loop     = 0;
+            double wheelX = 0, wheelY = 0, wheelHeading = 0;     // Dead reckoning, for comparison.
+
+            while (opModeIsActive()) {
+                if (gamepad1.y) {
+                    localizer.setPose(0, 0, 0, 0, 0);
+                    otos.resetTracking();
+                    wheelX = wheelY = wheelHeading = 0;
+                }
+
+                // IMU, when the sampler has a new reading, at the time it was read.
+                ImuSampler.Reading reading = imuSampler.getReading();
+                if (reading != null && reading.getSequence() != lastImu) {
+                    lastImu = reading.getSequence();
+                    localizer.addImuYawRate(reading.getNanos(), reading.getYawRate(AngleUnit.RADIANS));
+                }
+
+                // Encoders, every loop: a tank drive moves forward by the mean of its wheels, and turns by their
+                // difference over the track width.
+                long now   = System.nanoTime();
+                int  left  = leftDrive.getCurrentPosition(), right = rightDrive.getCurrentPosition();
+                double leftInches  = (left - lastLeft) / COUNTS_PER_INCH;
+                double rightInches = (right - lastRight) / COUNTS_PER_INCH;
+                lastLeft  = left;
+                lastRight = right;
+                double forward = (leftInches + rightInches) / 2;
+                double turn    = (rightInches - leftInches) / TRACK_WIDTH;
+                localizer.addOdometry(now, forward, 0, turn);
+                wheelX       += forward * Math.cos(wheelHeading + turn / 2);
+                wheelY       += forward * Math.sin(wheelHeading + turn / 2);
+                wheelHeading += turn;
+
+                // OTOS, every few loops.
+                if (++loop % OTOS_INTERVAL == 0) {
+                    otos.getPosVelAcc(otosPosition, otosVelocity, otosAcceleration);
+                    localizer.addOtos(System.nanoTime(), otosPosition.x, otosPosition.y, otosPosition.h,
+                                      otosVelocity.x, otosVelocity.y, otosVelocity.h);
+                    otosLine.set(0, otosPosition.x).set(1, otosPosition.y).set(2, Math.toDegrees(otosPosition.h));
+                }
+
+                double drive = -gamepad1.left_stick_y, steer = -gamepad1.right_stick_x / 2;
+                leftDrive.setPower(Range.clip(drive - steer, -1, 1));
+                rightDrive.setPower(Range.clip(drive + steer, -1, 1));
+
+                poseLine.set(0, localizer.getX()).set(1, localizer.getY())
+                        .set(2, Math.toDegrees(localizer.getHeading()))
+                        .set(3, localizer.getPositionStd()).set(4, Math.toDegrees(localizer.getHeadingStd()));
+                speedLine.set(0, localizer.getForwardVelocity()).set(1, localizer.getLeftVelocity())
+                         .set(2, Math.toDegrees(localizer.getTurnRate()));
+                wheelLine.set(0, wheelX).set(1, wheelY).set(2, Math.toDegrees(wheelHeading));
+                countLine.set(0, localizer.getUpdates()).set(1, localizer.getLate());
+                fast.update();
+            }
+        } finally {
+            imuSampler.stop();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.eventloop.opmode.Autonomous;
+import com.qualcomm.robotcore.eventloop.opmode.Disabled;
+import com.qualcomm.robotcore.hardware.IMU;
+
+import org.firstinspires.ftc.robotcontroller.external.samples.RobotAutoDriveByGyro_Linear;
+import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
+import org.firstinspires.ftc.teamcode.hardware.ImuSampler;
+
+/*
+ * This OpMode drives the same path as RobotAutoDriveByGyro_Linear, with the same code, except that getHeading()
+ * comes from an ImuSampler instead of a blocking IMU read.
+ *
+ * The sample's driveStraight(), turnToHeading() and holdHeading() loops all call getHeading() through
+ * getSteeringCorrection(), so every pass of those loops used to wait for an I2C read.  Here the IMU is read on a
+ * background thread every PERIOD_US, and getHeading() returns the latest heading extrapolated to now with the yaw
+ * rate, without waiting: the steering correction runs as often as the drive motors can be updated.
+ *
+ * During init, getHeading() still reads the IMU directly.  The sampler is started on the first call after Start,
+ * which comes after the sample's imu.resetYaw(), so every heading it returns is relative to that reset.
+ *
+ * The hardware configuration is the same as RobotAutoDriveByGyro_Linear.
+ */
+@Autonomous(name = "Concept: Gyro Drive With IMU Sampler", group = "Concept")
+@Disabled
+public class ConceptGyroDriveImuSampler extends RobotAutoDriveByGyro_Linear {
+
+    final long PERIOD_US = 10_000;     // Read the IMU 100 times per second.
+
+    private ImuSampler sampler = null;
+
+    @Override
+    public void runOpMode() {
+        try {
+            super.runOpMode();
+        } finally {
+            if (sampler != null) {
+                try {
+                    sampler.stop();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * read the Robot heading from the IMU sampler (in degrees), once the OpMode has started.
+     */
+    @Override
+    public double getHeading() {
+        if (!isStarted()) {
+            return super.getHeading();
+        }
+        if (sampler == null) {
+            sampler = new ImuSampler(hardwareMap.get(IMU.class, "imu"), PERIOD_US);
+            sampler.start();
+        }
+        return sampler.getHeading(AngleUnit.DEGREES);
+    }
+}
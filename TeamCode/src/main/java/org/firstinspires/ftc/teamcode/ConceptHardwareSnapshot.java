@@ -0,0 +1,63 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.eventloop.opmode.Disabled;
+import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
+import com.qualcomm.robotcore.eventloop.opmode.TeleOp;
+import com.qualcomm.robotcore.util.ElapsedTime;
+
+import org.firstinspires.ftc.teamcode.hardware.HardwareSnapshot;
+
+/*
+ * This OpMode shows how to read all of the robot's inputs through a HardwareSnapshot.
+ *
+ * It is the MANUAL cache mode test from ConceptMotorBulkRead, rewritten so that the bulk cache clearing and
+ * the encoder/velocity reads are done by the snapshot.  The control code only ever touches the returned Frame,
+ * so the number of hub transactions per cycle is fixed at one per hub, no matter how often a value is used.
+ *
+ * It assumes four motors named m1 - m4, on one or two hubs.
+ */
+@TeleOp(name = "Concept: Hardware Snapshot", group = "Tests")
+@Disabled
+public class ConceptHardwareSnapshot extends LinearOpMode {
+
+    final int TEST_CYCLES = 500;   // Number of control cycles to run to determine cycle times.
+
+    @Override
+    public void runOpMode() {
+        HardwareSnapshot snapshot = new HardwareSnapshot(hardwareMap);
+        int m1 = snapshot.addMotor("m1");
+        int m2 = snapshot.addMotor("m2");
+        int m3 = snapshot.addMotor("m3");
+        int m4 = snapshot.addMotor("m4");
+        snapshot.init();
+
+        ElapsedTime timer = new ElapsedTime();
+        double cycleTime = 0;
+
+        telemetry.addData(">", "Press play to start test");
+        telemetry.addData("Hubs", snapshot.getHubCount());
+        telemetry.update();
+        waitForStart();
+
+        timer.reset();
+        int cycles = 0;
+        long position = 0;
+        double velocity = 0;
+        while (opModeIsActive() && (cycles++ < TEST_CYCLES)) {
+            HardwareSnapshot.Frame frame = snapshot.update();
+
+            // Reading the same values several times costs nothing: they come from the Frame.
+            position = frame.getPosition(m1) + frame.getPosition(m2) + frame.getPosition(m3) + frame.getPosition(m4);
+            velocity = frame.getVelocity(m1) + frame.getVelocity(m2) + frame.getVelocity(m3) + frame.getVelocity(m4);
+        }
+        cycleTime = timer.milliseconds() / cycles;
+
+        telemetry.addData("Snapshot", "%5.1f mS/cycle", cycleTime);
+        telemetry.addData("Sum of positions", position);
+        telemetry.addData("Sum of velocities", "%.1f", velocity);
+        telemetry.update();
+
+        // wait until op-mode is stopped by user, before clearing display.
+        while (opModeIsActive()) ;
+    }
+}
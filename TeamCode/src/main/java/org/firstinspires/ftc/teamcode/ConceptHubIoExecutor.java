@@ -0,0 +1,98 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.eventloop.opmode.Disabled;
+import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
+import com.qualcomm.robotcore.eventloop.opmode.TeleOp;
+import com.qualcomm.robotcore.hardware.DcMotorEx;
+
+import org.firstinspires.ftc.teamcode.hardware.HardwareSnapshot;
+import org.firstinspires.ftc.teamcode.hardware.HubIoExecutor;
+
+/*
+ * This OpMode compares reading a Control Hub and an Expansion Hub one after another with reading them both at
+ * once, through a HubIoExecutor.
+ *
+ * It is the MANUAL cache mode test from ConceptMotorBulkRead, run twice: first with setParallel(false), which
+ * reads the hubs in turn as ConceptMotorBulkRead and HardwareSnapshot do, then with a worker thread per hub.
+ * Each cycle also sets every motor's power, which the executor sends at the start of the next cycle, alongside
+ * the reads.  Telemetry shows the cycle time, each hub's own time, and how much of the hubs' I/O was overlapped.
+ *
+ * It assumes four motors: m1 and m2 on the "Control Hub", and m3 and m4 on "Expansion Hub 2".  The motors are
+ * only set to a tiny power, so they hardly turn.
+ */
+@TeleOp(name = "Concept: Hub I/O Executor", group = "Tests")
+@Disabled
+public class ConceptHubIoExecutor extends LinearOpMode {
+
+    final int    TEST_CYCLES   = 500;                // Number of control cycles to run to determine cycle times.
+    final String CONTROL_HUB   = "Control Hub";
+    final String EXPANSION_HUB = "Expansion Hub 2";
+    final double POWER         = 0.02;               // Too little to move the robot.
+
+    @Override
+    public void runOpMode() {
+        telemetry.addData(">", "Press play to start tests");
+        telemetry.update();
+        waitForStart();
+
+        String serial   = test(false);
+        String parallel = test(true);
+
+        telemetry.addData("One hub after another", serial);
+        telemetry.addData("A worker per hub", parallel);
+        telemetry.update();
+
+        // wait until op-mode is stopped by user, before clearing display.
+        while (opModeIsActive()) ;
+    }
+
+    // Run the test cycles, and describe how long they took.
+    private String test(boolean parallel) {
+        HubIoExecutor io = new HubIoExecutor(hardwareMap);
+        int controlHub   = io.getHub(CONTROL_HUB);
+        int expansionHub = io.getHub(EXPANSION_HUB);
+        int[] motors = {
+                io.addMotor(controlHub, "m1"), io.addMotor(controlHub, "m2"),
+                io.addMotor(expansionHub, "m3"), io.addMotor(expansionHub, "m4"),
+        };
+        DcMotorEx[] powers = {
+                io.getActuators(controlHub).motor(hardwareMap.get(DcMotorEx.class, "m1")),
+                io.getActuators(controlHub).motor(hardwareMap.get(DcMotorEx.class, "m2")),
+                io.getActuators(expansionHub).motor(hardwareMap.get(DcMotorEx.class, "m3")),
+                io.getActuators(expansionHub).motor(hardwareMap.get(DcMotorEx.class, "m4")),
+        };
+        io.setParallel(parallel);
+        io.start();
+
+        telemetry.addData(">", parallel ? "Testing a worker per hub" : "Testing one hub after another");
+        telemetry.update();
+
+        int cycles = 0;
+        int position = 0;
+        try {
+            while (opModeIsActive() && (cycles++ < TEST_CYCLES)) {
+                HardwareSnapshot.Frame frame = io.update();
+
+                // Alternate the power, so that every motor gets a write every cycle, as a drive train would.
+                for (DcMotorEx power : powers) {
+                    power.setPower(((cycles & 1) == 0) ? POWER : -POWER);
+                }
+                position = frame.getPosition(motors[0]);
+            }
+            for (DcMotorEx power : powers) {
+                power.setPower(0);
+            }
+            io.update();        // Send the stop.
+        } finally {
+            try {
+                io.stop();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        return String.format("%5.1f mS/cycle (Control Hub %4.1f, Expansion Hub %4.1f), overlap %3.0f%%, m1 at %d",
+                io.getMeanCycleMicros() / 1000, io.getMeanHubMicros(controlHub) / 1000,
+                io.getMeanHubMicros(expansionHub) / 1000, 100 * io.getOverlap(), position);
+    }
+}
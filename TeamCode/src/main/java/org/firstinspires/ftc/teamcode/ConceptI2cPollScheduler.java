@@ -0,0 +1,117 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.hardware.dfrobot.HuskyLens;
+import com.qualcomm.hardware.kauailabs.NavxMicroNavigationSensor;
+import com.qualcomm.hardware.modernrobotics.ModernRoboticsI2cRangeSensor;
+import com.qualcomm.robotcore.eventloop.opmode.Disabled;
+import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
+import com.qualcomm.robotcore.eventloop.opmode.TeleOp;
+import com.qualcomm.robotcore.hardware.DistanceSensor;
+import com.qualcomm.robotcore.hardware.IntegratingGyroscope;
+
+import org.firstinspires.ftc.robotcore.external.Telemetry;
+import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
+import org.firstinspires.ftc.robotcore.external.navigation.AxesOrder;
+import org.firstinspires.ftc.robotcore.external.navigation.AxesReference;
+import org.firstinspires.ftc.robotcore.external.navigation.DistanceUnit;
+import org.firstinspires.ftc.robotcore.external.navigation.Orientation;
+import org.firstinspires.ftc.teamcode.hardware.I2cPollScheduler;
+
+/*
+ * This OpMode reads the sensors from SensorREV2mDistance, SensorMRRangeSensor, SensorHuskyLens and
+ * SensorKLNavxMicro together, through an I2cPollScheduler, instead of one after another in the loop.
+ *
+ * Each sensor is read on its bus's worker thread at a rate that suits it: the navX (highest priority) at 50 Hz,
+ * the two range sensors at 20 Hz, and the HuskyLens at 10 Hz.  The loop only picks up the latest values, so it
+ * never waits for I2C.
+ *
+ * The telemetry shows each value with its age, then the I2C statistics for the last second:
+ *  - each bus's utilization (the fraction of time spent in reads),
+ *  - each sensor's read rate, mean and maximum read time, and how late its reads started.
+ * If a bus is close to fully utilized and lateness climbs, the sensors on it are competing: lower their rates,
+ * or move one to another I2C bus.
+ *
+ * The configuration names are the same as in the four samples: "sensor_distance", "sensor_range", "huskylens"
+ * and "navx".
+ */
+@TeleOp(name = "Concept: I2C Poll Scheduler", group = "Concept")
+@Disabled
+public class ConceptI2cPollScheduler extends LinearOpMode {
+
+    final double NAVX_HZ      = 50;     // Heading for driving: the most important, and the fastest.
+    final double DISTANCE_HZ  = 20;     // The REV 2m Distance Sensor measures about every 30 mS.
+    final double RANGE_HZ     = 20;     // The MR Range Sensor's ultrasonic ranging takes about 50 mS.
+    final double HUSKYLENS_HZ = 10;     // Block lists are big reads, and rarely needed faster.
+
+    @Override
+    public void runOpMode() throws InterruptedException {
+        final DistanceSensor               distance  = hardwareMap.get(DistanceSensor.class, "sensor_distance");
+        final ModernRoboticsI2cRangeSensor range     = hardwareMap.get(ModernRoboticsI2cRangeSensor.class,
+                                                                       "sensor_range");
+        final HuskyLens                    huskyLens = hardwareMap.get(HuskyLens.class, "huskylens");
+        NavxMicroNavigationSensor          navx      = hardwareMap.get(NavxMicroNavigationSensor.class, "navx");
+        final IntegratingGyroscope         gyro      = navx;
+
+        if (!huskyLens.knock()) {
+            telemetry.addData(">>", "Problem communicating with " + huskyLens.getDeviceName());
+        }
+        huskyLens.selectAlgorithm(HuskyLens.Algorithm.TAG_RECOGNITION);
+
+        while (navx.isCalibrating() && !isStopRequested()) {
+            telemetry.addData("navX", "calibrating...");
+            telemetry.update();
+            sleep(50);
+        }
+
+        I2cPollScheduler scheduler = new I2cPollScheduler();
+        I2cPollScheduler.Sensor<Orientation> heading = scheduler.add("navX", I2cPollScheduler.busOf(navx),
+                NAVX_HZ, 2,
+                () -> gyro.getAngularOrientation(AxesReference.INTRINSIC, AxesOrder.ZYX, AngleUnit.DEGREES));
+        I2cPollScheduler.Sensor<Double> distanceCm = scheduler.add("2m Distance", I2cPollScheduler.busOf(distance),
+                DISTANCE_HZ, 1, () -> distance.getDistance(DistanceUnit.CM), Double.NaN);
+        I2cPollScheduler.Sensor<Double> rangeCm = scheduler.add("MR Range", I2cPollScheduler.busOf(range),
+                RANGE_HZ, 1, () -> range.getDistance(DistanceUnit.CM), Double.NaN);
+        I2cPollScheduler.Sensor<HuskyLens.Block[]> blocks = scheduler.add("HuskyLens",
+                I2cPollScheduler.busOf(huskyLens), HUSKYLENS_HZ, 0, huskyLens::blocks, new HuskyLens.Block[0]);
+
+        telemetry.addData(">>", "Press start to poll %d sensors on %d I2C buses",
+                4, scheduler.getBuses().size());
+        telemetry.update();
+        waitForStart();
+
+        telemetry.setDisplayFormat(Telemetry.DisplayFormat.MONOSPACE);
+        scheduler.start();
+        try {
+            long loops = 0;
+            long started = System.nanoTime();
+            while (opModeIsActive()) {
+                loops++;
+                Orientation angles = heading.getValue();
+                if (angles != null) {
+                    telemetry.addData("Heading", "%6.1f deg  (%3.0f mS old)", angles.firstAngle,
+                            heading.getAgeNanos() / 1e6);
+                }
+                telemetry.addData("Distance", "%6.1f cm  (%3.0f mS old)", distanceCm.getValue(),
+                        distanceCm.getAgeNanos() / 1e6);
+                telemetry.addData("Range", "%6.1f cm  (%3.0f mS old)", rangeCm.getValue(),
+                        rangeCm.getAgeNanos() / 1e6);
+                telemetry.addData("Blocks", "%6d     (%3.0f mS old)", blocks.getValue().length,
+                        blocks.getAgeNanos() / 1e6);
+                telemetry.addData("Loop", "%.0f loops/S", loops * 1e9 / (System.nanoTime() - started));
+
+                for (I2cPollScheduler.Bus bus : scheduler.getBuses()) {
+                    telemetry.addLine();
+                    telemetry.addData("Bus", "%s: %.0f%% busy", bus.getName(), 100 * bus.getUtilization());
+                    for (I2cPollScheduler.Sensor<?> sensor : scheduler.getSensors(bus)) {
+                        telemetry.addData(sensor.getName(), "%4.0f/S  read %4.1f (max %4.1f) mS  late %4.1f mS",
+                                sensor.getReadRate(), sensor.getMeanLatencyMs(), sensor.getMaxLatencyMs(),
+                                sensor.getMeanLatenessMs());
+                    }
+                }
+                telemetry.update();
+            }
+        } finally {
+            scheduler.stop();
+        }
+    }
+}
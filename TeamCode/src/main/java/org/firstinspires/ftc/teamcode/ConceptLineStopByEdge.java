@@ -0,0 +1,131 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.eventloop.opmode.Autonomous;
+import com.qualcomm.robotcore.eventloop.opmode.Disabled;
+import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
+import com.qualcomm.robotcore.hardware.DcMotor;
+import com.qualcomm.robotcore.hardware.DcMotorEx;
+import com.qualcomm.robotcore.hardware.NormalizedColorSensor;
+import com.qualcomm.robotcore.hardware.SwitchableLight;
+
+import org.firstinspires.ftc.teamcode.hardware.ColorClassifier;
+import org.firstinspires.ftc.teamcode.hardware.ColorEdgeDetector;
+
+/*
+ * This OpMode drives to a white line as RobotAutoDriveToLine_Linear does, but faster, and stops a set distance
+ * past the line instead of wherever the robot happens to be when the loop notices it.
+ *
+ * A ColorEdgeDetector reads the color sensor back to back on its own thread, and times the moment the light level
+ * crossed WHITE_THRESHOLD by interpolating between readings.  When the OpMode sees the edge, it works back from
+ * each wheel's current encoder position and velocity to where the wheel was at that moment, and sets a
+ * RUN_TO_POSITION target STOP_PAST_LINE inches beyond it.  However late the edge was noticed, the robot stops
+ * in the same place relative to the line.
+ *
+ * During init, the color class under the sensor (Red, Yellow, Blue or None, from a ColorClassifier lookup table)
+ * is shown along with the light level, which helps when choosing the threshold.
+ *
+ * The motor names, directions and sensor name and gain are the same as RobotAutoDriveToLine_Linear, but the
+ * drive motors need encoders.
+ */
+@Autonomous(name = "Concept: Line Stop By Edge", group = "Concept")
+@Disabled
+public class ConceptLineStopByEdge extends LinearOpMode {
+
+    static final double COUNTS_PER_MOTOR_REV  = 1440;      // eg: TETRIX Motor Encoder
+    static final double WHEEL_DIAMETER_INCHES = 4.0;       // For figuring circumference
+    static final double COUNTS_PER_INCH       = COUNTS_PER_MOTOR_REV / (WHEEL_DIAMETER_INCHES * 3.1415);
+
+    static final float  WHITE_THRESHOLD = 0.5f;     // spans between 0.0 - 1.0 from dark to light
+    static final float  HYSTERESIS      = 0.05f;    // Ignore noise this close to the threshold.
+    static final double APPROACH_SPEED  = 0.6;      // The sample uses 0.25.
+    static final double STOP_SPEED      = 0.3;      // Power for the final RUN_TO_POSITION move.
+    static final double STOP_PAST_LINE  = 2.0;      // Inches past the line to stop the robot.
+
+    @Override
+    public void runOpMode() throws InterruptedException {
+        DcMotorEx leftDrive  = hardwareMap.get(DcMotorEx.class, "left_drive");
+        DcMotorEx rightDrive = hardwareMap.get(DcMotorEx.class, "right_drive");
+        leftDrive.setDirection(DcMotor.Direction.REVERSE);
+        rightDrive.setDirection(DcMotor.Direction.FORWARD);
+        leftDrive.setMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER);
+        rightDrive.setMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER);
+        leftDrive.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
+        rightDrive.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
+
+        NormalizedColorSensor colorSensor = hardwareMap.get(NormalizedColorSensor.class, "sensor_color");
+        if (colorSensor instanceof SwitchableLight) {
+            ((SwitchableLight) colorSensor).enableLight(true);
+        }
+        colorSensor.setGain(15);
+
+        ColorClassifier classifier = new ColorClassifier();
+        classifier.addClass("Red",    340,  20, 0.5f, 0.1f);
+        classifier.addClass("Yellow",  40,  80, 0.5f, 0.1f);
+        classifier.addClass("Blue",   200, 250, 0.5f, 0.1f);
+        classifier.build(1.0f);
+
+        ColorEdgeDetector detector = new ColorEdgeDetector(ColorEdgeDetector.Source.of(colorSensor), classifier);
+        detector.setThreshold(WHITE_THRESHOLD, HYSTERESIS);
+        detector.start(0);
+
+        try {
+            while (opModeInInit()) {
+                telemetry.addData("Status", "Ready to drive to white line.");
+                telemetry.addData("Light Level (0 to 1)", "%4.2f", detector.getLevel());
+                telemetry.addData("Color", classifier.getName(detector.getColorClass()));
+                telemetry.addData("Sensor", "%.0f readings/S, %.2f mS each",
+                        detector.getMeasurementRate(), detector.getMeanReadMs());
+                telemetry.update();
+                sleep(50);
+            }
+
+            // Only an edge seen after this one counts.
+            ColorEdgeDetector.Edge before = detector.getLatestLevelEdge();
+            ColorEdgeDetector.Edge edge   = before;
+
+            leftDrive.setPower(APPROACH_SPEED);
+            rightDrive.setPower(APPROACH_SPEED);
+            while (opModeIsActive()) {
+                edge = detector.getLatestLevelEdge();
+                if (edge.isNewerThan(before) && edge.getKind() == ColorEdgeDetector.Edge.Kind.RISING) {
+                    break;
+                }
+                telemetry.addData("Light Level (0 to 1)", "%4.2f", detector.getLevel());
+                telemetry.update();
+            }
+            if (!opModeIsActive()) {
+                return;
+            }
+
+            // Where was each wheel when the sensor crossed the line?
+            double late      = edge.getAgeNanos() / 1e9;
+            int    leftLine  = (int) Math.round(leftDrive.getCurrentPosition() - leftDrive.getVelocity() * late);
+            int    rightLine = (int) Math.round(rightDrive.getCurrentPosition() - rightDrive.getVelocity() * late);
+            int    past      = (int) Math.round(STOP_PAST_LINE * COUNTS_PER_INCH);
+
+            leftDrive.setTargetPosition(leftLine + past);
+            rightDrive.setTargetPosition(rightLine + past);
+            leftDrive.setMode(DcMotor.RunMode.RUN_TO_POSITION);
+            rightDrive.setMode(DcMotor.RunMode.RUN_TO_POSITION);
+            leftDrive.setPower(STOP_SPEED);
+            rightDrive.setPower(STOP_SPEED);
+
+            double noticed = (leftDrive.getCurrentPosition() - leftLine) / COUNTS_PER_INCH;
+            while (opModeIsActive() && (leftDrive.isBusy() || rightDrive.isBusy())) {
+                telemetry.addData("Edge noticed", "%.1f mS late, %.2f inches past the line", late * 1000, noticed);
+                telemetry.addData("Stopping at", "%.2f inches past the line", STOP_PAST_LINE);
+                telemetry.update();
+            }
+            leftDrive.setPower(0);
+            rightDrive.setPower(0);
+
+            telemetry.addData("Edge noticed", "%.1f mS late, %.2f inches past the line", late * 1000, noticed);
+            telemetry.addData("Stopped", "%.2f inches past the line",
+                    (leftDrive.getCurrentPosition() - leftLine) / COUNTS_PER_INCH);
+            telemetry.update();
+            sleep(2000);
+        } finally {
+            detector.stop();
+        }
+    }
+}
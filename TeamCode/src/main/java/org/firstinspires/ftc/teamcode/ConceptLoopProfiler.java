@@ -0,0 +1,75 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.eventloop.opmode.Disabled;
+import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
+import com.qualcomm.robotcore.eventloop.opmode.TeleOp;
+import com.qualcomm.robotcore.hardware.DcMotor;
+import com.qualcomm.robotcore.util.Range;
+
+import org.firstinspires.ftc.teamcode.telemetry.LoopProfiler;
+
+/*
+ * This OpMode is BasicOpMode_Linear's tank drive with its loop split into profiled sections:
+ * hardware read, control, hardware write and telemetry.
+ *
+ * While it runs, open http://192.168.43.1:8080/profiler on a laptop connected to the robot's Wi-Fi (see
+ * LoopProfilerWebHandler).  The page charts the last 500 loop times against LOOP_DEADLINE_MS, and shows
+ * p50 / p95 / p99 / max for each section, the number of missed deadlines and the garbage collections so far.
+ *
+ * To profile your own OpMode, do the same: add a section for each part of the loop, publish() the profiler,
+ * call loop() at the top of each pass and mark() after each section.
+ */
+@TeleOp(name = "Concept: Loop Profiler", group = "Concept")
+@Disabled
+public class ConceptLoopProfiler extends LinearOpMode {
+
+    final double LOOP_DEADLINE_MS = 20.0;    // Loops slower than this count as missed deadlines.
+
+    @Override
+    public void runOpMode() {
+        DcMotor leftDrive  = hardwareMap.get(DcMotor.class, "left_drive");
+        DcMotor rightDrive = hardwareMap.get(DcMotor.class, "right_drive");
+        leftDrive.setDirection(DcMotor.Direction.REVERSE);
+        rightDrive.setDirection(DcMotor.Direction.FORWARD);
+
+        LoopProfiler profiler = new LoopProfiler(LOOP_DEADLINE_MS);
+        int readSection      = profiler.addSection("hardware read");
+        int controlSection   = profiler.addSection("control");
+        int writeSection     = profiler.addSection("hardware write");
+        int telemetrySection = profiler.addSection("telemetry");
+        profiler.publish();
+
+        telemetry.addData("Status", "Initialized");
+        telemetry.addData("Profiler", "http://192.168.43.1:8080/profiler");
+        telemetry.update();
+        waitForStart();
+
+        try {
+            while (opModeIsActive()) {
+                profiler.loop();
+
+                int leftPosition  = leftDrive.getCurrentPosition();
+                int rightPosition = rightDrive.getCurrentPosition();
+                profiler.mark(readSection);
+
+                double drive      = -gamepad1.left_stick_y;
+                double turn       =  gamepad1.right_stick_x;
+                double leftPower  = Range.clip(drive + turn, -1.0, 1.0);
+                double rightPower = Range.clip(drive - turn, -1.0, 1.0);
+                profiler.mark(controlSection);
+
+                leftDrive.setPower(leftPower);
+                rightDrive.setPower(rightPower);
+                profiler.mark(writeSection);
+
+                telemetry.addData("Profiler", "http://192.168.43.1:8080/profiler");
+                telemetry.addData("Motors", "left (%.2f), right (%.2f)", leftPower, rightPower);
+                telemetry.addData("Encoders", "left %7d, right %7d", leftPosition, rightPosition);
+                telemetry.update();
+                profiler.mark(telemetrySection);
+            }
+        } finally {
+            profiler.unpublish();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.hardware.digitalchickenlabs.OctoQuad;
+import com.qualcomm.robotcore.eventloop.opmode.Disabled;
+import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
+import com.qualcomm.robotcore.eventloop.opmode.TeleOp;
+
+import org.firstinspires.ftc.robotcore.external.Telemetry;
+import org.firstinspires.ftc.teamcode.control.SwerveKinematics;
+import org.firstinspires.ftc.teamcode.hardware.OctoQuadStream;
+
+/*
+ * This OpMode shows swerve module states streamed from an OctoQuad at a fixed rate, with swerve kinematics.
+ *
+ * It uses the same wiring and OctoQuad configuration as SensorOctoQuadAdv: drive encoders on channels 0-3, and
+ * REV Through Bore absolute steer encoders (pulse width) on channels 4-7, for modules LF, RF, LB, RB.
+ * Instead of reading the OctoQuad in the loop, an OctoQuadStream reads it every 2 mS on its own thread.
+ *
+ * Each loop shows, for each module, the drive position and velocity, and the steer angle (wrapped and unwrapped),
+ * all measured at the stream's timestamp.  Below that:
+ *  - Robot: the robot velocity worked out from all four modules (forward kinematics).
+ *  - Target: what each module would be told to do (inverse kinematics) for the left stick / right stick command,
+ *    starting from its current unwrapped angle.  Nothing is driven; this only shows the numbers.
+ *
+ * Turn the modules by hand, and note the angle each shows when pointing straight ahead: those are the offsets.
+ */
+@TeleOp(name = "Concept: OctoQuad Swerve Stream", group = "OctoQuad")
+@Disabled
+public class ConceptOctoQuadSwerveStream extends LinearOpMode {
+
+    final long   PERIOD_US             = 2000;       // Read the OctoQuad 500 times per second.
+    final double DRIVE_COUNTS_PER_INCH = 2000 / (2.5 * Math.PI);   // eg: 2000 count encoder on a 2.5" wheel.
+    final double TRACK_WIDTH           = 12.0;       // Inches between left and right modules.
+    final double WHEEL_BASE            = 12.0;       // Inches between front and back modules.
+    final double MAX_SPEED             = 60.0;       // Inches per second.
+    final double MAX_TURN              = Math.PI;    // Radians per second.
+
+    // Absolute encoder reading (degrees) when each module points forward.
+    final double[] STEER_OFFSETS = {0, 0, 0, 0};
+    final String[] NAMES         = {"LF", "RF", "LB", "RB"};
+
+    @Override
+    public void runOpMode() throws InterruptedException {
+        OctoQuad octoquad = hardwareMap.get(OctoQuad.class, "octoquad");
+        octoquad.resetEverything();
+        octoquad.setChannelBankConfig(OctoQuad.ChannelBankConfig.BANK1_QUADRATURE_BANK2_PULSE_WIDTH);
+        for (int channel = 4; channel < 8; channel++) {
+            octoquad.setSingleChannelPulseWidthParams(channel, new OctoQuad.ChannelPulseWidthParams(1, 1024));
+        }
+        octoquad.saveParametersToFlash();
+
+        OctoQuadStream stream = new OctoQuadStream(OctoQuadStream.Source.of(octoquad), PERIOD_US);
+        for (int m = 0; m < 4; m++) {
+            stream.addModule(m, m + 4, DRIVE_COUNTS_PER_INCH, STEER_OFFSETS[m], false);
+        }
+        OctoQuadStream.Sample sample = stream.newSample();
+        SwerveKinematics kinematics = SwerveKinematics.rectangle(TRACK_WIDTH, WHEEL_BASE);
+
+        double[] speeds   = new double[4];
+        double[] angles   = new double[4];
+        double[] current  = new double[4];
+        double[] targetV  = new double[4];
+        double[] targetA  = new double[4];
+        double[] robot    = new double[3];
+
+        telemetry.addLine("Press Play to stream module states");
+        telemetry.update();
+        waitForStart();
+
+        telemetry.setDisplayFormat(Telemetry.DisplayFormat.MONOSPACE);
+        telemetry.setMsTransmissionInterval(50);
+        stream.start();
+
+        try {
+            while (opModeIsActive()) {
+                if (!stream.read(sample)) {
+                    continue;   // Nothing new yet.
+                }
+                for (int m = 0; m < 4; m++) {
+                    speeds[m]  = sample.getDriveVelocity(m);
+                    angles[m]  = sample.getSteerAngle(m);
+                    current[m] = sample.getUnwrappedAngle(m);
+                }
+                kinematics.forward(speeds, angles, robot);
+                kinematics.inverse(-gamepad1.left_stick_y * MAX_SPEED, -gamepad1.left_stick_x * MAX_SPEED,
+                        -gamepad1.right_stick_x * MAX_TURN, current, MAX_SPEED, targetV, targetA);
+
+                telemetry.addData("Stream", "%.0f/S, read %.2f mS, %d overruns, age %.1f mS",
+                        stream.getSampleRate(), stream.getMeanReadMs(), stream.getOverruns(),
+                        sample.getAgeNanos() / 1e6);
+                telemetry.addData("Module", "   Inches    In/S   Angle  Unwrap   Target  Speed");
+                for (int m = 0; m < 4; m++) {
+                    telemetry.addData(NAMES[m], "%9.2f %7.1f %7.1f %7.1f %8.1f %6.1f",
+                            sample.getDrivePosition(m), sample.getDriveVelocity(m),
+                            Math.toDegrees(sample.getSteerAngle(m)), Math.toDegrees(sample.getUnwrappedAngle(m)),
+                            Math.toDegrees(targetA[m]), targetV[m]);
+                }
+                telemetry.addData("Robot", "vx %5.1f  vy %5.1f  turn %6.1f deg/S",
+                        robot[0], robot[1], Math.toDegrees(robot[2]));
+                telemetry.update();
+            }
+        } finally {
+            stream.stop();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.eventloop.opmode.Autonomous;
+import com.qualcomm.robotcore.eventloop.opmode.Disabled;
+import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
+import com.qualcomm.robotcore.hardware.DcMotor;
+
+import org.firstinspires.ftc.teamcode.control.ProfileFollower;
+import org.firstinspires.ftc.teamcode.control.ProfiledEncoderDrive;
+
+/*
+ * This OpMode drives the same path as RobotAutoDriveByEncoder_Linear, using motion profiles instead of RUN_TO_POSITION.
+ *
+ * Each move is planned during init as an S-curve profile (set MAX_JERK to Double.POSITIVE_INFINITY for trapezoidal),
+ * and followed with feedforward + PID while the motors stay in RUN_USING_ENCODER.  The robot accelerates smoothly,
+ * cruises faster than the sample's fixed power cap, and decelerates onto its target instead of creeping up to it,
+ * so no pause is needed between moves.
+ *
+ * The motor names, directions and encoder constants are the same as RobotAutoDriveByEncoder_Linear.
+ * Tune MAX_TICKS_PER_SECOND to the drive motors' free speed first: it sets the velocity feedforward.
+ */
+@Autonomous(name = "Concept: Profiled Encoder Drive", group = "Concept")
+@Disabled
+public class ConceptProfiledEncoderDrive extends LinearOpMode {
+
+    static final double COUNTS_PER_MOTOR_REV  = 1440;      // eg: TETRIX Motor Encoder
+    static final double DRIVE_GEAR_REDUCTION  = 1.0;       // No External Gearing.
+    static final double WHEEL_DIAMETER_INCHES = 4.0;       // For figuring circumference
+    static final double COUNTS_PER_INCH       = (COUNTS_PER_MOTOR_REV * DRIVE_GEAR_REDUCTION) /
+                                                (WHEEL_DIAMETER_INCHES * 3.1415);
+    static final double MAX_TICKS_PER_SECOND  = 3650;      // Drive motor free speed, eg: TETRIX at 152 RPM.
+    static final double MAX_INCHES_PER_SECOND = MAX_TICKS_PER_SECOND / COUNTS_PER_INCH;
+
+    static final double MAX_VELOCITY = 0.85 * MAX_INCHES_PER_SECOND;   // Leave headroom for the feedback to work.
+    static final double MAX_ACCEL    = 60;                             // Inches per second squared.
+    static final double MAX_JERK     = 400;                            // Inches per second cubed.
+
+    static final double K_V = 1.0 / MAX_INCHES_PER_SECOND;   // Power per inch per second.
+    static final double K_A = 0.1 * K_V;                     // Power per inch per second squared.
+    static final double K_S = 0.0;                           // Power to overcome friction.
+    static final double K_P = 0.15;                          // Power per inch of error.
+    static final double K_I = 0.0;
+    static final double K_D = 0.0;
+
+    static final double LOOP_SECONDS = 0.005;                // Expected loop period, used to sample the profiles.
+
+    // The sample's path: {left inches, right inches}.
+    static final double[][] PATH = { {48, 48}, {12, -12}, {-24, -24} };
+
+    @Override
+    public void runOpMode() {
+        DcMotor leftDrive  = hardwareMap.get(DcMotor.class, "left_drive");
+        DcMotor rightDrive = hardwareMap.get(DcMotor.class, "right_drive");
+        leftDrive.setDirection(DcMotor.Direction.REVERSE);
+        rightDrive.setDirection(DcMotor.Direction.FORWARD);
+        leftDrive.setMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER);
+        rightDrive.setMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER);
+        leftDrive.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
+        rightDrive.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
+
+        // Plan every move now, so nothing is computed in the loop.
+        ProfiledEncoderDrive drive = new ProfiledEncoderDrive(leftDrive, rightDrive, COUNTS_PER_INCH,
+                new ProfileFollower(K_V, K_A, K_S, K_P, K_I, K_D, 1.0),
+                new ProfileFollower(K_V, K_A, K_S, K_P, K_I, K_D, 1.0),
+                LOOP_SECONDS);
+        double planned = 0;
+        for (double[] move : PATH) {
+            planned += drive.getDuration(drive.addMove(move[0], move[1], MAX_VELOCITY, MAX_ACCEL, MAX_JERK));
+        }
+
+        telemetry.addData("Planned", "%d moves, %.2f S", PATH.length, planned);
+        telemetry.update();
+
+        waitForStart();
+        long pathStart = System.nanoTime();
+
+        for (int move = 0; move < PATH.length && opModeIsActive(); move++) {
+            drive.start(move, System.nanoTime());
+            while (opModeIsActive() && drive.update(System.nanoTime())) {
+                telemetry.addData("Move", "%d of %d, %.2f S", move + 1, PATH.length, drive.getElapsed());
+                telemetry.addData("Error", "left %5.2f in, right %5.2f in", drive.getLeftError(), drive.getRightError());
+                telemetry.update();
+            }
+        }
+        drive.stop();
+
+        telemetry.addData("Path", "Complete in %.2f S", (System.nanoTime() - pathStart) / 1e9);
+        telemetry.update();
+        sleep(1000);  // pause to display final telemetry message.
+    }
+}
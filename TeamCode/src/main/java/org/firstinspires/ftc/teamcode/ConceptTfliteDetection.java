@@ -0,0 +1,125 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.eventloop.opmode.Disabled;
+import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
+import com.qualcomm.robotcore.eventloop.opmode.TeleOp;
+
+import org.firstinspires.ftc.robotcore.external.hardware.camera.WebcamName;
+import org.firstinspires.ftc.teamcode.telemetry.FastTelemetry;
+import org.firstinspires.ftc.teamcode.vision.TfliteModel;
+import org.firstinspires.ftc.teamcode.vision.TfliteProcessor;
+import org.firstinspires.ftc.vision.VisionPortal;
+
+import java.io.IOException;
+
+/*
+ * This OpMode detects game pieces with a TFLite model in a TfliteProcessor, running the model only when it's asked
+ * to, and shows what each processing stage costs.
+ *
+ * The model starts on demand: press A to run it on the next REQUEST_FRAMES frames, as an autonomous would while it
+ * decides where a piece is.  Press Y to switch between on demand and running on every FRAME_INTERVAL-th frame.
+ * Press dpad up and down to change the number of CPU threads, and X to turn XNNPACK on and off (either rebuilds the
+ * Interpreter before the next frame).  The camera stream shows the recognitions' boxes.
+ *
+ * The model is the SDK's CenterStage model; put your own in the assets, or use TfliteModel.fromFile().
+ * The hardware configuration is a webcam named "Webcam 1".
+ */
+@TeleOp(name = "Concept: TFLite Detection", group = "Concept")
+@Disabled
+public class ConceptTfliteDetection extends LinearOpMode {
+
+    final String   MODEL_ASSET    = "CenterStage.tflite";
+    final String[] LABELS         = {"Pixel"};
+    final int      REQUEST_FRAMES = 5;
+    final int      FRAME_INTERVAL = 3;
+
+    @Override
+    public void runOpMode() {
+        TfliteModel model;
+        try {
+            model = TfliteModel.fromAsset(MODEL_ASSET);
+        } catch (IOException e) {
+            telemetry.addData("Error", "Can't load %s: %s", MODEL_ASSET, e.getMessage());
+            telemetry.update();
+            waitForStart();
+            return;
+        }
+        TfliteProcessor detector = new TfliteProcessor(model, LABELS);
+        detector.setOnDemand(true);
+        detector.setFrameInterval(FRAME_INTERVAL);
+        VisionPortal visionPortal = new VisionPortal.Builder()
+                .setCamera(hardwareMap.get(WebcamName.class, "Webcam 1"))
+                .addProcessor(detector)
+                .build();
+
+        telemetry.addData(">", "Touch Play to start OpMode");
+        telemetry.update();
+        waitForStart();
+
+        FastTelemetry      fast      = new FastTelemetry(telemetry, 100);
+        FastTelemetry.Line modeLine  = fast.addLine("Running", "%s, %d threads, XNNPACK %s (A, Y, dpad, X)");
+        FastTelemetry.Line frameLine = fast.addLine("Frames", "%d seen, %d run, %d requested");
+        FastTelemetry.Line countLine = fast.addLine("Recognitions", "%d, %4.0f mS old");
+        FastTelemetry.Line stageLine = fast.addLine("Stages", "pre %5.1f, invoke %6.1f, post %4.1f mS");
+        FastTelemetry.Line meanLine  = fast.addLine("Mean", "%6.1f mS per frame run");
+        FastTelemetry.Line[] recognitionLines = new FastTelemetry.Line[3];    // The most confident.
+        for (int r = 0; r < recognitionLines.length; r++) {
+            recognitionLines[r] = fast.addLine("Recognition " + (r + 1), "%s %3.0f%% at (%4.0f, %4.0f), %4.0f x %4.0f");
+        }
+
+        TfliteProcessor.Recognitions recognitions = detector.newRecognitions();
+        boolean onDemand = true;
+        boolean wasA = false, wasY = false, wasX = false, wasUp = false, wasDown = false;
+
+        while (opModeIsActive()) {
+            if (gamepad1.a && !wasA) {
+                detector.request(REQUEST_FRAMES);
+            }
+            if (gamepad1.y && !wasY) {
+                onDemand = !onDemand;
+                detector.setOnDemand(onDemand);
+            }
+            if (gamepad1.x && !wasX) {
+                model.setXnnpack(!model.getXnnpack());
+            }
+            if (gamepad1.dpad_up && !wasUp && model.getThreads() < 4) {
+                model.setThreads(model.getThreads() + 1);
+            }
+            if (gamepad1.dpad_down && !wasDown && model.getThreads() > 1) {
+                model.setThreads(model.getThreads() - 1);
+            }
+            wasA    = gamepad1.a;
+            wasY    = gamepad1.y;
+            wasX    = gamepad1.x;
+            wasUp   = gamepad1.dpad_up;
+            wasDown = gamepad1.dpad_down;
+
+            if (detector.read(recognitions)) {
+                countLine.set(0, recognitions.getCount()).set(1, recognitions.getAgeNanos() / 1e6);
+                for (int r = 0; r < recognitionLines.length; r++) {
+                    recognitionLines[r].setVisible(r < recognitions.getCount());
+                    if (r < recognitions.getCount()) {
+                        recognitionLines[r].setText(0, recognitions.getLabel(r))
+                                           .set(1, recognitions.getConfidence(r) * 100)
+                                           .set(2, recognitions.getCenterX(r)).set(3, recognitions.getCenterY(r))
+                                           .set(4, recognitions.getWidth(r)).set(5, recognitions.getHeight(r));
+                    }
+                }
+                stageLine.set(0, recognitions.getStageNanos(TfliteProcessor.Stage.PREPROCESS) / 1e6)
+                         .set(1, recognitions.getStageNanos(TfliteProcessor.Stage.INVOKE) / 1e6)
+                         .set(2, recognitions.getStageNanos(TfliteProcessor.Stage.POSTPROCESS) / 1e6);
+                meanLine.set(0, detector.getMeanMicros() / 1e3);
+            }
+            modeLine.setText(0, onDemand ? "on demand" : "every " + FRAME_INTERVAL + " frames")
+                    .set(1, model.getThreads()).setText(2, model.getXnnpack() ? "on" : "off");
+            frameLine.set(0, detector.getFramesSeen()).set(1, detector.getFramesRun())
+                     .set(2, detector.getPendingRequests());
+
+            fast.update();
+            sleep(20);
+        }
+
+        visionPortal.close();
+        model.close();
+    }
+}
@@ -0,0 +1,113 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.eventloop.opmode.Disabled;
+import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
+import com.qualcomm.robotcore.eventloop.opmode.TeleOp;
+import com.qualcomm.robotcore.util.ReadWriteFile;
+
+import org.firstinspires.ftc.robotcore.internal.system.AppUtil;
+import org.firstinspires.ftc.teamcode.vision.AprilTagGoldenOutput;
+import org.firstinspires.ftc.teamcode.vision.CapturedFrameDirectory;
+import org.firstinspires.ftc.teamcode.vision.FrameReplay;
+import org.firstinspires.ftc.vision.apriltag.AprilTagProcessor;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * This OpMode replays frames saved by UtilityCameraFrameCapture through an AprilTagProcessor, with no camera attached,
+ * and reports how long each frame took.  Use it to compare decimation and thread settings on the same frames.
+ *
+ * Controls:
+ *   Dpad Up / Down      change the decimation.
+ *   A                   replay at maximum speed (throughput).
+ *   B                   replay at the original frame rate (latency, and frames the camera would have dropped).
+ *   Y                   save the last run's detections as the golden output.
+ *
+ * Each run's detections are compared with the golden output (tag IDs must match; centers within GOLDEN_TOLERANCE_PX).
+ * The golden output and the last run's output are kept in the FIRST settings folder as "frame_replay_golden.txt"
+ * and "frame_replay_output.txt".
+ */
+@TeleOp(name = "Utility: Frame Replay", group = "Utility")
+@Disabled
+public class UtilityFrameReplay extends LinearOpMode {
+
+    final String FRAME_PREFIX        = "VisionPortal-";   // saveNextFrameRaw() file names start with this.
+    final double FRAMES_PER_SECOND   = 30;                // Assumed capture rate, without a timestamps.csv.
+    final int    THREADS             = 3;
+    final double GOLDEN_TOLERANCE_PX = 1.0;
+
+    @Override
+    public void runOpMode() throws InterruptedException {
+        CapturedFrameDirectory frames = new CapturedFrameDirectory(AppUtil.ROOT_FOLDER, FRAME_PREFIX, FRAMES_PER_SECOND);
+        File goldenFile = AppUtil.getInstance().getSettingsFile("frame_replay_golden.txt");
+        File outputFile = AppUtil.getInstance().getSettingsFile("frame_replay_output.txt");
+
+        float decimation = 2;
+        FrameReplay.Report report = null;
+        String comparison = "";
+        boolean lastUp = false, lastDown = false;
+
+        telemetry.addData("Frames", "%d found in %s", frames.size(), AppUtil.ROOT_FOLDER);
+        telemetry.addData(">", "Touch Play to start OpMode");
+        telemetry.update();
+        waitForStart();
+
+        while (opModeIsActive()) {
+            if (gamepad1.dpad_up && !lastUp) {
+                decimation = Math.min(decimation + 1, 6);
+            } else if (gamepad1.dpad_down && !lastDown) {
+                decimation = Math.max(decimation - 1, 1);
+            }
+            lastUp   = gamepad1.dpad_up;
+            lastDown = gamepad1.dpad_down;
+
+            if ((gamepad1.a || gamepad1.b) && frames.size() > 0) {
+                telemetry.addData(">", "Replaying %d frames ...", frames.size());
+                telemetry.update();
+
+                // A new processor for each run, so no state carries over between settings.
+                AprilTagProcessor aprilTag = new AprilTagProcessor.Builder().setNumThreads(THREADS).build();
+                aprilTag.setDecimation(decimation);
+                FrameReplay replay = new FrameReplay(null, aprilTag);
+                report = replay.run(frames, gamepad1.a ? FrameReplay.Timing.MAX_SPEED : FrameReplay.Timing.ORIGINAL,
+                                    AprilTagGoldenOutput.writer(aprilTag));
+                ReadWriteFile.writeFile(outputFile, joinLines(report.getOutput()));
+
+                if (goldenFile.exists()) {
+                    List<String> golden = Arrays.asList(ReadWriteFile.readFile(goldenFile).split("\n"));
+                    List<String> differences = AprilTagGoldenOutput.compare(golden, report.getOutput(),
+                                                                            GOLDEN_TOLERANCE_PX);
+                    comparison = differences.isEmpty() ? "matches golden"
+                               : differences.size() + " differences, first: " + differences.get(0);
+                } else {
+                    comparison = "no golden output saved";
+                }
+            }
+
+            if (gamepad1.y && report != null) {
+                ReadWriteFile.writeFile(goldenFile, joinLines(report.getOutput()));
+                comparison = "saved as golden";
+            }
+
+            telemetry.addData("Frames", frames.size());
+            telemetry.addData("Decimation", "%.0f  (Dpad Up/Down)", decimation);
+            telemetry.addLine("A: max speed   B: original timing   Y: save golden");
+            if (report != null) {
+                telemetry.addLine(report.summary());
+                telemetry.addData("Golden", comparison);
+            }
+            telemetry.update();
+            sleep(20);
+        }
+    }
+
+    private static String joinLines(List<String> lines) {
+        StringBuilder text = new StringBuilder();
+        for (String line : lines) {
+            text.append(line).append('\n');
+        }
+        return text.toString();
+    }
+}
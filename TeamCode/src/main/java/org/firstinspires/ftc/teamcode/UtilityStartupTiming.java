@@ -0,0 +1,40 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.eventloop.opmode.Disabled;
+import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
+import com.qualcomm.robotcore.eventloop.opmode.TeleOp;
+
+import org.firstinspires.ftc.robotcontroller.internal.StartupTiming;
+
+/*
+ * This Utility OpMode shows how long each phase of the last Robot Controller startup took.
+ *
+ * The phases are recorded by StartupTiming as the app starts: the activity being created, the SDK's class scan
+ * (which finds the annotated OpModes, hooks and device drivers), the service binding, the event loop being
+ * created, and the OpModes being registered.  Each is shown with its duration, and the time it ended since the
+ * app's process started.  The same lines are in the robot log, tagged "StartupTiming".
+ *
+ * To measure a startup change, restart the Robot Controller app a few times with and without it, and compare the
+ * phases.
+ * No hardware needs to be configured.
+ */
+@TeleOp(name = "Utility: Startup Timing", group = "Utility")
+@Disabled
+public class UtilityStartupTiming extends LinearOpMode {
+
+    @Override
+    public void runOpMode() {
+        telemetry.addData(">", "Press play to show the startup phases");
+        telemetry.update();
+        waitForStart();
+
+        while (opModeIsActive()) {
+            for (int i = 0; i < StartupTiming.getCount(); i++) {
+                telemetry.addData(StartupTiming.getName(i), "%7.1f mS  at %6.0f mS",
+                        StartupTiming.getDurationMs(i), StartupTiming.getEndMs(i));
+            }
+            telemetry.update();
+            sleep(500);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.eventloop.opmode.Disabled;
+import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
+import com.qualcomm.robotcore.eventloop.opmode.TeleOp;
+
+import org.firstinspires.ftc.robotcore.internal.system.AppUtil;
+import org.firstinspires.ftc.teamcode.vision.CapturedFrameDirectory;
+import org.firstinspires.ftc.teamcode.vision.FrameReplay;
+import org.firstinspires.ftc.teamcode.vision.TfliteModel;
+import org.firstinspires.ftc.teamcode.vision.TfliteProcessor;
+
+import java.io.File;
+import java.io.IOException;
+
+/*
+ * This OpMode replays frames saved by UtilityCameraFrameCapture through a TfliteProcessor, with no camera attached,
+ * for each combination of CPU threads (1 to 4) and the XNNPACK delegate (off and on), and reports what each stage
+ * of the processor costs with each.  Use it to pick the TfliteModel settings for the robot's model.
+ *
+ * The model is MODEL_FILE from the root of the Robot Controller's storage if it's there, or the SDK's CenterStage
+ * model from the app's assets if not.  Each setting replays the frames twice, at maximum speed: once to rebuild the
+ * Interpreter and warm it up, and once to measure.
+ *
+ * Press A to run.  No hardware needs to be configured.
+ */
+@TeleOp(name = "Utility: TFLite Benchmark", group = "Utility")
+@Disabled
+public class UtilityTfliteBenchmark extends LinearOpMode {
+
+    final String   FRAME_PREFIX      = "VisionPortal-";       // saveNextFrameRaw() file names start with this.
+    final double   FRAMES_PER_SECOND = 30;
+    final String   MODEL_FILE        = "model.tflite";
+    final String   MODEL_ASSET       = "CenterStage.tflite";
+    final String[] LABELS            = {"Pixel"};
+    final int      MAX_THREADS       = 4;
+
+    @Override
+    public void runOpMode() throws InterruptedException {
+        CapturedFrameDirectory frames = new CapturedFrameDirectory(AppUtil.ROOT_FOLDER, FRAME_PREFIX, FRAMES_PER_SECOND);
+        File file = new File(AppUtil.ROOT_FOLDER, MODEL_FILE);
+        TfliteModel model;
+        try {
+            model = file.exists() ? TfliteModel.fromFile(file) : TfliteModel.fromAsset(MODEL_ASSET);
+        } catch (IOException e) {
+            telemetry.addData("Error", "Can't load the model: %s", e.getMessage());
+            telemetry.update();
+            waitForStart();
+            return;
+        }
+
+        // [threads - 1][xnnpack]: mean preprocess, invoke and postprocess mS, and frames per second.
+        double[][][] results = new double[MAX_THREADS][2][];
+        String modelName = file.exists() ? file.getName() : MODEL_ASSET;
+
+        telemetry.addData("Model", "%s, %dx%d %s input", modelName, model.getInputWidth(), model.getInputHeight(),
+                          model.isQuantized() ? "8-bit" : "float");
+        telemetry.addData("Frames", "%d found in %s", frames.size(), AppUtil.ROOT_FOLDER);
+        telemetry.addData(">", "Touch Play to start OpMode");
+        telemetry.update();
+        waitForStart();
+
+        while (opModeIsActive()) {
+            if (gamepad1.a && frames.size() > 0) {
+                for (int threads = 1; threads <= MAX_THREADS && opModeIsActive(); threads++) {
+                    for (int xnnpack = 0; xnnpack < 2 && opModeIsActive(); xnnpack++) {
+                        telemetry.addData(">", "Replaying with %d threads, XNNPACK %s ...",
+                                          threads, xnnpack == 1 ? "on" : "off");
+                        telemetry.update();
+                        model.setThreads(threads);
+                        model.setXnnpack(xnnpack == 1);
+                        results[threads - 1][xnnpack] = measure(model, frames);
+                    }
+                }
+            }
+
+            telemetry.addData("Model", "%s, %d frames", modelName, frames.size());
+            for (int threads = 1; threads <= MAX_THREADS; threads++) {
+                for (int xnnpack = 0; xnnpack < 2; xnnpack++) {
+                    double[] result = results[threads - 1][xnnpack];
+                    if (result != null) {
+                        telemetry.addData(threads + " threads, XNNPACK " + (xnnpack == 1 ? "on " : "off"),
+                                          "pre %5.1f  invoke %6.1f  post %4.1f mS  %5.1f FPS",
+                                          result[0], result[1], result[2], result[3]);
+                    }
+                }
+            }
+            telemetry.addLine("A: run");
+            telemetry.update();
+            sleep(20);
+        }
+        model.close();
+    }
+
+    private double[] measure(TfliteModel model, CapturedFrameDirectory frames) throws InterruptedException {
+        TfliteProcessor processor = new TfliteProcessor(model, LABELS);
+        FrameReplay replay = new FrameReplay(null, processor);
+        replay.run(frames, FrameReplay.Timing.MAX_SPEED, null);
+        processor.resetStatistics();
+        FrameReplay.Report report = replay.run(frames, FrameReplay.Timing.MAX_SPEED, null);
+        return new double[] {
+                processor.getMeanStageMicros(TfliteProcessor.Stage.PREPROCESS) / 1e3,
+                processor.getMeanStageMicros(TfliteProcessor.Stage.INVOKE) / 1e3,
+                processor.getMeanStageMicros(TfliteProcessor.Stage.POSTPROCESS) / 1e3,
+                report.getThroughputFps(),
+        };
+    }
+}
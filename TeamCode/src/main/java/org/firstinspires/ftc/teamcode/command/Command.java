@@ -0,0 +1,102 @@
+package org.firstinspires.ftc.teamcode.command;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * One action the robot takes over a number of loops, eg: a drive move, raising an arm, waiting for a sensor.
+ *
+ * A blocking routine such as the samples' turnToHeading() is:
+ *     setup;  while (opModeIsActive() && !done) { one step; }  stop;
+ * A Command is the same routine turned inside out, so the CommandScheduler can interleave it with others:
+ *     start()    setup, once
+ *     update()   one step, every loop: returns true while there is more to do
+ *     end()      stop, once, whether it finished or was interrupted
+ *
+ * update() must not wait or sleep: everything else on the robot runs in the same loop.
+ * The time is passed in, so the same commands run against a simulated clock.
+ *
+ * A command can be run again once it has ended: start() should reset any state from the previous run.
+ * A command that is part of a group is run by that group, and must not be scheduled on its own at the same time.
+ */
+public abstract class Command {
+
+    private static final Subsystem[] NONE = new Subsystem[0];
+
+    private final Subsystem[] requirements;
+    private String            name;
+
+    // Managed by the CommandScheduler.
+    boolean scheduled = false;
+    boolean started   = false;
+
+    /**
+     * @param requirements the subsystems this command drives.  Scheduling it interrupts any command using them.
+     */
+    protected Command(Subsystem... requirements) {
+        this.requirements = (requirements == null || requirements.length == 0) ? NONE : requirements.clone();
+        this.name         = getClass().getSimpleName();
+    }
+
+    /**
+     * Called once, in the scheduler pass after the command is scheduled, before its first update().
+     */
+    protected void start(long nowNanos) {
+    }
+
+    /**
+     * Do one step of the command.  Called every scheduler pass.
+     *
+     * @return true while the command is still running; false once it has finished.
+     */
+    protected abstract boolean update(long nowNanos);
+
+    /**
+     * Called once when the command finishes, or when it is interrupted (cancelled, or replaced by a command that
+     * needs one of its subsystems).  Stop anything the command started here.
+     */
+    protected void end(boolean interrupted) {
+    }
+
+    /** @return the subsystems this command requires.  The array must not be modified. */
+    public Subsystem[] getRequirements() { return requirements; }
+
+    /** @return true from when the command is scheduled until it ends. */
+    public boolean isScheduled()         { return scheduled; }
+
+    public String getName()              { return name; }
+
+    /** Give the command a name for telemetry, in place of its class name. */
+    public Command withName(String name) {
+        this.name = name;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    /** @return true if this command requires the subsystem. */
+    public boolean requires(Subsystem subsystem) {
+        for (Subsystem requirement : requirements) {
+            if (requirement == subsystem) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // The union of the commands' requirements, for a group.
+    static Subsystem[] requirementsOf(Command[] commands) {
+        List<Subsystem> all = new ArrayList<>();
+        for (Command command : commands) {
+            for (Subsystem subsystem : command.requirements) {
+                if (!all.contains(subsystem)) {
+                    all.add(subsystem);
+                }
+            }
+        }
+        return all.toArray(new Subsystem[0]);
+    }
+}
@@ -0,0 +1,257 @@
+package org.firstinspires.ftc.teamcode.command;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Runs any number of Commands together, from one loop.
+ *
+ * The samples' autonomous routines each own the loop while they run: driveStraight() spins in its own
+ * while (opModeIsActive()) until the move is done, so nothing else can happen meanwhile, and an arm or intake has to
+ * wait its turn.  With a scheduler there is only one loop, in the OpMode, and each pass every scheduled command takes
+ * one step:
+ *
+ *     CommandScheduler scheduler = new CommandScheduler();
+ *     scheduler.register(drive, arm);
+ *     scheduler.schedule(auto);
+ *     while (opModeIsActive() && auto.isScheduled()) {
+ *         scheduler.run(System.nanoTime());
+ *     }
+ *     scheduler.cancelAll();
+ *
+ * Each pass of run():
+ *  1. calls periodic() on every registered Subsystem,
+ *  2. schedules the default command of every subsystem that no command is using,
+ *  3. starts newly scheduled commands, and updates every running command, ending those that have finished.
+ *
+ * Commands declare the subsystems they require.  Scheduling a command interrupts whatever was using any of them, so
+ * at most one command drives each mechanism; independent mechanisms run side by side.
+ *
+ * The running commands are kept in a fixed-size array and subsystem ownership is a field on each subsystem, so
+ * schedule(), cancel() and run() don't allocate: a scheduler pass costs little more than the commands' own work.
+ * Everything runs on the thread that calls run(); commands may schedule or cancel other commands from update().
+ */
+public class CommandScheduler {
+
+    private final List<Subsystem> subsystems = new ArrayList<>();
+    private final Command[]       running;
+    private final Command[]       ending;       // The commands cancelAll() is ending.
+    private int                   count      = 0;
+    private long                  passes     = 0;
+    private boolean               inPass     = false;
+    private boolean               cancelling = false;
+
+    public CommandScheduler() {
+        this(32);
+    }
+
+    /**
+     * @param capacity the most commands that can be scheduled at once.  A group counts as one command.
+     */
+    public CommandScheduler(int capacity) {
+        this.running = new Command[capacity];
+        this.ending  = new Command[capacity];
+    }
+
+    /**
+     * Register subsystems, so their periodic() and default commands run.  Call this during init.
+     */
+    public void register(Subsystem... subsystems) {
+        for (Subsystem subsystem : subsystems) {
+            if (!this.subsystems.contains(subsystem)) {
+                this.subsystems.add(subsystem);
+            }
+        }
+    }
+
+    /**
+     * Set the command a subsystem runs whenever no other command is using it.  It must require the subsystem, and
+     * should never finish by itself.  The subsystem is registered if it wasn't already.
+     */
+    public void setDefaultCommand(Subsystem subsystem, Command command) {
+        if (!command.requires(subsystem)) {
+            throw new IllegalArgumentException(command + " does not require " + subsystem);
+        }
+        register(subsystem);
+        subsystem.defaultCommand = command;
+    }
+
+    /**
+     * Schedule a command.  It starts in the next pass of run() (or later in this pass, if called from a command).
+     * Any commands using the subsystems it requires are interrupted now.  Does nothing if it is already scheduled.
+     */
+    public void schedule(Command command) {
+        if (command.scheduled) {
+            return;
+        }
+        for (Subsystem subsystem : command.getRequirements()) {
+            if (subsystem.owner != null) {
+                cancel(subsystem.owner);
+            }
+        }
+        if (count == running.length) {
+            if (!inPass) {
+                compact();      // (Not during run(): it would move the commands being iterated over.)
+            }
+            if (count == running.length) {
+                throw new IllegalStateException("more than " + running.length + " commands scheduled");
+            }
+        }
+        for (Subsystem subsystem : command.getRequirements()) {
+            subsystem.owner = command;
+        }
+        command.scheduled = true;
+        command.started   = false;
+        running[count++]  = command;
+    }
+
+    /**
+     * Interrupt a command: its end(true) is called, if it had started.  Does nothing if it isn't scheduled.
+     */
+    public void cancel(Command command) {
+        if (!command.scheduled) {
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            if (running[i] == command) {
+                running[i] = null;
+            }
+        }
+        finish(command, true);
+    }
+
+    /**
+     * Interrupt every command, eg: at the end of the OpMode.  Default commands will be rescheduled by the next run().
+     *
+     * Every command is unscheduled and releases its subsystems before any end(true) is called, so a command that
+     * end() schedules is kept, and starts in the next pass.  It must not be called from a command's end().
+     */
+    public void cancelAll() {
+        if (cancelling) {
+            throw new IllegalStateException("cancelAll() called from a command's end()");
+        }
+        int ended = 0;
+        for (int i = 0; i < count; i++) {
+            Command command = running[i];
+            running[i] = null;
+            if (command != null) {
+                release(command);
+                if (command.started) {
+                    command.started = false;
+                    ending[ended++] = command;
+                }
+            }
+        }
+        count = 0;
+
+        cancelling = true;
+        try {
+            for (int i = 0; i < ended; i++) {
+                Command command = ending[i];
+                ending[i] = null;
+                command.end(true);
+            }
+        } finally {
+            cancelling = false;
+        }
+    }
+
+    /**
+     * Run one pass: every subsystem's periodic(), then one step of every scheduled command.  Call this every loop.
+     *
+     * @param nowNanos System.nanoTime(), or a simulated time.
+     */
+    public void run(long nowNanos) {
+        passes++;
+        inPass = true;
+        for (int s = 0; s < subsystems.size(); s++) {
+            subsystems.get(s).periodic(nowNanos);
+        }
+        for (int s = 0; s < subsystems.size(); s++) {
+            Subsystem subsystem = subsystems.get(s);
+            if (subsystem.owner == null && subsystem.defaultCommand != null) {
+                schedule(subsystem.defaultCommand);
+            }
+        }
+
+        // count can grow during the pass, if a command schedules another: that one runs in this pass too.
+        for (int i = 0; i < count; i++) {
+            Command command = running[i];
+            if (command == null) {
+                continue;
+            }
+            if (!command.started) {
+                command.started = true;
+                command.start(nowNanos);
+            }
+            boolean more = command.update(nowNanos);
+            if (!more && running[i] == command) {       // (The command may have cancelled itself.)
+                running[i] = null;
+                finish(command, false);
+            }
+        }
+        inPass = false;
+        compact();
+    }
+
+    // Release the command's subsystems, and end it.
+    private void finish(Command command, boolean interrupted) {
+        release(command);
+        if (command.started) {
+            command.started = false;
+            command.end(interrupted);
+        }
+    }
+
+    // Unschedule the command, and free its subsystems.
+    private void release(Command command) {
+        command.scheduled = false;
+        for (Subsystem subsystem : command.getRequirements()) {
+            if (subsystem.owner == command) {
+                subsystem.owner = null;
+            }
+        }
+    }
+
+    // Close the gaps left by ended commands, keeping the order they were scheduled in.
+    private void compact() {
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            if (running[i] != null) {
+                running[kept++] = running[i];
+            }
+        }
+        for (int i = kept; i < count; i++) {
+            running[i] = null;
+        }
+        count = kept;
+    }
+
+    /** @return number of commands scheduled, including default commands. */
+    public int getScheduledCount() {
+        int scheduled = 0;
+        for (int i = 0; i < count; i++) {
+            if (running[i] != null) {
+                scheduled++;
+            }
+        }
+        return scheduled;
+    }
+
+    /** @return the index'th scheduled command, in the order they were scheduled, eg: for telemetry. */
+    public Command getScheduled(int index) {
+        int found = 0;
+        for (int i = 0; i < count; i++) {
+            if (running[i] != null && found++ == index) {
+                return running[i];
+            }
+        }
+        throw new IndexOutOfBoundsException("no scheduled command " + index);
+    }
+
+    /** @return number of passes of run() so far. */
+    public long getPasses()                 { return passes; }
+
+    /** @return the registered subsystems.  The list must not be modified. */
+    public List<Subsystem> getSubsystems()  { return subsystems; }
+}
@@ -0,0 +1,92 @@
+package org.firstinspires.ftc.teamcode.command;
+
+import java.util.function.BooleanSupplier;
+
+/*
+ * Shorthand for building command groups and simple commands, so an autonomous reads as a plan:
+ *
+ *     Command auto = Commands.sequence(
+ *             Commands.parallel(drive.move(0), arm.raise()),
+ *             Commands.race(claw.open(), Commands.waitSeconds(0.5)),
+ *             drive.move(1));
+ *
+ * All of these allocate when they are built, during init, and not when they run.
+ */
+public final class Commands {
+
+    private Commands() {
+    }
+
+    /** @return a command that runs the commands one after another. */
+    public static SequentialGroup sequence(Command... commands) {
+        return new SequentialGroup(commands);
+    }
+
+    /** @return a command that runs the commands together, until all have finished. */
+    public static ParallelGroup parallel(Command... commands) {
+        return new ParallelGroup(commands);
+    }
+
+    /** @return a command that runs the commands together, until the first one finishes. */
+    public static RaceGroup race(Command... commands) {
+        return new RaceGroup(commands);
+    }
+
+    /**
+     * @return a command that does nothing for a while, eg: to let a claw close, or as a timeout in a race.
+     */
+    public static Command waitSeconds(final double seconds) {
+        return new Command() {
+            private long endNanos;
+
+            @Override
+            protected void start(long nowNanos) {
+                endNanos = nowNanos + (long) (seconds * 1e9);
+            }
+
+            @Override
+            protected boolean update(long nowNanos) {
+                return nowNanos < endNanos;
+            }
+        }.withName("Wait " + seconds + " S");
+    }
+
+    /**
+     * @return a command that finishes when the condition becomes true, eg: a sensor seeing a game piece.
+     */
+    public static Command waitUntil(final BooleanSupplier condition) {
+        return new Command() {
+            @Override
+            protected boolean update(long nowNanos) {
+                return !condition.getAsBoolean();
+            }
+        }.withName("WaitUntil");
+    }
+
+    /**
+     * @return a command that runs the action once and finishes, eg: setting a servo position.
+     */
+    public static Command instant(final Runnable action, Subsystem... requirements) {
+        return new Command(requirements) {
+            @Override
+            protected boolean update(long nowNanos) {
+                action.run();
+                return false;
+            }
+        }.withName("Instant");
+    }
+
+    /**
+     * @return a command that runs the action every pass until it is interrupted, eg: a default command that holds
+     *         an arm's position.
+     */
+    public static Command run(final Runnable action, Subsystem... requirements) {
+        return new Command(requirements) {
+            @Override
+            protected boolean update(long nowNanos) {
+                action.run();
+                return true;
+            }
+        }.withName("Run");
+    }
+}
@@ -0,0 +1,68 @@
+package org.firstinspires.ftc.teamcode.command;
+
+/*
+ * Runs commands at the same time.  Finishes when all of them have.
+ *
+ * The commands must not require the same subsystem: they would fight over it.  A command that finishes early
+ * ends straight away (eg: stopping its motors), while the others carry on.
+ */
+public class ParallelGroup extends Command {
+
+    private final Command[] commands;
+    private final boolean[] running;
+
+    public ParallelGroup(Command... commands) {
+        super(requirementsOf(commands));
+        checkDisjoint(commands);
+        this.commands = commands.clone();
+        this.running  = new boolean[commands.length];
+    }
+
+    // Commands run side by side can't share a subsystem.
+    static void checkDisjoint(Command[] commands) {
+        for (int i = 0; i < commands.length; i++) {
+            for (int j = i + 1; j < commands.length; j++) {
+                for (Subsystem subsystem : commands[i].getRequirements()) {
+                    if (commands[j].requires(subsystem)) {
+                        throw new IllegalArgumentException(commands[i] + " and " + commands[j] + " both require "
+                                + subsystem);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    protected void start(long nowNanos) {
+        for (int i = 0; i < commands.length; i++) {
+            commands[i].start(nowNanos);
+            running[i] = true;
+        }
+    }
+
+    @Override
+    protected boolean update(long nowNanos) {
+        boolean any = false;
+        for (int i = 0; i < commands.length; i++) {
+            if (running[i]) {
+                if (commands[i].update(nowNanos)) {
+                    any = true;
+                } else {
+                    running[i] = false;
+                    commands[i].end(false);
+                }
+            }
+        }
+        return any;
+    }
+
+    @Override
+    protected void end(boolean interrupted) {
+        for (int i = 0; i < commands.length; i++) {
+            if (running[i]) {
+                running[i] = false;
+                commands[i].end(interrupted);
+            }
+        }
+    }
+}
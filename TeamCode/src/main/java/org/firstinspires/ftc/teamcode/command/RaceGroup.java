@@ -0,0 +1,59 @@
+package org.firstinspires.ftc.teamcode.command;
+
+/*
+ * Runs commands at the same time, until the first of them finishes; the rest are then interrupted.
+ *
+ * Use it for a timeout (race an intake against Commands.waitSeconds(2)), or to stop one action when a sensor sees
+ * something (race a slow drive forward against Commands.waitUntil(...)).
+ * As with ParallelGroup, the commands must not require the same subsystem.
+ */
+public class RaceGroup extends Command {
+
+    private final Command[] commands;
+    private final boolean[] running;
+    private int             winner = -1;
+
+    public RaceGroup(Command... commands) {
+        super(requirementsOf(commands));
+        ParallelGroup.checkDisjoint(commands);
+        this.commands = commands.clone();
+        this.running  = new boolean[commands.length];
+    }
+
+    @Override
+    protected void start(long nowNanos) {
+        winner = -1;
+        for (int i = 0; i < commands.length; i++) {
+            commands[i].start(nowNanos);
+            running[i] = true;
+        }
+    }
+
+    @Override
+    protected boolean update(long nowNanos) {
+        for (int i = 0; i < commands.length; i++) {
+            if (!commands[i].update(nowNanos)) {
+                running[i] = false;
+                commands[i].end(false);
+                winner = i;
+                return false;
+            }
+        }
+        return commands.length > 0;
+    }
+
+    @Override
+    protected void end(boolean interrupted) {
+        for (int i = 0; i < commands.length; i++) {
+            if (running[i]) {
+                running[i] = false;
+                commands[i].end(true);
+            }
+        }
+    }
+
+    /** @return the command that finished first in the last run, or null if none has. */
+    public Command getWinner() {
+        return (winner < 0) ? null : commands[winner];
+    }
+}
@@ -0,0 +1,55 @@
+package org.firstinspires.ftc.teamcode.command;
+
+/*
+ * Runs commands one after another.  Finishes when the last one does.
+ *
+ * When a command finishes, the next one starts and takes its first step in the same pass, so a sequence of moves
+ * loses no loops between steps.  The group requires every subsystem that any of its commands requires, for its
+ * whole run.
+ */
+public class SequentialGroup extends Command {
+
+    private final Command[] commands;
+    private int             current = 0;
+
+    public SequentialGroup(Command... commands) {
+        super(requirementsOf(commands));
+        this.commands = commands.clone();
+    }
+
+    @Override
+    protected void start(long nowNanos) {
+        current = 0;
+        if (commands.length > 0) {
+            commands[0].start(nowNanos);
+        }
+    }
+
+    @Override
+    protected boolean update(long nowNanos) {
+        while (current < commands.length) {
+            if (commands[current].update(nowNanos)) {
+                return true;
+            }
+            commands[current].end(false);
+            current++;
+            if (current < commands.length) {
+                commands[current].start(nowNanos);
+            }
+        }
+        return false;
+    }
+
+    @Override
+    protected void end(boolean interrupted) {
+        if (interrupted && current < commands.length) {
+            commands[current].end(true);
+        }
+        current = commands.length;
+    }
+
+    /** @return the command running now, or null once the group has finished. */
+    public Command getCurrent() {
+        return (current < commands.length) ? commands[current] : null;
+    }
+}
@@ -0,0 +1,48 @@
+package org.firstinspires.ftc.teamcode.command;
+
+/*
+ * A mechanism that only one Command may drive at a time: a drivetrain, an arm, a claw.
+ *
+ * Commands list the subsystems they require.  When a command is scheduled, the CommandScheduler interrupts whatever
+ * command currently holds any of those subsystems, so two commands never fight over the same motors.
+ * When no command holds a subsystem, its default command (if it has one) is scheduled, eg: to hold an arm in place.
+ *
+ * Subclass it to give the subsystem a periodic() that runs once per scheduler pass, before any command,
+ * whether or not a command is using it (eg: to update a cached sensor reading).  A subsystem with no periodic work
+ * can just be a plain instance:
+ *
+ *     Subsystem drive = new Subsystem("drive");
+ */
+public class Subsystem {
+
+    private final String name;
+
+    // Managed by the CommandScheduler.
+    Command owner          = null;
+    Command defaultCommand = null;
+
+    public Subsystem(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Called by CommandScheduler.run() at the start of every pass, once the subsystem is registered.
+     *
+     * @param nowNanos the pass's System.nanoTime() (or simulated time).
+     */
+    protected void periodic(long nowNanos) {
+    }
+
+    public String getName()            { return name; }
+
+    /** @return the command that holds this subsystem, or null if it is free. */
+    public Command getCurrentCommand() { return owner; }
+
+    /** @return the command scheduled whenever the subsystem is free, or null. */
+    public Command getDefaultCommand() { return defaultCommand; }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
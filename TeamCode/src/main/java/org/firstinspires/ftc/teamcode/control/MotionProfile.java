@@ -0,0 +1,226 @@
+package org.firstinspires.ftc.teamcode.control;
+
+/*
+ * A one-dimensional motion profile: position, velocity and acceleration against time, for a move of a given distance.
+ *
+ * The profile is computed once, when it is built, and stored as primitive arrays sampled every dt seconds.
+ * Looking up a setpoint in the control loop is then an array index and a linear interpolation, with no allocation
+ * and no square roots.  Build every profile an autonomous needs during init().
+ *
+ * Two shapes are available:
+ *  - trapezoidal: constant acceleration up to the cruise velocity, cruise, constant deceleration.
+ *  - S-curve:     as trapezoidal, but the acceleration itself ramps at a limited jerk, which removes the step in
+ *                 torque at the start and end of each ramp.  This reduces wheel slip and mechanism shake, at the
+ *                 cost of a slightly longer move.
+ * If the distance is too short to reach the cruise velocity (or the peak acceleration), the peak is lowered so the
+ * move still starts and ends at rest.
+ *
+ * Units are up to the caller (e.g. inches or encoder counts, and seconds); they only need to be consistent.
+ * Negative distances produce a profile that moves in the negative direction.
+ */
+public class MotionProfile {
+
+    private final double   dt;
+    private final double   distance;
+    private final double   duration;
+    private final double[] position;
+    private final double[] velocity;
+    private final double[] acceleration;
+
+    private MotionProfile(double dt, double distance, double duration,
+                          double[] position, double[] velocity, double[] acceleration) {
+        this.dt           = dt;
+        this.distance     = distance;
+        this.duration     = duration;
+        this.position     = position;
+        this.velocity     = velocity;
+        this.acceleration = acceleration;
+    }
+
+    /**
+     * Build a trapezoidal profile.
+     *
+     * @param distance    signed distance to move.
+     * @param maxVelocity cruise velocity limit (positive).
+     * @param maxAccel    acceleration limit (positive).
+     * @param dt          sample period, normally the control loop period, e.g. 0.005.
+     */
+    public static MotionProfile trapezoidal(double distance, double maxVelocity, double maxAccel, double dt) {
+        return build(distance, maxVelocity, maxAccel, Double.POSITIVE_INFINITY, dt);
+    }
+
+    /**
+     * Build an S-curve (jerk limited) profile.
+     *
+     * @param maxJerk jerk limit (positive): the rate at which acceleration may change.
+     */
+    public static MotionProfile sCurve(double distance, double maxVelocity, double maxAccel, double maxJerk,
+                                       double dt) {
+        return build(distance, maxVelocity, maxAccel, maxJerk, dt);
+    }
+
+    /**
+     * Build a profile that doesn't move, such as the stationary side of a pivot turn.  Its duration is 0 and every
+     * setpoint is 0, so a follower holds its starting position.
+     */
+    public static MotionProfile hold(double dt) {
+        return new MotionProfile(dt, 0, 0, new double[1], new double[1], new double[1]);
+    }
+
+    private static MotionProfile build(double distance, double maxVelocity, double maxAccel, double maxJerk,
+                                       double dt) {
+        if (maxVelocity <= 0 || maxAccel <= 0 || maxJerk <= 0 || dt <= 0) {
+            throw new IllegalArgumentException("Profile limits and dt must be positive");
+        }
+        double length = Math.abs(distance);
+
+        // Each ramp (accelerate, then decelerate) covers peak * rampTime / 2, because it is symmetric.
+        // If both ramps at maxVelocity don't fit in the distance, find the highest peak velocity that does.
+        double peak = maxVelocity;
+        if (peak * rampTime(peak, maxAccel, maxJerk) > length) {
+            double low = 0, high = maxVelocity;
+            for (int i = 0; i < 60; i++) {
+                double mid = (low + high) / 2;
+                if (mid * rampTime(mid, maxAccel, maxJerk) > length) {
+                    high = mid;
+                } else {
+                    low = mid;
+                }
+            }
+            peak = low;
+        }
+
+        double ramp   = rampTime(peak, maxAccel, maxJerk);
+        double jerkT  = jerkTime(peak, maxAccel, maxJerk);
+        double cruise = (peak > 0) ? (length - peak * ramp) / peak : 0;
+        double total  = 2 * ramp + cruise;
+
+        int samples = (int) Math.ceil(total / dt) + 1;
+        double[] position     = new double[samples];
+        double[] velocity     = new double[samples];
+        double[] acceleration = new double[samples];
+
+        double sign = Math.signum(distance);
+        for (int i = 0; i < samples; i++) {
+            double t = Math.min(i * dt, total);
+            double v, a, p;
+            if (t < ramp) {                                  // Accelerating.
+                v = rampVelocity(t, ramp, jerkT, peak);
+                a = rampAccel(t, ramp, jerkT, peak);
+                p = rampPosition(t, ramp, jerkT, peak);
+            } else if (t <= ramp + cruise) {                 // Cruising.
+                v = peak;
+                a = 0;
+                p = peak * ramp / 2 + peak * (t - ramp);
+            } else {                                         // Decelerating: the acceleration ramp, mirrored.
+                double r = total - t;
+                v = rampVelocity(r, ramp, jerkT, peak);
+                a = -rampAccel(r, ramp, jerkT, peak);
+                p = length - rampPosition(r, ramp, jerkT, peak);
+            }
+            position[i]     = sign * p;
+            velocity[i]     = sign * v;
+            acceleration[i] = sign * a;
+        }
+        position[samples - 1] = distance;
+        velocity[samples - 1] = 0;
+
+        return new MotionProfile(dt, distance, total, position, velocity, acceleration);
+    }
+
+    // Time spent ramping acceleration up (or down) during a ramp to "peak".  0 for a trapezoidal profile.
+    private static double jerkTime(double peak, double maxAccel, double maxJerk) {
+        if (Double.isInfinite(maxJerk)) {
+            return 0;
+        }
+        // If maxAccel can't be reached before half the velocity change is done, the ramp is a pure S.
+        return Math.min(maxAccel / maxJerk, Math.sqrt(peak / maxJerk));
+    }
+
+    // Duration of one velocity ramp from rest to "peak".
+    private static double rampTime(double peak, double maxAccel, double maxJerk) {
+        double jerkT = jerkTime(peak, maxAccel, maxJerk);
+        if (jerkT == 0) {
+            return peak / maxAccel;
+        }
+        double accel = Math.min(maxAccel, Math.sqrt(peak * maxJerk));
+        return jerkT + peak / accel;
+    }
+
+    // Acceleration at time t (0 <= t <= ramp) during a ramp from rest to "peak".
+    private static double rampAccel(double t, double ramp, double jerkT, double peak) {
+        double accel = peak / (ramp - jerkT);            // The ramp's peak acceleration.
+        if (jerkT == 0) {
+            return accel;
+        }
+        if (t < jerkT) {
+            return accel * t / jerkT;
+        } else if (t < ramp - jerkT) {
+            return accel;
+        }
+        return accel * (ramp - t) / jerkT;
+    }
+
+    // Velocity at time t during a ramp: the integral of rampAccel().
+    private static double rampVelocity(double t, double ramp, double jerkT, double peak) {
+        double accel = peak / (ramp - jerkT);
+        if (jerkT == 0) {
+            return accel * t;
+        }
+        if (t < jerkT) {
+            return accel * t * t / (2 * jerkT);
+        } else if (t < ramp - jerkT) {
+            return accel * (t - jerkT / 2);
+        }
+        double r = ramp - t;
+        return peak - accel * r * r / (2 * jerkT);
+    }
+
+    // Position at time t during a ramp: the integral of rampVelocity().
+    private static double rampPosition(double t, double ramp, double jerkT, double peak) {
+        double accel = peak / (ramp - jerkT);
+        if (jerkT == 0) {
+            return accel * t * t / 2;
+        }
+        if (t < jerkT) {
+            return accel * t * t * t / (6 * jerkT);
+        } else if (t < ramp - jerkT) {
+            return accel * jerkT * jerkT / 6 + accel * ((t * t - jerkT * jerkT) / 2 - jerkT / 2 * (t - jerkT));
+        }
+        // The end of the ramp is the start mirrored in velocity: it covers peak * r - (the first part's distance).
+        double r = ramp - t;
+        return peak * ramp / 2 - (peak * r - accel * r * r * r / (6 * jerkT));
+    }
+
+    /** @return the signed distance the profile moves. */
+    public double getDistance()   { return distance; }
+
+    /** @return total time for the move, in seconds. */
+    public double getDuration()   { return duration; }
+
+    /** @return number of stored samples. */
+    public int getSampleCount()   { return position.length; }
+
+    /** @return setpoint position at time t seconds from the start of the move. */
+    public double getPosition(double t)      { return sample(position, t); }
+
+    /** @return setpoint velocity at time t. */
+    public double getVelocity(double t)      { return sample(velocity, t); }
+
+    /** @return setpoint acceleration at time t. */
+    public double getAcceleration(double t)  { return sample(acceleration, t); }
+
+    // Linear interpolation between stored samples.  Before the start, the first sample; after the end, the last.
+    private double sample(double[] values, double t) {
+        if (t <= 0) {
+            return values[0];
+        }
+        double index = t / dt;
+        int i = (int) index;
+        if (i >= values.length - 1) {
+            return values[values.length - 1];
+        }
+        double fraction = index - i;
+        return values[i] + (values[i + 1] - values[i]) * fraction;
+    }
+}
@@ -0,0 +1,53 @@
+package org.firstinspires.ftc.teamcode.control;
+
+import com.qualcomm.robotcore.hardware.DcMotor;
+
+import org.firstinspires.ftc.teamcode.command.Command;
+import org.firstinspires.ftc.teamcode.command.Subsystem;
+
+/*
+ * Moves a mechanism motor (an arm, a lift) to an encoder position with the hub's RUN_TO_POSITION loop, as a Command.
+ *
+ * The command finishes when the motor is no longer busy: within its target position tolerance.  The motor stays in
+ * RUN_TO_POSITION with its power set afterwards, so the hub keeps holding the position.  If the command is
+ * interrupted, the target is moved to wherever the motor is, so it stops there and holds.
+ */
+public class MotorToPositionCommand extends Command {
+
+    private final DcMotor motor;
+    private final int     target;
+    private final double  power;
+
+    /**
+     * @param motor     the motor, with its encoder reset during init.
+     * @param target    the encoder position to move to.
+     * @param power     the largest power to use (0 to 1).
+     * @param mechanism the subsystem the motor belongs to.
+     */
+    public MotorToPositionCommand(DcMotor motor, int target, double power, Subsystem mechanism) {
+        super(mechanism);
+        this.motor  = motor;
+        this.target = target;
+        this.power  = Math.abs(power);
+        withName(mechanism.getName() + " to " + target);
+    }
+
+    @Override
+    protected void start(long nowNanos) {
+        motor.setTargetPosition(target);
+        motor.setMode(DcMotor.RunMode.RUN_TO_POSITION);
+        motor.setPower(power);
+    }
+
+    @Override
+    protected boolean update(long nowNanos) {
+        return motor.isBusy();
+    }
+
+    @Override
+    protected void end(boolean interrupted) {
+        if (interrupted) {
+            motor.setTargetPosition(motor.getCurrentPosition());
+        }
+    }
+}
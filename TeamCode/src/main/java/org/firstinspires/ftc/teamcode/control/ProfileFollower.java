@@ -0,0 +1,89 @@
+package org.firstinspires.ftc.teamcode.control;
+
+/*
+ * Computes motor power to track a MotionProfile: feedforward from the profile, plus PID on the position error.
+ *
+ *     power = kV * velocity + kA * acceleration + kS * sign(velocity)      (feedforward)
+ *           + kP * error + kI * integral(error) + kD * d(error)/dt         (feedback)
+ *
+ * The motor should be in RUN_USING_ENCODER.  In that mode the hub's own velocity loop treats power as a fraction of
+ * the motor's maximum speed, so kV is simply 1 / (maximum speed) and most of the work is done by the feedforward:
+ * the PID terms only have to correct the small errors the feedforward leaves.
+ *
+ * One follower is needed per motor (or per group of motors that move together).  update() does not allocate.
+ */
+public class ProfileFollower {
+
+    private final double kV, kA, kS;
+    private final double kP, kI, kD;
+    private final double maxIntegral;
+
+    private double integral   = 0;
+    private double lastError  = 0;
+    private double lastTime   = -1;
+    private double error      = 0;
+
+    /**
+     * @param kV          power per unit of velocity.
+     * @param kA          power per unit of acceleration.
+     * @param kS          power needed to overcome static friction.
+     * @param kP          power per unit of position error.
+     * @param kI          power per unit of integrated position error (unit x seconds).
+     * @param kD          power per unit of position error rate.
+     * @param maxIntegral largest magnitude the integrated error may reach, to limit wind-up.
+     */
+    public ProfileFollower(double kV, double kA, double kS, double kP, double kI, double kD, double maxIntegral) {
+        this.kV          = kV;
+        this.kA          = kA;
+        this.kS          = kS;
+        this.kP          = kP;
+        this.kI          = kI;
+        this.kD          = kD;
+        this.maxIntegral = maxIntegral;
+    }
+
+    /**
+     * Clear the integral and derivative history.  Call this at the start of each move.
+     */
+    public void reset() {
+        integral  = 0;
+        lastError = 0;
+        lastTime  = -1;
+        error     = 0;
+    }
+
+    /**
+     * @param profile  the profile being followed.
+     * @param t        time since the start of the move, in seconds.  Past the end of the profile, the follower
+     *                 holds the final position.
+     * @param position measured position, relative to the start of the move, in the profile's units.
+     * @return the motor power, clipped to -1 .. +1.
+     */
+    public double update(MotionProfile profile, double t, double position) {
+        double velocity     = profile.getVelocity(t);
+        double acceleration = profile.getAcceleration(t);
+        error = profile.getPosition(t) - position;
+
+        double derivative = 0;
+        if (lastTime >= 0 && t > lastTime) {
+            double dt = t - lastTime;
+            integral   = clip(integral + error * dt, maxIntegral);
+            derivative = (error - lastError) / dt;
+        }
+        lastError = error;
+        lastTime  = t;
+
+        double power = kV * velocity + kA * acceleration + kS * Math.signum(velocity)
+                     + kP * error + kI * integral + kD * derivative;
+        return clip(power, 1.0);
+    }
+
+    /** @return the position error from the last update(). */
+    public double getError() {
+        return error;
+    }
+
+    private static double clip(double value, double limit) {
+        return Math.max(-limit, Math.min(limit, value));
+    }
+}
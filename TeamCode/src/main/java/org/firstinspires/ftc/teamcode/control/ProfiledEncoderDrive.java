@@ -0,0 +1,174 @@
+package org.firstinspires.ftc.teamcode.control;
+
+import com.qualcomm.robotcore.hardware.DcMotor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Drives a left/right (tank) drivetrain through a list of pre-planned encoder moves, using motion profiles.
+ *
+ * This replaces encoderDrive() from RobotAutoDriveByEncoder_Linear.  That method sets RUN_TO_POSITION with a fixed
+ * power cap, so each move starts with a jolt, runs at the cap, and then creeps into its target as the hub's
+ * position loop runs out of error.  Here each move follows a trapezoidal or S-curve profile, with a
+ * feedforward + PID ProfileFollower per side, and the motors stay in RUN_USING_ENCODER throughout.
+ *
+ * All moves are planned (and their profiles computed) by addMove() during init.  During the OpMode:
+ *     drive.start(move, System.nanoTime());
+ *     while (opModeIsActive() && drive.update(System.nanoTime())) { ... }
+ *
+ * The two sides of a move share one duration: the longer side gets the full limits, and the shorter side's limits
+ * are scaled down to match, so a turn or arc keeps its shape from start to finish.  A side that doesn't move (the
+ * inside wheel of a pivot) holds its position until the other side has finished.
+ * The clock is passed in, so the same code runs against a simulated drivetrain with a simulated clock.
+ */
+public class ProfiledEncoderDrive {
+
+    private static class Move {
+        final MotionProfile left;
+        final MotionProfile right;
+        final double        duration;
+
+        Move(MotionProfile left, MotionProfile right) {
+            this.left     = left;
+            this.right    = right;
+            this.duration = Math.max(left.getDuration(), right.getDuration());
+        }
+    }
+
+    private final DcMotor         leftMotor;
+    private final DcMotor         rightMotor;
+    private final ProfileFollower leftFollower;
+    private final ProfileFollower rightFollower;
+    private final double          countsPerInch;
+    private final double          dt;
+    private final List<Move>      moves = new ArrayList<>();
+
+    private double toleranceInches = 0.25;
+    private double settleTimeout   = 0.5;          // Seconds allowed past the end of the profile to reach tolerance.
+
+    private Move    active = null;
+    private long    startNanos;
+    private int     leftStart, rightStart;
+    private double  elapsed;
+
+    /**
+     * @param leftMotor     left drive motor, already in RUN_USING_ENCODER.
+     * @param rightMotor    right drive motor, already in RUN_USING_ENCODER.
+     * @param countsPerInch encoder counts per inch of wheel travel.
+     * @param leftFollower  follower for the left side, with gains in power per inch.
+     * @param rightFollower follower for the right side.
+     * @param dt            profile sample period, normally the expected loop period, in seconds.
+     */
+    public ProfiledEncoderDrive(DcMotor leftMotor, DcMotor rightMotor, double countsPerInch,
+                                ProfileFollower leftFollower, ProfileFollower rightFollower, double dt) {
+        this.leftMotor     = leftMotor;
+        this.rightMotor    = rightMotor;
+        this.countsPerInch = countsPerInch;
+        this.leftFollower  = leftFollower;
+        this.rightFollower = rightFollower;
+        this.dt            = dt;
+    }
+
+    /** Set how close (inches) each side must be to its target, and how long past the profile's end to wait for it. */
+    public void setTolerance(double inches, double settleSeconds) {
+        toleranceInches = inches;
+        settleTimeout   = settleSeconds;
+    }
+
+    /**
+     * Plan a move.  Call this during init: it computes both sides' profiles.
+     *
+     * @param leftInches  distance for the left wheels.
+     * @param rightInches distance for the right wheels.
+     * @param maxVelocity inches per second, for the longer side.
+     * @param maxAccel    inches per second squared, for the longer side.
+     * @param maxJerk     inches per second cubed, for the longer side, or Double.POSITIVE_INFINITY for a
+     *                    trapezoidal profile.
+     * @return the move's index, for start().
+     */
+    public int addMove(double leftInches, double rightInches, double maxVelocity, double maxAccel, double maxJerk) {
+        double longest = Math.max(Math.abs(leftInches), Math.abs(rightInches));
+        moves.add(new Move(profile(leftInches, longest, maxVelocity, maxAccel, maxJerk),
+                           profile(rightInches, longest, maxVelocity, maxAccel, maxJerk)));
+        return moves.size() - 1;
+    }
+
+    private MotionProfile profile(double inches, double longest, double maxVelocity, double maxAccel,
+                                  double maxJerk) {
+        if (inches == 0) {
+            return MotionProfile.hold(dt);
+        }
+        // Scale all of the limits by the same ratio, so this side's profile is the longer side's, scaled in size.
+        double ratio = (longest == 0) ? 1 : Math.max(Math.abs(inches) / longest, 1e-6);
+        return MotionProfile.sCurve(inches, maxVelocity * ratio, maxAccel * ratio, maxJerk * ratio, dt);
+    }
+
+    /** @return the planned duration of a move, in seconds. */
+    public double getDuration(int move) {
+        return moves.get(move).duration;
+    }
+
+    /**
+     * Begin a move from the current wheel positions.
+     */
+    public void start(int move, long nowNanos) {
+        active     = moves.get(move);
+        startNanos = nowNanos;
+        leftStart  = leftMotor.getCurrentPosition();
+        rightStart = rightMotor.getCurrentPosition();
+        elapsed    = 0;
+        leftFollower.reset();
+        rightFollower.reset();
+    }
+
+    /**
+     * Update the motor powers for the current move.  Call this every loop.
+     *
+     * @return true while the move is running.  When it returns false the motors have been stopped.
+     */
+    public boolean update(long nowNanos) {
+        if (active == null) {
+            return false;
+        }
+        elapsed = (nowNanos - startNanos) / 1e9;
+
+        double left  = (leftMotor.getCurrentPosition() - leftStart) / countsPerInch;
+        double right = (rightMotor.getCurrentPosition() - rightStart) / countsPerInch;
+        double leftPower  = leftFollower.update(active.left, elapsed, left);
+        double rightPower = rightFollower.update(active.right, elapsed, right);
+
+        double end = active.duration;
+        boolean settled = Math.abs(leftFollower.getError()) < toleranceInches
+                       && Math.abs(rightFollower.getError()) < toleranceInches;
+        if (elapsed >= end && (settled || elapsed >= end + settleTimeout)) {
+            stop();
+            return false;
+        }
+
+        leftMotor.setPower(leftPower);
+        rightMotor.setPower(rightPower);
+        return true;
+    }
+
+    /**
+     * Abandon the current move, and stop the motors.
+     */
+    public void stop() {
+        active = null;
+        leftMotor.setPower(0);
+        rightMotor.setPower(0);
+    }
+
+    /** @return true while a move is running. */
+    public boolean isBusy()             { return active != null; }
+
+    /** @return seconds since the current (or last) move started. */
+    public double getElapsed()          { return elapsed; }
+
+    /** @return left position error at the last update, in inches. */
+    public double getLeftError()        { return leftFollower.getError(); }
+
+    /** @return right position error at the last update, in inches. */
+    public double getRightError()       { return rightFollower.getError(); }
+}
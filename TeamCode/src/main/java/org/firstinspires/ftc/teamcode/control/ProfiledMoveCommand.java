@@ -0,0 +1,50 @@
+package org.firstinspires.ftc.teamcode.control;
+
+import org.firstinspires.ftc.teamcode.command.Command;
+import org.firstinspires.ftc.teamcode.command.Subsystem;
+
+/*
+ * One planned ProfiledEncoderDrive move, as a Command: the non-blocking replacement for the samples' encoderDrive()
+ * and driveStraight().
+ *
+ *     int forward = drive.addMove(48, 48, MAX_VELOCITY, MAX_ACCEL, MAX_JERK);     // During init.
+ *     Command move = new ProfiledMoveCommand(drive, forward, driveBase);
+ *
+ * The move is still planned by addMove() during init; the command only starts it and calls update() each pass.
+ * It runs for drive.getDuration(move), the longer side's profile (a pivot's still wheel holds its position all
+ * that time), then until the wheels settle.  Interrupting it stops the motors.
+ */
+public class ProfiledMoveCommand extends Command {
+
+    private final ProfiledEncoderDrive drive;
+    private final int                  move;
+
+    /**
+     * @param drive     the drive that planned the move.
+     * @param move      the move's index, from addMove().
+     * @param driveBase the subsystem that stands for the drive motors.
+     */
+    public ProfiledMoveCommand(ProfiledEncoderDrive drive, int move, Subsystem driveBase) {
+        super(driveBase);
+        this.drive = drive;
+        this.move  = move;
+        withName("Move " + move);
+    }
+
+    @Override
+    protected void start(long nowNanos) {
+        drive.start(move, nowNanos);
+    }
+
+    @Override
+    protected boolean update(long nowNanos) {
+        return drive.update(nowNanos);
+    }
+
+    @Override
+    protected void end(boolean interrupted) {
+        if (interrupted) {
+            drive.stop();
+        }
+    }
+}
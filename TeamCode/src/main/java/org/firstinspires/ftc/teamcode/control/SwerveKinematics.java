@@ -0,0 +1,156 @@
+package org.firstinspires.ftc.teamcode.control;
+
+/*
+ * Inverse and forward kinematics for a swerve drive with any number of modules.
+ *
+ * Robot frame: X forward, Y left, angles CCW positive from forward, in radians.  Module positions are in inches
+ * from the robot's center of rotation; speeds are in inches per second (or any consistent unit).
+ *
+ * Inverse: a robot velocity (vx, vy, omega) becomes a speed and a steer angle for each module.  Each module's
+ * velocity is (vx - omega * y, vy + omega * x).  The angle is chosen within 90 degrees of the module's current
+ * angle, reversing the wheel if that's shorter, and is returned in the same frame as the current angle, so an
+ * unwrapped (continuous) current angle gives an unwrapped target.  If any module would exceed the maximum speed,
+ * all of them are scaled down together, so the robot still moves in the requested direction.
+ *
+ * Forward: the module speeds and angles become the robot velocity that best fits them (least squares), which
+ * averages out small disagreements between modules.  It is also correct for distances: pass the change in each
+ * module's drive position since the last update to get the robot's displacement.
+ *
+ * Everything is precomputed in the constructor, and inverse() / forward() don't allocate.
+ */
+public class SwerveKinematics {
+
+    private final double[]   moduleX;
+    private final double[]   moduleY;
+    private final double[][] pseudoInverse;     // 3 x 2N: robot velocity from stacked module velocities.
+
+    /**
+     * A rectangular drive with modules ordered as in SensorOctoQuadAdv: left front, right front, left back,
+     * right back.
+     *
+     * @param trackWidth distance between left and right modules.
+     * @param wheelBase  distance between front and back modules.
+     */
+    public static SwerveKinematics rectangle(double trackWidth, double wheelBase) {
+        double x = wheelBase / 2, y = trackWidth / 2;
+        return new SwerveKinematics(x, y, x, -y, -x, y, -x, -y);
+    }
+
+    /**
+     * @param moduleXY each module's position: x0, y0, x1, y1 ...  At least two modules, not all in one place.
+     */
+    public SwerveKinematics(double... moduleXY) {
+        int n = moduleXY.length / 2;
+        if (n < 2 || moduleXY.length % 2 != 0) {
+            throw new IllegalArgumentException("need x, y for at least two modules");
+        }
+        moduleX = new double[n];
+        moduleY = new double[n];
+        double sumX = 0, sumY = 0, sumR2 = 0;
+        for (int i = 0; i < n; i++) {
+            moduleX[i] = moduleXY[2 * i];
+            moduleY[i] = moduleXY[2 * i + 1];
+            sumX  += moduleX[i];
+            sumY  += moduleY[i];
+            sumR2 += moduleX[i] * moduleX[i] + moduleY[i] * moduleY[i];
+        }
+
+        // A (2N x 3) maps robot velocity to module velocities: rows (1, 0, -y) and (0, 1, x).
+        // The pseudo-inverse is (A'A)^-1 A', with A'A = [[n, 0, -sumY], [0, n, sumX], [-sumY, sumX, sumR2]].
+        double[][] ata = {{n, 0, -sumY}, {0, n, sumX}, {-sumY, sumX, sumR2}};
+        double[][] inv = invert3(ata);
+
+        pseudoInverse = new double[3][2 * n];
+        for (int r = 0; r < 3; r++) {
+            for (int i = 0; i < n; i++) {
+                pseudoInverse[r][2 * i]     = inv[r][0] - inv[r][2] * moduleY[i];
+                pseudoInverse[r][2 * i + 1] = inv[r][1] + inv[r][2] * moduleX[i];
+            }
+        }
+    }
+
+    public int getModuleCount() {
+        return moduleX.length;
+    }
+
+    /**
+     * Robot velocity to module speeds and angles.
+     *
+     * @param vx            forward velocity.
+     * @param vy            leftward velocity.
+     * @param omega         turn rate, radians per second, CCW positive.
+     * @param currentAngles each module's current steer angle (wrapped or unwrapped).
+     * @param maxSpeed      the fastest any module can drive.
+     * @param speeds        receives each module's drive speed (negative when reversed).
+     * @param angles        receives each module's target steer angle, within 90 degrees of its current angle.
+     */
+    public void inverse(double vx, double vy, double omega, double[] currentAngles, double maxSpeed,
+                        double[] speeds, double[] angles) {
+        double fastest = 0;
+        for (int i = 0; i < moduleX.length; i++) {
+            double mx    = vx - omega * moduleY[i];
+            double my    = vy + omega * moduleX[i];
+            double speed = Math.hypot(mx, my);
+            double delta = (speed < 1e-9) ? 0 : normalize(Math.atan2(my, mx) - currentAngles[i]);
+
+            // Turning more than 90 degrees is never needed: point the other way and drive backwards.
+            if (delta > Math.PI / 2) {
+                delta -= Math.PI;
+                speed  = -speed;
+            } else if (delta < -Math.PI / 2) {
+                delta += Math.PI;
+                speed  = -speed;
+            }
+            speeds[i] = speed;
+            angles[i] = currentAngles[i] + delta;
+            fastest   = Math.max(fastest, Math.abs(speed));
+        }
+
+        if (fastest > maxSpeed) {
+            double scale = maxSpeed / fastest;
+            for (int i = 0; i < moduleX.length; i++) {
+                speeds[i] *= scale;
+            }
+        }
+    }
+
+    /**
+     * Module speeds and angles to robot velocity.
+     *
+     * @param speeds each module's drive speed (or distance moved).
+     * @param angles each module's steer angle.
+     * @param robot  receives {vx, vy, omega} (or the robot's displacement and turn, for distances).
+     */
+    public void forward(double[] speeds, double[] angles, double[] robot) {
+        double vx = 0, vy = 0, omega = 0;
+        for (int i = 0; i < moduleX.length; i++) {
+            double mx = speeds[i] * Math.cos(angles[i]);
+            double my = speeds[i] * Math.sin(angles[i]);
+            vx    += pseudoInverse[0][2 * i] * mx + pseudoInverse[0][2 * i + 1] * my;
+            vy    += pseudoInverse[1][2 * i] * mx + pseudoInverse[1][2 * i + 1] * my;
+            omega += pseudoInverse[2][2 * i] * mx + pseudoInverse[2][2 * i + 1] * my;
+        }
+        robot[0] = vx;
+        robot[1] = vy;
+        robot[2] = omega;
+    }
+
+    private static double normalize(double radians) {
+        return Math.atan2(Math.sin(radians), Math.cos(radians));
+    }
+
+    private static double[][] invert3(double[][] m) {
+        double a = m[0][0], b = m[0][1], c = m[0][2];
+        double d = m[1][0], e = m[1][1], f = m[1][2];
+        double g = m[2][0], h = m[2][1], k = m[2][2];
+        double det = a * (e * k - f * h) - b * (d * k - f * g) + c * (d * h - e * g);
+        if (Math.abs(det) < 1e-12) {
+            throw new IllegalArgumentException("module positions don't determine the robot's rotation");
+        }
+        return new double[][] {
+                {(e * k - f * h) / det, (c * h - b * k) / det, (b * f - c * e) / det},
+                {(f * g - d * k) / det, (a * k - c * g) / det, (c * d - a * f) / det},
+                {(d * h - e * g) / det, (b * g - a * h) / det, (a * e - b * d) / det},
+        };
+    }
+}
@@ -0,0 +1,97 @@
+package org.firstinspires.ftc.teamcode.control;
+
+import com.qualcomm.robotcore.hardware.DcMotor;
+import com.qualcomm.robotcore.util.Range;
+
+import org.firstinspires.ftc.teamcode.command.Command;
+import org.firstinspires.ftc.teamcode.command.Subsystem;
+
+import java.util.function.DoubleSupplier;
+
+/*
+ * RobotAutoDriveByGyro_Linear's turnToHeading() and holdHeading() as a Command, for a tank drive.
+ *
+ * Each pass, the heading error is normalized to +/- 180 degrees, multiplied by the turn gain and clipped to the
+ * maximum turn speed, and the robot pivots by that much, exactly as in the sample.
+ * With a hold time of 0 the command finishes as soon as the error is within the threshold (turnToHeading()).
+ * Otherwise it keeps correcting for the hold time, measured from the start (holdHeading()).
+ *
+ * The heading comes from a supplier, in degrees, so it can be an ImuSampler's non-blocking
+ * getHeading(AngleUnit.DEGREES) on the robot, or a simulated heading.
+ */
+public class TurnToHeadingCommand extends Command {
+
+    private final DcMotor        leftDrive;
+    private final DcMotor        rightDrive;
+    private final DoubleSupplier headingDegrees;
+    private final double         targetHeading;
+    private final double         maxTurnSpeed;
+    private final double         holdSeconds;
+
+    private double turnGain  = 0.02;     // The sample's P_TURN_GAIN.
+    private double threshold = 1.0;      // The sample's HEADING_THRESHOLD, in degrees.
+
+    private long   startNanos;
+    private double headingError;
+
+    /**
+     * @param leftDrive      left drive motor.
+     * @param rightDrive     right drive motor.
+     * @param headingDegrees the robot's heading in degrees, CCW positive.
+     * @param heading        the heading to turn to, in degrees.
+     * @param maxTurnSpeed   the largest turning power (0 to 1).
+     * @param holdSeconds    0 to finish on reaching the heading, or how long to hold it.
+     * @param driveBase      the subsystem that stands for the drive motors.
+     */
+    public TurnToHeadingCommand(DcMotor leftDrive, DcMotor rightDrive, DoubleSupplier headingDegrees,
+                                double heading, double maxTurnSpeed, double holdSeconds, Subsystem driveBase) {
+        super(driveBase);
+        this.leftDrive      = leftDrive;
+        this.rightDrive     = rightDrive;
+        this.headingDegrees = headingDegrees;
+        this.targetHeading  = heading;
+        this.maxTurnSpeed   = maxTurnSpeed;
+        this.holdSeconds    = holdSeconds;
+        withName((holdSeconds > 0 ? "Hold " : "Turn ") + heading);
+    }
+
+    /** Set the turn gain (power per degree of error) and the heading threshold (degrees). */
+    public TurnToHeadingCommand setGain(double turnGain, double threshold) {
+        this.turnGain  = turnGain;
+        this.threshold = threshold;
+        return this;
+    }
+
+    @Override
+    protected void start(long nowNanos) {
+        startNanos = nowNanos;
+    }
+
+    @Override
+    protected boolean update(long nowNanos) {
+        headingError = targetHeading - headingDegrees.getAsDouble();
+        while (headingError > 180)  headingError -= 360;
+        while (headingError <= -180) headingError += 360;
+
+        boolean done = (holdSeconds > 0) ? (nowNanos - startNanos) / 1e9 >= holdSeconds
+                                         : Math.abs(headingError) <= threshold;
+        if (done) {
+            return false;
+        }
+        double turn = Range.clip(Range.clip(headingError * turnGain, -1, 1), -maxTurnSpeed, maxTurnSpeed);
+        leftDrive.setPower(-turn);
+        rightDrive.setPower(turn);
+        return true;
+    }
+
+    @Override
+    protected void end(boolean interrupted) {
+        leftDrive.setPower(0);
+        rightDrive.setPower(0);
+    }
+
+    /** @return the heading error at the last update, in degrees. */
+    public double getHeadingError() {
+        return headingError;
+    }
+}
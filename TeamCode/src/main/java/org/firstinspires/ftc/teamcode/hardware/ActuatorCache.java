@@ -0,0 +1,186 @@
+package org.firstinspires.ftc.teamcode.hardware;
+
+import com.qualcomm.robotcore.hardware.DcMotorEx;
+import com.qualcomm.robotcore.hardware.Servo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Holds back motor power and servo position writes until the end of the control cycle, and only sends the ones
+ * that change something.
+ *
+ * Every setPower() and setPosition() is a separate command to the hub, of a millisecond or more, even when the value
+ * is the one the hub already has.  The samples re-send every actuator every loop: RobotHardware.driveRobot(),
+ * setArmPower() and setHandPositions(), ConceptScanServo, ConceptRampMotorSpeed.  With the cache, the motors and
+ * servos are wrapped once during init, the loop sets them as before, and flush() at the end of the loop sends each
+ * actuator's latest value if it needs sending:
+ *
+ *     ActuatorCache actuators = new ActuatorCache();
+ *     DcMotorEx leftDrive = actuators.motor(hardwareMap.get(DcMotorEx.class, "left_drive"));
+ *     Servo     leftHand  = actuators.servo(hardwareMap.get(Servo.class, "left_hand"));
+ *     while (opModeIsActive()) {
+ *         ...
+ *         leftDrive.setPower(left);
+ *         leftHand.setPosition(MID_SERVO + handOffset);
+ *         actuators.flush();
+ *     }
+ *
+ * flush() sends a value when:
+ *  - nothing has been sent yet, or
+ *  - it is a motor power of exactly 0 (a stop is never held back), or
+ *  - the minimum resend interval has passed since the last send, and either
+ *     - it differs from the value last sent by more than the epsilon, or
+ *     - it differs at all, and the maximum hold time has passed since the last send, so that a slow drift smaller
+ *       than the epsilon still reaches the hardware.
+ * A value that isn't sent stays pending, and is looked at again at the next flush().  Several sets in one cycle, or
+ * in the cycles of a minimum resend interval, coalesce into one write of the last value.  The minimum resend
+ * interval is 0 by default: raise it to cap how often a constantly changing actuator (eg: a drive motor following
+ * a profile) is written, at the cost of that much extra lag.
+ *
+ * Everything else (modes, target positions, velocities, zero power behavior) is written straight through, but only
+ * when it changes; a pending power is flushed first, so the hub sees the writes in the order they were made.  That
+ * flush is judged at the time given to the last flush(), so the whole loop sees one time, as the commands run by
+ * CommandScheduler.run(nowNanos) do; a value that isn't due then stays pending.
+ * Each wrapper counts the commands it sent and the ones it suppressed, so the saving can be shown on telemetry.
+ * The cache is not thread safe: use it from the loop thread.
+ */
+public class ActuatorCache {
+
+    private final List<CachedMotor> motors = new ArrayList<>();
+    private final List<CachedServo> servos = new ArrayList<>();
+
+    private double powerEpsilon;
+    private double positionEpsilon;
+    private long   minResendNanos;
+    private long   maxHoldNanos;
+    private long   flushNanos = 0;      // The time given to the last flush().
+
+    /**
+     * A cache with a power epsilon of 0.005, a servo position epsilon of 0.001, no minimum resend interval and a
+     * maximum hold time of 100 mS.
+     */
+    public ActuatorCache() {
+        this(0.005, 0.001, 0, 100);
+    }
+
+    /**
+     * @param powerEpsilon    motor power changes smaller than this are held back.
+     * @param positionEpsilon servo position changes smaller than this are held back.
+     * @param minResendMs     shortest time between two writes of an actuator's value, other than a stop, in mS.
+     * @param maxHoldMs       how long a change smaller than the epsilon may be held back, in milliseconds.
+     */
+    public ActuatorCache(double powerEpsilon, double positionEpsilon, long minResendMs, long maxHoldMs) {
+        setEpsilon(powerEpsilon, positionEpsilon);
+        setMinResendInterval(minResendMs);
+        setMaxHold(maxHoldMs);
+    }
+
+    /** Set the smallest power and servo position changes that are sent straight away. */
+    public void setEpsilon(double powerEpsilon, double positionEpsilon) {
+        this.powerEpsilon    = powerEpsilon;
+        this.positionEpsilon = positionEpsilon;
+    }
+
+    /** Set the shortest time between two writes of an actuator's value, other than a stop, in milliseconds. */
+    public void setMinResendInterval(long milliseconds) {
+        this.minResendNanos = milliseconds * 1_000_000L;
+    }
+
+    /** Set how long a change smaller than the epsilon may be held back, in milliseconds. */
+    public void setMaxHold(long milliseconds) {
+        this.maxHoldNanos = milliseconds * 1_000_000L;
+    }
+
+    /**
+     * Wrap a motor.  Use the returned motor in place of the original from now on.
+     */
+    public CachedMotor motor(DcMotorEx motor) {
+        CachedMotor cached = new CachedMotor(motor, this);
+        motors.add(cached);
+        return cached;
+    }
+
+    /**
+     * Wrap a servo.  Use the returned servo in place of the original from now on.
+     */
+    public CachedServo servo(Servo servo) {
+        CachedServo cached = new CachedServo(servo, this);
+        servos.add(cached);
+        return cached;
+    }
+
+    /**
+     * Send every pending write that needs sending.  Call this once per loop, after the last actuator is set.
+     */
+    public void flush() {
+        flush(System.nanoTime());
+    }
+
+    /**
+     * Send every pending write that needs sending.
+     *
+     * @param nowNanos System.nanoTime(), or a simulated time.
+     */
+    public void flush(long nowNanos) {
+        flushNanos = nowNanos;
+        for (int i = 0; i < motors.size(); i++) {
+            motors.get(i).flush(nowNanos);
+        }
+        for (int i = 0; i < servos.size(); i++) {
+            servos.get(i).flush(nowNanos);
+        }
+    }
+
+    // Whether a pending value should be sent now.
+    boolean due(double requested, double sent, boolean everSent, long sentNanos, long nowNanos, double epsilon,
+                boolean exactZero) {
+        if (!everSent) {
+            return true;
+        }
+        if (requested == sent) {
+            return false;
+        }
+        if (exactZero && requested == 0) {
+            return true;
+        }
+        long held = nowNanos - sentNanos;
+        return held >= minResendNanos && (Math.abs(requested - sent) > epsilon || held >= maxHoldNanos);
+    }
+
+    // The time a write that bypasses the cache flushes a pending value at.
+    long getFlushNanos()        { return flushNanos; }
+
+    double getPowerEpsilon()    { return powerEpsilon; }
+    double getPositionEpsilon() { return positionEpsilon; }
+
+    /** @return the wrapped motors.  The list must not be modified. */
+    public List<CachedMotor> getMotors() { return motors; }
+
+    /** @return the wrapped servos.  The list must not be modified. */
+    public List<CachedServo> getServos() { return servos; }
+
+    /** @return commands sent to the hardware, by all of the wrappers. */
+    public long getCommandsSent() {
+        long sent = 0;
+        for (CachedMotor motor : motors) {
+            sent += motor.getCommandsSent();
+        }
+        for (CachedServo servo : servos) {
+            sent += servo.getCommandsSent();
+        }
+        return sent;
+    }
+
+    /** @return commands that were not sent, because they changed nothing or were coalesced, by all of the wrappers. */
+    public long getCommandsSuppressed() {
+        long suppressed = 0;
+        for (CachedMotor motor : motors) {
+            suppressed += motor.getCommandsSuppressed();
+        }
+        for (CachedServo servo : servos) {
+            suppressed += servo.getCommandsSuppressed();
+        }
+        return suppressed;
+    }
+}
@@ -0,0 +1,41 @@
+package org.firstinspires.ftc.teamcode.hardware;
+
+import com.qualcomm.hardware.lynx.LynxModule;
+
+/*
+ * The small part of a LynxModule (Control Hub or Expansion Hub) that the bulk-read layer relies on.
+ *
+ * LynxModule itself can't be constructed off-robot, so HardwareSnapshot talks to the hubs through this
+ * interface instead.  On the robot each hub is wrapped with BulkReadHub.of(module); on a desktop JVM
+ * the unit tests supply FakeLynxModule, which counts the bulk-read transactions it would have issued.
+ */
+public interface BulkReadHub {
+
+    /**
+     * Switch the hub to MANUAL bulk caching, so cached values are only refreshed after clearBulkCache().
+     */
+    void setManualCaching();
+
+    /**
+     * Discard the cached bulk data.  The next encoder, velocity or digital read on this hub
+     * will perform exactly one bulk-read transaction.
+     */
+    void clearBulkCache();
+
+    /**
+     * Wrap a real hub so it can be handed to HardwareSnapshot.
+     */
+    static BulkReadHub of(final LynxModule module) {
+        return new BulkReadHub() {
+            @Override
+            public void setManualCaching() {
+                module.setBulkCachingMode(LynxModule.BulkCachingMode.MANUAL);
+            }
+
+            @Override
+            public void clearBulkCache() {
+                module.clearBulkCache();
+            }
+        };
+    }
+}
@@ -0,0 +1,325 @@
+package org.firstinspires.ftc.teamcode.hardware;
+
+import com.qualcomm.robotcore.hardware.DcMotorController;
+import com.qualcomm.robotcore.hardware.DcMotorEx;
+import com.qualcomm.robotcore.hardware.PIDCoefficients;
+import com.qualcomm.robotcore.hardware.PIDFCoefficients;
+import com.qualcomm.robotcore.hardware.configuration.typecontainers.MotorConfigurationType;
+import com.qualcomm.robotcore.util.Range;
+
+import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
+import org.firstinspires.ftc.robotcore.external.navigation.CurrentUnit;
+
+/*
+ * A DcMotorEx that holds setPower() until its ActuatorCache is flushed, and drops writes that change nothing.
+ * Create it with ActuatorCache.motor(); the rules for what is sent are described there.
+ *
+ * getPower() returns the power last set, whether or not it has been sent yet.  Reads (position, velocity, current,
+ * isBusy) go straight to the motor.  Mode, target position, velocity and zero power behavior writes go straight to
+ * the motor too, but only if they change the value last written.  Anything that can change what the hub does with a
+ * power (a mode change, a direction change, setVelocity()) makes the next flush send the power again.
+ */
+public class CachedMotor implements DcMotorEx {
+
+    private final DcMotorEx     motor;
+    private final ActuatorCache cache;
+
+    private double  power         = 0;       // Last set.
+    private double  sentPower     = 0;       // Last sent.
+    private boolean powerKnown    = false;   // The hub has sentPower.
+    private boolean powerPending  = false;
+    private int     powerRequests = 0;       // setPower() calls since the last power was sent.
+    private long    sentNanos     = 0;
+
+    private RunMode           mode              = null;     // null until written through this wrapper.
+    private ZeroPowerBehavior zeroPowerBehavior = null;
+    private int               targetPosition    = 0;
+    private boolean           targetKnown       = false;
+    private double            velocity          = 0;
+    private boolean           velocityKnown     = false;
+
+    private long sent       = 0;
+    private long suppressed = 0;
+
+    CachedMotor(DcMotorEx motor, ActuatorCache cache) {
+        this.motor = motor;
+        this.cache = cache;
+    }
+
+    /** @return the motor this wraps. */
+    public DcMotorEx getMotor()            { return motor; }
+
+    /** @return commands sent to the motor. */
+    public long getCommandsSent()          { return sent; }
+
+    /** @return writes that were not sent, because they changed nothing or were coalesced. */
+    public long getCommandsSuppressed()    { return suppressed; }
+
+    /** @return true if a power has been set that hasn't been sent yet. */
+    public boolean isPending()             { return powerPending; }
+
+    // Send the pending power, if it's due.
+    void flush(long nowNanos) {
+        if (!powerPending) {
+            return;
+        }
+        if (cache.due(power, sentPower, powerKnown, sentNanos, nowNanos, cache.getPowerEpsilon(), true)) {
+            motor.setPower(power);
+            sent++;
+            suppressed   += Math.max(0, powerRequests - 1);     // Coalesced into this write.
+            powerRequests = 0;
+            sentPower     = power;
+            powerKnown    = true;
+            velocityKnown = false;
+            sentNanos     = nowNanos;
+        }
+        powerPending = (power != sentPower) || !powerKnown;
+        if (!powerPending) {
+            suppressed   += powerRequests;                      // Back to the value the hub already has.
+            powerRequests = 0;
+        }
+    }
+
+    // Keep the hub's view of the writes in order: a pending power goes before a write that bypasses the cache.
+    private void beforeWrite(long nowNanos) {
+        flush(nowNanos);
+    }
+
+    private void written() {
+        sent++;
+    }
+
+    // The hub may now do something different with the same power: send it again at the next flush.
+    private void forgetPower() {
+        powerKnown    = false;
+        velocityKnown = false;
+        powerPending  = true;
+    }
+
+    // --------------------------------------------------------------------------------------
+    // Cached writes
+    // --------------------------------------------------------------------------------------
+
+    @Override
+    public void setPower(double power) {
+        powerRequests++;
+        this.power   = Range.clip(power, -1.0, 1.0);
+        powerPending = true;
+    }
+
+    @Override
+    public double getPower() {
+        return power;
+    }
+
+    @Override
+    public void setMode(RunMode mode) {
+        if (mode == this.mode && mode != RunMode.STOP_AND_RESET_ENCODER) {
+            suppressed++;
+            return;
+        }
+        beforeWrite(cache.getFlushNanos());
+        motor.setMode(mode);
+        written();
+        this.mode = mode;
+        if (mode == RunMode.STOP_AND_RESET_ENCODER) {
+            power = 0;                      // The hub stops the motor.
+        }
+        forgetPower();
+    }
+
+    @Override
+    public RunMode getMode() {
+        return motor.getMode();
+    }
+
+    @Override
+    public void setTargetPosition(int position) {
+        if (targetKnown && position == targetPosition) {
+            suppressed++;
+            return;
+        }
+        beforeWrite(cache.getFlushNanos());
+        motor.setTargetPosition(position);
+        written();
+        targetPosition = position;
+        targetKnown    = true;
+    }
+
+    @Override
+    public int getTargetPosition() {
+        return motor.getTargetPosition();
+    }
+
+    @Override
+    public void setVelocity(double angularRate) {
+        if (velocityKnown && angularRate == velocity) {
+            suppressed++;
+            return;
+        }
+        beforeWrite(cache.getFlushNanos());
+        motor.setVelocity(angularRate);
+        written();
+        forgetPower();
+        powerPending  = false;              // The velocity replaces the power until the next setPower().
+        powerRequests = 0;
+        velocity      = angularRate;
+        velocityKnown = true;
+    }
+
+    @Override
+    public void setVelocity(double angularRate, AngleUnit unit) {
+        beforeWrite(cache.getFlushNanos());
+        motor.setVelocity(angularRate, unit);
+        written();
+        forgetPower();
+        powerPending  = false;
+        powerRequests = 0;
+    }
+
+    @Override
+    public void setZeroPowerBehavior(ZeroPowerBehavior zeroPowerBehavior) {
+        if (zeroPowerBehavior == this.zeroPowerBehavior) {
+            suppressed++;
+            return;
+        }
+        beforeWrite(cache.getFlushNanos());
+        motor.setZeroPowerBehavior(zeroPowerBehavior);
+        written();
+        this.zeroPowerBehavior = zeroPowerBehavior;
+    }
+
+    @Override
+    public ZeroPowerBehavior getZeroPowerBehavior() {
+        return motor.getZeroPowerBehavior();
+    }
+
+    @Override
+    public void setDirection(Direction direction) {
+        if (direction != motor.getDirection()) {
+            motor.setDirection(direction);
+            forgetPower();
+            targetKnown = false;
+        }
+    }
+
+    @Override
+    public Direction getDirection() {
+        return motor.getDirection();
+    }
+
+    // --------------------------------------------------------------------------------------
+    // Other writes, passed straight through
+    // --------------------------------------------------------------------------------------
+
+    @Override
+    @Deprecated
+    public void setPowerFloat() {
+        beforeWrite(cache.getFlushNanos());
+        motor.setPowerFloat();
+        written();
+        power = 0;
+        forgetPower();
+    }
+
+    @Override
+    public void setMotorEnable() {
+        beforeWrite(cache.getFlushNanos());
+        motor.setMotorEnable();
+        written();
+    }
+
+    @Override
+    public void setMotorDisable() {
+        beforeWrite(cache.getFlushNanos());
+        motor.setMotorDisable();
+        written();
+    }
+
+    @Override
+    @Deprecated
+    public void setPIDCoefficients(RunMode mode, PIDCoefficients pidCoefficients) {
+        beforeWrite(cache.getFlushNanos());
+        motor.setPIDCoefficients(mode, pidCoefficients);
+        written();
+    }
+
+    @Override
+    public void setPIDFCoefficients(RunMode mode, PIDFCoefficients pidfCoefficients) {
+        beforeWrite(cache.getFlushNanos());
+        motor.setPIDFCoefficients(mode, pidfCoefficients);
+        written();
+    }
+
+    @Override
+    public void setVelocityPIDFCoefficients(double p, double i, double d, double f) {
+        beforeWrite(cache.getFlushNanos());
+        motor.setVelocityPIDFCoefficients(p, i, d, f);
+        written();
+    }
+
+    @Override
+    public void setPositionPIDFCoefficients(double p) {
+        beforeWrite(cache.getFlushNanos());
+        motor.setPositionPIDFCoefficients(p);
+        written();
+    }
+
+    @Override
+    public void setTargetPositionTolerance(int tolerance) {
+        beforeWrite(cache.getFlushNanos());
+        motor.setTargetPositionTolerance(tolerance);
+        written();
+    }
+
+    @Override
+    public void setCurrentAlert(double current, CurrentUnit unit) {
+        beforeWrite(cache.getFlushNanos());
+        motor.setCurrentAlert(current, unit);
+        written();
+    }
+
+    @Override
+    public void setMotorType(MotorConfigurationType motorType) {
+        motor.setMotorType(motorType);
+    }
+
+    @Override
+    public void resetDeviceConfigurationForOpMode() {
+        motor.resetDeviceConfigurationForOpMode();
+        mode              = null;
+        zeroPowerBehavior = null;
+        targetKnown       = false;
+        forgetPower();
+    }
+
+    @Override
+    public void close() {
+        motor.close();
+    }
+
+    // --------------------------------------------------------------------------------------
+    // Reads, passed straight through
+    // --------------------------------------------------------------------------------------
+
+    @Override public boolean isMotorEnabled()                           { return motor.isMotorEnabled(); }
+    @Override public double getVelocity()                               { return motor.getVelocity(); }
+    @Override public double getVelocity(AngleUnit unit)                 { return motor.getVelocity(unit); }
+    @Override @Deprecated
+    public PIDCoefficients getPIDCoefficients(RunMode mode)             { return motor.getPIDCoefficients(mode); }
+    @Override public PIDFCoefficients getPIDFCoefficients(RunMode mode) { return motor.getPIDFCoefficients(mode); }
+    @Override public int getTargetPositionTolerance()                   { return motor.getTargetPositionTolerance(); }
+    @Override public double getCurrent(CurrentUnit unit)                { return motor.getCurrent(unit); }
+    @Override public double getCurrentAlert(CurrentUnit unit)           { return motor.getCurrentAlert(unit); }
+    @Override public boolean isOverCurrent()                            { return motor.isOverCurrent(); }
+    @Override public MotorConfigurationType getMotorType()              { return motor.getMotorType(); }
+    @Override public DcMotorController getController()                  { return motor.getController(); }
+    @Override public int getPortNumber()                                { return motor.getPortNumber(); }
+    @Override public boolean getPowerFloat()                            { return motor.getPowerFloat(); }
+    @Override public boolean isBusy()                                   { return motor.isBusy(); }
+    @Override public int getCurrentPosition()                           { return motor.getCurrentPosition(); }
+    @Override public Manufacturer getManufacturer()                     { return motor.getManufacturer(); }
+    @Override public String getDeviceName()                             { return motor.getDeviceName(); }
+    @Override public String getConnectionInfo()                         { return motor.getConnectionInfo(); }
+    @Override public int getVersion()                                   { return motor.getVersion(); }
+}
@@ -0,0 +1,109 @@
+package org.firstinspires.ftc.teamcode.hardware;
+
+import com.qualcomm.robotcore.hardware.Servo;
+import com.qualcomm.robotcore.hardware.ServoController;
+import com.qualcomm.robotcore.util.Range;
+
+/*
+ * A Servo that holds setPosition() until its ActuatorCache is flushed, and drops writes that change nothing.
+ * Create it with ActuatorCache.servo(); the rules for what is sent are described there.
+ *
+ * getPosition() returns the position last set, whether or not it has been sent yet.  A direction or range change
+ * alters what a position means, so it makes the next flush send the position again.
+ */
+public class CachedServo implements Servo {
+
+    private final Servo         servo;
+    private final ActuatorCache cache;
+
+    private double  position         = 0;       // Last set.
+    private double  sentPosition     = 0;       // Last sent.
+    private boolean positionKnown    = false;   // The servo has sentPosition.
+    private boolean positionPending  = false;
+    private int     positionRequests = 0;       // setPosition() calls since the last position was sent.
+    private long    sentNanos        = 0;
+
+    private long sent       = 0;
+    private long suppressed = 0;
+
+    CachedServo(Servo servo, ActuatorCache cache) {
+        this.servo = servo;
+        this.cache = cache;
+    }
+
+    /** @return the servo this wraps. */
+    public Servo getServo()                { return servo; }
+
+    /** @return commands sent to the servo. */
+    public long getCommandsSent()          { return sent; }
+
+    /** @return writes that were not sent, because they changed nothing or were coalesced. */
+    public long getCommandsSuppressed()    { return suppressed; }
+
+    /** @return true if a position has been set that hasn't been sent yet. */
+    public boolean isPending()             { return positionPending; }
+
+    // Send the pending position, if it's due.
+    void flush(long nowNanos) {
+        if (!positionPending) {
+            return;
+        }
+        if (cache.due(position, sentPosition, positionKnown, sentNanos, nowNanos, cache.getPositionEpsilon(),
+                      false)) {
+            servo.setPosition(position);
+            sent++;
+            suppressed      += Math.max(0, positionRequests - 1);     // Coalesced into this write.
+            positionRequests = 0;
+            sentPosition     = position;
+            positionKnown    = true;
+            sentNanos        = nowNanos;
+        }
+        positionPending = (position != sentPosition) || !positionKnown;
+        if (!positionPending) {
+            suppressed      += positionRequests;                      // Back to the position already sent.
+            positionRequests = 0;
+        }
+    }
+
+    // The same position now means something else: send it again at the next flush.
+    private void forgetPosition() {
+        positionKnown   = false;
+        positionPending = true;
+    }
+
+    @Override
+    public void setPosition(double position) {
+        positionRequests++;
+        this.position   = Range.clip(position, MIN_POSITION, MAX_POSITION);
+        positionPending = true;
+    }
+
+    @Override
+    public double getPosition() {
+        return position;
+    }
+
+    @Override
+    public void setDirection(Direction direction) {
+        if (direction != servo.getDirection()) {
+            servo.setDirection(direction);
+            forgetPosition();
+        }
+    }
+
+    @Override
+    public void scaleRange(double min, double max) {
+        servo.scaleRange(min, max);
+        forgetPosition();
+    }
+
+    @Override public Direction getDirection()                  { return servo.getDirection(); }
+    @Override public ServoController getController()           { return servo.getController(); }
+    @Override public int getPortNumber()                       { return servo.getPortNumber(); }
+    @Override public Manufacturer getManufacturer()            { return servo.getManufacturer(); }
+    @Override public String getDeviceName()                    { return servo.getDeviceName(); }
+    @Override public String getConnectionInfo()                { return servo.getConnectionInfo(); }
+    @Override public int getVersion()                          { return servo.getVersion(); }
+    @Override public void resetDeviceConfigurationForOpMode()  { servo.resetDeviceConfigurationForOpMode(); forgetPosition(); }
+    @Override public void close()                              { servo.close(); }
+}
@@ -0,0 +1,191 @@
+package org.firstinspires.ftc.teamcode.hardware;
+
+import com.qualcomm.robotcore.hardware.NormalizedRGBA;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Classifies color sensor readings into named colors with a precomputed lookup table.
+ *
+ * SensorColor converts every reading to HSV (Color.colorToHSV()) before deciding what it is looking at.  Here the
+ * classes are still described in HSV terms (a hue range, a minimum saturation and a minimum value), but build()
+ * evaluates them once, during init, for every quantized RGB cell, and stores the answer in a byte table.  After
+ * that, classify() is three multiplies, three shifts and one array read: no floating-point HSV work per sample.
+ *
+ * Readings are normalized colors (getNormalizedColors(), after the gain), divided by the full-scale value passed
+ * to build(), then quantized to 5 bits per channel by default (32768 cells).  Classes are checked in the order
+ * they were added, and the first match wins; a reading that matches none is NONE.
+ *
+ *     ColorClassifier classifier = new ColorClassifier();
+ *     int red    = classifier.addClass("Red",    340,  20, 0.5f, 0.1f);    // Hue ranges may wrap through 0.
+ *     int yellow = classifier.addClass("Yellow",  40,  80, 0.5f, 0.1f);
+ *     int blue   = classifier.addClass("Blue",   200, 250, 0.5f, 0.1f);
+ *     classifier.build(1.0f);
+ *     ...
+ *     int seen = classifier.classify(colorSensor.getNormalizedColors());
+ */
+public class ColorClassifier {
+
+    public static final int NONE = 0;
+
+    private static class ColorClass {
+        final String name;
+        final float  hueMin, hueMax, minSaturation, minValue;
+
+        ColorClass(String name, float hueMin, float hueMax, float minSaturation, float minValue) {
+            this.name          = name;
+            this.hueMin        = hueMin;
+            this.hueMax        = hueMax;
+            this.minSaturation = minSaturation;
+            this.minValue      = minValue;
+        }
+
+        boolean matches(float[] hsv) {
+            boolean hue = (hueMin <= hueMax) ? (hsv[0] >= hueMin && hsv[0] <= hueMax)
+                                             : (hsv[0] >= hueMin || hsv[0] <= hueMax);
+            return hue && hsv[1] >= minSaturation && hsv[2] >= minValue;
+        }
+    }
+
+    private final int              bits;
+    private final int              levels;
+    private final List<ColorClass> classes = new ArrayList<>();
+    private final float[]          hsv     = new float[3];
+
+    private byte[] table     = null;
+    private float  fullScale = 1;
+    private float  scale;           // levels / full scale.
+
+    /** A classifier with 5 bits per channel. */
+    public ColorClassifier() {
+        this(5);
+    }
+
+    /**
+     * @param bitsPerChannel 4 to 7.  Each extra bit makes the table 8 times larger (5 bits is 32 KB, 7 is 2 MB).
+     */
+    public ColorClassifier(int bitsPerChannel) {
+        if (bitsPerChannel < 4 || bitsPerChannel > 7) {
+            throw new IllegalArgumentException("bitsPerChannel must be 4 to 7");
+        }
+        this.bits   = bitsPerChannel;
+        this.levels = 1 << bitsPerChannel;
+        classes.add(new ColorClass("None", 0, 0, 2, 2));     // Matches nothing: index 0 is NONE.
+    }
+
+    /**
+     * Add a color class.  Call this before build().
+     *
+     * @param name          name for telemetry.
+     * @param hueMin        start of the hue range, in degrees (0 to 360).
+     * @param hueMax        end of the hue range.  If less than hueMin, the range wraps through 0 (as red does).
+     * @param minSaturation 0 to 1.
+     * @param minValue      0 to 1, as a fraction of full scale.  Below this, the sensor is seeing nothing.
+     * @return the class's index, as returned by classify().
+     */
+    public int addClass(String name, float hueMin, float hueMax, float minSaturation, float minValue) {
+        if (classes.size() > 127) {
+            throw new IllegalStateException("too many classes");
+        }
+        classes.add(new ColorClass(name, hueMin, hueMax, minSaturation, minValue));
+        table = null;
+        return classes.size() - 1;
+    }
+
+    /**
+     * Build the lookup table.  Takes a few milliseconds at 5 bits, so call it during init.
+     *
+     * @param fullScale the normalized reading that counts as full brightness; brighter readings are clipped to it.
+     *                  1.0 uses the sensor's whole range, but a lower value gives dim colors more resolution.
+     */
+    public void build(float fullScale) {
+        this.fullScale = fullScale;
+        this.scale     = levels / fullScale;
+        byte[] cells = new byte[levels * levels * levels];
+        for (int r = 0; r < levels; r++) {
+            for (int g = 0; g < levels; g++) {
+                for (int b = 0; b < levels; b++) {
+                    // Classify the center of each cell.
+                    cells[(r << (2 * bits)) | (g << bits) | b] = (byte) classifyFraction(
+                            (r + 0.5f) / levels, (g + 0.5f) / levels, (b + 0.5f) / levels);
+                }
+            }
+        }
+        table = cells;
+    }
+
+    /**
+     * Classify a reading with the lookup table.
+     *
+     * @param red   normalized red, as in NormalizedRGBA.
+     * @param green normalized green.
+     * @param blue  normalized blue.
+     * @return the class index, or NONE.
+     */
+    public int classify(float red, float green, float blue) {
+        int max = levels - 1;
+        int r = Math.min(max, Math.max(0, (int) (red * scale)));
+        int g = Math.min(max, Math.max(0, (int) (green * scale)));
+        int b = Math.min(max, Math.max(0, (int) (blue * scale)));
+        return table[(r << (2 * bits)) | (g << bits) | b];
+    }
+
+    /** Classify a reading with the lookup table. */
+    public int classify(NormalizedRGBA colors) {
+        return classify(colors.red, colors.green, colors.blue);
+    }
+
+    /**
+     * Classify a reading by converting it to HSV, without the table: the per-sample work that the table replaces.
+     * It is also useful for checking the table's quantization.
+     */
+    public int classifyExact(float red, float green, float blue) {
+        return classifyFraction(Math.min(1, red / fullScale), Math.min(1, green / fullScale),
+                                Math.min(1, blue / fullScale));
+    }
+
+    // Classify a reading scaled to 0..1 of full scale.
+    private int classifyFraction(float red, float green, float blue) {
+        toHsv(red, green, blue, hsv);
+        for (int i = 1; i < classes.size(); i++) {
+            if (classes.get(i).matches(hsv)) {
+                return i;
+            }
+        }
+        return NONE;
+    }
+
+    /** @return the name of a class index. */
+    public String getName(int colorClass) {
+        return classes.get(colorClass).name;
+    }
+
+    /** @return number of classes, including NONE. */
+    public int getClassCount() {
+        return classes.size();
+    }
+
+    /**
+     * RGB (each 0 to 1) to HSV, as Color.RGBToHSV() does: hue 0 to 360, saturation and value 0 to 1.
+     */
+    static void toHsv(float red, float green, float blue, float[] hsv) {
+        float max   = Math.max(red, Math.max(green, blue));
+        float min   = Math.min(red, Math.min(green, blue));
+        float range = max - min;
+
+        float hue;
+        if (range == 0) {
+            hue = 0;
+        } else if (max == red) {
+            hue = 60 * (((green - blue) / range) % 6);
+        } else if (max == green) {
+            hue = 60 * ((blue - red) / range + 2);
+        } else {
+            hue = 60 * ((red - green) / range + 4);
+        }
+        hsv[0] = (hue < 0) ? hue + 360 : hue;
+        hsv[1] = (max == 0) ? 0 : range / max;
+        hsv[2] = max;
+    }
+}
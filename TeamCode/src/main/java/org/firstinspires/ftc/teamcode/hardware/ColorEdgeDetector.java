@@ -0,0 +1,312 @@
+package org.firstinspires.ftc.teamcode.hardware;
+
+import com.qualcomm.robotcore.hardware.NormalizedColorSensor;
+import com.qualcomm.robotcore.hardware.NormalizedRGBA;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * Samples a color sensor at a high rate, and reports the time at which the robot crossed a line or color edge,
+ * more precisely than the sampling period.
+ *
+ * RobotAutoDriveToLine_Linear checks the light level once per loop, so all it knows is that the line was crossed
+ * at some point during the last loop: at higher approach speeds, that uncertainty becomes inches.  This detector
+ * reads the sensor on its own thread (or from addSample(), if the OpMode prefers to feed it), stamps each reading
+ * with System.nanoTime() at the middle of the read, and looks for two kinds of edge:
+ *
+ *  Level edges    The light level (alpha) crossing a threshold.  The crossing time is interpolated between the
+ *                 two readings on either side of the threshold, so a line 3 mS into a 10 mS gap is placed at 3 mS.
+ *                 A hysteresis band keeps noise near the threshold from producing extra edges: the edge is only
+ *                 reported once the level is clear of the band, but its time is still that of the crossing.
+ *  Class edges    The ColorClassifier class changing, eg: from NONE to Yellow as a game element arrives.  This is
+ *                 reported once the new class has been seen twice in a row, at the midpoint between the last
+ *                 reading of the old class and the first reading of the new one.
+ *
+ * Knowing when the edge was crossed, a drive can work out where it was at that moment, and stop an exact distance
+ * past it however late the loop noticed (see ConceptLineStopByEdge).
+ *
+ * The sensor only produces a new measurement every few milliseconds, so reading faster than that returns the same
+ * values again.  Those repeats still count: they show the level hadn't changed yet at that time, which narrows
+ * the interval that the edge is interpolated over.  getMeasurementRate() shows how often the values really change.
+ * Edges are published through latest-value slots (as AprilTagPublisher does), so they can be checked at any time,
+ * from any thread, without blocking.
+ */
+public class ColorEdgeDetector {
+
+    /**
+     * Where the detector gets readings from.  On the robot, use Source.of(colorSensor).
+     */
+    public interface Source {
+        /** Read normalized red, green, blue and alpha into rgba[0..3]. */
+        void read(float[] rgba);
+
+        static Source of(final NormalizedColorSensor sensor) {
+            return new Source() {
+                @Override
+                public void read(float[] rgba) {
+                    NormalizedRGBA colors = sensor.getNormalizedColors();
+                    rgba[0] = colors.red;
+                    rgba[1] = colors.green;
+                    rgba[2] = colors.blue;
+                    rgba[3] = colors.alpha;
+                }
+            };
+        }
+    }
+
+    /**
+     * One detected edge.  Immutable.
+     */
+    public static class Edge {
+        public enum Kind { NONE, RISING, FALLING, CLASS }
+
+        private final long sequence;
+        private final long nanos;
+        private final Kind kind;
+        private final int  fromClass;
+        private final int  toClass;
+
+        Edge(long sequence, long nanos, Kind kind, int fromClass, int toClass) {
+            this.sequence  = sequence;
+            this.nanos     = nanos;
+            this.kind      = kind;
+            this.fromClass = fromClass;
+            this.toClass   = toClass;
+        }
+
+        /** @return the edge number, counting from 1.  0 means no edge yet. */
+        public long getSequence()         { return sequence; }
+
+        /** @return estimated System.nanoTime() at which the sensor crossed the edge. */
+        public long getNanos()            { return nanos; }
+
+        public Kind getKind()             { return kind; }
+
+        /** @return for CLASS edges, the class before the edge. */
+        public int getFromClass()         { return fromClass; }
+
+        /** @return for CLASS edges, the class after the edge. */
+        public int getToClass()           { return toClass; }
+
+        /** @return how long ago the edge was crossed. */
+        public long getAgeNanos()         { return System.nanoTime() - nanos; }
+
+        /** @return true if this edge was detected after the other one. */
+        public boolean isNewerThan(Edge other) {
+            return sequence > other.sequence;
+        }
+    }
+
+    /** The edge returned before any edge has been detected. */
+    public static final Edge NONE = new Edge(0, 0, Edge.Kind.NONE, ColorClassifier.NONE, ColorClassifier.NONE);
+
+    private final Source          source;
+    private final ColorClassifier classifier;
+
+    private final AtomicReference<Edge> levelEdge = new AtomicReference<>(NONE);
+    private final AtomicReference<Edge> classEdge = new AtomicReference<>(NONE);
+
+    private float threshold  = 0.5f;
+    private float hysteresis = 0.05f;
+
+    // Detection state.  Only touched by whichever thread is adding samples.
+    private final float[] rgba      = new float[4];
+    private final float[] last      = {-1, -1, -1, -1};
+    private boolean high;
+    private long    crossingNanos;     // Interpolated time of the last threshold crossing.
+    private long    previousNanos;
+    private float   previousLevel;
+    private int     stableClass;
+    private int     candidateClass;
+    private long    candidateNanos;    // Midpoint between the last stableClass reading and the first candidate.
+    private int     candidateCount;
+    private long    sequence;
+    private boolean primed;
+
+    // Latest reading and statistics.  Only ever written by the sampling thread.
+    private volatile float     level          = 0;
+    private volatile int       colorClass     = ColorClassifier.NONE;
+    private volatile long      samples        = 0;
+    private volatile long      measurements   = 0;
+    private volatile long      totalReadNanos = 0;
+    private volatile long      startNanos     = 0;
+    private volatile Throwable failure        = null;
+
+    private Thread thread = null;
+
+    /**
+     * @param source     where to read from.
+     * @param classifier classifier for class edges, already built, or null for level edges only.
+     */
+    public ColorEdgeDetector(Source source, ColorClassifier classifier) {
+        this.source     = source;
+        this.classifier = classifier;
+    }
+
+    /**
+     * Set the light level (alpha, 0 to 1) that marks a line, and the hysteresis band around it.
+     * The defaults are 0.5 and 0.05.  Call this before any samples are added.
+     */
+    public void setThreshold(float threshold, float hysteresis) {
+        this.threshold  = threshold;
+        this.hysteresis = hysteresis;
+    }
+
+    /**
+     * Start reading the sensor on a dedicated thread.
+     *
+     * @param periodMicros time between reads, or 0 to read back to back.
+     */
+    public synchronized void start(final long periodMicros) {
+        if (thread != null) {
+            return;
+        }
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                sample(periodMicros * 1000);
+            }
+        }, "Color edge detector");
+        thread.setPriority(Thread.MAX_PRIORITY);
+        thread.start();
+    }
+
+    /**
+     * Stop reading, and wait for the thread to finish.
+     */
+    public synchronized void stop() throws InterruptedException {
+        if (thread != null) {
+            thread.interrupt();
+            thread.join();
+            thread = null;
+        }
+    }
+
+    private void sample(long periodNanos) {
+        startNanos = System.nanoTime();
+        long next = startNanos;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                long before = System.nanoTime();
+                source.read(rgba);
+                long after = System.nanoTime();
+                totalReadNanos += after - before;
+                addSample(before + (after - before) / 2, rgba[0], rgba[1], rgba[2], rgba[3]);
+
+                next += periodNanos;
+                long now = System.nanoTime();
+                if (now >= next) {
+                    next = now;
+                }
+                while (now < next && !Thread.currentThread().isInterrupted()) {
+                    LockSupport.parkNanos(next - now);
+                    now = System.nanoTime();
+                }
+            }
+        } catch (RuntimeException e) {
+            failure = e;        // The sensor was closed, or disconnected.
+        }
+    }
+
+    /**
+     * Add one reading.  Use this instead of start() to feed the detector from the OpMode's own loop, or from a
+     * recording.  Only one thread may add samples.
+     *
+     * @param nanos System.nanoTime() at which the reading was taken.
+     */
+    public void addSample(long nanos, float red, float green, float blue, float alpha) {
+        samples++;
+        if (red == last[0] && green == last[1] && blue == last[2] && alpha == last[3]) {
+            previousNanos = nanos;      // No new measurement, but the reading still held at this time.
+            return;
+        }
+        last[0] = red;
+        last[1] = green;
+        last[2] = blue;
+        last[3] = alpha;
+        measurements++;
+
+        int seen = (classifier == null) ? ColorClassifier.NONE : classifier.classify(red, green, blue);
+        if (!primed) {
+            primed         = true;
+            high           = alpha >= threshold;
+            stableClass    = seen;
+            candidateClass = seen;
+        } else {
+            detectLevelEdge(nanos, alpha);
+            detectClassEdge(nanos, seen);
+        }
+        previousNanos = nanos;
+        previousLevel = alpha;
+        level         = alpha;
+        colorClass    = stableClass;
+    }
+
+    private void detectLevelEdge(long nanos, float alpha) {
+        // Remember where the level last crossed the threshold itself, interpolating between the two readings.
+        if ((previousLevel < threshold) != (alpha < threshold)) {
+            double fraction = (threshold - previousLevel) / (alpha - previousLevel);
+            crossingNanos = previousNanos + (long) (fraction * (nanos - previousNanos));
+        }
+        // Report it once the level is clear of the hysteresis band.
+        if (!high && alpha >= threshold + hysteresis) {
+            high = true;
+            levelEdge.set(new Edge(++sequence, crossingNanos, Edge.Kind.RISING, stableClass, stableClass));
+        } else if (high && alpha <= threshold - hysteresis) {
+            high = false;
+            levelEdge.set(new Edge(++sequence, crossingNanos, Edge.Kind.FALLING, stableClass, stableClass));
+        }
+    }
+
+    private void detectClassEdge(long nanos, int seen) {
+        if (seen == stableClass) {
+            candidateClass = stableClass;
+            candidateCount = 0;
+            return;
+        }
+        if (seen != candidateClass) {
+            candidateClass = seen;
+            candidateCount = 0;
+            candidateNanos = previousNanos + (nanos - previousNanos) / 2;
+        }
+        if (++candidateCount >= 2) {
+            classEdge.set(new Edge(++sequence, candidateNanos, Edge.Kind.CLASS, stableClass, seen));
+            stableClass    = seen;
+            candidateCount = 0;
+        }
+    }
+
+    /** @return the latest RISING or FALLING edge, or NONE.  Never blocks. */
+    public Edge getLatestLevelEdge()   { return levelEdge.get(); }
+
+    /** @return the latest CLASS edge, or NONE.  Never blocks. */
+    public Edge getLatestClassEdge()   { return classEdge.get(); }
+
+    /** @return the most recent light level (alpha). */
+    public float getLevel()            { return level; }
+
+    /** @return the current (debounced) color class. */
+    public int getColorClass()         { return colorClass; }
+
+    /** @return number of readings taken. */
+    public long getSampleCount()       { return samples; }
+
+    /** @return number of readings that were new measurements. */
+    public long getMeasurementCount()  { return measurements; }
+
+    /** @return new measurements per second since start(). */
+    public double getMeasurementRate() {
+        long elapsed = System.nanoTime() - startNanos;
+        return (startNanos == 0 || elapsed <= 0) ? 0 : measurements * 1e9 / elapsed;
+    }
+
+    /** @return mean time taken by one sensor read, in milliseconds. */
+    public double getMeanReadMs() {
+        long count = samples;
+        return (count == 0) ? 0 : totalReadNanos / 1e6 / count;
+    }
+
+    /** @return the exception that stopped the sampling thread, or null. */
+    public Throwable getFailure()      { return failure; }
+}
@@ -0,0 +1,230 @@
+package org.firstinspires.ftc.teamcode.hardware;
+
+import com.qualcomm.hardware.lynx.LynxModule;
+import com.qualcomm.robotcore.hardware.DcMotorEx;
+import com.qualcomm.robotcore.hardware.DigitalChannel;
+import com.qualcomm.robotcore.hardware.HardwareMap;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * This class performs ALL of the robot's encoder, velocity and digital-input reads exactly once per control cycle.
+ *
+ * It applies the MANUAL bulk caching approach described in ConceptMotorBulkRead:
+ *  - Every hub is switched to MANUAL caching when the snapshot is initialized.
+ *  - update() clears the bulk cache on every hub, then immediately copies every registered input
+ *    into preallocated primitive arrays.  This costs one bulk-read transaction per hub, and nothing more.
+ *  - The rest of the control cycle reads from the returned Frame, never from the hardware devices,
+ *    so it is not possible to accidentally trigger an extra read by asking for the same value twice.
+ *
+ * Typical use:
+ *
+ *     HardwareSnapshot snapshot = new HardwareSnapshot(hardwareMap);
+ *     int leftDrive  = snapshot.addMotor("left_drive");
+ *     int rightDrive = snapshot.addMotor("right_drive");
+ *     int liftLimit  = snapshot.addDigital("lift_limit");
+ *     snapshot.init();
+ *
+ *     while (opModeIsActive()) {
+ *         HardwareSnapshot.Frame frame = snapshot.update();
+ *         int leftTicks = frame.getPosition(leftDrive);
+ *         ...
+ *     }
+ *
+ * Two Frames are preallocated and used alternately, so update() never allocates, and the Frame from
+ * the previous cycle is still intact while the current one is being used (handy for finite differences).
+ * A Frame must not be held for longer than that.
+ */
+public class HardwareSnapshot {
+
+    private final HardwareMap          hardwareMap;
+    private final List<BulkReadHub>    hubs     = new ArrayList<>();
+    private final List<DcMotorEx>      motors   = new ArrayList<>();
+    private final List<DigitalChannel> digitals = new ArrayList<>();
+
+    private BulkReadHub[]    hubArray;
+    private DcMotorEx[]      motorArray;
+    private DigitalChannel[] digitalArray;
+
+    private Frame current  = null;
+    private Frame previous = null;
+    private long  cycle    = 0;
+
+    /**
+     * Create a snapshot for the robot described by this hardware map.
+     * All of the map's Lynx hubs are included automatically.
+     */
+    public HardwareSnapshot(HardwareMap hardwareMap) {
+        this.hardwareMap = hardwareMap;
+        for (LynxModule module : hardwareMap.getAll(LynxModule.class)) {
+            hubs.add(BulkReadHub.of(module));
+        }
+    }
+
+    /**
+     * Create a snapshot for an explicit set of hubs.  Devices must then be added as objects rather than names.
+     * This is the constructor the unit tests use with their fakes.
+     */
+    public HardwareSnapshot(List<? extends BulkReadHub> hubs) {
+        this.hardwareMap = null;
+        this.hubs.addAll(hubs);
+    }
+
+    /**
+     * Register a motor by its configuration name.
+     *
+     * @return the index used to look up this motor's values in each Frame.
+     */
+    public int addMotor(String deviceName) {
+        if (hardwareMap == null) {
+            throw new IllegalStateException("No HardwareMap: add the motor object instead of its name");
+        }
+        return addMotor(hardwareMap.get(DcMotorEx.class, deviceName));
+    }
+
+    /**
+     * Register a motor object.
+     *
+     * @return the index used to look up this motor's values in each Frame.
+     */
+    public int addMotor(DcMotorEx motor) {
+        checkNotInitialized();
+        motors.add(motor);
+        return motors.size() - 1;
+    }
+
+    /**
+     * Register a digital input by its configuration name.
+     *
+     * @return the index used to look up this input's state in each Frame.
+     */
+    public int addDigital(String deviceName) {
+        if (hardwareMap == null) {
+            throw new IllegalStateException("No HardwareMap: add the channel object instead of its name");
+        }
+        return addDigital(hardwareMap.get(DigitalChannel.class, deviceName));
+    }
+
+    /**
+     * Register a digital input object.  The channel should already be in INPUT mode.
+     *
+     * @return the index used to look up this input's state in each Frame.
+     */
+    public int addDigital(DigitalChannel channel) {
+        checkNotInitialized();
+        digitals.add(channel);
+        return digitals.size() - 1;
+    }
+
+    /**
+     * Switch every hub to MANUAL bulk caching and allocate the Frame storage.
+     * This method must be called ONCE, after all devices have been added and before the first update().
+     */
+    public void init() {
+        checkNotInitialized();
+        hubArray     = hubs.toArray(new BulkReadHub[0]);
+        motorArray   = motors.toArray(new DcMotorEx[0]);
+        digitalArray = digitals.toArray(new DigitalChannel[0]);
+
+        for (BulkReadHub hub : hubArray) {
+            hub.setManualCaching();
+        }
+
+        current  = new Frame(motorArray.length, digitalArray.length);
+        previous = new Frame(motorArray.length, digitalArray.length);
+    }
+
+    /**
+     * Read all registered inputs into a fresh Frame.
+     * Call this ONCE at the very start of each control cycle, and pass the result to the rest of the loop.
+     *
+     * @return the Frame for this cycle.  It stays valid until the next-but-one call to update().
+     */
+    public Frame update() {
+        if (current == null) {
+            throw new IllegalStateException("HardwareSnapshot.init() has not been called");
+        }
+
+        // Swap buffers so that the previous Frame remains readable during this cycle.
+        Frame frame = previous;
+        previous = current;
+        current  = frame;
+
+        for (BulkReadHub hub : hubArray) {
+            hub.clearBulkCache();
+        }
+
+        for (int i = 0; i < motorArray.length; i++) {
+            frame.positions[i]  = motorArray[i].getCurrentPosition();
+            frame.velocities[i] = motorArray[i].getVelocity();
+        }
+        for (int i = 0; i < digitalArray.length; i++) {
+            frame.digitals[i] = digitalArray[i].getState();
+        }
+
+        frame.cycle = ++cycle;
+        frame.timestampNanos = System.nanoTime();
+        return frame;
+    }
+
+    /**
+     * @return the Frame produced by the most recent update(), or null if update() has not been called yet.
+     */
+    public Frame getLatest() {
+        return (cycle == 0) ? null : current;
+    }
+
+    /**
+     * @return the Frame produced by the update() before the most recent one, or null if there isn't one yet.
+     */
+    public Frame getPrevious() {
+        return (cycle < 2) ? null : previous;
+    }
+
+    public int getHubCount()     { return hubs.size(); }
+    public int getMotorCount()   { return motors.size(); }
+    public int getDigitalCount() { return digitals.size(); }
+
+    private void checkNotInitialized() {
+        if (current != null) {
+            throw new IllegalStateException("HardwareSnapshot has already been initialized");
+        }
+    }
+
+    /**
+     * A read-only copy of every registered input, taken at a single point in the control cycle.
+     * HubIoExecutor fills the same Frame from several hubs at once, so its storage is package-private.
+     */
+    public static final class Frame {
+        final int[]     positions;
+        final double[]  velocities;
+        final boolean[] digitals;
+        long cycle;
+        long timestampNanos;
+
+        Frame(int motorCount, int digitalCount) {
+            positions  = new int[motorCount];
+            velocities = new double[motorCount];
+            digitals   = new boolean[digitalCount];
+        }
+
+        /** @return encoder position of the motor at this index, in ticks. */
+        public int getPosition(int motor)       { return positions[motor]; }
+
+        /** @return velocity of the motor at this index, in ticks per second. */
+        public double getVelocity(int motor)    { return velocities[motor]; }
+
+        /** @return state of the digital input at this index. */
+        public boolean getDigital(int channel)  { return digitals[channel]; }
+
+        /** @return number of this cycle, starting at 1 for the first update(). */
+        public long getCycle()                  { return cycle; }
+
+        /** @return System.nanoTime() at the end of the reads for this Frame. */
+        public long getTimestampNanos()         { return timestampNanos; }
+
+        public int getMotorCount()              { return positions.length; }
+        public int getDigitalCount()            { return digitals.length; }
+    }
+}
@@ -0,0 +1,454 @@
+package org.firstinspires.ftc.teamcode.hardware;
+
+import com.qualcomm.hardware.lynx.LynxModule;
+import com.qualcomm.robotcore.hardware.DcMotorEx;
+import com.qualcomm.robotcore.hardware.DigitalChannel;
+import com.qualcomm.robotcore.hardware.HardwareMap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * Does each hub's I/O on its own thread, so that a Control Hub and an Expansion Hub are read and written at the
+ * same time instead of one after the other.
+ *
+ * ConceptMotorBulkRead and HardwareSnapshot clear each hub's bulk cache and read its devices in turn, so a cycle
+ * waits for the Control Hub's bulk read and then for the Expansion Hub's.  Here every hub has a worker thread,
+ * and each update() is one round for all of them:
+ *  - each worker flushes its hub's ActuatorCache, sending the writes the loop made during the last cycle,
+ *  - then clears its hub's bulk cache and copies its hub's inputs into the shared Frame,
+ *  - and update() returns once every worker is done, with one Frame holding the inputs from all of the hubs.
+ * The cycle then takes as long as the slowest hub, not the sum of all of them.
+ *
+ *     HubIoExecutor io = new HubIoExecutor(hardwareMap);
+ *     int controlHub   = io.getHub("Control Hub");
+ *     int expansionHub = io.getHub("Expansion Hub 2");
+ *     int leftDrive    = io.addMotor(controlHub, "left_drive");
+ *     int liftLimit    = io.addDigital(expansionHub, "lift_limit");
+ *     DcMotorEx lift   = io.getActuators(expansionHub).motor(hardwareMap.get(DcMotorEx.class, "lift"));
+ *     io.start();
+ *     while (opModeIsActive()) {
+ *         HardwareSnapshot.Frame frame = io.update();
+ *         ...
+ *         lift.setPower(power);       // Sent by the Expansion Hub's worker, during the next update().
+ *     }
+ *     io.stop();
+ *
+ * Each device must be added to the hub it is plugged into, and each wrapped actuator must come from its own
+ * hub's ActuatorCache.  The workers only run inside update(), and the loop only sets actuators between calls,
+ * so the caches and devices are never used by two threads at once.
+ *
+ * The executor times every hub's part of every cycle, and the cycle as a whole.  getOverlap() says how much of
+ * the possible saving was achieved: 1 when a cycle takes only as long as the slowest hub, 0 when it takes as long
+ * as all of the hubs one after another.  setParallel(false) does the same work on the loop's thread, one hub
+ * after another, for comparison.
+ *
+ * Like HardwareSnapshot, two Frames are used alternately, and update() doesn't allocate.
+ */
+public class HubIoExecutor {
+
+    private final HardwareMap      hardwareMap;
+    private final List<LynxModule> modules = new ArrayList<>();
+    private final List<Hub>        hubs    = new ArrayList<>();
+
+    private Hub[]   hubArray     = null;
+    private int     motorCount   = 0;
+    private int     digitalCount = 0;
+    private boolean parallel     = true;
+
+    private HardwareSnapshot.Frame current  = null;
+    private HardwareSnapshot.Frame previous = null;
+    private long                   cycle    = 0;
+
+    // The round the workers are asked to do.  frame is written before round, so a worker that sees a new round
+    // sees its frame.
+    private volatile HardwareSnapshot.Frame frame     = null;
+    private volatile long                   round     = 0;
+    private volatile boolean                running   = false;
+    private volatile Thread                 owner     = null;
+    private final AtomicInteger             remaining = new AtomicInteger();
+
+    // Statistics, for the cycles since the last resetStatistics().
+    private long cycles          = 0;
+    private long totalCycleNanos = 0;
+    private long totalBusyNanos  = 0;       // Sum over cycles of every hub's time.
+    private long totalMaxNanos   = 0;       // Sum over cycles of the slowest hub's time.
+    private long lastCycleNanos  = 0;
+
+    /**
+     * One hub, its inputs, and the worker that does its I/O.
+     */
+    private final class Hub implements Runnable {
+        final BulkReadHub          bulk;
+        final ActuatorCache        actuators    = new ActuatorCache();
+        final List<DcMotorEx>      motorList    = new ArrayList<>();
+        final List<Integer>        motorSlots   = new ArrayList<>();
+        final List<DigitalChannel> digitalList  = new ArrayList<>();
+        final List<Integer>        digitalSlots = new ArrayList<>();
+
+        DcMotorEx[]      motors;
+        int[]            motorSlot;
+        DigitalChannel[] digitals;
+        int[]            digitalSlot;
+        Thread           thread;
+        long             done;          // The last round this worker did, or the round before it started.
+
+        // Written by the worker during a round; read by the loop after it.
+        long             lastNanos  = 0;
+        long             totalNanos = 0;
+        Throwable        failure    = null;
+
+        Hub(BulkReadHub bulk) {
+            this.bulk = bulk;
+        }
+
+        void freeze() {
+            motors      = motorList.toArray(new DcMotorEx[0]);
+            digitals    = digitalList.toArray(new DigitalChannel[0]);
+            motorSlot   = new int[motors.length];
+            digitalSlot = new int[digitals.length];
+            for (int i = 0; i < motors.length; i++) {
+                motorSlot[i] = motorSlots.get(i);
+            }
+            for (int i = 0; i < digitals.length; i++) {
+                digitalSlot[i] = digitalSlots.get(i);
+            }
+        }
+
+        // This hub's part of a cycle: the pending writes, then the reads.
+        void io(HardwareSnapshot.Frame frame) {
+            long start = System.nanoTime();
+            try {
+                actuators.flush(start);
+                bulk.clearBulkCache();
+                for (int i = 0; i < motors.length; i++) {
+                    frame.positions[motorSlot[i]]  = motors[i].getCurrentPosition();
+                    frame.velocities[motorSlot[i]] = motors[i].getVelocity();
+                }
+                for (int i = 0; i < digitals.length; i++) {
+                    frame.digitals[digitalSlot[i]] = digitals[i].getState();
+                }
+            } catch (Throwable e) {
+                failure = e;        // Rethrown by update(), on the loop's thread.
+            }
+            lastNanos   = System.nanoTime() - start;
+            totalNanos += lastNanos;
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                long requested = round;
+                if (requested == done) {
+                    LockSupport.park(this);
+                    continue;
+                }
+                done = requested;
+                try {
+                    io(frame);
+                } finally {
+                    // Whatever happened, the loop must not be left waiting at the barrier.
+                    if (remaining.decrementAndGet() == 0) {
+                        LockSupport.unpark(owner);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Create an executor for all of the Lynx hubs in this hardware map.  Use getHub() to find each one by name.
+     */
+    public HubIoExecutor(HardwareMap hardwareMap) {
+        this.hardwareMap = hardwareMap;
+        for (LynxModule module : hardwareMap.getAll(LynxModule.class)) {
+            modules.add(module);
+            hubs.add(new Hub(BulkReadHub.of(module)));
+        }
+    }
+
+    /**
+     * Create an executor for an explicit list of hubs, numbered in list order.  Devices must then be added as
+     * objects rather than names.  This is the constructor the unit tests use with their fakes.
+     */
+    public HubIoExecutor(List<? extends BulkReadHub> hubs) {
+        this.hardwareMap = null;
+        for (BulkReadHub hub : hubs) {
+            this.hubs.add(new Hub(hub));
+        }
+    }
+
+    /**
+     * @param name the hub's name in the robot configuration, such as "Control Hub" or "Expansion Hub 2".
+     * @return the hub's number.
+     */
+    public int getHub(String name) {
+        if (hardwareMap == null) {
+            throw new IllegalStateException("No HardwareMap: hubs are numbered in the order they were given");
+        }
+        int hub = modules.indexOf(hardwareMap.get(LynxModule.class, name));
+        if (hub < 0) {
+            throw new IllegalArgumentException("No hub named " + name);
+        }
+        return hub;
+    }
+
+    /**
+     * Register a motor by its configuration name.
+     *
+     * @param hub the number of the hub the motor is plugged into.
+     * @return the index used to look up this motor's values in each Frame.
+     */
+    public int addMotor(int hub, String deviceName) {
+        if (hardwareMap == null) {
+            throw new IllegalStateException("No HardwareMap: add the motor object instead of its name");
+        }
+        return addMotor(hub, hardwareMap.get(DcMotorEx.class, deviceName));
+    }
+
+    /**
+     * Register a motor object.
+     *
+     * @param hub the number of the hub the motor is plugged into.
+     * @return the index used to look up this motor's values in each Frame.
+     */
+    public int addMotor(int hub, DcMotorEx motor) {
+        checkNotStarted();
+        Hub h = hubs.get(hub);
+        h.motorList.add(motor);
+        h.motorSlots.add(motorCount);
+        return motorCount++;
+    }
+
+    /**
+     * Register a digital input by its configuration name.
+     *
+     * @param hub the number of the hub the input is plugged into.
+     * @return the index used to look up this input's state in each Frame.
+     */
+    public int addDigital(int hub, String deviceName) {
+        if (hardwareMap == null) {
+            throw new IllegalStateException("No HardwareMap: add the channel object instead of its name");
+        }
+        return addDigital(hub, hardwareMap.get(DigitalChannel.class, deviceName));
+    }
+
+    /**
+     * Register a digital input object.  The channel should already be in INPUT mode.
+     *
+     * @param hub the number of the hub the input is plugged into.
+     * @return the index used to look up this input's state in each Frame.
+     */
+    public int addDigital(int hub, DigitalChannel channel) {
+        checkNotStarted();
+        Hub h = hubs.get(hub);
+        h.digitalList.add(channel);
+        h.digitalSlots.add(digitalCount);
+        return digitalCount++;
+    }
+
+    /**
+     * @return the ActuatorCache for a hub.  Wrap the motors and servos plugged into that hub with it; their writes
+     *         are sent by the hub's worker, at the start of the next update().
+     */
+    public ActuatorCache getActuators(int hub) {
+        return hubs.get(hub).actuators;
+    }
+
+    /**
+     * Choose between a worker thread per hub (the default), and doing every hub's I/O on the loop's thread, one
+     * hub after another.  Must be called before start().
+     */
+    public void setParallel(boolean parallel) {
+        checkNotStarted();
+        this.parallel = parallel;
+    }
+
+    /**
+     * Switch every hub to MANUAL bulk caching, allocate the Frames, and start the workers.
+     * Call this ONCE, after all of the devices have been added and before the first update().
+     */
+    public synchronized void start() {
+        checkNotStarted();
+        hubArray = hubs.toArray(new Hub[0]);
+        for (Hub hub : hubArray) {
+            hub.freeze();
+            hub.bulk.setManualCaching();
+        }
+        current  = new HardwareSnapshot.Frame(motorCount, digitalCount);
+        previous = new HardwareSnapshot.Frame(motorCount, digitalCount);
+
+        if (parallel) {
+            running = true;
+            for (int i = 0; i < hubArray.length; i++) {
+                Thread thread = new Thread(hubArray[i], "Hub I/O " + i);
+                thread.setPriority(Thread.MAX_PRIORITY);
+                hubArray[i].thread = thread;
+                hubArray[i].done   = round;
+                thread.start();
+            }
+        }
+    }
+
+    /**
+     * Stop the workers, and wait for them to finish.  Pending actuator writes are not sent.
+     */
+    public synchronized void stop() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        for (Hub hub : hubArray) {
+            LockSupport.unpark(hub.thread);
+        }
+        for (Hub hub : hubArray) {
+            hub.thread.join();
+            hub.thread = null;
+        }
+    }
+
+    /**
+     * Send every hub's pending writes and read every hub's inputs, all hubs at once, into a fresh Frame.
+     * Call this ONCE at the very start of each control cycle, and pass the result to the rest of the loop.
+     *
+     * @return the Frame for this cycle.  It stays valid until the next-but-one call to update().
+     * @throws RuntimeException the exception a hub's I/O threw, if any did.  An Error is rethrown as it is.
+     */
+    public HardwareSnapshot.Frame update() {
+        if (current == null) {
+            throw new IllegalStateException("HubIoExecutor.start() has not been called");
+        }
+
+        // Swap buffers so that the previous Frame remains readable during this cycle.
+        HardwareSnapshot.Frame next = previous;
+        previous = current;
+        current  = next;
+
+        long start = System.nanoTime();
+        if (parallel) {
+            if (!running) {
+                throw new IllegalStateException("HubIoExecutor has been stopped");
+            }
+            owner = Thread.currentThread();
+            remaining.set(hubArray.length);
+            frame = next;
+            round++;
+            for (Hub hub : hubArray) {
+                LockSupport.unpark(hub.thread);
+            }
+            // The barrier.  park() returns at once if this thread has been interrupted (as it is when an OpMode
+            // is stopped); the workers finish their round regardless, so just wait for them.
+            while (remaining.get() != 0) {
+                LockSupport.park(this);
+            }
+        } else {
+            for (Hub hub : hubArray) {
+                hub.io(next);
+            }
+        }
+        long end = System.nanoTime();
+
+        long busy = 0;
+        long max  = 0;
+        for (Hub hub : hubArray) {
+            busy += hub.lastNanos;
+            max   = Math.max(max, hub.lastNanos);
+            if (hub.failure != null) {
+                Throwable failure = hub.failure;
+                hub.failure = null;
+                if (failure instanceof Error) {
+                    throw (Error) failure;
+                }
+                if (failure instanceof RuntimeException) {
+                    throw (RuntimeException) failure;
+                }
+                throw new RuntimeException(failure);        // A checked exception, from a device that hid it.
+            }
+        }
+        lastCycleNanos   = end - start;
+        totalCycleNanos += lastCycleNanos;
+        totalBusyNanos  += busy;
+        totalMaxNanos   += max;
+        cycles++;
+
+        next.cycle          = ++cycle;
+        next.timestampNanos = end;
+        return next;
+    }
+
+    /**
+     * @return the Frame produced by the most recent update(), or null if update() has not been called yet.
+     */
+    public HardwareSnapshot.Frame getLatest() {
+        return (cycle == 0) ? null : current;
+    }
+
+    /**
+     * @return the Frame produced by the update() before the most recent one, or null if there isn't one yet.
+     */
+    public HardwareSnapshot.Frame getPrevious() {
+        return (cycle < 2) ? null : previous;
+    }
+
+    public int getHubCount()     { return hubs.size(); }
+    public int getMotorCount()   { return motorCount; }
+    public int getDigitalCount() { return digitalCount; }
+
+    /** @return true if each hub has its own worker thread. */
+    public boolean isParallel()  { return parallel; }
+
+    // --------------------------------------------------------------------------------------
+    // Statistics
+    // --------------------------------------------------------------------------------------
+
+    /** @return the number of cycles since the statistics were last reset. */
+    public long getCycles() { return cycles; }
+
+    /** @return how long the last update() took, in microseconds. */
+    public double getLastCycleMicros() { return lastCycleNanos / 1e3; }
+
+    /** @return the mean time update() took, in microseconds. */
+    public double getMeanCycleMicros() { return (cycles == 0) ? 0 : totalCycleNanos / 1e3 / cycles; }
+
+    /** @return how long a hub's writes and reads took in the last cycle, in microseconds. */
+    public double getLastHubMicros(int hub) { return hubs.get(hub).lastNanos / 1e3; }
+
+    /** @return the mean time a hub's writes and reads took, in microseconds. */
+    public double getMeanHubMicros(int hub) {
+        return (cycles == 0) ? 0 : hubs.get(hub).totalNanos / 1e3 / cycles;
+    }
+
+    /**
+     * @return how much of the hubs' I/O was overlapped: 1 if the cycles took only as long as the slowest hub,
+     *         0 if they took as long as every hub one after another (or there is only one hub).
+     */
+    public double getOverlap() {
+        long possible = totalBusyNanos - totalMaxNanos;
+        if (possible <= 0) {
+            return 0;
+        }
+        double overlap = (double) (totalBusyNanos - totalCycleNanos) / possible;
+        return Math.max(0, Math.min(1, overlap));
+    }
+
+    /**
+     * Start the statistics again.
+     */
+    public void resetStatistics() {
+        cycles          = 0;
+        totalCycleNanos = 0;
+        totalBusyNanos  = 0;
+        totalMaxNanos   = 0;
+        for (Hub hub : hubs) {
+            hub.totalNanos = 0;
+        }
+    }
+
+    private void checkNotStarted() {
+        if (current != null) {
+            throw new IllegalStateException("HubIoExecutor has already been started");
+        }
+    }
+}
@@ -0,0 +1,379 @@
+package org.firstinspires.ftc.teamcode.hardware;
+
+import com.qualcomm.robotcore.hardware.HardwareDevice;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+/*
+ * Polls slow I2C sensors in the background, each at its own rate, and publishes their latest values.
+ *
+ * SensorREV2mDistance, SensorMRRangeSensor, SensorHuskyLens and SensorKLNavxMicro each read their sensor in the
+ * OpMode loop, and the loop waits for every I2C transaction.  With several such sensors, those waits add up on
+ * every pass, whether or not the sensor has anything new to report.  Here each sensor is registered with the rate
+ * it is worth reading at, a priority, and the call that reads it:
+ *
+ *     I2cPollScheduler scheduler = new I2cPollScheduler();
+ *     I2cPollScheduler.Sensor<Double> range = scheduler.add("range", I2cPollScheduler.busOf(distanceSensor),
+ *             20, 1, () -> distanceSensor.getDistance(DistanceUnit.CM));
+ *     I2cPollScheduler.Sensor<HuskyLens.Block[]> blocks = scheduler.add("huskylens",
+ *             I2cPollScheduler.busOf(huskyLens), 10, 0, huskyLens::blocks);
+ *     scheduler.start();
+ *     while (opModeIsActive()) {
+ *         double cm = range.getValue();
+ *         ...
+ *     }
+ *     scheduler.stop();
+ *
+ * Each I2C bus gets its own worker thread, so sensors on different buses are read at the same time, while
+ * sensors on the same bus take turns, as the bus requires.  A worker reads whichever of its sensors is due, the
+ * highest priority first, then the one that has been due longest.  A sensor is never read again until its period
+ * has passed since its last read began, however idle the bus.
+ *
+ * Each value is published with the System.nanoTime() at the middle of its read.  getReading() returns the value
+ * and its time together.  Reading the published values never blocks.
+ *
+ * To show I2C contention, each worker also keeps statistics over a rolling window (1 second by default):
+ *  - for the bus: utilization, the fraction of the window spent in reads;
+ *  - for each sensor: reads, mean and maximum read latency, and mean lateness (how long after it was due the read
+ *    began).  Lateness that grows with utilization means the bus is oversubscribed; lower some rates.
+ *
+ * Values are published as objects, so a sensor read as a double is boxed.  That is a few hundred small objects a
+ * second at most, on the worker threads.
+ */
+public class I2cPollScheduler {
+
+    /** Reads one sensor.  Called on the sensor's bus worker. */
+    public interface Reader<T> {
+        T read();
+    }
+
+    /**
+     * One published value.  Immutable.
+     */
+    public static class Reading<T> {
+        private final T    value;
+        private final long nanos;
+        private final long sequence;
+
+        Reading(T value, long nanos, long sequence) {
+            this.value    = value;
+            this.nanos    = nanos;
+            this.sequence = sequence;
+        }
+
+        public T getValue()          { return value; }
+
+        /** @return System.nanoTime() at the middle of the read. */
+        public long getNanos()       { return nanos; }
+
+        /** @return how long ago the value was read. */
+        public long getAgeNanos()    { return System.nanoTime() - nanos; }
+
+        /** @return the read number, counting from 1.  0 means not read yet. */
+        public long getSequence()    { return sequence; }
+    }
+
+    /**
+     * A registered sensor: its latest value and its statistics.
+     */
+    public static class Sensor<T> {
+        private final String    name;
+        private final Reader<T> reader;
+        private final long      periodNanos;
+        private final int       priority;
+
+        // Scheduling and window totals.  Only touched by the bus worker.
+        private long due;
+        private long sequence;
+        private long windowReads;
+        private long windowLatency;
+        private long windowMaxLatency;
+        private long windowLateness;
+
+        private volatile Reading<T> latest;
+        private volatile long       reads          = 0;
+        private volatile long       errors         = 0;
+        private volatile Throwable  lastError      = null;
+        private volatile double     readRate       = 0;
+        private volatile double     meanLatencyMs  = 0;
+        private volatile double     maxLatencyMs   = 0;
+        private volatile double     meanLatenessMs = 0;
+
+        Sensor(String name, Reader<T> reader, double rateHz, int priority, T initial) {
+            this.name        = name;
+            this.reader      = reader;
+            this.periodNanos = (long) (1e9 / rateHz);
+            this.priority    = priority;
+            this.latest      = new Reading<>(initial, 0, 0);
+        }
+
+        // Read the sensor, and return how long the read took.
+        private long read(LongSupplier clock) {
+            long before = clock.getAsLong();
+            long lateness = before - due;
+            long latency;
+            try {
+                T value = reader.read();
+                long after = clock.getAsLong();
+                latest  = new Reading<>(value, before + (after - before) / 2, ++sequence);
+                latency = after - before;
+                reads++;
+            } catch (RuntimeException e) {
+                errors++;
+                lastError = e;
+                latency   = clock.getAsLong() - before;
+            }
+            account(latency, lateness);
+            due = before + periodNanos;
+            return latency;
+        }
+
+        private void account(long latency, long lateness) {
+            windowReads++;
+            windowLatency   += latency;
+            windowLateness  += Math.max(0, lateness);
+            windowMaxLatency = Math.max(windowMaxLatency, latency);
+        }
+
+        private void endWindow(long windowNanos) {
+            readRate       = windowReads * 1e9 / windowNanos;
+            meanLatencyMs  = (windowReads == 0) ? 0 : windowLatency / 1e6 / windowReads;
+            meanLatenessMs = (windowReads == 0) ? 0 : windowLateness / 1e6 / windowReads;
+            maxLatencyMs   = windowMaxLatency / 1e6;
+            windowReads = windowLatency = windowLateness = windowMaxLatency = 0;
+        }
+
+        public String getName()             { return name; }
+
+        /** @return the latest value and when it was read. */
+        public Reading<T> getReading()      { return latest; }
+
+        /** @return the latest value, or the initial value if the sensor hasn't been read yet. */
+        public T getValue()                 { return latest.value; }
+
+        /** @return how long ago the latest value was read. */
+        public long getAgeNanos()           { return latest.getAgeNanos(); }
+
+        /** @return number of successful reads. */
+        public long getReadCount()          { return reads; }
+
+        /** @return number of reads that threw an exception.  The previous value stays published. */
+        public long getErrorCount()         { return errors; }
+
+        /** @return the last exception thrown by a read, or null. */
+        public Throwable getLastError()     { return lastError; }
+
+        /** @return reads per second over the last window. */
+        public double getReadRate()         { return readRate; }
+
+        /** @return mean time taken by one read over the last window, in milliseconds. */
+        public double getMeanLatencyMs()    { return meanLatencyMs; }
+
+        /** @return longest read over the last window, in milliseconds. */
+        public double getMaxLatencyMs()     { return maxLatencyMs; }
+
+        /** @return mean time from when a read was due to when it began, over the last window, in milliseconds. */
+        public double getMeanLatenessMs()   { return meanLatenessMs; }
+    }
+
+    /**
+     * One I2C bus, and the worker that reads its sensors.
+     */
+    public static class Bus {
+        private final String          name;
+        private final LongSupplier    clock;
+        private final List<Sensor<?>> sensors = new ArrayList<>();
+        private Sensor<?>[]           schedule;
+
+        // Statistics window.  Only touched by the worker.
+        private long windowNanos;
+        private long windowStart;
+        private long busy;
+
+        private volatile double utilization = 0;
+
+        Bus(String name, LongSupplier clock) {
+            this.name  = name;
+            this.clock = clock;
+        }
+
+        private void run(long windowNanos) {
+            begin(clock.getAsLong(), windowNanos);
+            while (!Thread.currentThread().isInterrupted()) {
+                long wait = poll(clock.getAsLong());
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+            }
+        }
+
+        // Make every sensor due now, and start the first statistics window.
+        void begin(long start, long windowNanos) {
+            schedule = sensors.toArray(new Sensor<?>[0]);
+            for (Sensor<?> sensor : schedule) {
+                sensor.due = start;
+            }
+            this.windowNanos = windowNanos;
+            windowStart      = start;
+            busy             = 0;
+        }
+
+        // One scheduling step: read the sensor that should go next, if one is due.  The worker calls this in a
+        // loop; the tests call it with a simulated clock.
+        // Returns 0 after a read, otherwise how long until a sensor is due (or the window ends).
+        long poll(long now) {
+            if (now - windowStart >= windowNanos) {
+                long length = now - windowStart;
+                utilization = (double) busy / length;
+                for (Sensor<?> sensor : schedule) {
+                    sensor.endWindow(length);
+                }
+                windowStart = now;
+                busy = 0;
+            }
+
+            // Pick the highest priority sensor that is due, or work out when the next one will be.
+            Sensor<?> next = null;
+            long earliest = windowStart + windowNanos;
+            for (Sensor<?> sensor : schedule) {
+                if (sensor.due <= now) {
+                    if (next == null || sensor.priority > next.priority
+                            || (sensor.priority == next.priority && sensor.due < next.due)) {
+                        next = sensor;
+                    }
+                } else {
+                    earliest = Math.min(earliest, sensor.due);
+                }
+            }
+            if (next == null) {
+                return Math.max(1, earliest - now);
+            }
+            busy += next.read(clock);
+            return 0;
+        }
+
+        public String getName()             { return name; }
+
+        /** @return fraction of the last window (0 to 1) this bus spent in reads. */
+        public double getUtilization()      { return utilization; }
+    }
+
+    private final Map<String, Bus> buses   = new LinkedHashMap<>();
+    private final List<Thread>     workers = new ArrayList<>();
+    private final LongSupplier     clock;
+    private long windowNanos = 1_000_000_000L;
+
+    public I2cPollScheduler() {
+        this(new LongSupplier() {
+            @Override
+            public long getAsLong() {
+                return System.nanoTime();
+            }
+        });
+    }
+
+    /**
+     * @param clock where reads get their timestamps and the schedule its time, in place of System.nanoTime():
+     *              the tests' simulated clock, with which they drive each Bus's poll() themselves.
+     */
+    I2cPollScheduler(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * A name for the I2C bus that a device is on, for add().  Devices on the same bus of the same hub have the
+     * same connection info apart from their address, so this is the connection info without the address.
+     */
+    public static String busOf(HardwareDevice device) {
+        String info = device.getConnectionInfo();
+        int address = info.toLowerCase().lastIndexOf("; addr");
+        return (address < 0) ? info : info.substring(0, address);
+    }
+
+    /**
+     * Set the length of the statistics window.  The default is 1 second.  Call this before start().
+     */
+    public void setStatisticsWindow(long milliseconds) {
+        windowNanos = milliseconds * 1_000_000L;
+    }
+
+    /**
+     * Register a sensor.  Call this before start().
+     *
+     * @param name     name for telemetry.
+     * @param bus      the I2C bus the sensor is on, eg: busOf(device).  Sensors given the same bus take turns.
+     * @param rateHz   how often the sensor is worth reading.  It is never read more often than this.
+     * @param priority when several sensors on a bus are due, the highest priority is read first.
+     * @param reader   the call that reads the sensor.
+     * @return the sensor's handle, for its values and statistics.
+     */
+    public <T> Sensor<T> add(String name, String bus, double rateHz, int priority, Reader<T> reader) {
+        return add(name, bus, rateHz, priority, reader, null);
+    }
+
+    /**
+     * Register a sensor, with the value to return until it has been read.
+     */
+    public synchronized <T> Sensor<T> add(String name, String bus, double rateHz, int priority, Reader<T> reader,
+                                          T initial) {
+        if (!workers.isEmpty()) {
+            throw new IllegalStateException("add sensors before start()");
+        }
+        Bus owner = buses.get(bus);
+        if (owner == null) {
+            owner = new Bus(bus, clock);
+            buses.put(bus, owner);
+        }
+        Sensor<T> sensor = new Sensor<>(name, reader, rateHz, priority, initial);
+        owner.sensors.add(sensor);
+        return sensor;
+    }
+
+    /**
+     * Start a worker for each bus.
+     */
+    public synchronized void start() {
+        if (!workers.isEmpty()) {
+            return;
+        }
+        final long window = windowNanos;
+        for (final Bus bus : buses.values()) {
+            Thread worker = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    bus.run(window);
+                }
+            }, "I2C poll " + bus.name);
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    /**
+     * Stop the workers, and wait for them to finish.  The last values stay available.
+     */
+    public synchronized void stop() throws InterruptedException {
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        workers.clear();
+    }
+
+    /** @return the buses, in the order their first sensors were added. */
+    public synchronized List<Bus> getBuses() {
+        return new ArrayList<>(buses.values());
+    }
+
+    /** @return the sensors on one bus, in the order they were added. */
+    public synchronized List<Sensor<?>> getSensors(Bus bus) {
+        return new ArrayList<>(bus.sensors);
+    }
+}
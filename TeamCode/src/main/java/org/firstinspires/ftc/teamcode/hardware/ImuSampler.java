@@ -0,0 +1,263 @@
+package org.firstinspires.ftc.teamcode.hardware;
+
+import com.qualcomm.robotcore.hardware.IMU;
+
+import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
+import org.firstinspires.ftc.robotcore.external.navigation.AngularVelocity;
+import org.firstinspires.ftc.robotcore.external.navigation.YawPitchRollAngles;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+/*
+ * Reads an IMU on its own thread, and gives the control loop a heading without waiting for I2C.
+ *
+ * RobotAutoDriveByGyro_Linear.getHeading() calls getRobotYawPitchRollAngles() every time round the loop, and the
+ * loop waits for that I2C transaction each time.  Here a dedicated thread reads the orientation and the angular
+ * velocity once per period (10 mS by default, about the rate the IMU's fusion produces new data), stamps each
+ * reading with the System.nanoTime() at the middle of the reads, and publishes it.
+ *
+ * getHeading() never blocks.  It takes the latest reading and extrapolates its yaw to "now" with the measured yaw
+ * rate, so a reading that is a few milliseconds old still gives the heading the robot has now, not the one it had
+ * then.  Extrapolation is limited (50 mS by default): if the readings stop, the heading stops moving too, and
+ * getAgeNanos() shows how stale it is.
+ *
+ *     ImuSampler sampler = new ImuSampler(imu, 10_000);
+ *     sampler.start();
+ *     while (opModeIsActive()) {
+ *         double heading = sampler.getHeading(AngleUnit.DEGREES);
+ *         ...
+ *     }
+ *     sampler.stop();
+ *
+ * Use resetYaw() on the sampler rather than on the IMU while the sampler is running: it makes sure that no reading
+ * taken before the reset is published after it.
+ * The IMU shares its hub's I2C bus with the rest of the robot, so the sampler's reads still take bus time; they just
+ * no longer hold up the loop.
+ */
+public class ImuSampler {
+
+    /**
+     * One published reading.  Immutable.
+     */
+    public static class Reading {
+        private final long   sequence;
+        private final long   nanos;
+        private final double yaw;
+        private final double pitch;
+        private final double roll;
+        private final double yawRate;
+
+        Reading(long sequence, long nanos, double yaw, double pitch, double roll, double yawRate) {
+            this.sequence = sequence;
+            this.nanos    = nanos;
+            this.yaw      = yaw;
+            this.pitch    = pitch;
+            this.roll     = roll;
+            this.yawRate  = yawRate;
+        }
+
+        /** @return the reading number, counting from 1. */
+        public long getSequence()                 { return sequence; }
+
+        /** @return System.nanoTime() at which the reading was taken. */
+        public long getNanos()                    { return nanos; }
+
+        /** @return how long ago the reading was taken. */
+        public long getAgeNanos()                 { return System.nanoTime() - nanos; }
+
+        public double getYaw(AngleUnit unit)      { return unit.fromRadians(yaw); }
+
+        public double getPitch(AngleUnit unit)    { return unit.fromRadians(pitch); }
+
+        public double getRoll(AngleUnit unit)     { return unit.fromRadians(roll); }
+
+        /** @return the yaw rate, in units per second, CCW positive. */
+        public double getYawRate(AngleUnit unit)  { return unit.fromRadians(yawRate); }
+    }
+
+    private final IMU          imu;
+    private final long         periodNanos;
+    private final LongSupplier clock;
+    private final AtomicReference<Reading> latest  = new AtomicReference<>();
+    private final Object                   publish = new Object();
+
+    private volatile long maxExtrapolationNanos = 50_000_000L;
+    private long          resetNanos            = 0;     // Guarded by publish.
+    private long          sequence              = 0;     // Guarded by publish.
+
+    // Statistics.  Only ever written by the sampling thread.
+    private volatile long      samples        = 0;
+    private volatile long      totalReadNanos = 0;
+    private volatile long      overruns       = 0;
+    private volatile long      startNanos     = 0;
+    private volatile Throwable failure        = null;
+
+    private Thread thread = null;
+
+    /**
+     * @param imu          an initialized IMU.
+     * @param periodMicros time between readings.
+     */
+    public ImuSampler(IMU imu, long periodMicros) {
+        this(imu, periodMicros, new LongSupplier() {
+            @Override
+            public long getAsLong() {
+                return System.nanoTime();
+            }
+        });
+    }
+
+    /**
+     * @param clock where readings get their timestamps, in place of System.nanoTime(): the tests' simulated clock.
+     *              The sampling thread still waits out each period in real time.
+     */
+    ImuSampler(IMU imu, long periodMicros, LongSupplier clock) {
+        this.imu         = imu;
+        this.periodNanos = periodMicros * 1000;
+        this.clock       = clock;
+    }
+
+    /**
+     * Limit how far past the latest reading getHeading() extrapolates.  The default is 50 mS.
+     */
+    public void setMaxExtrapolation(long milliseconds) {
+        maxExtrapolationNanos = milliseconds * 1_000_000L;
+    }
+
+    /**
+     * Take one reading now, on the calling thread, then start the sampling thread.  A reading is always
+     * available once this returns.
+     */
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        sampleOnce();
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                sample();
+            }
+        }, "IMU sampler");
+        thread.setPriority(Thread.MAX_PRIORITY);
+        thread.start();
+    }
+
+    /**
+     * Stop reading, and wait for the thread to finish.  The last reading stays available.
+     */
+    public synchronized void stop() throws InterruptedException {
+        if (thread != null) {
+            thread.interrupt();
+            thread.join();
+            thread = null;
+        }
+    }
+
+    /**
+     * Reset the IMU's yaw to zero.  Until the next reading arrives, the heading is zero, extrapolated with the
+     * last yaw rate.  Readings that started before the reset finished are discarded.
+     */
+    public void resetYaw() {
+        imu.resetYaw();
+        synchronized (publish) {
+            resetNanos = clock.getAsLong();
+            Reading last = latest.get();
+            latest.set((last == null) ? new Reading(++sequence, resetNanos, 0, 0, 0, 0)
+                    : new Reading(++sequence, resetNanos, 0, last.pitch, last.roll, last.yawRate));
+        }
+    }
+
+    private void sample() {
+        startNanos = System.nanoTime();
+        long next = startNanos;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                sampleOnce();
+
+                // Wait for the next period.  If the read overran it, start again from now rather than catching up
+                // with a burst of back-to-back reads.
+                next += periodNanos;
+                long now = System.nanoTime();
+                if (now >= next) {
+                    overruns++;
+                    next = now;
+                }
+                while (now < next && !Thread.currentThread().isInterrupted()) {
+                    LockSupport.parkNanos(next - now);
+                    now = System.nanoTime();
+                }
+            }
+        } catch (RuntimeException e) {
+            failure = e;        // The IMU was closed, or disconnected.
+        }
+    }
+
+    // Take and publish one reading.  (The tests call this directly, instead of starting the thread.)
+    void sampleOnce() {
+        long before = clock.getAsLong();
+        YawPitchRollAngles angles = imu.getRobotYawPitchRollAngles();
+        AngularVelocity    rates  = imu.getRobotAngularVelocity(AngleUnit.RADIANS);
+        long after = clock.getAsLong();
+        totalReadNanos += after - before;
+        samples++;
+
+        synchronized (publish) {
+            if (before < resetNanos) {
+                return;     // Might have been read before the reset.
+            }
+            latest.set(new Reading(++sequence, before + (after - before) / 2,
+                    angles.getYaw(AngleUnit.RADIANS), angles.getPitch(AngleUnit.RADIANS),
+                    angles.getRoll(AngleUnit.RADIANS), rates.zRotationRate));
+        }
+    }
+
+    /**
+     * The heading now: the latest yaw, extrapolated to the current time with the latest yaw rate.  Never blocks.
+     *
+     * @return the heading, from -180 to 180 degrees (or -PI to PI radians), CCW positive.
+     */
+    public double getHeading(AngleUnit unit) {
+        return getHeading(unit, clock.getAsLong());
+    }
+
+    /**
+     * The heading at a given time, eg: the loop's own timestamp, so every use of the heading in one loop agrees.
+     *
+     * @param nowNanos System.nanoTime() to extrapolate the latest reading to.
+     */
+    public double getHeading(AngleUnit unit, long nowNanos) {
+        Reading reading = latest.get();
+        long age = Math.max(0, Math.min(maxExtrapolationNanos, nowNanos - reading.nanos));
+        return unit.fromRadians(AngleUnit.normalizeRadians(reading.yaw + reading.yawRate * age / 1e9));
+    }
+
+    /** @return the latest reading, without extrapolation.  Never blocks. */
+    public Reading getReading()           { return latest.get(); }
+
+    /** @return how old the latest reading is. */
+    public long getAgeNanos()             { return clock.getAsLong() - latest.get().nanos; }
+
+    /** @return number of readings taken. */
+    public long getSampleCount()          { return samples; }
+
+    /** @return measured readings per second since start(). */
+    public double getSampleRate() {
+        long elapsed = System.nanoTime() - startNanos;
+        return (startNanos == 0 || elapsed <= 0) ? 0 : samples * 1e9 / elapsed;
+    }
+
+    /** @return mean time taken by one reading (orientation and angular velocity), in milliseconds. */
+    public double getMeanReadMs() {
+        long count = samples;
+        return (count == 0) ? 0 : totalReadNanos / 1e6 / count;
+    }
+
+    /** @return number of readings that took longer than the period. */
+    public long getOverruns()             { return overruns; }
+
+    /** @return the exception that stopped the sampler, or null. */
+    public Throwable getFailure()         { return failure; }
+}
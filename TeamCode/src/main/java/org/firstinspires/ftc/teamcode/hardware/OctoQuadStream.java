@@ -0,0 +1,357 @@
+package org.firstinspires.ftc.teamcode.hardware;
+
+import com.qualcomm.hardware.digitalchickenlabs.OctoQuad;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * Reads an OctoQuad at a fixed rate on its own thread, and publishes timestamped swerve module states.
+ *
+ * SensorOctoQuadAdv reads one EncoderDataBlock each time round the OpMode loop, so how fresh the data is, and
+ * when it was taken, depend on how long the rest of the loop happened to take.  Here a dedicated thread calls
+ * readAllEncoderData() every period (2 mS by default), stamps each block with the System.nanoTime() at the middle
+ * of the read, and turns it into module states:
+ *  - drive position (inches) and drive velocity (inches per second),
+ *  - steer angle, wrapped to -PI..PI, and unwrapped (continuous across turns), in radians,
+ *  - steer rate (radians per second).
+ * Velocities are differences of the stamped positions over a fixed window (20 mS by default), so their resolution
+ * depends only on the window, never on how often the OpMode polls.
+ *
+ * Channels are used as in SensorOctoQuadAdv: bank 1 quadrature drive encoders, bank 2 pulse width absolute steer
+ * encoders (REV Through Bore, pulse width range set to 1..1024 uS).  Configure the OctoQuad before starting.
+ *
+ * States are published into two preallocated buffers, used alternately.  The stream writes the next sample into
+ * the buffer nobody is being pointed at, then publishes it; read() copies the latest buffer into the caller's own
+ * Sample, and checks that the stream hasn't started overwriting that buffer in the meantime (it would have to
+ * produce two more samples first).  Reads never block, never allocate, and never see half of one sample and half
+ * of another.  The buffers are AtomicLongArrays, so the check is valid under the Java memory model.
+ *
+ *     OctoQuadStream stream = new OctoQuadStream(OctoQuadStream.Source.of(octoquad), 2000);
+ *     stream.addModule(0, 4, DRIVE_COUNTS_PER_INCH, LF_OFFSET_DEGREES, false);
+ *     ...
+ *     OctoQuadStream.Sample sample = stream.newSample();
+ *     stream.start();
+ *     while (opModeIsActive()) {
+ *         if (stream.read(sample)) { ... }
+ *     }
+ *     stream.stop();
+ *
+ * Each OctoQuad read is an I2C transaction on the hub, so the stream's reads and the OpMode's own hardware calls
+ * share the hub's time.  Choose a period that leaves room for the rest of the robot.
+ */
+public class OctoQuadStream {
+
+    /** Degrees per microsecond of the REV Through Bore Encoder's absolute pulse width output. */
+    public static final double STEER_DEGREES_PER_US = 360.0 / 1024.0;
+
+    private static final int VALUES_PER_MODULE = 5;    // drive position, drive velocity, steer, unwrapped, rate.
+
+    /**
+     * Where the stream reads encoder positions from.  On the robot, use Source.of(octoquad).
+     */
+    public interface Source {
+        /** Read all eight channels' positions (counts, or pulse width in uS) into positions[0..7]. */
+        void readPositions(int[] positions);
+
+        static Source of(final OctoQuad octoquad) {
+            final OctoQuad.EncoderDataBlock block = new OctoQuad.EncoderDataBlock();
+            return new Source() {
+                @Override
+                public void readPositions(int[] positions) {
+                    octoquad.readAllEncoderData(block);
+                    System.arraycopy(block.positions, 0, positions, 0, positions.length);
+                }
+            };
+        }
+    }
+
+    /**
+     * One published set of module states.  Allocate with newSample(), once, and refill it with read().
+     */
+    public static class Sample {
+        private final double[] values;
+        private long sequence  = 0;
+        private long timestamp = 0;
+
+        private Sample(int modules) {
+            values = new double[modules * VALUES_PER_MODULE];
+        }
+
+        /** @return the sample number, counting from 1.  0 means no sample has been read yet. */
+        public long getSequence()                    { return sequence; }
+
+        /** @return System.nanoTime() at the middle of the OctoQuad read. */
+        public long getTimestampNanos()              { return timestamp; }
+
+        /** @return how long ago the encoders were read. */
+        public long getAgeNanos()                    { return System.nanoTime() - timestamp; }
+
+        public int getModuleCount()                  { return values.length / VALUES_PER_MODULE; }
+
+        /** @return drive wheel distance since the encoders were last reset, in inches. */
+        public double getDrivePosition(int module)   { return values[module * VALUES_PER_MODULE]; }
+
+        /** @return drive wheel speed, in inches per second. */
+        public double getDriveVelocity(int module)   { return values[module * VALUES_PER_MODULE + 1]; }
+
+        /** @return steer angle in radians, -PI to PI, CCW positive. */
+        public double getSteerAngle(int module)      { return values[module * VALUES_PER_MODULE + 2]; }
+
+        /** @return steer angle in radians, continuous: it keeps counting past +/-PI as the module turns. */
+        public double getUnwrappedAngle(int module)  { return values[module * VALUES_PER_MODULE + 3]; }
+
+        /** @return steer rate in radians per second, CCW positive. */
+        public double getSteerRate(int module)       { return values[module * VALUES_PER_MODULE + 4]; }
+    }
+
+    private static class Module {
+        final int     driveChannel;
+        final int     steerChannel;
+        final double  inchesPerCount;
+        final double  steerOffset;        // radians
+        final double  steerSign;
+
+        Module(int driveChannel, int steerChannel, double countsPerInch, double steerOffsetDegrees,
+               boolean invertSteer) {
+            this.driveChannel   = driveChannel;
+            this.steerChannel   = steerChannel;
+            this.inchesPerCount = 1.0 / countsPerInch;
+            this.steerOffset    = Math.toRadians(steerOffsetDegrees);
+            this.steerSign      = invertSteer ? -1 : 1;
+        }
+    }
+
+    private final Source       source;
+    private final long         periodNanos;
+    private final List<Module> moduleList = new ArrayList<>();
+    private long               windowNanos = 20_000_000L;
+
+    // Acquisition state, only touched by the stream thread once started.
+    private Module[]  modules;
+    private int[]     positions;
+    private long[]    history;           // Ring of recent timestamps...
+    private double[]  driveHistory;      // ...and, per module, the drive positions...
+    private double[]  steerHistory;      // ...and unwrapped steer angles at those times.
+    private double[]  wrapped;           // Last wrapped steer angle, per module.
+    private double[]  unwrapped;         // Running unwrapped steer angle, per module.
+    private double[]  states;            // The sample being built.
+    private int       historySize;
+    private int       count;
+
+    // Publication: two buffers, each holding a timestamp followed by the module states as raw long bits.
+    private AtomicLongArray[] buffers;
+    private volatile long     published = 0;     // Number of the latest complete sample.
+    private volatile long     writing   = 0;     // Number of the sample being written (or the latest, when idle).
+
+    // Statistics.  Only ever written by the stream thread.
+    private volatile long      totalReadNanos = 0;
+    private volatile long      overruns       = 0;
+    private volatile long      startNanos     = 0;
+    private volatile Throwable failure        = null;
+
+    private Thread thread = null;
+
+    /**
+     * @param source       where to read from.
+     * @param periodMicros time between reads, in microseconds.  2000 (500 per second) suits most robots.
+     */
+    public OctoQuadStream(Source source, long periodMicros) {
+        this.source      = source;
+        this.periodNanos = periodMicros * 1000;
+    }
+
+    /**
+     * Set the window over which velocities are measured.  Longer is smoother, and lags more.  The default is 20 mS.
+     * Call this before start().
+     */
+    public void setVelocityWindow(double milliseconds) {
+        windowNanos = (long) (milliseconds * 1e6);
+    }
+
+    /**
+     * Add a swerve module.  Call this before start(); modules are numbered in the order they are added.
+     *
+     * @param driveChannel       quadrature channel of the drive encoder (0..3 in SensorOctoQuadAdv's configuration).
+     * @param steerChannel       pulse width channel of the absolute steer encoder (4..7).
+     * @param countsPerInch      drive encoder counts per inch of wheel travel.  Negative reverses the drive.
+     * @param steerOffsetDegrees absolute encoder reading when the module points straight ahead.
+     * @param invertSteer        true if turning the module CCW decreases the encoder reading.
+     * @return the module's index.
+     */
+    public int addModule(int driveChannel, int steerChannel, double countsPerInch, double steerOffsetDegrees,
+                         boolean invertSteer) {
+        moduleList.add(new Module(driveChannel, steerChannel, countsPerInch, steerOffsetDegrees, invertSteer));
+        return moduleList.size() - 1;
+    }
+
+    /** @return a Sample sized for this stream's modules, for use with read(). */
+    public Sample newSample() {
+        return new Sample(moduleList.size());
+    }
+
+    /**
+     * Start reading.  The first sample is published after the first read.
+     */
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        int n = moduleList.size();
+        modules      = moduleList.toArray(new Module[n]);
+        positions    = new int[8];
+        historySize  = (int) Math.max(2, windowNanos / Math.max(1, periodNanos) + 1);
+        history      = new long[historySize];
+        driveHistory = new double[historySize * n];
+        steerHistory = new double[historySize * n];
+        wrapped      = new double[n];
+        unwrapped    = new double[n];
+        states       = new double[n * VALUES_PER_MODULE];
+        buffers      = new AtomicLongArray[] {new AtomicLongArray(1 + states.length),
+                                              new AtomicLongArray(1 + states.length)};
+        count        = 0;
+
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                acquire();
+            }
+        }, "OctoQuad stream");
+        thread.setPriority(Thread.MAX_PRIORITY);
+        thread.start();
+    }
+
+    /**
+     * Stop reading, and wait for the thread to finish.  The last sample stays available.
+     */
+    public synchronized void stop() throws InterruptedException {
+        if (thread != null) {
+            thread.interrupt();
+            thread.join();
+            thread = null;
+        }
+    }
+
+    private void acquire() {
+        startNanos = System.nanoTime();
+        long next = startNanos;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                long before = System.nanoTime();
+                source.readPositions(positions);
+                long after = System.nanoTime();
+                totalReadNanos += after - before;
+
+                process(before + (after - before) / 2);
+
+                // Wait for the next period.  If the read overran it, start again from now rather than catching up
+                // with a burst of back-to-back reads.
+                next += periodNanos;
+                long now = System.nanoTime();
+                if (now >= next) {
+                    overruns++;
+                    next = now;
+                }
+                while (now < next && !Thread.currentThread().isInterrupted()) {
+                    LockSupport.parkNanos(next - now);
+                    now = System.nanoTime();
+                }
+            }
+        } catch (RuntimeException e) {
+            failure = e;        // The OctoQuad was closed, or disconnected.
+        }
+    }
+
+    // Turn one block of positions into module states, and publish them.
+    private void process(long timestamp) {
+        int slot = count % historySize;
+        int oldest = (count < historySize) ? 0 : (count + 1) % historySize;
+        history[slot] = timestamp;
+
+        for (int m = 0; m < modules.length; m++) {
+            Module module = modules[m];
+            double drive = positions[module.driveChannel] * module.inchesPerCount;
+            double angle = normalize(module.steerSign
+                           * Math.toRadians(positions[module.steerChannel] * STEER_DEGREES_PER_US)
+                           - module.steerOffset);
+            unwrapped[m] = (count == 0) ? angle : unwrapped[m] + normalize(angle - wrapped[m]);
+            wrapped[m]   = angle;
+
+            driveHistory[slot * modules.length + m] = drive;
+            steerHistory[slot * modules.length + m] = unwrapped[m];
+
+            double dt = (timestamp - history[oldest]) / 1e9;
+            int    s  = m * VALUES_PER_MODULE;
+            states[s]     = drive;
+            states[s + 1] = (dt > 0) ? (drive - driveHistory[oldest * modules.length + m]) / dt : 0;
+            states[s + 2] = angle;
+            states[s + 3] = unwrapped[m];
+            states[s + 4] = (dt > 0) ? (unwrapped[m] - steerHistory[oldest * modules.length + m]) / dt : 0;
+        }
+        count++;
+        publish(timestamp);
+    }
+
+    private void publish(long timestamp) {
+        long sequence = published + 1;
+        writing = sequence;
+        AtomicLongArray buffer = buffers[(int) (sequence & 1)];
+        buffer.set(0, timestamp);
+        for (int i = 0; i < states.length; i++) {
+            buffer.set(i + 1, Double.doubleToRawLongBits(states[i]));
+        }
+        published = sequence;
+    }
+
+    /**
+     * Copy the latest module states into a Sample.  Never blocks.
+     *
+     * @return true if the sample now holds newer states than it did before.
+     */
+    public boolean read(Sample sample) {
+        while (true) {
+            long sequence = published;
+            if (sequence == 0 || sequence == sample.sequence) {
+                return false;
+            }
+            AtomicLongArray buffer = buffers[(int) (sequence & 1)];
+            long timestamp = buffer.get(0);
+            for (int i = 0; i < sample.values.length; i++) {
+                sample.values[i] = Double.longBitsToDouble(buffer.get(i + 1));
+            }
+            // The buffer is only rewritten for sample (sequence + 2).  If that hasn't begun, the copy is intact.
+            if (writing <= sequence + 1) {
+                sample.sequence  = sequence;
+                sample.timestamp = timestamp;
+                return true;
+            }
+        }
+    }
+
+    private static double normalize(double radians) {
+        return Math.atan2(Math.sin(radians), Math.cos(radians));
+    }
+
+    /** @return number of samples published so far. */
+    public long getSampleCount()          { return published; }
+
+    /** @return measured samples per second since start(). */
+    public double getSampleRate() {
+        long elapsed = System.nanoTime() - startNanos;
+        return (startNanos == 0 || elapsed <= 0) ? 0 : published * 1e9 / elapsed;
+    }
+
+    /** @return mean time taken by one readAllEncoderData() call, in milliseconds. */
+    public double getMeanReadMs() {
+        long samples = published;
+        return (samples == 0) ? 0 : totalReadNanos / 1e6 / samples;
+    }
+
+    /** @return number of reads that took longer than the period. */
+    public long getOverruns()             { return overruns; }
+
+    /** @return the exception that stopped the stream, or null. */
+    public Throwable getFailure()         { return failure; }
+}
@@ -0,0 +1,544 @@
+package org.firstinspires.ftc.teamcode.localization;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * An extended Kalman filter that fuses every motion sensor on the robot into one field pose, with its uncertainty.
+ *
+ * RobotAutoDriveByEncoder_Linear, SensorSparkFunOTOS and SensorIMUOrthogonal each read one source of motion, and each
+ * has its own failure: wheels slip, the OTOS drifts and can lose the floor, and the IMU only knows heading.  This
+ * filter keeps one estimate of the robot's state:
+ *     x, y, heading                    field pose (heading CCW from +x),
+ *     forward, left, turn              velocity in the robot's frame,
+ * with a 6x6 covariance, and corrects it with whatever each sensor measures, whenever that sensor is read:
+ *  - addOdometry():      drive encoders or dead wheels (e.g. from OctoQuadStream): the robot-relative motion since
+ *                        the last reading, used as a velocity measurement over that interval.  addOdometryPose()
+ *                        takes a pose from an odometry source that tracks its own pose instead.
+ *  - addOtos():          a SparkFun OTOS' field position and field velocity.
+ *  - addImuYawRate():    an IMU's yaw rate.
+ *  - addFieldPose():     any other field pose, e.g. from MultiTagLocalizer, with its own uncertainty.  It's applied
+ *                        at the current time; LatencyCompensatedPoseEstimator is for delayed measurements.
+ *
+ * Each measurement carries the System.nanoTime() it was read at.  The filter predicts its state forward to that time
+ * (constant velocity, with the process noise set by the expected acceleration) and then applies the measurement, so
+ * sensors can be read at different rates, and skipped on some loops.  A measurement older than the filter's current
+ * time is applied as if it were current, and counted as late.
+ *
+ * Measurements are applied one value at a time (sequential scalar updates, which give the same result as updating
+ * with the whole vector when the noises are independent).  So there are no matrices to invert: the filter is a few
+ * fixed-size double arrays, allocated in the constructor, and nothing is allocated after that.  A loop with all three
+ * sensors takes a few microseconds.
+ *
+ * The latest estimate is published after every measurement, as OctoQuadStream publishes its samples, so other
+ * threads (a vision processor, a telemetry thread) can read() it without locking:
+ *
+ *     FusedLocalizer localizer = new FusedLocalizer();
+ *     localizer.setPose(startX, startY, startHeading, 1.0, Math.toRadians(2));
+ *     while (opModeIsActive()) {
+ *         long now = System.nanoTime();
+ *         localizer.addOdometry(now, forwardInches, leftInches, turnRadians);
+ *         localizer.addImuYawRate(now, imuYawRate);
+ *         ...
+ *         double x = localizer.getX();
+ *     }
+ *
+ * Units are inches, radians and seconds, as in LatencyCompensatedPoseEstimator.
+ * A filter belongs to one thread: only read() and newEstimate() may be called from others.
+ */
+public class FusedLocalizer {
+
+    // State indices.
+    public static final int X = 0, Y = 1, HEADING = 2, FORWARD = 3, LEFT = 4, TURN = 5;
+
+    private static final int N = 6;
+    private static final int PUBLISHED_VALUES = 1 + N + 9;          // time, state, pose covariance.
+
+    /**
+     * One published estimate.  Allocate with newEstimate(), once, and refill it with read().
+     */
+    public static class Estimate {
+        private final double[] state      = new double[N];
+        private final double[] covariance = new double[9];          // The pose's: x, y, heading.
+        private long sequence  = 0;
+        private long timeNanos = 0;
+
+        private Estimate() {
+        }
+
+        /** @return the number of the estimate, counting from 1.  0 means none has been read yet. */
+        public long getSequence()              { return sequence; }
+
+        /** @return System.nanoTime() the estimate is for: the time of the last measurement. */
+        public long getTimeNanos()             { return timeNanos; }
+
+        public double getX()                   { return state[X]; }
+
+        public double getY()                   { return state[Y]; }
+
+        public double getHeading()             { return state[HEADING]; }
+
+        /** @return velocity in the robot's frame, in inches per second. */
+        public double getForwardVelocity()     { return state[FORWARD]; }
+
+        public double getLeftVelocity()        { return state[LEFT]; }
+
+        /** @return turn rate, in radians per second, CCW positive. */
+        public double getTurnRate()            { return state[TURN]; }
+
+        /** @return covariance between two of X, Y and HEADING. */
+        public double getCovariance(int row, int column) { return covariance[3 * row + column]; }
+
+        /** @return standard deviation of the position, along its most uncertain direction, in inches. */
+        public double getPositionStd()         { return positionStd(covariance[0], covariance[1], covariance[4]); }
+
+        /** @return standard deviation of the heading, in radians. */
+        public double getHeadingStd()          { return Math.sqrt(covariance[8]); }
+    }
+
+    private final double[] state = new double[N];
+    private final double[] p     = new double[N * N];      // Covariance, row by row.
+
+    // Preallocated working space.
+    private final double[] f   = new double[N * N];
+    private final double[] fp  = new double[N * N];
+    private final double[] h   = new double[N];
+    private final double[] pht = new double[N];
+
+    // Noise, as standard deviations.
+    private double accelerationNoise = 60;      // Inches per second squared.
+    private double turnAccelNoise    = 10;      // Radians per second squared.
+    private double odometryNoise     = 5;       // Inches per second.
+    private double odometryTurnNoise = 0.1;     // Radians per second.
+    private double otosPositionNoise = 0.5;     // Inches.
+    private double otosHeadingNoise  = 0.01;    // Radians.
+    private double otosVelocityNoise = 2;       // Inches per second.
+    private double otosTurnNoise     = 0.05;    // Radians per second.
+    private double imuYawRateNoise   = 0.02;    // Radians per second.
+    private double gate              = 0;       // Innovations beyond this many standard deviations are rejected.
+
+    private boolean started = false;
+    private long    timeNanos;
+
+    // Odometry, to turn each reading into a velocity over the interval since the last.
+    private boolean haveOdometry     = false;
+    private long    lastOdometryNanos;
+    private boolean haveOdometryPose = false;
+    private double  lastOdoX, lastOdoY, lastOdoHeading;
+
+    private long updates  = 0;
+    private long rejected = 0;
+    private long late     = 0;
+
+    // Publishing, as in OctoQuadStream.
+    private final AtomicLongArray[] buffers = {
+            new AtomicLongArray(PUBLISHED_VALUES),
+            new AtomicLongArray(PUBLISHED_VALUES),
+    };
+    private volatile long published = 0;
+    private volatile long writing   = 0;
+
+    /**
+     * A filter at the field origin, heading 0, standing still, and sure of it.  Use setPose() to start elsewhere.
+     */
+    public FusedLocalizer() {
+        setPose(0, 0, 0, 0, 0);
+    }
+
+    // ---------------------------------------------------------------------------------------------------------------
+    // Settings.
+
+    /**
+     * Set the pose, with its uncertainty, and the velocity to zero.  The history of odometry readings is discarded.
+     *
+     * @param positionStd standard deviation of x and y, in inches.
+     * @param headingStd  standard deviation of the heading, in radians.
+     */
+    public void setPose(double x, double y, double heading, double positionStd, double headingStd) {
+        for (int i = 0; i < N * N; i++) {
+            p[i] = 0;
+        }
+        state[X]       = x;
+        state[Y]       = y;
+        state[HEADING] = LatencyCompensatedPoseEstimator.normalize(heading);
+        state[FORWARD] = state[LEFT] = state[TURN] = 0;
+        p[X * N + X]             = p[Y * N + Y] = positionStd * positionStd;
+        p[HEADING * N + HEADING] = headingStd * headingStd;
+        started          = false;
+        haveOdometry     = false;
+        haveOdometryPose = false;
+    }
+
+    /**
+     * Set how hard the robot can change its motion, which sets how fast the filter lets its velocity change.
+     *
+     * @param acceleration     standard deviation of acceleration, in inches per second squared (60 by default).
+     * @param turnAcceleration standard deviation of angular acceleration, in radians per second squared (10).
+     */
+    public void setProcessNoise(double acceleration, double turnAcceleration) {
+        accelerationNoise = acceleration;
+        turnAccelNoise    = turnAcceleration;
+    }
+
+    /**
+     * @param velocity standard deviation of the velocity odometry measures, in inches per second (5 by default).
+     * @param turnRate standard deviation of the turn rate it measures, in radians per second (0.1).
+     */
+    public void setOdometryNoise(double velocity, double turnRate) {
+        odometryNoise     = velocity;
+        odometryTurnNoise = turnRate;
+    }
+
+    /**
+     * @param position        standard deviation of the OTOS' position, in inches (0.5 by default).
+     * @param heading         of its heading, in radians (0.01).
+     * @param velocity        of its velocity, in inches per second (2).
+     * @param turnRate        of its turn rate, in radians per second (0.05).
+     */
+    public void setOtosNoise(double position, double heading, double velocity, double turnRate) {
+        otosPositionNoise = position;
+        otosHeadingNoise  = heading;
+        otosVelocityNoise = velocity;
+        otosTurnNoise     = turnRate;
+    }
+
+    /**
+     * @param yawRate standard deviation of the IMU's yaw rate, in radians per second (0.02 by default).
+     */
+    public void setImuNoise(double yawRate) {
+        imuYawRateNoise = yawRate;
+    }
+
+    /**
+     * Reject any measured value further from the estimate than this many standard deviations (of the difference),
+     * such as an OTOS reading taken while it's lifted off the floor.  0, the default, accepts everything.
+     */
+    public void setGate(double sigmas) {
+        gate = sigmas;
+    }
+
+    // ---------------------------------------------------------------------------------------------------------------
+    // Measurements.
+
+    /**
+     * Add one odometry reading: the robot-relative motion since the last one.  The first reading after setPose()
+     * only starts the interval.
+     *
+     * @param timestampNanos System.nanoTime() at which the odometry was read.
+     * @param forward, left  distance moved, in inches, in the robot's frame.
+     * @param turn           angle turned, in radians, CCW positive.
+     */
+    public void addOdometry(long timestampNanos, double forward, double left, double turn) {
+        if (!haveOdometry) {
+            haveOdometry      = true;
+            lastOdometryNanos = timestampNanos;
+            advance(timestampNanos);
+            publish();
+            return;
+        }
+        double dt = (timestampNanos - lastOdometryNanos) * 1e-9;
+        if (dt <= 0) {
+            return;
+        }
+        lastOdometryNanos = timestampNanos;
+        advance(timestampNanos);
+        updateState(FORWARD, forward / dt, odometryNoise);
+        updateState(LEFT, left / dt, odometryNoise);
+        updateState(TURN, turn / dt, odometryTurnNoise);
+        publish();
+    }
+
+    /**
+     * Add one reading from an odometry source that reports a pose in its own frame, such as a dead-wheel localizer.
+     * Only the change since the last reading is used, so that frame doesn't need to match the field.
+     */
+    public void addOdometryPose(long timestampNanos, double odoX, double odoY, double odoHeading) {
+        double forward = 0, left = 0, turn = 0;
+        if (haveOdometryPose) {
+            // As in LatencyCompensatedPoseEstimator, the motion is expressed at the midpoint heading.
+            turn = LatencyCompensatedPoseEstimator.normalize(odoHeading - lastOdoHeading);
+            double dx  = odoX - lastOdoX;
+            double dy  = odoY - lastOdoY;
+            double cos = Math.cos(lastOdoHeading + turn / 2);
+            double sin = Math.sin(lastOdoHeading + turn / 2);
+            forward =  dx * cos + dy * sin;
+            left    = -dx * sin + dy * cos;
+        }
+        lastOdoX         = odoX;
+        lastOdoY         = odoY;
+        lastOdoHeading   = odoHeading;
+        haveOdometryPose = true;
+        addOdometry(timestampNanos, forward, left, turn);
+    }
+
+    /**
+     * Add one SparkFun OTOS reading, with its position and velocity in the field frame (set its position with
+     * setPosition() to the robot's starting pose, as well as calling setPose() here).
+     */
+    public void addOtos(long timestampNanos, double x, double y, double heading,
+                        double xVelocity, double yVelocity, double turnRate) {
+        advance(timestampNanos);
+        updateState(X, x, otosPositionNoise);
+        updateState(Y, y, otosPositionNoise);
+        updateState(HEADING, heading, otosHeadingNoise);
+
+        // Field velocity from the robot-frame velocity: linearized at the current estimate.
+        double cos = Math.cos(state[HEADING]), sin = Math.sin(state[HEADING]);
+        double vx = state[FORWARD] * cos - state[LEFT] * sin;
+        double vy = state[FORWARD] * sin + state[LEFT] * cos;
+        clearRow();
+        h[HEADING] = -vy;
+        h[FORWARD] = cos;
+        h[LEFT]    = -sin;
+        update(xVelocity - vx, otosVelocityNoise);
+
+        cos = Math.cos(state[HEADING]);
+        sin = Math.sin(state[HEADING]);
+        vx = state[FORWARD] * cos - state[LEFT] * sin;
+        vy = state[FORWARD] * sin + state[LEFT] * cos;
+        clearRow();
+        h[HEADING] = vx;
+        h[FORWARD] = sin;
+        h[LEFT]    = cos;
+        update(yVelocity - vy, otosVelocityNoise);
+
+        updateState(TURN, turnRate, otosTurnNoise);
+        publish();
+    }
+
+    /**
+     * Add one IMU yaw rate, in radians per second, CCW positive.
+     */
+    public void addImuYawRate(long timestampNanos, double yawRate) {
+        advance(timestampNanos);
+        updateState(TURN, yawRate, imuYawRateNoise);
+        publish();
+    }
+
+    /**
+     * Add a field pose measured some other way.
+     *
+     * @param positionStd standard deviation of x and y, in inches.
+     * @param headingStd  standard deviation of the heading, in radians.
+     */
+    public void addFieldPose(long timestampNanos, double x, double y, double heading,
+                             double positionStd, double headingStd) {
+        advance(timestampNanos);
+        updateState(X, x, positionStd);
+        updateState(Y, y, positionStd);
+        updateState(HEADING, heading, headingStd);
+        publish();
+    }
+
+    // ---------------------------------------------------------------------------------------------------------------
+    // The filter.
+
+    // Predict forward to a measurement's time.
+    private void advance(long timestampNanos) {
+        if (!started) {
+            started   = true;
+            timeNanos = timestampNanos;
+            return;
+        }
+        if (timestampNanos < timeNanos) {
+            late++;
+            return;
+        }
+        double dt = (timestampNanos - timeNanos) * 1e-9;
+        timeNanos = timestampNanos;
+        if (dt > 0) {
+            predict(dt);
+        }
+    }
+
+    private void predict(double dt) {
+        double cos = Math.cos(state[HEADING]), sin = Math.sin(state[HEADING]);
+        double dx  = (state[FORWARD] * cos - state[LEFT] * sin) * dt;
+        double dy  = (state[FORWARD] * sin + state[LEFT] * cos) * dt;
+
+        // Jacobian of the motion.
+        for (int i = 0; i < N * N; i++) {
+            f[i] = 0;
+        }
+        for (int i = 0; i < N; i++) {
+            f[i * N + i] = 1;
+        }
+        f[X * N + HEADING]       = -dy;
+        f[X * N + FORWARD]       = cos * dt;
+        f[X * N + LEFT]          = -sin * dt;
+        f[Y * N + HEADING]       = dx;
+        f[Y * N + FORWARD]       = sin * dt;
+        f[Y * N + LEFT]          = cos * dt;
+        f[HEADING * N + TURN]    = dt;
+
+        state[X]       += dx;
+        state[Y]       += dy;
+        state[HEADING]  = LatencyCompensatedPoseEstimator.normalize(state[HEADING] + state[TURN] * dt);
+
+        // P = F P F' + Q, with Q on the velocities.
+        for (int i = 0; i < N; i++) {
+            for (int j = 0; j < N; j++) {
+                double sum = 0;
+                for (int k = 0; k < N; k++) {
+                    sum += f[i * N + k] * p[k * N + j];
+                }
+                fp[i * N + j] = sum;
+            }
+        }
+        for (int i = 0; i < N; i++) {
+            for (int j = i; j < N; j++) {
+                double sum = 0;
+                for (int k = 0; k < N; k++) {
+                    sum += fp[i * N + k] * f[j * N + k];
+                }
+                p[i * N + j] = p[j * N + i] = sum;
+            }
+        }
+        p[FORWARD * N + FORWARD] += accelerationNoise * accelerationNoise * dt;
+        p[LEFT * N + LEFT]       += accelerationNoise * accelerationNoise * dt;
+        p[TURN * N + TURN]       += turnAccelNoise * turnAccelNoise * dt;
+    }
+
+    private void clearRow() {
+        for (int i = 0; i < N; i++) {
+            h[i] = 0;
+        }
+    }
+
+    // A measurement of one state value.
+    private void updateState(int index, double measured, double std) {
+        clearRow();
+        h[index] = 1;
+        double innovation = measured - state[index];
+        if (index == HEADING) {
+            innovation = LatencyCompensatedPoseEstimator.normalize(innovation);
+        }
+        update(innovation, std);
+    }
+
+    // A scalar update, with the measurement row in h.
+    private void update(double innovation, double std) {
+        double s = std * std;
+        for (int i = 0; i < N; i++) {
+            double sum = 0;
+            for (int j = 0; j < N; j++) {
+                sum += p[i * N + j] * h[j];
+            }
+            pht[i] = sum;
+            s += h[i] * sum;
+        }
+        if (s <= 0) {
+            return;
+        }
+        if (gate > 0 && innovation * innovation > gate * gate * s) {
+            rejected++;
+            return;
+        }
+        // K = P H' / s.  x += K innovation, P -= K H P, keeping P symmetric.
+        for (int i = 0; i < N; i++) {
+            state[i] += pht[i] / s * innovation;
+        }
+        state[HEADING] = LatencyCompensatedPoseEstimator.normalize(state[HEADING]);
+        for (int i = 0; i < N; i++) {
+            for (int j = i; j < N; j++) {
+                p[i * N + j] = p[j * N + i] = p[i * N + j] - pht[i] * pht[j] / s;
+            }
+            if (p[i * N + i] < 0) {
+                p[i * N + i] = 0;
+            }
+        }
+        updates++;
+    }
+
+    private void publish() {
+        long sequence = published + 1;
+        writing = sequence;
+        AtomicLongArray buffer = buffers[(int) (sequence & 1)];
+        buffer.set(0, timeNanos);
+        for (int i = 0; i < N; i++) {
+            buffer.set(1 + i, Double.doubleToRawLongBits(state[i]));
+        }
+        for (int row = 0; row < 3; row++) {
+            for (int column = 0; column < 3; column++) {
+                buffer.set(1 + N + 3 * row + column, Double.doubleToRawLongBits(p[row * N + column]));
+            }
+        }
+        published = sequence;
+    }
+
+    // ---------------------------------------------------------------------------------------------------------------
+    // Output.
+
+    /**
+     * @return an Estimate to read() into.  Allocate one per reading thread, once.
+     */
+    public Estimate newEstimate() {
+        return new Estimate();
+    }
+
+    /**
+     * Copy the latest estimate into estimate.  Never blocks.
+     *
+     * @return true if estimate now holds a newer estimate than it did before.
+     */
+    public boolean read(Estimate estimate) {
+        while (true) {
+            long sequence = published;
+            if (sequence == 0 || sequence == estimate.sequence) {
+                return false;
+            }
+            AtomicLongArray buffer = buffers[(int) (sequence & 1)];
+            long time = buffer.get(0);
+            for (int i = 0; i < N; i++) {
+                estimate.state[i] = Double.longBitsToDouble(buffer.get(1 + i));
+            }
+            for (int i = 0; i < 9; i++) {
+                estimate.covariance[i] = Double.longBitsToDouble(buffer.get(1 + N + i));
+            }
+            // The buffer is only rewritten for estimate (sequence + 2).  If that hasn't begun, the copy is intact.
+            if (writing <= sequence + 1) {
+                estimate.sequence  = sequence;
+                estimate.timeNanos = time;
+                return true;
+            }
+        }
+    }
+
+    public double getX()               { return state[X]; }
+    public double getY()               { return state[Y]; }
+    public double getHeading()         { return state[HEADING]; }
+
+    /** @return velocity in the robot's frame, in inches per second. */
+    public double getForwardVelocity() { return state[FORWARD]; }
+
+    public double getLeftVelocity()    { return state[LEFT]; }
+
+    /** @return turn rate, in radians per second, CCW positive. */
+    public double getTurnRate()        { return state[TURN]; }
+
+    /** @return System.nanoTime() of the last measurement. */
+    public long getTimeNanos()         { return timeNanos; }
+
+    /** @return covariance between two state values, e.g. getCovariance(X, HEADING). */
+    public double getCovariance(int row, int column) { return p[row * N + column]; }
+
+    /** @return standard deviation of the position, along its most uncertain direction, in inches. */
+    public double getPositionStd()     { return positionStd(p[X * N + X], p[X * N + Y], p[Y * N + Y]); }
+
+    /** @return standard deviation of the heading, in radians. */
+    public double getHeadingStd()      { return Math.sqrt(p[HEADING * N + HEADING]); }
+
+    /** @return measured values applied. */
+    public long getUpdates()           { return updates; }
+
+    /** @return measured values rejected by the gate. */
+    public long getRejected()          { return rejected; }
+
+    /** @return measurements older than the estimate, applied as if they were current. */
+    public long getLate()              { return late; }
+
+    // The square root of the larger eigenvalue of a 2x2 covariance.
+    private static double positionStd(double xx, double xy, double yy) {
+        double half = (xx + yy) / 2;
+        return Math.sqrt(half + Math.sqrt((xx - yy) * (xx - yy) / 4 + xy * xy));
+    }
+}
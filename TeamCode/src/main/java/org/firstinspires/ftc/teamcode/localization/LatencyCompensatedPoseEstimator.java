@@ -0,0 +1,237 @@
+package org.firstinspires.ftc.teamcode.localization;
+
+/*
+ * A field pose estimator that fuses fast odometry with delayed vision measurements.
+ *
+ * An AprilTag pose describes where the robot was when the camera captured the frame, which is one vision pipeline
+ * delay (often 50-100 mS) before the control loop sees it.  Applying it as if it were the current pose drags the
+ * estimate backwards, which shows up as overshoot when approaching a tag at speed.
+ *
+ * This estimator keeps a ring buffer of the most recent odometry samples.  Each sample records its timestamp,
+ * the robot-relative motion since the previous sample, and the fused pose after that motion.  When a vision
+ * measurement arrives, the estimator:
+ *  1) rewinds to the sample at the measurement's capture time, interpolating between samples,
+ *  2) compares the measurement with the pose it had estimated for that moment, and corrects that pose,
+ *  3) replays every later odometry sample on top of the corrected pose, to bring it back up to "now".
+ *
+ * Measurements must be applied in capture order.  One captured before a measurement that has already been applied
+ * (eg: a frame from a slower second camera) is rejected: the later measurement already corrected the history from
+ * its own capture time, and correcting from the earlier time as well would add the same error twice.
+ *
+ * Odometry can come from any source that reports a pose in its own frame (drive encoders, a SparkFun OTOS,
+ * OctoQuad dead wheels ...).  Only the change between consecutive odometry poses is used, so that frame doesn't
+ * need to match the field.
+ *
+ * Units are the caller's choice of distance (inches in the samples), and radians for all angles.
+ * All storage is allocated in the constructor: adding samples and measurements allocates nothing.
+ */
+public class LatencyCompensatedPoseEstimator {
+
+    private final int capacity;
+
+    // Ring buffer.  Sample k holds its timestamp, the robot-relative motion since sample k-1, and the fused pose.
+    private final long[]   time;
+    private final double[] deltaForward;
+    private final double[] deltaLeft;
+    private final double[] deltaHeading;
+    private final double[] poseX;
+    private final double[] poseY;
+    private final double[] poseHeading;
+
+    private int oldest = 0;
+    private int count  = 0;
+
+    // The last raw odometry pose, used to compute each new sample's motion.
+    private boolean haveOdometry = false;
+    private double  lastOdoX, lastOdoY, lastOdoHeading;
+
+    // The current fused estimate.
+    private double x, y, heading;
+
+    private long    lastCaptureNanos    = 0;      // Capture time of the last measurement applied.
+    private boolean haveMeasurement     = false;
+    private long    correctionsApplied  = 0;
+    private long    correctionsRejected = 0;
+
+    /**
+     * @param capacity number of odometry samples to keep.  This must cover the longest vision delay:
+     *                 e.g. 64 samples covers 320 mS of history at a 5 mS loop.
+     */
+    public LatencyCompensatedPoseEstimator(int capacity) {
+        this.capacity = capacity;
+        time          = new long[capacity];
+        deltaForward  = new double[capacity];
+        deltaLeft     = new double[capacity];
+        deltaHeading  = new double[capacity];
+        poseX         = new double[capacity];
+        poseY         = new double[capacity];
+        poseHeading   = new double[capacity];
+    }
+
+    /**
+     * Set the current field pose, and discard the history.
+     */
+    public void setPose(double x, double y, double heading) {
+        this.x       = x;
+        this.y       = y;
+        this.heading = normalize(heading);
+        count           = 0;
+        haveOdometry    = false;
+        haveMeasurement = false;
+    }
+
+    /**
+     * Add one odometry reading.  Call this every control cycle, with the pose reported by the odometry source.
+     *
+     * @param timestampNanos System.nanoTime() at which the odometry was read.
+     * @param odoX           odometry X, in the odometry source's own frame.
+     * @param odoY           odometry Y, in the odometry source's own frame.
+     * @param odoHeading     odometry heading (radians, CCW positive), in the odometry source's own frame.
+     */
+    public void addOdometry(long timestampNanos, double odoX, double odoY, double odoHeading) {
+        double forward = 0, left = 0, turn = 0;
+
+        if (haveOdometry) {
+            // Express the motion since the last reading relative to the robot, so it can be replayed from any pose.
+            // The midpoint heading is used, to match applyMotion().
+            turn = normalize(odoHeading - lastOdoHeading);
+            double dx  = odoX - lastOdoX;
+            double dy  = odoY - lastOdoY;
+            double cos = Math.cos(lastOdoHeading + turn / 2);
+            double sin = Math.sin(lastOdoHeading + turn / 2);
+            forward =  dx * cos + dy * sin;
+            left    = -dx * sin + dy * cos;
+        }
+        lastOdoX       = odoX;
+        lastOdoY       = odoY;
+        lastOdoHeading = odoHeading;
+        haveOdometry   = true;
+
+        applyMotion(forward, left, turn);
+
+        int index;
+        if (count < capacity) {
+            index = (oldest + count) % capacity;
+            count++;
+        } else {
+            index = oldest;
+            oldest = (oldest + 1) % capacity;
+        }
+        time[index]         = timestampNanos;
+        deltaForward[index] = forward;
+        deltaLeft[index]    = left;
+        deltaHeading[index] = turn;
+        poseX[index]        = x;
+        poseY[index]        = y;
+        poseHeading[index]  = heading;
+    }
+
+    /**
+     * Apply a delayed field pose measurement, such as a robot pose computed from an AprilTag.
+     *
+     * @param captureNanos    System.nanoTime() at which the measurement was taken (the camera frame's capture time).
+     * @param measuredX       measured field X.
+     * @param measuredY       measured field Y.
+     * @param measuredHeading measured field heading (radians).
+     * @param positionGain    fraction (0 to 1) of the position error to correct.  1 trusts the measurement completely.
+     * @param headingGain     fraction (0 to 1) of the heading error to correct.
+     * @return false if the measurement was older than the history, or than the last measurement applied, and could
+     *         not be applied.
+     */
+    public boolean addVisionMeasurement(long captureNanos, double measuredX, double measuredY, double measuredHeading,
+                                        double positionGain, double headingGain) {
+        if (count == 0) {
+            setPose(measuredX, measuredY, measuredHeading);
+            accept(captureNanos);
+            return true;
+        }
+        if (haveMeasurement && captureNanos < lastCaptureNanos) {
+            correctionsRejected++;
+            return false;
+        }
+
+        // Find the newest sample taken at or before the capture time.
+        int newest = (oldest + count - 1) % capacity;
+        int i = newest;
+        int steps = 0;
+        while (time[i] > captureNanos) {
+            if (++steps == count) {
+                correctionsRejected++;
+                return false;
+            }
+            i = (i - 1 + capacity) % capacity;
+        }
+
+        // Interpolate the estimated pose at the capture time, part way through the motion of the following sample.
+        double estX = poseX[i], estY = poseY[i], estHeading = poseHeading[i];
+        if (i != newest) {
+            int next = (i + 1) % capacity;
+            double fraction = (double) (captureNanos - time[i]) / (time[next] - time[i]);
+            double cos = Math.cos(estHeading + fraction * deltaHeading[next] / 2);
+            double sin = Math.sin(estHeading + fraction * deltaHeading[next] / 2);
+            estX       += fraction * (deltaForward[next] * cos - deltaLeft[next] * sin);
+            estY       += fraction * (deltaForward[next] * sin + deltaLeft[next] * cos);
+            estHeading += fraction * deltaHeading[next];
+        }
+
+        // Correct the pose at that point in the history ...
+        poseX[i]       += positionGain * (measuredX - estX);
+        poseY[i]       += positionGain * (measuredY - estY);
+        poseHeading[i]  = normalize(poseHeading[i] + headingGain * normalize(measuredHeading - estHeading));
+
+        // ... then replay all later motion on top of it.
+        x       = poseX[i];
+        y       = poseY[i];
+        heading = poseHeading[i];
+        while (i != newest) {
+            i = (i + 1) % capacity;
+            applyMotion(deltaForward[i], deltaLeft[i], deltaHeading[i]);
+            poseX[i]       = x;
+            poseY[i]       = y;
+            poseHeading[i] = heading;
+        }
+
+        accept(captureNanos);
+        return true;
+    }
+
+    private void accept(long captureNanos) {
+        lastCaptureNanos = captureNanos;
+        haveMeasurement  = true;
+        correctionsApplied++;
+    }
+
+    public double getX()       { return x; }
+    public double getY()       { return y; }
+    public double getHeading() { return heading; }
+
+    /** @return age of the oldest sample still held, i.e. the oldest measurement that can be applied. */
+    public long getHistoryNanos(long nowNanos) {
+        return (count == 0) ? 0 : nowNanos - time[oldest];
+    }
+
+    /** @return number of vision measurements applied. */
+    public long getCorrectionsApplied()  { return correctionsApplied; }
+
+    /** @return number of vision measurements that were too old for the history buffer, or out of order. */
+    public long getCorrectionsRejected() { return correctionsRejected; }
+
+    // Move the current estimate by a robot-relative motion.  The midpoint heading is used for the translation.
+    private void applyMotion(double forward, double left, double turn) {
+        double midHeading = heading + turn / 2;
+        double cos = Math.cos(midHeading);
+        double sin = Math.sin(midHeading);
+        x += forward * cos - left * sin;
+        y += forward * sin + left * cos;
+        heading = normalize(heading + turn);
+    }
+
+    /**
+     * @return angle wrapped into the range -PI to +PI.
+     */
+    public static double normalize(double radians) {
+        while (radians > Math.PI)   radians -= 2 * Math.PI;
+        while (radians <= -Math.PI) radians += 2 * Math.PI;
+        return radians;
+    }
+}
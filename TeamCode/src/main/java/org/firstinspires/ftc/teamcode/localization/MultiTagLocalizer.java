@@ -0,0 +1,503 @@
+package org.firstinspires.ftc.teamcode.localization;
+
+import org.firstinspires.ftc.robotcore.external.navigation.Quaternion;
+import org.firstinspires.ftc.vision.apriltag.AprilTagDetection;
+import org.firstinspires.ftc.vision.apriltag.AprilTagLibrary;
+import org.firstinspires.ftc.vision.apriltag.AprilTagMetadata;
+
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * Solves one robot field pose from every AprilTag in a frame, instead of from one desired tag.
+ *
+ * ConceptAprilTag and the drive-to-tag samples use one detection's ftcPose.  Each ftcPose is solved from that
+ * tag's four corners alone, so it is noisy (mostly in yaw, which swings the position at range), and when the
+ * chosen tag changes, the pose jumps by the difference between the two tags' errors.  This localizer fits a single
+ * pose to all of the visible corners at once:
+ *
+ *  1) Each usable detection is weighted by its decision margin and its range: a weak decode or a distant tag counts
+ *     for less.  Its ftcPose gives a robot pose (as TagRelativePose), and the weighted mean of those is the
+ *     starting point.
+ *  2) Gauss-Newton iterations then adjust the robot's x, y and heading to minimise the weighted pixel error between
+ *     every detected corner and where that corner's known field position would appear in the image.
+ *  3) If the fit is poor (e.g. one tag's corners are wrong), or there are no lens intrinsics, it falls back to the
+ *     best tag alone: its corners if they fit, otherwise its ftcPose.
+ *
+ * The field layout is precomputed once: each tag's corners in field coordinates, indexed by tag ID.  A frame's
+ * solve uses only primitive arrays allocated in the constructor, so it allocates nothing, and takes a few
+ * microseconds per tag (see LocalizationBenchmarks).
+ *
+ *     MultiTagLocalizer localizer = new MultiTagLocalizer();
+ *     localizer.addLibrary(AprilTagGameDatabase.getCurrentGameTagLibrary());
+ *     localizer.setLensIntrinsics(fx, fy, cx, cy);         // the same values given to AprilTagProcessor.Builder
+ *     localizer.setCamera(6.0, 0.0, 8.0, 0.0);
+ *     ...
+ *     if (localizer.solve(aprilTag.getDetections())) {
+ *         estimator.addVisionMeasurement(captureNanos, localizer.getX(), localizer.getY(), localizer.getHeading(), ...);
+ *     }
+ *
+ * Conventions are those of TagRelativePose: field distances in inches, angles in radians, CCW positive, and a tag's
+ * "facing" is the field direction its printed face points towards.  The camera looks along the robot's heading,
+ * cameraForward ahead of and cameraLeft to the left of its center of rotation, cameraHeight above the floor, and
+ * tipped up by cameraPitch.  Detections must use the AprilTagProcessor's default units (inches and degrees).
+ *
+ * Each tag's corners are placed with its full orientation, so a tag that leans back, as the CENTERSTAGE backdrop's
+ * do, fits as well as one hanging on the wall.  The starting pose from its ftcPose uses the horizontal direction of
+ * its face.
+ */
+public class MultiTagLocalizer {
+
+    /**
+     * How the last pose was found.
+     */
+    public enum Method {
+        /** No usable tags. */
+        NONE,
+        /** From the corners of one or more tags (see getTagCount()). */
+        CORNERS,
+        /** From the best tag's ftcPose, because there are no intrinsics or its corners didn't fit. */
+        TAG_POSE
+    }
+
+    public static final int MAX_TAGS = 16;              // Tags used from one frame.  The heaviest are kept.
+
+    private static final int    MAX_ITERATIONS = 10;
+    private static final double CONVERGED      = 1e-4;  // Step size (inches, and radians) at which to stop.
+    private static final double MIN_DEPTH      = 1.0;   // A corner nearer than this (inches) to the lens is behind it.
+
+    // Field layout, by slot.  slotOfId maps a tag ID to its slot, or -1.
+    private int[]    slotOfId = new int[0];
+    private int      tagCount = 0;
+    private double[] tagX     = new double[8];
+    private double[] tagY     = new double[8];
+    private double[] tagFace  = new double[8];
+    private double[] corners  = new double[8 * 12];     // Per slot: x, y, z of corners 0..3, in the detection's order.
+
+    // Camera.
+    private double fx, fy, cx, cy;
+    private boolean haveIntrinsics = false;
+    private double cameraForward, cameraLeft, cameraHeight, cameraPitch;
+
+    // Weighting.
+    private double minDecisionMargin  = 10;
+    private double fullDecisionMargin = 50;
+    private double rangeScale         = 48;
+    private double maxRmsPixels       = 4;
+
+    // One frame's usable detections.
+    private final int[]    useSlot   = new int[MAX_TAGS];
+    private final double[] useWeight = new double[MAX_TAGS];
+    private final double[] usePixels = new double[MAX_TAGS * 8];
+    private final double[] usePose   = new double[MAX_TAGS * 3];
+    private int            useCount  = 0;
+    private final double[] tagPose   = new double[3];
+
+    // The last solution.
+    private Method method = Method.NONE;
+    private double x, y, heading;
+    private int    tagsUsed;
+    private int    iterations;
+    private double rmsPixels;
+
+    // Working state for fit().
+    private double fitX, fitY, fitHeading, fitRms;
+    private int    fitIterations;
+
+    // ---------------------------------------------------------------------------------------------------------------
+    // Setup.  These allocate, so call them during init.
+
+    /**
+     * Add every tag in a library, such as AprilTagGameDatabase.getCurrentGameTagLibrary(), with its fieldOrientation.
+     * A tag without a field position is skipped.
+     */
+    public void addLibrary(AprilTagLibrary library) {
+        for (AprilTagMetadata tag : library.getAllTags()) {
+            if (tag.fieldPosition == null || tag.fieldOrientation == null) {
+                continue;
+            }
+            addTag(tag.id,
+                   tag.distanceUnit.toInches(tag.fieldPosition.get(0)),
+                   tag.distanceUnit.toInches(tag.fieldPosition.get(1)),
+                   tag.distanceUnit.toInches(tag.fieldPosition.get(2)),
+                   tag.fieldOrientation,
+                   tag.distanceUnit.toInches(tag.tagsize));
+        }
+    }
+
+    /**
+     * Add (or replace) one tag that hangs vertically, as the field wall tags do.
+     *
+     * @param id     tag ID.
+     * @param x      field X of the tag center.
+     * @param y      field Y of the tag center.
+     * @param z      height of the tag center above the floor.
+     * @param facing field direction (radians) that the tag's face points towards.
+     * @param size   edge length of the tag's black square, as in AprilTagMetadata.tagsize.
+     */
+    public void addTag(int id, double x, double y, double z, double facing, double size) {
+        // Seen from in front, the viewer's right is the face direction turned 90 degrees CCW.
+        addTag(id, x, y, z, -Math.sin(facing), Math.cos(facing), 0, 0, 0, -1, size);
+    }
+
+    /**
+     * Add (or replace) one tag at any orientation.
+     *
+     * @param id          tag ID.
+     * @param x           field X of the tag center.
+     * @param y           field Y of the tag center.
+     * @param z           height of the tag center above the floor.
+     * @param orientation rotation from the tag's frame to the field, as AprilTagMetadata.fieldOrientation.  The tag's
+     *                    frame has X to the right and Y down its printed face, as the viewer sees it, and Z into it.
+     * @param size        edge length of the tag's black square, as in AprilTagMetadata.tagsize.
+     */
+    public void addTag(int id, double x, double y, double z, Quaternion orientation, double size) {
+        // The first two columns of the rotation matrix are the tag's X and Y axes in the field.
+        double w = orientation.w, qx = orientation.x, qy = orientation.y, qz = orientation.z;
+        double s = 2 / (w * w + qx * qx + qy * qy + qz * qz);
+        addTag(id, x, y, z,
+               1 - s * (qy * qy + qz * qz), s * (qx * qy + w * qz), s * (qx * qz - w * qy),
+               s * (qx * qy - w * qz), 1 - s * (qx * qx + qz * qz), s * (qy * qz + w * qx),
+               size);
+    }
+
+    // Add a tag whose right and down directions (as the viewer sees its face) are the given unit field vectors.
+    private void addTag(int id, double x, double y, double z, double rightX, double rightY, double rightZ,
+                        double downX, double downY, double downZ, double size) {
+        if (id < 0) {
+            throw new IllegalArgumentException("Tag ID must not be negative: " + id);
+        }
+        if (id >= slotOfId.length) {
+            int oldLength = slotOfId.length;
+            slotOfId = Arrays.copyOf(slotOfId, Math.max(id + 1, 2 * oldLength));
+            Arrays.fill(slotOfId, oldLength, slotOfId.length, -1);
+        }
+        int slot = slotOfId[id];
+        if (slot < 0) {
+            if (tagCount == tagX.length) {
+                tagX    = Arrays.copyOf(tagX, 2 * tagCount);
+                tagY    = Arrays.copyOf(tagY, 2 * tagCount);
+                tagFace = Arrays.copyOf(tagFace, 2 * tagCount);
+                corners = Arrays.copyOf(corners, 2 * tagCount * 12);
+            }
+            slot = tagCount++;
+            slotOfId[id] = slot;
+        }
+        // The face points along down x right.  Only its horizontal direction is used, for the ftcPose.
+        tagX[slot]    = x;
+        tagY[slot]    = y;
+        tagFace[slot] = Math.atan2(downZ * rightX - downX * rightZ, downY * rightZ - downZ * rightY);
+
+        // The detector lists the corners bottom-left, bottom-right, top-right, top-left, as seen in the image.
+        double half   = size / 2;
+        double[] side = {-1, 1, 1, -1};
+        double[] down = {1, 1, -1, -1};
+        for (int k = 0; k < 4; k++) {
+            int i = slot * 12 + k * 3;
+            corners[i]     = x + half * (side[k] * rightX + down[k] * downX);
+            corners[i + 1] = y + half * (side[k] * rightY + down[k] * downY);
+            corners[i + 2] = z + half * (side[k] * rightZ + down[k] * downZ);
+        }
+    }
+
+    /** @return true if the layout has a tag with this ID. */
+    public boolean hasTag(int id) {
+        return id >= 0 && id < slotOfId.length && slotOfId[id] >= 0;
+    }
+
+    /**
+     * Set the camera's lens intrinsics, in pixels, for the resolution being streamed.  Use the same values as
+     * AprilTagProcessor.Builder.setLensIntrinsics().  Without them, only ftcPose is used.
+     */
+    public void setLensIntrinsics(double fx, double fy, double cx, double cy) {
+        this.fx = fx;
+        this.fy = fy;
+        this.cx = cx;
+        this.cy = cy;
+        haveIntrinsics = fx > 0 && fy > 0;
+    }
+
+    /**
+     * Set where the camera is on the robot.
+     *
+     * @param forward distance of the lens ahead of the robot center.
+     * @param left    distance of the lens to the left of the robot center.
+     * @param height  height of the lens above the floor.
+     * @param pitch   angle (radians) the camera is tipped up from horizontal.
+     */
+    public void setCamera(double forward, double left, double height, double pitch) {
+        cameraForward = forward;
+        cameraLeft    = left;
+        cameraHeight  = height;
+        cameraPitch   = pitch;
+    }
+
+    /**
+     * Set how detections are weighted.  A tag's weight is min(1, margin / fullDecisionMargin) / (1 + (range /
+     * rangeScale)^2).
+     *
+     * @param minDecisionMargin  detections with a lower decision margin are ignored.
+     * @param fullDecisionMargin decision margin at which a detection gets its full weight.
+     * @param rangeScale         range (inches) at which a tag's weight is halved.
+     * @param maxRmsPixels       largest RMS corner error accepted from a fit.
+     */
+    public void setWeighting(double minDecisionMargin, double fullDecisionMargin, double rangeScale,
+                             double maxRmsPixels) {
+        this.minDecisionMargin  = minDecisionMargin;
+        this.fullDecisionMargin = fullDecisionMargin;
+        this.rangeScale         = rangeScale;
+        this.maxRmsPixels       = maxRmsPixels;
+    }
+
+    // ---------------------------------------------------------------------------------------------------------------
+    // Solving.
+
+    /**
+     * Solve the robot's pose from one frame's detections.  Tags that aren't in the layout are ignored.
+     *
+     * @return true if a pose was found.  The pose is then available from getX(), getY() and getHeading().
+     */
+    public boolean solve(List<AprilTagDetection> detections) {
+        collect(detections);
+        tagsUsed   = 0;
+        iterations = 0;
+        rmsPixels  = 0;
+        if (useCount == 0) {
+            method = Method.NONE;
+            return false;
+        }
+
+        // Start from the weighted mean of the tags' own poses.  Heading is averaged as a unit vector.
+        double sumW = 0, sumX = 0, sumY = 0, sumCos = 0, sumSin = 0;
+        int best = 0;
+        for (int t = 0; t < useCount; t++) {
+            double w = useWeight[t];
+            sumW   += w;
+            sumX   += w * usePose[t * 3];
+            sumY   += w * usePose[t * 3 + 1];
+            sumCos += w * Math.cos(usePose[t * 3 + 2]);
+            sumSin += w * Math.sin(usePose[t * 3 + 2]);
+            if (w > useWeight[best]) {
+                best = t;
+            }
+        }
+
+        if (haveIntrinsics) {
+            if (fit(0, useCount, sumX / sumW, sumY / sumW, Math.atan2(sumSin, sumCos))) {
+                return accept(Method.CORNERS, useCount);
+            }
+            // Fall back to the heaviest tag alone.
+            if (useCount > 1 && fit(best, best + 1, usePose[best * 3], usePose[best * 3 + 1], usePose[best * 3 + 2])) {
+                return accept(Method.CORNERS, 1);
+            }
+        }
+
+        fitX          = usePose[best * 3];
+        fitY          = usePose[best * 3 + 1];
+        fitHeading    = usePose[best * 3 + 2];
+        fitRms        = 0;
+        fitIterations = 0;
+        return accept(Method.TAG_POSE, 1);
+    }
+
+    private boolean accept(Method method, int tags) {
+        this.method = method;
+        x           = fitX;
+        y           = fitY;
+        heading     = LatencyCompensatedPoseEstimator.normalize(fitHeading);
+        tagsUsed    = tags;
+        iterations  = fitIterations;
+        rmsPixels   = fitRms;
+        return true;
+    }
+
+    // Gather the usable detections, keeping the heaviest MAX_TAGS.
+    private void collect(List<AprilTagDetection> detections) {
+        useCount = 0;
+        for (int i = 0, n = detections.size(); i < n; i++) {
+            AprilTagDetection detection = detections.get(i);
+            if (!hasTag(detection.id) || detection.ftcPose == null || detection.corners == null
+                    || detection.decisionMargin < minDecisionMargin) {
+                continue;
+            }
+            double range  = detection.ftcPose.range / rangeScale;
+            double weight = Math.min(1.0, detection.decisionMargin / fullDecisionMargin) / (1 + range * range);
+            if (!(weight > 0)) {
+                continue;
+            }
+
+            int t = useCount;
+            if (useCount == MAX_TAGS) {
+                t = lightest();
+                if (useWeight[t] >= weight) {
+                    continue;
+                }
+            } else {
+                useCount++;
+            }
+
+            int slot = slotOfId[detection.id];
+            useSlot[t]   = slot;
+            useWeight[t] = weight;
+            for (int k = 0; k < 4; k++) {
+                usePixels[t * 8 + k * 2]     = detection.corners[k].x;
+                usePixels[t * 8 + k * 2 + 1] = detection.corners[k].y;
+            }
+            TagRelativePose.robotPoseFromTag(tagX[slot], tagY[slot], tagFace[slot], detection.ftcPose,
+                                             cameraForward, cameraLeft, tagPose);
+            usePose[t * 3]     = tagPose[0];
+            usePose[t * 3 + 1] = tagPose[1];
+            usePose[t * 3 + 2] = tagPose[2];
+        }
+    }
+
+    private int lightest() {
+        int lightest = 0;
+        for (int t = 1; t < useCount; t++) {
+            if (useWeight[t] < useWeight[lightest]) {
+                lightest = t;
+            }
+        }
+        return lightest;
+    }
+
+    /*
+     * Gauss-Newton fit of (x, y, heading) to the corners of used tags [from, to), starting from (x0, y0, h0).
+     * Leaves the result in fitX, fitY, fitHeading, fitRms and fitIterations.
+     *
+     * The camera's axes in the field are forward u = (cos h cos p, sin h cos p, sin p), right r = (sin h, -cos h, 0)
+     * and up w = (-cos h sin p, -sin h sin p, cos p).  A corner P, seen from lens position C, is at
+     * v = P - C, so its camera coordinates are (v.r, -v.w, v.u) and it appears at pixel (cx + fx * xc / zc,
+     * cy + fy * yc / zc).  Each corner gives two residuals, weighted by its tag's weight.
+     *
+     * @return true if every corner stayed in front of the camera and the RMS pixel error is acceptable.
+     */
+    private boolean fit(int from, int to, double x0, double y0, double h0) {
+        double px = x0, py = y0, ph = h0;
+        double sinP = Math.sin(cameraPitch), cosP = Math.cos(cameraPitch);
+        double sumSquares = 0;
+        int    n = 0;
+
+        fitIterations = 0;
+        boolean done  = false;
+        while (true) {
+            double cosH = Math.cos(ph), sinH = Math.sin(ph);
+            double ux = cosH * cosP, uy = sinH * cosP, uz = sinP;
+            double rx = sinH,        ry = -cosH;
+            double wx = -cosH * sinP, wy = -sinH * sinP, wz = cosP;
+
+            // Derivatives of the axes with respect to heading.
+            double dux = -sinH * cosP, duy = cosH * cosP;
+            double drx = cosH,         dry = sinH;
+            double dwx = sinH * sinP,  dwy = -cosH * sinP;
+
+            double lensX = px + cameraForward * cosH - cameraLeft * sinH;
+            double lensY = py + cameraForward * sinH + cameraLeft * cosH;
+            // Derivative of v = P - C with respect to heading (its X and Y derivatives are just -1).
+            double dvxH = cameraForward * sinH + cameraLeft * cosH;
+            double dvyH = -cameraForward * cosH + cameraLeft * sinH;
+
+            // Normal equations, J'WJ (symmetric) and J'Wr.
+            double a00 = 0, a01 = 0, a02 = 0, a11 = 0, a12 = 0, a22 = 0;
+            double b0 = 0, b1 = 0, b2 = 0;
+            sumSquares = 0;
+            n = 0;
+
+            for (int t = from; t < to; t++) {
+                int    base   = useSlot[t] * 12;
+                double weight = useWeight[t];
+                for (int k = 0; k < 4; k++) {
+                    double vx = corners[base + k * 3] - lensX;
+                    double vy = corners[base + k * 3 + 1] - lensY;
+                    double vz = corners[base + k * 3 + 2] - cameraHeight;
+
+                    double xc = vx * rx + vy * ry;
+                    double yc = -(vx * wx + vy * wy + vz * wz);
+                    double zc = vx * ux + vy * uy + vz * uz;
+                    if (zc < MIN_DEPTH) {
+                        return false;
+                    }
+                    double invZ = 1 / zc;
+                    double errX = usePixels[t * 8 + k * 2]     - (cx + fx * xc * invZ);
+                    double errY = usePixels[t * 8 + k * 2 + 1] - (cy + fy * yc * invZ);
+                    sumSquares += errX * errX + errY * errY;
+                    n++;
+
+                    // d(xc, yc, zc) / d(x, y, heading).
+                    double xcX = -rx, xcY = -ry, xcH = dvxH * rx + dvyH * ry + vx * drx + vy * dry;
+                    double ycX =  wx, ycY =  wy, ycH = -(dvxH * wx + dvyH * wy + vx * dwx + vy * dwy);
+                    double zcX = -ux, zcY = -uy, zcH = dvxH * ux + dvyH * uy + vx * dux + vy * duy;
+
+                    // Pixel derivatives: d(f * a / zc) = f * (da * zc - a * dzc) / zc^2.
+                    double kx = fx * invZ, ky = fy * invZ;
+                    double ax = xc * invZ, ay = yc * invZ;
+                    double jx0 = kx * (xcX - ax * zcX), jx1 = kx * (xcY - ax * zcY), jx2 = kx * (xcH - ax * zcH);
+                    double jy0 = ky * (ycX - ay * zcX), jy1 = ky * (ycY - ay * zcY), jy2 = ky * (ycH - ay * zcH);
+
+                    a00 += weight * (jx0 * jx0 + jy0 * jy0);
+                    a01 += weight * (jx0 * jx1 + jy0 * jy1);
+                    a02 += weight * (jx0 * jx2 + jy0 * jy2);
+                    a11 += weight * (jx1 * jx1 + jy1 * jy1);
+                    a12 += weight * (jx1 * jx2 + jy1 * jy2);
+                    a22 += weight * (jx2 * jx2 + jy2 * jy2);
+                    b0  += weight * (jx0 * errX + jy0 * errY);
+                    b1  += weight * (jx1 * errX + jy1 * errY);
+                    b2  += weight * (jx2 * errX + jy2 * errY);
+                }
+            }
+
+            if (done) {
+                break;              // This pass only measured the error at the final pose.
+            }
+
+            // Solve the 3x3 system by Cramer's rule.
+            double c00 = a11 * a22 - a12 * a12;
+            double c01 = a02 * a12 - a01 * a22;
+            double c02 = a01 * a12 - a02 * a11;
+            double det = a00 * c00 + a01 * c01 + a02 * c02;
+            if (!(Math.abs(det) > 1e-12)) {
+                return false;
+            }
+            double c11 = a00 * a22 - a02 * a02;
+            double c12 = a01 * a02 - a00 * a12;
+            double c22 = a00 * a11 - a01 * a01;
+            double stepX = (c00 * b0 + c01 * b1 + c02 * b2) / det;
+            double stepY = (c01 * b0 + c11 * b1 + c12 * b2) / det;
+            double stepH = (c02 * b0 + c12 * b1 + c22 * b2) / det;
+            px += stepX;
+            py += stepY;
+            ph += stepH;
+            fitIterations++;
+            done = fitIterations == MAX_ITERATIONS
+                    || (Math.abs(stepX) < CONVERGED && Math.abs(stepY) < CONVERGED && Math.abs(stepH) < CONVERGED);
+        }
+
+        fitX       = px;
+        fitY       = py;
+        fitHeading = ph;
+        fitRms     = Math.sqrt(sumSquares / n);
+        return fitRms <= maxRmsPixels && !Double.isNaN(px + py + ph);
+    }
+
+    // ---------------------------------------------------------------------------------------------------------------
+    // Results of the last solve().
+
+    public double getX()       { return x; }
+    public double getY()       { return y; }
+    public double getHeading() { return heading; }
+
+    /** @return how the last pose was found. */
+    public Method getMethod()  { return method; }
+
+    /** @return number of tags the last pose was found from. */
+    public int getTagCount()   { return tagsUsed; }
+
+    /** @return number of usable tags in the last frame, whether or not they fitted. */
+    public int getTagsSeen()   { return useCount; }
+
+    /** @return Gauss-Newton iterations taken by the last fit. */
+    public int getIterations() { return iterations; }
+
+    /** @return RMS distance (pixels) between the detected corners and the fitted pose's corners. */
+    public double getRmsPixels() { return rmsPixels; }
+}
@@ -0,0 +1,65 @@
+package org.firstinspires.ftc.teamcode.localization;
+
+import org.firstinspires.ftc.vision.apriltag.AprilTagPoseFtc;
+
+/*
+ * Converts an AprilTag's ftcPose (the tag's position relative to the camera) into the robot's pose in a field frame.
+ *
+ * Conventions, for the field frame:
+ *  - X and Y are in the same distance unit as the ftcPose (inches by default), angles are radians, CCW positive.
+ *  - A tag's "facing" is the field direction its printed face points towards.
+ *
+ * Conventions, for the robot:
+ *  - The camera looks straight forward along the robot's heading.
+ *  - The camera lens is cameraForward ahead of, and cameraLeft to the left of, the robot's center of rotation.
+ *
+ * ftcPose is expected in its default form: x to the camera's right, y straight out of the camera, yaw in degrees
+ * (positive when the tag is rotated counter-clockwise as seen from above).
+ */
+public final class TagRelativePose {
+
+    private TagRelativePose() {
+    }
+
+    /**
+     * Compute the robot's field pose from one detected tag.
+     *
+     * @param tagX          field X of the tag center.
+     * @param tagY          field Y of the tag center.
+     * @param tagFacing     field direction (radians) that the tag's face points towards.
+     * @param ftcPose       the detection's ftcPose.
+     * @param cameraForward distance of the camera ahead of the robot center.
+     * @param cameraLeft    distance of the camera to the left of the robot center.
+     * @param out           receives {x, y, heading}.  Must have at least 3 elements.
+     */
+    public static void robotPoseFromTag(double tagX, double tagY, double tagFacing, AprilTagPoseFtc ftcPose,
+                                        double cameraForward, double cameraLeft, double[] out) {
+        robotPoseFromTag(tagX, tagY, tagFacing, ftcPose.x, ftcPose.y, Math.toRadians(ftcPose.yaw),
+                         cameraForward, cameraLeft, out);
+    }
+
+    /**
+     * Compute the robot's field pose from a tag position measured in the camera frame.
+     *
+     * @param tagRight   distance of the tag to the right of the camera axis (ftcPose.x).
+     * @param tagAhead   distance of the tag along the camera axis (ftcPose.y).
+     * @param tagYaw     rotation of the tag relative to the camera, in radians (ftcPose.yaw converted to radians).
+     */
+    public static void robotPoseFromTag(double tagX, double tagY, double tagFacing,
+                                        double tagRight, double tagAhead, double tagYaw,
+                                        double cameraForward, double cameraLeft, double[] out) {
+        // Looking squarely at the tag, the camera faces opposite to the tag.  Tag yaw rotates it away from that.
+        double heading = LatencyCompensatedPoseEstimator.normalize(tagFacing + Math.PI - tagYaw);
+        double cos = Math.cos(heading);
+        double sin = Math.sin(heading);
+
+        // tag = camera + ahead * forwardUnit - right * leftUnit   (forwardUnit = (cos, sin), leftUnit = (-sin, cos))
+        double cameraX = tagX - tagAhead * cos - tagRight * sin;
+        double cameraY = tagY - tagAhead * sin + tagRight * cos;
+
+        // camera = robot + cameraForward * forwardUnit + cameraLeft * leftUnit
+        out[0] = cameraX - cameraForward * cos + cameraLeft * sin;
+        out[1] = cameraY - cameraForward * sin - cameraLeft * cos;
+        out[2] = heading;
+    }
+}
@@ -0,0 +1,358 @@
+package org.firstinspires.ftc.teamcode.telemetry;
+
+import org.firstinspires.ftc.robotcore.external.Telemetry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * A telemetry layer that costs no allocations in the control loop.
+ *
+ * The usual pattern of calling telemetry.addData(caption, "%6.1f", value) every loop parses the format, boxes
+ * the value and builds new Strings on every pass, even when nothing on the display has changed, and even on
+ * passes where the SDK won't transmit anything.  FastTelemetry turns that around:
+ *
+ *  - Each Line is declared ONCE, during init, with a printf-style format.  The format is parsed at that time.
+ *  - Each loop, the OpMode stores new values into the Line's fields with set().  This is just a primitive
+ *    compare-and-store.  A field is only marked dirty if its value changes at the displayed precision.
+ *  - update() is called every loop, but only does any work when the push interval has elapsed.  Then it
+ *    re-renders the dirty Lines into their own reusable StringBuilders, and sends one telemetry update.
+ *
+ * Lines that have not changed keep their previously rendered String, so in steady state the Driver Station
+ * is refreshed without creating any new objects at all.
+ *
+ * Supported format specifiers: %[width][.decimals]f, %[width]d, %[width]s and %%.
+ *
+ *     FastTelemetry fast = new FastTelemetry(telemetry, 100);
+ *     FastTelemetry.Line heading = fast.addLine("Heading", "%5.1f deg  (target %5.1f)");
+ *     ...
+ *     heading.set(0, getHeading()).set(1, targetHeading);
+ *     fast.update();
+ */
+public class FastTelemetry {
+
+    private final Telemetry  telemetry;
+    private final long       pushIntervalNanos;
+    private final List<Line> lines = new ArrayList<>();
+
+    private long    lastPushNanos = 0;
+    private boolean layoutChanged = true;
+
+    private long pushCount   = 0;
+    private long renderCount = 0;
+
+    /**
+     * @param telemetry      the OpMode's telemetry object.  FastTelemetry takes over its auto-clear behavior.
+     * @param pushIntervalMs minimum time between updates sent to the Driver Station, regardless of loop rate.
+     */
+    public FastTelemetry(Telemetry telemetry, int pushIntervalMs) {
+        this.telemetry         = telemetry;
+        this.pushIntervalNanos = pushIntervalMs * 1_000_000L;
+
+        telemetry.setAutoClear(false);
+        telemetry.setMsTransmissionInterval(pushIntervalMs);
+    }
+
+    /**
+     * Declare a telemetry line.  Lines are displayed in the order they are added.
+     *
+     * @param caption text shown before the value.
+     * @param format  printf-style format for the value.  Each specifier becomes a numbered field, starting at 0.
+     */
+    public Line addLine(String caption, String format) {
+        Line line = new Line(caption, format);
+        lines.add(line);
+        layoutChanged = true;
+        return line;
+    }
+
+    /**
+     * Push any changed lines to the Driver Station, if the push interval has elapsed.
+     * Call this once per control cycle.
+     *
+     * @return true if an update was sent.
+     */
+    public boolean update() {
+        long now = System.nanoTime();
+        if (lastPushNanos != 0 && (now - lastPushNanos) < pushIntervalNanos) {
+            return false;
+        }
+        lastPushNanos = now;
+        push();
+        return true;
+    }
+
+    /**
+     * Push all changed lines to the Driver Station immediately, ignoring the push interval.
+     */
+    public void forceUpdate() {
+        lastPushNanos = System.nanoTime();
+        push();
+    }
+
+    /** @return number of updates sent to the Driver Station. */
+    public long getPushCount()   { return pushCount; }
+
+    /** @return number of times a line was re-rendered because one of its fields changed. */
+    public long getRenderCount() { return renderCount; }
+
+    private void push() {
+        for (int i = 0; i < lines.size(); i++) {
+            Line line = lines.get(i);
+            if (line.dirty) {
+                line.render();
+                renderCount++;
+                if (line.item != null) {
+                    line.item.setValue(line.rendered);
+                }
+            }
+            if (line.visibilityChanged) {
+                line.visibilityChanged = false;
+                layoutChanged = true;
+            }
+        }
+
+        // Showing or hiding a line changes the layout.  The items are rebuilt (in declaration order) only then.
+        if (layoutChanged) {
+            layoutChanged = false;
+            telemetry.clearAll();
+            for (int i = 0; i < lines.size(); i++) {
+                Line line = lines.get(i);
+                line.item = line.visible ? telemetry.addData(line.caption, line.rendered) : null;
+            }
+        }
+
+        telemetry.update();
+        pushCount++;
+    }
+
+    /**
+     * One caption and formatted value on the Driver Station display.
+     */
+    public static class Line {
+        private static final char TYPE_FIXED = 'f';
+        private static final char TYPE_INT   = 'd';
+        private static final char TYPE_TEXT  = 's';
+
+        private final String caption;
+
+        // The parsed format: literals[i] is printed before field i, and literals[fieldCount] after the last field.
+        private final String[] literals;
+        private final char[]   types;
+        private final int[]    widths;
+        private final int[]    decimals;
+
+        private final long[]          values;
+        private final double[]        nonFinite;   // A numeric field's value if it is NaN or infinite, else 0.
+        private final StringBuilder[] texts;       // A copy of each text field's value, or null until it's set.
+        private final boolean[]       textSet;
+
+        private final StringBuilder buffer;
+        private String  rendered = "";
+        private boolean dirty    = true;
+        private boolean visible  = true;
+        private boolean visibilityChanged = false;
+
+        private Telemetry.Item item = null;
+
+        Line(String caption, String format) {
+            this.caption = caption;
+
+            List<String>    literalList = new ArrayList<>();
+            List<Character> typeList    = new ArrayList<>();
+            List<Integer>   widthList   = new ArrayList<>();
+            List<Integer>   placesList  = new ArrayList<>();
+            StringBuilder   literal     = new StringBuilder();
+
+            int i = 0;
+            while (i < format.length()) {
+                char c = format.charAt(i++);
+                if (c != '%') {
+                    literal.append(c);
+                    continue;
+                }
+                if (i < format.length() && format.charAt(i) == '%') {
+                    literal.append('%');
+                    i++;
+                    continue;
+                }
+
+                // Parse [width][.decimals]type
+                int width = 0;
+                int places = -1;
+                while (i < format.length() && Character.isDigit(format.charAt(i))) {
+                    width = width * 10 + (format.charAt(i++) - '0');
+                }
+                if (i < format.length() && format.charAt(i) == '.') {
+                    i++;
+                    places = 0;
+                    while (i < format.length() && Character.isDigit(format.charAt(i))) {
+                        places = places * 10 + (format.charAt(i++) - '0');
+                    }
+                }
+                if (i >= format.length()) {
+                    throw new IllegalArgumentException("Incomplete format specifier in \"" + format + "\"");
+                }
+                char type = format.charAt(i++);
+                if (type != TYPE_FIXED && type != TYPE_INT && type != TYPE_TEXT) {
+                    throw new IllegalArgumentException("Unsupported format specifier %" + type + " in \"" + format + "\"");
+                }
+                if (type == TYPE_FIXED) {
+                    places = (places < 0) ? 6 : Math.min(places, FixedPointFormat.MAX_DECIMALS);
+                }
+
+                literalList.add(literal.toString());
+                literal.setLength(0);
+                typeList.add(type);
+                widthList.add(width);
+                placesList.add(Math.max(places, 0));
+            }
+            literalList.add(literal.toString());
+
+            int fieldCount = typeList.size();
+            literals = literalList.toArray(new String[0]);
+            types    = new char[fieldCount];
+            widths   = new int[fieldCount];
+            decimals = new int[fieldCount];
+            for (int f = 0; f < fieldCount; f++) {
+                types[f]    = typeList.get(f);
+                widths[f]   = widthList.get(f);
+                decimals[f] = placesList.get(f);
+            }
+            values    = new long[fieldCount];
+            nonFinite = new double[fieldCount];
+            texts     = new StringBuilder[fieldCount];
+            textSet   = new boolean[fieldCount];
+            for (int f = 0; f < fieldCount; f++) {
+                if (types[f] == TYPE_TEXT) {
+                    texts[f] = new StringBuilder(Math.max(widths[f], 16));
+                }
+            }
+            buffer = new StringBuilder(format.length() + 16 * fieldCount);
+        }
+
+        /**
+         * Set a numeric field.  The line is only re-rendered if the value changes at the displayed precision.
+         * NaN and the infinities are shown as String.format() shows them, eg: an unplugged sensor's reading.
+         */
+        public Line set(int field, double value) {
+            if (Double.isNaN(value) || Double.isInfinite(value)) {
+                if (Double.compare(value, nonFinite[field]) != 0) {
+                    nonFinite[field] = value;
+                    dirty = true;
+                }
+                return this;
+            }
+            long fixed = (types[field] == TYPE_INT) ? Math.round(value) : FixedPointFormat.toFixed(value, decimals[field]);
+            setFixed(field, fixed);
+            return this;
+        }
+
+        /**
+         * Set an integer field.
+         */
+        public Line set(int field, long value) {
+            setFixed(field, (types[field] == TYPE_FIXED) ? value * pow10(decimals[field]) : value);
+            return this;
+        }
+
+        private void setFixed(int field, long fixed) {
+            if (fixed != values[field] || nonFinite[field] != 0) {
+                values[field]    = fixed;
+                nonFinite[field] = 0;
+                dirty = true;
+            }
+        }
+
+        /**
+         * Set a text field.  The text is compared with the field's current value by content, and copied into the
+         * line when it differs, so a reused StringBuilder may be passed and changed again straight away.
+         */
+        public Line setText(int field, CharSequence text) {
+            if (types[field] != TYPE_TEXT) {
+                throw new IllegalArgumentException("Field " + field + " is not a %s field");
+            }
+            StringBuilder copy = texts[field];
+            if (text == null) {
+                if (textSet[field]) {
+                    textSet[field] = false;
+                    copy.setLength(0);
+                    dirty = true;
+                }
+            } else if (!textSet[field] || !sameText(copy, text)) {
+                textSet[field] = true;
+                copy.setLength(0);
+                copy.append(text);
+                dirty = true;
+            }
+            return this;
+        }
+
+        /**
+         * Show or hide this line.  Hidden lines keep their values.  Changing visibility costs one telemetry re-layout.
+         */
+        public Line setVisible(boolean visible) {
+            if (visible != this.visible) {
+                this.visible = visible;
+                visibilityChanged = true;
+            }
+            return this;
+        }
+
+        public boolean isVisible() {
+            return visible;
+        }
+
+        /**
+         * @return the text most recently sent to the Driver Station.
+         */
+        public String getRendered() {
+            return rendered;
+        }
+
+        void render() {
+            buffer.setLength(0);
+            for (int f = 0; f < types.length; f++) {
+                buffer.append(literals[f]);
+                if (nonFinite[f] != 0) {
+                    FixedPointFormat.appendFixed(buffer, nonFinite[f], widths[f], decimals[f]);
+                    continue;
+                }
+                switch (types[f]) {
+                    case TYPE_FIXED:
+                        FixedPointFormat.appendScaled(buffer, values[f], widths[f], decimals[f]);
+                        break;
+                    case TYPE_INT:
+                        FixedPointFormat.appendInt(buffer, values[f], widths[f]);
+                        break;
+                    default:
+                        FixedPointFormat.appendText(buffer, textSet[f] ? texts[f] : "null", widths[f]);
+                        break;
+                }
+            }
+            buffer.append(literals[types.length]);
+            rendered = buffer.toString();
+            dirty = false;
+        }
+
+        private static boolean sameText(StringBuilder copy, CharSequence text) {
+            if (copy.length() != text.length()) {
+                return false;
+            }
+            for (int i = 0; i < copy.length(); i++) {
+                if (copy.charAt(i) != text.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static long pow10(int n) {
+            long result = 1;
+            for (int i = 0; i < n; i++) {
+                result *= 10;
+            }
+            return result;
+        }
+    }
+}
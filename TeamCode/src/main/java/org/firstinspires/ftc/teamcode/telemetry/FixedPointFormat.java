@@ -0,0 +1,103 @@
+package org.firstinspires.ftc.teamcode.telemetry;
+
+/*
+ * Allocation-free number formatting into a reusable StringBuilder.
+ *
+ * String.format() parses its format string, boxes every argument and builds a new String on every call.
+ * These methods produce the same text as "%W.Df" and "%Wd" by appending digits directly to a caller-owned
+ * StringBuilder, so a preallocated buffer can be re-rendered every loop without creating any garbage.
+ *
+ * Values are first converted to a scaled integer (value * 10^decimals, rounded), which is also the
+ * quantity FastTelemetry compares to decide whether a displayed field has actually changed.
+ */
+public final class FixedPointFormat {
+
+    /** Largest number of decimal places supported. */
+    public static final int MAX_DECIMALS = 9;
+
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L
+    };
+
+    private FixedPointFormat() {
+    }
+
+    /**
+     * @return value scaled by 10^decimals and rounded to the nearest integer, with halves rounded away from zero
+     *         (the same rounding String.format uses).
+     */
+    public static long toFixed(double value, int decimals) {
+        double scaled = value * POWERS_OF_TEN[decimals];
+        return (scaled < 0) ? -Math.round(-scaled) : Math.round(scaled);
+    }
+
+    /**
+     * Append a number formatted like "%{width}.{decimals}f".
+     */
+    public static StringBuilder appendFixed(StringBuilder sb, double value, int width, int decimals) {
+        if (Double.isNaN(value)) {
+            return pad(sb, 3, width).append("NaN");
+        }
+        if (Double.isInfinite(value)) {
+            return pad(sb, value > 0 ? 8 : 9, width).append(value > 0 ? "Infinity" : "-Infinity");
+        }
+        return appendScaled(sb, toFixed(value, decimals), width, decimals);
+    }
+
+    /**
+     * Append a scaled integer (as returned by toFixed) formatted like "%{width}.{decimals}f".
+     */
+    public static StringBuilder appendScaled(StringBuilder sb, long scaled, int width, int decimals) {
+        boolean negative = scaled < 0;
+        long magnitude   = negative ? -scaled : scaled;
+        long divisor     = POWERS_OF_TEN[decimals];
+        long whole       = magnitude / divisor;
+        long fraction    = magnitude % divisor;
+
+        int length = digitCount(whole) + (negative ? 1 : 0) + (decimals > 0 ? decimals + 1 : 0);
+        pad(sb, length, width);
+
+        if (negative) {
+            sb.append('-');
+        }
+        sb.append(whole);
+        if (decimals > 0) {
+            sb.append('.');
+            for (int d = decimals - 1; d >= 0; d--) {
+                sb.append((char) ('0' + (fraction / POWERS_OF_TEN[d]) % 10));
+            }
+        }
+        return sb;
+    }
+
+    /**
+     * Append an integer formatted like "%{width}d".
+     */
+    public static StringBuilder appendInt(StringBuilder sb, long value, int width) {
+        int length = (value < 0) ? digitCount(-value) + 1 : digitCount(value);
+        return pad(sb, length, width).append(value);
+    }
+
+    /**
+     * Append text right-justified in a field, like "%{width}s".
+     */
+    public static StringBuilder appendText(StringBuilder sb, CharSequence text, int width) {
+        return pad(sb, text.length(), width).append(text);
+    }
+
+    private static StringBuilder pad(StringBuilder sb, int length, int width) {
+        for (int i = length; i < width; i++) {
+            sb.append(' ');
+        }
+        return sb;
+    }
+
+    private static int digitCount(long value) {
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+}
@@ -0,0 +1,207 @@
+package org.firstinspires.ftc.teamcode.telemetry;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Locale;
+
+/*
+ * Reads a FlightRecorder file, and exports it for analysis on a desktop.
+ *
+ * Copy the recording off the Control Hub (eg: adb pull /sdcard/FIRST/data/flight_20241019_143000.bin), then:
+ *
+ *   java FlightRecordDecoder flight.bin csv flight.csv
+ *       One row per loop: the time in seconds since the recording started, then every column.
+ *
+ *   java FlightRecordDecoder flight.bin columns flight/
+ *       One raw little-endian binary file per column (time_ns.i64, left.position.i32, imu.heading.f32, ...), plus
+ *       columns.csv listing them.  Each loads directly into an array, eg: numpy.fromfile("imu.heading.f32", "<f4"),
+ *       and only the columns needed for a plot have to be read.
+ *
+ * Records are returned oldest first, whether or not the recorder wrapped around.
+ */
+public class FlightRecordDecoder {
+
+    private final ByteBuffer buffer;
+    private final String[]   names;
+    private final byte[]     types;
+    private final int        recordBytes;
+    private final int        dataOffset;
+    private final int        capacity;
+    private final long       startNanos;
+    private final long       startMillis;
+    private final long       committed;
+    private final int        records;
+
+    /**
+     * Open a recording.  It may still be being written; the decoder sees the records committed so far.
+     */
+    public FlightRecordDecoder(File path) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(path, "r")) {
+            buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.capacity() < FlightRecorder.COLUMNS_OFFSET) {
+            throw new IOException(path + " is not a flight recording");
+        }
+
+        byte[] magic = new byte[FlightRecorder.MAGIC.length];
+        buffer.get(magic);
+        if (!Arrays.equals(magic, FlightRecorder.MAGIC) || buffer.getInt() != FlightRecorder.VERSION) {
+            throw new IOException(path + " is not a flight recording");
+        }
+        int columns = buffer.getInt();
+        recordBytes = buffer.getInt();
+        capacity    = buffer.getInt();
+        startNanos  = buffer.getLong();
+        startMillis = buffer.getLong();
+        committed   = buffer.getLong();
+        dataOffset  = buffer.getInt();
+
+        names = new String[columns];
+        types = new byte[columns];
+        buffer.position(FlightRecorder.COLUMNS_OFFSET);
+        for (int c = 0; c < columns; c++) {
+            types[c] = buffer.get();
+            byte[] name = new byte[buffer.getShort()];
+            buffer.get(name);
+            names[c] = new String(name, Charset.forName("UTF-8"));
+        }
+        records = (int) Math.min(committed, capacity);
+    }
+
+    /** @return number of records available (at most the capacity). */
+    public int getRecordCount()             { return records; }
+
+    /** @return number of records committed, including any that were overwritten. */
+    public long getCommittedCount()         { return committed; }
+
+    public int getColumnCount()             { return names.length; }
+
+    public String getColumnName(int column) { return names[column]; }
+
+    /** @return true for a float column, false for an int column. */
+    public boolean isFloat(int column)      { return types[column] == FlightRecorder.FLOAT; }
+
+    /** @return System.currentTimeMillis() when the recording was created. */
+    public long getStartMillis()            { return startMillis; }
+
+    // Byte offset of the index'th record, oldest first.
+    private int offset(int index) {
+        long first = committed - records;
+        return dataOffset + (int) ((first + index) % capacity) * recordBytes;
+    }
+
+    /** @return the System.nanoTime() at which a record was committed. */
+    public long getNanos(int index) {
+        return buffer.getLong(offset(index));
+    }
+
+    /** @return seconds from the creation of the recording to a record. */
+    public double getSeconds(int index) {
+        return (getNanos(index) - startNanos) / 1e9;
+    }
+
+    public int getInt(int column, int index) {
+        return buffer.getInt(offset(index) + 8 + 4 * column);
+    }
+
+    public float getFloat(int column, int index) {
+        return buffer.getFloat(offset(index) + 8 + 4 * column);
+    }
+
+    /**
+     * Write the recording as CSV: a header row, then one row per record.
+     */
+    public void writeCsv(Writer writer) {
+        PrintWriter out = new PrintWriter(writer);
+        out.print("time_s");
+        for (String name : names) {
+            out.print(',');
+            out.print(name);
+        }
+        out.println();
+        for (int i = 0; i < records; i++) {
+            out.print(String.format(Locale.US, "%.6f", getSeconds(i)));
+            for (int c = 0; c < names.length; c++) {
+                out.print(',');
+                out.print(isFloat(c) ? Float.toString(getFloat(c, i)) : Integer.toString(getInt(c, i)));
+            }
+            out.println();
+        }
+        out.flush();
+    }
+
+    /**
+     * Write the recording as one raw little-endian file per column, plus columns.csv describing them.
+     */
+    public void writeColumns(File directory) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("can't create " + directory);
+        }
+        try (PrintWriter manifest = new PrintWriter(new OutputStreamWriter(
+                new FileOutputStream(new File(directory, "columns.csv")), Charset.forName("UTF-8")))) {
+            manifest.println("name,type,file,count");
+
+            String timeFile = "time_ns.i64";
+            try (DataOutputStream out = open(directory, timeFile)) {
+                for (int i = 0; i < records; i++) {
+                    out.writeLong(Long.reverseBytes(getNanos(i) - startNanos));
+                }
+            }
+            manifest.println("time_ns,int64," + timeFile + "," + records);
+
+            for (int c = 0; c < names.length; c++) {
+                String columnFile = fileName(names[c]) + (isFloat(c) ? ".f32" : ".i32");
+                try (DataOutputStream out = open(directory, columnFile)) {
+                    for (int i = 0; i < records; i++) {
+                        out.writeInt(Integer.reverseBytes(getInt(c, i)));     // Same bits for a float.
+                    }
+                }
+                manifest.println(names[c] + "," + (isFloat(c) ? "float32" : "int32") + "," + columnFile + ","
+                        + records);
+            }
+        }
+    }
+
+    private static DataOutputStream open(File directory, String name) throws IOException {
+        OutputStream file = new FileOutputStream(new File(directory, name));
+        return new DataOutputStream(new BufferedOutputStream(file, 1 << 16));
+    }
+
+    private static String fileName(String column) {
+        return column.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+
+    /**
+     * Export a recording: FlightRecordDecoder recording.bin (csv out.csv | columns outdir)
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3 || !(args[1].equals("csv") || args[1].equals("columns"))) {
+            System.err.println("usage: FlightRecordDecoder recording.bin (csv out.csv | columns outdir)");
+            System.exit(2);
+        }
+        FlightRecordDecoder recording = new FlightRecordDecoder(new File(args[0]));
+        if (args[1].equals("csv")) {
+            try (Writer writer = new OutputStreamWriter(new FileOutputStream(args[2]), Charset.forName("UTF-8"))) {
+                recording.writeCsv(writer);
+            }
+        } else {
+            recording.writeColumns(new File(args[2]));
+        }
+        System.out.printf("%d records (%d committed), %d columns%n", recording.getRecordCount(),
+                recording.getCommittedCount(), recording.getColumnCount());
+    }
+}
@@ -0,0 +1,230 @@
+package org.firstinspires.ftc.teamcode.telemetry;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Records one fixed-size binary record per control loop into a preallocated, memory-mapped file.
+ *
+ * RobotLog and telemetry are text, formatted on the loop thread and thrown away (or rate limited) when there is too
+ * much of it.  The flight recorder instead keeps every loop: the columns are declared once, during init, then each
+ * loop sets the values it has and calls commit(), which copies them into the file's next record slot.  The file is
+ * mapped into memory, so a commit is a few dozen memory writes: no system calls, no formatting, no allocation.
+ * The operating system writes the pages out in the background, and keeps them even if the app crashes.
+ *
+ *     FlightRecorder.Schema schema = new FlightRecorder.Schema();
+ *     int LEFT_POSITION = schema.addInt("left.position");
+ *     int HEADING       = schema.addFloat("imu.heading");
+ *     FlightRecorder recorder = new FlightRecorder(file, schema, 32768);
+ *     while (opModeIsActive()) {
+ *         ...
+ *         recorder.set(LEFT_POSITION, leftDrive.getCurrentPosition())
+ *                 .set(HEADING, (float) heading)
+ *                 .commit();
+ *     }
+ *     recorder.close();
+ *
+ * Values are sticky: a column that isn't set in a loop (eg: a vision pose when no new frame arrived) keeps the last
+ * value set.  When the file is full it wraps around, overwriting the oldest records, so it always holds the latest
+ * capacity loops; 32768 records is over five minutes at 100 loops per second.
+ *
+ * File layout (little-endian):
+ *   0   "FLTREC01"
+ *   8   int    version (1)
+ *   12  int    column count
+ *   16  int    record size, bytes
+ *   20  int    capacity, records
+ *   24  long   System.nanoTime() when the file was created
+ *   32  long   System.currentTimeMillis() when the file was created
+ *   40  long   records committed so far (record n is in slot n % capacity)
+ *   48  int    offset of the first record slot
+ *   64  columns: byte type (1 = int, 2 = float), short name length, UTF-8 name
+ *   records: long System.nanoTime() at commit(), then one 4 byte value per column
+ *
+ * FlightRecordDecoder reads the file on a desktop, and exports it as CSV or as one binary file per column.
+ */
+public class FlightRecorder {
+
+    static final byte[] MAGIC          = "FLTREC01".getBytes(Charset.forName("US-ASCII"));
+    static final int    VERSION        = 1;
+    static final int    COUNT_OFFSET   = 40;
+    static final int    COLUMNS_OFFSET = 64;
+    static final byte   INT            = 1;
+    static final byte   FLOAT          = 2;
+
+    /**
+     * The columns of a recording.  Columns are numbered in the order they are added.
+     */
+    public static class Schema {
+        private final List<String> names = new ArrayList<>();
+        private final List<Byte>   types = new ArrayList<>();
+
+        /** Add a 32 bit integer column, eg: an encoder position.  @return the column number. */
+        public int addInt(String name) {
+            return add(name, INT);
+        }
+
+        /** Add a 32 bit float column, eg: a power or a heading.  @return the column number. */
+        public int addFloat(String name) {
+            return add(name, FLOAT);
+        }
+
+        private int add(String name, byte type) {
+            names.add(name);
+            types.add(type);
+            return names.size() - 1;
+        }
+
+        /** @return number of columns. */
+        public int size() {
+            return names.size();
+        }
+    }
+
+    private final RandomAccessFile file;
+    private final MappedByteBuffer buffer;
+    private final byte[]           types;
+    private final int[]            values;      // The next record's values, as raw int bits.
+    private final int              recordBytes;
+    private final int              dataOffset;
+    private final int              capacity;
+
+    private long    committed = 0;
+    private boolean closed    = false;
+
+    /**
+     * Create (or replace) a recording file, at its full size.
+     *
+     * @param path     the file to write, eg: in AppUtil.ROBOT_DATA_DIR.
+     * @param schema   the columns.
+     * @param capacity number of records the file holds before wrapping around.
+     */
+    public FlightRecorder(File path, Schema schema, int capacity) throws IOException {
+        int columns = schema.size();
+        byte[][] names = new byte[columns][];
+        int tableBytes = 0;
+        for (int c = 0; c < columns; c++) {
+            names[c] = schema.names.get(c).getBytes(Charset.forName("UTF-8"));
+            tableBytes += 3 + names[c].length;
+        }
+        this.types       = new byte[columns];
+        this.values      = new int[columns];
+        this.recordBytes = 8 + 4 * columns;
+        this.dataOffset  = (COLUMNS_OFFSET + tableBytes + 63) & ~63;
+        this.capacity    = capacity;
+
+        long size = dataOffset + (long) recordBytes * capacity;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("recording too large: " + size + " bytes");
+        }
+        File directory = path.getAbsoluteFile().getParentFile();
+        if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("can't create " + directory);
+        }
+
+        file = new RandomAccessFile(path, "rw");
+        try {
+            file.setLength(0);
+            file.setLength(size);
+            buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        buffer.put(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putInt(columns);
+        buffer.putInt(recordBytes);
+        buffer.putInt(capacity);
+        buffer.putLong(System.nanoTime());
+        buffer.putLong(System.currentTimeMillis());
+        buffer.putLong(0);
+        buffer.putInt(dataOffset);
+        buffer.position(COLUMNS_OFFSET);
+        for (int c = 0; c < columns; c++) {
+            types[c] = schema.types.get(c);
+            buffer.put(types[c]);
+            buffer.putShort((short) names[c].length);
+            buffer.put(names[c]);
+        }
+    }
+
+    /** Set an int column's value for the next record. */
+    public FlightRecorder set(int column, int value) {
+        if (types[column] != INT) {
+            throw new IllegalArgumentException("column " + column + " is not an int column");
+        }
+        values[column] = value;
+        return this;
+    }
+
+    /** Set a float column's value for the next record. */
+    public FlightRecorder set(int column, float value) {
+        if (types[column] != FLOAT) {
+            throw new IllegalArgumentException("column " + column + " is not a float column");
+        }
+        values[column] = Float.floatToRawIntBits(value);
+        return this;
+    }
+
+    /** Set a float column's value for the next record. */
+    public FlightRecorder set(int column, double value) {
+        return set(column, (float) value);
+    }
+
+    /**
+     * Write the record, stamped with System.nanoTime().  The values stay set for the next record.
+     */
+    public void commit() {
+        commit(System.nanoTime());
+    }
+
+    /**
+     * commit(), stamped with a given time: the loop's own System.nanoTime(), if it has already read one.
+     */
+    public void commit(long nowNanos) {
+        if (closed) {
+            return;
+        }
+        int offset = dataOffset + (int) (committed % capacity) * recordBytes;
+        buffer.putLong(offset, nowNanos);
+        offset += 8;
+        for (int value : values) {
+            buffer.putInt(offset, value);
+            offset += 4;
+        }
+        committed++;
+        buffer.putLong(COUNT_OFFSET, committed);
+    }
+
+    /** @return number of records committed. */
+    public long getRecordCount() {
+        return committed;
+    }
+
+    /** @return number of records the file holds. */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Write everything out to storage, and close the file.  Takes some milliseconds: call it after the loop.
+     */
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        buffer.force();
+        file.close();
+    }
+}
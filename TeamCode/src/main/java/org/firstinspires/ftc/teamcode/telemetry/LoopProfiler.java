@@ -0,0 +1,339 @@
+package org.firstinspires.ftc.teamcode.telemetry;
+
+import android.os.Debug;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * Measures where an OpMode's loop time goes, section by section, without allocating.
+ *
+ * The OpMode calls loop() at the top of each pass, and mark() after each section, naming the section that just
+ * finished.  Each mark records the time since the previous mark (or since loop()), so the sections split the loop
+ * between them:
+ *
+ *     LoopProfiler profiler = new LoopProfiler(20);       // 20 mS loop deadline.
+ *     int READ    = profiler.addSection("hardware read");
+ *     int CONTROL = profiler.addSection("control");
+ *     int TELEM   = profiler.addSection("telemetry");
+ *     profiler.publish();                                 // Show it on the web page (LoopProfilerWebHandler).
+ *     while (opModeIsActive()) {
+ *         profiler.loop();
+ *         ...read sensors...
+ *         profiler.mark(READ);
+ *         ...
+ *     }
+ *
+ * Each section keeps its last few thousand durations (in microseconds) in a ring buffer, which snapshot() sorts
+ * into rolling percentiles.  loop() and mark() only read the clock and write to preallocated arrays, so they cost
+ * well under a microsecond and never cause garbage collection themselves.
+ * The whole loop period is section LOOP; a period longer than the deadline counts as a missed deadline.
+ *
+ * snapshot() is meant for another thread (the web server), and may run while the OpMode is writing.  A snapshot
+ * taken mid-write can include a duration from the next loop; for rolling statistics, that doesn't matter.
+ * It also reports the runtime's garbage collection counts since the profiler was created: blocking collections
+ * are the ones that stop allocating threads, and the usual cause of an isolated loop spike.
+ */
+public class LoopProfiler {
+
+    /** The section that times the whole loop, from one loop() to the next. */
+    public static final int LOOP = 0;
+
+    private static volatile LoopProfiler published = null;
+
+    private final int           size;
+    private final int           mask;
+    private final long          deadlineNanos;
+    private final List<String>  names = new ArrayList<>();
+    private final long[]        gcBaseline;
+
+    // Created by the first loop().  counts is set first, so a thread that sees rings also sees counts.
+    private volatile int[][] rings  = null;
+    private AtomicLongArray  counts = null;
+
+    // Only touched by the OpMode thread.
+    private long loopStart = 0;
+    private long lastMark  = 0;
+
+    private volatile long missed = 0;
+
+    /**
+     * @param deadlineMs the loop period that counts as on time.
+     */
+    public LoopProfiler(double deadlineMs) {
+        this(deadlineMs, 4096);
+    }
+
+    /**
+     * @param deadlineMs the loop period that counts as on time.
+     * @param history    how many durations to keep for each section; rounded up to a power of two.
+     */
+    public LoopProfiler(double deadlineMs, int history) {
+        int rounded = Integer.highestOneBit(Math.max(2, history - 1)) << 1;
+        this.size          = rounded;
+        this.mask          = rounded - 1;
+        this.deadlineNanos = (long) (deadlineMs * 1e6);
+        this.gcBaseline    = gcStats();
+        names.add("loop");
+    }
+
+    /**
+     * Add a section.  Call this before the first loop().
+     *
+     * @return the section's number, for mark().
+     */
+    public int addSection(String name) {
+        if (rings != null) {
+            throw new IllegalStateException("add sections before the first loop()");
+        }
+        names.add(name);
+        return names.size() - 1;
+    }
+
+    /**
+     * Make this the profiler that LoopProfilerWebHandler shows.
+     */
+    public void publish() {
+        published = this;
+    }
+
+    /**
+     * Stop showing this profiler on the web page, if it is the one being shown.
+     */
+    public void unpublish() {
+        if (published == this) {
+            published = null;
+        }
+    }
+
+    /** @return the profiler being shown on the web page, or null. */
+    public static LoopProfiler getPublished() {
+        return published;
+    }
+
+    /**
+     * Call at the top of each loop.  Ends the previous loop (recording its period) and starts the next.
+     */
+    public void loop() {
+        loop(System.nanoTime());
+    }
+
+    /**
+     * loop(), at a given time: the loop's own System.nanoTime(), if it has already read one, or a simulated time.
+     */
+    public void loop(long now) {
+        if (rings == null) {
+            counts = new AtomicLongArray(names.size());
+            rings  = new int[names.size()][size];
+        } else {
+            long period = now - loopStart;
+            record(LOOP, period);
+            if (period > deadlineNanos) {
+                missed++;
+            }
+        }
+        loopStart = now;
+        lastMark  = now;
+    }
+
+    /**
+     * Call when a section finishes: records the time since the last mark() or loop() against it.
+     */
+    public void mark(int section) {
+        mark(section, System.nanoTime());
+    }
+
+    /**
+     * mark(), at a given time.  Use the same clock as loop().
+     */
+    public void mark(int section, long now) {
+        if (rings != null) {
+            record(section, now - lastMark);
+        }
+        lastMark = now;
+    }
+
+    /**
+     * @return the section's most recent duration in microseconds, eg: for a FlightRecorder column.  0 if it hasn't
+     *         been recorded yet.
+     */
+    public int getLastMicros(int section) {
+        int[][] ringsNow = rings;
+        if (ringsNow == null) {
+            return 0;
+        }
+        long count = counts.get(section);
+        return (count == 0) ? 0 : ringsNow[section][(int) ((count - 1) & mask)];
+    }
+
+    private void record(int section, long nanos) {
+        long count = counts.get(section);
+        rings[section][(int) (count & mask)] = (int) Math.min(Integer.MAX_VALUE, nanos / 1000);
+        counts.lazySet(section, count + 1);
+    }
+
+    /**
+     * Rolling statistics for one section.  Times are in microseconds.
+     */
+    public static class SectionStats {
+        public final String name;
+        public final long   count;       // Durations recorded since the start.
+        public final int    samples;     // Durations the statistics are based on.
+        public final double mean;
+        public final int    p50, p95, p99, max;
+
+        SectionStats(String name, long count, int[] sorted, int samples) {
+            this.name    = name;
+            this.count   = count;
+            this.samples = samples;
+            long sum = 0;
+            for (int i = 0; i < samples; i++) {
+                sum += sorted[i];
+            }
+            this.mean = (samples == 0) ? 0 : (double) sum / samples;
+            this.p50  = percentile(sorted, samples, 50);
+            this.p95  = percentile(sorted, samples, 95);
+            this.p99  = percentile(sorted, samples, 99);
+            this.max  = (samples == 0) ? 0 : sorted[samples - 1];
+        }
+
+        private static int percentile(int[] sorted, int samples, int percent) {
+            if (samples == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(percent / 100.0 * samples);     // Nearest rank.
+            return sorted[Math.max(0, rank - 1)];
+        }
+    }
+
+    /**
+     * A point-in-time copy of the statistics.  Immutable.
+     */
+    public static class Snapshot {
+        public final SectionStats[] sections;       // sections[LOOP] is the whole loop.
+        public final long           loops;
+        public final long           missedDeadlines;
+        public final double         deadlineMs;
+        public final int[]          recentLoops;    // The latest loop periods, oldest first, in microseconds.
+        public final long           gcCount;        // Garbage collections since the profiler was created,
+        public final long           gcMs;           // and the time they took.  -1 if unavailable.
+        public final long           blockingGcCount;
+        public final long           blockingGcMs;
+
+        Snapshot(SectionStats[] sections, long missedDeadlines, double deadlineMs, int[] recentLoops, long[] gc) {
+            this.sections        = sections;
+            this.loops           = sections[LOOP].count;
+            this.missedDeadlines = missedDeadlines;
+            this.deadlineMs      = deadlineMs;
+            this.recentLoops     = recentLoops;
+            this.gcCount         = gc[0];
+            this.gcMs            = gc[1];
+            this.blockingGcCount = gc[2];
+            this.blockingGcMs    = gc[3];
+        }
+
+        /** @return the snapshot as a JSON object. */
+        public String toJson() {
+            StringBuilder json = new StringBuilder(256 + 96 * sections.length + 8 * recentLoops.length);
+            json.append("{\"loops\":").append(loops)
+                .append(",\"missedDeadlines\":").append(missedDeadlines)
+                .append(",\"deadlineMs\":").append(deadlineMs)
+                .append(",\"gc\":{\"count\":").append(gcCount).append(",\"ms\":").append(gcMs)
+                .append(",\"blockingCount\":").append(blockingGcCount)
+                .append(",\"blockingMs\":").append(blockingGcMs).append('}')
+                .append(",\"sections\":[");
+            for (int i = 0; i < sections.length; i++) {
+                SectionStats s = sections[i];
+                json.append((i == 0) ? "{" : ",{")
+                    .append("\"name\":\"").append(escape(s.name)).append('"')
+                    .append(",\"count\":").append(s.count)
+                    .append(",\"samples\":").append(s.samples)
+                    .append(",\"meanUs\":").append(Math.round(s.mean))
+                    .append(",\"p50Us\":").append(s.p50)
+                    .append(",\"p95Us\":").append(s.p95)
+                    .append(",\"p99Us\":").append(s.p99)
+                    .append(",\"maxUs\":").append(s.max).append('}');
+            }
+            json.append("],\"recentLoopsUs\":[");
+            for (int i = 0; i < recentLoops.length; i++) {
+                if (i > 0) {
+                    json.append(',');
+                }
+                json.append(recentLoops[i]);
+            }
+            return json.append("]}").toString();
+        }
+
+        private static String escape(String text) {
+            StringBuilder escaped = new StringBuilder(text.length());
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c == '"' || c == '\\') {
+                    escaped.append('\\').append(c);
+                } else if (c < ' ') {
+                    escaped.append(String.format("\\u%04x", (int) c));
+                } else {
+                    escaped.append(c);
+                }
+            }
+            return escaped.toString();
+        }
+    }
+
+    /**
+     * Work out the rolling statistics.  Allocates and sorts; call it from the web server or at the end of the
+     * OpMode, not from the loop.
+     *
+     * @param recent how many of the latest loop periods to include, for a chart.
+     */
+    public Snapshot snapshot(int recent) {
+        int sectionCount = names.size();
+        SectionStats[] stats = new SectionStats[sectionCount];
+        int[][] ringsNow = rings;
+        int[] recentLoops = new int[0];
+        for (int s = 0; s < sectionCount; s++) {
+            long count = (ringsNow == null) ? 0 : counts.get(s);
+            int samples = (int) Math.min(count, size);
+            int[] sorted = new int[samples];
+            if (samples > 0) {
+                System.arraycopy(ringsNow[s], 0, sorted, 0, samples);
+            }
+            if (s == LOOP) {
+                int n = Math.min(samples, recent);
+                recentLoops = new int[n];
+                for (int i = 0; i < n; i++) {
+                    recentLoops[i] = ringsNow[s][(int) ((count - n + i) & mask)];
+                }
+            }
+            Arrays.sort(sorted);
+            stats[s] = new SectionStats(names.get(s), count, sorted, samples);
+        }
+
+        long[] gc = gcStats();
+        for (int i = 0; i < gc.length; i++) {
+            gc[i] = (gc[i] < 0 || gcBaseline[i] < 0) ? -1 : gc[i] - gcBaseline[i];
+        }
+        return new Snapshot(stats, missed, deadlineNanos / 1e6, recentLoops, gc);
+    }
+
+    // The runtime's GC count, GC time (mS), blocking GC count and blocking GC time, or -1 where unavailable.
+    private static long[] gcStats() {
+        return new long[] {
+                runtimeStat("art.gc.gc-count"),
+                runtimeStat("art.gc.gc-time"),
+                runtimeStat("art.gc.blocking-gc-count"),
+                runtimeStat("art.gc.blocking-gc-time"),
+        };
+    }
+
+    private static long runtimeStat(String name) {
+        try {
+            String value = Debug.getRuntimeStat(name);
+            return (value == null) ? -1 : Long.parseLong(value);
+        } catch (RuntimeException e) {
+            return -1;      // Not an ART runtime (eg: a desktop test).
+        }
+    }
+}
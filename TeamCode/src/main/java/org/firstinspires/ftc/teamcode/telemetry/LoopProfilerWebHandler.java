@@ -0,0 +1,116 @@
+package org.firstinspires.ftc.teamcode.telemetry;
+
+import android.content.Context;
+
+import com.qualcomm.robotcore.util.WebHandlerManager;
+
+import org.firstinspires.ftc.ftccommon.external.WebHandlerRegistrar;
+import org.firstinspires.ftc.robotcore.internal.webserver.WebHandler;
+
+import fi.iki.elvis.NanoHTTPD;
+
+/*
+ * Serves the published LoopProfiler from the Robot Controller's web server.
+ *
+ *   http://192.168.43.1:8080/profiler        a page with a live chart of recent loop times and a table of
+ *                                            p50 / p95 / p99 / max for every section, refreshed twice a second.
+ *   http://192.168.43.1:8080/profiler/json   the same statistics as JSON (LoopProfiler.Snapshot.toJson()).
+ *
+ * FtcRobotControllerActivity.onServiceBind() calls every @WebHandlerRegistrar method in the app once the web server
+ * is up, so these pages are registered without any change to the FtcRobotController module.  Open the page on a
+ * laptop connected to the robot's Wi-Fi while driving a practice match: a spike in the chart, with the section
+ * that grew, shows where the time went.
+ */
+public class LoopProfilerWebHandler {
+
+    /** Loop periods included in each response, for the chart. */
+    static final int RECENT_LOOPS = 500;
+
+    private LoopProfilerWebHandler() {
+    }
+
+    @WebHandlerRegistrar
+    public static void attachWebServer(Context context, WebHandlerManager manager) {
+        manager.register("/profiler", new WebHandler() {
+            @Override
+            public NanoHTTPD.Response getResponse(NanoHTTPD.IHTTPSession session) {
+                return NanoHTTPD.newFixedLengthResponse(NanoHTTPD.Response.Status.OK, "text/html", PAGE);
+            }
+        });
+        manager.register("/profiler/json", new WebHandler() {
+            @Override
+            public NanoHTTPD.Response getResponse(NanoHTTPD.IHTTPSession session) {
+                NanoHTTPD.Response response = NanoHTTPD.newFixedLengthResponse(NanoHTTPD.Response.Status.OK,
+                        "application/json", json());
+                response.addHeader("Cache-Control", "no-cache");
+                return response;
+            }
+        });
+    }
+
+    /** @return the published profiler's statistics as JSON, or {"active":false} if there is none. */
+    static String json() {
+        LoopProfiler profiler = LoopProfiler.getPublished();
+        if (profiler == null) {
+            return "{\"active\":false}";
+        }
+        String snapshot = profiler.snapshot(RECENT_LOOPS).toJson();
+        return "{\"active\":true," + snapshot.substring(1);
+    }
+
+    private static final String PAGE =
+            "<!DOCTYPE html>\n"
+          + "<html><head><meta charset='utf-8'><title>Loop Profiler</title>\n"
+          + "<style>\n"
+          + "body{font-family:sans-serif;margin:16px;background:#fafafa}\n"
+          + "table{border-collapse:collapse;margin-top:12px}\n"
+          + "th,td{padding:4px 12px;text-align:right;border-bottom:1px solid #ddd}\n"
+          + "th:first-child,td:first-child{text-align:left}\n"
+          + "canvas{background:#fff;border:1px solid #ccc}\n"
+          + ".bad{color:#c00;font-weight:bold}\n"
+          + "</style></head><body>\n"
+          + "<h2>Loop Profiler</h2>\n"
+          + "<div id='status'>Waiting for data...</div>\n"
+          + "<canvas id='chart' width='1000' height='240'></canvas>\n"
+          + "<table id='sections'></table>\n"
+          + "<script>\n"
+          + "function ms(us){return (us/1000).toFixed(2);}\n"
+          + "function draw(d){\n"
+          + "  var c=document.getElementById('chart'),g=c.getContext('2d'),w=c.width,h=c.height;\n"
+          + "  g.clearRect(0,0,w,h);\n"
+          + "  var loops=d.recentLoopsUs,deadline=d.deadlineMs*1000,top=deadline*2;\n"
+          + "  for(var i=0;i<loops.length;i++){top=Math.max(top,loops[i]);}\n"
+          + "  var y=function(us){return h-us/top*(h-10);};\n"
+          + "  g.strokeStyle='#c00';g.setLineDash([6,4]);g.beginPath();\n"
+          + "  g.moveTo(0,y(deadline));g.lineTo(w,y(deadline));g.stroke();g.setLineDash([]);\n"
+          + "  var bar=w/Math.max(1,loops.length);\n"
+          + "  for(var i=0;i<loops.length;i++){\n"
+          + "    g.fillStyle=loops[i]>deadline?'#c00':'#3a7';\n"
+          + "    g.fillRect(i*bar,y(loops[i]),Math.max(1,bar-1),h-y(loops[i]));\n"
+          + "  }\n"
+          + "  g.fillStyle='#000';g.fillText(ms(top)+' mS',4,12);g.fillText('deadline '+d.deadlineMs+' mS',4,y(deadline)-4);\n"
+          + "}\n"
+          + "function show(d){\n"
+          + "  var s=document.getElementById('status');\n"
+          + "  if(!d.active){s.textContent='No profiler published.  Start an OpMode that uses LoopProfiler.';return;}\n"
+          + "  var gc=d.gc.count<0?'unavailable':d.gc.count+' GCs ('+d.gc.ms+' mS), '+d.gc.blockingCount\n"
+          + "      +' blocking ('+d.gc.blockingMs+' mS)';\n"
+          + "  s.innerHTML=d.loops+' loops, <span class=\"'+(d.missedDeadlines>0?'bad':'')+'\">'+d.missedDeadlines\n"
+          + "      +' missed deadlines</span>, GC: '+gc;\n"
+          + "  draw(d);\n"
+          + "  var t='<tr><th>Section</th><th>mean</th><th>p50</th><th>p95</th><th>p99</th><th>max (mS)</th>'\n"
+          + "      +'<th>count</th></tr>';\n"
+          + "  d.sections.forEach(function(x){\n"
+          + "    t+='<tr><td>'+x.name.replace(/</g,'&lt;')+'</td><td>'+ms(x.meanUs)+'</td><td>'+ms(x.p50Us)+'</td><td>'\n"
+          + "       +ms(x.p95Us)+'</td><td>'+ms(x.p99Us)+'</td><td>'+ms(x.maxUs)+'</td><td>'+x.count+'</td></tr>';\n"
+          + "  });\n"
+          + "  document.getElementById('sections').innerHTML=t;\n"
+          + "}\n"
+          + "function poll(){\n"
+          + "  fetch('/profiler/json').then(function(r){return r.json();}).then(show)\n"
+          + "    .catch(function(){document.getElementById('status').textContent='Robot not reachable';})\n"
+          + "    .then(function(){setTimeout(poll,500);});\n"
+          + "}\n"
+          + "poll();\n"
+          + "</script></body></html>\n";
+}
@@ -0,0 +1,102 @@
+package org.firstinspires.ftc.teamcode.vision;
+
+import org.firstinspires.ftc.vision.apriltag.AprilTagDetection;
+import org.firstinspires.ftc.vision.apriltag.AprilTagProcessor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/*
+ * Writes and compares AprilTag replay output, so a change to decimation, resolution or threading can be checked
+ * against a known-good ("golden") run as well as timed.
+ *
+ * Each frame is one line: the frame name, then "id:centerX:centerY" for each detection, sorted by ID.
+ *     VisionPortal-CameraFrameCapture-000003.png 2:311.4:240.9 5:402.0:236.2
+ *
+ * Two outputs match when every frame has the same tag IDs, and each tag center is within a pixel tolerance.
+ * Decimation changes the corner refinement slightly, so an exact text match is too strict.
+ */
+public class AprilTagGoldenOutput {
+
+    private AprilTagGoldenOutput() {
+    }
+
+    /**
+     * @return an OutputWriter describing the detections of an AprilTagProcessor in the replayed chain.
+     */
+    public static FrameReplay.OutputWriter writer(final AprilTagProcessor aprilTag) {
+        return (frameName, processorResults) -> format(frameName, aprilTag.getDetections());
+    }
+
+    /**
+     * @return one output line for a frame's detections.
+     */
+    public static String format(String frameName, List<AprilTagDetection> detections) {
+        List<AprilTagDetection> sorted = new ArrayList<>(detections);
+        Collections.sort(sorted, (a, b) -> Integer.compare(a.id, b.id));
+
+        StringBuilder line = new StringBuilder(frameName);
+        for (AprilTagDetection detection : sorted) {
+            line.append(String.format(Locale.US, " %d:%.1f:%.1f", detection.id, detection.center.x, detection.center.y));
+        }
+        return line.toString();
+    }
+
+    /**
+     * Compare replay output with golden output.  Frames are matched by name, so frames dropped in an ORIGINAL
+     * timing replay are skipped rather than reported.
+     *
+     * @param golden      the expected lines.
+     * @param actual      the lines from this run.
+     * @param tolerancePx how far a tag center may move before it counts as a difference.
+     * @return a description of each difference.  Empty if the outputs match.
+     */
+    public static List<String> compare(List<String> golden, List<String> actual, double tolerancePx) {
+        Map<String, String> expected = new HashMap<>();
+        for (String line : golden) {
+            line = line.trim();
+            if (!line.isEmpty()) {
+                expected.put(line.split(" ")[0], line);
+            }
+        }
+
+        List<String> differences = new ArrayList<>();
+        for (String line : actual) {
+            line = line.trim();
+            String frameName = line.split(" ")[0];
+            String expectedLine = expected.get(frameName);
+            String difference = (expectedLine == null) ? frameName + ": not in the golden output"
+                                                       : compareLine(expectedLine, line, tolerancePx);
+            if (difference != null) {
+                differences.add(difference);
+            }
+        }
+        return differences;
+    }
+
+    // @return null if the lines match, otherwise a description of the difference.
+    private static String compareLine(String golden, String actual, double tolerancePx) {
+        String[] expected = golden.split(" ");
+        String[] found    = actual.split(" ");
+        if (expected.length != found.length) {
+            return expected[0] + ": expected " + (expected.length - 1) + " tags, got " + (found.length - 1);
+        }
+        for (int t = 1; t < expected.length; t++) {
+            String[] e = expected[t].split(":");
+            String[] f = found[t].split(":");
+            if (e.length != 3 || f.length != 3 || !e[0].equals(f[0])) {
+                return expected[0] + ": expected tag " + expected[t] + ", got " + found[t];
+            }
+            double dx = Double.parseDouble(e[1]) - Double.parseDouble(f[1]);
+            double dy = Double.parseDouble(e[2]) - Double.parseDouble(f[2]);
+            if (Math.hypot(dx, dy) > tolerancePx) {
+                return String.format(Locale.US, "%s: tag %s moved %.1f px", expected[0], e[0], Math.hypot(dx, dy));
+            }
+        }
+        return null;
+    }
+}
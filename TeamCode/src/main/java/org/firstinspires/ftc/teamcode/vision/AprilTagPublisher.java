@@ -0,0 +1,186 @@
+package org.firstinspires.ftc.teamcode.vision;
+
+import android.graphics.Canvas;
+
+import org.firstinspires.ftc.robotcore.internal.camera.calibration.CameraCalibration;
+import org.firstinspires.ftc.vision.VisionProcessor;
+import org.firstinspires.ftc.vision.apriltag.AprilTagDetection;
+import org.firstinspires.ftc.vision.apriltag.AprilTagProcessor;
+import org.opencv.core.Mat;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+ * A VisionPortal pipeline stage that publishes each frame's AprilTag detections to the control loop without blocking it.
+ *
+ * Add it to the VisionPortal AFTER the AprilTagProcessor.  The portal runs its processors one after another on
+ * its own frame thread, so when this stage's processFrame() is called, the AprilTag processor has just finished
+ * with the same frame.  The stage collects those detections, stamps them with the frame's capture time and a
+ * sequence number, and stores them in a single latest-value slot.
+ *
+ * The slot is an AtomicReference to an immutable VisionResult: the frame thread is the only writer, and any number
+ * of readers can call getLatest() at any time, at any rate, without locks and without ever seeing a half-written
+ * result.  The control loop therefore runs at its own rate instead of the camera's, and can:
+ *  - tell exactly how old the pose it is using is (VisionResult.getAgeNanos()),
+ *  - skip frames it has already acted on (VisionResult.isNewerThan()).
+ *
+ *     aprilTag  = new AprilTagProcessor.Builder().build();
+ *     publisher = new AprilTagPublisher(aprilTag);
+ *     visionPortal = new VisionPortal.Builder()
+ *             .setCamera(hardwareMap.get(WebcamName.class, "Webcam 1"))
+ *             .addProcessors(aprilTag, publisher)
+ *             .build();
+ *
+ * Once the publisher is in use, nothing else should call getFreshDetections() on the same AprilTagProcessor.
+ *
+ * The publisher also keeps running frame statistics (frames seen, frames processed, total processing time, frames
+ * containing a library tag).  These are what a CameraScheduler uses to balance several cameras.  If the AprilTag
+ * processor is disabled, this stage still sees each frame, so those frames are counted as skipped.
+ *
+ * Capture-to-publish time includes the camera's exposure and transport and the frame's wait in the portal's queue,
+ * none of which is CPU spent on AprilTags.  To time the AprilTag processor alone, also add the publisher's start
+ * stage, just BEFORE the AprilTagProcessor:
+ *
+ *             .addProcessors(publisher.getStartStage(), aprilTag, publisher)
+ */
+public class AprilTagPublisher implements VisionProcessor {
+
+    /**
+     * Where the publisher gets each frame's detections from.  Normally this is AprilTagProcessor.getFreshDetections().
+     */
+    public interface DetectionSource {
+        /** @return the detections for the frame just processed, or null if no new frame has been processed. */
+        List<AprilTagDetection> getFreshDetections();
+    }
+
+    private final DetectionSource source;
+    private final AtomicReference<VisionResult> latest = new AtomicReference<>(VisionResult.NONE);
+    private final VisionProcessor startStage = new StartStage();
+
+    private long sequence          = 0;     // Only ever written by the publishing thread.
+    private long processStartNanos = 0;     // Set by the start stage, on the same thread, for the current frame.
+
+    // Frame statistics.  Only ever written by the publishing thread, read by anyone.
+    private volatile long framesSeen          = 0;
+    private volatile long framesPublished     = 0;
+    private volatile long framesWithTags      = 0;
+    private volatile long totalPipelineNanos  = 0;
+    private volatile long totalProcessNanos   = 0;
+    private volatile long lastTagCaptureNanos = 0;
+
+    /**
+     * Publish the detections of an AprilTagProcessor running earlier in the same VisionPortal.
+     */
+    public AprilTagPublisher(AprilTagProcessor aprilTag) {
+        this(aprilTag::getFreshDetections);
+    }
+
+    /**
+     * Publish detections from any source.  Use this with a SyntheticFrameSource, or with publish() directly,
+     * to drive the publisher off-robot.
+     */
+    public AprilTagPublisher(DetectionSource source) {
+        this.source = source;
+    }
+
+    @Override
+    public void init(int width, int height, CameraCalibration calibration) {
+    }
+
+    @Override
+    public Object processFrame(Mat frame, long captureTimeNanos) {
+        framesSeen++;
+        List<AprilTagDetection> detections = source.getFreshDetections();
+        if (detections != null) {
+            publish(detections, captureTimeNanos);
+        }
+        return null;
+    }
+
+    @Override
+    public void onDrawFrame(Canvas canvas, int onscreenWidth, int onscreenHeight,
+                            float scaleBmpPxToCanvasPx, float scaleCanvasDensity, Object userContext) {
+    }
+
+    /**
+     * Publish one frame's detections.  This must only ever be called from one thread at a time.
+     *
+     * @param detections   the frame's detections.  The list must not be modified afterwards.
+     * @param captureNanos System.nanoTime() at which the frame was captured.
+     * @return the result that was published.
+     */
+    public VisionResult publish(List<AprilTagDetection> detections, long captureNanos) {
+        long now = System.nanoTime();
+        VisionResult result = new VisionResult(++sequence, captureNanos, now,
+                                               Collections.unmodifiableList(detections));
+        latest.set(result);
+
+        totalPipelineNanos += result.getPipelineLatencyNanos();
+        totalProcessNanos  += (processStartNanos != 0) ? now - processStartNanos : result.getPipelineLatencyNanos();
+        processStartNanos   = 0;
+        if (result.findTag(-1) != null) {
+            framesWithTags++;
+            lastTagCaptureNanos = captureNanos;
+        }
+        framesPublished = sequence;
+        return result;
+    }
+
+    /**
+     * @return the stage to add to the VisionPortal just before the AprilTagProcessor, so that the publisher can
+     *         time the AprilTag processing itself.  It does nothing else.
+     */
+    public VisionProcessor getStartStage() {
+        return startStage;
+    }
+
+    /**
+     * @return the most recently published result, or VisionResult.NONE if no frame has been processed yet.
+     *         Never blocks.
+     */
+    public VisionResult getLatest() {
+        return latest.get();
+    }
+
+    /** @return number of frames the VisionPortal passed to this stage, whether or not AprilTags were processed. */
+    public long getFramesSeen()          { return framesSeen; }
+
+    /** @return number of frames whose detections have been published. */
+    public long getFramesPublished()     { return framesPublished; }
+
+    /** @return number of published frames that contained at least one tag with library metadata. */
+    public long getFramesWithTags()      { return framesWithTags; }
+
+    /** @return sum of capture-to-publish time over all published frames. */
+    public long getTotalPipelineNanos()  { return totalPipelineNanos; }
+
+    /**
+     * @return sum of AprilTag processing time over all published frames: the time from the start stage to
+     *         publishing, or the capture-to-publish time for frames that didn't pass through the start stage.
+     */
+    public long getTotalProcessNanos()   { return totalProcessNanos; }
+
+    /** @return capture time of the last frame that contained a library tag, or 0 if there hasn't been one. */
+    public long getLastTagCaptureNanos() { return lastTagCaptureNanos; }
+
+    // Notes when the portal starts processing a frame.  The portal runs it, the AprilTagProcessor and then the
+    // publisher one after another on its frame thread.
+    private class StartStage implements VisionProcessor {
+        @Override
+        public void init(int width, int height, CameraCalibration calibration) {
+        }
+
+        @Override
+        public Object processFrame(Mat frame, long captureTimeNanos) {
+            processStartNanos = System.nanoTime();
+            return null;
+        }
+
+        @Override
+        public void onDrawFrame(Canvas canvas, int onscreenWidth, int onscreenHeight,
+                                float scaleBmpPxToCanvasPx, float scaleCanvasDensity, Object userContext) {
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package org.firstinspires.ftc.teamcode.vision;
+
+import org.firstinspires.ftc.robotcore.external.matrices.GeneralMatrixF;
+import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
+import org.firstinspires.ftc.robotcore.external.navigation.AxesOrder;
+import org.firstinspires.ftc.robotcore.external.navigation.AxesReference;
+import org.firstinspires.ftc.robotcore.external.navigation.Orientation;
+import org.firstinspires.ftc.robotcore.internal.camera.calibration.CameraCalibration;
+import org.firstinspires.ftc.vision.apriltag.AprilTagDetection;
+import org.firstinspires.ftc.vision.apriltag.AprilTagMetadata;
+import org.firstinspires.ftc.vision.apriltag.AprilTagPoseFtc;
+import org.firstinspires.ftc.vision.apriltag.AprilTagPoseRaw;
+import org.firstinspires.ftc.vision.apriltag.AprilTagProcessor;
+import org.opencv.calib3d.Calib3d;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfDouble;
+import org.opencv.core.MatOfPoint2f;
+import org.opencv.core.MatOfPoint3f;
+import org.opencv.core.Point;
+import org.opencv.core.Point3;
+import org.opencv.core.Rect;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/*
+ * Runs an AprilTagProcessor on a whole frame or on a region of it, for an AprilTagRoiTracker.
+ *
+ * The processor is driven directly, so it must NOT also be added to the VisionPortal.  For a region, it is given a
+ * submat of the frame (no pixels are copied), and its detections come back in the region's coordinates, with a pose
+ * solved as if the region's corner were the image's center.  This detector shifts the corners and center back to
+ * frame coordinates and solves each tag's pose again from them, with the lens intrinsics of the whole frame, the way
+ * the processor's OPENCV_IPPE_SQUARE solver does.
+ *
+ * The intrinsics must be the ones given to AprilTagProcessor.Builder.setLensIntrinsics(), and the processor must
+ * use its default output units (inches and degrees).  Tags without metadata get no pose, as from the processor.
+ */
+public class AprilTagRegionDetector implements AprilTagRoiTracker.Detector {
+
+    private final AprilTagProcessor aprilTag;
+
+    private final Mat          cameraMatrix = new Mat(3, 3, CvType.CV_64FC1);
+    private final MatOfDouble  distortion   = new MatOfDouble();
+    private final MatOfPoint3f objectPoints = new MatOfPoint3f();
+    private final MatOfPoint2f imagePoints  = new MatOfPoint2f();
+    private final Mat          rvec         = new Mat();
+    private final Mat          tvec         = new Mat();
+    private final Mat          rotation     = new Mat();
+
+    private float decimation = -1;
+
+    /**
+     * @param aprilTag       the processor to run.  Don't add it to the VisionPortal.
+     * @param fx, fy, cx, cy its lens intrinsics, in pixels.
+     */
+    public AprilTagRegionDetector(AprilTagProcessor aprilTag, double fx, double fy, double cx, double cy) {
+        this.aprilTag = aprilTag;
+        cameraMatrix.put(0, 0,
+                fx, 0,  cx,
+                0,  fy, cy,
+                0,  0,  1);
+    }
+
+    @Override
+    public void init(int width, int height, CameraCalibration calibration) {
+        aprilTag.init(width, height, calibration);
+    }
+
+    @Override
+    public List<AprilTagDetection> detect(Mat frame, Rect region, float decimation, long captureNanos) {
+        if (decimation != this.decimation) {
+            aprilTag.setDecimation(decimation);     // Takes effect from the next processFrame().
+            this.decimation = decimation;
+        }
+        if (region == null) {
+            aprilTag.processFrame(frame, captureNanos);
+            return detections();
+        }
+
+        Mat crop = frame.submat(region);
+        aprilTag.processFrame(crop, captureNanos);
+        crop.release();
+
+        List<AprilTagDetection> found = detections();
+        List<AprilTagDetection> shifted = new ArrayList<>(found.size());
+        for (AprilTagDetection detection : found) {
+            shifted.add(shift(detection, region.x, region.y));
+        }
+        return shifted;
+    }
+
+    private List<AprilTagDetection> detections() {
+        List<AprilTagDetection> found = aprilTag.getFreshDetections();
+        return (found == null) ? Collections.<AprilTagDetection>emptyList() : found;
+    }
+
+    // The detection moved to frame coordinates, with its pose solved again.
+    private AprilTagDetection shift(AprilTagDetection detection, int dx, int dy) {
+        Point[] corners = new Point[detection.corners.length];
+        for (int k = 0; k < corners.length; k++) {
+            corners[k] = new Point(detection.corners[k].x + dx, detection.corners[k].y + dy);
+        }
+        Point center = new Point(detection.center.x + dx, detection.center.y + dy);
+
+        AprilTagPoseRaw rawPose = (detection.metadata == null) ? null : solvePose(detection.metadata, corners);
+        AprilTagPoseFtc ftcPose = (rawPose == null) ? null : ftcPose(rawPose);
+        return new AprilTagDetection(detection.id, detection.hamming, detection.decisionMargin, center, corners,
+                                     detection.metadata, ftcPose, rawPose, detection.frameAcquisitionNanoTime);
+    }
+
+    private AprilTagPoseRaw solvePose(AprilTagMetadata metadata, Point[] corners) {
+        // The tag's corners in its own frame, in the order the detector reports them.
+        double s = metadata.distanceUnit.toInches(metadata.tagsize) / 2;
+        objectPoints.fromArray(new Point3(-s, s, 0), new Point3(s, s, 0), new Point3(s, -s, 0), new Point3(-s, -s, 0));
+        imagePoints.fromArray(corners);
+        if (!Calib3d.solvePnP(objectPoints, imagePoints, cameraMatrix, distortion, rvec, tvec, false,
+                              Calib3d.SOLVEPNP_IPPE_SQUARE)) {
+            return null;
+        }
+        Calib3d.Rodrigues(rvec, rotation);
+
+        float[] r = new float[9];
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                r[i * 3 + j] = (float) rotation.get(i, j)[0];
+            }
+        }
+        return new AprilTagPoseRaw(tvec.get(0, 0)[0], tvec.get(1, 0)[0], tvec.get(2, 0)[0], new GeneralMatrixF(3, 3, r));
+    }
+
+    // The same conversion as the processor's: x right, y out of the camera, z up, angles in degrees.
+    private static AprilTagPoseFtc ftcPose(AprilTagPoseRaw raw) {
+        Orientation rot = Orientation.getOrientation(raw.R, AxesReference.INTRINSIC, AxesOrder.YXZ, AngleUnit.DEGREES);
+        return new AprilTagPoseFtc(
+                raw.x,
+                raw.z,
+                -raw.y,
+                -rot.firstAngle,
+                rot.secondAngle,
+                rot.thirdAngle,
+                Math.hypot(raw.x, raw.z),
+                Math.toDegrees(Math.atan2(-raw.x, raw.z)),
+                Math.toDegrees(Math.atan2(-raw.y, raw.z)));
+    }
+}
@@ -0,0 +1,474 @@
+package org.firstinspires.ftc.teamcode.vision;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+
+import org.firstinspires.ftc.robotcore.internal.camera.calibration.CameraCalibration;
+import org.firstinspires.ftc.vision.VisionProcessor;
+import org.firstinspires.ftc.vision.apriltag.AprilTagDetection;
+import org.firstinspires.ftc.vision.apriltag.AprilTagProcessor;
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * A VisionPortal processor that tracks AprilTags, searching only where each tag is expected to be.
+ *
+ * An AprilTagProcessor searches the whole frame every frame, at a fixed decimation, even when the same tags have
+ * been in view for dozens of frames.  This processor wraps one and, once it has found tags:
+ *  1) predicts where each tag will be in this frame, from its last two detections (moving and growing at the same
+ *     rate as between them) and from the robot's turn rate, if it is given one,
+ *  2) searches a padded region around each prediction, merging regions that overlap, at FULL resolution,
+ *  3) adds a decimated search of the whole frame every searchInterval frames (to find new tags) and whenever a
+ *     tracked tag isn't found in its region, and searches only the whole frame when the regions would cost more.
+ *
+ * During an approach the regions are a small part of the frame, so each frame costs far less to process, and because
+ * they aren't decimated, small or distant tags keep being found and have more precise corners.
+ *
+ *     aprilTag = new AprilTagProcessor.Builder().setLensIntrinsics(fx, fy, cx, cy).build();
+ *     tracker  = new AprilTagRoiTracker(aprilTag, fx, fy, cx, cy);
+ *     visionPortal = new VisionPortal.Builder()
+ *             .setCamera(hardwareMap.get(WebcamName.class, "Webcam 1"))
+ *             .addProcessor(tracker)                      // NOT aprilTag: the tracker runs it.
+ *             .build();
+ *     ...
+ *     List<AprilTagDetection> detections = tracker.getDetections();
+ *
+ * getDetections() and getFreshDetections() behave as the AprilTagProcessor's do, so an AprilTagPublisher can take
+ * its detections with new AprilTagPublisher(tracker::getFreshDetections), added after the tracker.
+ *
+ * Tracking state is only touched by the frame thread.  Settings may be changed from any thread.
+ */
+public class AprilTagRoiTracker implements VisionProcessor {
+
+    /**
+     * Finds tags in a frame, or in a region of one.  AprilTagRegionDetector does this with an AprilTagProcessor.
+     */
+    public interface Detector {
+        void init(int width, int height, CameraCalibration calibration);
+
+        /**
+         * @param region     the part of the frame to search, or null for all of it.
+         * @param decimation the decimation to search at.
+         * @return the tags found, with corners and center in frame coordinates.
+         */
+        List<AprilTagDetection> detect(Mat frame, Rect region, float decimation, long captureNanos);
+    }
+
+    /**
+     * How a frame was searched.
+     */
+    public enum Search { NONE, FULL_FRAME, REGIONS }
+
+    public static final int MAX_TRACKS = 8;
+
+    private static final double SMOOTHING = 0.5;        // Weight of the newest motion in a track's velocity.
+
+    private final Detector detector;
+    private final double   focalLength;                 // Pixels per radian of turn, near the image center.
+
+    // Settings.
+    private volatile boolean tracking         = true;
+    private volatile float   searchDecimation = 2;
+    private volatile int     searchInterval   = 15;
+    private volatile double  padFraction      = 0.5;
+    private volatile int     minPadPixels     = 16;
+    private volatile double  yawRate          = 0;      // Robot turn rate, radians per second, CCW positive.
+
+    private int width, height;
+
+    // Tracks, by slot.  A track's box is the tag's last bounding box; its center moves at (velX, velY) pixels per
+    // second, and its half-size grows at growth pixels per second.  velX includes the robot's turn at the time,
+    // trackTurn, so only a change in turn rate since then is added to a prediction.
+    private final int[]     trackId    = new int[MAX_TRACKS];
+    private final boolean[] trackAlive = new boolean[MAX_TRACKS];
+    private final boolean[] trackSeen  = new boolean[MAX_TRACKS];
+    private final double[]  centerX    = new double[MAX_TRACKS];
+    private final double[]  centerY    = new double[MAX_TRACKS];
+    private final double[]  halfWidth  = new double[MAX_TRACKS];
+    private final double[]  halfHeight = new double[MAX_TRACKS];
+    private final double[]  velX       = new double[MAX_TRACKS];
+    private final double[]  velY       = new double[MAX_TRACKS];
+    private final double[]  growth     = new double[MAX_TRACKS];
+    private final double[]  trackTurn  = new double[MAX_TRACKS];
+    private final long[]    seenNanos  = new long[MAX_TRACKS];
+    private int    trackCount        = 0;
+    private int    framesSinceSearch = 0;
+    private double frameTurn         = 0;               // This frame's focalLength * yawRate.
+
+    private final Rect[] regions = new Rect[MAX_TRACKS];
+    private int regionCount = 0;
+
+    // Output.
+    private final Object detectionsLock = new Object();
+    private ArrayList<AprilTagDetection> detections = new ArrayList<>();
+    private ArrayList<AprilTagDetection> fresh      = null;
+
+    // Statistics.  Only ever written by the frame thread, read by anyone.
+    private volatile long   frames         = 0;
+    private volatile long   fullSearches   = 0;
+    private volatile long   lostTracks     = 0;
+    private volatile long   totalNanos     = 0;
+    private volatile long   lastNanos      = 0;
+    private volatile double lastSearched   = 0;
+    private volatile Search lastSearch     = Search.NONE;
+
+    private final Paint regionPaint = new Paint();
+    private final Paint tagPaint    = new Paint();
+
+    /**
+     * Track with an AprilTagProcessor.  Don't add the processor to the VisionPortal: add this tracker instead.
+     *
+     * @param aprilTag       the processor.
+     * @param fx, fy, cx, cy the lens intrinsics given to the processor's builder, in pixels.
+     */
+    public AprilTagRoiTracker(AprilTagProcessor aprilTag, double fx, double fy, double cx, double cy) {
+        this(new AprilTagRegionDetector(aprilTag, fx, fy, cx, cy), fx);
+    }
+
+    /**
+     * Track with any detector.
+     *
+     * @param focalLength the camera's horizontal focal length in pixels, used to predict the effect of a turn.
+     */
+    public AprilTagRoiTracker(Detector detector, double focalLength) {
+        this.detector    = detector;
+        this.focalLength = focalLength;
+        for (int i = 0; i < MAX_TRACKS; i++) {
+            regions[i] = new Rect();
+        }
+        regionPaint.setColor(Color.YELLOW);
+        regionPaint.setStyle(Paint.Style.STROKE);
+        tagPaint.setColor(Color.GREEN);
+        tagPaint.setStyle(Paint.Style.STROKE);
+    }
+
+    // ---------------------------------------------------------------------------------------------------------------
+    // Settings.
+
+    /**
+     * Turn tracking on or off.  Off, every frame is a full-frame search, as with the AprilTagProcessor alone.
+     */
+    public void setTracking(boolean tracking) {
+        this.tracking = tracking;
+    }
+
+    /**
+     * @param decimation decimation of full-frame searches (as AprilTagProcessor.setDecimation()).
+     * @param interval   frames between full-frame searches while tracking, to pick up new tags.
+     */
+    public void setSearch(float decimation, int interval) {
+        searchDecimation = decimation;
+        searchInterval   = interval;
+    }
+
+    /**
+     * Set the margin added around each predicted tag: the larger of fraction times the tag's size, and minPixels.
+     */
+    public void setPadding(double fraction, int minPixels) {
+        padFraction  = fraction;
+        minPadPixels = minPixels;
+    }
+
+    /**
+     * Give the tracker the robot's current turn rate (e.g. from the IMU), so a turn doesn't lose the tags.
+     *
+     * @param radiansPerSecond turn rate, counter-clockwise positive.
+     */
+    public void setRobotYawRate(double radiansPerSecond) {
+        yawRate = radiansPerSecond;
+    }
+
+    // ---------------------------------------------------------------------------------------------------------------
+    // VisionProcessor.
+
+    @Override
+    public void init(int width, int height, CameraCalibration calibration) {
+        this.width  = width;
+        this.height = height;
+        detector.init(width, height, calibration);
+    }
+
+    @Override
+    public Object processFrame(Mat frame, long captureTimeNanos) {
+        long start = System.nanoTime();
+        ArrayList<AprilTagDetection> found = new ArrayList<>();
+        frameTurn = focalLength * yawRate;
+
+        boolean full     = !tracking || trackCount == 0 || framesSinceSearch >= searchInterval;
+        double  searched = 0;
+        Search  search   = Search.FULL_FRAME;
+        regionCount = 0;
+        if (tracking && trackCount > 0) {
+            // The regions are searched even before a full-frame search, which might be too decimated to find them.
+            predictRegions(captureTimeNanos);
+            double fraction = regionPixels() / ((double) width * height);
+            if (fraction * searchDecimation * searchDecimation >= 1) {
+                regionCount = 0;
+                full = true;            // Cheaper to search the whole frame.
+            } else {
+                for (int r = 0; r < regionCount; r++) {
+                    addNew(found, detector.detect(frame, regions[r], 1, captureTimeNanos));
+                }
+                searched = fraction;
+                search   = Search.REGIONS;
+                framesSinceSearch++;
+                if (updateTracks(found, captureTimeNanos, false)) {
+                    lostTracks++;
+                    full = true;        // Look for the lost tag everywhere.  Keep the full resolution finds.
+                }
+            }
+        }
+        if (full) {
+            addNew(found, detector.detect(frame, null, searchDecimation, captureTimeNanos));
+            updateTracks(found, captureTimeNanos, true);
+            searched += 1 / (searchDecimation * searchDecimation);
+            search    = Search.FULL_FRAME;
+            framesSinceSearch = 0;
+            fullSearches++;
+        }
+        lastSearched = searched;
+        lastSearch   = search;
+
+        synchronized (detectionsLock) {
+            detections = found;
+            fresh      = found;
+        }
+        lastNanos = System.nanoTime() - start;
+        totalNanos += lastNanos;
+        frames++;
+
+        // What to draw: this frame's regions, and its tags.
+        Rect[] drawn = new Rect[regionCount];
+        for (int r = 0; r < regionCount; r++) {
+            drawn[r] = regions[r].clone();
+        }
+        return new Object[] {drawn, found};
+    }
+
+    @Override
+    public void onDrawFrame(Canvas canvas, int onscreenWidth, int onscreenHeight,
+                            float scaleBmpPxToCanvasPx, float scaleCanvasDensity, Object userContext) {
+        if (!(userContext instanceof Object[])) {
+            return;
+        }
+        float scale = scaleBmpPxToCanvasPx;
+        regionPaint.setStrokeWidth(2 * scaleCanvasDensity);
+        tagPaint.setStrokeWidth(3 * scaleCanvasDensity);
+        for (Rect region : (Rect[]) ((Object[]) userContext)[0]) {
+            canvas.drawRect(region.x * scale, region.y * scale, (region.x + region.width) * scale,
+                            (region.y + region.height) * scale, regionPaint);
+        }
+        @SuppressWarnings("unchecked")
+        List<AprilTagDetection> tags = (List<AprilTagDetection>) ((Object[]) userContext)[1];
+        for (AprilTagDetection tag : tags) {
+            for (int k = 0; k < 4; k++) {
+                int next = (k + 1) % 4;
+                canvas.drawLine((float) tag.corners[k].x * scale, (float) tag.corners[k].y * scale,
+                                (float) tag.corners[next].x * scale, (float) tag.corners[next].y * scale, tagPaint);
+            }
+        }
+    }
+
+    // ---------------------------------------------------------------------------------------------------------------
+    // Output, as from an AprilTagProcessor.
+
+    /** @return the detections from the most recent frame. */
+    public ArrayList<AprilTagDetection> getDetections() {
+        synchronized (detectionsLock) {
+            return detections;
+        }
+    }
+
+    /** @return the detections from the most recent frame, or null if they have already been returned. */
+    public ArrayList<AprilTagDetection> getFreshDetections() {
+        synchronized (detectionsLock) {
+            ArrayList<AprilTagDetection> result = fresh;
+            fresh = null;
+            return result;
+        }
+    }
+
+    // ---------------------------------------------------------------------------------------------------------------
+    // Tracking.
+
+    // Add detections whose IDs aren't already in the list.
+    private static void addNew(List<AprilTagDetection> found, List<AprilTagDetection> more) {
+        for (int i = 0, n = more.size(); i < n; i++) {
+            AprilTagDetection detection = more.get(i);
+            boolean duplicate = false;
+            for (int j = 0; j < found.size() && !duplicate; j++) {
+                duplicate = found.get(j).id == detection.id;
+            }
+            if (!duplicate) {
+                found.add(detection);
+            }
+        }
+    }
+
+    // Build this frame's search regions: each track's predicted box, padded and clipped, with overlaps merged.
+    private void predictRegions(long nowNanos) {
+        regionCount = 0;
+        for (int t = 0; t < MAX_TRACKS; t++) {
+            if (!trackAlive[t]) {
+                continue;
+            }
+            double dt = (nowNanos - seenNanos[t]) / 1e9;
+            double x  = centerX[t] + (velX[t] + frameTurn - trackTurn[t]) * dt;  // Turning CCW moves tags right.
+            double y  = centerY[t] + velY[t] * dt;
+            double hw = Math.max(1, halfWidth[t] + growth[t] * dt);
+            double hh = Math.max(1, halfHeight[t] + growth[t] * dt * halfHeight[t] / halfWidth[t]);
+            double pad = Math.max(minPadPixels, padFraction * 2 * Math.max(hw, hh));
+
+            int left   = (int) Math.max(0, Math.floor(x - hw - pad));
+            int top    = (int) Math.max(0, Math.floor(y - hh - pad));
+            int right  = (int) Math.min(width, Math.ceil(x + hw + pad));
+            int bottom = (int) Math.min(height, Math.ceil(y + hh + pad));
+            if (right > left && bottom > top) {
+                set(regions[regionCount++], left, top, right, bottom);
+            }
+        }
+
+        // Merge overlapping regions, so that no tag is searched for twice.
+        boolean merged = true;
+        while (merged) {
+            merged = false;
+            for (int a = 0; a < regionCount && !merged; a++) {
+                for (int b = a + 1; b < regionCount && !merged; b++) {
+                    Rect ra = regions[a], rb = regions[b];
+                    if (ra.x < rb.x + rb.width && rb.x < ra.x + ra.width
+                            && ra.y < rb.y + rb.height && rb.y < ra.y + ra.height) {
+                        set(ra, Math.min(ra.x, rb.x), Math.min(ra.y, rb.y),
+                            Math.max(ra.x + ra.width, rb.x + rb.width), Math.max(ra.y + ra.height, rb.y + rb.height));
+                        Rect last = regions[--regionCount];      // Swap the last region into b's place.
+                        regions[regionCount] = rb;
+                        regions[b] = last;
+                        merged = true;
+                    }
+                }
+            }
+        }
+    }
+
+    private static void set(Rect rect, int left, int top, int right, int bottom) {
+        rect.x      = left;
+        rect.y      = top;
+        rect.width  = right - left;
+        rect.height = bottom - top;
+    }
+
+    private double regionPixels() {
+        double pixels = 0;
+        for (int r = 0; r < regionCount; r++) {
+            pixels += (double) regions[r].width * regions[r].height;
+        }
+        return pixels;
+    }
+
+    /*
+     * Update the tracks from a frame's detections.  After a full-frame search, tracks that weren't found are dropped.
+     * After a region search, tracks that weren't found are lost.
+     *
+     * @return true if a track was lost.
+     */
+    private boolean updateTracks(List<AprilTagDetection> found, long nowNanos, boolean fullSearch) {
+        for (int t = 0; t < MAX_TRACKS; t++) {
+            trackSeen[t] = false;
+        }
+        for (int i = 0, n = found.size(); i < n; i++) {
+            AprilTagDetection detection = found.get(i);
+            int t = slotFor(detection.id);
+            if (t < 0) {
+                continue;                               // More tags than MAX_TRACKS.
+            }
+            double minX = Double.MAX_VALUE, maxX = -Double.MAX_VALUE, minY = Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+            for (int k = 0; k < detection.corners.length; k++) {
+                minX = Math.min(minX, detection.corners[k].x);
+                maxX = Math.max(maxX, detection.corners[k].x);
+                minY = Math.min(minY, detection.corners[k].y);
+                maxY = Math.max(maxY, detection.corners[k].y);
+            }
+            double x = (minX + maxX) / 2, y = (minY + maxY) / 2, hw = (maxX - minX) / 2, hh = (maxY - minY) / 2;
+
+            if (trackAlive[t]) {
+                double dt = (nowNanos - seenNanos[t]) / 1e9;
+                if (dt > 0) {
+                    velX[t]   += SMOOTHING * ((x - centerX[t]) / dt - velX[t]);
+                    velY[t]   += SMOOTHING * ((y - centerY[t]) / dt - velY[t]);
+                    growth[t] += SMOOTHING * ((hw - halfWidth[t]) / dt - growth[t]);
+                    trackTurn[t] += SMOOTHING * (frameTurn - trackTurn[t]);
+                }
+            } else {
+                trackAlive[t] = true;
+                trackId[t]    = detection.id;
+                velX[t]       = 0;
+                velY[t]       = 0;
+                growth[t]     = 0;
+                trackTurn[t]  = 0;
+                trackCount++;
+            }
+            trackSeen[t]  = true;
+            centerX[t]    = x;
+            centerY[t]    = y;
+            halfWidth[t]  = Math.max(hw, 0.5);
+            halfHeight[t] = Math.max(hh, 0.5);
+            seenNanos[t]  = nowNanos;
+        }
+
+        boolean lost = false;
+        for (int t = 0; t < MAX_TRACKS; t++) {
+            if (trackAlive[t] && !trackSeen[t]) {
+                trackAlive[t] = false;
+                trackCount--;
+                lost |= !fullSearch;
+            }
+        }
+        return lost;
+    }
+
+    // The slot tracking a tag, or a free one for it, or -1 if there are none free.
+    private int slotFor(int id) {
+        int free = -1;
+        for (int t = 0; t < MAX_TRACKS; t++) {
+            if (trackAlive[t] && trackId[t] == id) {
+                return t;
+            }
+            if (!trackAlive[t] && free < 0) {
+                free = t;
+            }
+        }
+        return free;
+    }
+
+    // ---------------------------------------------------------------------------------------------------------------
+    // Statistics.
+
+    /** @return frames processed. */
+    public long getFrames()             { return frames; }
+
+    /** @return frames that were searched in full (including those where a track was lost). */
+    public long getFullSearches()       { return fullSearches; }
+
+    /** @return times a tracked tag wasn't found in its region. */
+    public long getLostTracks()         { return lostTracks; }
+
+    /** @return tags being tracked.  Only exact on the frame thread. */
+    public int getTrackCount()          { return trackCount; }
+
+    /** @return mean time to process a frame, in microseconds. */
+    public double getMeanMicros()       { return (frames == 0) ? 0 : totalNanos / 1e3 / frames; }
+
+    /** @return time to process the last frame, in microseconds. */
+    public double getLastMicros()       { return lastNanos / 1e3; }
+
+    /** @return how the last frame was searched. */
+    public Search getLastSearch()       { return lastSearch; }
+
+    /**
+     * @return the work of the last frame's search, as a fraction of searching the whole frame at full resolution.
+     */
+    public double getLastSearchedFraction() { return lastSearched; }
+}
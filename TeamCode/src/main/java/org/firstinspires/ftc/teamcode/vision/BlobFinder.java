@@ -0,0 +1,280 @@
+package org.firstinspires.ftc.teamcode.vision;
+
+/*
+ * Finds the blobs (8-connected groups of set pixels) in a binary mask, and measures each one, without allocating.
+ *
+ * Imgproc.findContours() returns a new List of new MatOfPoints every frame, and each blob then needs moments(),
+ * boundingRect() and minAreaRect() calls that allocate again.  This finder labels the mask in one pass over its
+ * bytes, two rows at a time, joining labels that touch with a union-find, and accumulates each label's moments and
+ * bounding box as it goes.  After the pass the labels are merged into their blobs, and the largest MAX_BLOBS with at
+ * least the minimum area are kept, largest first.
+ *
+ * For each blob it reports:
+ *  - area, in pixels,
+ *  - centroid,
+ *  - angle of its long axis, from the second moments, in degrees: 0 along +x, positive towards +y (down the image),
+ *  - elongation: length over width of the equivalent ellipse, 1 for a square or circle,
+ *  - bounding box, inclusive.
+ *
+ * Every buffer is allocated by the constructor, for the largest mask it will be given.
+ */
+public class BlobFinder {
+
+    public static final int MAX_BLOBS = 16;
+
+    private final int maxWidth, maxHeight;
+
+    // Labelling.  Label 0 is background.
+    private int[] previousRow;
+    private int[] currentRow;
+    private final int[] parent;
+    private int labelCount;
+
+    // Per label, while labelling.
+    private final int[]  count;
+    private final long[] sumX, sumY, sumXX, sumYY, sumXY;
+    private final int[]  minX, minY, maxX, maxY;
+
+    private int minArea = 1;
+
+    // Results, largest blob first.
+    private int blobCount;
+    private final int[]    blobLabel      = new int[MAX_BLOBS];
+    private final double[] blobArea       = new double[MAX_BLOBS];
+    private final double[] blobX          = new double[MAX_BLOBS];
+    private final double[] blobY          = new double[MAX_BLOBS];
+    private final double[] blobAngle      = new double[MAX_BLOBS];
+    private final double[] blobElongation = new double[MAX_BLOBS];
+
+    /**
+     * @param maxWidth, maxHeight the largest mask that will be given to find().
+     */
+    public BlobFinder(int maxWidth, int maxHeight) {
+        this.maxWidth  = maxWidth;
+        this.maxHeight = maxHeight;
+        previousRow = new int[maxWidth];
+        currentRow  = new int[maxWidth];
+
+        // A new label needs its west, north-west, north and north-east neighbours clear, so at most one pixel in
+        // each 2x2 square can start one.
+        int labels = ((maxWidth + 1) / 2) * ((maxHeight + 1) / 2) + 1;
+        parent = new int[labels];
+        count  = new int[labels];
+        sumX   = new long[labels];
+        sumY   = new long[labels];
+        sumXX  = new long[labels];
+        sumYY  = new long[labels];
+        sumXY  = new long[labels];
+        minX   = new int[labels];
+        minY   = new int[labels];
+        maxX   = new int[labels];
+        maxY   = new int[labels];
+    }
+
+    /**
+     * @return true if masks of this size can be given to find().
+     */
+    public boolean fits(int width, int height) {
+        return width <= maxWidth && height <= maxHeight;
+    }
+
+    /**
+     * Set the smallest blob to report, in pixels.
+     */
+    public void setMinArea(int pixels) {
+        minArea = Math.max(1, pixels);
+    }
+
+    /**
+     * Find the blobs in a mask.
+     *
+     * @param mask          the mask, row by row, with any non-zero byte a set pixel.
+     * @param width, height its size.
+     * @return the number of blobs found, at most MAX_BLOBS.
+     */
+    public int find(byte[] mask, int width, int height) {
+        if (!fits(width, height)) {
+            throw new IllegalArgumentException("Mask " + width + "x" + height + " is larger than "
+                                               + maxWidth + "x" + maxHeight);
+        }
+        labelCount = 0;
+        for (int y = 0; y < height; y++) {
+            int[] row = previousRow;
+            previousRow = currentRow;
+            currentRow  = row;
+            labelRow(mask, y * width, y, width);
+        }
+        mergeLabels();
+        selectBlobs();
+        return blobCount;
+    }
+
+    private void labelRow(byte[] mask, int offset, int y, int width) {
+        int[] above = previousRow, row = currentRow;
+        for (int x = 0; x < width; x++) {
+            if (mask[offset + x] == 0) {
+                row[x] = 0;
+                continue;
+            }
+            int label = 0;
+            if (x > 0 && row[x - 1] != 0) {
+                // The west neighbour touches the north-west and north ones, so only north-east can be new.
+                label = row[x - 1];
+                if (y > 0 && x + 1 < width && above[x + 1] != 0) {
+                    union(label, above[x + 1]);
+                }
+            } else if (y > 0) {
+                if (above[x] != 0) {
+                    label = above[x];               // North touches north-west and north-east.
+                } else {
+                    int northWest = (x > 0) ? above[x - 1] : 0;
+                    int northEast = (x + 1 < width) ? above[x + 1] : 0;
+                    if (northWest != 0) {
+                        label = northWest;
+                        if (northEast != 0) {
+                            union(label, northEast);
+                        }
+                    } else {
+                        label = northEast;
+                    }
+                }
+            }
+            if (label == 0) {
+                label = newLabel(x, y);
+            }
+            row[x] = label;
+
+            count[label]++;
+            sumX[label]  += x;
+            sumY[label]  += y;
+            sumXX[label] += x * x;
+            sumYY[label] += y * y;
+            sumXY[label] += x * y;
+            if (x < minX[label]) minX[label] = x;
+            if (x > maxX[label]) maxX[label] = x;
+            maxY[label] = y;                        // Rows are labelled in order.
+        }
+    }
+
+    private int newLabel(int x, int y) {
+        int label = ++labelCount;
+        parent[label] = label;
+        count[label]  = 0;
+        sumX[label]   = sumY[label] = sumXX[label] = sumYY[label] = sumXY[label] = 0;
+        minX[label]   = maxX[label] = x;
+        minY[label]   = maxY[label] = y;
+        return label;
+    }
+
+    private int root(int label) {
+        while (parent[label] != label) {
+            parent[label] = parent[parent[label]];  // Path halving.
+            label = parent[label];
+        }
+        return label;
+    }
+
+    private void union(int a, int b) {
+        int rootA = root(a), rootB = root(b);
+        if (rootA < rootB) {
+            parent[rootB] = rootA;
+        } else if (rootB < rootA) {
+            parent[rootA] = rootB;
+        }
+    }
+
+    // Add each label's sums into its root's.  Roots always have the lowest label of their blob.
+    private void mergeLabels() {
+        for (int label = 1; label <= labelCount; label++) {
+            int root = root(label);
+            if (root == label) {
+                continue;
+            }
+            count[root] += count[label];
+            sumX[root]  += sumX[label];
+            sumY[root]  += sumY[label];
+            sumXX[root] += sumXX[label];
+            sumYY[root] += sumYY[label];
+            sumXY[root] += sumXY[label];
+            minX[root]   = Math.min(minX[root], minX[label]);
+            minY[root]   = Math.min(minY[root], minY[label]);
+            maxX[root]   = Math.max(maxX[root], maxX[label]);
+            maxY[root]   = Math.max(maxY[root], maxY[label]);
+        }
+    }
+
+    private void selectBlobs() {
+        blobCount = 0;
+        for (int label = 1; label <= labelCount; label++) {
+            if (parent[label] != label || count[label] < minArea) {
+                continue;
+            }
+            if (blobCount == MAX_BLOBS && count[label] <= count[blobLabel[MAX_BLOBS - 1]]) {
+                continue;
+            }
+            // Insert, keeping the largest first.
+            int i = Math.min(blobCount, MAX_BLOBS - 1);
+            while (i > 0 && count[blobLabel[i - 1]] < count[label]) {
+                blobLabel[i] = blobLabel[i - 1];
+                i--;
+            }
+            blobLabel[i] = label;
+            blobCount = Math.min(blobCount + 1, MAX_BLOBS);
+        }
+
+        for (int i = 0; i < blobCount; i++) {
+            int    label = blobLabel[i];
+            double n     = count[label];
+            double cx    = sumX[label] / n, cy = sumY[label] / n;
+            // Central second moments, each pixel counted as a unit square.
+            double mu20  = sumXX[label] / n - cx * cx + 1 / 12.0;
+            double mu02  = sumYY[label] / n - cy * cy + 1 / 12.0;
+            double mu11  = sumXY[label] / n - cx * cy;
+            double half  = (mu20 + mu02) / 2;
+            double root  = Math.sqrt((mu20 - mu02) * (mu20 - mu02) / 4 + mu11 * mu11);
+
+            blobArea[i]       = n;
+            blobX[i]          = cx;
+            blobY[i]          = cy;
+            blobAngle[i]      = Math.toDegrees(0.5 * Math.atan2(2 * mu11, mu20 - mu02));
+            blobElongation[i] = Math.sqrt((half + root) / Math.max(half - root, 1e-9));
+        }
+    }
+
+    /** @return blobs found by the last find(), at most MAX_BLOBS. */
+    public int getCount()                  { return blobCount; }
+
+    /** @return connected groups of pixels in the last mask, of any size. */
+    public int getComponentCount() {
+        int components = 0;
+        for (int label = 1; label <= labelCount; label++) {
+            if (parent[label] == label) {
+                components++;
+            }
+        }
+        return components;
+    }
+
+    /** @return the blob's area, in pixels. */
+    public double getArea(int blob)        { return blobArea[blob]; }
+
+    public double getCenterX(int blob)     { return blobX[blob]; }
+
+    public double getCenterY(int blob)     { return blobY[blob]; }
+
+    /** @return angle of the blob's long axis, in degrees, -90 to 90.  Positive turns from +x towards +y. */
+    public double getAngle(int blob)       { return blobAngle[blob]; }
+
+    /** @return length over width of the blob's equivalent ellipse. */
+    public double getElongation(int blob)  { return blobElongation[blob]; }
+
+    public int getLeft(int blob)           { return minX[blobLabel[blob]]; }
+
+    public int getTop(int blob)            { return minY[blobLabel[blob]]; }
+
+    /** @return the blob's rightmost column (inclusive). */
+    public int getRight(int blob)          { return maxX[blobLabel[blob]]; }
+
+    /** @return the blob's bottom row (inclusive). */
+    public int getBottom(int blob)         { return maxY[blobLabel[blob]]; }
+}
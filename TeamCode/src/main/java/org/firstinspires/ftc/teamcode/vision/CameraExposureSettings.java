@@ -0,0 +1,93 @@
+package org.firstinspires.ftc.teamcode.vision;
+
+import com.qualcomm.robotcore.util.ReadWriteFile;
+
+import org.firstinspires.ftc.robotcore.external.hardware.camera.controls.ExposureControl;
+import org.firstinspires.ftc.robotcore.external.hardware.camera.controls.GainControl;
+import org.firstinspires.ftc.robotcore.internal.system.AppUtil;
+import org.firstinspires.ftc.vision.VisionPortal;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * A manual exposure and gain for one camera, which can be saved to and loaded from the Robot Controller.
+ *
+ * The settings are stored in the FIRST settings folder (as SensorBNO055IMUCalibration stores IMU calibration),
+ * in a file named after the camera, e.g. "exposure_Webcam 1.txt".  The file holds one line: "exposureMs,gain".
+ * An OpMode can therefore tune a camera once with ExposureTuner, and every later OpMode can load and apply
+ * the result at startup.
+ */
+public class CameraExposureSettings {
+
+    private final int exposureMs;
+    private final int gain;
+
+    public CameraExposureSettings(int exposureMs, int gain) {
+        this.exposureMs = exposureMs;
+        this.gain       = gain;
+    }
+
+    public int getExposureMs() { return exposureMs; }
+    public int getGain()       { return gain; }
+
+    /**
+     * Save these settings for a camera.
+     *
+     * @param cameraName the camera's hardware map name.
+     */
+    public void save(String cameraName) {
+        ReadWriteFile.writeFile(fileFor(cameraName), exposureMs + "," + gain);
+    }
+
+    /**
+     * @param cameraName the camera's hardware map name.
+     * @return the saved settings for the camera, or null if there are none (or the file can't be read).
+     */
+    public static CameraExposureSettings load(String cameraName) {
+        File file = fileFor(cameraName);
+        if (!file.exists()) {
+            return null;
+        }
+        String[] fields = ReadWriteFile.readFile(file).trim().split(",");
+        if (fields.length != 2) {
+            return null;
+        }
+        try {
+            return new CameraExposureSettings(Integer.parseInt(fields[0].trim()), Integer.parseInt(fields[1].trim()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Apply these settings to a streaming camera.  The camera is switched to manual exposure if necessary.
+     *
+     * @return false if the camera is not streaming yet, so the settings could not be applied.
+     */
+    public boolean apply(VisionPortal portal) {
+        return apply(portal, exposureMs, gain);
+    }
+
+    /**
+     * Apply a manual exposure and gain to a streaming camera.  Cameras take a few frames to change.
+     *
+     * @return false if the camera is not streaming yet, so the settings could not be applied.
+     */
+    public static boolean apply(VisionPortal portal, int exposureMs, int gain) {
+        if (portal.getCameraState() != VisionPortal.CameraState.STREAMING) {
+            return false;
+        }
+        ExposureControl exposureControl = portal.getCameraControl(ExposureControl.class);
+        if (exposureControl.getMode() != ExposureControl.Mode.Manual) {
+            exposureControl.setMode(ExposureControl.Mode.Manual);
+        }
+        exposureControl.setExposure(exposureMs, TimeUnit.MILLISECONDS);
+        portal.getCameraControl(GainControl.class).setGain(gain);
+        return true;
+    }
+
+    private static File fileFor(String cameraName) {
+        return AppUtil.getInstance().getSettingsFile("exposure_" + cameraName + ".txt");
+    }
+}
@@ -0,0 +1,367 @@
+package org.firstinspires.ftc.teamcode.vision;
+
+import org.firstinspires.ftc.vision.VisionPortal;
+import org.firstinspires.ftc.vision.apriltag.AprilTagProcessor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Shares a fixed AprilTag processing budget between several cameras.
+ *
+ * Running two VisionPortals at full rate (as ConceptAprilTagMultiPortal does) can use more CPU than the Control Hub
+ * has to spare, which slows down both cameras AND the control loop.  This scheduler measures how much processing
+ * time each camera's AprilTag pipeline is actually using, and keeps the total within a budget by adjusting each
+ * camera's "level":
+ *  - level 0 .. n-1   the AprilTag processor runs on every frame, at decimations[level].
+ *                     Higher decimation is cheaper, but reduces the range at which tags are detected.
+ *  - level n          SCANNING: the AprilTag processor is disabled, except for one window in every scanPeriod,
+ *                     so the camera can still notice a tag coming into view.
+ *
+ * Cameras are ranked by whether they have seen a library tag within usefulHoldMs (most recent first),
+ * then by their configured priority.  Every windowMs the scheduler:
+ *  - gives the top ranked camera's level to the camera that has just become top ranked, if that changed,
+ *  - when the total is over budget, moves the lowest ranked camera that can still give something up one level down,
+ *  - when there is headroom, moves the highest ranked degraded camera one level up, if its predicted cost fits.
+ * The top ranked camera is never put into SCANNING, so something is always looking.
+ *
+ * Each camera's frame statistics come from an AprilTagPublisher placed after its AprilTagProcessor, with the
+ * publisher's start stage placed before it, so that the budget is spent on the AprilTag processing itself and not
+ * on the time each frame spends being captured, transferred and queued.
+ * Call update() once per control loop; it does nothing until a window has elapsed.
+ *
+ *     portal1 = new VisionPortal.Builder()
+ *             .setCamera(hardwareMap.get(WebcamName.class, "Webcam 1"))
+ *             .addProcessors(publisher1.getStartStage(), aprilTag1, publisher1)
+ *             .build();
+ *     scheduler = new CameraScheduler(400, 250);     // 400 mS of processing per second, re-balanced every 250 mS
+ *     front = scheduler.addCamera("Front", CameraScheduler.Pipeline.of(portal1, aprilTag1), publisher1, 1);
+ *     back  = scheduler.addCamera("Back",  CameraScheduler.Pipeline.of(portal2, aprilTag2), publisher2, 0);
+ */
+public class CameraScheduler {
+
+    /**
+     * The controls the scheduler needs for one camera's pipeline.
+     */
+    public interface Pipeline {
+        /** Enable or disable AprilTag processing on this camera. */
+        void setProcessing(boolean enabled);
+
+        /** Set the AprilTag decimation. */
+        void setDecimation(float decimation);
+
+        /** @return frames per second being delivered by the camera. */
+        float getCameraFps();
+
+        /**
+         * @return the controls for an AprilTagProcessor running in a VisionPortal.
+         */
+        static Pipeline of(final VisionPortal portal, final AprilTagProcessor aprilTag) {
+            return new Pipeline() {
+                @Override public void setProcessing(boolean enabled)    { portal.setProcessorEnabled(aprilTag, enabled); }
+                @Override public void setDecimation(float decimation)   { aprilTag.setDecimation(decimation); }
+                @Override public float getCameraFps()                   { return portal.getFps(); }
+            };
+        }
+    }
+
+    /**
+     * One scheduled camera, and its metrics for the most recent window.
+     */
+    public static class Camera {
+        private final String            name;
+        private final Pipeline          pipeline;
+        private final AprilTagPublisher publisher;
+        private final int               priority;
+
+        private int     level      = 0;
+        private boolean processing = true;
+
+        // Counters at the start of the current window.
+        private long lastSeen, lastPublished, lastWithTags, lastProcessNanos;
+
+        // Metrics for the last complete window.
+        private double fps, tagFps, processingMs, cpuMsPerSecond, cameraFps;
+        private long   droppedFrames;
+        private double load;
+
+        // Cost measured the last time the camera was processing at each level, used to predict upgrades.
+        private final double[] measuredCost;
+
+        Camera(String name, Pipeline pipeline, AprilTagPublisher publisher, int priority, int levels) {
+            this.name         = name;
+            this.pipeline     = pipeline;
+            this.publisher    = publisher;
+            this.priority     = priority;
+            this.measuredCost = new double[levels];
+        }
+
+        public String getName()            { return name; }
+        public int getPriority()           { return priority; }
+
+        /** @return current level: an index into the decimations, or the number of decimations for SCANNING. */
+        public int getLevel()              { return level; }
+
+        /** @return true if the AprilTag processor is currently enabled. */
+        public boolean isProcessing()      { return processing; }
+
+        /** @return frames processed per second over the last window. */
+        public double getFps()             { return fps; }
+
+        /** @return frames per second that contained a library tag, over the last window. */
+        public double getTagFps()          { return tagFps; }
+
+        /** @return average AprilTag processing time of the frames processed in the last window. */
+        public double getProcessingMs()    { return processingMs; }
+
+        /** @return processing time used per second of wall time over the last window: this camera's budget share. */
+        public double getCpuMsPerSecond()  { return cpuMsPerSecond; }
+
+        /** @return frames per second delivered by the camera, as reported by its VisionPortal. */
+        public double getCameraFps()       { return cameraFps; }
+
+        /** @return total frames delivered by the camera but not processed for AprilTags. */
+        public long getDroppedFrames()     { return droppedFrames; }
+
+        /** @return capture time of the last frame containing a library tag, or 0 if none has been seen. */
+        public long getLastTagCaptureNanos() { return publisher.getLastTagCaptureNanos(); }
+    }
+
+    private final double budgetMsPerSecond;
+    private final long   windowNanos;
+    private final float[] decimations;
+    private final List<Camera> cameras = new ArrayList<>();
+
+    private long usefulHoldNanos   = 1000_000_000L;
+    private int  scanPeriod        = 4;          // SCANNING cameras process one window in this many.
+    private double upgradeHeadroom = 0.75;       // Only try upgrades when using less than this fraction of budget.
+
+    private long windowStart = 0;
+    private long windowCount = 0;
+    private double totalCpuMsPerSecond = 0;
+    private double totalLoad = 0;                // As above, but with SCANNING cameras averaged over scanPeriod.
+    private Camera topCamera = null;
+    private Camera[] ranking = new Camera[0];
+
+    /**
+     * @param budgetMsPerSecond AprilTag processing time allowed, summed over all cameras, per second.
+     *                          1000 would be one whole CPU core.
+     * @param windowMs          how often to measure and re-balance.
+     */
+    public CameraScheduler(double budgetMsPerSecond, long windowMs) {
+        this(budgetMsPerSecond, windowMs, new float[] {2, 3, 4});
+    }
+
+    /**
+     * @param decimations the AprilTag decimations to use, from best (lowest) to cheapest (highest).
+     */
+    public CameraScheduler(double budgetMsPerSecond, long windowMs, float[] decimations) {
+        this.budgetMsPerSecond = budgetMsPerSecond;
+        this.windowNanos       = windowMs * 1_000_000L;
+        this.decimations       = decimations.clone();
+    }
+
+    /**
+     * Add a camera.  Cameras all start at the best level; the scheduler degrades them as it measures their cost.
+     *
+     * @param priority higher values are preferred when no camera has recently seen a tag.
+     */
+    public Camera addCamera(String name, Pipeline pipeline, AprilTagPublisher publisher, int priority) {
+        Camera camera = new Camera(name, pipeline, publisher, priority, decimations.length);
+        camera.lastSeen          = publisher.getFramesSeen();
+        camera.lastPublished     = publisher.getFramesPublished();
+        camera.lastWithTags      = publisher.getFramesWithTags();
+        camera.lastProcessNanos  = publisher.getTotalProcessNanos();
+        cameras.add(camera);
+        ranking = cameras.toArray(new Camera[0]);
+        apply(camera);
+        return camera;
+    }
+
+    /** How long a camera counts as "seeing a tag" after its last detection. */
+    public void setUsefulHoldMs(long ms)         { usefulHoldNanos = ms * 1_000_000L; }
+
+    /** SCANNING cameras are enabled for one window in every scanPeriod windows. */
+    public void setScanPeriod(int windows)       { scanPeriod = Math.max(2, windows); }
+
+    /**
+     * Measure the cameras and re-balance, if a window has elapsed.  Call this once per control loop.
+     *
+     * @return true if a new window was evaluated.
+     */
+    public boolean update() {
+        long now = System.nanoTime();
+        if (windowStart == 0) {
+            windowStart = now;
+            return false;
+        }
+        if (now - windowStart < windowNanos) {
+            return false;
+        }
+
+        measure(now - windowStart);
+        windowStart = now;
+        windowCount++;
+
+        rank(now);
+        rebalance();
+        for (Camera camera : cameras) {
+            apply(camera);
+        }
+        return true;
+    }
+
+    public List<Camera> getCameras()           { return cameras; }
+    public double getBudgetMsPerSecond()       { return budgetMsPerSecond; }
+
+    /** @return the processing time used by all cameras, per second, over the last window. */
+    public double getTotalCpuMsPerSecond()     { return totalCpuMsPerSecond; }
+
+    /** @return the camera currently ranked highest, or null before the first window. */
+    public Camera getTopCamera()               { return topCamera; }
+
+    /** @return the decimation used at a level, or 0 for SCANNING. */
+    public float getDecimation(int level)      { return (level < decimations.length) ? decimations[level] : 0; }
+
+    /** @return true if the level is SCANNING. */
+    public boolean isScanning(int level)       { return level >= decimations.length; }
+
+    // Read each publisher's counters, and turn the change over the window into per-second metrics.
+    private void measure(long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        totalCpuMsPerSecond = 0;
+        totalLoad = 0;
+
+        for (Camera camera : cameras) {
+            AprilTagPublisher publisher = camera.publisher;
+            long seen      = publisher.getFramesSeen();
+            long published = publisher.getFramesPublished();
+            long withTags  = publisher.getFramesWithTags();
+            long process   = publisher.getTotalProcessNanos();
+
+            long processed      = published - camera.lastPublished;
+            long processNanos   = process - camera.lastProcessNanos;
+            camera.fps            = processed / seconds;
+            camera.tagFps         = (withTags - camera.lastWithTags) / seconds;
+            camera.processingMs   = (processed > 0) ? processNanos / 1e6 / processed : 0;
+            camera.cpuMsPerSecond = processNanos / 1e6 / seconds;
+            camera.cameraFps      = camera.pipeline.getCameraFps();
+            camera.droppedFrames += Math.max(0, (seen - camera.lastSeen) - processed);
+
+            // A SCANNING camera processes at the cheapest decimation, but only one window in scanPeriod.
+            int costLevel = Math.min(camera.level, decimations.length - 1);
+            if (camera.processing && processed > 0) {
+                camera.measuredCost[costLevel] = camera.cpuMsPerSecond;
+            }
+            camera.load = isScanning(camera.level) ? camera.measuredCost[costLevel] / scanPeriod : camera.cpuMsPerSecond;
+
+            totalCpuMsPerSecond += camera.cpuMsPerSecond;
+            totalLoad           += camera.load;
+
+            camera.lastSeen          = seen;
+            camera.lastPublished     = published;
+            camera.lastWithTags      = withTags;
+            camera.lastProcessNanos  = process;
+        }
+    }
+
+    // Sort the cameras best first: recent tag sightings (newest first), then priority.  Insertion sort, no allocation.
+    private void rank(long now) {
+        for (int i = 1; i < ranking.length; i++) {
+            Camera camera = ranking[i];
+            int j = i - 1;
+            while (j >= 0 && isBetter(camera, ranking[j], now)) {
+                ranking[j + 1] = ranking[j];
+                j--;
+            }
+            ranking[j + 1] = camera;
+        }
+    }
+
+    private boolean isBetter(Camera a, Camera b, long now) {
+        long aTag = a.getLastTagCaptureNanos();
+        long bTag = b.getLastTagCaptureNanos();
+        boolean aUseful = aTag != 0 && now - aTag < usefulHoldNanos;
+        boolean bUseful = bTag != 0 && now - bTag < usefulHoldNanos;
+        if (aUseful != bUseful) {
+            return aUseful;
+        }
+        if (aUseful && aTag != bTag) {
+            return aTag > bTag;
+        }
+        return a.priority > b.priority;
+    }
+
+    private void rebalance() {
+        if (ranking.length == 0) {
+            return;
+        }
+
+        // Hand the best level straight to a newly top ranked camera, rather than waiting for it to climb.
+        Camera top = ranking[0];
+        if (topCamera != null && topCamera != top && top.level > topCamera.level) {
+            int swap = top.level;
+            top.level = topCamera.level;
+            topCamera.level = swap;
+            topCamera = top;
+            return;
+        }
+        topCamera = top;
+
+        if (totalLoad > budgetMsPerSecond) {
+            // Over budget: the lowest ranked camera that can still give something up moves down a level.
+            for (int i = ranking.length - 1; i >= 0; i--) {
+                Camera camera = ranking[i];
+                int maxLevel = (i == 0) ? decimations.length - 1 : decimations.length;
+                if (camera.level < maxLevel) {
+                    camera.level++;
+                    return;
+                }
+            }
+        } else if (totalLoad < budgetMsPerSecond * upgradeHeadroom) {
+            // Headroom: the highest ranked degraded camera moves up a level, if its predicted cost still fits.
+            for (Camera camera : ranking) {
+                if (camera.level == 0) {
+                    continue;
+                }
+                double predicted = totalLoad - camera.load + predictCost(camera, camera.level - 1);
+                if (predicted <= budgetMsPerSecond) {
+                    camera.level--;
+                }
+                return;
+            }
+        }
+    }
+
+    // Estimate a camera's processing time per second at a level, from its last measurement at that level,
+    // or by scaling from a neighbouring level (AprilTag cost is roughly proportional to pixels, 1 / decimation^2).
+    private double predictCost(Camera camera, int level) {
+        if (camera.measuredCost[level] > 0) {
+            return camera.measuredCost[level];
+        }
+        for (int known = level + 1; known < decimations.length; known++) {
+            if (camera.measuredCost[known] > 0) {
+                double ratio = decimations[known] / decimations[level];
+                return camera.measuredCost[known] * ratio * ratio;
+            }
+        }
+        // Never measured: assume it could take the whole budget, so it is only tried when everything else is idle.
+        return budgetMsPerSecond;
+    }
+
+    // Push a camera's level to its pipeline.
+    private void apply(Camera camera) {
+        boolean processing;
+        if (camera.level < decimations.length) {
+            camera.pipeline.setDecimation(decimations[camera.level]);
+            processing = true;
+        } else {
+            camera.pipeline.setDecimation(decimations[decimations.length - 1]);
+            processing = (windowCount % scanPeriod) == 0;
+        }
+        if (processing != camera.processing) {
+            camera.pipeline.setProcessing(processing);
+            camera.processing = processing;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package org.firstinspires.ftc.teamcode.vision;
+
+import com.qualcomm.robotcore.util.ReadWriteFile;
+
+import org.opencv.core.Mat;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * A directory of captured frames, as saved by VisionPortal.saveNextFrameRaw() (see UtilityCameraFrameCapture),
+ * for replaying with FrameReplay.
+ *
+ * Frames are the PNG or JPG files whose names start with a prefix, in name order.  saveNextFrameRaw() writes
+ * "VisionPortal-<name>.png" to the root of the Robot Controller's storage, so the prefix is usually "VisionPortal-".
+ *
+ * Capture times come from a "timestamps.csv" file in the same directory, if there is one, with one
+ * "fileName,captureNanos" line per frame.  Otherwise the frames are assumed to be evenly spaced at a given rate.
+ */
+public class CapturedFrameDirectory implements FrameReplay.FrameSource {
+
+    private final File[] files;
+    private final long[] captureNanos;
+
+    /**
+     * @param directory       where the frames are.
+     * @param prefix          only files whose names start with this are used.  "" for all image files.
+     * @param framesPerSecond rate to assume when there is no timestamps.csv.
+     * @throws IllegalArgumentException if the directory can't be listed.
+     */
+    public CapturedFrameDirectory(File directory, String prefix, double framesPerSecond) {
+        File[] listed = directory.listFiles();
+        if (listed == null) {
+            throw new IllegalArgumentException("Can't list " + directory);
+        }
+        List<File> frames = new ArrayList<>();
+        for (File file : listed) {
+            String name = file.getName().toLowerCase();
+            if (file.getName().startsWith(prefix) && (name.endsWith(".png") || name.endsWith(".jpg"))) {
+                frames.add(file);
+            }
+        }
+        files = frames.toArray(new File[0]);
+        Arrays.sort(files);
+
+        Map<String, Long> recorded = readTimestamps(new File(directory, "timestamps.csv"));
+        long period = (long) (1e9 / framesPerSecond);
+        captureNanos = new long[files.length];
+        for (int i = 0; i < files.length; i++) {
+            Long time = recorded.get(files[i].getName());
+            captureNanos[i] = (time != null) ? time : i * period;
+        }
+    }
+
+    @Override
+    public int size() {
+        return files.length;
+    }
+
+    @Override
+    public String getName(int index) {
+        return files[index].getName();
+    }
+
+    @Override
+    public long getCaptureNanos(int index) {
+        return captureNanos[index];
+    }
+
+    /**
+     * Image files are stored as BGR; the frame is converted to the RGB that VisionPortal processors receive.
+     *
+     * @throws IllegalArgumentException if the file can't be decoded.
+     */
+    @Override
+    public Mat load(int index) {
+        Mat frame = Imgcodecs.imread(files[index].getPath(), Imgcodecs.IMREAD_COLOR);
+        if (frame.empty()) {
+            throw new IllegalArgumentException("Can't read " + files[index]);
+        }
+        Imgproc.cvtColor(frame, frame, Imgproc.COLOR_BGR2RGB);
+        return frame;
+    }
+
+    private static Map<String, Long> readTimestamps(File file) {
+        Map<String, Long> times = new HashMap<>();
+        if (!file.exists()) {
+            return times;
+        }
+        for (String line : ReadWriteFile.readFile(file).split("\n")) {
+            String[] fields = line.trim().split(",");
+            if (fields.length == 2) {
+                try {
+                    times.put(fields[0].trim(), Long.parseLong(fields[1].trim()));
+                } catch (NumberFormatException e) {
+                    // Header or comment line.
+                }
+            }
+        }
+        return times;
+    }
+}
@@ -0,0 +1,467 @@
+package org.firstinspires.ftc.teamcode.vision;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+
+import org.firstinspires.ftc.robotcore.internal.camera.calibration.CameraCalibration;
+import org.firstinspires.ftc.vision.VisionProcessor;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * A VisionPortal processor that finds blobs of color (game pieces) in each frame, without allocating per frame.
+ *
+ * The usual OpenCV pipeline makes new Mats for the converted image and the mask every frame, and findContours()
+ * makes a new List of new MatOfPoints, so the Control Hub's garbage collector runs constantly and frames stall
+ * while it does.  Here every buffer is made once and reused:
+ *  1) CONVERT:    the region of interest (a submat of the frame, made once) is downscaled into one pooled Mat and
+ *                 converted to the chosen color space in another,
+ *  2) THRESHOLD:  each color range is thresholded into a pooled mask, and the ranges ORed together (so red, which
+ *                 wraps around in hue, can be two ranges),
+ *  3) MORPHOLOGY: the mask is opened then closed, to remove specks and fill holes,
+ *  4) BLOBS:      the mask is copied into a pooled byte array and a BlobFinder measures its blobs.
+ * Buffers are only remade when a setting changes.  Each stage is timed, every frame.
+ *
+ * Blobs are reported in frame pixels, largest first: area, centroid, angle, elongation and bounding box, stamped
+ * with the frame's capture time.  Results are published like OctoQuadStream's samples: into two preallocated
+ * buffers used alternately, which read() copies into the caller's own Blobs.  Reads never block or allocate.
+ *
+ *     ColorBlobProcessor yellow = new ColorBlobProcessor(ColorBlobProcessor.ColorSpace.HSV);
+ *     yellow.addRange(new Scalar(15, 100, 100), new Scalar(35, 255, 255));
+ *     visionPortal = new VisionPortal.Builder()
+ *             .setCamera(hardwareMap.get(WebcamName.class, "Webcam 1"))
+ *             .addProcessor(yellow)
+ *             .build();
+ *     ColorBlobProcessor.Blobs blobs = yellow.newBlobs();
+ *     while (opModeIsActive()) {
+ *         if (yellow.read(blobs) && blobs.getCount() > 0) { ... blobs.getCenterX(0) ... }
+ *     }
+ *
+ * Frames are RGB, as the VisionPortal gives them.  In HSV, hue is 0-180 (OpenCV's scale), and saturation and value
+ * 0-255.  Settings may be changed from any thread; they take effect from the next frame.
+ */
+public class ColorBlobProcessor implements VisionProcessor {
+
+    /**
+     * The color space the ranges are given in.
+     */
+    public enum ColorSpace {
+        RGB(-1),
+        HSV(Imgproc.COLOR_RGB2HSV),
+        YCrCb(Imgproc.COLOR_RGB2YCrCb);
+
+        final int conversion;
+
+        ColorSpace(int conversion) {
+            this.conversion = conversion;
+        }
+    }
+
+    /**
+     * The processing stages, which are timed separately.
+     */
+    public enum Stage { CONVERT, THRESHOLD, MORPHOLOGY, BLOBS }
+
+    public static final int MAX_BLOBS = BlobFinder.MAX_BLOBS;
+
+    private static final Stage[] STAGES      = Stage.values();
+    private static final int     BLOB_VALUES = 9;   // area, x, y, angle, elongation, left, top, width, height.
+    private static final int     HEADER      = 2 + STAGES.length;  // capture time, count, stage times.
+
+    /**
+     * The blobs from one frame.  Allocate with newBlobs(), once, and refill it with read().
+     */
+    public static class Blobs {
+        private final double[] values     = new double[MAX_BLOBS * BLOB_VALUES];
+        private final long[]   stageNanos = new long[STAGES.length];
+        private long sequence     = 0;
+        private long captureNanos = 0;
+        private int  count        = 0;
+
+        private Blobs() {
+        }
+
+        /** @return the frame number, counting from 1.  0 means no frame has been read yet. */
+        public long getSequence()                 { return sequence; }
+
+        /** @return System.nanoTime() at which the camera captured the frame. */
+        public long getCaptureNanos()             { return captureNanos; }
+
+        /** @return how long ago the frame was captured. */
+        public long getAgeNanos()                 { return System.nanoTime() - captureNanos; }
+
+        /** @return time the frame spent in a stage. */
+        public long getStageNanos(Stage stage)    { return stageNanos[stage.ordinal()]; }
+
+        /** @return blobs found, largest first, at most MAX_BLOBS. */
+        public int getCount()                     { return count; }
+
+        /** @return the blob's area, in frame pixels. */
+        public double getArea(int blob)           { return values[blob * BLOB_VALUES]; }
+
+        /** @return the blob's centroid, in frame pixels. */
+        public double getCenterX(int blob)        { return values[blob * BLOB_VALUES + 1]; }
+
+        public double getCenterY(int blob)        { return values[blob * BLOB_VALUES + 2]; }
+
+        /** @return angle of the blob's long axis, in degrees, -90 to 90.  Positive turns from +x towards +y (down). */
+        public double getAngle(int blob)          { return values[blob * BLOB_VALUES + 3]; }
+
+        /** @return length over width of the blob's equivalent ellipse: 1 for a square, more for a long piece. */
+        public double getElongation(int blob)     { return values[blob * BLOB_VALUES + 4]; }
+
+        /** @return the blob's bounding box, in frame pixels. */
+        public double getLeft(int blob)           { return values[blob * BLOB_VALUES + 5]; }
+
+        public double getTop(int blob)            { return values[blob * BLOB_VALUES + 6]; }
+
+        public double getWidth(int blob)          { return values[blob * BLOB_VALUES + 7]; }
+
+        public double getHeight(int blob)         { return values[blob * BLOB_VALUES + 8]; }
+    }
+
+    private final ColorSpace colorSpace;
+
+    // Settings.
+    private volatile Scalar[] ranges     = new Scalar[0];   // Lower and upper bounds, in pairs.
+    private volatile int      downscale  = 2;
+    private volatile Rect     region     = null;
+    private volatile int      morphology = 3;
+    private volatile double   minArea    = 20;
+
+    private int width, height;
+
+    // Applied settings, and the buffers made for them.  Only touched by the frame thread.
+    private int    appliedDownscale  = 0;
+    private Rect   appliedRegion     = null;
+    private int    appliedMorphology = -1;
+    private long   frameAddress      = 0;
+    private int    roiX, roiY, roiWidth, roiHeight;
+    private int    workWidth, workHeight;
+    private double scaleX, scaleY;
+    private Mat    roiView = null;
+    private Mat    kernel  = null;
+    private final Size   workSize  = new Size();
+    private final Mat    scaled    = new Mat();
+    private final Mat    converted = new Mat();
+    private final Mat    mask      = new Mat();
+    private final Mat    rangeMask = new Mat();
+    private final Scalar zero      = new Scalar(0);
+    private byte[]       maskBytes = new byte[0];
+    private BlobFinder   finder    = null;
+    private final long[] stageNanos = new long[STAGES.length];
+
+    // Publishing, as in OctoQuadStream.
+    private final AtomicLongArray[] buffers = {
+            new AtomicLongArray(HEADER + MAX_BLOBS * BLOB_VALUES),
+            new AtomicLongArray(HEADER + MAX_BLOBS * BLOB_VALUES),
+    };
+    private volatile long published = 0;
+    private volatile long writing   = 0;
+
+    // Statistics.  Only ever written by the frame thread, read by anyone.
+    private volatile long frames     = 0;
+    private volatile long totalNanos = 0;
+    private final AtomicLongArray stageTotals = new AtomicLongArray(STAGES.length);
+
+    private final Blobs drawBlobs   = new Blobs();
+    private final Paint regionPaint = new Paint();
+    private final Paint blobPaint   = new Paint();
+
+    public ColorBlobProcessor(ColorSpace colorSpace) {
+        this.colorSpace = colorSpace;
+        regionPaint.setColor(Color.YELLOW);
+        regionPaint.setStyle(Paint.Style.STROKE);
+        blobPaint.setColor(Color.GREEN);
+        blobPaint.setStyle(Paint.Style.STROKE);
+    }
+
+    // ---------------------------------------------------------------------------------------------------------------
+    // Settings.
+
+    /**
+     * Add a range of colors to find, in the processor's color space.  Pixels in any of the ranges are part of a blob.
+     */
+    public synchronized void addRange(Scalar lower, Scalar upper) {
+        Scalar[] more = Arrays.copyOf(ranges, ranges.length + 2);
+        more[ranges.length]     = lower;
+        more[ranges.length + 1] = upper;
+        ranges = more;
+    }
+
+    /**
+     * Remove all of the ranges, to set new ones.
+     */
+    public synchronized void clearRanges() {
+        ranges = new Scalar[0];
+    }
+
+    /**
+     * Process the frame at 1/factor of its width and height (2 by default).  Processing time falls with the square of
+     * the factor; blobs smaller than a few factors across are lost.
+     */
+    public void setDownscale(int factor) {
+        downscale = Math.max(1, factor);
+    }
+
+    /**
+     * Only look in part of the frame.
+     *
+     * @param region the part of the frame to process, in frame pixels, or null for all of it.
+     */
+    public void setRegion(Rect region) {
+        this.region = (region == null) ? null : region.clone();
+    }
+
+    /**
+     * @param kernelPixels size of the open and close kernel, in downscaled pixels (3 by default), or 0 for none.
+     */
+    public void setMorphology(int kernelPixels) {
+        morphology = kernelPixels;
+    }
+
+    /**
+     * Set the smallest blob to report, in frame pixels.
+     */
+    public void setMinArea(double pixels) {
+        minArea = pixels;
+    }
+
+    // ---------------------------------------------------------------------------------------------------------------
+    // VisionProcessor.
+
+    @Override
+    public void init(int width, int height, CameraCalibration calibration) {
+        this.width  = width;
+        this.height = height;
+    }
+
+    @Override
+    public Object processFrame(Mat frame, long captureTimeNanos) {
+        long start = System.nanoTime();
+        configure(frame);
+        if (roiWidth <= 0 || roiHeight <= 0) {
+            Arrays.fill(stageNanos, 0);
+            publish(captureTimeNanos, 0, start);
+            return null;
+        }
+
+        // CONVERT.
+        Mat work = (roiView != null) ? roiView : frame;
+        if (appliedDownscale > 1) {
+            Imgproc.resize(work, scaled, workSize, 0, 0, Imgproc.INTER_AREA);
+            work = scaled;
+        }
+        if (colorSpace.conversion >= 0) {
+            Imgproc.cvtColor(work, converted, colorSpace.conversion);
+            work = converted;
+        }
+        long convertEnd = System.nanoTime();
+
+        // THRESHOLD.
+        Scalar[] bounds = ranges;
+        if (bounds.length == 0) {
+            mask.create(workHeight, workWidth, CvType.CV_8UC1);
+            mask.setTo(zero);
+        } else {
+            Core.inRange(work, bounds[0], bounds[1], mask);
+            for (int i = 2; i < bounds.length; i += 2) {
+                Core.inRange(work, bounds[i], bounds[i + 1], rangeMask);
+                Core.bitwise_or(mask, rangeMask, mask);
+            }
+        }
+        long thresholdEnd = System.nanoTime();
+
+        // MORPHOLOGY.
+        if (kernel != null) {
+            Imgproc.morphologyEx(mask, mask, Imgproc.MORPH_OPEN, kernel);
+            Imgproc.morphologyEx(mask, mask, Imgproc.MORPH_CLOSE, kernel);
+        }
+        long morphologyEnd = System.nanoTime();
+
+        // BLOBS.
+        mask.get(0, 0, maskBytes);
+        int count = finder.find(maskBytes, workWidth, workHeight);
+        long blobsEnd = System.nanoTime();
+
+        stageNanos[Stage.CONVERT.ordinal()]    = convertEnd - start;
+        stageNanos[Stage.THRESHOLD.ordinal()]  = thresholdEnd - convertEnd;
+        stageNanos[Stage.MORPHOLOGY.ordinal()] = morphologyEnd - thresholdEnd;
+        stageNanos[Stage.BLOBS.ordinal()]      = blobsEnd - morphologyEnd;
+        publish(captureTimeNanos, count, start);
+        return null;
+    }
+
+    // Remake the buffers if a setting, or the frame Mat itself, has changed.  The VisionPortal passes the same Mat
+    // every frame, so normally nothing is remade after the first frame.
+    private void configure(Mat frame) {
+        int  factor  = downscale;
+        Rect bounds  = region;
+        long address = frame.dataAddr();
+        if (factor != appliedDownscale || bounds != appliedRegion || address != frameAddress) {
+            appliedDownscale = factor;
+            appliedRegion    = bounds;
+            frameAddress     = address;
+
+            roiX      = (bounds == null) ? 0 : Math.max(0, bounds.x);
+            roiY      = (bounds == null) ? 0 : Math.max(0, bounds.y);
+            roiWidth  = ((bounds == null) ? width : Math.min(width, bounds.x + bounds.width)) - roiX;
+            roiHeight = ((bounds == null) ? height : Math.min(height, bounds.y + bounds.height)) - roiY;
+
+            if (roiView != null) {
+                roiView.release();
+                roiView = null;
+            }
+            if (roiWidth > 0 && roiHeight > 0) {
+                if (bounds != null) {
+                    roiView = frame.submat(new Rect(roiX, roiY, roiWidth, roiHeight));
+                }
+                workWidth       = Math.max(1, roiWidth / factor);
+                workHeight      = Math.max(1, roiHeight / factor);
+                workSize.width  = workWidth;
+                workSize.height = workHeight;
+                scaleX = roiWidth / (double) workWidth;
+                scaleY = roiHeight / (double) workHeight;
+                if (maskBytes.length != workWidth * workHeight) {
+                    maskBytes = new byte[workWidth * workHeight];
+                }
+                if (finder == null || !finder.fits(workWidth, workHeight)) {
+                    finder = new BlobFinder(workWidth, workHeight);
+                }
+            }
+        }
+
+        int kernelPixels = morphology;
+        if (kernelPixels != appliedMorphology) {
+            appliedMorphology = kernelPixels;
+            if (kernel != null) {
+                kernel.release();
+            }
+            kernel = (kernelPixels > 1)
+                    ? Imgproc.getStructuringElement(Imgproc.MORPH_ELLIPSE, new Size(kernelPixels, kernelPixels))
+                    : null;
+        }
+        if (finder != null) {
+            finder.setMinArea((int) Math.ceil(minArea / (scaleX * scaleY)));
+        }
+    }
+
+    private void publish(long captureNanos, int count, long start) {
+        long sequence = published + 1;
+        writing = sequence;
+        AtomicLongArray buffer = buffers[(int) (sequence & 1)];
+        buffer.set(0, captureNanos);
+        buffer.set(1, count);
+        for (int s = 0; s < STAGES.length; s++) {
+            buffer.set(2 + s, stageNanos[s]);
+        }
+        for (int b = 0; b < count; b++) {
+            int i = HEADER + b * BLOB_VALUES;
+            setDouble(buffer, i,     finder.getArea(b) * scaleX * scaleY);
+            setDouble(buffer, i + 1, roiX + (finder.getCenterX(b) + 0.5) * scaleX - 0.5);
+            setDouble(buffer, i + 2, roiY + (finder.getCenterY(b) + 0.5) * scaleY - 0.5);
+            setDouble(buffer, i + 3, finder.getAngle(b));
+            setDouble(buffer, i + 4, finder.getElongation(b));
+            setDouble(buffer, i + 5, roiX + finder.getLeft(b) * scaleX);
+            setDouble(buffer, i + 6, roiY + finder.getTop(b) * scaleY);
+            setDouble(buffer, i + 7, (finder.getRight(b) - finder.getLeft(b) + 1) * scaleX);
+            setDouble(buffer, i + 8, (finder.getBottom(b) - finder.getTop(b) + 1) * scaleY);
+        }
+        published = sequence;
+
+        for (int s = 0; s < STAGES.length; s++) {
+            stageTotals.addAndGet(s, stageNanos[s]);
+        }
+        totalNanos += System.nanoTime() - start;
+        frames = sequence;
+    }
+
+    private static void setDouble(AtomicLongArray buffer, int index, double value) {
+        buffer.set(index, Double.doubleToRawLongBits(value));
+    }
+
+    @Override
+    public void onDrawFrame(Canvas canvas, int onscreenWidth, int onscreenHeight,
+                            float scaleBmpPxToCanvasPx, float scaleCanvasDensity, Object userContext) {
+        float scale = scaleBmpPxToCanvasPx;
+        regionPaint.setStrokeWidth(2 * scaleCanvasDensity);
+        blobPaint.setStrokeWidth(3 * scaleCanvasDensity);
+        Rect bounds = region;
+        if (bounds != null) {
+            canvas.drawRect(bounds.x * scale, bounds.y * scale, (bounds.x + bounds.width) * scale,
+                            (bounds.y + bounds.height) * scale, regionPaint);
+        }
+        read(drawBlobs);
+        for (int b = 0; b < drawBlobs.getCount(); b++) {
+            float left = (float) drawBlobs.getLeft(b) * scale, top = (float) drawBlobs.getTop(b) * scale;
+            canvas.drawRect(left, top, left + (float) drawBlobs.getWidth(b) * scale,
+                            top + (float) drawBlobs.getHeight(b) * scale, blobPaint);
+            canvas.drawCircle((float) drawBlobs.getCenterX(b) * scale, (float) drawBlobs.getCenterY(b) * scale,
+                              3 * scaleCanvasDensity, blobPaint);
+        }
+    }
+
+    // ---------------------------------------------------------------------------------------------------------------
+    // Output.
+
+    /**
+     * @return a Blobs to read() into.  Allocate one per reading thread, once.
+     */
+    public Blobs newBlobs() {
+        return new Blobs();
+    }
+
+    /**
+     * Copy the latest frame's blobs into blobs.  Never blocks.
+     *
+     * @return true if blobs now holds a newer frame than it did before.
+     */
+    public boolean read(Blobs blobs) {
+        while (true) {
+            long sequence = published;
+            if (sequence == 0 || sequence == blobs.sequence) {
+                return false;
+            }
+            AtomicLongArray buffer = buffers[(int) (sequence & 1)];
+            long captureNanos = buffer.get(0);
+            int  count        = (int) buffer.get(1);
+            for (int s = 0; s < STAGES.length; s++) {
+                blobs.stageNanos[s] = buffer.get(2 + s);
+            }
+            for (int i = 0; i < count * BLOB_VALUES; i++) {
+                blobs.values[i] = Double.longBitsToDouble(buffer.get(HEADER + i));
+            }
+            // The buffer is only rewritten for frame (sequence + 2).  If that hasn't begun, the copy is intact.
+            if (writing <= sequence + 1) {
+                blobs.sequence     = sequence;
+                blobs.captureNanos = captureNanos;
+                blobs.count        = count;
+                return true;
+            }
+        }
+    }
+
+    // ---------------------------------------------------------------------------------------------------------------
+    // Statistics.
+
+    /** @return frames processed. */
+    public long getFrames()                       { return frames; }
+
+    /** @return mean time to process a frame, in microseconds. */
+    public double getMeanMicros()                 { return (frames == 0) ? 0 : totalNanos / 1e3 / frames; }
+
+    /** @return mean time a frame spends in a stage, in microseconds. */
+    public double getMeanStageMicros(Stage stage) {
+        long n = frames;
+        return (n == 0) ? 0 : stageTotals.get(stage.ordinal()) / 1e3 / n;
+    }
+}
@@ -0,0 +1,305 @@
+package org.firstinspires.ftc.teamcode.vision;
+
+import org.firstinspires.ftc.vision.apriltag.AprilTagDetection;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Searches for the shortest camera exposure that still detects AprilTags reliably, then the best gain to go with it.
+ *
+ * This automates what ConceptAprilTagOptimizeExposure has a driver do by hand.  A short exposure reduces motion
+ * blur, so tags are detected while the robot is moving, and a clean image decodes with a higher decision margin,
+ * which leaves room to raise decimation and save processing time on every frame.
+ *
+ * The search runs in phases, with a tag in view of the camera:
+ *  1) COARSE: at maximum gain, try exposures from the minimum upwards, growing by about 50% each step, until one
+ *     is reliable.
+ *  2) FINE:   binary search between the last unreliable exposure and the first reliable one, to the nearest mS.
+ *  3) GAIN:   at that exposure, step the gain down while the setting stays reliable, and keep the best score.
+ *
+ * Each setting ("trial") is held for settleFrames frames, so the camera can apply it, and then scored over
+ * sampleFrames frames:
+ *  - detection rate:  fraction of frames containing at least one library tag,
+ *  - margin:          average decision margin of those tags,
+ *  - processing time: average capture-to-publish time.
+ * A trial is reliable when its detection rate and margin both reach their minimums.  Among reliable trials at the
+ * chosen exposure, the best has the highest score: detection rate x margin per mS of processing.
+ *
+ * The tuner has no hardware of its own: it commands settings through the Camera interface, and is fed one
+ * observation per processed frame.  It therefore runs the same way against a live VisionPortal or a recorded set of
+ * frames (see RecordedExposureSweep).
+ */
+public class ExposureTuner {
+
+    /**
+     * Where the tuner sends each setting to try.
+     */
+    public interface Camera {
+        void apply(int exposureMs, int gain);
+    }
+
+    /**
+     * Receives every frame the tuner is given, with the setting in effect, so a search can be recorded and replayed.
+     */
+    public interface FrameLog {
+        void record(int exposureMs, int gain, int tagCount, double meanMargin, double processingMs);
+    }
+
+    public enum Phase { IDLE, COARSE, FINE, GAIN, DONE }
+
+    /**
+     * One exposure/gain setting, and how well it performed.
+     */
+    public static class Trial {
+        private final int exposureMs;
+        private final int gain;
+        private int    frames;
+        private int    framesWithTags;
+        private double marginSum;
+        private double processingSum;
+
+        Trial(int exposureMs, int gain) {
+            this.exposureMs = exposureMs;
+            this.gain       = gain;
+        }
+
+        public int getExposureMs()           { return exposureMs; }
+        public int getGain()                 { return gain; }
+        public int getFrames()               { return frames; }
+
+        /** @return fraction of frames that contained at least one library tag. */
+        public double getDetectionRate()     { return (frames == 0) ? 0 : (double) framesWithTags / frames; }
+
+        /** @return average decision margin of the detected tags. */
+        public double getMeanMargin()        { return (framesWithTags == 0) ? 0 : marginSum / framesWithTags; }
+
+        /** @return average processing time per frame. */
+        public double getMeanProcessingMs()  { return (frames == 0) ? 0 : processingSum / frames; }
+
+        /** @return detection rate x decision margin per mS of processing.  Higher is better. */
+        public double getScore() {
+            return getDetectionRate() * getMeanMargin() / Math.max(getMeanProcessingMs(), 0.1);
+        }
+    }
+
+    private final Camera camera;
+    private final int minExposure, maxExposure, minGain, maxGain;
+    private FrameLog frameLog = null;
+
+    private int    settleFrames     = 5;
+    private int    sampleFrames     = 30;
+    private double minDetectionRate = 0.9;
+    private double minMargin        = 20;
+
+    private final List<Trial> trials = new ArrayList<>();
+    private Phase phase = Phase.IDLE;
+    private Trial current;
+    private int   settleRemaining;
+
+    private int   unreliableExposure;       // Longest exposure known to be unreliable, or minExposure - 1.
+    private Trial reliable;                 // Shortest reliable exposure found (at maximum gain).
+    private Trial best;
+
+    /**
+     * @param camera      applies each setting.
+     * @param minExposure shortest exposure to try, mS.
+     * @param maxExposure longest exposure to try, mS.
+     * @param minGain     lowest gain to try.
+     * @param maxGain     highest gain to try.
+     */
+    public ExposureTuner(Camera camera, int minExposure, int maxExposure, int minGain, int maxGain) {
+        this.camera      = camera;
+        this.minExposure = minExposure;
+        this.maxExposure = Math.max(minExposure, maxExposure);
+        this.minGain     = minGain;
+        this.maxGain     = Math.max(minGain, maxGain);
+    }
+
+    /** Set the number of frames to discard after each change, and the number to score each setting over. */
+    public void setFrames(int settleFrames, int sampleFrames) {
+        this.settleFrames = Math.max(0, settleFrames);
+        this.sampleFrames = Math.max(1, sampleFrames);
+    }
+
+    /** Set what counts as reliable: the minimum detection rate (0 to 1) and minimum average decision margin. */
+    public void setReliability(double minDetectionRate, double minMargin) {
+        this.minDetectionRate = minDetectionRate;
+        this.minMargin        = minMargin;
+    }
+
+    /** Send every frame given to the tuner to a log, or null for none. */
+    public void setFrameLog(FrameLog frameLog) {
+        this.frameLog = frameLog;
+    }
+
+    /**
+     * Start (or restart) the search.  The first setting is applied immediately.
+     */
+    public void start() {
+        trials.clear();
+        unreliableExposure = minExposure - 1;
+        reliable = null;
+        best     = null;
+        phase    = Phase.COARSE;
+        begin(minExposure, maxGain);
+    }
+
+    /**
+     * Add the results of one processed frame, taken from a VisionResult published by an AprilTagPublisher.
+     * Call this once for each new result.
+     *
+     * @return true once the search has finished.
+     */
+    public boolean addFrame(VisionResult result) {
+        List<AprilTagDetection> detections = result.getDetections();
+        int    tags   = 0;
+        double margin = 0;
+        for (int i = 0; i < detections.size(); i++) {
+            AprilTagDetection detection = detections.get(i);
+            if (detection.metadata != null) {
+                tags++;
+                margin += detection.decisionMargin;
+            }
+        }
+        return addFrame(tags, (tags == 0) ? 0 : margin / tags, result.getPipelineLatencyNanos() / 1e6);
+    }
+
+    /**
+     * Add the results of one processed frame.
+     *
+     * @param tagCount     number of library tags detected.
+     * @param meanMargin   average decision margin of those tags.
+     * @param processingMs time taken to process the frame.
+     * @return true once the search has finished.
+     */
+    public boolean addFrame(int tagCount, double meanMargin, double processingMs) {
+        if (current == null) {
+            return phase == Phase.DONE;
+        }
+        if (frameLog != null) {
+            frameLog.record(current.exposureMs, current.gain, tagCount, meanMargin, processingMs);
+        }
+        if (settleRemaining > 0) {
+            settleRemaining--;
+            return false;
+        }
+
+        current.frames++;
+        current.processingSum += processingMs;
+        if (tagCount > 0) {
+            current.framesWithTags++;
+            current.marginSum += meanMargin;
+        }
+        if (current.frames >= sampleFrames) {
+            finishTrial();
+        }
+        return phase == Phase.DONE;
+    }
+
+    public Phase getPhase()          { return phase; }
+    public boolean isDone()          { return phase == Phase.DONE; }
+
+    /** @return the setting currently being tried, or null if not searching. */
+    public Trial getCurrent()        { return current; }
+
+    /** @return every setting tried so far, in order. */
+    public List<Trial> getTrials()   { return trials; }
+
+    /**
+     * @return the chosen setting once the search is done.  If nothing was reliable, this is the best scoring trial,
+     *         and isReliable() on it returns false.
+     */
+    public Trial getBest()           { return best; }
+
+    /** @return true if the trial met the detection rate and margin minimums. */
+    public boolean isReliable(Trial trial) {
+        return trial != null && trial.getDetectionRate() >= minDetectionRate && trial.getMeanMargin() >= minMargin;
+    }
+
+    // Score the current trial, and decide what to try next.
+    private void finishTrial() {
+        Trial trial = current;
+        current = null;
+        boolean ok = isReliable(trial);
+
+        switch (phase) {
+            case COARSE:
+                if (ok) {
+                    reliable = trial;
+                    nextFine();
+                } else if (trial.exposureMs >= maxExposure) {
+                    finish();                       // Nothing was reliable.
+                } else {
+                    unreliableExposure = trial.exposureMs;
+                    int next = Math.max(trial.exposureMs + 1, (int) Math.round(trial.exposureMs * 1.5));
+                    begin(Math.min(next, maxExposure), maxGain);
+                }
+                break;
+
+            case FINE:
+                if (ok) {
+                    reliable = trial;
+                } else {
+                    unreliableExposure = trial.exposureMs;
+                }
+                nextFine();
+                break;
+
+            case GAIN:
+                int next = trial.gain - gainStep();
+                if (ok && next >= minGain) {
+                    begin(reliable.exposureMs, next);
+                } else {
+                    finish();
+                }
+                break;
+
+            default:
+                break;
+        }
+    }
+
+    private void nextFine() {
+        if (reliable.exposureMs - unreliableExposure > 1) {
+            phase = Phase.FINE;
+            begin((unreliableExposure + reliable.exposureMs) / 2, maxGain);
+        } else if (maxGain > minGain) {
+            phase = Phase.GAIN;
+            begin(reliable.exposureMs, maxGain - gainStep());
+        } else {
+            finish();
+        }
+    }
+
+    // Gain is searched in about 8 steps over its range.
+    private int gainStep() {
+        return Math.max(1, (maxGain - minGain) / 8);
+    }
+
+    private void begin(int exposureMs, int gain) {
+        current = new Trial(exposureMs, gain);
+        trials.add(current);
+        settleRemaining = settleFrames;
+        camera.apply(exposureMs, gain);
+    }
+
+    // Choose the best trial, and leave the camera set to it.
+    private void finish() {
+        phase = Phase.DONE;
+        best = null;
+        for (Trial trial : trials) {
+            boolean better;
+            if (reliable == null) {
+                better = best == null || trial.getScore() > best.getScore();
+            } else {
+                better = isReliable(trial) && trial.exposureMs == reliable.exposureMs
+                         && (best == null || trial.getScore() > best.getScore());
+            }
+            if (better) {
+                best = trial;
+            }
+        }
+        camera.apply(best.exposureMs, best.gain);
+    }
+}
@@ -0,0 +1,250 @@
+package org.firstinspires.ftc.teamcode.vision;
+
+import org.firstinspires.ftc.robotcore.internal.camera.calibration.CameraCalibration;
+import org.firstinspires.ftc.vision.VisionProcessor;
+import org.opencv.core.Mat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * Replays recorded camera frames through a chain of VisionProcessors, without a camera, and measures them.
+ *
+ * The processors are called the way a VisionPortal calls them: init() once with the frame size, then processFrame()
+ * for each frame, in order, on the same thread.  Two timings are available:
+ *  - MAX_SPEED: each frame is processed as soon as the previous one is finished.  This measures throughput.
+ *  - ORIGINAL:  frames are released at their recorded capture times.  A frame that is released while the chain is
+ *               still busy with an earlier one waits, and if it is more than one frame late it is dropped, as a
+ *               camera would drop it.  This measures latency under realistic load.
+ *
+ * The report gives latency percentiles for each processor and for the whole chain, throughput, dropped frames,
+ * and one line of output per frame (from an OutputWriter), which can be compared with a golden output file.
+ * Loading a frame is not included in any timing.
+ */
+public class FrameReplay {
+
+    public enum Timing { MAX_SPEED, ORIGINAL }
+
+    /**
+     * A sequence of recorded frames.
+     */
+    public interface FrameSource {
+        int size();
+
+        /** @return a name for the frame, used in the output.  Usually its file name. */
+        String getName(int index);
+
+        /** @return the frame's recorded capture time, relative to any fixed origin. */
+        long getCaptureNanos(int index);
+
+        /** @return the frame, in the VisionPortal's RGB format.  The caller releases it. */
+        Mat load(int index);
+    }
+
+    /**
+     * Describes the result of processing one frame, as a single line of text, e.g. the AprilTags found.
+     */
+    public interface OutputWriter {
+        /**
+         * @param frameName        the frame's name.
+         * @param processorResults the value returned by each processor's processFrame(), in chain order.
+         */
+        String describe(String frameName, Object[] processorResults);
+    }
+
+    /**
+     * The measurements from one replay.
+     */
+    public static class Report {
+        private final String[] stageNames;
+        private final long[][] stageNanos;     // [stage][frame], stage == stageNames.length is the whole chain.
+        private final long[]   latencyNanos;   // Capture (release) to chain finished, for each processed frame.
+        private final List<String> output;
+        private final int  processed;
+        private final int  dropped;
+        private final long wallNanos;
+
+        Report(String[] stageNames, long[][] stageNanos, long[] latencyNanos, List<String> output,
+               int processed, int dropped, long wallNanos) {
+            this.stageNames   = stageNames;
+            this.stageNanos   = stageNanos;
+            this.latencyNanos = latencyNanos;
+            this.output       = output;
+            this.processed    = processed;
+            this.dropped      = dropped;
+            this.wallNanos    = wallNanos;
+            for (long[] times : stageNanos) {
+                Arrays.sort(times, 0, processed);
+            }
+            Arrays.sort(latencyNanos, 0, processed);
+        }
+
+        public int getFramesProcessed()    { return processed; }
+        public int getFramesDropped()      { return dropped; }
+        public long getWallNanos()         { return wallNanos; }
+
+        /** @return processed frames per second of wall time. */
+        public double getThroughputFps()   { return (wallNanos == 0) ? 0 : processed * 1e9 / wallNanos; }
+
+        public int getStageCount()         { return stageNames.length; }
+        public String getStageName(int stage) { return stageNames[stage]; }
+
+        /**
+         * @param stage      a processor's index in the chain.
+         * @param percentile 0 to 100.  100 is the maximum.
+         * @return the processFrame() time of that processor, at the percentile, in mS.
+         */
+        public double getStageMs(int stage, double percentile) {
+            return percentileOf(stageNanos[stage], percentile) / 1e6;
+        }
+
+        /** @return time for the whole chain to process a frame, at the percentile, in mS. */
+        public double getChainMs(double percentile) {
+            return percentileOf(stageNanos[stageNames.length], percentile) / 1e6;
+        }
+
+        /** @return time from a frame's release to the end of its processing (including waiting), at the percentile. */
+        public double getLatencyMs(double percentile) {
+            return percentileOf(latencyNanos, percentile) / 1e6;
+        }
+
+        /** @return one line per processed frame, from the OutputWriter. */
+        public List<String> getOutput()    { return output; }
+
+        // Nearest-rank percentile of the first "processed" values of a sorted array.
+        private double percentileOf(long[] sorted, double percentile) {
+            if (processed == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(percentile / 100.0 * processed);
+            return sorted[Math.min(processed - 1, Math.max(0, rank - 1))];
+        }
+
+        /**
+         * @return a multi-line summary, suitable for a log or the console.
+         */
+        public String summary() {
+            StringBuilder text = new StringBuilder();
+            text.append(String.format("%d frames, %d dropped, %.1f FPS%n", processed, dropped, getThroughputFps()));
+            text.append(String.format("%-24s %8s %8s %8s %8s%n", "mS", "p50", "p90", "p99", "max"));
+            for (int stage = 0; stage <= stageNames.length; stage++) {
+                String name = (stage < stageNames.length) ? stageNames[stage] : "chain";
+                long[] times = stageNanos[stage];
+                text.append(String.format("%-24s %8.2f %8.2f %8.2f %8.2f%n", name, percentileOf(times, 50) / 1e6,
+                        percentileOf(times, 90) / 1e6, percentileOf(times, 99) / 1e6, percentileOf(times, 100) / 1e6));
+            }
+            text.append(String.format("%-24s %8.2f %8.2f %8.2f %8.2f%n", "latency", getLatencyMs(50),
+                    getLatencyMs(90), getLatencyMs(99), getLatencyMs(100)));
+            return text.toString();
+        }
+    }
+
+    private final List<VisionProcessor> processors;
+    private final CameraCalibration calibration;
+
+    /**
+     * @param calibration passed to each processor's init().  May be null, in which case processors that need
+     *                    lens intrinsics must be given them some other way (e.g. AprilTagProcessor.Builder).
+     * @param processors  the chain, in the order a VisionPortal would run them.
+     */
+    public FrameReplay(CameraCalibration calibration, VisionProcessor... processors) {
+        this.calibration = calibration;
+        this.processors  = Arrays.asList(processors);
+    }
+
+    /**
+     * Replay every frame in the source through the chain.
+     *
+     * @param output describes each frame's results, or null for no output.
+     */
+    public Report run(FrameSource source, Timing timing, OutputWriter output) throws InterruptedException {
+        int frames = source.size();
+        int stages = processors.size();
+
+        String[] stageNames = new String[stages];
+        for (int stage = 0; stage < stages; stage++) {
+            stageNames[stage] = processors.get(stage).getClass().getSimpleName();
+        }
+        long[][] stageNanos   = new long[stages + 1][frames];
+        long[]   latencyNanos = new long[frames];
+        List<String> lines    = new ArrayList<>();
+        Object[] results      = new Object[stages];
+
+        int  processed    = 0;
+        int  dropped      = 0;
+        boolean initDone  = false;
+        long framePeriod  = estimateFramePeriod(source);
+        long firstCapture = (frames > 0) ? source.getCaptureNanos(0) : 0;
+        long loadNanos    = 0;                  // Time spent loading frames, which is kept out of the timing.
+        long start        = System.nanoTime();
+
+        for (int index = 0; index < frames; index++) {
+            // The time this frame "arrives" from the camera.  Once the chain is more than a frame behind,
+            // a camera would already have replaced this frame with a newer one.
+            long release = start + loadNanos + (source.getCaptureNanos(index) - firstCapture);
+            if (timing == Timing.ORIGINAL && System.nanoTime() - release > framePeriod) {
+                dropped++;
+                continue;
+            }
+
+            long loadStart = System.nanoTime();
+            Mat frame = source.load(index);
+            try {
+                if (!initDone) {
+                    for (VisionProcessor processor : processors) {
+                        processor.init(frame.width(), frame.height(), calibration);
+                    }
+                    initDone = true;
+                }
+                long loadTime = System.nanoTime() - loadStart;
+                loadNanos += loadTime;
+                release   += loadTime;
+
+                if (timing == Timing.ORIGINAL) {
+                    long wait = release - System.nanoTime();
+                    if (wait > 0) {
+                        Thread.sleep(wait / 1_000_000L, (int) (wait % 1_000_000L));
+                    }
+                }
+                long chainStart = System.nanoTime();
+                if (timing == Timing.MAX_SPEED) {
+                    release = chainStart;
+                }
+                long stageStart = chainStart;
+                for (int stage = 0; stage < stages; stage++) {
+                    results[stage] = processors.get(stage).processFrame(frame, release);
+                    long stageEnd = System.nanoTime();
+                    stageNanos[stage][processed] = stageEnd - stageStart;
+                    stageStart = stageEnd;
+                }
+                stageNanos[stages][processed] = stageStart - chainStart;
+                latencyNanos[processed]       = stageStart - release;
+                processed++;
+
+                if (output != null) {
+                    lines.add(output.describe(source.getName(index), results));
+                }
+            } finally {
+                frame.release();
+            }
+        }
+
+        return new Report(stageNames, stageNanos, latencyNanos, lines, processed, dropped,
+                          System.nanoTime() - start - loadNanos);
+    }
+
+    // The median gap between recorded capture times, or 1/30 second if there aren't enough frames to tell.
+    private static long estimateFramePeriod(FrameSource source) {
+        int frames = source.size();
+        if (frames < 2) {
+            return 33_333_333L;
+        }
+        long[] gaps = new long[frames - 1];
+        for (int i = 1; i < frames; i++) {
+            gaps[i - 1] = source.getCaptureNanos(i) - source.getCaptureNanos(i - 1);
+        }
+        Arrays.sort(gaps);
+        return Math.max(1, gaps[gaps.length / 2]);
+    }
+}
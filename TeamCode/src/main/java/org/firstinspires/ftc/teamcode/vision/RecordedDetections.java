@@ -0,0 +1,124 @@
+package org.firstinspires.ftc.teamcode.vision;
+
+import org.firstinspires.ftc.vision.apriltag.AprilTagDetection;
+import org.firstinspires.ftc.vision.apriltag.AprilTagPoseFtc;
+import org.opencv.core.Point;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/*
+ * A recording of AprilTagProcessor detections, frame by frame, for running localization code off the robot.
+ *
+ * On the robot, record() each frame's detections (ConceptAprilTagMultiTag does this), and save toText() to a file.
+ * Off the robot, load it back with fromText(): each frame's detections are rebuilt as AprilTagDetections with their
+ * decision margin, corners and ftcPose, which is everything a localizer uses.  Tag metadata and rawPose are not kept.
+ *
+ * Text format, one frame per line: the capture time (nanoseconds), then one field per detection, separated by spaces.
+ * A detection's field is 19 comma-separated values:
+ *     id,decisionMargin,x0,y0,x1,y1,x2,y2,x3,y3,x,y,z,yaw,pitch,roll,range,bearing,elevation
+ * where x0..y3 are the corners, and the rest is the ftcPose.
+ */
+public class RecordedDetections {
+
+    private static final int VALUES = 19;
+
+    private final List<Long>                    captureNanos = new ArrayList<>();
+    private final List<List<AprilTagDetection>> frames       = new ArrayList<>();
+
+    /**
+     * Record one frame.  The list is copied; the detections themselves are immutable.
+     */
+    public void record(long captureNanos, List<AprilTagDetection> detections) {
+        this.captureNanos.add(captureNanos);
+        frames.add(Collections.unmodifiableList(new ArrayList<>(detections)));
+    }
+
+    /** @return number of frames recorded. */
+    public int getFrameCount()                          { return frames.size(); }
+
+    /** @return the capture time of a frame. */
+    public long getCaptureNanos(int frame)              { return captureNanos.get(frame); }
+
+    /** @return the detections in a frame. */
+    public List<AprilTagDetection> getDetections(int frame) { return frames.get(frame); }
+
+    public String toText() {
+        StringBuilder text = new StringBuilder();
+        for (int f = 0; f < frames.size(); f++) {
+            text.append(captureNanos.get(f));
+            for (AprilTagDetection detection : frames.get(f)) {
+                if (detection.ftcPose == null || detection.corners == null) {
+                    continue;       // The processor couldn't solve its pose, so there's nothing to localize from.
+                }
+                text.append(' ').append(detection.id).append(',').append(detection.decisionMargin);
+                for (Point corner : detection.corners) {
+                    append(text, corner.x);
+                    append(text, corner.y);
+                }
+                AprilTagPoseFtc pose = detection.ftcPose;
+                append(text, pose.x);
+                append(text, pose.y);
+                append(text, pose.z);
+                append(text, pose.yaw);
+                append(text, pose.pitch);
+                append(text, pose.roll);
+                append(text, pose.range);
+                append(text, pose.bearing);
+                append(text, pose.elevation);
+            }
+            text.append('\n');
+        }
+        return text.toString();
+    }
+
+    private static void append(StringBuilder text, double value) {
+        text.append(',').append(String.format(Locale.US, "%.4f", value));
+    }
+
+    /**
+     * @throws IllegalArgumentException if a line is not in the expected format.
+     */
+    public static RecordedDetections fromText(String text) {
+        RecordedDetections recording = new RecordedDetections();
+        for (String line : text.split("\n")) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split(" +");
+            try {
+                long nanos = Long.parseLong(fields[0]);
+                List<AprilTagDetection> detections = new ArrayList<>();
+                for (int i = 1; i < fields.length; i++) {
+                    detections.add(parse(fields[i], nanos));
+                }
+                recording.record(nanos, detections);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Bad number in: " + line, e);
+            }
+        }
+        return recording;
+    }
+
+    private static AprilTagDetection parse(String field, long captureNanos) {
+        String[] values = field.split(",");
+        if (values.length != VALUES) {
+            throw new IllegalArgumentException("Expected " + VALUES + " values: " + field);
+        }
+        double[] v = new double[VALUES];
+        for (int i = 1; i < VALUES; i++) {
+            v[i] = Double.parseDouble(values[i]);
+        }
+        Point[] corners = new Point[4];
+        for (int k = 0; k < 4; k++) {
+            corners[k] = new Point(v[2 + 2 * k], v[3 + 2 * k]);
+        }
+        Point center = new Point((v[2] + v[4] + v[6] + v[8]) / 4, (v[3] + v[5] + v[7] + v[9]) / 4);
+        AprilTagPoseFtc pose = new AprilTagPoseFtc(v[10], v[11], v[12], v[13], v[14], v[15], v[16], v[17], v[18]);
+        return new AprilTagDetection(Integer.parseInt(values[0]), 0, (float) v[1], center, corners, null, pose, null,
+                                     captureNanos);
+    }
+}
@@ -0,0 +1,138 @@
+package org.firstinspires.ftc.teamcode.vision;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * A recorded set of AprilTag frame results at various exposure/gain settings, that an ExposureTuner can run against.
+ *
+ * On the robot, pass the sweep to ExposureTuner.setFrameLog() so it records each frame the tuner sees (along with
+ * the setting in effect), then save toCsv() to a file.
+ * Off the robot, load it back with fromCsv() and run() a tuner against it: the recording stands in for the camera,
+ * playing back the frames recorded at whichever setting the tuner asks for.  If the tuner asks for a setting that
+ * was never recorded, the nearest recorded setting (by exposure, then gain) is used.
+ *
+ * CSV format, one frame per line:  exposureMs,gain,tagCount,meanMargin,processingMs
+ */
+public class RecordedExposureSweep implements ExposureTuner.Camera, ExposureTuner.FrameLog {
+
+    private static class Setting {
+        final int exposureMs;
+        final int gain;
+        final List<double[]> frames = new ArrayList<>();   // {tagCount, meanMargin, processingMs}
+        int next = 0;
+
+        Setting(int exposureMs, int gain) {
+            this.exposureMs = exposureMs;
+            this.gain       = gain;
+        }
+    }
+
+    private final List<Setting> settings = new ArrayList<>();
+    private Setting applied = null;
+    private int     applyCount = 0;
+
+    /**
+     * Record one frame.
+     */
+    @Override
+    public void record(int exposureMs, int gain, int tagCount, double meanMargin, double processingMs) {
+        Setting setting = find(exposureMs, gain);
+        if (setting == null) {
+            setting = new Setting(exposureMs, gain);
+            settings.add(setting);
+        }
+        setting.frames.add(new double[] {tagCount, meanMargin, processingMs});
+    }
+
+    /**
+     * Select the recorded setting nearest to the one requested.  Playback of that setting restarts from its first frame.
+     */
+    @Override
+    public void apply(int exposureMs, int gain) {
+        applyCount++;
+        applied = null;
+        int bestExposure = Integer.MAX_VALUE, bestGain = Integer.MAX_VALUE;
+        for (Setting setting : settings) {
+            int exposureError = Math.abs(setting.exposureMs - exposureMs);
+            int gainError     = Math.abs(setting.gain - gain);
+            if (exposureError < bestExposure || (exposureError == bestExposure && gainError < bestGain)) {
+                applied      = setting;
+                bestExposure = exposureError;
+                bestGain     = gainError;
+            }
+        }
+        if (applied != null) {
+            applied.next = 0;
+        }
+    }
+
+    /**
+     * Feed the tuner recorded frames until it finishes, or maxFrames have been played.
+     * The tuner must have been constructed with this sweep as its Camera.  It is started first.
+     *
+     * @return the number of frames played.
+     */
+    public int run(ExposureTuner tuner, int maxFrames) {
+        tuner.start();
+        int played = 0;
+        while (!tuner.isDone() && played < maxFrames && applied != null && !applied.frames.isEmpty()) {
+            double[] frame = applied.frames.get(applied.next);
+            applied.next = (applied.next + 1) % applied.frames.size();   // Loop if the tuner wants more frames.
+            tuner.addFrame((int) frame[0], frame[1], frame[2]);
+            played++;
+        }
+        return played;
+    }
+
+    /** @return number of distinct settings recorded. */
+    public int getSettingCount() { return settings.size(); }
+
+    /** @return number of times a setting has been applied. */
+    public int getApplyCount()   { return applyCount; }
+
+    public String toCsv() {
+        StringBuilder csv = new StringBuilder();
+        for (Setting setting : settings) {
+            for (double[] frame : setting.frames) {
+                csv.append(setting.exposureMs).append(',').append(setting.gain).append(',')
+                   .append((int) frame[0]).append(',').append(frame[1]).append(',').append(frame[2]).append('\n');
+            }
+        }
+        return csv.toString();
+    }
+
+    /**
+     * @throws IllegalArgumentException if a line is not in the expected format.
+     */
+    public static RecordedExposureSweep fromCsv(String csv) {
+        RecordedExposureSweep sweep = new RecordedExposureSweep();
+        for (String line : csv.split("\n")) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split(",");
+            if (fields.length != 5) {
+                throw new IllegalArgumentException("Expected 5 fields: " + line);
+            }
+            try {
+                sweep.record(Integer.parseInt(fields[0].trim()), Integer.parseInt(fields[1].trim()),
+                             Integer.parseInt(fields[2].trim()), Double.parseDouble(fields[3]),
+                             Double.parseDouble(fields[4]));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Bad number in: " + line, e);
+            }
+        }
+        return sweep;
+    }
+
+    private Setting find(int exposureMs, int gain) {
+        for (Setting setting : settings) {
+            if (setting.exposureMs == exposureMs && setting.gain == gain) {
+                return setting;
+            }
+        }
+        return null;
+    }
+}
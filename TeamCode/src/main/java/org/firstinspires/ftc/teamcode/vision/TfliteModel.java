@@ -0,0 +1,213 @@
+package org.firstinspires.ftc.teamcode.vision;
+
+import android.content.res.AssetFileDescriptor;
+
+import org.firstinspires.ftc.robotcore.internal.system.AppUtil;
+import org.tensorflow.lite.DataType;
+import org.tensorflow.lite.Interpreter;
+import org.tensorflow.lite.Tensor;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * A TFLite SSD object detection model (such as the SDK's "CenterStage.tflite"), run by a TFLite Interpreter, for
+ * TfliteProcessor.
+ *
+ * The model file is memory-mapped, not copied.  The input buffer and the four output buffers (boxes, classes,
+ * scores and count, in the order TFLite_Detection_PostProcess gives them) are direct buffers in native order,
+ * allocated once to the tensors' sizes, so the Interpreter copies straight to and from them.  The outputs are read
+ * through FloatBuffer views made once, into the caller's arrays.
+ *
+ * The Interpreter's CPU threads and whether it uses the XNNPACK delegate can be changed at any time.  A change
+ * rebuilds the Interpreter (which takes tens of milliseconds) just before the next run, on the thread that runs it,
+ * so it's best made between matches or while the model isn't being asked for frames.
+ *
+ *     TfliteModel model = TfliteModel.fromAsset("CenterStage.tflite");
+ *     model.setThreads(2);
+ *     model.setXnnpack(true);
+ */
+public class TfliteModel implements TfliteProcessor.Model {
+
+    private final MappedByteBuffer modelBuffer;
+
+    // Settings, applied by the next run().
+    private volatile int     threads  = 4;
+    private volatile boolean xnnpack  = true;
+    private volatile boolean changed  = false;
+
+    private Interpreter interpreter;
+    private final int     inputWidth, inputHeight;
+    private final boolean quantized;
+    private final int     maxDetections;
+
+    private final ByteBuffer   input;
+    private final ByteBuffer[] outputs = new ByteBuffer[4];
+    private final FloatBuffer  boxOutput, classOutput, scoreOutput, countOutput;
+    private final Object[]     inputs  = new Object[1];
+    private final Map<Integer, Object> outputMap = new HashMap<>();
+
+    /**
+     * @param model the model file's contents.
+     * @throws IllegalArgumentException if the model doesn't have one image input and SSD outputs.
+     */
+    public TfliteModel(MappedByteBuffer model) {
+        modelBuffer = model;
+        interpreter = build();
+
+        Tensor inputTensor = interpreter.getInputTensor(0);
+        int[] shape = inputTensor.shape();              // [1, height, width, 3]
+        if (shape.length != 4 || shape[3] != 3) {
+            throw new IllegalArgumentException("Model input isn't an RGB image");
+        }
+        inputHeight = shape[1];
+        inputWidth  = shape[2];
+        quantized   = inputTensor.dataType() == DataType.UINT8;
+        input       = ByteBuffer.allocateDirect(inputTensor.numBytes()).order(ByteOrder.nativeOrder());
+        inputs[0]   = input;
+
+        // The boxes are the 3D output and the count the one with a single element.  Classes come before scores.
+        int boxesIndex = -1, countIndex = -1, classesIndex = -1, scoresIndex = -1;
+        if (interpreter.getOutputTensorCount() != 4) {
+            throw new IllegalArgumentException("Model doesn't have SSD outputs");
+        }
+        for (int t = 0; t < 4; t++) {
+            Tensor output = interpreter.getOutputTensor(t);
+            if (output.dataType() != DataType.FLOAT32) {
+                throw new IllegalArgumentException("Model output " + t + " isn't float");
+            }
+            if (output.numDimensions() == 3) {
+                boxesIndex = t;
+            } else if (output.numElements() == 1) {
+                countIndex = t;
+            } else if (classesIndex < 0) {
+                classesIndex = t;
+            } else {
+                scoresIndex = t;
+            }
+            outputs[t] = ByteBuffer.allocateDirect(output.numBytes()).order(ByteOrder.nativeOrder());
+            outputMap.put(t, outputs[t]);
+        }
+        if (boxesIndex < 0 || countIndex < 0 || scoresIndex < 0) {
+            throw new IllegalArgumentException("Model doesn't have SSD outputs");
+        }
+        boxOutput     = outputs[boxesIndex].asFloatBuffer();
+        classOutput   = outputs[classesIndex].asFloatBuffer();
+        scoreOutput   = outputs[scoresIndex].asFloatBuffer();
+        countOutput   = outputs[countIndex].asFloatBuffer();
+        maxDetections = scoreOutput.capacity();
+    }
+
+    /**
+     * @param name a model in the Robot Controller app's assets, such as the SDK's "CenterStage.tflite".
+     */
+    public static TfliteModel fromAsset(String name) throws IOException {
+        AssetFileDescriptor descriptor = AppUtil.getDefContext().getAssets().openFd(name);
+        try (FileInputStream stream = new FileInputStream(descriptor.getFileDescriptor())) {
+            return new TfliteModel(stream.getChannel().map(FileChannel.MapMode.READ_ONLY,
+                                                           descriptor.getStartOffset(),
+                                                           descriptor.getDeclaredLength()));
+        } finally {
+            descriptor.close();
+        }
+    }
+
+    /**
+     * @param file a model file, e.g. one copied to the Robot Controller's storage.
+     */
+    public static TfliteModel fromFile(File file) throws IOException {
+        try (RandomAccessFile stream = new RandomAccessFile(file, "r")) {
+            return new TfliteModel(stream.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length()));
+        }
+    }
+
+    private Interpreter build() {
+        Interpreter.Options options = new Interpreter.Options();
+        options.setNumThreads(threads);
+        options.setUseXNNPACK(xnnpack);
+        return new Interpreter(modelBuffer, options);
+    }
+
+    // ---------------------------------------------------------------------------------------------------------------
+    // Settings.
+
+    /**
+     * Set the number of CPU threads the Interpreter uses (4 by default).
+     */
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+        changed = true;
+    }
+
+    /**
+     * @param xnnpack true (the default) to run the model's float operations with the XNNPACK delegate.
+     */
+    public void setXnnpack(boolean xnnpack) {
+        this.xnnpack = xnnpack;
+        changed = true;
+    }
+
+    /** @return the CPU threads the Interpreter uses, or will use from the next run. */
+    public int getThreads()         { return threads; }
+
+    /** @return whether the Interpreter uses XNNPACK, or will from the next run. */
+    public boolean getXnnpack()     { return xnnpack; }
+
+    // ---------------------------------------------------------------------------------------------------------------
+    // TfliteProcessor.Model.
+
+    @Override
+    public int getInputWidth()      { return inputWidth; }
+
+    @Override
+    public int getInputHeight()     { return inputHeight; }
+
+    @Override
+    public boolean isQuantized()    { return quantized; }
+
+    @Override
+    public ByteBuffer getInput()    { return input; }
+
+    @Override
+    public int getMaxDetections()   { return maxDetections; }
+
+    @Override
+    public int run(float[] boxes, float[] classes, float[] scores) {
+        if (changed) {
+            changed = false;
+            interpreter.close();
+            interpreter = build();
+        }
+        for (ByteBuffer output : outputs) {
+            output.clear();
+        }
+        input.rewind();
+        interpreter.runForMultipleInputsOutputs(inputs, outputMap);
+
+        int detections = Math.min((int) countOutput.get(0), maxDetections);
+        for (int d = 0; d < detections; d++) {
+            classes[d] = classOutput.get(d);
+            scores[d]  = scoreOutput.get(d);
+            for (int i = 0; i < 4; i++) {
+                boxes[4 * d + i] = boxOutput.get(4 * d + i);
+            }
+        }
+        return detections;
+    }
+
+    /**
+     * Release the Interpreter.  The model can't be run after this.
+     */
+    public void close() {
+        interpreter.close();
+    }
+}
@@ -0,0 +1,487 @@
+package org.firstinspires.ftc.teamcode.vision;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+
+import org.firstinspires.ftc.robotcore.internal.camera.calibration.CameraCalibration;
+import org.firstinspires.ftc.vision.VisionProcessor;
+import org.opencv.core.Mat;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * A VisionPortal processor that runs a TensorFlow Lite object detection model, only as often as it's needed, with
+ * every buffer made once.
+ *
+ * The SDK's TfodProcessor converts each frame to a Bitmap and then to a new TensorImage before inference, and runs
+ * the model on every frame whether or not anything is using the results.  Here:
+ *  1) PREPROCESS:  the frame is resized straight into a pooled Mat of the model's input size, and copied into the
+ *                  model's input buffer (as bytes, or as normalized floats through a pooled float array),
+ *  2) INVOKE:      the model runs, into its own preallocated output buffers (see TfliteModel, which also sets the
+ *                  number of CPU threads and the XNNPACK delegate),
+ *  3) POSTPROCESS: detections above the minimum confidence are scaled to frame pixels and published.
+ * Each stage is timed, every frame the model runs.
+ *
+ * The model doesn't have to run on every frame:
+ *  - setFrameInterval(n) runs it on every nth frame,
+ *  - setOnDemand(true) runs it only on frames that have been asked for, with request(frames): autonomous can ask for
+ *    a few frames while it decides where a game piece is, and the model costs nothing the rest of the match.
+ * Frames the model doesn't run on are returned from at once.
+ *
+ * Results are published like ColorBlobProcessor's: into two preallocated buffers used alternately, which read()
+ * copies into the caller's own Recognitions.  Reads never block or allocate.
+ *
+ *     TfliteModel model = TfliteModel.fromAsset("CenterStage.tflite");
+ *     model.setThreads(4);
+ *     TfliteProcessor detector = new TfliteProcessor(model, new String[] {"Pixel"});
+ *     visionPortal = new VisionPortal.Builder()
+ *             .setCamera(hardwareMap.get(WebcamName.class, "Webcam 1"))
+ *             .addProcessor(detector)
+ *             .build();
+ *     TfliteProcessor.Recognitions recognitions = detector.newRecognitions();
+ *     ...
+ *     if (detector.read(recognitions) && recognitions.getCount() > 0) { ... recognitions.getCenterX(0) ... }
+ *
+ * The whole frame is stretched to the model's input, as TfodProcessor does by default.  process() runs the stages
+ * after the resize on pixels that are already the input size, so the processor can be timed without a camera or
+ * OpenCV (see VisionBenchmarks).  The processor allocates nothing per frame; TFLite's own Java wrapper makes a few
+ * small objects on each run.
+ */
+public class TfliteProcessor implements VisionProcessor {
+
+    /**
+     * An object detection model, with SSD outputs: for each detection a box, a class and a score.  TfliteModel runs
+     * one with a TFLite Interpreter.
+     */
+    public interface Model {
+        int getInputWidth();
+
+        int getInputHeight();
+
+        /** @return true if the input is 8-bit pixels, false if it's floats. */
+        boolean isQuantized();
+
+        /** @return the input buffer, to fill with RGB pixels, row by row, as bytes or floats (see isQuantized()). */
+        ByteBuffer getInput();
+
+        /** @return the most detections run() can report. */
+        int getMaxDetections();
+
+        /**
+         * Run the model on the input buffer.
+         *
+         * @param boxes   filled with each detection's top, left, bottom and right, as fractions of the input.
+         * @param classes filled with each detection's class index.
+         * @param scores  filled with each detection's score, 0 to 1.
+         * @return the number of detections.
+         */
+        int run(float[] boxes, float[] classes, float[] scores);
+    }
+
+    /**
+     * The processing stages, which are timed separately.
+     */
+    public enum Stage { PREPROCESS, INVOKE, POSTPROCESS }
+
+    public static final int MAX_RECOGNITIONS = 16;
+
+    private static final Stage[] STAGES            = Stage.values();
+    private static final int     RECOGNITION_VALUES = 6;   // class, confidence, left, top, right, bottom.
+    private static final int     HEADER            = 2 + STAGES.length;  // capture time, count, stage times.
+
+    /**
+     * The recognitions from one frame.  Allocate with newRecognitions(), once, and refill it with read().
+     */
+    public static class Recognitions {
+        private final String[] labels;
+        private final double[] values     = new double[MAX_RECOGNITIONS * RECOGNITION_VALUES];
+        private final long[]   stageNanos = new long[STAGES.length];
+        private long sequence     = 0;
+        private long captureNanos = 0;
+        private int  count        = 0;
+
+        private Recognitions(String[] labels) {
+            this.labels = labels;
+        }
+
+        /** @return the number of the frame the model ran on, counting from 1.  0 means none has been read yet. */
+        public long getSequence()                  { return sequence; }
+
+        /** @return System.nanoTime() at which the camera captured the frame. */
+        public long getCaptureNanos()              { return captureNanos; }
+
+        /** @return how long ago the frame was captured. */
+        public long getAgeNanos()                  { return System.nanoTime() - captureNanos; }
+
+        /** @return time the frame spent in a stage. */
+        public long getStageNanos(Stage stage)     { return stageNanos[stage.ordinal()]; }
+
+        /** @return recognitions, most confident first, at most MAX_RECOGNITIONS. */
+        public int getCount()                      { return count; }
+
+        /** @return the recognition's class index in the model's labels. */
+        public int getClassIndex(int recognition)  { return (int) values[recognition * RECOGNITION_VALUES]; }
+
+        /** @return the recognition's label, or "?" if the class index is outside the labels. */
+        public String getLabel(int recognition) {
+            int index = getClassIndex(recognition);
+            return (index >= 0 && index < labels.length) ? labels[index] : "?";
+        }
+
+        /** @return the model's score, 0 to 1. */
+        public double getConfidence(int recognition) { return values[recognition * RECOGNITION_VALUES + 1]; }
+
+        /** @return the recognition's bounding box, in frame pixels. */
+        public double getLeft(int recognition)     { return values[recognition * RECOGNITION_VALUES + 2]; }
+
+        public double getTop(int recognition)      { return values[recognition * RECOGNITION_VALUES + 3]; }
+
+        public double getRight(int recognition)    { return values[recognition * RECOGNITION_VALUES + 4]; }
+
+        public double getBottom(int recognition)   { return values[recognition * RECOGNITION_VALUES + 5]; }
+
+        public double getCenterX(int recognition)  { return (getLeft(recognition) + getRight(recognition)) / 2; }
+
+        public double getCenterY(int recognition)  { return (getTop(recognition) + getBottom(recognition)) / 2; }
+
+        public double getWidth(int recognition)    { return getRight(recognition) - getLeft(recognition); }
+
+        public double getHeight(int recognition)   { return getBottom(recognition) - getTop(recognition); }
+    }
+
+    private final Model    model;
+    private final String[] labels;
+    private final int      inputWidth, inputHeight;
+
+    // Settings.
+    private volatile float   minConfidence = 0.5f;
+    private volatile float   mean          = 127.5f;    // Float inputs are (pixel - mean) / deviation.
+    private volatile float   deviation     = 127.5f;
+    private volatile int     frameInterval = 1;
+    private volatile boolean onDemand      = false;
+    private final AtomicInteger requested  = new AtomicInteger();
+
+    private int width, height;
+    private int framesSinceRun = 0;
+
+    // Buffers.  Only touched by the frame thread.
+    private final Mat         resized = new Mat();
+    private final Size        inputSize;
+    private final byte[]      pixels;
+    private final float[]     floats;
+    private final FloatBuffer floatInput;
+    private final float[]     boxes, classes, scores;
+    private final int[]       order = new int[MAX_RECOGNITIONS];
+    private final long[]      stageNanos = new long[STAGES.length];
+
+    // Publishing, as in OctoQuadStream.
+    private final AtomicLongArray[] buffers = {
+            new AtomicLongArray(HEADER + MAX_RECOGNITIONS * RECOGNITION_VALUES),
+            new AtomicLongArray(HEADER + MAX_RECOGNITIONS * RECOGNITION_VALUES),
+    };
+    private volatile long published = 0;
+    private volatile long writing   = 0;
+
+    // Statistics.  Only ever written by the frame thread, read by anyone.
+    private volatile long framesSeen = 0;
+    private volatile long framesRun  = 0;
+    private final AtomicLongArray stageTotals = new AtomicLongArray(STAGES.length);
+
+    private final Recognitions drawRecognitions;
+    private final Paint boxPaint  = new Paint();
+    private final Paint textPaint = new Paint();
+
+    /**
+     * @param model  the model to run.
+     * @param labels the model's class names, by class index.
+     */
+    public TfliteProcessor(Model model, String[] labels) {
+        this.model  = model;
+        this.labels = labels.clone();
+        inputWidth  = model.getInputWidth();
+        inputHeight = model.getInputHeight();
+        inputSize   = new Size(inputWidth, inputHeight);
+        pixels      = new byte[inputWidth * inputHeight * 3];
+        floats      = model.isQuantized() ? null : new float[pixels.length];
+        floatInput  = model.isQuantized() ? null : model.getInput().asFloatBuffer();
+        int detections = model.getMaxDetections();
+        boxes   = new float[4 * detections];
+        classes = new float[detections];
+        scores  = new float[detections];
+
+        drawRecognitions = new Recognitions(this.labels);
+        boxPaint.setColor(Color.GREEN);
+        boxPaint.setStyle(Paint.Style.STROKE);
+        textPaint.setColor(Color.GREEN);
+        textPaint.setAntiAlias(true);
+    }
+
+    // ---------------------------------------------------------------------------------------------------------------
+    // Settings.
+
+    /**
+     * Set the lowest score to report (0.5 by default).
+     */
+    public void setMinConfidence(double confidence) {
+        minConfidence = (float) confidence;
+    }
+
+    /**
+     * For models with float inputs, set how pixels are normalized: (pixel - mean) / deviation.  The default, 127.5
+     * and 127.5, gives -1 to 1.
+     */
+    public void setNormalization(double mean, double deviation) {
+        this.mean      = (float) mean;
+        this.deviation = (float) deviation;
+    }
+
+    /**
+     * Run the model on every nth frame (1, every frame, by default).
+     */
+    public void setFrameInterval(int frames) {
+        frameInterval = Math.max(1, frames);
+    }
+
+    /**
+     * @param onDemand true to run the model only on frames asked for with request(), false to run it every frame
+     *                 interval.
+     */
+    public void setOnDemand(boolean onDemand) {
+        this.onDemand = onDemand;
+    }
+
+    /**
+     * Ask for the model to be run on the next few frames, when on demand.  Requests add up.
+     */
+    public void request(int frames) {
+        requested.addAndGet(frames);
+    }
+
+    // ---------------------------------------------------------------------------------------------------------------
+    // VisionProcessor.
+
+    @Override
+    public void init(int width, int height, CameraCalibration calibration) {
+        this.width  = width;
+        this.height = height;
+    }
+
+    @Override
+    public Object processFrame(Mat frame, long captureTimeNanos) {
+        framesSeen++;
+        if (!due()) {
+            return null;
+        }
+        long start = System.nanoTime();
+        Imgproc.resize(frame, resized, inputSize, 0, 0, Imgproc.INTER_LINEAR);
+        resized.get(0, 0, pixels);
+        run(pixels, width, height, captureTimeNanos, start);
+        return null;
+    }
+
+    // Whether the model runs on this frame.
+    private boolean due() {
+        if (onDemand) {
+            while (true) {
+                int frames = requested.get();
+                if (frames <= 0) {
+                    return false;
+                }
+                if (requested.compareAndSet(frames, frames - 1)) {
+                    return true;
+                }
+            }
+        }
+        if (++framesSinceRun < frameInterval) {
+            return false;
+        }
+        framesSinceRun = 0;
+        return true;
+    }
+
+    /**
+     * Run the model on pixels that are already the model's input size, and publish the recognitions.  This is what
+     * processFrame() does after resizing the frame; call it directly to time the processor without a camera.
+     * Don't call it while the processor is in a VisionPortal.
+     *
+     * @param rgb                        the pixels, RGB, row by row.
+     * @param frameWidth, frameHeight    the size of the frame they came from, to scale the boxes to.
+     */
+    public void process(byte[] rgb, int frameWidth, int frameHeight, long captureNanos) {
+        run(rgb, frameWidth, frameHeight, captureNanos, System.nanoTime());
+    }
+
+    private void run(byte[] rgb, int frameWidth, int frameHeight, long captureNanos, long start) {
+        // PREPROCESS.
+        ByteBuffer input = model.getInput();
+        input.clear();
+        if (floats == null) {
+            input.put(rgb, 0, pixels.length);
+        } else {
+            float offset = mean, scale = 1 / deviation;
+            for (int i = 0; i < floats.length; i++) {
+                floats[i] = ((rgb[i] & 0xFF) - offset) * scale;
+            }
+            floatInput.clear();
+            floatInput.put(floats);
+        }
+        input.rewind();
+        long preprocessEnd = System.nanoTime();
+
+        // INVOKE.
+        int detections = Math.min(model.run(boxes, classes, scores), scores.length);
+        long invokeEnd = System.nanoTime();
+
+        // POSTPROCESS: the most confident, above the minimum.
+        float threshold = minConfidence;
+        int count = 0;
+        for (int d = 0; d < detections; d++) {
+            if (scores[d] < threshold) {
+                continue;
+            }
+            if (count == MAX_RECOGNITIONS && scores[d] <= scores[order[MAX_RECOGNITIONS - 1]]) {
+                continue;
+            }
+            int i = Math.min(count, MAX_RECOGNITIONS - 1);
+            while (i > 0 && scores[order[i - 1]] < scores[d]) {
+                order[i] = order[i - 1];
+                i--;
+            }
+            order[i] = d;
+            count = Math.min(count + 1, MAX_RECOGNITIONS);
+        }
+
+        long sequence = published + 1;
+        writing = sequence;
+        AtomicLongArray buffer = buffers[(int) (sequence & 1)];
+        buffer.set(0, captureNanos);
+        buffer.set(1, count);
+        for (int r = 0; r < count; r++) {
+            int d = order[r], i = HEADER + r * RECOGNITION_VALUES;
+            setDouble(buffer, i,     classes[d]);
+            setDouble(buffer, i + 1, scores[d]);
+            setDouble(buffer, i + 2, clip(boxes[4 * d + 1]) * frameWidth);
+            setDouble(buffer, i + 3, clip(boxes[4 * d]) * frameHeight);
+            setDouble(buffer, i + 4, clip(boxes[4 * d + 3]) * frameWidth);
+            setDouble(buffer, i + 5, clip(boxes[4 * d + 2]) * frameHeight);
+        }
+        long postprocessEnd = System.nanoTime();
+
+        stageNanos[Stage.PREPROCESS.ordinal()]  = preprocessEnd - start;
+        stageNanos[Stage.INVOKE.ordinal()]      = invokeEnd - preprocessEnd;
+        stageNanos[Stage.POSTPROCESS.ordinal()] = postprocessEnd - invokeEnd;
+        for (int s = 0; s < STAGES.length; s++) {
+            buffer.set(2 + s, stageNanos[s]);
+            stageTotals.addAndGet(s, stageNanos[s]);
+        }
+        framesRun++;
+        published = sequence;
+    }
+
+    private static float clip(float fraction) {
+        return Math.max(0, Math.min(1, fraction));
+    }
+
+    private static void setDouble(AtomicLongArray buffer, int index, double value) {
+        buffer.set(index, Double.doubleToRawLongBits(value));
+    }
+
+    @Override
+    public void onDrawFrame(Canvas canvas, int onscreenWidth, int onscreenHeight,
+                            float scaleBmpPxToCanvasPx, float scaleCanvasDensity, Object userContext) {
+        float scale = scaleBmpPxToCanvasPx;
+        boxPaint.setStrokeWidth(3 * scaleCanvasDensity);
+        textPaint.setTextSize(20 * scaleCanvasDensity);
+        read(drawRecognitions);
+        for (int r = 0; r < drawRecognitions.getCount(); r++) {
+            float left = (float) drawRecognitions.getLeft(r) * scale, top = (float) drawRecognitions.getTop(r) * scale;
+            canvas.drawRect(left, top, (float) drawRecognitions.getRight(r) * scale,
+                            (float) drawRecognitions.getBottom(r) * scale, boxPaint);
+            canvas.drawText(drawRecognitions.getLabel(r), left, top - 4 * scaleCanvasDensity, textPaint);
+        }
+    }
+
+    // ---------------------------------------------------------------------------------------------------------------
+    // Output.
+
+    /**
+     * @return a Recognitions to read() into.  Allocate one per reading thread, once.
+     */
+    public Recognitions newRecognitions() {
+        return new Recognitions(labels);
+    }
+
+    /**
+     * Copy the latest recognitions into recognitions.  Never blocks.
+     *
+     * @return true if recognitions now holds a newer frame than it did before.
+     */
+    public boolean read(Recognitions recognitions) {
+        while (true) {
+            long sequence = published;
+            if (sequence == 0 || sequence == recognitions.sequence) {
+                return false;
+            }
+            AtomicLongArray buffer = buffers[(int) (sequence & 1)];
+            long captureNanos = buffer.get(0);
+            int  count        = (int) buffer.get(1);
+            for (int s = 0; s < STAGES.length; s++) {
+                recognitions.stageNanos[s] = buffer.get(2 + s);
+            }
+            for (int i = 0; i < count * RECOGNITION_VALUES; i++) {
+                recognitions.values[i] = Double.longBitsToDouble(buffer.get(HEADER + i));
+            }
+            // The buffer is only rewritten for frame (sequence + 2).  If that hasn't begun, the copy is intact.
+            if (writing <= sequence + 1) {
+                recognitions.sequence     = sequence;
+                recognitions.captureNanos = captureNanos;
+                recognitions.count        = count;
+                return true;
+            }
+        }
+    }
+
+    // ---------------------------------------------------------------------------------------------------------------
+    // Statistics.
+
+    /** @return frames the VisionPortal passed to the processor. */
+    public long getFramesSeen()                   { return framesSeen; }
+
+    /** @return frames the model ran on. */
+    public long getFramesRun()                    { return framesRun; }
+
+    /** @return frames requested with request() that haven't been run yet. */
+    public int getPendingRequests()               { return Math.max(0, requested.get()); }
+
+    /** @return mean time a frame the model ran on spent in a stage, in microseconds. */
+    public double getMeanStageMicros(Stage stage) {
+        long n = framesRun;
+        return (n == 0) ? 0 : stageTotals.get(stage.ordinal()) / 1e3 / n;
+    }
+
+    /** @return mean time to process a frame the model ran on, in microseconds. */
+    public double getMeanMicros() {
+        double total = 0;
+        for (Stage stage : STAGES) {
+            total += getMeanStageMicros(stage);
+        }
+        return total;
+    }
+
+    /**
+     * Clear the statistics, e.g. after changing the model's settings.
+     */
+    public void resetStatistics() {
+        for (int s = 0; s < STAGES.length; s++) {
+            stageTotals.set(s, 0);
+        }
+        framesSeen = 0;
+        framesRun  = 0;
+    }
+}
@@ -0,0 +1,82 @@
+package org.firstinspires.ftc.teamcode.vision;
+
+import org.firstinspires.ftc.vision.apriltag.AprilTagDetection;
+
+import java.util.Collections;
+import java.util.List;
+
+/*
+ * The AprilTag detections found in one camera frame, together with when that frame was captured.
+ *
+ * A VisionResult is immutable once published, so any number of threads can read it without locking.
+ * The sequence number increases by one for each processed frame, so a reader can tell whether it has
+ * already acted on a result, and how many frames it has missed.
+ */
+public final class VisionResult {
+
+    /** A result representing "no frame processed yet".  Its sequence number is 0. */
+    public static final VisionResult NONE = new VisionResult(0, 0, 0, Collections.<AprilTagDetection>emptyList());
+
+    private final long sequence;
+    private final long captureNanos;
+    private final long publishNanos;
+    private final List<AprilTagDetection> detections;
+
+    VisionResult(long sequence, long captureNanos, long publishNanos, List<AprilTagDetection> detections) {
+        this.sequence     = sequence;
+        this.captureNanos = captureNanos;
+        this.publishNanos = publishNanos;
+        this.detections   = detections;
+    }
+
+    /** @return frame sequence number, starting at 1 for the first processed frame. */
+    public long getSequence()     { return sequence; }
+
+    /** @return System.nanoTime() at which the camera captured this frame. */
+    public long getCaptureNanos() { return captureNanos; }
+
+    /** @return System.nanoTime() at which the detections for this frame became available. */
+    public long getPublishNanos() { return publishNanos; }
+
+    /** @return the detections found in this frame.  The list must not be modified. */
+    public List<AprilTagDetection> getDetections() { return detections; }
+
+    /**
+     * @return time between the frame being captured and its detections being published.
+     */
+    public long getPipelineLatencyNanos() {
+        return publishNanos - captureNanos;
+    }
+
+    /**
+     * @param nowNanos the current System.nanoTime().
+     * @return how long ago the frame was captured, which is how old any pose in it is.
+     */
+    public long getAgeNanos(long nowNanos) {
+        return nowNanos - captureNanos;
+    }
+
+    /**
+     * @param lastSequence the sequence number of the result a reader last acted on.
+     * @return true if this result comes from a later frame.
+     */
+    public boolean isNewerThan(long lastSequence) {
+        return sequence > lastSequence;
+    }
+
+    /**
+     * Find a detection that has TagLibrary metadata (and therefore a pose).
+     *
+     * @param id the tag ID wanted, or -1 for any tag in the library.
+     * @return the first matching detection, or null if there isn't one.
+     */
+    public AprilTagDetection findTag(int id) {
+        for (int i = 0; i < detections.size(); i++) {
+            AprilTagDetection detection = detections.get(i);
+            if (detection.metadata != null && (id < 0 || detection.id == id)) {
+                return detection;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,42 @@
+package org.firstinspires.ftc.teamcode.benchmark;
+
+/*
+ * One piece of control-loop code to be timed by BenchmarkRunner.
+ *
+ * setup() is called once, outside of the timed region, to build the stubbed hardware and any inputs, and
+ * teardown() once at the end.
+ * op() is one iteration of the code under test.  It should return a value that depends on the work done,
+ * which the runner accumulates so that the work can't be optimized away.
+ */
+public abstract class Benchmark {
+
+    private final String name;
+
+    protected Benchmark(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Prepare the benchmark.  Called once before warm-up.
+     */
+    public void setup() {
+    }
+
+    /**
+     * Release anything setup() started, such as threads.  Called once after measuring.
+     */
+    public void teardown() {
+    }
+
+    /**
+     * Perform one operation.
+     *
+     * @param iteration running count, usable to vary the inputs from one operation to the next.
+     * @return a value derived from the result of the operation.
+     */
+    public abstract double op(int iteration);
+}
@@ -0,0 +1,171 @@
+package org.firstinspires.ftc.teamcode.benchmark;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertTrue;
+
+/*
+ * A minimal micro-benchmark runner for measuring control-loop code on a desktop JVM, from the unit tests.
+ *
+ * Each benchmark is warmed up (so the JIT has a chance to compile the hot path), then run for a fixed
+ * measurement time.  The runner reports:
+ *
+ *  ns/op       Average wall-clock time per operation during the measurement period.
+ *  bytes/op    Average number of bytes allocated by this thread per operation, from the JVM's per-thread
+ *              allocation counter (com.sun.management.ThreadMXBean).  An allocation-free hot path reports 0.
+ *
+ * The *BenchmarksTest classes run the suites with forTests(), and check that the hot paths don't allocate.  A
+ * failing check reports these figures:
+ *
+ *     ./gradlew :TeamCode:testDebugUnitTest --tests '*BenchmarksTest'
+ *
+ * A desktop CPU is several times faster than a Control Hub's, and HotSpot is not ART, so the times only compare
+ * one approach with another.  The tests run with escape analysis off (see build.gradle), as ART has none, so a
+ * hot path that allocates nothing here should allocate nothing on the robot either.
+ */
+public class BenchmarkRunner {
+
+    private static final int MAX_PASSES = 3;     // Times a benchmark that allocates is measured.
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private final long warmupNanos;
+    private final long measureNanos;
+
+    private double sink      = 0;   // Accumulates benchmark results so they can't be optimized away.
+    private int    iteration = 0;   // Passed to op(), so that each benchmark can vary its inputs.
+
+    /**
+     * @param warmupMs  time to run each benchmark before measuring it.
+     * @param measureMs time to measure each benchmark for.
+     */
+    public BenchmarkRunner(long warmupMs, long measureMs) {
+        this.warmupNanos  = warmupMs * 1_000_000L;
+        this.measureNanos = measureMs * 1_000_000L;
+    }
+
+    /**
+     * @return a runner with the warm-up and measurement times the unit tests use.
+     */
+    public static BenchmarkRunner forTests() {
+        return new BenchmarkRunner(500, 500);
+    }
+
+    /**
+     * Warm up and measure a benchmark.
+     *
+     * @param benchmark the benchmark to run.
+     * @param result    the object to fill in with the measurements.
+     */
+    public void run(Benchmark benchmark, Result result) {
+        benchmark.setup();
+        try {
+            measure(benchmark, result);
+        } finally {
+            benchmark.teardown();
+        }
+    }
+
+    private void measure(Benchmark benchmark, Result result) {
+        // Warm up.
+        iteration = 0;
+        loop(benchmark, warmupNanos);
+
+        // Measure.  The JIT allocates a little on this thread when this thread asks it to compile something, which
+        // a slow benchmark can still do after the warm-up.  So a measurement that allocated is repeated: an operation
+        // that allocates does so in every pass.
+        for (int pass = 1; ; pass++) {
+            long allocatedBefore = allocatedBytes();
+            long start = System.nanoTime();
+            long ops = loop(benchmark, measureNanos);
+            long now = System.nanoTime();
+            long allocated = allocatedBytes() - allocatedBefore;
+
+            result.name        = benchmark.getName();
+            result.operations  = ops;
+            result.nanosPerOp  = (double) (now - start) / ops;
+            result.bytesPerOp  = (double) allocated / ops;
+            if (allocated == 0 || pass == MAX_PASSES) {
+                return;
+            }
+        }
+    }
+
+    // Run the benchmark for the given time, and return how many operations it did.  The clock is only read every
+    // 100 operations, to keep its cost out of the result.
+    private long loop(Benchmark benchmark, long nanos) {
+        long ops = 0;
+        long end = System.nanoTime() + nanos;
+        do {
+            for (int i = 0; i < 100; i++) {
+                sink += benchmark.op(iteration++);
+            }
+            ops += 100;
+        } while (System.nanoTime() < end);
+        return ops;
+    }
+
+    /**
+     * Warm up and measure the named benchmark from a suite.
+     *
+     * @throws IllegalArgumentException if the suite has no benchmark of that name.
+     */
+    public Result run(Benchmark[] suite, String name) {
+        for (Benchmark benchmark : suite) {
+            if (benchmark.getName().equals(name)) {
+                Result result = new Result();
+                run(benchmark, result);
+                return result;
+            }
+        }
+        throw new IllegalArgumentException("No benchmark named '" + name + "'");
+    }
+
+    // Bytes allocated by the calling thread so far.  Looking the bean up allocates, so it's only done once.
+    private static long allocatedBytes() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * @return the accumulated benchmark results.  Only useful to keep the JIT honest.
+     */
+    public double getSink() {
+        return sink;
+    }
+
+    /**
+     * The measurements for one benchmark.
+     */
+    public static class Result {
+        public String name       = "";
+        public long   operations = 0;
+        public double nanosPerOp = 0;
+        public double bytesPerOp = 0;
+
+        /**
+         * @param loopBudgetMs the control loop's time budget.
+         * @return the percentage of that budget consumed by one operation.
+         */
+        public double percentOfBudget(double loopBudgetMs) {
+            return 100.0 * nanosPerOp / (loopBudgetMs * 1_000_000.0);
+        }
+
+        /** @return true if the operations allocated nothing at all. */
+        public boolean isAllocationFree() {
+            return bytesPerOp == 0;
+        }
+
+        /**
+         * Fail, with these figures as the message, unless the operations allocated nothing at all.
+         */
+        public void assertAllocationFree() {
+            assertTrue(toString(), isAllocationFree());
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-36s %10.1f ns/op %8.1f bytes/op", name, nanosPerOp, bytesPerOp);
+        }
+    }
+}
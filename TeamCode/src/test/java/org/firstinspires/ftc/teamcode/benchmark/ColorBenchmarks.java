@@ -0,0 +1,111 @@
+package org.firstinspires.ftc.teamcode.benchmark;
+
+import org.firstinspires.ftc.teamcode.hardware.ColorClassifier;
+import org.firstinspires.ftc.teamcode.hardware.ColorEdgeDetector;
+
+/*
+ * Benchmarks for color classification: converting each reading to HSV and testing the classes (as SensorColor
+ * does), against one ColorClassifier lookup, and the per-reading cost of ColorEdgeDetector.
+ *
+ * The classifier readings cycle through a fixed set of colors, so the work doesn't depend on any one input.
+ */
+public final class ColorBenchmarks {
+
+    private static final int SAMPLES = 256;
+
+    private ColorBenchmarks() {
+    }
+
+    /**
+     * @return all of the color benchmarks.
+     */
+    public static Benchmark[] all() {
+        return new Benchmark[] {
+                new Classify("Classify color (HSV)", false),
+                new Classify("Classify color (lookup table)", true),
+                new DetectEdges(),
+        };
+    }
+
+    static ColorClassifier gameElements() {
+        ColorClassifier classifier = new ColorClassifier();
+        classifier.addClass("Red",    340,  20, 0.5f, 0.1f);
+        classifier.addClass("Yellow",  40,  80, 0.5f, 0.1f);
+        classifier.addClass("Blue",   200, 250, 0.5f, 0.1f);
+        classifier.build(1.0f);
+        return classifier;
+    }
+
+    // SAMPLES readings spread over the color space, as r, g, b triples.
+    static float[] readings() {
+        float[] rgb = new float[3 * SAMPLES];
+        long seed = 12345;
+        for (int i = 0; i < rgb.length; i++) {
+            seed = seed * 6364136223846793005L + 1442695040888963407L;
+            rgb[i] = (seed >>> 40) / (float) (1 << 24);
+        }
+        return rgb;
+    }
+
+    /**
+     * ColorClassifier.classifyExact() (HSV per reading) or classify() (table lookup).
+     */
+    static class Classify extends Benchmark {
+        private final boolean table;
+        private ColorClassifier classifier;
+        private float[] rgb;
+
+        Classify(String name, boolean table) {
+            super(name);
+            this.table = table;
+        }
+
+        @Override
+        public void setup() {
+            classifier = gameElements();
+            rgb = readings();
+        }
+
+        @Override
+        public double op(int iteration) {
+            int i = 3 * (iteration & (SAMPLES - 1));
+            return table ? classifier.classify(rgb[i], rgb[i + 1], rgb[i + 2])
+                         : classifier.classifyExact(rgb[i], rgb[i + 1], rgb[i + 2]);
+        }
+    }
+
+    /**
+     * ColorEdgeDetector.addSample(): classification plus level and class edge detection, for a reading every mS.
+     * The readings sweep over a line and through the three game element colors every 256 mS, as a robot driving
+     * over them would see, so edges are as rare as they are on the field.  Each edge is published as a new Edge,
+     * so this allocates six of them per sweep; the readings between edges should not allocate.
+     */
+    static class DetectEdges extends Benchmark {
+        static final int SWEEP = 256;
+
+        private static final float[][] COLORS = {
+                {0.05f, 0.05f, 0.05f}, {0.8f, 0.1f, 0.1f}, {0.7f, 0.6f, 0.1f}, {0.1f, 0.2f, 0.8f}};
+
+        private ColorEdgeDetector detector;
+        private long nanos;
+
+        DetectEdges() {
+            super("Detect color edges");
+        }
+
+        @Override
+        public void setup() {
+            detector = new ColorEdgeDetector(null, gameElements());
+        }
+
+        @Override
+        public double op(int iteration) {
+            int     step  = iteration & (SWEEP - 1);
+            float[] color = COLORS[step / (SWEEP / COLORS.length)];
+            float   level = 0.1f + 0.8f * Math.abs(step - SWEEP / 2) / (SWEEP / 2);
+            nanos += 1_000_000L;
+            detector.addSample(nanos, color[0], color[1], color[2], level);
+            return detector.getLevel();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package org.firstinspires.ftc.teamcode.benchmark;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertTrue;
+
+/*
+ * Runs ColorBenchmarks on the desktop JVM, and checks that classifying a reading doesn't allocate, and that edge
+ * detection only allocates the Edges it publishes.
+ */
+public class ColorBenchmarksTest {
+
+    private static final int EDGE_BYTES = 64;     // More than an Edge takes, with its header.
+
+    private final BenchmarkRunner runner = BenchmarkRunner.forTests();
+
+    @Test
+    public void hsvClassificationDoesNotAllocate() {
+        runner.run(ColorBenchmarks.all(), "Classify color (HSV)").assertAllocationFree();
+    }
+
+    @Test
+    public void tableClassificationDoesNotAllocate() {
+        runner.run(ColorBenchmarks.all(), "Classify color (lookup table)").assertAllocationFree();
+    }
+
+    @Test
+    public void edgeDetectionOnlyAllocatesEdges() {
+        BenchmarkRunner.Result result = runner.run(ColorBenchmarks.all(), "Detect color edges");
+        assertTrue(result.toString(), result.bytesPerOp <= 6.0 * EDGE_BYTES / ColorBenchmarks.DetectEdges.SWEEP);
+    }
+}
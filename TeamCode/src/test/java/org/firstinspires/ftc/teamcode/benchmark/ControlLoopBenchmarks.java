@@ -0,0 +1,472 @@
+package org.firstinspires.ftc.teamcode.benchmark;
+
+import com.qualcomm.robotcore.hardware.DcMotorEx;
+import com.qualcomm.robotcore.hardware.Servo;
+import com.qualcomm.robotcore.util.Range;
+
+import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
+import org.firstinspires.ftc.teamcode.command.Command;
+import org.firstinspires.ftc.teamcode.command.CommandScheduler;
+import org.firstinspires.ftc.teamcode.command.Commands;
+import org.firstinspires.ftc.teamcode.command.Subsystem;
+import org.firstinspires.ftc.teamcode.hardware.ActuatorCache;
+import org.firstinspires.ftc.teamcode.hardware.HardwareSnapshot;
+import org.firstinspires.ftc.teamcode.hardware.HubIoExecutor;
+import org.firstinspires.ftc.teamcode.sim.FakeDcMotorEx;
+import org.firstinspires.ftc.teamcode.sim.FakeDigitalChannel;
+import org.firstinspires.ftc.teamcode.sim.FakeLynxModule;
+import org.firstinspires.ftc.teamcode.sim.FakeServo;
+
+import java.util.Arrays;
+
+/*
+ * Benchmarks for the per-cycle math found in the sample OpModes.
+ *
+ * Each one is a faithful copy of the sample's calculation, running against stubbed hardware
+ * (FakeDcMotorEx motors on a FakeLynxModule, and precomputed sensor values), so only the CPU cost
+ * of the control code is measured, not the USB latency of the hub.
+ *
+ * Inputs are taken from small precomputed tables, indexed by the iteration count, so that every
+ * operation does real work but no input generation is included in the timing.
+ */
+public final class ControlLoopBenchmarks {
+
+    private static final int TABLE_SIZE = 256;   // Must be a power of two.
+    private static final int TABLE_MASK = TABLE_SIZE - 1;
+
+    private ControlLoopBenchmarks() {
+    }
+
+    /**
+     * @return all of the sample control-loop benchmarks.
+     */
+    public static Benchmark[] all() {
+        return new Benchmark[] {
+                new GyroSteeringCorrection(),
+                new AprilTagOmniMoveRobot(),
+                new MecanumNormalization(),
+                new OctoSwerveModuleUpdate(),
+                new CommandSchedulerPass(),
+                new CachedActuatorWrites(),
+                new HubIoCycle(),
+        };
+    }
+
+    // Fill a table with a repeatable spread of values between min and max.
+    private static double[] table(double min, double max, int seed) {
+        double[] values = new double[TABLE_SIZE];
+        for (int i = 0; i < TABLE_SIZE; i++) {
+            double phase = ((i * 37 + seed * 101) % TABLE_SIZE) / (double) TABLE_SIZE;
+            values[i] = min + (max - min) * phase;
+        }
+        return values;
+    }
+
+    private static FakeDcMotorEx[] fakeDrive() {
+        FakeLynxModule hub = new FakeLynxModule("Control Hub");
+        return new FakeDcMotorEx[] {
+                new FakeDcMotorEx(hub, 0, "left_front_drive"),
+                new FakeDcMotorEx(hub, 1, "right_front_drive"),
+                new FakeDcMotorEx(hub, 2, "left_back_drive"),
+                new FakeDcMotorEx(hub, 3, "right_back_drive"),
+        };
+    }
+
+    /**
+     * RobotAutoDriveByGyro_Linear.getSteeringCorrection(), plus the left/right power blend from moveRobot().
+     * The IMU read is replaced by a table of headings.
+     */
+    static class GyroSteeringCorrection extends Benchmark {
+        private static final double P_DRIVE_GAIN = 0.03;
+
+        private double[] headings;
+        private double[] targets;
+        private FakeDcMotorEx left, right;
+
+        GyroSteeringCorrection() {
+            super("Gyro steering correction");
+        }
+
+        @Override
+        public void setup() {
+            headings = table(-180, 180, 1);
+            targets  = table(-180, 180, 2);
+            FakeDcMotorEx[] drive = fakeDrive();
+            left  = drive[0];
+            right = drive[1];
+        }
+
+        @Override
+        public double op(int iteration) {
+            double targetHeading = targets[iteration & TABLE_MASK];
+            double headingError  = targetHeading - headings[iteration & TABLE_MASK];
+
+            while (headingError > 180)   headingError -= 360;
+            while (headingError <= -180) headingError += 360;
+
+            double turnSpeed = Range.clip(headingError * P_DRIVE_GAIN, -1, 1);
+
+            double leftSpeed  = 0.6 - turnSpeed;
+            double rightSpeed = 0.6 + turnSpeed;
+            double max = Math.max(Math.abs(leftSpeed), Math.abs(rightSpeed));
+            if (max > 1.0) {
+                leftSpeed  /= max;
+                rightSpeed /= max;
+            }
+            left.setPower(leftSpeed);
+            right.setPower(rightSpeed);
+            return turnSpeed;
+        }
+    }
+
+    /**
+     * RobotAutoDriveToAprilTagOmni: the range/heading/yaw error to drive/strafe/turn calculation,
+     * followed by moveRobot().  The AprilTag ftcPose is replaced by tables of range, bearing and yaw.
+     */
+    static class AprilTagOmniMoveRobot extends Benchmark {
+        private static final double DESIRED_DISTANCE = 12.0;
+        private static final double SPEED_GAIN  = 0.02;
+        private static final double STRAFE_GAIN = 0.015;
+        private static final double TURN_GAIN   = 0.01;
+        private static final double MAX_AUTO_SPEED  = 0.5;
+        private static final double MAX_AUTO_STRAFE = 0.5;
+        private static final double MAX_AUTO_TURN   = 0.3;
+
+        private double[] ranges, bearings, yaws;
+        private FakeDcMotorEx[] drive;
+
+        AprilTagOmniMoveRobot() {
+            super("AprilTag omni moveRobot");
+        }
+
+        @Override
+        public void setup() {
+            ranges   = table(6, 72, 3);
+            bearings = table(-30, 30, 4);
+            yaws     = table(-45, 45, 5);
+            drive    = fakeDrive();
+        }
+
+        @Override
+        public double op(int iteration) {
+            int i = iteration & TABLE_MASK;
+            double rangeError   = ranges[i] - DESIRED_DISTANCE;
+            double headingError = bearings[i];
+            double yawError     = yaws[i];
+
+            double x   = Range.clip(rangeError * SPEED_GAIN, -MAX_AUTO_SPEED, MAX_AUTO_SPEED);
+            double yaw = Range.clip(headingError * TURN_GAIN, -MAX_AUTO_TURN, MAX_AUTO_TURN);
+            double y   = Range.clip(-yawError * STRAFE_GAIN, -MAX_AUTO_STRAFE, MAX_AUTO_STRAFE);
+
+            double leftFrontPower  = x - y - yaw;
+            double rightFrontPower = x + y + yaw;
+            double leftBackPower   = x + y - yaw;
+            double rightBackPower  = x - y + yaw;
+
+            double max = Math.max(Math.abs(leftFrontPower), Math.abs(rightFrontPower));
+            max = Math.max(max, Math.abs(leftBackPower));
+            max = Math.max(max, Math.abs(rightBackPower));
+
+            if (max > 1.0) {
+                leftFrontPower  /= max;
+                rightFrontPower /= max;
+                leftBackPower   /= max;
+                rightBackPower  /= max;
+            }
+
+            drive[0].setPower(leftFrontPower);
+            drive[1].setPower(rightFrontPower);
+            drive[2].setPower(leftBackPower);
+            drive[3].setPower(rightBackPower);
+            return leftFrontPower + rightBackPower;
+        }
+    }
+
+    /**
+     * BasicOmniOpMode_Linear: joystick axial/lateral/yaw to mecanum wheel powers, with normalization.
+     * The gamepad is replaced by tables of stick positions.
+     */
+    static class MecanumNormalization extends Benchmark {
+        private double[] axials, laterals, yaws;
+        private FakeDcMotorEx[] drive;
+
+        MecanumNormalization() {
+            super("Mecanum power normalization");
+        }
+
+        @Override
+        public void setup() {
+            axials   = table(-1, 1, 6);
+            laterals = table(-1, 1, 7);
+            yaws     = table(-1, 1, 8);
+            drive    = fakeDrive();
+        }
+
+        @Override
+        public double op(int iteration) {
+            int i = iteration & TABLE_MASK;
+            double axial   = axials[i];
+            double lateral = laterals[i];
+            double yaw     = yaws[i];
+
+            double leftFrontPower  = axial + lateral + yaw;
+            double rightFrontPower = axial - lateral - yaw;
+            double leftBackPower   = axial - lateral + yaw;
+            double rightBackPower  = axial + lateral - yaw;
+
+            double max = Math.max(Math.abs(leftFrontPower), Math.abs(rightFrontPower));
+            max = Math.max(max, Math.abs(leftBackPower));
+            max = Math.max(max, Math.abs(rightBackPower));
+
+            if (max > 1.0) {
+                leftFrontPower  /= max;
+                rightFrontPower /= max;
+                leftBackPower   /= max;
+                rightBackPower  /= max;
+            }
+
+            drive[0].setPower(leftFrontPower);
+            drive[1].setPower(rightFrontPower);
+            drive[2].setPower(leftBackPower);
+            drive[3].setPower(rightBackPower);
+            return leftFrontPower - rightBackPower;
+        }
+    }
+
+    /**
+     * SensorOctoQuadAdv: OctoSwerveModule.updateModule() for all four modules of an OctoSwerveDrive.
+     * The OctoQuad EncoderDataBlock is replaced by tables of positions and velocities in the same units.
+     */
+    static class OctoSwerveModuleUpdate extends Benchmark {
+        private static final int    VELOCITY_SAMPLE_INTERVAL_MS = 25;
+        private static final double DEGREES_PER_US = (360.0 / 1024.0);
+        private static final double VELOCITY_SAMPLES_PER_S = (1000.0 / VELOCITY_SAMPLE_INTERVAL_MS);
+
+        private final double[] angleOffsets = {0, 90, 180, 270};
+        private final double   steerDirMult = 1;
+
+        private final int[]   positions  = new int[8];
+        private final short[] velocities = new short[8];
+
+        private final double[] driveCounts        = new double[4];
+        private final double[] driveCountsPerSec  = new double[4];
+        private final double[] steerDegrees       = new double[4];
+        private final double[] steerDegreesPerSec = new double[4];
+
+        private double[] drivePositions, steerPulses, driveVelocities;
+
+        OctoSwerveModuleUpdate() {
+            super("OctoSwerve updateModule x4");
+        }
+
+        @Override
+        public void setup() {
+            drivePositions  = table(-50000, 50000, 9);
+            steerPulses     = table(1, 1024, 10);
+            driveVelocities = table(-200, 200, 11);
+        }
+
+        @Override
+        public double op(int iteration) {
+            // Stand-in for octoquad.readAllEncoderData(encoderDataBlock).
+            for (int ch = 0; ch < 4; ch++) {
+                int i = (iteration + ch * 17) & TABLE_MASK;
+                positions[ch]      = (int) drivePositions[i];
+                positions[ch + 4]  = (int) steerPulses[i];
+                velocities[ch]     = (short) driveVelocities[i];
+                velocities[ch + 4] = (short) (driveVelocities[i] / 4);
+            }
+
+            double sum = 0;
+            for (int ch = 0; ch < 4; ch++) {
+                driveCounts[ch]        = positions[ch];
+                driveCountsPerSec[ch]  = velocities[ch] * VELOCITY_SAMPLES_PER_S;
+                steerDegrees[ch]       = AngleUnit.normalizeDegrees((positions[ch + 4] * DEGREES_PER_US * steerDirMult) - angleOffsets[ch]);
+                steerDegreesPerSec[ch] = velocities[ch + 4] * DEGREES_PER_US * steerDirMult * VELOCITY_SAMPLES_PER_S;
+                sum += steerDegrees[ch] + driveCountsPerSec[ch];
+            }
+            return sum;
+        }
+    }
+
+    /**
+     * One CommandScheduler pass over a scoring-cycle shaped plan: a sequence of drive steps running alongside an arm
+     * step, then a claw step, with a default command holding the arm.  Each step sets a motor power from a table
+     * for a few passes.  The plan is rescheduled when it finishes, so scheduling and ending are measured too.
+     */
+    static class CommandSchedulerPass extends Benchmark {
+        private double[]         powers;
+        private CommandScheduler scheduler;
+        private Command          plan;
+
+        CommandSchedulerPass() {
+            super("Command scheduler pass");
+        }
+
+        // Sets the motor's power for a number of passes.
+        private class PowerStep extends Command {
+            private final FakeDcMotorEx motor;
+            private final int           passes;
+            private int                 pass;
+
+            PowerStep(FakeDcMotorEx motor, int passes, Subsystem requirement) {
+                super(requirement);
+                this.motor  = motor;
+                this.passes = passes;
+            }
+
+            @Override
+            protected void start(long nowNanos) {
+                pass = 0;
+            }
+
+            @Override
+            protected boolean update(long nowNanos) {
+                motor.setPower(powers[(int) (nowNanos + pass) & TABLE_MASK]);
+                return ++pass < passes;
+            }
+
+            @Override
+            protected void end(boolean interrupted) {
+                motor.setPower(0);
+            }
+        }
+
+        @Override
+        public void setup() {
+            powers = table(-1, 1, 12);
+            FakeDcMotorEx[] motors = fakeDrive();
+            Subsystem drive = new Subsystem("drive");
+            Subsystem arm   = new Subsystem("arm");
+            Subsystem claw  = new Subsystem("claw");
+
+            plan = Commands.sequence(
+                    Commands.parallel(
+                            Commands.sequence(new PowerStep(motors[0], 20, drive), new PowerStep(motors[0], 10, drive),
+                                              new PowerStep(motors[0], 20, drive)),
+                            new PowerStep(motors[1], 30, arm)),
+                    new PowerStep(motors[2], 5, claw),
+                    Commands.parallel(new PowerStep(motors[0], 20, drive), new PowerStep(motors[1], 30, arm)));
+            scheduler = new CommandScheduler();
+            scheduler.register(drive, arm, claw);
+            scheduler.setDefaultCommand(arm, new PowerStep(motors[1], Integer.MAX_VALUE, arm));
+        }
+
+        @Override
+        public double op(int iteration) {
+            if (!plan.isScheduled()) {
+                scheduler.schedule(plan);
+            }
+            scheduler.run(iteration);
+            return scheduler.getScheduledCount();
+        }
+    }
+
+    /**
+     * RobotHardware.driveRobot(), setArmPower() and setHandPositions() through an ActuatorCache, then flush().
+     * The sticks hold still for 16 cycles at a time, as they do between a driver's moves, so most cycles send nothing.
+     */
+    static class CachedActuatorWrites extends Benchmark {
+        private double[]      drives, turns, arms;
+        private ActuatorCache cache;
+        private DcMotorEx     leftDrive, rightDrive, arm;
+        private Servo         leftHand, rightHand;
+
+        CachedActuatorWrites() {
+            super("Cached actuator writes");
+        }
+
+        @Override
+        public void setup() {
+            drives = table(-1, 1, 13);
+            turns  = table(-1, 1, 14);
+            arms   = table(-1, 1, 15);
+            FakeLynxModule hub = new FakeLynxModule("Control Hub");
+            cache      = new ActuatorCache();
+            leftDrive  = cache.motor(new FakeDcMotorEx(hub, 0, "left_drive"));
+            rightDrive = cache.motor(new FakeDcMotorEx(hub, 1, "right_drive"));
+            arm        = cache.motor(new FakeDcMotorEx(hub, 2, "arm"));
+            leftHand   = cache.servo(new FakeServo(hub, 0, "left_hand"));
+            rightHand  = cache.servo(new FakeServo(hub, 1, "right_hand"));
+        }
+
+        @Override
+        public double op(int iteration) {
+            int i = (iteration >> 4) & TABLE_MASK;
+            double left  = drives[i] + turns[i];
+            double right = drives[i] - turns[i];
+            double max = Math.max(Math.abs(left), Math.abs(right));
+            if (max > 1.0) {
+                left  /= max;
+                right /= max;
+            }
+            leftDrive.setPower(left);
+            rightDrive.setPower(right);
+            arm.setPower(arms[i]);
+            leftHand.setPosition(0.5 + 0.25 * turns[i]);
+            rightHand.setPosition(0.5 - 0.25 * turns[i]);
+            cache.flush(iteration * 20_000_000L);
+            return left - right;
+        }
+    }
+
+    /**
+     * HubIoExecutor.update() with a worker per hub, on a Control Hub with four drive motors and an Expansion Hub with
+     * an arm motor, a limit switch and two claw servos, then the loop's writes for the next cycle.  The fake hubs
+     * take no time, so this is the cost of the handoff to the workers and back.  Only the loop thread's
+     * allocations are counted, which is what the OpMode would see.
+     */
+    static class HubIoCycle extends Benchmark {
+        private double[]      powers;
+        private HubIoExecutor io;
+        private DcMotorEx[]   drive;
+        private DcMotorEx     arm;
+        private Servo         claw;
+
+        HubIoCycle() {
+            super("Hub I/O cycle, worker per hub");
+        }
+
+        @Override
+        public void setup() {
+            powers = table(-1, 1, 16);
+            FakeLynxModule controlHub   = new FakeLynxModule("Control Hub");
+            FakeLynxModule expansionHub = new FakeLynxModule("Expansion Hub 2");
+            io    = new HubIoExecutor(Arrays.asList(controlHub, expansionHub));
+            drive = new DcMotorEx[4];
+            for (int i = 0; i < drive.length; i++) {
+                FakeDcMotorEx motor = new FakeDcMotorEx(controlHub, i, "drive " + i);
+                io.addMotor(0, motor);
+                drive[i] = io.getActuators(0).motor(motor);
+            }
+            FakeDcMotorEx armMotor = new FakeDcMotorEx(expansionHub, 0, "arm");
+            io.addMotor(1, armMotor);
+            io.addDigital(1, new FakeDigitalChannel(expansionHub, 0, "arm_limit"));
+            arm  = io.getActuators(1).motor(armMotor);
+            claw = io.getActuators(1).servo(new FakeServo(expansionHub, 0, "left_hand"));
+            io.setParallel(true);
+            io.start();
+        }
+
+        @Override
+        public void teardown() {
+            try {
+                io.stop();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public double op(int iteration) {
+            HardwareSnapshot.Frame frame = io.update();
+            double power = powers[iteration & TABLE_MASK];
+            for (DcMotorEx motor : drive) {
+                motor.setPower(power);
+            }
+            arm.setPower(-power);
+            claw.setPosition(0.5 + 0.25 * power);
+            return frame.getPosition(0) + power;
+        }
+    }
+}
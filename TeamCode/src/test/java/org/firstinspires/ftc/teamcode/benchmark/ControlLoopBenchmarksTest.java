@@ -0,0 +1,46 @@
+package org.firstinspires.ftc.teamcode.benchmark;
+
+import org.junit.Test;
+
+/*
+ * Runs ControlLoopBenchmarks on the desktop JVM, and checks that the hot paths don't allocate.
+ */
+public class ControlLoopBenchmarksTest {
+
+    private final BenchmarkRunner runner = BenchmarkRunner.forTests();
+
+    @Test
+    public void gyroSteeringCorrectionDoesNotAllocate() {
+        runner.run(ControlLoopBenchmarks.all(), "Gyro steering correction").assertAllocationFree();
+    }
+
+    @Test
+    public void aprilTagOmniMoveRobotDoesNotAllocate() {
+        runner.run(ControlLoopBenchmarks.all(), "AprilTag omni moveRobot").assertAllocationFree();
+    }
+
+    @Test
+    public void mecanumNormalizationDoesNotAllocate() {
+        runner.run(ControlLoopBenchmarks.all(), "Mecanum power normalization").assertAllocationFree();
+    }
+
+    @Test
+    public void octoSwerveModuleUpdateDoesNotAllocate() {
+        runner.run(ControlLoopBenchmarks.all(), "OctoSwerve updateModule x4").assertAllocationFree();
+    }
+
+    @Test
+    public void commandSchedulerPassDoesNotAllocate() {
+        runner.run(ControlLoopBenchmarks.all(), "Command scheduler pass").assertAllocationFree();
+    }
+
+    @Test
+    public void cachedActuatorWritesDoNotAllocate() {
+        runner.run(ControlLoopBenchmarks.all(), "Cached actuator writes").assertAllocationFree();
+    }
+
+    @Test
+    public void hubIoCycleDoesNotAllocateOnTheLoopThread() {
+        runner.run(ControlLoopBenchmarks.all(), "Hub I/O cycle, worker per hub").assertAllocationFree();
+    }
+}
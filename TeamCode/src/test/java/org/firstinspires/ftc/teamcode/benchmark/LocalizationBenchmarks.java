@@ -0,0 +1,92 @@
+package org.firstinspires.ftc.teamcode.benchmark;
+
+import org.firstinspires.ftc.teamcode.localization.FusedLocalizer;
+import org.firstinspires.ftc.teamcode.localization.MultiTagLocalizer;
+import org.firstinspires.ftc.teamcode.sim.FusedLocalizationSimulation;
+import org.firstinspires.ftc.teamcode.sim.MultiTagLocalizationSimulation;
+import org.firstinspires.ftc.teamcode.sim.SimulatedTagCamera;
+import org.firstinspires.ftc.teamcode.vision.RecordedDetections;
+
+/*
+ * Benchmarks for field localization:
+ *  - from AprilTags, on the detections recorded by MultiTagLocalizationSimulation: a robot approaching a backdrop,
+ *    seeing two or three of its tags in every frame.  Each op is one frame: the localizer's whole per-frame cost,
+ *    which should be far below a 33 mS camera frame.
+ *  - FusedLocalizer, on the sensor readings of FusedLocalizationSimulation.  Each op is one control loop's
+ *    measurements: encoders, IMU yaw rate, and the OTOS on every other loop.  This should be far below 1 mS.
+ *
+ * None of them should allocate.
+ */
+public final class LocalizationBenchmarks {
+
+    private LocalizationBenchmarks() {
+    }
+
+    /**
+     * @return all of the localization benchmarks.
+     */
+    public static Benchmark[] all() {
+        return new Benchmark[] {
+                new Solve("Multi-tag solve (corners)", true),
+                new Solve("Multi-tag solve (tag poses)", false),
+                new Fuse("EKF loop (encoders + IMU + OTOS)"),
+        };
+    }
+
+    /**
+     * MultiTagLocalizer.solve() on one recorded frame, with lens intrinsics (a joint fit to every tag's corners),
+     * or without them (the heaviest tag's ftcPose).
+     */
+    static class Solve extends Benchmark {
+        private final boolean corners;
+        private MultiTagLocalizer  localizer;
+        private RecordedDetections recording;
+
+        Solve(String name, boolean corners) {
+            super(name);
+            this.corners = corners;
+        }
+
+        @Override
+        public void setup() {
+            MultiTagLocalizationSimulation simulation = new MultiTagLocalizationSimulation(0.5, 3.0, 300);
+            SimulatedTagCamera camera = simulation.camera(42);
+            recording = simulation.record(camera);
+            localizer = MultiTagLocalizationSimulation.localizer(camera);
+            if (!corners) {
+                localizer.setLensIntrinsics(0, 0, 0, 0);
+            }
+        }
+
+        @Override
+        public double op(int iteration) {
+            localizer.solve(recording.getDetections(iteration % recording.getFrameCount()));
+            return localizer.getX();
+        }
+    }
+
+    /**
+     * One loop of FusedLocalizationSimulation's sensor readings through a FusedLocalizer.  The readings repeat after
+     * 20 seconds, which makes the pose jump once each time round; the time always moves forward.
+     */
+    static class Fuse extends Benchmark {
+        private FusedLocalizationSimulation simulation;
+        private FusedLocalizer localizer;
+
+        Fuse(String name) {
+            super(name);
+        }
+
+        @Override
+        public void setup() {
+            simulation = new FusedLocalizationSimulation(20, 42);
+            localizer  = FusedLocalizationSimulation.localizer();
+        }
+
+        @Override
+        public double op(int iteration) {
+            simulation.run(localizer, iteration % simulation.getLoops(), 10_000_000L * (iteration + 1), true);
+            return localizer.getX();
+        }
+    }
+}
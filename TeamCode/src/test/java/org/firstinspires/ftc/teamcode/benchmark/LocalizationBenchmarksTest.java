@@ -0,0 +1,22 @@
+package org.firstinspires.ftc.teamcode.benchmark;
+
+import org.junit.Test;
+
+/*
+ * Runs LocalizationBenchmarks on the desktop JVM, and checks that the localizers don't allocate.
+ */
+public class LocalizationBenchmarksTest {
+
+    private final BenchmarkRunner runner = BenchmarkRunner.forTests();
+
+    @Test
+    public void multiTagSolveDoesNotAllocate() {
+        runner.run(LocalizationBenchmarks.all(), "Multi-tag solve (corners)").assertAllocationFree();
+        runner.run(LocalizationBenchmarks.all(), "Multi-tag solve (tag poses)").assertAllocationFree();
+    }
+
+    @Test
+    public void fusedLocalizerLoopDoesNotAllocate() {
+        runner.run(LocalizationBenchmarks.all(), "EKF loop (encoders + IMU + OTOS)").assertAllocationFree();
+    }
+}
@@ -0,0 +1,148 @@
+package org.firstinspires.ftc.teamcode.benchmark;
+
+import com.qualcomm.robotcore.hardware.DcMotor;
+
+import org.firstinspires.ftc.teamcode.control.MotionProfile;
+import org.firstinspires.ftc.teamcode.control.ProfileFollower;
+import org.firstinspires.ftc.teamcode.control.ProfiledEncoderDrive;
+import org.firstinspires.ftc.teamcode.sim.FakeDcMotorEx;
+import org.firstinspires.ftc.teamcode.sim.FakeLynxModule;
+
+/*
+ * Benchmarks for motion profiles: the one-off cost of building a profile (paid during init), and the per-loop cost
+ * of following one on a simulated tank drive.
+ *
+ * Building allocates the profile's arrays, so expect allocations there; following should allocate nothing.
+ */
+public final class MotionProfileBenchmarks {
+
+    private static final double COUNTS_PER_INCH = 1440 / (4.0 * Math.PI);
+    private static final double MAX_VELOCITY    = 25;     // inches per second
+    private static final double MAX_ACCEL       = 60;     // inches per second squared
+    private static final double MAX_JERK        = 400;    // inches per second cubed
+    private static final double DT              = 0.005;
+
+    private MotionProfileBenchmarks() {
+    }
+
+    /**
+     * @return all of the motion profile benchmarks.
+     */
+    public static Benchmark[] all() {
+        return new Benchmark[] {
+                new BuildProfile("Build trapezoidal profile", Double.POSITIVE_INFINITY),
+                new BuildProfile("Build S-curve profile", MAX_JERK),
+                new SampleProfile(),
+                new UpdateFollower(),
+                new FollowProfile(),
+        };
+    }
+
+    /**
+     * MotionProfile.trapezoidal() / sCurve() for a 24 to 55 inch move, sampled every 5 mS.
+     */
+    static class BuildProfile extends Benchmark {
+        private final double jerk;
+
+        BuildProfile(String name, double jerk) {
+            super(name);
+            this.jerk = jerk;
+        }
+
+        @Override
+        public double op(int iteration) {
+            double distance = 24 + (iteration & 31);
+            return MotionProfile.sCurve(distance, MAX_VELOCITY, MAX_ACCEL, jerk, DT).getDuration();
+        }
+    }
+
+    /**
+     * getPosition(), getVelocity() and getAcceleration() on a 48 inch S-curve, stepping through it 5 mS at a time.
+     */
+    static class SampleProfile extends Benchmark {
+        private MotionProfile profile;
+        private double t;
+
+        SampleProfile() {
+            super("Sample profile");
+        }
+
+        @Override
+        public void setup() {
+            profile = MotionProfile.sCurve(48, MAX_VELOCITY, MAX_ACCEL, MAX_JERK, DT);
+            t = 0;
+        }
+
+        @Override
+        public double op(int iteration) {
+            t = (t + DT) % profile.getDuration();
+            return profile.getPosition(t) + profile.getVelocity(t) + profile.getAcceleration(t);
+        }
+    }
+
+    /**
+     * One ProfileFollower.update() against a 48 inch S-curve, with the measured position lagging the profile.
+     */
+    static class UpdateFollower extends Benchmark {
+        private MotionProfile   profile;
+        private ProfileFollower follower;
+        private double t;
+
+        UpdateFollower() {
+            super("Profile follower update");
+        }
+
+        @Override
+        public void setup() {
+            double kV = 1.0 / MAX_VELOCITY;
+            profile  = MotionProfile.sCurve(48, MAX_VELOCITY, MAX_ACCEL, MAX_JERK, DT);
+            follower = new ProfileFollower(kV, 0.1 * kV, 0, 0.15, 0.01, 0.001, 1);
+            t = 0;
+        }
+
+        @Override
+        public double op(int iteration) {
+            t = (t + DT) % profile.getDuration();
+            return follower.update(profile, t, profile.getPosition(t) - 0.5);
+        }
+    }
+
+    /**
+     * One ProfiledEncoderDrive.update(): two encoder reads, two profile lookups, two followers and two power writes.
+     * The clock steps through the move, restarting it when it finishes.
+     */
+    static class FollowProfile extends Benchmark {
+        private ProfiledEncoderDrive drive;
+        private long nanos;
+
+        FollowProfile() {
+            super("Follow profile (tank drive)");
+        }
+
+        @Override
+        public void setup() {
+            FakeLynxModule hub   = new FakeLynxModule("Control Hub");
+            FakeDcMotorEx  left  = new FakeDcMotorEx(hub, 0, "left_drive");
+            FakeDcMotorEx  right = new FakeDcMotorEx(hub, 1, "right_drive");
+            left.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
+            right.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
+
+            double kV = 1.0 / MAX_VELOCITY;
+            drive = new ProfiledEncoderDrive(left, right, COUNTS_PER_INCH,
+                    new ProfileFollower(kV, 0.1 * kV, 0, 0.15, 0, 0, 1),
+                    new ProfileFollower(kV, 0.1 * kV, 0, 0.15, 0, 0, 1), DT);
+            drive.setTolerance(0.25, 0.1);
+            drive.addMove(48, 48, MAX_VELOCITY, MAX_ACCEL, MAX_JERK);
+            drive.start(0, nanos);
+        }
+
+        @Override
+        public double op(int iteration) {
+            nanos += 5_000_000L;
+            if (!drive.update(nanos)) {
+                drive.start(0, nanos);
+            }
+            return drive.getLeftError();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package org.firstinspires.ftc.teamcode.benchmark;
+
+import org.junit.Test;
+
+/*
+ * Runs MotionProfileBenchmarks on the desktop JVM, and checks that following a profile doesn't allocate.
+ * Building a profile allocates its arrays, during init, so it is not checked.
+ */
+public class MotionProfileBenchmarksTest {
+
+    private final BenchmarkRunner runner = BenchmarkRunner.forTests();
+
+    @Test
+    public void samplingAProfileDoesNotAllocate() {
+        runner.run(MotionProfileBenchmarks.all(), "Sample profile").assertAllocationFree();
+    }
+
+    @Test
+    public void followerUpdateDoesNotAllocate() {
+        runner.run(MotionProfileBenchmarks.all(), "Profile follower update").assertAllocationFree();
+    }
+
+    @Test
+    public void followingOnATankDriveDoesNotAllocate() {
+        runner.run(MotionProfileBenchmarks.all(), "Follow profile (tank drive)").assertAllocationFree();
+    }
+}
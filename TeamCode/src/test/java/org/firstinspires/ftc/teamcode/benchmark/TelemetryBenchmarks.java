@@ -0,0 +1,195 @@
+package org.firstinspires.ftc.teamcode.benchmark;
+
+import org.firstinspires.ftc.robotcore.external.Telemetry;
+import org.firstinspires.ftc.teamcode.sim.FakeTelemetry;
+import org.firstinspires.ftc.teamcode.telemetry.FastTelemetry;
+import org.firstinspires.ftc.teamcode.telemetry.FlightRecorder;
+import org.firstinspires.ftc.teamcode.telemetry.LoopProfiler;
+
+import java.io.File;
+import java.io.IOException;
+
+/*
+ * Benchmarks comparing the per-loop cost of the sample OpModes' String.format() telemetry with FastTelemetry,
+ * and measuring the overhead of profiling a loop with LoopProfiler and recording it with FlightRecorder.
+ *
+ * Both display the same lines as ConceptAprilTag does for two detected tags, with pose values that change a
+ * little on each loop, as they do when the robot is moving.  Telemetry goes to a FakeTelemetry, so only the
+ * formatting cost is measured.  Each operation is one control loop.
+ */
+public final class TelemetryBenchmarks {
+
+    private static final int TAGS = 2;
+
+    private TelemetryBenchmarks() {
+    }
+
+    /**
+     * @return the telemetry benchmarks.
+     */
+    public static Benchmark[] all() {
+        return new Benchmark[] {
+                new StringFormatTelemetry(),
+                new FastTelemetryLines(),
+                new ProfileLoop(),
+                new RecordLoop(),
+        };
+    }
+
+    // A slowly varying pose value for tag t, field f.
+    private static double poseValue(int iteration, int tag, int field) {
+        return 10.0 * tag + field + (iteration & 1023) * 0.01;
+    }
+
+    /**
+     * The ConceptAprilTag / RobotAutoDriveByGyro_Linear pattern: new Strings built every loop.
+     */
+    static class StringFormatTelemetry extends Benchmark {
+        private Telemetry telemetry;
+
+        StringFormatTelemetry() {
+            super("Telemetry: String.format");
+        }
+
+        @Override
+        public void setup() {
+            telemetry = new FakeTelemetry().getTelemetry();
+        }
+
+        @Override
+        public double op(int iteration) {
+            telemetry.addData("# AprilTags Detected", TAGS);
+            for (int t = 0; t < TAGS; t++) {
+                telemetry.addLine(String.format("\n==== (ID %d) %s", t + 1, "Tag"));
+                telemetry.addLine(String.format("XYZ %6.1f %6.1f %6.1f  (inch)",
+                        poseValue(iteration, t, 0), poseValue(iteration, t, 1), poseValue(iteration, t, 2)));
+                telemetry.addLine(String.format("PRY %6.1f %6.1f %6.1f  (deg)",
+                        poseValue(iteration, t, 3), poseValue(iteration, t, 4), poseValue(iteration, t, 5)));
+                telemetry.addLine(String.format("RBE %6.1f %6.1f %6.1f  (inch, deg, deg)",
+                        poseValue(iteration, t, 6), poseValue(iteration, t, 7), poseValue(iteration, t, 8)));
+            }
+            telemetry.update();
+            return iteration;
+        }
+    }
+
+    /**
+     * The same display through FastTelemetry, pushing to the Driver Station at most every 100 mS.
+     */
+    static class FastTelemetryLines extends Benchmark {
+        private FastTelemetry fast;
+        private FastTelemetry.Line count;
+        private final FastTelemetry.Line[] ids = new FastTelemetry.Line[TAGS];
+        private final FastTelemetry.Line[] xyz = new FastTelemetry.Line[TAGS];
+        private final FastTelemetry.Line[] pry = new FastTelemetry.Line[TAGS];
+        private final FastTelemetry.Line[] rbe = new FastTelemetry.Line[TAGS];
+
+        FastTelemetryLines() {
+            super("Telemetry: FastTelemetry");
+        }
+
+        @Override
+        public void setup() {
+            fast  = new FastTelemetry(new FakeTelemetry().getTelemetry(), 100);
+            count = fast.addLine("# AprilTags Detected", "%d");
+            for (int t = 0; t < TAGS; t++) {
+                ids[t] = fast.addLine("\n====", "(ID %d) %s");
+                xyz[t] = fast.addLine("XYZ", "%6.1f %6.1f %6.1f  (inch)");
+                pry[t] = fast.addLine("PRY", "%6.1f %6.1f %6.1f  (deg)");
+                rbe[t] = fast.addLine("RBE", "%6.1f %6.1f %6.1f  (inch, deg, deg)");
+            }
+        }
+
+        @Override
+        public double op(int iteration) {
+            count.set(0, TAGS);
+            for (int t = 0; t < TAGS; t++) {
+                ids[t].set(0, t + 1).setText(1, "Tag");
+                xyz[t].set(0, poseValue(iteration, t, 0)).set(1, poseValue(iteration, t, 1)).set(2, poseValue(iteration, t, 2));
+                pry[t].set(0, poseValue(iteration, t, 3)).set(1, poseValue(iteration, t, 4)).set(2, poseValue(iteration, t, 5));
+                rbe[t].set(0, poseValue(iteration, t, 6)).set(1, poseValue(iteration, t, 7)).set(2, poseValue(iteration, t, 8));
+            }
+            fast.update();
+            return iteration;
+        }
+    }
+
+    /**
+     * LoopProfiler.loop() and four mark() calls: the profiling overhead added to each loop.  Should not allocate.
+     */
+    static class ProfileLoop extends Benchmark {
+        private LoopProfiler profiler;
+
+        ProfileLoop() {
+            super("Profile loop (4 sections)");
+        }
+
+        @Override
+        public void setup() {
+            profiler = new LoopProfiler(20);
+            for (int i = 0; i < 4; i++) {
+                profiler.addSection("section " + i);
+            }
+        }
+
+        @Override
+        public double op(int iteration) {
+            profiler.loop();
+            for (int section = 1; section <= 4; section++) {
+                profiler.mark(section);
+            }
+            return iteration;
+        }
+    }
+
+    /**
+     * Setting 24 FlightRecorder columns (as ConceptFlightRecorder does) and committing the record to a memory-mapped
+     * file in the temporary directory.  Should not allocate.
+     */
+    static class RecordLoop extends Benchmark {
+        private static final int COLUMNS = 24;
+        private FlightRecorder recorder;
+
+        RecordLoop() {
+            super("Flight recorder (24 columns)");
+        }
+
+        @Override
+        public void setup() {
+            FlightRecorder.Schema schema = new FlightRecorder.Schema();
+            for (int c = 0; c < COLUMNS; c++) {
+                if (c % 2 == 0) {
+                    schema.addInt("int " + c);
+                } else {
+                    schema.addFloat("float " + c);
+                }
+            }
+            try {
+                File file = File.createTempFile("flight_benchmark", ".bin");
+                file.deleteOnExit();
+                recorder = new FlightRecorder(file, schema, 4096);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public void teardown() {
+            try {
+                recorder.close();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public double op(int iteration) {
+            for (int c = 0; c < COLUMNS; c += 2) {
+                recorder.set(c, iteration + c);
+                recorder.set(c + 1, poseValue(iteration, 0, c));
+            }
+            recorder.commit();
+            return recorder.getRecordCount();
+        }
+    }
+}
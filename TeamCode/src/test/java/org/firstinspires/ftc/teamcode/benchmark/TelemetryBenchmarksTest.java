@@ -0,0 +1,46 @@
+package org.firstinspires.ftc.teamcode.benchmark;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/*
+ * Runs TelemetryBenchmarks on the desktop JVM.  LoopProfiler and FlightRecorder must not allocate in the loop.
+ * FastTelemetry only allocates when it pushes (every 100 mS, the changing lines are rendered into new Strings),
+ * so per loop it must allocate a small fraction of what the String.format() telemetry it replaces does.
+ */
+public class TelemetryBenchmarksTest {
+
+    private final BenchmarkRunner runner = BenchmarkRunner.forTests();
+
+    @Test
+    public void stringFormatTelemetryAllocates() {
+        BenchmarkRunner.Result result = runner.run(TelemetryBenchmarks.all(), "Telemetry: String.format");
+        assertFalse(result.toString(), result.isAllocationFree());
+    }
+
+    @Test
+    public void fastTelemetryAllocatesOnlyWhenItPushes() {
+        BenchmarkRunner.Result format = runner.run(TelemetryBenchmarks.all(), "Telemetry: String.format");
+        BenchmarkRunner.Result fast   = runner.run(TelemetryBenchmarks.all(), "Telemetry: FastTelemetry");
+        assertTrue(fast + " vs " + format, fast.bytesPerOp < format.bytesPerOp / 100);
+    }
+
+    @Test
+    public void fastTelemetryIsFasterThanStringFormat() {
+        BenchmarkRunner.Result format = runner.run(TelemetryBenchmarks.all(), "Telemetry: String.format");
+        BenchmarkRunner.Result fast   = runner.run(TelemetryBenchmarks.all(), "Telemetry: FastTelemetry");
+        assertTrue(fast + " vs " + format, fast.nanosPerOp < format.nanosPerOp);
+    }
+
+    @Test
+    public void profilingALoopDoesNotAllocate() {
+        runner.run(TelemetryBenchmarks.all(), "Profile loop (4 sections)").assertAllocationFree();
+    }
+
+    @Test
+    public void flightRecorderCommitDoesNotAllocate() {
+        runner.run(TelemetryBenchmarks.all(), "Flight recorder (24 columns)").assertAllocationFree();
+    }
+}
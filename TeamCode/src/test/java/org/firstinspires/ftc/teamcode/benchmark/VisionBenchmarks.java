@@ -0,0 +1,136 @@
+package org.firstinspires.ftc.teamcode.benchmark;
+
+import org.firstinspires.ftc.teamcode.sim.FakeDetectionModel;
+import org.firstinspires.ftc.teamcode.vision.BlobFinder;
+import org.firstinspires.ftc.teamcode.vision.TfliteProcessor;
+
+/*
+ * Benchmarks for the Java side of the vision processors:
+ *  - ColorBlobProcessor: BlobFinder measuring the blobs in a thresholded mask.
+ *  - TfliteProcessor:    preprocessing a model-sized image into the model's input, and postprocessing the model's
+ *                        detections into published recognitions.  The model is a FakeDetectionModel, so the network
+ *                        itself isn't timed; UtilityTfliteBenchmark times that on the robot, on captured frames.
+ *
+ * The masks are synthetic, at the sizes a 640x480 frame is processed at with a downscale of 4 and 2.  Each holds
+ * four game pieces (3.5 x 1.5 bars, at different angles) and a sprinkling of single-pixel noise, as a mask looks
+ * before morphology cleans it up.  The pieces move between the masks, so the work doesn't depend on any one input.
+ *
+ * The TFLite images are synthetic 320x320 RGB pixels, the size of the SDK's CenterStage model's input, for a model
+ * with float input (normalized on the way in) and one with 8-bit input (copied as it is).
+ *
+ * Each op is one frame's blob measurement, or one frame through TfliteProcessor.  They should allocate nothing.
+ */
+public final class VisionBenchmarks {
+
+    private static final int MASKS = 8;
+
+    private VisionBenchmarks() {
+    }
+
+    /**
+     * @return all of the vision benchmarks.
+     */
+    public static Benchmark[] all() {
+        return new Benchmark[] {
+                new FindBlobs("Find blobs (160x120 mask)", 160, 120),
+                new FindBlobs("Find blobs (320x240 mask)", 320, 240),
+                new TfliteStages("TFLite pre/postprocess (320x320 float)", false),
+                new TfliteStages("TFLite pre/postprocess (320x320 uint8)", true),
+        };
+    }
+
+    /**
+     * @return MASKS masks of game pieces and noise.
+     */
+    static byte[][] masks(int width, int height) {
+        byte[][] masks = new byte[MASKS][width * height];
+        double length = width / 8.0, thickness = length * 1.5 / 3.5;
+        long seed = 12345;
+        for (int m = 0; m < MASKS; m++) {
+            byte[] mask = masks[m];
+            for (int piece = 0; piece < 4; piece++) {
+                double cx    = width * (0.2 + 0.2 * piece) + m * width / 80.0;
+                double cy    = height * (0.3 + 0.12 * piece) + m * height / 60.0;
+                double angle = Math.toRadians(25 * piece + 10 * m);
+                double cos = Math.cos(angle), sin = Math.sin(angle);
+                for (int y = 0; y < height; y++) {
+                    for (int x = 0; x < width; x++) {
+                        double u = (x - cx) * cos + (y - cy) * sin, v = -(x - cx) * sin + (y - cy) * cos;
+                        if (Math.abs(u) < length / 2 && Math.abs(v) < thickness / 2) {
+                            mask[y * width + x] = (byte) 255;
+                        }
+                    }
+                }
+            }
+            for (int speck = 0; speck < width * height / 200; speck++) {
+                seed = seed * 6364136223846793005L + 1442695040888963407L;
+                mask[(int) ((seed >>> 33) % (width * height))] = (byte) 255;
+            }
+        }
+        return masks;
+    }
+
+    /**
+     * BlobFinder.find() on one mask, keeping blobs of 4 pixels or more, so that the noise is dropped.
+     */
+    static class FindBlobs extends Benchmark {
+        private final int width, height;
+        private BlobFinder finder;
+        private byte[][]   masks;
+
+        FindBlobs(String name, int width, int height) {
+            super(name);
+            this.width  = width;
+            this.height = height;
+        }
+
+        @Override
+        public void setup() {
+            masks  = masks(width, height);
+            finder = new BlobFinder(width, height);
+            finder.setMinArea(4);
+        }
+
+        @Override
+        public double op(int iteration) {
+            return finder.find(masks[iteration % MASKS], width, height);
+        }
+    }
+
+    /**
+     * TfliteProcessor.process() on one model-sized image, reading the recognitions back as a caller would.
+     */
+    static class TfliteStages extends Benchmark {
+        private static final int SIZE = 320, IMAGES = 4;
+
+        private final boolean quantized;
+        private TfliteProcessor              processor;
+        private TfliteProcessor.Recognitions recognitions;
+        private byte[][] images;
+
+        TfliteStages(String name, boolean quantized) {
+            super(name);
+            this.quantized = quantized;
+        }
+
+        @Override
+        public void setup() {
+            processor    = new TfliteProcessor(new FakeDetectionModel(SIZE, SIZE, quantized, 10),
+                                               new String[] {"Pixel", "Sample"});
+            recognitions = processor.newRecognitions();
+            images       = new byte[IMAGES][SIZE * SIZE * 3];
+            for (int i = 0; i < IMAGES; i++) {
+                for (int p = 0; p < images[i].length; p++) {
+                    images[i][p] = (byte) (p * 7 + i * 31 + (p >> 9));
+                }
+            }
+        }
+
+        @Override
+        public double op(int iteration) {
+            processor.process(images[iteration % IMAGES], 640, 480, iteration);
+            processor.read(recognitions);
+            return recognitions.getCount() > 0 ? recognitions.getCenterX(0) : 0;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package org.firstinspires.ftc.teamcode.benchmark;
+
+import org.junit.Test;
+
+/*
+ * Runs VisionBenchmarks on the desktop JVM, and checks that the per-frame stages don't allocate.
+ */
+public class VisionBenchmarksTest {
+
+    private final BenchmarkRunner runner = BenchmarkRunner.forTests();
+
+    @Test
+    public void findingBlobsDoesNotAllocate() {
+        runner.run(VisionBenchmarks.all(), "Find blobs (160x120 mask)").assertAllocationFree();
+        runner.run(VisionBenchmarks.all(), "Find blobs (320x240 mask)").assertAllocationFree();
+    }
+
+    @Test
+    public void tflitePreAndPostprocessingDoesNotAllocate() {
+        runner.run(VisionBenchmarks.all(), "TFLite pre/postprocess (320x320 float)").assertAllocationFree();
+        runner.run(VisionBenchmarks.all(), "TFLite pre/postprocess (320x320 uint8)").assertAllocationFree();
+    }
+}
@@ -0,0 +1,262 @@
+package org.firstinspires.ftc.teamcode.command;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/*
+ * Runs CommandScheduler passes with commands that log their start(), update() and end() calls, and checks the order
+ * of the calls and which command owns each subsystem.
+ */
+public class CommandSchedulerTest {
+
+    private static final long LOOP_NANOS = 20_000_000L;
+
+    private final List<String> log = new ArrayList<>();
+
+    private CommandScheduler scheduler;
+    private Subsystem        drive;
+    private Subsystem        arm;
+    private long             nanos;
+
+    // A command that runs for a number of passes (forever if negative), logging each call.
+    private class Logged extends Command {
+        private final int passes;
+        private int       left;
+        Runnable          onEnd = null;
+
+        Logged(String name, int passes, Subsystem... requirements) {
+            super(requirements);
+            this.passes = passes;
+            withName(name);
+        }
+
+        @Override
+        protected void start(long nowNanos) {
+            left = passes;
+            log.add(getName() + " start");
+        }
+
+        @Override
+        protected boolean update(long nowNanos) {
+            log.add(getName() + " update");
+            return left < 0 || --left > 0;
+        }
+
+        @Override
+        protected void end(boolean interrupted) {
+            log.add(getName() + (interrupted ? " interrupted" : " end"));
+            if (onEnd != null) {
+                onEnd.run();
+            }
+        }
+    }
+
+    @Before
+    public void setUp() {
+        scheduler = new CommandScheduler(4);
+        drive     = new Subsystem("drive");
+        arm       = new Subsystem("arm");
+        scheduler.register(drive, arm);
+    }
+
+    private void pass() {
+        nanos += LOOP_NANOS;
+        scheduler.run(nanos);
+    }
+
+    private void assertLog(String... expected) {
+        assertEquals(Arrays.asList(expected), log);
+        log.clear();
+    }
+
+    @Test
+    public void commandStartsUpdatesAndEnds() {
+        Logged move = new Logged("move", 2, drive);
+        scheduler.schedule(move);
+        assertTrue(move.isScheduled());
+        assertSame(move, drive.getCurrentCommand());
+        pass();
+        pass();
+        assertLog("move start", "move update", "move update", "move end");
+        assertFalse(move.isScheduled());
+        assertNull(drive.getCurrentCommand());
+        assertEquals(0, scheduler.getScheduledCount());
+    }
+
+    @Test
+    public void commandsOnDifferentSubsystemsRunSideBySide() {
+        Logged move = new Logged("move", -1, drive);
+        Logged lift = new Logged("lift", -1, arm);
+        scheduler.schedule(move);
+        scheduler.schedule(lift);
+        pass();
+        assertLog("move start", "move update", "lift start", "lift update");
+        assertEquals(2, scheduler.getScheduledCount());
+    }
+
+    @Test
+    public void requirementConflictInterruptsTheOwnerBeforeTheNewCommandStarts() {
+        Logged move = new Logged("move", -1, drive);
+        Logged lift = new Logged("lift", -1, arm);
+        Logged both = new Logged("both", -1, drive, arm);
+        scheduler.schedule(move);
+        scheduler.schedule(lift);
+        pass();
+        log.clear();
+
+        scheduler.schedule(both);
+        assertLog("move interrupted", "lift interrupted");      // Now, not in the next pass.
+        assertSame(both, drive.getCurrentCommand());
+        assertSame(both, arm.getCurrentCommand());
+        pass();
+        assertLog("both start", "both update");
+        assertEquals(1, scheduler.getScheduledCount());
+    }
+
+    @Test
+    public void interruptingACommandThatHasNotStartedDoesNotEndIt() {
+        Logged move  = new Logged("move", -1, drive);
+        Logged other = new Logged("other", -1, drive);
+        scheduler.schedule(move);
+        scheduler.schedule(other);
+        assertFalse(move.isScheduled());
+        pass();
+        assertLog("other start", "other update");
+    }
+
+    @Test
+    public void commandScheduledFromUpdateRunsInTheSamePass() {
+        final Logged lift = new Logged("lift", 1, arm);
+        Command trigger = Commands.instant(new Runnable() {
+            @Override
+            public void run() {
+                scheduler.schedule(lift);
+            }
+        });
+        scheduler.schedule(trigger);
+        pass();
+        assertLog("lift start", "lift update", "lift end");
+    }
+
+    @Test
+    public void raceEndsTheOtherCommandsWhenTheFirstFinishes() {
+        Logged    move    = new Logged("move", -1, drive);
+        Logged    lift    = new Logged("lift", 2, arm);
+        RaceGroup race    = Commands.race(move, lift);
+        scheduler.schedule(race);
+        assertSame(race, drive.getCurrentCommand());
+        pass();
+        pass();
+        assertLog("move start", "lift start",
+                  "move update", "lift update",
+                  "move update", "lift update", "lift end", "move interrupted");
+        assertSame(lift, race.getWinner());
+        assertFalse(race.isScheduled());
+        assertNull(drive.getCurrentCommand());
+        assertNull(arm.getCurrentCommand());
+    }
+
+    @Test
+    public void cancellingARaceInterruptsEveryCommandInIt() {
+        Logged    move = new Logged("move", -1, drive);
+        Logged    lift = new Logged("lift", -1, arm);
+        RaceGroup race = Commands.race(move, lift);
+        scheduler.schedule(race);
+        pass();
+        log.clear();
+        scheduler.cancel(race);
+        assertLog("move interrupted", "lift interrupted");
+        assertNull(race.getWinner());
+    }
+
+    @Test
+    public void defaultCommandIsRescheduledWhenTheSubsystemIsFree() {
+        Logged hold = new Logged("hold", -1, arm);
+        Logged lift = new Logged("lift", 1, arm);
+        scheduler.setDefaultCommand(arm, hold);
+        pass();
+        assertLog("hold start", "hold update");
+        assertSame(hold, arm.getCurrentCommand());
+
+        scheduler.schedule(lift);
+        assertLog("hold interrupted");
+        pass();
+        assertLog("lift start", "lift update", "lift end");
+        assertNull(arm.getCurrentCommand());
+        pass();
+        assertLog("hold start", "hold update");
+        assertSame(hold, arm.getCurrentCommand());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void defaultCommandMustRequireItsSubsystem() {
+        scheduler.setDefaultCommand(arm, new Logged("hold", -1, drive));
+    }
+
+    @Test
+    public void cancelAllInterruptsEverythingAndDefaultsComeBack() {
+        Logged hold = new Logged("hold", -1, arm);
+        Logged move = new Logged("move", -1, drive);
+        scheduler.setDefaultCommand(arm, hold);
+        scheduler.schedule(move);
+        pass();
+        log.clear();
+
+        scheduler.cancelAll();
+        assertLog("move interrupted", "hold interrupted");     // In the order they were scheduled.
+        assertEquals(0, scheduler.getScheduledCount());
+        assertNull(arm.getCurrentCommand());
+        assertNull(drive.getCurrentCommand());
+        pass();
+        assertLog("hold start", "hold update");
+    }
+
+    @Test
+    public void commandScheduledFromEndDuringCancelAllIsKept() {
+        final Logged park = new Logged("park", 1, drive);
+        Logged move = new Logged("move", -1, drive);
+        Logged lift = new Logged("lift", -1, arm);
+        move.onEnd = new Runnable() {
+            @Override
+            public void run() {
+                scheduler.schedule(park);
+            }
+        };
+        scheduler.schedule(move);
+        scheduler.schedule(lift);
+        pass();
+        log.clear();
+
+        scheduler.cancelAll();
+        assertLog("move interrupted", "lift interrupted");      // lift is not ended twice, nor park at all.
+        assertTrue(park.isScheduled());
+        assertSame(park, drive.getCurrentCommand());
+        assertEquals(1, scheduler.getScheduledCount());
+        pass();
+        assertLog("park start", "park update", "park end");
+    }
+
+    @Test
+    public void fullSchedulerRejectsAnotherCommand() {
+        for (int i = 0; i < 4; i++) {
+            scheduler.schedule(new Logged("wait " + i, -1));
+        }
+        try {
+            scheduler.schedule(new Logged("one too many", -1));
+            fail("expected IllegalStateException");
+        } catch (IllegalStateException expected) {
+            assertEquals(4, scheduler.getScheduledCount());
+        }
+    }
+}
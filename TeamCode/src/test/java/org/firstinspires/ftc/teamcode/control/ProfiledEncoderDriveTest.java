@@ -0,0 +1,75 @@
+package org.firstinspires.ftc.teamcode.control;
+
+import org.firstinspires.ftc.teamcode.sim.EncoderDriveSimulation;
+import org.firstinspires.ftc.teamcode.sim.FakeDcMotorEx;
+import org.firstinspires.ftc.teamcode.sim.FakeLynxModule;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/*
+ * Drives ProfiledEncoderDrive moves on a simulated TETRIX drivetrain, with ConceptProfiledEncoderDrive's settings.
+ */
+public class ProfiledEncoderDriveTest {
+
+    static final double COUNTS_PER_INCH      = 1440 / (4.0 * Math.PI);
+    static final double MAX_TICKS_PER_SECOND = 3650;
+    static final double MAX_VELOCITY         = 0.85 * MAX_TICKS_PER_SECOND / COUNTS_PER_INCH;
+    static final double MAX_ACCEL            = 60;
+    static final double MAX_JERK             = 400;
+    static final double LOOP_SECONDS         = 0.005;
+
+    static final double   K_V    = COUNTS_PER_INCH / MAX_TICKS_PER_SECOND;
+    static final double[] GAINS  = {K_V, 0.1 * K_V, 0, 0.15, 0, 0};
+    static final double[] LIMITS = {MAX_VELOCITY, MAX_ACCEL, MAX_JERK};
+
+    private final EncoderDriveSimulation simulation =
+            new EncoderDriveSimulation(COUNTS_PER_INCH, MAX_TICKS_PER_SECOND, 0.1, LOOP_SECONDS);
+
+    @Test
+    public void straightMoveEndsOnTarget() {
+        assertOnTarget(new double[][] {{48, 48}});
+    }
+
+    @Test
+    public void turnEndsOnTarget() {
+        assertOnTarget(new double[][] {{12, -12}});
+    }
+
+    @Test
+    public void pivotOnTheLeftWheelEndsOnTarget() {
+        assertOnTarget(new double[][] {{0, 18}});
+    }
+
+    @Test
+    public void pivotOnTheRightWheelEndsOnTarget() {
+        assertOnTarget(new double[][] {{-18, 0}});
+    }
+
+    @Test
+    public void moveLastsAsLongAsItsLongerSide() {
+        FakeLynxModule hub = new FakeLynxModule("Hub");
+        ProfiledEncoderDrive drive = new ProfiledEncoderDrive(new FakeDcMotorEx(hub, 0, "left"),
+                new FakeDcMotorEx(hub, 1, "right"), COUNTS_PER_INCH,
+                new ProfileFollower(K_V, 0, 0, 0, 0, 0, 1), new ProfileFollower(K_V, 0, 0, 0, 0, 0, 1), LOOP_SECONDS);
+        double straight = drive.getDuration(drive.addMove(18, 18, MAX_VELOCITY, MAX_ACCEL, MAX_JERK));
+        double leftOnly = drive.getDuration(drive.addMove(18, 0, MAX_VELOCITY, MAX_ACCEL, MAX_JERK));
+        double rightOnly = drive.getDuration(drive.addMove(0, 18, MAX_VELOCITY, MAX_ACCEL, MAX_JERK));
+        double arc = drive.getDuration(drive.addMove(6, 18, MAX_VELOCITY, MAX_ACCEL, MAX_JERK));
+
+        assertTrue(straight > 0.5);
+        assertEquals(straight, leftOnly, 1e-9);
+        assertEquals(straight, rightOnly, 1e-9);
+        assertEquals(straight, arc, 1e-9);
+    }
+
+    private void assertOnTarget(double[][] path) {
+        double[][] limits = new double[path.length][];
+        for (int m = 0; m < path.length; m++) {
+            limits[m] = LIMITS;
+        }
+        EncoderDriveSimulation.Result result = simulation.profiled(path, limits, GAINS, 0.25);
+        assertTrue("worst error " + result.getWorstErrorInches(), result.getWorstErrorInches() < 0.5);
+    }
+}
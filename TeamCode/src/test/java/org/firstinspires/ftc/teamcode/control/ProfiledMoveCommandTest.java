@@ -0,0 +1,84 @@
+package org.firstinspires.ftc.teamcode.control;
+
+import com.qualcomm.robotcore.hardware.DcMotor;
+
+import org.firstinspires.ftc.teamcode.command.CommandScheduler;
+import org.firstinspires.ftc.teamcode.command.Subsystem;
+import org.firstinspires.ftc.teamcode.sim.SimulatedRobot;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/*
+ * Runs ProfiledMoveCommands on a CommandScheduler and a simulated tank drive, with ProfiledEncoderDriveTest's
+ * settings, and checks that each runs for its planned move, pivots included, and ends on target.
+ */
+public class ProfiledMoveCommandTest {
+
+    static final double TRACK_WIDTH = 15.0;
+
+    @Test
+    public void straightMoveRunsForItsPlan() {
+        assertRunsForItsPlan(24, 24);
+    }
+
+    @Test
+    public void pivotOnTheLeftWheelRunsForTheRightSide() {
+        assertRunsForItsPlan(0, 18);
+    }
+
+    @Test
+    public void pivotOnTheRightWheelRunsForTheLeftSide() {
+        assertRunsForItsPlan(-18, 0);
+    }
+
+    @Test
+    public void emptyMoveFinishesAtOnce() {
+        assertRunsForItsPlan(0, 0);
+    }
+
+    private static void assertRunsForItsPlan(double leftInches, double rightInches) {
+        SimulatedRobot robot = SimulatedRobot.tank(ProfiledEncoderDriveTest.COUNTS_PER_INCH,
+                ProfiledEncoderDriveTest.MAX_TICKS_PER_SECOND, TRACK_WIDTH);
+        DcMotor left  = robot.getHardwareMap().get(DcMotor.class, "left_drive");
+        DcMotor right = robot.getHardwareMap().get(DcMotor.class, "right_drive");
+        left.setDirection(DcMotor.Direction.REVERSE);
+        left.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
+        right.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
+
+        double[] gains = ProfiledEncoderDriveTest.GAINS;
+        ProfiledEncoderDrive drive = new ProfiledEncoderDrive(left, right, ProfiledEncoderDriveTest.COUNTS_PER_INCH,
+                new ProfileFollower(gains[0], gains[1], gains[2], gains[3], gains[4], gains[5], 1.0),
+                new ProfileFollower(gains[0], gains[1], gains[2], gains[3], gains[4], gains[5], 1.0),
+                ProfiledEncoderDriveTest.LOOP_SECONDS);
+        int move = drive.addMove(leftInches, rightInches, ProfiledEncoderDriveTest.MAX_VELOCITY,
+                ProfiledEncoderDriveTest.MAX_ACCEL, ProfiledEncoderDriveTest.MAX_JERK);
+        double planned = drive.getDuration(move);
+
+        Subsystem          driveBase = new Subsystem("drive");
+        ProfiledMoveCommand command  = new ProfiledMoveCommand(drive, move, driveBase);
+        CommandScheduler   scheduler = new CommandScheduler();
+        scheduler.register(driveBase);
+        scheduler.schedule(command);
+
+        long   startNanos = robot.getNanos();
+        double ran        = 0;
+        for (int loop = 0; loop < 2000 && command.isScheduled(); loop++) {
+            scheduler.run(robot.getNanos());
+            ran = (robot.getNanos() - startNanos) / 1e9;
+            robot.step(ProfiledEncoderDriveTest.LOOP_SECONDS);
+        }
+
+        String label = String.format("move %.0f, %.0f: planned %.2f S, ran %.2f S", leftInches, rightInches,
+                                     planned, ran);
+        assertFalse(label, command.isScheduled());
+        assertFalse(label, drive.isBusy());
+        assertTrue(label, ran >= planned);
+        assertTrue(label, ran < planned + 0.5);
+        double counts = ProfiledEncoderDriveTest.COUNTS_PER_INCH;
+        assertEquals(label, leftInches, left.getCurrentPosition() / counts, 0.5);
+        assertEquals(label, rightInches, right.getCurrentPosition() / counts, 0.5);
+    }
+}
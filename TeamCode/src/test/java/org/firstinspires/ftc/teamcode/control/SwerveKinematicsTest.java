@@ -0,0 +1,107 @@
+package org.firstinspires.ftc.teamcode.control;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/*
+ * Checks SwerveKinematics against hand-worked module speeds and angles for a 12 inch square drive, with modules
+ * ordered left front, right front, left back, right back.
+ */
+public class SwerveKinematicsTest {
+
+    private static final double EPSILON = 1e-9;
+    private static final double ROOT2   = Math.sqrt(2);
+
+    private final SwerveKinematics kinematics = SwerveKinematics.rectangle(12, 12);
+    private final double[]         speeds     = new double[4];
+    private final double[]         angles     = new double[4];
+
+    private void inverse(double vx, double vy, double omega, double maxSpeed, double... current) {
+        kinematics.inverse(vx, vy, omega, current, maxSpeed, speeds, angles);
+    }
+
+    private void assertModules(double[] expectedSpeeds, double[] expectedAngles) {
+        for (int i = 0; i < 4; i++) {
+            assertEquals("speed " + i, expectedSpeeds[i], speeds[i], EPSILON);
+            assertEquals("angle " + i, expectedAngles[i], angles[i], EPSILON);
+        }
+    }
+
+    @Test
+    public void translationPointsEveryModuleTheSameWay() {
+        inverse(10, 0, 0, 100, 0, 0, 0, 0);
+        assertModules(new double[] {10, 10, 10, 10}, new double[] {0, 0, 0, 0});
+
+        double q = Math.PI / 2;
+        inverse(0, 10, 0, 100, q, q, q, q);
+        assertModules(new double[] {10, 10, 10, 10}, new double[] {q, q, q, q});
+    }
+
+    @Test
+    public void rotationPointsModulesAroundTheCenter() {
+        // Each module is 6 * sqrt(2) from the center, and moves at right angles to the line to it.
+        double lf = 3 * Math.PI / 4, rf = Math.PI / 4, lb = -3 * Math.PI / 4, rb = -Math.PI / 4;
+        inverse(0, 0, 1, 100, lf, rf, lb, rb);
+        double s = 6 * ROOT2;
+        assertModules(new double[] {s, s, s, s}, new double[] {lf, rf, lb, rb});
+    }
+
+    @Test
+    public void fastestModuleIsScaledToTheMaximumAndTheRestInProportion() {
+        inverse(30, 0, 2, 20, 0, 0, 0, 0);
+        // Module velocities are (30 - 2y, 2x): right side (42, +-12), left side (18, +-12).
+        double right = Math.hypot(42, 12), left = Math.hypot(18, 12), scale = 20 / right;
+        assertEquals(left * scale,  speeds[0], EPSILON);
+        assertEquals(20,            speeds[1], EPSILON);
+        assertEquals(left * scale,  speeds[2], EPSILON);
+        assertEquals(20,            speeds[3], EPSILON);
+        assertEquals(Math.atan2(12, 18),  angles[0], EPSILON);
+        assertEquals(Math.atan2(12, 42),  angles[1], EPSILON);
+        assertEquals(Math.atan2(-12, 18), angles[2], EPSILON);
+        assertEquals(Math.atan2(-12, 42), angles[3], EPSILON);
+    }
+
+    @Test
+    public void speedsWithinTheMaximumAreNotScaled() {
+        inverse(10, 0, 0, 10, 0, 0, 0, 0);
+        assertModules(new double[] {10, 10, 10, 10}, new double[] {0, 0, 0, 0});
+    }
+
+    @Test
+    public void moduleReversesRatherThanTurnMoreThan90Degrees() {
+        // Backwards: keep pointing forward and drive in reverse.
+        inverse(-10, 0, 0, 100, 0, 0, 0, 0);
+        assertModules(new double[] {-10, -10, -10, -10}, new double[] {0, 0, 0, 0});
+
+        // Forward, from nearly backwards: turn 0.1 radian to point straight back, and reverse.
+        double a = Math.PI - 0.1;
+        inverse(10, 0, 0, 100, a, a, a, a);
+        double p = Math.PI;
+        assertModules(new double[] {-10, -10, -10, -10}, new double[] {p, p, p, p});
+    }
+
+    @Test
+    public void unwrappedCurrentAngleGivesAnUnwrappedTarget() {
+        double a = 4 * Math.PI + 0.1, b = -6 * Math.PI + 3;
+        inverse(10, 0, 0, 100, a, a, b, b);
+        double w = 4 * Math.PI, r = -6 * Math.PI + Math.PI;
+        assertModules(new double[] {10, 10, -10, -10}, new double[] {w, w, r, r});
+    }
+
+    @Test
+    public void stoppedModuleKeepsItsAngle() {
+        inverse(0, 0, 0, 100, 0.3, -1, 2, 7);
+        assertModules(new double[] {0, 0, 0, 0}, new double[] {0.3, -1, 2, 7});
+    }
+
+    @Test
+    public void forwardRecoversTheRobotVelocity() {
+        double[] robot = new double[3];
+        inverse(12, -5, 0.7, 1000, 0, 0, 0, 0);
+        kinematics.forward(speeds, angles, robot);
+        assertEquals(12,  robot[0], EPSILON);
+        assertEquals(-5,  robot[1], EPSILON);
+        assertEquals(0.7, robot[2], EPSILON);
+    }
+}
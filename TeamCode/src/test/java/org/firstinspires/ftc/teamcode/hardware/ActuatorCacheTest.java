@@ -0,0 +1,173 @@
+package org.firstinspires.ftc.teamcode.hardware;
+
+import com.qualcomm.robotcore.hardware.DcMotorEx;
+import com.qualcomm.robotcore.hardware.Servo;
+import com.qualcomm.robotcore.util.Range;
+
+import org.firstinspires.ftc.teamcode.sim.FakeDcMotorEx;
+import org.firstinspires.ftc.teamcode.sim.FakeLynxModule;
+import org.firstinspires.ftc.teamcode.sim.FakeServo;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/*
+ * Counts the hub writes an ActuatorCache sends, on a FakeLynxModule, and the writes ConceptActuatorCache's loop
+ * sends with and without it.
+ */
+public class ActuatorCacheTest {
+
+    static final long LOOP_NANOS = 20_000_000L;
+
+    private FakeLynxModule hub;
+    private ActuatorCache  cache;
+    private DcMotorEx      motor;
+    private Servo          servo;
+
+    @Before
+    public void setUp() {
+        hub   = new FakeLynxModule("Control Hub");
+        cache = new ActuatorCache();
+        motor = cache.motor(new FakeDcMotorEx(hub, 0, "arm"));
+        servo = cache.servo(new FakeServo(hub, 0, "left_hand"));
+    }
+
+    @Test
+    public void setsInOneLoopCoalesceIntoOneWrite() {
+        motor.setPower(0.2);
+        motor.setPower(0.4);
+        servo.setPosition(0.3);
+        servo.setPosition(0.6);
+        cache.flush(0);
+        assertEquals(2, hub.getWriteTransactions());
+        assertEquals(0.4, ((CachedMotor) motor).getMotor().getPower(), 0);
+        assertEquals(2, cache.getCommandsSuppressed());
+    }
+
+    @Test
+    public void unchangedValuesAreNotSentAgain() {
+        for (int loop = 0; loop < 10; loop++) {
+            motor.setPower(0.5);
+            servo.setPosition(0.5);
+            cache.flush(loop * LOOP_NANOS);
+        }
+        assertEquals(2, hub.getWriteTransactions());
+    }
+
+    @Test
+    public void aStopIsNeverHeldBack() {
+        motor.setPower(0.001);
+        cache.flush(0);
+        motor.setPower(0);
+        cache.flush(LOOP_NANOS);
+        assertEquals(2, hub.getWriteTransactions());
+    }
+
+    @Test
+    public void aSmallDriftIsSentAfterTheMaximumHold() {
+        motor.setPower(0.5);
+        cache.flush(0);
+        motor.setPower(0.502);
+        cache.flush(LOOP_NANOS);
+        assertEquals(1, hub.getWriteTransactions());
+        cache.flush(100_000_000L);
+        assertEquals(2, hub.getWriteTransactions());
+    }
+
+    @Test
+    public void changesAreNotResentWithinTheMinimumInterval() {
+        cache.setMinResendInterval(50);
+        motor.setPower(0.2);
+        cache.flush(0);
+        motor.setPower(0.6);
+        cache.flush(LOOP_NANOS);
+        motor.setPower(0.7);
+        cache.flush(2 * LOOP_NANOS);
+        assertEquals(1, hub.getWriteTransactions());
+        assertTrue(((CachedMotor) motor).isPending());
+
+        cache.flush(3 * LOOP_NANOS);                // 60 mS after the last write: the latest power goes.
+        assertEquals(2, hub.getWriteTransactions());
+        assertEquals(0.7, ((CachedMotor) motor).getMotor().getPower(), 0);
+        assertEquals(1, cache.getCommandsSuppressed());
+
+        motor.setPower(0);                          // A stop isn't held back.
+        cache.flush(4 * LOOP_NANOS);
+        assertEquals(3, hub.getWriteTransactions());
+    }
+
+    @Test
+    public void aWriteThroughFlushesAPendingPowerAtTheLastFlushTime() {
+        cache.setMinResendInterval(50);
+        motor.setPower(0.2);
+        cache.flush(1_000 * LOOP_NANOS);
+        motor.setPower(0.6);
+        motor.setTargetPosition(100);               // The power isn't due at the last flush's time...
+        assertEquals(2, hub.getWriteTransactions());
+        assertEquals(0.2, ((CachedMotor) motor).getMotor().getPower(), 0);
+
+        cache.flush(1_003 * LOOP_NANOS);            // 60 mS later, it is.
+        assertEquals(3, hub.getWriteTransactions());
+
+        cache.flush(1_006 * LOOP_NANOS);
+        motor.setPower(0.8);
+        motor.setTargetPosition(200);               // Due at the last flush's time, so it goes before the target.
+        assertEquals(5, hub.getWriteTransactions());
+        assertEquals(0.8, ((CachedMotor) motor).getMotor().getPower(), 0);
+    }
+
+    @Test
+    public void tankTeleOpSendsFarFewerWrites() {
+        double uncached = tankTeleOp(false);
+        double cached   = tankTeleOp(true);
+        System.out.printf("Tank TeleOp: %.2f hub writes per loop uncached, %.2f cached%n", uncached, cached);
+        assertEquals(5, uncached, 0);
+        assertTrue("cached " + cached, cached < 0.25);
+    }
+
+    // ConceptActuatorCache's loop (RobotTeleopTank_Iterative's), for 1000 loops of 20 mS, with the sticks and
+    // buttons held for a second at a time, as a driver's are between moves.  Returns hub writes per loop.
+    private static double tankTeleOp(boolean cached) {
+        FakeLynxModule hub   = new FakeLynxModule("Control Hub");
+        ActuatorCache  cache = new ActuatorCache();
+        DcMotorEx leftDrive  = new FakeDcMotorEx(hub, 0, "left_drive");
+        DcMotorEx rightDrive = new FakeDcMotorEx(hub, 1, "right_drive");
+        DcMotorEx arm        = new FakeDcMotorEx(hub, 2, "arm");
+        Servo     leftClaw   = new FakeServo(hub, 0, "left_hand");
+        Servo     rightClaw  = new FakeServo(hub, 1, "right_hand");
+        if (cached) {
+            leftDrive  = cache.motor(leftDrive);
+            rightDrive = cache.motor(rightDrive);
+            arm        = cache.motor(arm);
+            leftClaw   = cache.servo(leftClaw);
+            rightClaw  = cache.servo(rightClaw);
+        }
+
+        Random random = new Random(42);
+        double left = 0, right = 0, armPower = 0, clawSpeed = 0, clawOffset = 0;
+        int loops = 1000;
+        for (int loop = 0; loop < loops; loop++) {
+            if (loop % 50 == 0) {
+                left      = random.nextBoolean() ? 0 : Math.round(random.nextDouble() * 20 - 10) / 10.0;
+                right     = random.nextBoolean() ? left : Math.round(random.nextDouble() * 20 - 10) / 10.0;
+                armPower  = new double[] {0, 0, 0.5, -0.25}[random.nextInt(4)];
+                clawSpeed = new double[] {0, 0, 0.02, -0.02}[random.nextInt(4)];
+            }
+            clawOffset = Range.clip(clawOffset + clawSpeed, -0.5, 0.5);
+
+            leftDrive.setPower(left);
+            rightDrive.setPower(right);
+            arm.setPower(armPower);
+            leftClaw.setPosition(0.5 + clawOffset);
+            rightClaw.setPosition(0.5 - clawOffset);
+            if (cached) {
+                cache.flush(loop * LOOP_NANOS);
+            }
+        }
+        return (double) hub.getWriteTransactions() / loops;
+    }
+}
@@ -0,0 +1,86 @@
+package org.firstinspires.ftc.teamcode.hardware;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/*
+ * Checks ColorClassifier's lookup table against the HSV classification it replaces.
+ */
+public class ColorClassifierTest {
+
+    private static final int BITS = 5;
+
+    private ColorClassifier classifier;
+    private int red, yellow, blue;
+
+    @Before
+    public void setUp() {
+        classifier = new ColorClassifier(BITS);
+        red    = classifier.addClass("Red",    340,  20, 0.5f, 0.1f);
+        yellow = classifier.addClass("Yellow",  40,  80, 0.5f, 0.1f);
+        blue   = classifier.addClass("Blue",   200, 250, 0.5f, 0.1f);
+        classifier.build(0.5f);
+    }
+
+    @Test
+    public void tableMatchesHsvAtEveryCellCenter() {
+        int levels = 1 << BITS;
+        for (int r = 0; r < levels; r++) {
+            for (int g = 0; g < levels; g++) {
+                for (int b = 0; b < levels; b++) {
+                    float rf = 0.5f * (r + 0.5f) / levels;
+                    float gf = 0.5f * (g + 0.5f) / levels;
+                    float bf = 0.5f * (b + 0.5f) / levels;
+                    assertEquals(rf + " " + gf + " " + bf,
+                            classifier.classifyExact(rf, gf, bf), classifier.classify(rf, gf, bf));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void tableAgreesWithHsvAwayFromClassBoundaries() {
+        // Quantization can only change the answer near a boundary, so nearly all random readings must agree.
+        Random random = new Random(7);
+        int disagree = 0;
+        for (int i = 0; i < 100_000; i++) {
+            float r = 0.6f * random.nextFloat(), g = 0.6f * random.nextFloat(), b = 0.6f * random.nextFloat();
+            if (classifier.classify(r, g, b) != classifier.classifyExact(r, g, b)) {
+                disagree++;
+            }
+        }
+        assertTrue(disagree + " disagreements", disagree < 5_000);
+    }
+
+    @Test
+    public void classifiesGameElementColors() {
+        assertEquals(red,    classifier.classify(0.40f, 0.05f, 0.08f));     // Hue 355: the range wraps through 0.
+        assertEquals(red,    classifier.classify(0.40f, 0.08f, 0.05f));
+        assertEquals(yellow, classifier.classify(0.35f, 0.30f, 0.05f));
+        assertEquals(blue,   classifier.classify(0.05f, 0.10f, 0.40f));
+        assertEquals(ColorClassifier.NONE, classifier.classify(0.30f, 0.30f, 0.30f));     // Grey: no saturation.
+        assertEquals(ColorClassifier.NONE, classifier.classify(0.02f, 0.00f, 0.00f));     // Too dark.
+        assertEquals(ColorClassifier.NONE, classifier.classify(0.05f, 0.40f, 0.05f));     // Green: no class.
+        assertEquals(blue,   classifier.classify(0.10f, 0.20f, 2.00f));     // Clipped to full scale.
+    }
+
+    @Test
+    public void hsvMatchesAndroidColorConversion() {
+        float[] hsv = new float[3];
+        ColorClassifier.toHsv(1, 0.5f, 0, hsv);
+        assertEquals(30, hsv[0], 1e-4);
+        assertEquals(1, hsv[1], 1e-6);
+        assertEquals(1, hsv[2], 1e-6);
+        ColorClassifier.toHsv(0.5f, 0, 0.25f, hsv);
+        assertEquals(330, hsv[0], 1e-4);
+        ColorClassifier.toHsv(0.2f, 0.4f, 0.4f, hsv);
+        assertEquals(180, hsv[0], 1e-4);
+        assertEquals(0.5, hsv[1], 1e-6);
+        assertEquals(0.4, hsv[2], 1e-6);
+    }
+}
@@ -0,0 +1,108 @@
+package org.firstinspires.ftc.teamcode.hardware;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/*
+ * Feeds ColorEdgeDetector readings at known times, and checks where it places the edges.
+ */
+public class ColorEdgeDetectorTest {
+
+    private static final long   MS        = 1_000_000L;
+    private static final double TOLERANCE = 1000;       // Levels are floats, so allow 1 uS of rounding.
+
+    private ColorEdgeDetector detector;
+    private int yellow;
+
+    @Before
+    public void setUp() {
+        ColorClassifier classifier = new ColorClassifier();
+        yellow = classifier.addClass("Yellow", 40, 80, 0.5f, 0.1f);
+        classifier.build(1.0f);
+        detector = new ColorEdgeDetector(null, classifier);
+        detector.setThreshold(0.5f, 0.05f);
+    }
+
+    private void level(long ms, float alpha) {
+        detector.addSample(ms * MS, 0.1f, 0.1f, 0.1f, alpha);
+    }
+
+    @Test
+    public void risingEdgeIsInterpolatedBetweenReadings() {
+        level(100, 0.2f);
+        level(110, 0.8f);
+        ColorEdgeDetector.Edge edge = detector.getLatestLevelEdge();
+        assertEquals(ColorEdgeDetector.Edge.Kind.RISING, edge.getKind());
+        assertEquals(105 * MS, edge.getNanos(), TOLERANCE);
+        assertEquals(1, edge.getSequence());
+    }
+
+    @Test
+    public void fallingEdgeIsPlacedAtTheThresholdCrossing() {
+        level(100, 0.9f);
+        level(110, 0.4f);       // Crosses 0.5 at 8 mS, and is already clear of the band.
+        ColorEdgeDetector.Edge edge = detector.getLatestLevelEdge();
+        assertEquals(ColorEdgeDetector.Edge.Kind.FALLING, edge.getKind());
+        assertEquals(108 * MS, edge.getNanos(), TOLERANCE);
+    }
+
+    @Test
+    public void edgeInsideTheHysteresisBandIsReportedLaterAtItsCrossingTime() {
+        level(100, 0.30f);
+        level(110, 0.45f);
+        level(120, 0.53f);      // Crosses 0.5 at 116.25 mS, but still inside the band: nothing reported.
+        assertSame(ColorEdgeDetector.NONE, detector.getLatestLevelEdge());
+        level(130, 0.70f);
+        ColorEdgeDetector.Edge edge = detector.getLatestLevelEdge();
+        assertEquals(ColorEdgeDetector.Edge.Kind.RISING, edge.getKind());
+        assertEquals(116.25 * MS, edge.getNanos(), TOLERANCE);
+    }
+
+    @Test
+    public void noiseInsideTheBandDoesNotMakeExtraEdges() {
+        level(100, 0.2f);
+        level(110, 0.8f);
+        level(120, 0.47f);
+        level(130, 0.52f);
+        level(140, 0.48f);
+        assertEquals(1, detector.getLatestLevelEdge().getSequence());
+    }
+
+    @Test
+    public void repeatedReadingsNarrowTheInterpolation() {
+        level(100, 0.2f);
+        level(104, 0.2f);       // The sensor hasn't measured again, but the level was still low at 104 mS.
+        level(108, 0.2f);
+        level(110, 0.8f);
+        assertEquals(109 * MS, detector.getLatestLevelEdge().getNanos(), TOLERANCE);
+        assertEquals(4, detector.getSampleCount());
+        assertEquals(2, detector.getMeasurementCount());
+    }
+
+    @Test
+    public void classEdgeIsPlacedBetweenTheOldAndNewClassAfterTwoReadings() {
+        detector.addSample(100 * MS, 0.1f, 0.1f, 0.1f, 0.2f);
+        detector.addSample(110 * MS, 0.7f, 0.6f, 0.1f, 0.2f);
+        assertSame(ColorEdgeDetector.NONE, detector.getLatestClassEdge());
+        detector.addSample(120 * MS, 0.7f, 0.6f, 0.11f, 0.2f);
+        ColorEdgeDetector.Edge edge = detector.getLatestClassEdge();
+        assertEquals(ColorEdgeDetector.Edge.Kind.CLASS, edge.getKind());
+        assertEquals(ColorClassifier.NONE, edge.getFromClass());
+        assertEquals(yellow, edge.getToClass());
+        assertEquals(105 * MS, edge.getNanos());
+        assertEquals(yellow, detector.getColorClass());
+    }
+
+    @Test
+    public void singleOddReadingIsNotAClassEdge() {
+        detector.addSample(100 * MS, 0.1f, 0.1f, 0.1f, 0.2f);
+        detector.addSample(110 * MS, 0.7f, 0.6f, 0.1f, 0.2f);
+        detector.addSample(120 * MS, 0.1f, 0.1f, 0.12f, 0.2f);
+        detector.addSample(130 * MS, 0.7f, 0.6f, 0.1f, 0.2f);
+        assertSame(ColorEdgeDetector.NONE, detector.getLatestClassEdge());
+        assertEquals(ColorClassifier.NONE, detector.getColorClass());
+    }
+}
@@ -0,0 +1,200 @@
+package org.firstinspires.ftc.teamcode.hardware;
+
+import com.qualcomm.hardware.lynx.LynxModule;
+import com.qualcomm.robotcore.hardware.DigitalChannel;
+
+import org.firstinspires.ftc.teamcode.sim.FakeDcMotorEx;
+import org.firstinspires.ftc.teamcode.sim.FakeDigitalChannel;
+import org.firstinspires.ftc.teamcode.sim.FakeLynxModule;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/*
+ * Counts the hub transactions that HardwareSnapshot costs, on two FakeLynxModules with two motors and a digital
+ * input each, whatever BulkCachingMode the hubs were left in.  The same reads made directly on the devices are
+ * counted too, to show what the snapshot saves.
+ */
+public class HardwareSnapshotTest {
+
+    static final int CYCLES = 10;
+
+    private FakeLynxModule       controlHub, expansionHub;
+    private FakeDcMotorEx[]      motors;
+    private FakeDigitalChannel[] digitals;
+
+    @Before
+    public void setUp() {
+        controlHub   = new FakeLynxModule("Control Hub");
+        expansionHub = new FakeLynxModule("Expansion Hub 2");
+        motors = new FakeDcMotorEx[] {
+                new FakeDcMotorEx(controlHub, 0, "left_front"),
+                new FakeDcMotorEx(controlHub, 1, "left_back"),
+                new FakeDcMotorEx(expansionHub, 0, "right_front"),
+                new FakeDcMotorEx(expansionHub, 1, "right_back"),
+        };
+        digitals = new FakeDigitalChannel[] {
+                new FakeDigitalChannel(controlHub, 0, "lift_limit"),
+                new FakeDigitalChannel(expansionHub, 0, "arm_limit"),
+        };
+        for (FakeDigitalChannel digital : digitals) {
+            digital.setMode(DigitalChannel.Mode.INPUT);
+        }
+        resetCounts();
+    }
+
+    @Test
+    public void snapshotReadsEachHubOnceFromOff() {
+        assertOneBulkReadPerHub(LynxModule.BulkCachingMode.OFF);
+    }
+
+    @Test
+    public void snapshotReadsEachHubOnceFromAuto() {
+        assertOneBulkReadPerHub(LynxModule.BulkCachingMode.AUTO);
+    }
+
+    @Test
+    public void snapshotReadsEachHubOnceFromManual() {
+        assertOneBulkReadPerHub(LynxModule.BulkCachingMode.MANUAL);
+    }
+
+    @Test
+    public void directReadsInOffCostOneTransactionPerValue() {
+        setMode(LynxModule.BulkCachingMode.OFF);
+        for (int cycle = 0; cycle < CYCLES; cycle++) {
+            readDirectly(1);
+        }
+        // Two positions, two velocities and a digital input on each hub.
+        assertCounts(controlHub, 5 * CYCLES, 0);
+        assertCounts(expansionHub, 5 * CYCLES, 0);
+    }
+
+    @Test
+    public void directReadsInAutoCostOneBulkReadPerHub() {
+        setMode(LynxModule.BulkCachingMode.AUTO);
+        for (int cycle = 0; cycle < CYCLES; cycle++) {
+            readDirectly(1);
+        }
+        assertCounts(controlHub, CYCLES, 0);
+        assertCounts(expansionHub, CYCLES, 0);
+    }
+
+    @Test
+    public void repeatedDirectReadsInAutoCostAnExtraBulkRead() {
+        setMode(LynxModule.BulkCachingMode.AUTO);
+        for (int cycle = 0; cycle < CYCLES; cycle++) {
+            readDirectly(2);
+        }
+        assertCounts(controlHub, 2 * CYCLES, 0);
+        assertCounts(expansionHub, 2 * CYCLES, 0);
+    }
+
+    @Test
+    public void writesAreCountedOncePerCommand() {
+        HardwareSnapshot snapshot = newSnapshot();
+        snapshot.init();
+        for (int cycle = 0; cycle < CYCLES; cycle++) {
+            snapshot.update();
+            for (FakeDcMotorEx motor : motors) {
+                motor.setPower(0.5);
+            }
+        }
+        assertCounts(controlHub, CYCLES, 2 * CYCLES);
+        assertCounts(expansionHub, CYCLES, 2 * CYCLES);
+    }
+
+    @Test
+    public void framesHoldTheValuesReadAndAlternate() {
+        HardwareSnapshot snapshot = newSnapshot();
+        snapshot.init();
+        assertNull(snapshot.getLatest());
+
+        motors[2].setSimulatedPosition(100);
+        motors[2].setSimulatedVelocity(250);
+        digitals[1].setSimulatedState(true);
+        HardwareSnapshot.Frame first = snapshot.update();
+        assertNull(snapshot.getPrevious());
+
+        motors[2].setSimulatedPosition(140);
+        HardwareSnapshot.Frame second = snapshot.update();
+
+        assertEquals(100, first.getPosition(2));
+        assertEquals(250, first.getVelocity(2), 0);
+        assertTrue(first.getDigital(1));
+        assertEquals(140, second.getPosition(2));
+        assertEquals(2, second.getCycle());
+        assertSame(second, snapshot.getLatest());
+        assertSame(first, snapshot.getPrevious());
+        assertSame(first, snapshot.update());       // The oldest Frame is reused.
+    }
+
+    // Run the snapshot for CYCLES cycles, reading every value from the Frame twice, and check that each hub
+    // was bulk-read exactly once per cycle and never written to.
+    private void assertOneBulkReadPerHub(LynxModule.BulkCachingMode mode) {
+        setMode(mode);
+        HardwareSnapshot snapshot = newSnapshot();
+        snapshot.init();
+        assertEquals(LynxModule.BulkCachingMode.MANUAL, controlHub.getBulkCachingMode());
+        assertEquals(LynxModule.BulkCachingMode.MANUAL, expansionHub.getBulkCachingMode());
+
+        for (int cycle = 0; cycle < CYCLES; cycle++) {
+            HardwareSnapshot.Frame frame = snapshot.update();
+            for (int repeat = 0; repeat < 2; repeat++) {
+                for (int i = 0; i < frame.getMotorCount(); i++) {
+                    frame.getPosition(i);
+                    frame.getVelocity(i);
+                }
+                for (int i = 0; i < frame.getDigitalCount(); i++) {
+                    frame.getDigital(i);
+                }
+            }
+        }
+        assertCounts(controlHub, CYCLES, 0);
+        assertCounts(expansionHub, CYCLES, 0);
+    }
+
+    private HardwareSnapshot newSnapshot() {
+        HardwareSnapshot snapshot = new HardwareSnapshot(Arrays.asList(controlHub, expansionHub));
+        for (FakeDcMotorEx motor : motors) {
+            snapshot.addMotor(motor);
+        }
+        for (FakeDigitalChannel digital : digitals) {
+            snapshot.addDigital(digital);
+        }
+        return snapshot;
+    }
+
+    // One control cycle that reads every value straight from the devices, each the given number of times.
+    private void readDirectly(int times) {
+        for (int repeat = 0; repeat < times; repeat++) {
+            for (FakeDcMotorEx motor : motors) {
+                motor.getCurrentPosition();
+                motor.getVelocity();
+            }
+            for (FakeDigitalChannel digital : digitals) {
+                digital.getState();
+            }
+        }
+    }
+
+    private void setMode(LynxModule.BulkCachingMode mode) {
+        controlHub.setBulkCachingMode(mode);
+        expansionHub.setBulkCachingMode(mode);
+    }
+
+    private void resetCounts() {
+        controlHub.resetCounts();
+        expansionHub.resetCounts();
+    }
+
+    private static void assertCounts(FakeLynxModule hub, long reads, long writes) {
+        assertEquals(hub.getName() + " reads", reads, hub.getReadTransactions());
+        assertEquals(hub.getName() + " writes", writes, hub.getWriteTransactions());
+    }
+}
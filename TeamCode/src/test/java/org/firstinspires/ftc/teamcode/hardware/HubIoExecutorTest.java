@@ -0,0 +1,98 @@
+package org.firstinspires.ftc.teamcode.hardware;
+
+import org.firstinspires.ftc.teamcode.sim.FakeDcMotorEx;
+import org.firstinspires.ftc.teamcode.sim.FakeDigitalChannel;
+import org.firstinspires.ftc.teamcode.sim.FakeLynxModule;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/*
+ * Checks that whatever a hub's I/O throws, on a worker or on the loop's thread, comes out of HubIoExecutor.update(),
+ * and that the next update() still completes.
+ */
+public class HubIoExecutorTest {
+
+    // A limit switch whose next read throws.
+    private static class FailingChannel extends FakeDigitalChannel {
+        Throwable next = null;
+
+        FailingChannel(FakeLynxModule hub) {
+            super(hub, 0, "arm_limit");
+        }
+
+        @Override
+        public boolean getState() {
+            Throwable failure = next;
+            next = null;
+            if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+            if (failure != null) {
+                throw (RuntimeException) failure;
+            }
+            return super.getState();
+        }
+    }
+
+    private HubIoExecutor  io;
+    private FakeDcMotorEx  arm;
+    private FailingChannel limit;
+    private int            armIndex;
+
+    @Before
+    public void setUp() {
+        FakeLynxModule controlHub   = new FakeLynxModule("Control Hub");
+        FakeLynxModule expansionHub = new FakeLynxModule("Expansion Hub 2");
+        arm   = new FakeDcMotorEx(controlHub, 0, "arm");
+        limit = new FailingChannel(expansionHub);
+        io    = new HubIoExecutor(Arrays.asList(controlHub, expansionHub));
+        armIndex = io.addMotor(0, arm);
+        io.addDigital(1, limit);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        io.stop();
+    }
+
+    private void assertRethrown(Throwable failure) {
+        limit.next = failure;
+        try {
+            io.update();
+            fail("expected " + failure);
+        } catch (Throwable thrown) {
+            assertSame(failure, thrown);
+        }
+        arm.setSimulatedPosition(42);
+        assertEquals(42, io.update().getPosition(armIndex));
+    }
+
+    @Test
+    public void workerExceptionIsRethrownByUpdate() {
+        io.setParallel(true);
+        io.start();
+        assertRethrown(new IllegalStateException("hub disconnected"));
+    }
+
+    @Test
+    public void workerErrorIsRethrownByUpdate() {
+        io.setParallel(true);
+        io.start();
+        assertRethrown(new AssertionError("worker error"));
+        assertRethrown(new StackOverflowError());
+    }
+
+    @Test
+    public void serialErrorIsRethrownByUpdate() {
+        io.setParallel(false);
+        io.start();
+        assertRethrown(new AssertionError("loop thread error"));
+    }
+}
@@ -0,0 +1,166 @@
+package org.firstinspires.ftc.teamcode.hardware;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/*
+ * Drives I2cPollScheduler's buses by hand on a simulated clock, with sensors whose reads take a known time, and
+ * checks which sensor each bus reads when, and how often.
+ */
+public class I2cPollSchedulerTest {
+
+    private static final long MS = 1_000_000L;
+
+    private final List<String> order = new ArrayList<>();
+
+    private long             nanos = 0;
+    private I2cPollScheduler scheduler;
+
+    // A sensor read that takes readMs of simulated time, and returns the time it began.
+    private I2cPollScheduler.Reader<Long> sensor(final String name, final double readMs) {
+        return new I2cPollScheduler.Reader<Long>() {
+            @Override
+            public Long read() {
+                order.add(name);
+                long start = nanos;
+                nanos += (long) (readMs * MS);
+                return start;
+            }
+        };
+    }
+
+    @Before
+    public void setUp() {
+        scheduler = new I2cPollScheduler(new LongSupplier() {
+            @Override
+            public long getAsLong() {
+                return nanos;
+            }
+        });
+    }
+
+    // Run one bus's worker loop for a while, on the simulated clock: park() just moves the clock on.
+    private void run(I2cPollScheduler.Bus bus, long durationNanos) {
+        bus.begin(nanos, 1000 * MS);
+        long end = nanos + durationNanos;
+        while (nanos < end) {
+            long wait = bus.poll(nanos);
+            if (wait > 0) {
+                nanos += Math.min(wait, end - nanos);
+            }
+        }
+    }
+
+    @Test
+    public void sensorsAreReadAtTheirOwnRates() {
+        I2cPollScheduler.Sensor<Long> fast = scheduler.add("fast", "bus", 100, 0, sensor("fast", 1));
+        I2cPollScheduler.Sensor<Long> slow = scheduler.add("slow", "bus", 10, 0, sensor("slow", 2));
+        run(scheduler.getBuses().get(0), 1000 * MS);
+        assertEquals(100, fast.getReadCount());
+        assertEquals(10, slow.getReadCount());
+    }
+
+    @Test
+    public void readIsStampedAtItsMiddleAndNeverRepeatedWithinItsPeriod() {
+        I2cPollScheduler.Sensor<Long> range = scheduler.add("range", "bus", 50, 0, sensor("range", 4));
+        I2cPollScheduler.Bus bus = scheduler.getBuses().get(0);
+        bus.begin(nanos, 1000 * MS);
+
+        assertEquals(0, bus.poll(nanos));
+        assertEquals(0L, (long) range.getValue());
+        assertEquals(2 * MS, range.getReading().getNanos());
+        assertEquals(1, range.getReading().getSequence());
+
+        // The bus is idle, but the next read is only due 20 mS after the last one began.
+        assertEquals(16 * MS, bus.poll(nanos));
+        nanos += 16 * MS;
+        assertEquals(0, bus.poll(nanos));
+        assertEquals(20 * MS, (long) range.getValue());
+        assertEquals(2, range.getReadCount());
+    }
+
+    @Test
+    public void highestPriorityIsReadFirstThenTheLongestDue() {
+        scheduler.add("low",    "bus", 10, 0, sensor("low", 1));
+        scheduler.add("high",   "bus", 10, 5, sensor("high", 1));
+        scheduler.add("middle", "bus", 10, 1, sensor("middle", 1));
+        scheduler.add("low2",   "bus", 20, 0, sensor("low2", 1));
+        run(scheduler.getBuses().get(0), 60 * MS);
+        // All due at 0: by priority, then low before low2 as it was added first (equally due).  At 50 mS only low2
+        // is due again.
+        assertEquals(Arrays.asList("high", "middle", "low", "low2", "low2"), order);
+    }
+
+    @Test
+    public void equalPrioritiesTakeTurnsWhenTheBusIsOversubscribed() {
+        // Each wants a read every 10 mS, but a read takes 6 mS: the bus can't keep up, and they alternate.
+        I2cPollScheduler.Sensor<Long> a = scheduler.add("a", "bus", 100, 0, sensor("a", 6));
+        I2cPollScheduler.Sensor<Long> b = scheduler.add("b", "bus", 100, 0, sensor("b", 6));
+        run(scheduler.getBuses().get(0), 60 * MS);
+        assertEquals(Arrays.asList("a", "b", "a", "b", "a", "b", "a", "b", "a", "b"), order);
+        assertEquals(a.getReadCount(), b.getReadCount());
+    }
+
+    @Test
+    public void sensorsOnDifferentBusesGetDifferentWorkers() {
+        scheduler.add("imu",   "Control Hub; I2C bus 0", 100, 0, sensor("imu", 1));
+        scheduler.add("range", "Control Hub; I2C bus 1", 50, 0, sensor("range", 1));
+        scheduler.add("color", "Control Hub; I2C bus 0", 50, 0, sensor("color", 1));
+        List<I2cPollScheduler.Bus> buses = scheduler.getBuses();
+        assertEquals(2, buses.size());
+        assertEquals("Control Hub; I2C bus 0", buses.get(0).getName());
+        assertEquals(2, scheduler.getSensors(buses.get(0)).size());
+        assertEquals(1, scheduler.getSensors(buses.get(1)).size());
+    }
+
+    @Test
+    public void statisticsCoverTheLastWindow() {
+        I2cPollScheduler.Sensor<Long> a = scheduler.add("a", "bus", 100, 1, sensor("a", 4));
+        I2cPollScheduler.Sensor<Long> b = scheduler.add("b", "bus", 100, 0, sensor("b", 4));
+        I2cPollScheduler.Bus bus = scheduler.getBuses().get(0);
+        run(bus, 1000 * MS);
+        bus.poll(nanos);        // Ends the window.
+
+        assertEquals(0.8, bus.getUtilization(), 1e-9);
+        assertEquals(100, a.getReadRate(), 1e-9);
+        assertEquals(4, a.getMeanLatencyMs(), 1e-9);
+        assertEquals(4, a.getMaxLatencyMs(), 1e-9);
+        assertEquals(0, a.getMeanLatenessMs(), 1e-9);
+        // b's first read waited 4 mS for a's.  Its period is counted from then, so later reads weren't late.
+        assertEquals(0.04, b.getMeanLatenessMs(), 1e-9);
+    }
+
+    @Test
+    public void failedReadKeepsThePreviousValue() {
+        final boolean[] fail = {false};
+        I2cPollScheduler.Sensor<Long> flaky = scheduler.add("flaky", "bus", 100, 0,
+                new I2cPollScheduler.Reader<Long>() {
+                    @Override
+                    public Long read() {
+                        nanos += MS;
+                        if (fail[0]) {
+                            throw new IllegalStateException("NAK");
+                        }
+                        return nanos;
+                    }
+                }, -1L);
+        assertEquals(-1L, (long) flaky.getValue());
+        I2cPollScheduler.Bus bus = scheduler.getBuses().get(0);
+        bus.begin(nanos, 1000 * MS);
+        bus.poll(nanos);
+        fail[0] = true;
+        nanos += 10 * MS;
+        bus.poll(nanos);
+        assertEquals(MS, (long) flaky.getValue());
+        assertEquals(1, flaky.getErrorCount());
+        assertTrue(flaky.getLastError() instanceof IllegalStateException);
+    }
+}
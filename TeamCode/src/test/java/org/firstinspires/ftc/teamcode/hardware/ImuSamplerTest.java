@@ -0,0 +1,139 @@
+package org.firstinspires.ftc.teamcode.hardware;
+
+import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
+import org.firstinspires.ftc.robotcore.external.navigation.AngularVelocity;
+import org.firstinspires.ftc.robotcore.external.navigation.YawPitchRollAngles;
+import org.firstinspires.ftc.teamcode.sim.FakeImu;
+import org.firstinspires.ftc.teamcode.sim.FakeLynxModule;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.function.LongSupplier;
+
+import static org.junit.Assert.assertEquals;
+
+/*
+ * Takes ImuSampler readings on a simulated clock, with an IMU whose reads take a known time, and checks the
+ * timestamps and the extrapolated heading.
+ */
+public class ImuSamplerTest {
+
+    private static final long   MS      = 1_000_000L;
+    private static final double EPSILON = 1e-6;
+
+    private long       nanos      = 100 * MS;      // The simulated clock.
+    private Runnable   duringRead = null;
+    private SlowImu    imu;
+    private ImuSampler sampler;
+
+    // The orientation read takes 2 mS and the angular velocity read 1 mS, on the simulated clock.
+    private class SlowImu extends FakeImu {
+        SlowImu() {
+            super(new FakeLynxModule("Control Hub"), "imu");
+        }
+
+        @Override
+        public YawPitchRollAngles getRobotYawPitchRollAngles() {
+            YawPitchRollAngles angles = super.getRobotYawPitchRollAngles();
+            nanos += 2 * MS;
+            if (duringRead != null) {
+                duringRead.run();
+            }
+            return angles;
+        }
+
+        @Override
+        public AngularVelocity getRobotAngularVelocity(AngleUnit angleUnit) {
+            nanos += MS;
+            return super.getRobotAngularVelocity(angleUnit);
+        }
+    }
+
+    @Before
+    public void setUp() {
+        imu     = new SlowImu();
+        sampler = new ImuSampler(imu, 10_000, new LongSupplier() {
+            @Override
+            public long getAsLong() {
+                return nanos;
+            }
+        });
+    }
+
+    @Test
+    public void readingIsStampedAtTheMiddleOfTheReads() {
+        imu.setSimulatedHeading(0.5, 1.0, nanos);
+        sampler.sampleOnce();
+        ImuSampler.Reading reading = sampler.getReading();
+        assertEquals(101_500_000L, reading.getNanos());
+        assertEquals(0.5, reading.getYaw(AngleUnit.RADIANS), EPSILON);
+        assertEquals(1.0, reading.getYawRate(AngleUnit.RADIANS), EPSILON);
+        assertEquals(1, reading.getSequence());
+        assertEquals(1_500_000L, sampler.getAgeNanos());
+    }
+
+    @Test
+    public void headingIsExtrapolatedToNowWithTheYawRate() {
+        imu.setSimulatedHeading(0.5, 1.0, nanos);
+        sampler.sampleOnce();
+        assertEquals(0.5 + 0.0015, sampler.getHeading(AngleUnit.RADIANS), EPSILON);
+        assertEquals(0.5 + 0.0215, sampler.getHeading(AngleUnit.RADIANS, nanos + 20 * MS), EPSILON);
+        assertEquals(Math.toDegrees(0.5215), sampler.getHeading(AngleUnit.DEGREES, nanos + 20 * MS), EPSILON);
+        assertEquals(0.5, sampler.getHeading(AngleUnit.RADIANS, 50 * MS), EPSILON);    // Never backwards.
+    }
+
+    @Test
+    public void extrapolationIsLimited() {
+        imu.setSimulatedHeading(0.5, 1.0, nanos);
+        sampler.sampleOnce();
+        long later = sampler.getReading().getNanos() + 500 * MS;
+        assertEquals(0.55, sampler.getHeading(AngleUnit.RADIANS, later), EPSILON);
+        sampler.setMaxExtrapolation(10);
+        assertEquals(0.51, sampler.getHeading(AngleUnit.RADIANS, later), EPSILON);
+    }
+
+    @Test
+    public void extrapolatedHeadingWrapsAtPi() {
+        imu.setSimulatedHeading(3.1, 2.0, nanos);
+        sampler.sampleOnce();
+        long later = sampler.getReading().getNanos() + 40 * MS;
+        assertEquals(3.18 - 2 * Math.PI, sampler.getHeading(AngleUnit.RADIANS, later), EPSILON);
+    }
+
+    @Test
+    public void newerReadingReplacesTheExtrapolation() {
+        imu.setSimulatedHeading(0.5, 1.0, nanos);
+        sampler.sampleOnce();
+        nanos += 10 * MS;
+        imu.setSimulatedHeading(0.4, -1.0, nanos);
+        sampler.sampleOnce();
+        assertEquals(2, sampler.getReading().getSequence());
+        assertEquals(0.4 - 0.005, sampler.getHeading(AngleUnit.RADIANS, sampler.getReading().getNanos() + 5 * MS),
+                     EPSILON);
+    }
+
+    @Test
+    public void readingThatOverlapsAResetIsDiscarded() {
+        imu.setSimulatedHeading(0.5, 1.0, nanos);
+        sampler.sampleOnce();
+
+        // The loop resets the yaw while the sampler is part way through a read of the old yaw.
+        imu.setSimulatedHeading(0.7, 1.0, nanos);
+        duringRead = new Runnable() {
+            @Override
+            public void run() {
+                sampler.resetYaw();
+            }
+        };
+        sampler.sampleOnce();
+        ImuSampler.Reading reading = sampler.getReading();
+        assertEquals(2, reading.getSequence());             // The reset's own reading, not the overlapping one.
+        assertEquals(0, reading.getYaw(AngleUnit.RADIANS), EPSILON);
+        assertEquals(1.0, reading.getYawRate(AngleUnit.RADIANS), EPSILON);
+
+        duringRead = null;
+        sampler.sampleOnce();
+        assertEquals(3, sampler.getReading().getSequence());
+        assertEquals(0, sampler.getReading().getYaw(AngleUnit.RADIANS), EPSILON);
+    }
+}
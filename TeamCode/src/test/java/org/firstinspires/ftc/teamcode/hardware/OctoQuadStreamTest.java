@@ -0,0 +1,75 @@
+package org.firstinspires.ftc.teamcode.hardware;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/*
+ * Reads an OctoQuadStream as fast as possible on one thread while it publishes every 20 uS (a hundred times faster
+ * than on the robot) on its own, and checks that no Sample ever mixes the values of two reads.
+ */
+public class OctoQuadStreamTest {
+
+    private static final int  MODULES      = 4;
+    private static final long STRESS_NANOS = 500_000_000L;
+
+    // Every drive channel reads the number of the read, counting from 1, so each published sample's drive positions
+    // must all equal its sequence number.
+    private static class CountingSource implements OctoQuadStream.Source {
+        final AtomicInteger reads = new AtomicInteger();
+
+        @Override
+        public void readPositions(int[] positions) {
+            int read = reads.incrementAndGet();
+            for (int channel = 0; channel < 8; channel++) {
+                positions[channel] = (channel < MODULES) ? read : 512;
+            }
+        }
+    }
+
+    @Test
+    public void readerNeverSeesATornSample() throws InterruptedException {
+        CountingSource source = new CountingSource();
+        OctoQuadStream stream = new OctoQuadStream(source, 20);
+        stream.setVelocityWindow(0.1);
+        for (int m = 0; m < MODULES; m++) {
+            stream.addModule(m, 4 + m, 1, 0, false);
+        }
+        OctoQuadStream.Sample sample = stream.newSample();
+
+        long reads = 0, torn = 0, backwards = 0, last = 0;
+        stream.start();
+        try {
+            long end = System.nanoTime() + STRESS_NANOS;
+            while (System.nanoTime() < end) {
+                if (!stream.read(sample)) {
+                    continue;
+                }
+                reads++;
+                if (sample.getSequence() <= last) {
+                    backwards++;
+                }
+                last = sample.getSequence();
+                for (int m = 0; m < MODULES; m++) {
+                    if (sample.getDrivePosition(m) != sample.getSequence()) {
+                        torn++;
+                        break;
+                    }
+                }
+            }
+        } finally {
+            stream.stop();
+        }
+
+        String summary = reads + " reads of " + stream.getSampleCount() + " samples";
+        assertNull(stream.getFailure());
+        assertTrue(summary, reads > 1000);
+        assertEquals(summary, 0, torn);
+        assertEquals(summary, 0, backwards);
+        assertEquals(source.reads.get(), stream.getSampleCount());
+    }
+}
@@ -0,0 +1,126 @@
+package org.firstinspires.ftc.teamcode.localization;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/*
+ * Drives a LatencyCompensatedPoseEstimator along known paths at 1 inch per 5 mS loop, and applies vision measurements
+ * as they would arrive from a camera: late, sometimes too late, and sometimes out of order.
+ */
+public class LatencyCompensatedPoseEstimatorTest {
+
+    private static final long   LOOP_NANOS = 5_000_000L;
+    private static final double EPSILON    = 1e-9;
+
+    private LatencyCompensatedPoseEstimator estimator;
+
+    @Before
+    public void setUp() {
+        estimator = new LatencyCompensatedPoseEstimator(64);
+        estimator.setPose(0, 0, 0);
+    }
+
+    // Drive straight along odometry X for loops 0..last: the odometry reads X = loop.
+    private void driveStraight(int last) {
+        for (int loop = 0; loop <= last; loop++) {
+            estimator.addOdometry(loop * LOOP_NANOS, loop, 0, 0);
+        }
+    }
+
+    private void assertPose(double x, double y, double heading) {
+        assertEquals(x, estimator.getX(), EPSILON);
+        assertEquals(y, estimator.getY(), EPSILON);
+        assertEquals(heading, estimator.getHeading(), EPSILON);
+    }
+
+    @Test
+    public void odometryAloneIsFollowed() {
+        driveStraight(20);
+        assertPose(20, 0, 0);
+        assertEquals(100_000_000L, estimator.getHistoryNanos(100_000_000L));
+    }
+
+    @Test
+    public void delayedMeasurementCorrectsThePastAndReplaysTheMotionSince() {
+        driveStraight(20);
+        // The frame was captured at loop 10, when the estimate was X = 10, but the robot was really at 12.
+        assertTrue(estimator.addVisionMeasurement(10 * LOOP_NANOS, 12, 0, 0, 1, 1));
+        assertPose(22, 0, 0);       // Not 12: the 10 inches driven since the capture are kept.
+        assertEquals(1, estimator.getCorrectionsApplied());
+    }
+
+    @Test
+    public void measurementBetweenSamplesIsInterpolated() {
+        driveStraight(20);
+        assertTrue(estimator.addVisionMeasurement(10 * LOOP_NANOS + LOOP_NANOS / 2, 12.5, 1, 0, 1, 1));
+        assertPose(22, 1, 0);
+    }
+
+    @Test
+    public void partialGainCorrectsPartOfTheError() {
+        driveStraight(20);
+        estimator.addVisionMeasurement(10 * LOOP_NANOS, 14, -2, 0, 0.25, 1);
+        assertPose(21, -0.5, 0);
+    }
+
+    @Test
+    public void headingCorrectionTurnsTheReplayedMotion() {
+        driveStraight(20);
+        // At loop 10 the robot was really facing +Y, so the 10 inches since then were driven along +Y.
+        estimator.addVisionMeasurement(10 * LOOP_NANOS, 10, 0, Math.PI / 2, 0, 1);
+        assertPose(10, 10, Math.PI / 2);
+    }
+
+    @Test
+    public void measurementOlderThanTheHistoryIsRejected() {
+        estimator = new LatencyCompensatedPoseEstimator(8);
+        estimator.setPose(0, 0, 0);
+        driveStraight(20);              // Keeps loops 13 to 20.
+        assertEquals(7 * LOOP_NANOS, estimator.getHistoryNanos(20 * LOOP_NANOS));
+
+        assertFalse(estimator.addVisionMeasurement(12 * LOOP_NANOS, 50, 0, 0, 1, 1));
+        assertPose(20, 0, 0);
+        assertEquals(1, estimator.getCorrectionsRejected());
+        assertEquals(0, estimator.getCorrectionsApplied());
+
+        assertTrue(estimator.addVisionMeasurement(13 * LOOP_NANOS, 15, 0, 0, 1, 1));
+        assertPose(22, 0, 0);
+    }
+
+    @Test
+    public void outOfOrderFrameIsRejected() {
+        driveStraight(20);
+        // The robot has been 2 inches further along than odometry says since before loop 8.
+        assertTrue(estimator.addVisionMeasurement(16 * LOOP_NANOS, 18, 0, 0, 1, 1));
+        assertPose(22, 0, 0);
+        // A frame captured earlier arrives late.  Applying it would add the same 2 inches again.
+        assertFalse(estimator.addVisionMeasurement(8 * LOOP_NANOS, 10, 0, 0, 1, 1));
+        assertPose(22, 0, 0);
+        assertEquals(1, estimator.getCorrectionsRejected());
+    }
+
+    @Test
+    public void framesInCaptureOrderAgree() {
+        driveStraight(20);
+        estimator.addVisionMeasurement(8 * LOOP_NANOS, 10, 0, 0, 1, 1);
+        estimator.addVisionMeasurement(16 * LOOP_NANOS, 18, 0, 0, 1, 1);
+        assertPose(22, 0, 0);
+        assertEquals(2, estimator.getCorrectionsApplied());
+    }
+
+    @Test
+    public void setPoseForgetsTheLastMeasurement() {
+        driveStraight(20);
+        estimator.addVisionMeasurement(16 * LOOP_NANOS, 18, 0, 0, 1, 1);
+        estimator.setPose(0, 0, 0);
+        for (int loop = 0; loop <= 4; loop++) {
+            estimator.addOdometry(loop * LOOP_NANOS, loop, 0, 0);
+        }
+        assertTrue(estimator.addVisionMeasurement(2 * LOOP_NANOS, 3, 0, 0, 1, 1));
+        assertPose(5, 0, 0);
+    }
+}
@@ -0,0 +1,183 @@
+package org.firstinspires.ftc.teamcode.sim;
+
+import com.qualcomm.robotcore.hardware.DcMotor;
+
+import org.firstinspires.ftc.teamcode.ConceptCommandAuto;
+import org.firstinspires.ftc.teamcode.command.Command;
+import org.firstinspires.ftc.teamcode.command.CommandScheduler;
+import org.firstinspires.ftc.teamcode.command.Commands;
+import org.firstinspires.ftc.teamcode.command.Subsystem;
+import org.firstinspires.ftc.teamcode.control.MotorToPositionCommand;
+import org.firstinspires.ftc.teamcode.control.ProfileFollower;
+import org.firstinspires.ftc.teamcode.control.ProfiledEncoderDrive;
+import org.firstinspires.ftc.teamcode.control.ProfiledMoveCommand;
+import org.firstinspires.ftc.teamcode.control.TurnToHeadingCommand;
+
+import java.util.function.DoubleSupplier;
+
+/*
+ * Runs an autonomous scoring cycle with a CommandScheduler on fake subsystems, once with every step in turn (the
+ * way the samples' blocking routines have to do it) and once with independent mechanisms moving together, and
+ * reports how long each took.
+ *
+ * The cycle: drive forward, turn to 90 degrees (and hold it), approach, raise the arm, open the claw, back away,
+ * turn back to 0 and lower the arm.  Run together, the arm rises while the robot drives and turns, and lowers while
+ * it backs away.
+ *
+ * The subsystems are fakes: a SimulatedRobot tank drive, an arm motor under a SimulatedDrivetrain model of the
+ * hub's RUN_TO_POSITION loop, and a claw that takes a fixed time to open.  The commands and the scheduler are the
+ * real ones, driven by the simulated clock, and the plan is ConceptCommandAuto's.
+ */
+public class CommandAutoSimulation {
+
+    /**
+     * The outcome of one simulated cycle.
+     */
+    public static class Result {
+        private final double seconds;
+        private final int    loops;
+        private final double meanPassMicros;
+        private final double x, y, headingDegrees;
+        private final int    armPosition;
+
+        Result(double seconds, int loops, double meanPassMicros, double x, double y, double headingDegrees,
+               int armPosition) {
+            this.seconds        = seconds;
+            this.loops          = loops;
+            this.meanPassMicros = meanPassMicros;
+            this.x              = x;
+            this.y              = y;
+            this.headingDegrees = headingDegrees;
+            this.armPosition    = armPosition;
+        }
+
+        /** @return simulated time for the whole cycle, in seconds. */
+        public double getSeconds()         { return seconds; }
+
+        /** @return number of scheduler passes run. */
+        public int getLoops()              { return loops; }
+
+        /** @return desktop CPU time per scheduler pass, including the commands and the fake hardware. */
+        public double getMeanPassMicros()  { return meanPassMicros; }
+
+        public double getX()               { return x; }
+        public double getY()               { return y; }
+        public double getHeadingDegrees()  { return headingDegrees; }
+        public int getArmPosition()        { return armPosition; }
+
+        public String summary() {
+            return String.format("%6.2f S, %5d passes (%.1f uS each), ends at (%.1f, %.1f) in, %.1f deg, arm %d",
+                    seconds, loops, meanPassMicros, x, y, headingDegrees, armPosition);
+        }
+    }
+
+    static final int    ARM_UP            = 1800;       // Encoder ticks.
+    static final double ARM_MAX_TICKS     = 1500;       // Arm motor speed, ticks per second.
+    static final double CLAW_OPEN_SECONDS = 0.4;
+    static final double TURN_SPEED        = 0.2;        // As in RobotAutoDriveByGyro_Linear.
+    static final double HOLD_SECONDS      = 0.5;
+
+    private final double countsPerInch;
+    private final double maxTicksPerSecond;
+    private final double trackWidth;
+    private final double loopSeconds;
+
+    /**
+     * @param countsPerInch     drive encoder counts per inch of wheel travel.
+     * @param maxTicksPerSecond drive motor free speed, in encoder ticks per second.
+     * @param trackWidth        distance between the left and right wheels, in inches.
+     * @param loopSeconds       control loop period.
+     */
+    public CommandAutoSimulation(double countsPerInch, double maxTicksPerSecond, double trackWidth,
+                                 double loopSeconds) {
+        this.countsPerInch     = countsPerInch;
+        this.maxTicksPerSecond = maxTicksPerSecond;
+        this.trackWidth        = trackWidth;
+        this.loopSeconds       = loopSeconds;
+    }
+
+    /** Run the cycle one step at a time. */
+    public Result serial() {
+        return run(false);
+    }
+
+    /** Run the cycle with the arm moving while the robot drives. */
+    public Result concurrent() {
+        return run(true);
+    }
+
+    private Result run(boolean together) {
+        final SimulatedRobot robot = SimulatedRobot.tank(countsPerInch, maxTicksPerSecond, trackWidth);
+        FakeDcMotorEx left  = (FakeDcMotorEx) robot.getHardwareMap().get(DcMotor.class, "left_drive");
+        FakeDcMotorEx right = (FakeDcMotorEx) robot.getHardwareMap().get(DcMotor.class, "right_drive");
+        left.setDirection(DcMotor.Direction.REVERSE);
+        left.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
+        right.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
+
+        FakeDcMotorEx       armMotor = new FakeDcMotorEx(new FakeLynxModule("Expansion Hub"), 0, "arm");
+        SimulatedDrivetrain armModel = new SimulatedDrivetrain(ARM_MAX_TICKS, 0.05, armMotor);
+
+        Subsystem driveBase = new Subsystem("drive");
+        Subsystem arm       = new Subsystem("arm");
+        Subsystem claw      = new Subsystem("claw");
+
+        double maxInchesPerSecond = maxTicksPerSecond / countsPerInch;
+        double kV = 1.0 / maxInchesPerSecond;
+        ProfiledEncoderDrive drive = new ProfiledEncoderDrive(left, right, countsPerInch,
+                new ProfileFollower(kV, 0.1 * kV, 0, 0.15, 0, 0, 1.0),
+                new ProfileFollower(kV, 0.1 * kV, 0, 0.15, 0, 0, 1.0), loopSeconds);
+        double v = 0.85 * maxInchesPerSecond;
+        int forward  = drive.addMove(30, 30, v, 60, 400);
+        int approach = drive.addMove(12, 12, v, 60, 400);
+        int back     = drive.addMove(-12, -12, v, 60, 400);
+
+        DoubleSupplier heading = new DoubleSupplier() {
+            @Override
+            public double getAsDouble() {
+                return Math.toDegrees(robot.getHeading());
+            }
+        };
+        Runnable openClaw = new Runnable() {
+            @Override
+            public void run() {
+                // The fake claw has no servo: opening it just takes CLAW_OPEN_SECONDS.
+            }
+        };
+
+        Command cycle = ConceptCommandAuto.scoringCycle(together,
+                new ProfiledMoveCommand(drive, forward, driveBase),
+                turn(left, right, heading, 90, driveBase),
+                new ProfiledMoveCommand(drive, approach, driveBase),
+                new MotorToPositionCommand(armMotor, ARM_UP, 1.0, arm),
+                Commands.sequence(Commands.instant(openClaw, claw), Commands.waitSeconds(CLAW_OPEN_SECONDS)),
+                new ProfiledMoveCommand(drive, back, driveBase),
+                turn(left, right, heading, 0, driveBase),
+                new MotorToPositionCommand(armMotor, 0, 1.0, arm));
+
+        CommandScheduler scheduler = new CommandScheduler();
+        scheduler.register(driveBase, arm, claw);
+        scheduler.schedule(cycle);
+
+        int  loops    = 0;
+        long cpuNanos = 0;
+        while (cycle.isScheduled() && loops < 1_000_000) {
+            long passStart = System.nanoTime();
+            scheduler.run(robot.getNanos());
+            cpuNanos += System.nanoTime() - passStart;
+            robot.step(loopSeconds);
+            armModel.step(loopSeconds);
+            loops++;
+        }
+        return new Result(robot.getNanos() / 1e9, loops, cpuNanos / 1e3 / Math.max(1, loops), robot.getX(),
+                robot.getY(), Math.toDegrees(robot.getHeading()), armMotor.getCurrentPosition());
+    }
+
+    // Turn, then hold the heading while the robot settles, as the gyro sample does with turnToHeading() and
+    // holdHeading().
+    private static Command turn(DcMotor left, DcMotor right, DoubleSupplier heading, double target,
+                                Subsystem driveBase) {
+        return Commands.sequence(new TurnToHeadingCommand(left, right, heading, target, TURN_SPEED, 0, driveBase),
+                                 new TurnToHeadingCommand(left, right, heading, target, TURN_SPEED, HOLD_SECONDS,
+                                                          driveBase));
+    }
+}
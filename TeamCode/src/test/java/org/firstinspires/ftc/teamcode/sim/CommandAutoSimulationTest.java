@@ -0,0 +1,41 @@
+package org.firstinspires.ftc.teamcode.sim;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/*
+ * Runs ConceptCommandAuto's scoring cycle one step at a time and with the mechanisms together, and checks that
+ * both plans end in the same place and that running them together saves time.
+ */
+public class CommandAutoSimulationTest {
+
+    private static CommandAutoSimulation.Result serial, together;
+
+    @BeforeClass
+    public static void run() {
+        CommandAutoSimulation simulation = new CommandAutoSimulation(SimulatedSamples.GOBILDA_COUNTS_PER_INCH,
+                SimulatedSamples.GOBILDA_MAX_TICKS, SimulatedSamples.TRACK_WIDTH, 0.005);
+        serial   = simulation.serial();
+        together = simulation.concurrent();
+    }
+
+    @Test
+    public void bothPlansEndInTheSamePlace() {
+        for (CommandAutoSimulation.Result result : new CommandAutoSimulation.Result[] {serial, together}) {
+            // Forward 30 in, then out 12 in and back again at 90 degrees: 30 in ahead, facing forward.
+            assertEquals(result.summary(), 30, result.getX(), 0.5);
+            assertEquals(result.summary(), 0, result.getY(), 0.5);
+            assertEquals(result.summary(), 0, result.getHeadingDegrees(), 1.0);
+            assertEquals(result.summary(), 0, result.getArmPosition(), 5);
+        }
+    }
+
+    @Test
+    public void mechanismsTogetherSaveTime() {
+        assertTrue(serial.summary() + " / " + together.summary(),
+                   together.getSeconds() < 0.8 * serial.getSeconds());
+    }
+}
@@ -0,0 +1,156 @@
+package org.firstinspires.ftc.teamcode.sim;
+
+import com.qualcomm.robotcore.hardware.DcMotor;
+
+import org.firstinspires.ftc.teamcode.control.ProfileFollower;
+import org.firstinspires.ftc.teamcode.control.ProfiledEncoderDrive;
+
+/*
+ * Runs a path of tank-drive encoder moves on a SimulatedDrivetrain, either the way RobotAutoDriveByEncoder_Linear
+ * does it (RUN_TO_POSITION at a fixed power) or with a ProfiledEncoderDrive, and reports how it went.
+ *
+ * The control code is the same code that runs on the robot; only the motors and the clock are simulated.
+ * The loop runs at a fixed simulated period, as fast as the desktop (or Control Hub) can go.
+ */
+public class EncoderDriveSimulation {
+
+    /**
+     * The outcome of one simulated path.
+     */
+    public static class Result {
+        private final double seconds;
+        private final double worstErrorInches;
+        private final int    loops;
+
+        Result(double seconds, double worstErrorInches, int loops) {
+            this.seconds          = seconds;
+            this.worstErrorInches = worstErrorInches;
+            this.loops            = loops;
+        }
+
+        /** @return simulated time for the whole path, in seconds. */
+        public double getSeconds()           { return seconds; }
+
+        /** @return the largest distance, over all moves and both sides, between a target and where the wheel stopped. */
+        public double getWorstErrorInches()  { return worstErrorInches; }
+
+        /** @return number of control loops run. */
+        public int getLoops()                { return loops; }
+    }
+
+    private final double countsPerInch;
+    private final double maxTicksPerSecond;
+    private final double timeConstant;
+    private final double loopSeconds;
+
+    /**
+     * @param countsPerInch     encoder counts per inch of wheel travel.
+     * @param maxTicksPerSecond motor free speed, in encoder ticks per second.
+     * @param timeConstant      motor speed time constant, in seconds.
+     * @param loopSeconds       control loop period.
+     */
+    public EncoderDriveSimulation(double countsPerInch, double maxTicksPerSecond, double timeConstant,
+                                  double loopSeconds) {
+        this.countsPerInch     = countsPerInch;
+        this.maxTicksPerSecond = maxTicksPerSecond;
+        this.timeConstant      = timeConstant;
+        this.loopSeconds       = loopSeconds;
+    }
+
+    /**
+     * Drive the path as encoderDrive() does: RUN_TO_POSITION at a fixed power until both motors stop being busy,
+     * then a pause between moves.
+     *
+     * @param moves  {leftInches, rightInches} for each move.
+     * @param power  power cap for each move.
+     * @param pauseSeconds pause after each move (the sample uses 0.25).
+     */
+    public Result runToPosition(double[][] moves, double[] power, double pauseSeconds) {
+        FakeLynxModule      hub   = new FakeLynxModule("Simulated Hub");
+        FakeDcMotorEx       left  = new FakeDcMotorEx(hub, 0, "left_drive");
+        FakeDcMotorEx       right = new FakeDcMotorEx(hub, 1, "right_drive");
+        SimulatedDrivetrain sim   = new SimulatedDrivetrain(maxTicksPerSecond, timeConstant, left, right);
+        left.setDirection(DcMotor.Direction.REVERSE);
+
+        int    loops = 0;
+        double worst = 0;
+        for (int m = 0; m < moves.length; m++) {
+            int leftTarget  = left.getCurrentPosition() + (int) (moves[m][0] * countsPerInch);
+            int rightTarget = right.getCurrentPosition() + (int) (moves[m][1] * countsPerInch);
+            left.setTargetPosition(leftTarget);
+            right.setTargetPosition(rightTarget);
+            left.setMode(DcMotor.RunMode.RUN_TO_POSITION);
+            right.setMode(DcMotor.RunMode.RUN_TO_POSITION);
+            left.setPower(Math.abs(power[m]));
+            right.setPower(Math.abs(power[m]));
+
+            while (left.isBusy() && right.isBusy() && loops < 1_000_000) {
+                sim.step(loopSeconds);
+                loops++;
+            }
+            left.setPower(0);
+            right.setPower(0);
+            left.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
+            right.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
+            loops += settle(sim, pauseSeconds);
+
+            worst = Math.max(worst, Math.abs(left.getCurrentPosition() - leftTarget) / countsPerInch);
+            worst = Math.max(worst, Math.abs(right.getCurrentPosition() - rightTarget) / countsPerInch);
+        }
+        return new Result(sim.getNanos() / 1e9, worst, loops);
+    }
+
+    /**
+     * Drive the path with a ProfiledEncoderDrive.
+     *
+     * @param moves    {leftInches, rightInches} for each move.
+     * @param limits   {maxVelocity, maxAccel, maxJerk} for each move.  Use Double.POSITIVE_INFINITY jerk for
+     *                 trapezoidal profiles.
+     * @param gains    {kV, kA, kS, kP, kI, kD} for both sides' followers.
+     * @param pauseSeconds pause after each move.
+     */
+    public Result profiled(double[][] moves, double[][] limits, double[] gains, double pauseSeconds) {
+        FakeLynxModule      hub   = new FakeLynxModule("Simulated Hub");
+        FakeDcMotorEx       left  = new FakeDcMotorEx(hub, 0, "left_drive");
+        FakeDcMotorEx       right = new FakeDcMotorEx(hub, 1, "right_drive");
+        SimulatedDrivetrain sim   = new SimulatedDrivetrain(maxTicksPerSecond, timeConstant, left, right);
+        left.setDirection(DcMotor.Direction.REVERSE);
+        left.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
+        right.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
+
+        ProfiledEncoderDrive drive = new ProfiledEncoderDrive(left, right, countsPerInch,
+                new ProfileFollower(gains[0], gains[1], gains[2], gains[3], gains[4], gains[5], 1.0),
+                new ProfileFollower(gains[0], gains[1], gains[2], gains[3], gains[4], gains[5], 1.0),
+                loopSeconds);
+        for (int m = 0; m < moves.length; m++) {
+            drive.addMove(moves[m][0], moves[m][1], limits[m][0], limits[m][1], limits[m][2]);
+        }
+
+        int    loops = 0;
+        double worst = 0;
+        for (int m = 0; m < moves.length; m++) {
+            int leftTarget  = left.getCurrentPosition() + (int) (moves[m][0] * countsPerInch);
+            int rightTarget = right.getCurrentPosition() + (int) (moves[m][1] * countsPerInch);
+
+            drive.start(m, sim.getNanos());
+            while (drive.update(sim.getNanos()) && loops < 1_000_000) {
+                sim.step(loopSeconds);
+                loops++;
+            }
+            loops += settle(sim, pauseSeconds);
+
+            worst = Math.max(worst, Math.abs(left.getCurrentPosition() - leftTarget) / countsPerInch);
+            worst = Math.max(worst, Math.abs(right.getCurrentPosition() - rightTarget) / countsPerInch);
+        }
+        return new Result(sim.getNanos() / 1e9, worst, loops);
+    }
+
+    // Let the motors coast to a stop with no power, as during the sample's sleep() between moves.
+    private int settle(SimulatedDrivetrain sim, double seconds) {
+        int steps = (int) Math.round(seconds / loopSeconds);
+        for (int i = 0; i < steps; i++) {
+            sim.step(loopSeconds);
+        }
+        return steps;
+    }
+}
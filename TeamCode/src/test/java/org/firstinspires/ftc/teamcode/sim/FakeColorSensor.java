@@ -0,0 +1,108 @@
+package org.firstinspires.ftc.teamcode.sim;
+
+import com.qualcomm.robotcore.hardware.ColorSensor;
+import com.qualcomm.robotcore.hardware.I2cAddr;
+import com.qualcomm.robotcore.hardware.NormalizedColorSensor;
+import com.qualcomm.robotcore.hardware.NormalizedRGBA;
+import com.qualcomm.robotcore.hardware.SwitchableLight;
+
+/*
+ * A desktop stand-in for a REV Color Sensor on one of a FakeLynxModule's I2C buses.
+ *
+ * The simulator sets the reflectance of whatever is under the sensor with setSimulatedColor(), on a 0 to 1 scale
+ * at a gain of 1.  getNormalizedColors() multiplies by the gain and clips at 1, as the real sensor saturates;
+ * the raw ColorSensor channels are the same values on a 16 bit scale.  Alpha is the average of the three colors.
+ * Each read is an I2C transaction, so it is reported to the hub as a discrete read.
+ */
+public class FakeColorSensor implements ColorSensor, NormalizedColorSensor, SwitchableLight {
+
+    private final FakeLynxModule hub;
+    private final int            bus;
+    private final String         name;
+
+    private float   red, green, blue;
+    private float   gain    = 1;
+    private boolean lightOn = true;
+    private I2cAddr address = I2cAddr.create7bit(0x52);
+    private long    reads   = 0;
+
+    public FakeColorSensor(FakeLynxModule hub, int bus, String name) {
+        this.hub  = hub;
+        this.bus  = bus;
+        this.name = name;
+    }
+
+    /** Set the reflectance under the sensor, 0 to 1 at a gain of 1.  This does not count as a hub transaction. */
+    public void setSimulatedColor(float red, float green, float blue) {
+        this.red   = red;
+        this.green = green;
+        this.blue  = blue;
+    }
+
+    /** @return number of color reads. */
+    public long getReadCount() {
+        return reads;
+    }
+
+    private int raw(float value) {
+        hub.onDiscreteRead();
+        reads++;
+        return Math.round(Math.min(1f, value) * 65535);
+    }
+
+    // --------------------------------------------------------------------------------------
+    // NormalizedColorSensor
+    // --------------------------------------------------------------------------------------
+
+    @Override
+    public NormalizedRGBA getNormalizedColors() {
+        hub.onDiscreteRead();
+        reads++;
+        NormalizedRGBA colors = new NormalizedRGBA();
+        colors.red   = Math.min(1f, red * gain);
+        colors.green = Math.min(1f, green * gain);
+        colors.blue  = Math.min(1f, blue * gain);
+        colors.alpha = Math.min(1f, (red + green + blue) / 3 * gain);
+        return colors;
+    }
+
+    @Override public float getGain()             { return gain; }
+    @Override public void setGain(float newGain) { gain = newGain; }
+
+    // --------------------------------------------------------------------------------------
+    // ColorSensor
+    // --------------------------------------------------------------------------------------
+
+    @Override public int red()   { return raw(red); }
+    @Override public int green() { return raw(green); }
+    @Override public int blue()  { return raw(blue); }
+    @Override public int alpha() { return raw((red + green + blue) / 3); }
+
+    @Override
+    public int argb() {
+        int a = alpha() >> 8, r = red() >> 8, g = green() >> 8, b = blue() >> 8;
+        return (a << 24) | (r << 16) | (g << 8) | b;
+    }
+
+    @Override public void enableLed(boolean enable)            { enableLight(enable); }
+    @Override public void setI2cAddress(I2cAddr newAddress)    { address = newAddress; }
+    @Override public I2cAddr getI2cAddress()                   { return address; }
+
+    // --------------------------------------------------------------------------------------
+    // SwitchableLight
+    // --------------------------------------------------------------------------------------
+
+    @Override public void enableLight(boolean enable) { hub.onWrite(); lightOn = enable; }
+    @Override public boolean isLightOn()              { return lightOn; }
+
+    // --------------------------------------------------------------------------------------
+    // HardwareDevice
+    // --------------------------------------------------------------------------------------
+
+    @Override public Manufacturer getManufacturer()           { return Manufacturer.Broadcom; }
+    @Override public String getDeviceName()                   { return name; }
+    @Override public String getConnectionInfo()               { return hub.getName() + "; I2C bus " + bus; }
+    @Override public int getVersion()                         { return 1; }
+    @Override public void resetDeviceConfigurationForOpMode() { }
+    @Override public void close()                             { }
+}
@@ -0,0 +1,249 @@
+package org.firstinspires.ftc.teamcode.sim;
+
+import com.qualcomm.robotcore.hardware.DcMotorController;
+import com.qualcomm.robotcore.hardware.DcMotorEx;
+import com.qualcomm.robotcore.hardware.PIDCoefficients;
+import com.qualcomm.robotcore.hardware.PIDFCoefficients;
+import com.qualcomm.robotcore.hardware.configuration.typecontainers.MotorConfigurationType;
+
+import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
+import org.firstinspires.ftc.robotcore.external.navigation.CurrentUnit;
+
+/*
+ * A desktop stand-in for a DcMotorEx plugged into one port of a FakeLynxModule.
+ *
+ * Encoder position and velocity are plain fields that a test or simulator sets directly with
+ * setSimulatedPosition() / setSimulatedVelocity().  Every get/set call is reported to the owning hub,
+ * so the hub's transaction counts reflect what the same code would cost on a real robot.
+ */
+public class FakeDcMotorEx implements DcMotorEx {
+
+    private final FakeLynxModule hub;
+    private final int            port;
+    private final String         name;
+
+    private MotorConfigurationType motorType         = MotorConfigurationType.getUnspecifiedMotorType();
+    private Direction              direction         = Direction.FORWARD;
+    private RunMode                mode              = RunMode.RUN_WITHOUT_ENCODER;
+    private ZeroPowerBehavior      zeroPowerBehavior = ZeroPowerBehavior.BRAKE;
+    private boolean                enabled           = true;
+    private double                 power             = 0;
+    private int                    targetPosition    = 0;
+    private int                    targetTolerance   = 5;
+    private double                 currentAlertAmps  = 5;
+
+    private PIDFCoefficients velocityPidf = new PIDFCoefficients(10, 3, 0, 0);
+    private PIDFCoefficients positionPidf = new PIDFCoefficients(10, 0, 0, 0);
+
+    // Simulated sensor values, in encoder ticks, as the motor hardware sees them (before direction is applied).
+    private int    rawPosition = 0;
+    private double rawVelocity = 0;
+    private double currentAmps = 0;
+
+    public FakeDcMotorEx(FakeLynxModule hub, int port, String name) {
+        this.hub  = hub;
+        this.port = port;
+        this.name = name;
+    }
+
+    // --------------------------------------------------------------------------------------
+    // Simulation access.  These do not count as hub transactions.
+    // --------------------------------------------------------------------------------------
+
+    public void setSimulatedPosition(int ticks)          { rawPosition = ticks; }
+    public void setSimulatedVelocity(double ticksPerSec) { rawVelocity = ticksPerSec; }
+    public void setSimulatedCurrent(double amps)         { currentAmps = amps; }
+    public int getSimulatedPosition()                    { return rawPosition; }
+    public double getSimulatedVelocity()                 { return rawVelocity; }
+
+    /** @return the most recently commanded power, with the motor direction applied. */
+    public double getAppliedPower() {
+        return (direction == Direction.REVERSE) ? -power : power;
+    }
+
+    public FakeLynxModule getHub() {
+        return hub;
+    }
+
+    private int sign() {
+        return (direction == Direction.REVERSE) ? -1 : 1;
+    }
+
+    // --------------------------------------------------------------------------------------
+    // DcMotorEx
+    // --------------------------------------------------------------------------------------
+
+    @Override public void setMotorEnable()   { hub.onWrite(); enabled = true; }
+    @Override public void setMotorDisable()  { hub.onWrite(); enabled = false; }
+    @Override public boolean isMotorEnabled() { return enabled; }
+
+    @Override
+    public void setVelocity(double angularRate) {
+        hub.onWrite();
+        power = angularRate / Math.max(1, motorType.getTicksPerRev() * motorType.getMaxRPM() / 60.0);
+    }
+
+    @Override
+    public void setVelocity(double angularRate, AngleUnit unit) {
+        setVelocity(unit.toRadians(angularRate) / (2 * Math.PI) * motorType.getTicksPerRev());
+    }
+
+    @Override
+    public double getVelocity() {
+        hub.onRead(FakeLynxModule.KEY_VELOCITY + port);
+        return sign() * rawVelocity;
+    }
+
+    @Override
+    public double getVelocity(AngleUnit unit) {
+        return unit.fromRadians(getVelocity() / motorType.getTicksPerRev() * 2 * Math.PI);
+    }
+
+    @Override
+    public void setPIDCoefficients(RunMode mode, PIDCoefficients pidCoefficients) {
+        setPIDFCoefficients(mode, new PIDFCoefficients(pidCoefficients.p, pidCoefficients.i, pidCoefficients.d, 0));
+    }
+
+    @Override
+    public void setPIDFCoefficients(RunMode mode, PIDFCoefficients pidfCoefficients) {
+        hub.onWrite();
+        if (mode == RunMode.RUN_TO_POSITION) {
+            positionPidf = pidfCoefficients;
+        } else {
+            velocityPidf = pidfCoefficients;
+        }
+    }
+
+    @Override
+    public void setVelocityPIDFCoefficients(double p, double i, double d, double f) {
+        setPIDFCoefficients(RunMode.RUN_USING_ENCODER, new PIDFCoefficients(p, i, d, f));
+    }
+
+    @Override
+    public void setPositionPIDFCoefficients(double p) {
+        setPIDFCoefficients(RunMode.RUN_TO_POSITION, new PIDFCoefficients(p, 0, 0, 0));
+    }
+
+    @Override
+    public PIDCoefficients getPIDCoefficients(RunMode mode) {
+        PIDFCoefficients pidf = getPIDFCoefficients(mode);
+        return new PIDCoefficients(pidf.p, pidf.i, pidf.d);
+    }
+
+    @Override
+    public PIDFCoefficients getPIDFCoefficients(RunMode mode) {
+        return (mode == RunMode.RUN_TO_POSITION) ? positionPidf : velocityPidf;
+    }
+
+    @Override public void setTargetPositionTolerance(int tolerance) { hub.onWrite(); targetTolerance = tolerance; }
+    @Override public int getTargetPositionTolerance()               { return targetTolerance; }
+
+    @Override
+    public double getCurrent(CurrentUnit unit) {
+        hub.onDiscreteRead();   // Motor current is not part of the bulk data.
+        return (unit == CurrentUnit.MILLIAMPS) ? currentAmps * 1000 : currentAmps;
+    }
+
+    @Override
+    public double getCurrentAlert(CurrentUnit unit) {
+        return (unit == CurrentUnit.MILLIAMPS) ? currentAlertAmps * 1000 : currentAlertAmps;
+    }
+
+    @Override
+    public void setCurrentAlert(double current, CurrentUnit unit) {
+        hub.onWrite();
+        currentAlertAmps = (unit == CurrentUnit.MILLIAMPS) ? current / 1000 : current;
+    }
+
+    @Override
+    public boolean isOverCurrent() {
+        return currentAmps > currentAlertAmps;
+    }
+
+    // --------------------------------------------------------------------------------------
+    // DcMotor
+    // --------------------------------------------------------------------------------------
+
+    @Override public MotorConfigurationType getMotorType()              { return motorType; }
+    @Override public void setMotorType(MotorConfigurationType motorType) { this.motorType = motorType; }
+    @Override public DcMotorController getController()                  { return null; }
+    @Override public int getPortNumber()                                 { return port; }
+
+    @Override
+    public void setZeroPowerBehavior(ZeroPowerBehavior zeroPowerBehavior) {
+        hub.onWrite();
+        this.zeroPowerBehavior = zeroPowerBehavior;
+    }
+
+    @Override public ZeroPowerBehavior getZeroPowerBehavior() { return zeroPowerBehavior; }
+
+    @Override
+    @Deprecated
+    public void setPowerFloat() {
+        setZeroPowerBehavior(ZeroPowerBehavior.FLOAT);
+        setPower(0);
+    }
+
+    @Override
+    public boolean getPowerFloat() {
+        return zeroPowerBehavior == ZeroPowerBehavior.FLOAT && power == 0;
+    }
+
+    @Override
+    public void setTargetPosition(int position) {
+        hub.onWrite();
+        targetPosition = position;
+    }
+
+    @Override public int getTargetPosition() { return targetPosition; }
+
+    @Override
+    public boolean isBusy() {
+        return mode == RunMode.RUN_TO_POSITION && Math.abs(getCurrentPosition() - targetPosition) > targetTolerance;
+    }
+
+    @Override
+    public int getCurrentPosition() {
+        hub.onRead(FakeLynxModule.KEY_POSITION + port);
+        return sign() * rawPosition;
+    }
+
+    @Override
+    public void setMode(RunMode mode) {
+        hub.onWrite();
+        if (mode == RunMode.STOP_AND_RESET_ENCODER) {
+            rawPosition = 0;
+            rawVelocity = 0;
+            power = 0;
+        }
+        this.mode = mode;
+    }
+
+    @Override public RunMode getMode() { return mode; }
+
+    // --------------------------------------------------------------------------------------
+    // DcMotorSimple
+    // --------------------------------------------------------------------------------------
+
+    @Override public void setDirection(Direction direction) { this.direction = direction; }
+    @Override public Direction getDirection()               { return direction; }
+
+    @Override
+    public void setPower(double power) {
+        hub.onWrite();
+        this.power = Math.max(-1.0, Math.min(1.0, power));
+    }
+
+    @Override public double getPower() { return power; }
+
+    // --------------------------------------------------------------------------------------
+    // HardwareDevice
+    // --------------------------------------------------------------------------------------
+
+    @Override public Manufacturer getManufacturer()        { return Manufacturer.Other; }
+    @Override public String getDeviceName()                { return name; }
+    @Override public String getConnectionInfo()            { return hub.getName() + "; port " + port; }
+    @Override public int getVersion()                      { return 1; }
+    @Override public void resetDeviceConfigurationForOpMode() { }
+    @Override public void close()                          { power = 0; }
+}
@@ -0,0 +1,82 @@
+package org.firstinspires.ftc.teamcode.sim;
+
+import org.firstinspires.ftc.teamcode.vision.TfliteProcessor;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/*
+ * A TfliteProcessor.Model that doesn't run a network, so that the processor's own stages can be timed on a desktop
+ * JVM, where there is no TFLite runtime.
+ *
+ * Like an SSD model with TFLite_Detection_PostProcess, it reports a fixed number of detections on every run, most of
+ * them with low scores.  A few "game pieces" drift across the input from run to run, with scores that rise and fall,
+ * so the processor's filtering and sorting see changing input.  The input buffer has the size and format a real
+ * model's would; run() sums a sample of it, so the preprocessed pixels are used.
+ */
+public class FakeDetectionModel implements TfliteProcessor.Model {
+
+    private static final int PIECES = 3;
+
+    private final int        width, height;
+    private final boolean    quantized;
+    private final int        detections;
+    private final ByteBuffer input;
+    private int  runs = 0;
+    private long inputSum = 0;
+
+    /**
+     * @param width, height the input size, e.g. 320x320.
+     * @param quantized     true for 8-bit input, false for float.
+     * @param detections    detections reported on every run, e.g. 10.
+     */
+    public FakeDetectionModel(int width, int height, boolean quantized, int detections) {
+        this.width      = width;
+        this.height     = height;
+        this.quantized  = quantized;
+        this.detections = Math.max(detections, PIECES);
+        input = ByteBuffer.allocateDirect(width * height * 3 * (quantized ? 1 : 4)).order(ByteOrder.nativeOrder());
+    }
+
+    @Override
+    public int getInputWidth()      { return width; }
+
+    @Override
+    public int getInputHeight()     { return height; }
+
+    @Override
+    public boolean isQuantized()    { return quantized; }
+
+    @Override
+    public ByteBuffer getInput()    { return input; }
+
+    @Override
+    public int getMaxDetections()   { return detections; }
+
+    @Override
+    public int run(float[] boxes, float[] classes, float[] scores) {
+        for (int i = 0; i < input.capacity(); i += 4093) {
+            inputSum += input.get(i);
+        }
+        runs++;
+        for (int d = 0; d < detections; d++) {
+            double phase = runs * 0.05 + d * 1.7;
+            float  x     = (float) (0.5 + 0.35 * Math.sin(phase));
+            float  y     = (float) (0.5 + 0.35 * Math.cos(phase * 0.7));
+            float  size  = (d < PIECES) ? 0.15f : 0.05f;
+            boxes[4 * d]     = y - size;         // top, left, bottom, right, as fractions of the input.
+            boxes[4 * d + 1] = x - size;
+            boxes[4 * d + 2] = y + size;
+            boxes[4 * d + 3] = x + size;
+            classes[d] = d % 2;
+            scores[d]  = (d < PIECES) ? (float) (0.6 + 0.35 * Math.sin(phase * 0.3)) : 0.05f + 0.02f * d;
+        }
+        return detections;
+    }
+
+    /** @return runs so far. */
+    public int getRuns()            { return runs; }
+
+    /** @return a sum of input samples, to show the input was read. */
+    public long getInputSum()       { return inputSum; }
+}
@@ -0,0 +1,59 @@
+package org.firstinspires.ftc.teamcode.sim;
+
+import com.qualcomm.robotcore.hardware.DigitalChannel;
+import com.qualcomm.robotcore.hardware.DigitalChannelController;
+
+/*
+ * A desktop stand-in for a DigitalChannel on one of a FakeLynxModule's digital ports.
+ * Reads are reported to the hub so they are included in its transaction counts.
+ */
+public class FakeDigitalChannel implements DigitalChannel {
+
+    private final FakeLynxModule hub;
+    private final int            port;
+    private final String         name;
+
+    private Mode    mode  = Mode.INPUT;
+    private boolean state = true;   // Digital inputs have pull-ups, so an open switch reads true.
+
+    public FakeDigitalChannel(FakeLynxModule hub, int port, String name) {
+        this.hub  = hub;
+        this.port = port;
+        this.name = name;
+    }
+
+    /** Set the level seen by the input.  This does not count as a hub transaction. */
+    public void setSimulatedState(boolean state) {
+        this.state = state;
+    }
+
+    @Override public Mode getMode()          { return mode; }
+    @Override public void setMode(Mode mode) { hub.onWrite(); this.mode = mode; }
+
+    @Override
+    @Deprecated
+    public void setMode(DigitalChannelController.Mode mode) {
+        setMode(mode == DigitalChannelController.Mode.INPUT ? Mode.INPUT : Mode.OUTPUT);
+    }
+
+    @Override
+    public boolean getState() {
+        hub.onRead(FakeLynxModule.KEY_DIGITAL + port);
+        return state;
+    }
+
+    @Override
+    public void setState(boolean state) {
+        hub.onWrite();
+        if (mode == Mode.OUTPUT) {
+            this.state = state;
+        }
+    }
+
+    @Override public Manufacturer getManufacturer()           { return Manufacturer.Other; }
+    @Override public String getDeviceName()                   { return name; }
+    @Override public String getConnectionInfo()               { return hub.getName() + "; digital port " + port; }
+    @Override public int getVersion()                         { return 1; }
+    @Override public void resetDeviceConfigurationForOpMode() { }
+    @Override public void close()                             { }
+}
@@ -0,0 +1,97 @@
+package org.firstinspires.ftc.teamcode.sim;
+
+import com.qualcomm.robotcore.hardware.IMU;
+
+import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
+import org.firstinspires.ftc.robotcore.external.navigation.AngularVelocity;
+import org.firstinspires.ftc.robotcore.external.navigation.AxesOrder;
+import org.firstinspires.ftc.robotcore.external.navigation.AxesReference;
+import org.firstinspires.ftc.robotcore.external.navigation.Orientation;
+import org.firstinspires.ftc.robotcore.external.navigation.Quaternion;
+import org.firstinspires.ftc.robotcore.external.navigation.YawPitchRollAngles;
+
+/*
+ * A desktop stand-in for the IMU inside a Control Hub, for a robot driving on a flat field.
+ *
+ * The simulator sets the robot's heading and turn rate with setSimulatedHeading(); pitch and roll are always zero,
+ * and the hub is assumed to be mounted flat (the orientation passed to initialize() is accepted, but not used).
+ * Each orientation or angular velocity read is an I2C transaction, so it is reported to the hub as a discrete read.
+ */
+public class FakeImu implements IMU {
+
+    private final FakeLynxModule hub;
+    private final String         name;
+
+    private double heading    = 0;     // radians, CCW positive, as the robot actually points.
+    private double turnRate   = 0;     // radians per second.
+    private double yawOffset  = 0;     // heading at the last resetYaw().
+    private long   sampleTime = 0;
+    private long   reads      = 0;
+
+    public FakeImu(FakeLynxModule hub, String name) {
+        this.hub  = hub;
+        this.name = name;
+    }
+
+    /** Set the robot's true heading and turn rate.  This does not count as a hub transaction. */
+    public void setSimulatedHeading(double radians, double radiansPerSecond, long nanos) {
+        heading    = radians;
+        turnRate   = radiansPerSecond;
+        sampleTime = nanos;
+    }
+
+    /** @return number of orientation and angular velocity reads. */
+    public long getReadCount() {
+        return reads;
+    }
+
+    private double yaw() {
+        hub.onDiscreteRead();
+        reads++;
+        return AngleUnit.normalizeRadians(heading - yawOffset);
+    }
+
+    @Override
+    public boolean initialize(Parameters parameters) {
+        hub.onWrite();
+        return true;
+    }
+
+    @Override
+    public void resetYaw() {
+        hub.onWrite();
+        yawOffset = heading;
+    }
+
+    @Override
+    public YawPitchRollAngles getRobotYawPitchRollAngles() {
+        return new YawPitchRollAngles(AngleUnit.RADIANS, yaw(), 0, 0, sampleTime);
+    }
+
+    @Override
+    public Orientation getRobotOrientation(AxesReference reference, AxesOrder order, AngleUnit angleUnit) {
+        Orientation flat = new Orientation(AxesReference.INTRINSIC, AxesOrder.ZYX, angleUnit,
+                (float) angleUnit.fromRadians(yaw()), 0, 0, sampleTime);
+        return flat.toAxesReference(reference).toAxesOrder(order);
+    }
+
+    @Override
+    public Quaternion getRobotOrientationAsQuaternion() {
+        double half = yaw() / 2;
+        return new Quaternion((float) Math.cos(half), 0, 0, (float) Math.sin(half), sampleTime);
+    }
+
+    @Override
+    public AngularVelocity getRobotAngularVelocity(AngleUnit angleUnit) {
+        hub.onDiscreteRead();
+        reads++;
+        return new AngularVelocity(angleUnit, 0, 0, (float) angleUnit.fromRadians(turnRate), sampleTime);
+    }
+
+    @Override public Manufacturer getManufacturer()           { return Manufacturer.Lynx; }
+    @Override public String getDeviceName()                   { return name; }
+    @Override public String getConnectionInfo()               { return hub.getName() + "; I2C bus 0"; }
+    @Override public int getVersion()                         { return 1; }
+    @Override public void resetDeviceConfigurationForOpMode() { }
+    @Override public void close()                             { }
+}
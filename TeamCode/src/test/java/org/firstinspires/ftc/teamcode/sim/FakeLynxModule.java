@@ -0,0 +1,158 @@
+package org.firstinspires.ftc.teamcode.sim;
+
+import com.qualcomm.hardware.lynx.LynxModule;
+
+import org.firstinspires.ftc.teamcode.hardware.BulkReadHub;
+
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * A desktop stand-in for a Control Hub or Expansion Hub.
+ *
+ * It doesn't talk to anything.  Instead it counts the transactions that a real LynxModule would have
+ * issued for the reads and writes performed by the FakeDcMotorEx / FakeDigitalChannel devices attached to it,
+ * following the same rules as the three BulkCachingModes described in ConceptMotorBulkRead:
+ *
+ *  OFF     Every read is a separate transaction.
+ *  AUTO    A read is served from the cache, unless that same value has already been read since the last
+ *          bulk-read, in which case a new bulk-read is performed.
+ *  MANUAL  Only the first read after clearBulkCache() performs a bulk-read.
+ *
+ * Each write (setPower, setMode, setTargetPosition ...) is counted as one write transaction.
+ *
+ * setLatency() makes each transaction also take time, as it would on a robot: the calling thread is held for the
+ * read or write latency.  That is what HubIoExecutor needs to show reads on two hubs overlapping.  A hub is used
+ * by one thread at a time, as a LynxModule is.
+ */
+public class FakeLynxModule implements BulkReadHub {
+
+    // Each device value gets one bit in the "already read" mask used by AUTO mode.
+    static final int KEY_POSITION = 0;
+    static final int KEY_VELOCITY = 8;
+    static final int KEY_DIGITAL  = 16;
+
+    private final String name;
+
+    private LynxModule.BulkCachingMode mode = LynxModule.BulkCachingMode.OFF;
+    private boolean cacheValid = false;
+    private long    readMask   = 0;
+
+    private long readTransactions  = 0;
+    private long writeTransactions = 0;
+
+    private long readLatencyNanos  = 0;
+    private long writeLatencyNanos = 0;
+
+    public FakeLynxModule(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setBulkCachingMode(LynxModule.BulkCachingMode mode) {
+        this.mode = mode;
+        cacheValid = false;
+        readMask = 0;
+    }
+
+    public LynxModule.BulkCachingMode getBulkCachingMode() {
+        return mode;
+    }
+
+    /**
+     * Make each transaction take time.  The default is no latency.
+     *
+     * @param readMicros  time for each read transaction, bulk or discrete.
+     * @param writeMicros time for each write transaction.
+     */
+    public void setLatency(long readMicros, long writeMicros) {
+        readLatencyNanos  = readMicros * 1000;
+        writeLatencyNanos = writeMicros * 1000;
+    }
+
+    @Override
+    public void setManualCaching() {
+        setBulkCachingMode(LynxModule.BulkCachingMode.MANUAL);
+    }
+
+    @Override
+    public void clearBulkCache() {
+        cacheValid = false;
+        readMask = 0;
+    }
+
+    /**
+     * Account for a read of one value on this hub.
+     *
+     * @param key one of the KEY_ constants plus the device's port number.
+     */
+    void onRead(int key) {
+        long bit = 1L << key;
+        switch (mode) {
+            case OFF:
+                read();
+                break;
+
+            case AUTO:
+                if (!cacheValid || (readMask & bit) != 0) {
+                    read();
+                    cacheValid = true;
+                    readMask = 0;
+                }
+                readMask |= bit;
+                break;
+
+            case MANUAL:
+                if (!cacheValid) {
+                    read();
+                    cacheValid = true;
+                }
+                break;
+        }
+    }
+
+    /**
+     * Account for a read of a value that is never included in the bulk data.
+     */
+    void onDiscreteRead() {
+        read();
+    }
+
+    void onWrite() {
+        writeTransactions++;
+        hold(writeLatencyNanos);
+    }
+
+    private void read() {
+        readTransactions++;
+        hold(readLatencyNanos);
+    }
+
+    // Hold the calling thread for one transaction's latency.
+    private static void hold(long nanos) {
+        if (nanos <= 0) {
+            return;
+        }
+        long end = System.nanoTime() + nanos;
+        for (long left = nanos; left > 0; left = end - System.nanoTime()) {
+            LockSupport.parkNanos(left);
+        }
+    }
+
+    /** @return number of read transactions (discrete or bulk) this hub would have performed. */
+    public long getReadTransactions() {
+        return readTransactions;
+    }
+
+    /** @return number of write commands this hub would have received. */
+    public long getWriteTransactions() {
+        return writeTransactions;
+    }
+
+    public void resetCounts() {
+        readTransactions  = 0;
+        writeTransactions = 0;
+    }
+}
@@ -0,0 +1,62 @@
+package org.firstinspires.ftc.teamcode.sim;
+
+import com.qualcomm.robotcore.hardware.Servo;
+import com.qualcomm.robotcore.hardware.ServoController;
+
+/*
+ * A desktop stand-in for a Servo plugged into one port of a FakeLynxModule.
+ *
+ * Every setPosition() is reported to the owning hub as a write, so the hub's transaction counts reflect what the
+ * same code would cost on a real robot.  Direction and scaleRange() are applied as the SDK does, and
+ * getSimulatedPosition() returns the position the servo was last actually commanded to, from 0 to 1.
+ */
+public class FakeServo implements Servo {
+
+    private final FakeLynxModule hub;
+    private final int            port;
+    private final String         name;
+
+    private Direction direction = Direction.FORWARD;
+    private double    position  = 0;
+    private double    min       = MIN_POSITION;
+    private double    max       = MAX_POSITION;
+    private double    output    = 0;
+
+    public FakeServo(FakeLynxModule hub, int port, String name) {
+        this.hub  = hub;
+        this.port = port;
+        this.name = name;
+    }
+
+    /** @return the position the servo was last commanded to, after direction and range scaling. */
+    public double getSimulatedPosition() {
+        return output;
+    }
+
+    @Override
+    public void setPosition(double position) {
+        hub.onWrite();
+        this.position = Math.max(MIN_POSITION, Math.min(MAX_POSITION, position));
+        double p = (direction == Direction.REVERSE) ? MAX_POSITION - this.position : this.position;
+        output = min + p * (max - min);
+    }
+
+    @Override public double getPosition()                  { return position; }
+    @Override public void setDirection(Direction direction) { this.direction = direction; }
+    @Override public Direction getDirection()               { return direction; }
+
+    @Override
+    public void scaleRange(double min, double max) {
+        this.min = Math.min(min, max);
+        this.max = Math.max(min, max);
+    }
+
+    @Override public ServoController getController()          { return null; }
+    @Override public int getPortNumber()                      { return port; }
+    @Override public Manufacturer getManufacturer()           { return Manufacturer.Other; }
+    @Override public String getDeviceName()                   { return name; }
+    @Override public String getConnectionInfo()               { return hub.getName() + "; port " + port; }
+    @Override public int getVersion()                         { return 1; }
+    @Override public void resetDeviceConfigurationForOpMode() { }
+    @Override public void close()                             { }
+}
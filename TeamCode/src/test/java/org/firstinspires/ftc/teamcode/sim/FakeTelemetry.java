@@ -0,0 +1,86 @@
+package org.firstinspires.ftc.teamcode.sim;
+
+import org.firstinspires.ftc.robotcore.external.Telemetry;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * A Telemetry that goes nowhere, for running telemetry code off-robot or in benchmarks.
+ *
+ * Every Telemetry method is accepted.  Methods returning one of the Telemetry sub-interfaces (Item, Line, Log ...)
+ * return a single shared do-nothing instance of that interface, so chained calls work.  The only state kept
+ * is the number of update() calls and the last value passed to any setValue() or addData() call.
+ * An update listener can be attached, so a simulator can treat each update() as the end of an OpMode loop.
+ */
+public class FakeTelemetry implements InvocationHandler {
+
+    private final Map<Class<?>, Object> proxies = new HashMap<>();
+
+    private long     updateCount    = 0;
+    private Object   lastValue      = null;
+    private Runnable updateListener = null;
+
+    /** @return the Telemetry object to hand to the code under test. */
+    public Telemetry getTelemetry() {
+        return (Telemetry) proxyFor(Telemetry.class);
+    }
+
+    /** Run something on every update() call, on the caller's thread.  Pass null to stop. */
+    public void setUpdateListener(Runnable listener) {
+        updateListener = listener;
+    }
+
+    /** @return number of times update() has been called. */
+    public long getUpdateCount() {
+        return updateCount;
+    }
+
+    /** @return the last value passed to setValue() or addData(). */
+    public Object getLastValue() {
+        return lastValue;
+    }
+
+    private Object proxyFor(Class<?> type) {
+        Object proxy = proxies.get(type);
+        if (proxy == null) {
+            proxy = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, this);
+            proxies.put(type, proxy);
+        }
+        return proxy;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        String name = method.getName();
+        if (name.equals("update")) {
+            updateCount++;
+            if (updateListener != null) {
+                updateListener.run();
+            }
+        } else if ((name.equals("setValue") || name.equals("addData")) && args != null && args.length > 0) {
+            lastValue = args[args.length - 1];
+        } else if (name.equals("toString")) {
+            return "FakeTelemetry";
+        } else if (name.equals("hashCode")) {
+            return System.identityHashCode(proxy);
+        } else if (name.equals("equals")) {
+            return proxy == args[0];
+        }
+
+        Class<?> type = method.getReturnType();
+        if (type == boolean.class) return (name.equals("update") || name.startsWith("remove"));
+        if (type == int.class)     return 0;
+        if (type == long.class)    return 0L;
+        if (type == double.class)  return 0.0;
+        if (type == float.class)   return 0f;
+        if (type.isInterface() && type.getName().startsWith(Telemetry.class.getName())) {
+            return proxyFor(type);
+        }
+        if (type == String.class)  return "";
+        return null;
+    }
+}
@@ -0,0 +1,291 @@
+package org.firstinspires.ftc.teamcode.sim;
+
+import org.firstinspires.ftc.teamcode.localization.FusedLocalizer;
+import org.firstinspires.ftc.teamcode.localization.LatencyCompensatedPoseEstimator;
+
+import java.util.Random;
+
+/*
+ * Compares each motion sensor on its own with FusedLocalizer's fusion of them, on a synthetic trajectory.
+ *
+ * A mecanum robot drives for 20 seconds, driving, strafing and turning at once, with speeds that rise and fall.
+ * The control loop runs every 10 mS, and each loop reads:
+ *  - drive encoders: the robot-relative motion since the last loop, with scale errors (wheels slip more strafing,
+ *    and the track width is a little off) and noise,
+ *  - an IMU's yaw rate, with a small bias and noise,
+ *  - a SparkFun OTOS, on every other loop only: field position and heading that drift slowly, with noise, and field
+ *    velocity with noise.
+ * The sensors are localized four ways:
+ *  - "Encoders":           dead reckoning, as RobotAutoDriveByEncoder_Linear would,
+ *  - "OTOS":               the OTOS' own position,
+ *  - "EKF encoders + IMU": FusedLocalizer with the encoders and the IMU,
+ *  - "EKF all":            FusedLocalizer with all three.
+ *
+ * For each, the result shows the RMS and final position errors and the RMS heading error.  For the filters, it also
+ * shows how often the true position was inside the filter's own 95% uncertainty ellipse: near 95% means the
+ * covariance it publishes can be believed.  The fused run is also timed, per loop.
+ *
+ * The encoders' scale errors are constant, which the filter can't tell from noise, so with encoders and the IMU alone
+ * its position still drifts, and further than its covariance says.  The OTOS is what bounds it.  (With the track
+ * width error the other way, dead reckoning's heading error happens to cancel much of its scale error on this path,
+ * and it ends nearer than the filter without the OTOS.)
+ */
+public class FusedLocalizationSimulation {
+
+    /**
+     * One way of localizing, over the whole trajectory.
+     */
+    public static class Result {
+        private final String name;
+        private final double rmsError;
+        private final double finalError;
+        private final double rmsHeadingDegrees;
+        private final double contained;
+
+        Result(String name, double rmsError, double finalError, double rmsHeadingDegrees, double contained) {
+            this.name              = name;
+            this.rmsError          = rmsError;
+            this.finalError        = finalError;
+            this.rmsHeadingDegrees = rmsHeadingDegrees;
+            this.contained         = contained;
+        }
+
+        public String getName()              { return name; }
+
+        /** @return RMS position error, in inches. */
+        public double getRmsError()          { return rmsError; }
+
+        /** @return position error at the end, in inches. */
+        public double getFinalError()        { return finalError; }
+
+        /** @return RMS heading error, in degrees. */
+        public double getRmsHeadingDegrees() { return rmsHeadingDegrees; }
+
+        /** @return fraction of loops with the true position inside the 95% ellipse, or -1 with no covariance. */
+        public double getContained()         { return contained; }
+
+        public String summary() {
+            return String.format("%-20s error %5.2f in RMS, %5.2f in at the end, %5.2f deg RMS%s",
+                    name, rmsError, finalError, rmsHeadingDegrees,
+                    contained < 0 ? "" : String.format(", %3.0f%% inside 95%% ellipse", contained * 100));
+        }
+    }
+
+    static final double LOOP_SECONDS   = 0.010;
+    static final int    OTOS_INTERVAL  = 2;        // Loops between OTOS reads.
+    static final int    SUBSTEPS       = 10;       // Truth is integrated this much finer than the loop.
+
+    // Sensor errors.
+    static final double FORWARD_SCALE  = 1.01;     // Encoder distance over true distance.
+    static final double LEFT_SCALE     = 0.97;     // Strafing slips.
+    static final double TURN_SCALE     = 0.97;     // Track width error.
+    static final double ENCODER_NOISE  = 0.02;     // Inches per reading.
+    static final double ENCODER_TURN   = 0.0005;   // Radians per reading.
+    static final double IMU_BIAS       = 0.001;    // Radians per second.
+    static final double IMU_NOISE      = 0.01;
+    static final double OTOS_DRIFT     = 0.05;     // Inches per root second, random walk.
+    static final double OTOS_TURN_DRIFT = 0.002;   // Radians per root second.
+    static final double OTOS_NOISE     = 0.1;      // Inches.
+    static final double OTOS_HEADING   = 0.003;    // Radians.
+    static final double OTOS_VELOCITY  = 1.0;      // Inches per second.
+    static final double OTOS_TURN_RATE = 0.02;     // Radians per second.
+
+    private final int loops;
+
+    // Per loop: truth and sensor readings, recorded once so every method sees the same ones.
+    private final double[] truthX, truthY, truthHeading;
+    private final double[] encoderForward, encoderLeft, encoderTurn, imuRate;
+    private final double[] otosX, otosY, otosHeading, otosXVelocity, otosYVelocity, otosTurnRate;
+
+    private double loopMicros;
+
+    /**
+     * @param seconds how long to drive.
+     * @param seed    for the sensor noise.
+     */
+    public FusedLocalizationSimulation(double seconds, long seed) {
+        loops          = (int) Math.round(seconds / LOOP_SECONDS);
+        truthX         = new double[loops];
+        truthY         = new double[loops];
+        truthHeading   = new double[loops];
+        encoderForward = new double[loops];
+        encoderLeft    = new double[loops];
+        encoderTurn    = new double[loops];
+        imuRate        = new double[loops];
+        otosX          = new double[loops];
+        otosY          = new double[loops];
+        otosHeading    = new double[loops];
+        otosXVelocity  = new double[loops];
+        otosYVelocity  = new double[loops];
+        otosTurnRate   = new double[loops];
+        record(new Random(seed));
+    }
+
+    /** @return the robot's velocity in its own frame at time t: forward, left and turn rate. */
+    static void velocity(double t, double[] velocity) {
+        velocity[0] = 30 * (1 - Math.cos(2 * Math.PI * t / 10)) / 2 + 5 * Math.sin(2 * Math.PI * t / 3);
+        velocity[1] = 15 * Math.sin(2 * Math.PI * t / 7);
+        velocity[2] = 1.2 * Math.sin(2 * Math.PI * t / 6);
+    }
+
+    private void record(Random random) {
+        double[] v = new double[3];
+        double x = 0, y = 0, heading = 0;
+        double driftX = 0, driftY = 0, driftHeading = 0;
+        double dt = LOOP_SECONDS / SUBSTEPS;
+        for (int loop = 0; loop < loops; loop++) {
+            double forward = 0, left = 0, turn = 0;
+            for (int step = 0; step < SUBSTEPS; step++) {
+                double t = (loop * SUBSTEPS + step + 0.5) * dt;
+                velocity(t, v);
+                double mid = heading + v[2] * dt / 2;
+                x       += (v[0] * Math.cos(mid) - v[1] * Math.sin(mid)) * dt;
+                y       += (v[0] * Math.sin(mid) + v[1] * Math.cos(mid)) * dt;
+                heading += v[2] * dt;
+                // Robot-relative motion over the loop, at the loop's midpoint heading, as odometry measures it.
+                forward += v[0] * dt;
+                left    += v[1] * dt;
+                turn    += v[2] * dt;
+            }
+            truthX[loop]       = x;
+            truthY[loop]       = y;
+            truthHeading[loop] = LatencyCompensatedPoseEstimator.normalize(heading);
+
+            encoderForward[loop] = forward * FORWARD_SCALE + ENCODER_NOISE * random.nextGaussian();
+            encoderLeft[loop]    = left * LEFT_SCALE + ENCODER_NOISE * random.nextGaussian();
+            encoderTurn[loop]    = turn * TURN_SCALE + ENCODER_TURN * random.nextGaussian();
+
+            velocity((loop + 1) * LOOP_SECONDS, v);
+            imuRate[loop] = v[2] + IMU_BIAS + IMU_NOISE * random.nextGaussian();
+
+            double root = Math.sqrt(LOOP_SECONDS);
+            driftX       += OTOS_DRIFT * root * random.nextGaussian();
+            driftY       += OTOS_DRIFT * root * random.nextGaussian();
+            driftHeading += OTOS_TURN_DRIFT * root * random.nextGaussian();
+            double cos = Math.cos(heading), sin = Math.sin(heading);
+            otosX[loop]         = x + driftX + OTOS_NOISE * random.nextGaussian();
+            otosY[loop]         = y + driftY + OTOS_NOISE * random.nextGaussian();
+            otosHeading[loop]   = LatencyCompensatedPoseEstimator.normalize(
+                                      heading + driftHeading + OTOS_HEADING * random.nextGaussian());
+            otosXVelocity[loop] = v[0] * cos - v[1] * sin + OTOS_VELOCITY * random.nextGaussian();
+            otosYVelocity[loop] = v[0] * sin + v[1] * cos + OTOS_VELOCITY * random.nextGaussian();
+            otosTurnRate[loop]  = v[2] + OTOS_TURN_RATE * random.nextGaussian();
+        }
+    }
+
+    /**
+     * Dead reckoning from the encoders alone.
+     */
+    public Result encoders() {
+        Errors errors = new Errors();
+        double x = 0, y = 0, heading = 0;
+        for (int loop = 0; loop < loops; loop++) {
+            double mid = heading + encoderTurn[loop] / 2;
+            x       += encoderForward[loop] * Math.cos(mid) - encoderLeft[loop] * Math.sin(mid);
+            y       += encoderForward[loop] * Math.sin(mid) + encoderLeft[loop] * Math.cos(mid);
+            heading += encoderTurn[loop];
+            errors.add(loop, x, y, heading, null);
+        }
+        return errors.result("Encoders", -1);
+    }
+
+    /**
+     * The OTOS' own position, held between its reads.
+     */
+    public Result otos() {
+        Errors errors = new Errors();
+        double x = 0, y = 0, heading = 0;
+        for (int loop = 0; loop < loops; loop++) {
+            if (loop % OTOS_INTERVAL == 0) {
+                x       = otosX[loop];
+                y       = otosY[loop];
+                heading = otosHeading[loop];
+            }
+            errors.add(loop, x, y, heading, null);
+        }
+        return errors.result("OTOS", -1);
+    }
+
+    /**
+     * @return a filter with noise settings to match the simulated sensors.
+     */
+    public static FusedLocalizer localizer() {
+        FusedLocalizer localizer = new FusedLocalizer();
+        localizer.setPose(0, 0, 0, 0.1, 0.001);
+        localizer.setProcessNoise(60, 10);
+        localizer.setOdometryNoise(5, 0.1);
+        localizer.setImuNoise(0.02);
+        localizer.setOtosNoise(0.5, 0.01, 2 * OTOS_VELOCITY, 2 * OTOS_TURN_RATE);
+        return localizer;
+    }
+
+    /**
+     * FusedLocalizer, with or without the OTOS.
+     */
+    public Result fused(boolean useOtos) {
+        FusedLocalizer localizer = localizer();
+        Errors errors = new Errors();
+        long   nanos  = 0;
+        long   start  = 1_000_000_000L;
+        localizer.addOdometry(start, 0, 0, 0);
+        for (int loop = 0; loop < loops; loop++) {
+            long now = start + Math.round((loop + 1) * LOOP_SECONDS * 1e9);
+            long begin = System.nanoTime();
+            run(localizer, loop, now, useOtos);
+            nanos += System.nanoTime() - begin;
+            errors.add(loop, localizer.getX(), localizer.getY(), localizer.getHeading(), localizer);
+        }
+        if (useOtos) {
+            loopMicros = nanos / 1e3 / loops;
+        }
+        return errors.result(useOtos ? "EKF all" : "EKF encoders + IMU", 0);
+    }
+
+    /**
+     * One control loop's measurements: the encoders and IMU, and the OTOS on every OTOS_INTERVAL-th loop.
+     */
+    public void run(FusedLocalizer localizer, int loop, long now, boolean useOtos) {
+        localizer.addOdometry(now, encoderForward[loop], encoderLeft[loop], encoderTurn[loop]);
+        localizer.addImuYawRate(now, imuRate[loop]);
+        if (useOtos && loop % OTOS_INTERVAL == 0) {
+            localizer.addOtos(now, otosX[loop], otosY[loop], otosHeading[loop],
+                              otosXVelocity[loop], otosYVelocity[loop], otosTurnRate[loop]);
+        }
+    }
+
+    /** @return loops recorded. */
+    public int getLoops()             { return loops; }
+
+    /** @return mean time FusedLocalizer took per loop with all three sensors, in microseconds. */
+    public double getLoopMicros()     { return loopMicros; }
+
+    // Accumulates the errors of one method.
+    private class Errors {
+        private double sumSquares, sumHeadingSquares, finalError;
+        private int    contained;
+
+        void add(int loop, double x, double y, double heading, FusedLocalizer localizer) {
+            double ex = x - truthX[loop], ey = y - truthY[loop];
+            double eh = LatencyCompensatedPoseEstimator.normalize(heading - truthHeading[loop]);
+            sumSquares        += ex * ex + ey * ey;
+            sumHeadingSquares += eh * eh;
+            finalError         = Math.hypot(ex, ey);
+            if (localizer != null) {
+                // Inside the 95% ellipse when e' P^-1 e is below the chi-squared (2 dof) value 5.99.
+                double xx = localizer.getCovariance(FusedLocalizer.X, FusedLocalizer.X);
+                double xy = localizer.getCovariance(FusedLocalizer.X, FusedLocalizer.Y);
+                double yy = localizer.getCovariance(FusedLocalizer.Y, FusedLocalizer.Y);
+                double determinant = xx * yy - xy * xy;
+                if (determinant > 0 && (ex * ex * yy - 2 * ex * ey * xy + ey * ey * xx) / determinant < 5.99) {
+                    contained++;
+                }
+            }
+        }
+
+        Result result(String name, int hasCovariance) {
+            return new Result(name, Math.sqrt(sumSquares / loops), finalError,
+                              Math.toDegrees(Math.sqrt(sumHeadingSquares / loops)),
+                              hasCovariance < 0 ? -1 : (double) contained / loops);
+        }
+    }
+}
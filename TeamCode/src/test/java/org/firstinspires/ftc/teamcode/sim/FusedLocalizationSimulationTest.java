@@ -0,0 +1,43 @@
+package org.firstinspires.ftc.teamcode.sim;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertTrue;
+
+/*
+ * Runs FusedLocalizationSimulation's trajectory, and checks that fusing the sensors beats each of them alone, and
+ * that the filter's covariance can be believed once the OTOS bounds it.
+ */
+public class FusedLocalizationSimulationTest {
+
+    private static FusedLocalizationSimulation.Result encoders, otos, encodersAndImu, all;
+
+    @BeforeClass
+    public static void run() {
+        FusedLocalizationSimulation simulation = new FusedLocalizationSimulation(20, 42);
+        encoders       = simulation.encoders();
+        otos           = simulation.otos();
+        encodersAndImu = simulation.fused(false);
+        all            = simulation.fused(true);
+    }
+
+    @Test
+    public void theImuHelpsTheEncoders() {
+        assertTrue(encodersAndImu.summary(), encodersAndImu.getRmsError() < 0.5 * encoders.getRmsError());
+        assertTrue(encodersAndImu.summary(), encodersAndImu.getRmsHeadingDegrees() < 1.0);
+    }
+
+    @Test
+    public void fusingEverythingBeatsEachSensor() {
+        assertTrue(all.summary(), all.getRmsError() < otos.getRmsError());
+        assertTrue(all.summary(), all.getRmsError() < 0.5);
+        assertTrue(all.summary(), all.getRmsHeadingDegrees() < otos.getRmsHeadingDegrees());
+    }
+
+    @Test
+    public void theCovarianceCanBeBelieved() {
+        assertTrue(all.summary(), all.getContained() > 0.9);
+        assertTrue(encoders.summary(), encoders.getContained() < 0);
+    }
+}
@@ -0,0 +1,181 @@
+package org.firstinspires.ftc.teamcode.sim;
+
+import com.qualcomm.robotcore.hardware.DcMotorEx;
+import com.qualcomm.robotcore.hardware.Servo;
+
+import org.firstinspires.ftc.teamcode.hardware.HardwareSnapshot;
+import org.firstinspires.ftc.teamcode.hardware.HubIoExecutor;
+
+import java.util.Arrays;
+
+/*
+ * Runs a two-hub robot's I/O through a HubIoExecutor, once with the hubs one after another and once with a worker
+ * per hub, in real time on FakeLynxModules that take as long as real hubs, and reports the cycle times.
+ *
+ * The Control Hub has four drive motors, the Expansion Hub an arm motor, a limit switch and two claw servos, as
+ * a mecanum robot built from BasicOmniOpMode_Linear and RobotHardware would.  Each cycle reads every input, and
+ * the loop then sets the drive powers (changing every cycle, as a driver's sticks do), the arm power (changing
+ * every 10th cycle) and the claw (every 25th); the changes are sent at the start of the next cycle.
+ *
+ * Every simulated input is changed before each cycle, and each Frame is checked against them, which shows
+ * that the merged Frame holds every hub's values from the same cycle.
+ */
+public class HubIoSimulation {
+
+    /**
+     * The outcome of one run.
+     */
+    public static class Result {
+        private final boolean parallel;
+        private final long    cycles;
+        private final double  meanCycleMs;
+        private final double  controlHubMs;
+        private final double  expansionHubMs;
+        private final double  overlap;
+        private final long    writes;
+        private final int     mismatches;
+
+        Result(boolean parallel, long cycles, double meanCycleMs, double controlHubMs, double expansionHubMs,
+               double overlap, long writes, int mismatches) {
+            this.parallel       = parallel;
+            this.cycles         = cycles;
+            this.meanCycleMs    = meanCycleMs;
+            this.controlHubMs   = controlHubMs;
+            this.expansionHubMs = expansionHubMs;
+            this.overlap        = overlap;
+            this.writes         = writes;
+            this.mismatches     = mismatches;
+        }
+
+        /** @return true for a worker per hub, false for the hubs one after another. */
+        public boolean isParallel()        { return parallel; }
+
+        public long getCycles()            { return cycles; }
+
+        /** @return mean time for one update(), in milliseconds. */
+        public double getMeanCycleMs()     { return meanCycleMs; }
+
+        /** @return mean time for the Control Hub's writes and reads in a cycle, in milliseconds. */
+        public double getControlHubMs()    { return controlHubMs; }
+
+        /** @return mean time for the Expansion Hub's writes and reads in a cycle, in milliseconds. */
+        public double getExpansionHubMs()  { return expansionHubMs; }
+
+        /** @return HubIoExecutor.getOverlap(). */
+        public double getOverlap()         { return overlap; }
+
+        /** @return write transactions sent, on both hubs. */
+        public long getWrites()            { return writes; }
+
+        /** @return Frames that didn't match the simulated inputs.  Should be 0. */
+        public int getMismatches()         { return mismatches; }
+
+        public String summary() {
+            return String.format("%5.2f mS/cycle (Control Hub %5.2f, Expansion Hub %5.2f), overlap %3.0f%%, "
+                            + "%d writes in %d cycles, %d bad frames",
+                    meanCycleMs, controlHubMs, expansionHubMs, 100 * overlap, writes, cycles, mismatches);
+        }
+    }
+
+    private final long controlHubMicros;
+    private final long expansionHubMicros;
+    private final int  cycles;
+
+    /**
+     * @param controlHubMicros   time each Control Hub transaction takes.
+     * @param expansionHubMicros time each Expansion Hub transaction takes (it is reached over RS-485, or USB).
+     * @param cycles             number of cycles to run.
+     */
+    public HubIoSimulation(long controlHubMicros, long expansionHubMicros, int cycles) {
+        this.controlHubMicros   = controlHubMicros;
+        this.expansionHubMicros = expansionHubMicros;
+        this.cycles             = cycles;
+    }
+
+    /** Run with every hub's I/O on the calling thread, one hub after another. */
+    public Result serial() {
+        return run(false);
+    }
+
+    /** Run with a worker thread per hub. */
+    public Result parallel() {
+        return run(true);
+    }
+
+    private Result run(boolean parallel) {
+        FakeLynxModule controlHub   = new FakeLynxModule("Control Hub");
+        FakeLynxModule expansionHub = new FakeLynxModule("Expansion Hub 2");
+        controlHub.setLatency(controlHubMicros, controlHubMicros);
+        expansionHub.setLatency(expansionHubMicros, expansionHubMicros);
+
+        FakeDcMotorEx[] drive = {
+                new FakeDcMotorEx(controlHub, 0, "left_front_drive"),
+                new FakeDcMotorEx(controlHub, 1, "right_front_drive"),
+                new FakeDcMotorEx(controlHub, 2, "left_back_drive"),
+                new FakeDcMotorEx(controlHub, 3, "right_back_drive"),
+        };
+        FakeDcMotorEx      arm       = new FakeDcMotorEx(expansionHub, 0, "arm");
+        FakeDigitalChannel armLimit  = new FakeDigitalChannel(expansionHub, 0, "arm_limit");
+        FakeServo          leftHand  = new FakeServo(expansionHub, 0, "left_hand");
+        FakeServo          rightHand = new FakeServo(expansionHub, 1, "right_hand");
+
+        HubIoExecutor io = new HubIoExecutor(Arrays.asList(controlHub, expansionHub));
+        int[] driveIndex = new int[drive.length];
+        DcMotorEx[] drivePower = new DcMotorEx[drive.length];
+        for (int i = 0; i < drive.length; i++) {
+            driveIndex[i] = io.addMotor(0, drive[i]);
+            drivePower[i] = io.getActuators(0).motor(drive[i]);
+        }
+        int       armIndex   = io.addMotor(1, arm);
+        int       limitIndex = io.addDigital(1, armLimit);
+        DcMotorEx armPower   = io.getActuators(1).motor(arm);
+        Servo     leftClaw   = io.getActuators(1).servo(leftHand);
+        Servo     rightClaw  = io.getActuators(1).servo(rightHand);
+        io.setParallel(parallel);
+        io.start();
+
+        int mismatches = 0;
+        try {
+            for (int cycle = 1; cycle <= cycles; cycle++) {
+                // The robot moves.
+                for (int i = 0; i < drive.length; i++) {
+                    drive[i].setSimulatedPosition(cycle * 10 + i);
+                    drive[i].setSimulatedVelocity(cycle + 0.5 * i);
+                }
+                arm.setSimulatedPosition(-cycle);
+                armLimit.setSimulatedState((cycle & 1) == 0);
+
+                HardwareSnapshot.Frame frame = io.update();
+                boolean good = frame.getPosition(armIndex) == -cycle
+                        && frame.getDigital(limitIndex) == ((cycle & 1) == 0);
+                for (int i = 0; i < drive.length; i++) {
+                    good &= frame.getPosition(driveIndex[i]) == cycle * 10 + i
+                            && frame.getVelocity(driveIndex[i]) == cycle + 0.5 * i;
+                }
+                if (!good) {
+                    mismatches++;
+                }
+
+                // The control loop's outputs, sent during the next update().
+                double stick = Math.sin(cycle * 0.05);
+                for (int i = 0; i < drive.length; i++) {
+                    drivePower[i].setPower(((i & 1) == 0) ? stick : -stick);
+                }
+                armPower.setPower(((cycle / 10) & 1) == 0 ? 0.5 : -0.25);
+                double claw = ((cycle / 25) & 1) == 0 ? 0.1 : -0.1;
+                leftClaw.setPosition(0.5 + claw);
+                rightClaw.setPosition(0.5 - claw);
+            }
+        } finally {
+            try {
+                io.stop();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        return new Result(parallel, io.getCycles(), io.getMeanCycleMicros() / 1000,
+                io.getMeanHubMicros(0) / 1000, io.getMeanHubMicros(1) / 1000, io.getOverlap(),
+                controlHub.getWriteTransactions() + expansionHub.getWriteTransactions(), mismatches);
+    }
+}
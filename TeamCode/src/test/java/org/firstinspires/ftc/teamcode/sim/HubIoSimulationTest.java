@@ -0,0 +1,54 @@
+package org.firstinspires.ftc.teamcode.sim;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/*
+ * Runs a two-hub robot's I/O through a HubIoExecutor both ways, in real time, and checks that a worker per hub
+ * overlaps the hubs without mixing up their values.  The timings each way are printed.
+ */
+public class HubIoSimulationTest {
+
+    static final int CYCLES = 200;
+
+    private static HubIoSimulation.Result serial, parallel;
+
+    @BeforeClass
+    public static void run() {
+        HubIoSimulation simulation = new HubIoSimulation(2000, 3000, CYCLES);
+        serial   = simulation.serial();
+        parallel = simulation.parallel();
+        System.out.println(serial.summary());
+        System.out.println(parallel.summary());
+    }
+
+    @Test
+    public void everyFrameHoldsOneCyclesValues() {
+        for (HubIoSimulation.Result result : new HubIoSimulation.Result[] {serial, parallel}) {
+            assertEquals(result.summary(), CYCLES, result.getCycles());
+            assertEquals(result.summary(), 0, result.getMismatches());
+        }
+    }
+
+    @Test
+    public void framesStayConsistentOverALongRun() {
+        HubIoSimulation.Result result = new HubIoSimulation(0, 0, 20_000).parallel();
+        assertEquals(result.summary(), 0, result.getMismatches());
+    }
+
+    @Test
+    public void bothWaysSendTheSameWrites() {
+        assertEquals(serial.getWrites(), parallel.getWrites());
+    }
+
+    @Test
+    public void aWorkerPerHubOverlapsTheHubs() {
+        assertTrue(serial.summary(), serial.getOverlap() < 0.1);
+        assertTrue(parallel.summary(), parallel.getOverlap() > 0.5);
+        assertTrue(serial.summary() + " / " + parallel.summary(),
+                   parallel.getMeanCycleMs() < 0.9 * serial.getMeanCycleMs());
+    }
+}
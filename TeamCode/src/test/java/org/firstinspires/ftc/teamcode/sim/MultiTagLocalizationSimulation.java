@@ -0,0 +1,270 @@
+package org.firstinspires.ftc.teamcode.sim;
+
+import org.firstinspires.ftc.teamcode.localization.LatencyCompensatedPoseEstimator;
+import org.firstinspires.ftc.teamcode.localization.MultiTagLocalizer;
+import org.firstinspires.ftc.teamcode.localization.TagRelativePose;
+import org.firstinspires.ftc.teamcode.vision.RecordedDetections;
+import org.firstinspires.ftc.vision.apriltag.AprilTagDetection;
+
+import java.util.Collections;
+import java.util.List;
+
+/*
+ * Compares localizing from one tag, as the drive-to-tag samples do, with MultiTagLocalizer's joint fit.
+ *
+ * A robot with a C920 drives up to a backdrop from 70 inches away, weaving as it goes, so that it sees two or three of
+ * the backdrop's tags in every frame.  Each frame's detections are recorded (SimulatedTagCamera, with corner and
+ * ftcPose noise), saved as text and loaded back, and the recording is localized three ways:
+ *  - "First tag, ftcPose":  TagRelativePose on the first detection, as ConceptAprilTagPoseFusion does,
+ *  - "First tag, corners":  MultiTagLocalizer given only that detection,
+ *  - "All tags":            MultiTagLocalizer given every detection.
+ *
+ * The backdrop's tags can hang vertically, or lean back as the field's do, which the localizer must know about to
+ * place their corners.
+ *
+ * For each, the result shows the pose error and the largest frame-to-frame jump in that error, which is what the
+ * drive sees when the chosen tag changes.  The "All tags" run is also timed.
+ */
+public class MultiTagLocalizationSimulation {
+
+    /**
+     * One way of localizing, over the whole recording.
+     */
+    public static class Result {
+        private final String name;
+        private final int    frames;
+        private final int    solved;
+        private final double rmsError;
+        private final double rmsHeadingDegrees;
+        private final double maxJump;
+
+        Result(String name, int frames, int solved, double rmsError, double rmsHeadingDegrees, double maxJump) {
+            this.name              = name;
+            this.frames            = frames;
+            this.solved            = solved;
+            this.rmsError          = rmsError;
+            this.rmsHeadingDegrees = rmsHeadingDegrees;
+            this.maxJump           = maxJump;
+        }
+
+        public String getName()              { return name; }
+
+        /** @return frames with a pose, out of getFrames(). */
+        public int getSolved()               { return solved; }
+
+        public int getFrames()               { return frames; }
+
+        /** @return RMS position error, in inches. */
+        public double getRmsError()          { return rmsError; }
+
+        /** @return RMS heading error, in degrees. */
+        public double getRmsHeadingDegrees() { return rmsHeadingDegrees; }
+
+        /** @return largest change in position error between consecutive solved frames, in inches. */
+        public double getMaxJump()           { return maxJump; }
+
+        public String summary() {
+            return String.format("%-20s %4d/%d frames, error %5.2f in, %5.2f deg RMS, largest jump %5.2f in",
+                    name, solved, frames, rmsError, rmsHeadingDegrees, maxJump);
+        }
+    }
+
+    static final double CAMERA_FORWARD = 6.0;
+    static final double CAMERA_LEFT    = 0.0;
+    static final double CAMERA_HEIGHT  = 8.0;
+
+    private final double pixelSigma;
+    private final double yawSigmaDegrees;
+    private final int    frameCount;
+    private final double backdropTilt;
+
+    private RecordedDetections recording;
+    private double[]           truth;       // x, y, heading per frame.
+    private int                multiTagFrames;
+    private double             solveMicros;
+
+    /**
+     * @param pixelSigma      corner noise, in pixels.
+     * @param yawSigmaDegrees ftcPose yaw noise, in degrees.
+     * @param frameCount      frames along the path.
+     */
+    public MultiTagLocalizationSimulation(double pixelSigma, double yawSigmaDegrees, int frameCount) {
+        this(pixelSigma, yawSigmaDegrees, frameCount, 0);
+    }
+
+    /**
+     * @param backdropTilt how far (radians) the backdrop's tags lean back from vertical.
+     */
+    public MultiTagLocalizationSimulation(double pixelSigma, double yawSigmaDegrees, int frameCount,
+                                          double backdropTilt) {
+        this.pixelSigma      = pixelSigma;
+        this.yawSigmaDegrees = yawSigmaDegrees;
+        this.frameCount      = frameCount;
+        this.backdropTilt    = backdropTilt;
+    }
+
+    /**
+     * @return the camera used for the recording, with the field's tags and the noise set.
+     */
+    public SimulatedTagCamera camera(long seed) {
+        SimulatedTagCamera camera = SimulatedTagCamera.c920(seed);
+        camera.addBackdropTags(backdropTilt);
+        camera.setCamera(CAMERA_FORWARD, CAMERA_LEFT, CAMERA_HEIGHT);
+        camera.setNoise(pixelSigma, yawSigmaDegrees);
+        return camera;
+    }
+
+    /**
+     * @return a localizer with the same field layout and camera as camera().
+     */
+    public static MultiTagLocalizer localizer(SimulatedTagCamera camera) {
+        MultiTagLocalizer localizer = new MultiTagLocalizer();
+        for (double[] tag : camera.getTags()) {
+            localizer.addTag((int) tag[0], tag[1], tag[2], tag[3], SimulatedTagCamera.orientation(tag[4], tag[6]),
+                             tag[5]);
+        }
+        localizer.setLensIntrinsics(622.001, 622.001, 319.803, 241.251);
+        localizer.setCamera(CAMERA_FORWARD, CAMERA_LEFT, CAMERA_HEIGHT, 0);
+        return localizer;
+    }
+
+    /**
+     * Drive the path, and record what the camera sees.  The recording goes through toText() and fromText(), as a
+     * recording from the robot would.
+     */
+    public RecordedDetections record(SimulatedTagCamera camera) {
+        RecordedDetections live = new RecordedDetections();
+        truth = new double[3 * frameCount];
+        multiTagFrames = 0;
+        for (int f = 0; f < frameCount; f++) {
+            double s = f / (double) (frameCount - 1);
+            double x = -12 + 48 * s;
+            double y = 24 + 12 * s;
+            double heading = Math.toRadians(15 * Math.sin(3 * Math.PI * s));
+            List<AprilTagDetection> detections = camera.detect(x, y, heading, f * 33_000_000L);
+            live.record(f * 33_000_000L, detections);
+            truth[3 * f]     = x;
+            truth[3 * f + 1] = y;
+            truth[3 * f + 2] = heading;
+            if (detections.size() > 1) {
+                multiTagFrames++;
+            }
+        }
+        recording = RecordedDetections.fromText(live.toText());
+        return recording;
+    }
+
+    /** @return frames of the last recording that saw more than one tag. */
+    public int getMultiTagFrames() { return multiTagFrames; }
+
+    /** @return mean time for one "All tags" solve, in microseconds. */
+    public double getSolveMicros() { return solveMicros; }
+
+    public Result firstTagPose(SimulatedTagCamera camera) {
+        double[] pose = new double[3];
+        Stats stats = new Stats();
+        for (int f = 0; f < recording.getFrameCount(); f++) {
+            AprilTagDetection first = first(recording.getDetections(f));
+            if (first == null) {
+                stats.miss();
+                continue;
+            }
+            double[] tag = find(camera, first.id);
+            TagRelativePose.robotPoseFromTag(tag[1], tag[2], tag[4], first.ftcPose, CAMERA_FORWARD, CAMERA_LEFT, pose);
+            stats.add(f, pose[0], pose[1], pose[2]);
+        }
+        return stats.result("First tag, ftcPose");
+    }
+
+    public Result firstTagCorners(SimulatedTagCamera camera) {
+        MultiTagLocalizer localizer = localizer(camera);
+        Stats stats = new Stats();
+        for (int f = 0; f < recording.getFrameCount(); f++) {
+            AprilTagDetection first = first(recording.getDetections(f));
+            if (first != null && localizer.solve(Collections.singletonList(first))) {
+                stats.add(f, localizer.getX(), localizer.getY(), localizer.getHeading());
+            } else {
+                stats.miss();
+            }
+        }
+        return stats.result("First tag, corners");
+    }
+
+    public Result allTags(SimulatedTagCamera camera) {
+        MultiTagLocalizer localizer = localizer(camera);
+        Stats stats = new Stats();
+        for (int f = 0; f < recording.getFrameCount(); f++) {
+            if (localizer.solve(recording.getDetections(f))) {
+                stats.add(f, localizer.getX(), localizer.getY(), localizer.getHeading());
+            } else {
+                stats.miss();
+            }
+        }
+        solveMicros = time(localizer, recording, 200);
+        return stats.result("All tags");
+    }
+
+    /**
+     * @return mean microseconds per frame for localizer.solve() over a recording, after a warm-up pass.
+     */
+    public static double time(MultiTagLocalizer localizer, RecordedDetections recording, int passes) {
+        int frames = recording.getFrameCount();
+        for (int f = 0; f < frames; f++) {
+            localizer.solve(recording.getDetections(f));
+        }
+        long start = System.nanoTime();
+        for (int pass = 0; pass < passes; pass++) {
+            for (int f = 0; f < frames; f++) {
+                localizer.solve(recording.getDetections(f));
+            }
+        }
+        return (System.nanoTime() - start) / 1e3 / passes / Math.max(1, frames);
+    }
+
+    // The tag the samples would drive off: the first detection, with DESIRED_TAG_ID = -1.
+    private static AprilTagDetection first(List<AprilTagDetection> detections) {
+        return detections.isEmpty() ? null : detections.get(0);
+    }
+
+    private static double[] find(SimulatedTagCamera camera, int id) {
+        for (double[] tag : camera.getTags()) {
+            if ((int) tag[0] == id) {
+                return tag;
+            }
+        }
+        throw new IllegalArgumentException("No tag " + id);
+    }
+
+    // Error statistics against the path's true poses.
+    private class Stats {
+        int    frames, solved;
+        double sumSquares, sumHeadingSquares, maxJump;
+        int    lastFrame = -2;
+        double lastErrorX, lastErrorY;
+
+        void miss() {
+            frames++;
+        }
+
+        void add(int f, double x, double y, double heading) {
+            frames++;
+            solved++;
+            double errorX = x - truth[3 * f], errorY = y - truth[3 * f + 1];
+            double errorH = LatencyCompensatedPoseEstimator.normalize(heading - truth[3 * f + 2]);
+            sumSquares        += errorX * errorX + errorY * errorY;
+            sumHeadingSquares += errorH * errorH;
+            if (lastFrame == f - 1) {
+                maxJump = Math.max(maxJump, Math.hypot(errorX - lastErrorX, errorY - lastErrorY));
+            }
+            lastFrame  = f;
+            lastErrorX = errorX;
+            lastErrorY = errorY;
+        }
+
+        Result result(String name) {
+            int n = Math.max(1, solved);
+            return new Result(name, frames, solved, Math.sqrt(sumSquares / n),
+                              Math.toDegrees(Math.sqrt(sumHeadingSquares / n)), maxJump);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package org.firstinspires.ftc.teamcode.sim;
+
+import org.firstinspires.ftc.robotcore.external.navigation.Quaternion;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/*
+ * Records MultiTagLocalizationSimulation's approach to the backdrop, and checks that fitting every tag at once beats
+ * localizing from the first tag, in both error and jumps.  The approach is repeated to a backdrop that leans back
+ * 30 degrees, as the field's do.
+ */
+public class MultiTagLocalizationSimulationTest {
+
+    static final int FRAMES = 300;
+
+    private static MultiTagLocalizationSimulation simulation;
+    private static MultiTagLocalizationSimulation.Result firstTagPose, firstTagCorners, allTags;
+
+    @BeforeClass
+    public static void run() {
+        simulation = new MultiTagLocalizationSimulation(0.5, 3.0, FRAMES);
+        SimulatedTagCamera camera = simulation.camera(42);
+        simulation.record(camera);
+        firstTagPose    = simulation.firstTagPose(camera);
+        firstTagCorners = simulation.firstTagCorners(camera);
+        allTags         = simulation.allTags(camera);
+    }
+
+    @Test
+    public void everyFrameIsSolved() {
+        for (MultiTagLocalizationSimulation.Result result : new MultiTagLocalizationSimulation.Result[] {
+                firstTagPose, firstTagCorners, allTags}) {
+            assertEquals(result.summary(), FRAMES, result.getSolved());
+        }
+        assertTrue(simulation.getMultiTagFrames() > FRAMES / 2);
+    }
+
+    @Test
+    public void allTagsBeatsTheFirstTag() {
+        assertTrue(allTags.summary(), allTags.getRmsError() < 1.5);
+        assertTrue(allTags.summary(), allTags.getRmsHeadingDegrees() < 1.5);
+        assertTrue(allTags.summary(), allTags.getRmsError() < 0.5 * firstTagPose.getRmsError());
+        assertTrue(allTags.summary(), allTags.getMaxJump() < 0.5 * firstTagPose.getMaxJump());
+        assertTrue(allTags.summary(), allTags.getMaxJump() < 0.5 * firstTagCorners.getMaxJump());
+    }
+
+    @Test
+    public void orientationsMatchTheSdkLibraries() {
+        // CENTERSTAGE's audience wall tags face +X, and its backdrop tags face -X, leaning back 30 degrees.
+        assertQuaternion(0.5, -0.5, -0.5, 0.5, SimulatedTagCamera.orientation(0, 0));
+        assertQuaternion(0.3536, -0.6124, 0.6124, -0.3536,
+                         SimulatedTagCamera.orientation(Math.PI, Math.toRadians(30)));
+    }
+
+    @Test
+    public void tiltedBackdropIsFitted() {
+        MultiTagLocalizationSimulation tilted =
+                new MultiTagLocalizationSimulation(0.5, 3.0, FRAMES, Math.toRadians(30));
+        SimulatedTagCamera camera = tilted.camera(42);
+        tilted.record(camera);
+        MultiTagLocalizationSimulation.Result result = tilted.allTags(camera);
+        System.out.println(result.summary());
+
+        assertEquals(result.summary(), FRAMES, result.getSolved());
+        assertTrue(result.summary(), result.getRmsError() < 1.5);
+        assertTrue(result.summary(), result.getRmsHeadingDegrees() < 1.5);
+    }
+
+    private static void assertQuaternion(double w, double x, double y, double z, Quaternion q) {
+        // The same rotation, whichever sign the quaternion has.
+        double sign = Math.signum(w * q.w + x * q.x + y * q.y + z * q.z);
+        assertEquals(w, sign * q.w, 1e-4);
+        assertEquals(x, sign * q.x, 1e-4);
+        assertEquals(y, sign * q.y, 1e-4);
+        assertEquals(z, sign * q.z, 1e-4);
+    }
+}
@@ -0,0 +1,161 @@
+package org.firstinspires.ftc.teamcode.sim;
+
+import org.firstinspires.ftc.teamcode.localization.MultiTagLocalizer;
+import org.firstinspires.ftc.teamcode.vision.AprilTagRoiTracker;
+import org.firstinspires.ftc.vision.apriltag.AprilTagDetection;
+import org.opencv.core.Mat;
+
+import java.util.List;
+
+/*
+ * Compares AprilTagRoiTracker with searching the whole frame every frame, as an AprilTagProcessor does.
+ *
+ * A robot with a C920 drives up to a backdrop from 85 inches away to 25, weaving as it goes (up to about 60 degrees
+ * per second), at 30 frames per second.  The backdrop's tags are 2 inches across, so beyond about 50 inches they are
+ * too small to find at decimation 2, as the drive-to-tag samples use.  The tags are "detected" by a
+ * SimulatedTagDetector, which also models the detector's cost, and the detections are localized with a
+ * MultiTagLocalizer.
+ *
+ * The runs are:
+ *  - "Whole frame, dec 2":  an AprilTagProcessor, as the drive-to-tag samples set it up,
+ *  - "Whole frame, dec 1":  what it takes to see the tags from afar without tracking,
+ *  - "Tracking, no turn":   the tracker, with full-frame searches at decimation 2, not given the robot's turn rate,
+ *  - "Tracking":            the same, given the turn rate (as from the IMU),
+ *  - "Tracking, dec 1":     the tracker, with full-frame searches at decimation 1, to find the tags from afar.
+ *
+ * The times are from SimulatedTagDetector's cost model, so only their ratios mean anything.
+ */
+public class RoiTrackingSimulation {
+
+    /**
+     * One run along the path.
+     */
+    public static class Result {
+        private final String name;
+        private final int    frames;
+        private final double meanMillis;
+        private final double fullSearchFraction;
+        private final long   lostTracks;
+        private final double tagsPerFrame;
+        private final int    firstFrame;
+        private final int    solved;
+        private final double rmsError;
+
+        Result(String name, int frames, double meanMillis, double fullSearchFraction, long lostTracks,
+               double tagsPerFrame, int firstFrame, int solved, double rmsError) {
+            this.name               = name;
+            this.frames             = frames;
+            this.meanMillis         = meanMillis;
+            this.fullSearchFraction = fullSearchFraction;
+            this.lostTracks         = lostTracks;
+            this.tagsPerFrame       = tagsPerFrame;
+            this.firstFrame         = firstFrame;
+            this.solved             = solved;
+            this.rmsError           = rmsError;
+        }
+
+        public String getName()               { return name; }
+
+        /** @return mean modelled detector time per frame, in milliseconds. */
+        public double getMeanMillis()         { return meanMillis; }
+
+        /** @return fraction of frames with a full-frame search. */
+        public double getFullSearchFraction() { return fullSearchFraction; }
+
+        /** @return times a tracked tag wasn't found in its region. */
+        public long getLostTracks()           { return lostTracks; }
+
+        /** @return mean tags found per frame. */
+        public double getTagsPerFrame()       { return tagsPerFrame; }
+
+        /** @return the first frame with a tag found, or -1 if there was none. */
+        public int getFirstFrame()            { return firstFrame; }
+
+        /** @return frames with a pose, out of getFrames(). */
+        public int getSolved()                { return solved; }
+
+        public int getFrames()                { return frames; }
+
+        /** @return RMS position error of the frames with a pose, in inches. */
+        public double getRmsError()           { return rmsError; }
+
+        public String summary() {
+            return String.format("%-20s %5.2f mS/frame, %3.0f%% full searches, %3d lost, %4.2f tags/frame, "
+                            + "first at %3d, %3d/%d frames with a pose, error %5.2f in RMS",
+                    name, meanMillis, 100 * fullSearchFraction, lostTracks, tagsPerFrame, firstFrame, solved,
+                    frames, rmsError);
+        }
+    }
+
+    static final double FRAME_SECONDS = 1 / 30.0;
+
+    private final double pixelSigma;
+    private final int    frameCount;
+
+    /**
+     * @param pixelSigma corner noise at full resolution, in pixels.
+     * @param frameCount frames along the path.
+     */
+    public RoiTrackingSimulation(double pixelSigma, int frameCount) {
+        this.pixelSigma = pixelSigma;
+        this.frameCount = frameCount;
+    }
+
+    /**
+     * Drive the path once.
+     *
+     * @param tracking   whether the tracker tracks, or searches the whole frame every frame.
+     * @param decimation decimation of its full-frame searches.
+     * @param turnRate   whether it's given the robot's turn rate.
+     */
+    public Result run(String name, boolean tracking, float decimation, boolean turnRate, long seed) {
+        MultiTagLocalizationSimulation layout = new MultiTagLocalizationSimulation(pixelSigma, 0, frameCount);
+        SimulatedTagCamera camera = layout.camera(seed);
+        MultiTagLocalizer localizer = MultiTagLocalizationSimulation.localizer(camera);
+        SimulatedTagDetector detector = new SimulatedTagDetector(camera, pixelSigma, seed + 1);
+
+        AprilTagRoiTracker tracker = new AprilTagRoiTracker(detector, 622.001);
+        tracker.setTracking(tracking);
+        tracker.setSearch(decimation, 15);
+        tracker.init(640, 480, null);
+        Mat frame = new Mat();
+
+        double seconds = (frameCount - 1) * FRAME_SECONDS;
+        long   tags = 0;
+        int    firstFrame = -1, solved = 0;
+        double sumSquares = 0;
+        for (int f = 0; f < frameCount; f++) {
+            double s = f / (double) (frameCount - 1);
+            double x = -25 + 60 * s;
+            double y = 24 + 12 * s;
+            double heading = Math.toRadians(20 * Math.sin(8 * Math.PI * s));
+            double yawRate = Math.toRadians(20) * 8 * Math.PI * Math.cos(8 * Math.PI * s) / seconds;
+            long nanos = Math.round(f * FRAME_SECONDS * 1e9);
+
+            detector.setRobotPose(x, y, heading, nanos);
+            tracker.setRobotYawRate(turnRate ? yawRate : 0);
+            tracker.processFrame(frame, nanos);
+
+            List<AprilTagDetection> detections = tracker.getFreshDetections();
+            tags += detections.size();
+            if (firstFrame < 0 && !detections.isEmpty()) {
+                firstFrame = f;
+            }
+            if (localizer.solve(detections)) {
+                double errorX = localizer.getX() - x, errorY = localizer.getY() - y;
+                sumSquares += errorX * errorX + errorY * errorY;
+                solved++;
+            }
+        }
+        return new Result(name, frameCount, detector.getMicros() / 1e3 / frameCount,
+                          tracker.getFullSearches() / (double) frameCount, tracker.getLostTracks(),
+                          tags / (double) frameCount, firstFrame, solved, Math.sqrt(sumSquares / Math.max(1, solved)));
+    }
+
+    /**
+     * @return the robot's distance from the backdrop at a frame, in inches.
+     */
+    public double range(int frame) {
+        return 60.25 - (-25 + 60 * frame / (double) (frameCount - 1));
+    }
+}
@@ -0,0 +1,52 @@
+package org.firstinspires.ftc.teamcode.sim;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/*
+ * Drives RoiTrackingSimulation's approach to the backdrop, and checks that AprilTagRoiTracker costs less than
+ * searching the whole frame, without losing poses.
+ */
+public class RoiTrackingSimulationTest {
+
+    static final int FRAMES = 240;
+
+    private static RoiTrackingSimulation.Result wholeDec2, wholeDec1, noTurn, tracking, trackingDec1;
+
+    @BeforeClass
+    public static void run() {
+        RoiTrackingSimulation simulation = new RoiTrackingSimulation(0.5, FRAMES);
+        wholeDec2    = simulation.run("Whole frame, dec 2", false, 2, false, 42);
+        wholeDec1    = simulation.run("Whole frame, dec 1", false, 1, false, 42);
+        noTurn       = simulation.run("Tracking, no turn",  true,  2, false, 42);
+        tracking     = simulation.run("Tracking",           true,  2, true,  42);
+        trackingDec1 = simulation.run("Tracking, dec 1",    true,  1, true,  42);
+    }
+
+    @Test
+    public void decimationOneSeesTheTagsFromAfar() {
+        assertEquals(wholeDec1.summary(), FRAMES, wholeDec1.getSolved());
+        assertTrue(wholeDec2.summary(), wholeDec2.getSolved() < 0.75 * FRAMES);
+    }
+
+    @Test
+    public void trackingCostsLessThanTheWholeFrame() {
+        assertTrue(tracking.summary(), tracking.getMeanMillis() < 0.6 * wholeDec2.getMeanMillis());
+        assertTrue(trackingDec1.summary(), trackingDec1.getMeanMillis() < 0.25 * wholeDec1.getMeanMillis());
+        assertTrue(tracking.summary(), tracking.getFullSearchFraction() < 0.5);
+    }
+
+    @Test
+    public void theTurnRateKeepsTracks() {
+        assertTrue(noTurn.summary() + " / " + tracking.summary(), tracking.getLostTracks() < noTurn.getLostTracks());
+    }
+
+    @Test
+    public void trackingAtDecimationOneKeepsEveryPose() {
+        assertEquals(trackingDec1.summary(), FRAMES, trackingDec1.getSolved());
+        assertTrue(trackingDec1.summary(), trackingDec1.getRmsError() < 3.5);
+    }
+}
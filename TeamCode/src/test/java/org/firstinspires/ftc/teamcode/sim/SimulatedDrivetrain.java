@@ -0,0 +1,84 @@
+package org.firstinspires.ftc.teamcode.sim;
+
+import com.qualcomm.robotcore.hardware.DcMotor;
+
+/*
+ * A simple model of drive motors under the hub's own motor control, stepping FakeDcMotorEx encoders forward in time.
+ *
+ * Each motor's velocity follows its target with a first-order lag (time constant tau), and the encoder integrates
+ * the velocity.  The target velocity depends on the motor's mode, as on a Lynx hub:
+ *  - RUN_USING_ENCODER:   power x maximum speed.
+ *  - RUN_TO_POSITION:     a proportional position loop, limited to |power| x maximum speed.
+ *  - RUN_WITHOUT_ENCODER: power x maximum speed (a real motor would also sag with load and battery voltage).
+ *
+ * This is enough to compare how long a path takes and how closely it finishes on target, with one control strategy
+ * against another, on a desktop.  It does not model wheel slip, battery sag or friction.
+ */
+public class SimulatedDrivetrain {
+
+    private final FakeDcMotorEx[] motors;
+    private final double          maxTicksPerSecond;
+    private final double          tau;
+    private final double          positionGain;   // RUN_TO_POSITION: (ticks per second) per tick of error.
+    private final double[]        position;       // Sub-tick encoder positions, so slow motion still accumulates.
+
+    private long simulatedNanos = 0;
+
+    /**
+     * @param maxTicksPerSecond free speed of each motor, in encoder ticks per second.
+     * @param timeConstantSec   how quickly the motors reach a new speed (63% of the change in this time).
+     * @param motors            the motors to simulate.
+     */
+    public SimulatedDrivetrain(double maxTicksPerSecond, double timeConstantSec, FakeDcMotorEx... motors) {
+        this.motors            = motors;
+        this.maxTicksPerSecond = maxTicksPerSecond;
+        this.tau               = timeConstantSec;
+        this.positionGain      = 10.0;
+        this.position          = new double[motors.length];
+        for (int i = 0; i < motors.length; i++) {
+            position[i] = motors[i].getSimulatedPosition();
+        }
+    }
+
+    /**
+     * Advance the simulation.
+     *
+     * @param dtSeconds time step.  Keep this at or below the control loop period.
+     */
+    public void step(double dtSeconds) {
+        for (int i = 0; i < motors.length; i++) {
+            FakeDcMotorEx motor = motors[i];
+            int tick = motor.getSimulatedPosition();
+            if (Math.abs(tick - position[i]) >= 1) {
+                position[i] = tick;                      // The encoder was reset (or set) outside the simulation.
+            }
+
+            // The hub works in the motor's own direction, so use raw (un-reversed) power and positions.
+            double power = motor.getAppliedPower();
+            double target;
+            if (motor.getMode() == DcMotor.RunMode.RUN_TO_POSITION) {
+                int rawTarget = (motor.getDirection() == DcMotor.Direction.REVERSE)
+                              ? -motor.getTargetPosition() : motor.getTargetPosition();
+                double limit = Math.abs(power) * maxTicksPerSecond;
+                target = Math.max(-limit, Math.min(limit, positionGain * (rawTarget - position[i])));
+            } else if (motor.getMode() == DcMotor.RunMode.STOP_AND_RESET_ENCODER) {
+                target = 0;
+            } else {
+                target = power * maxTicksPerSecond;
+            }
+
+            double velocity = motor.getSimulatedVelocity();
+            velocity += (target - velocity) * Math.min(1.0, dtSeconds / tau);
+            position[i] += velocity * dtSeconds;
+
+            motor.setSimulatedVelocity(velocity);
+            motor.setSimulatedPosition((int) Math.round(position[i]));
+        }
+        simulatedNanos += (long) (dtSeconds * 1e9);
+    }
+
+    /** @return simulated time since the drivetrain was created, for use in place of System.nanoTime(). */
+    public long getNanos() {
+        return simulatedNanos;
+    }
+}
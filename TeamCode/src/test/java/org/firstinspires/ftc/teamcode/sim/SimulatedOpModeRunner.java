@@ -0,0 +1,325 @@
+package org.firstinspires.ftc.teamcode.sim;
+
+import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
+import com.qualcomm.robotcore.hardware.Gamepad;
+
+import java.util.Locale;
+
+/*
+ * Runs an unmodified LinearOpMode against a SimulatedRobot, without a Robot Controller.
+ *
+ * The OpMode gets the robot's HardwareMap, a FakeTelemetry and two Gamepads, and runOpMode() is called on its own
+ * thread, as the SDK does.  The runner plays the part of the Driver Station: it presses INIT, then START once the
+ * OpMode reaches waitForStart() (or after the init time for OpModes that loop on opModeInInit()), then STOP when
+ * the run time is up, unless the OpMode finishes first.
+ *
+ * Each telemetry.update() is treated as the end of one OpMode loop, and the simulation is advanced by that loop's
+ * duration.  All of the SDK samples call telemetry.update() in their loops; an OpMode that doesn't will see a
+ * frozen robot.  How long a loop takes depends on the timing:
+ *
+ *  MAX_SPEED   Each loop takes the time its hub transactions would have taken on a robot, plus the real time the
+ *              OpMode's code took (so sleep() calls count).  The OpMode runs as fast as the desktop can go, and a
+ *              path that takes 10 S on the robot finishes in a fraction of that.  But loops timed with an
+ *              ElapsedTime (such as holdHeading() in RobotAutoDriveByGyro_Linear) run for that much real time, and
+ *              many more simulated loops: use REAL_TIME for those OpModes.
+ *  REAL_TIME   Simulated time follows the wall clock, and each loop waits for as long as its hub transactions
+ *              would have taken.  Any OpMode behaves as it would on the robot.
+ *
+ * START and STOP go through LinearOpMode's own start() and stop(), as the SDK's event loop calls them, so the
+ * OpMode's isStarted(), opModeIsActive() and isStopRequested() behave as they do on the robot.
+ */
+public class SimulatedOpModeRunner {
+
+    public enum Timing { MAX_SPEED, REAL_TIME }
+
+    /**
+     * Operates the gamepads, for driver-controlled OpModes.  Called after every loop, on the OpMode's thread.
+     */
+    public interface Driver {
+        /**
+         * @param seconds  simulated time since START was pressed.
+         */
+        void update(double seconds, Gamepad gamepad1, Gamepad gamepad2);
+    }
+
+    /**
+     * The outcome of one simulated run.  Loop figures cover the time from START to the end of the OpMode;
+     * hardware counts cover the whole run, including init.
+     */
+    public static class Report {
+        private final String    name;
+        private final double    simulatedSeconds;
+        private final double    wallSeconds;
+        private final int       loops;
+        private final double    meanLoopMs;
+        private final double    maxLoopMs;
+        private final double    opModeMicrosPerLoop;
+        private final long      hubReads;
+        private final long      hubWrites;
+        private final long      imuReads;
+        private final long      colorReads;
+        private final double    x, y, heading;
+        private final boolean   stoppedByRunner;
+        private final Throwable failure;
+
+        Report(String name, double simulatedSeconds, double wallSeconds, int loops, double meanLoopMs,
+               double maxLoopMs, double opModeMicrosPerLoop, SimulatedRobot robot, boolean stoppedByRunner,
+               Throwable failure) {
+            this.name                = name;
+            this.simulatedSeconds    = simulatedSeconds;
+            this.wallSeconds         = wallSeconds;
+            this.loops               = loops;
+            this.meanLoopMs          = meanLoopMs;
+            this.maxLoopMs           = maxLoopMs;
+            this.opModeMicrosPerLoop = opModeMicrosPerLoop;
+            this.hubReads            = robot.getHub().getReadTransactions();
+            this.hubWrites           = robot.getHub().getWriteTransactions();
+            this.imuReads            = robot.getImu().getReadCount();
+            this.colorReads          = robot.getColorSensor().getReadCount();
+            this.x                   = robot.getX();
+            this.y                   = robot.getY();
+            this.heading             = robot.getHeading();
+            this.stoppedByRunner     = stoppedByRunner;
+            this.failure             = failure;
+        }
+
+        /** @return simulated time from START to the end of the OpMode, in seconds. */
+        public double getSimulatedSeconds()      { return simulatedSeconds; }
+
+        /** @return real time taken by the whole run, including init, in seconds. */
+        public double getWallSeconds()           { return wallSeconds; }
+
+        /** @return number of loops (telemetry updates) after START. */
+        public int getLoops()                    { return loops; }
+
+        /** @return mean simulated loop time, in milliseconds. */
+        public double getMeanLoopMs()            { return meanLoopMs; }
+
+        /** @return longest simulated loop time, in milliseconds. */
+        public double getMaxLoopMs()             { return maxLoopMs; }
+
+        /** @return real time spent in the OpMode's own code per loop, including any sleep(), in microseconds. */
+        public double getOpModeMicrosPerLoop()   { return opModeMicrosPerLoop; }
+
+        /** @return hub read transactions, including IMU and color sensor reads. */
+        public long getHubReads()                { return hubReads; }
+
+        /** @return hub write transactions. */
+        public long getHubWrites()               { return hubWrites; }
+
+        public long getImuReads()                { return imuReads; }
+        public long getColorReads()              { return colorReads; }
+
+        /** @return final field X position, in inches. */
+        public double getX()                     { return x; }
+
+        /** @return final field Y position, in inches. */
+        public double getY()                     { return y; }
+
+        /** @return final heading, in degrees, CCW positive. */
+        public double getHeadingDegrees()        { return Math.toDegrees(heading); }
+
+        /** @return true if the runner pressed STOP, rather than the OpMode finishing on its own. */
+        public boolean isStoppedByRunner()       { return stoppedByRunner; }
+
+        /** @return the exception thrown by runOpMode(), or null. */
+        public Throwable getFailure()            { return failure; }
+
+        /** @return a multi-line summary, for printing. */
+        public String summary() {
+            StringBuilder text = new StringBuilder();
+            text.append(String.format(Locale.US, "%s: %.2f S simulated in %.2f S%s%n", name, simulatedSeconds,
+                    wallSeconds, stoppedByRunner ? " (stopped)" : ""));
+            text.append(String.format(Locale.US, "  loops %d, mean %.2f mS, max %.2f mS, OpMode code %.1f uS/loop%n",
+                    loops, meanLoopMs, maxLoopMs, opModeMicrosPerLoop));
+            text.append(String.format(Locale.US, "  hub reads %d (IMU %d, color %d), hub writes %d%n",
+                    hubReads, imuReads, colorReads, hubWrites));
+            text.append(String.format(Locale.US, "  final pose X %.2f in, Y %.2f in, heading %.1f deg%n",
+                    x, y, getHeadingDegrees()));
+            if (failure != null) {
+                text.append("  FAILED: ").append(failure).append(String.format("%n"));
+            }
+            return text.toString();
+        }
+    }
+
+    private final SimulatedRobot robot;
+    private final FakeTelemetry  telemetry = new FakeTelemetry();
+
+    private Timing timing             = Timing.MAX_SPEED;
+    private double transactionSeconds = 0.002;
+    private double initSeconds        = 0.5;
+    private double maxSeconds         = 30;
+    private Driver driver             = null;
+
+    // Per-run state.  tick() runs on the OpMode's thread; the flags are also set by the runner's thread.
+    private LinearOpMode      opMode;
+    private volatile boolean  started;
+    private volatile boolean  stopRequested;
+    private volatile long     simNanos;
+    private volatile long     startSimNanos;
+    private volatile Throwable failure;
+    private long    lastTransactions;
+    private long    lastTickEnd;
+    private long    lastWall;
+    private int     loops;
+    private double  loopSeconds, maxLoop;
+    private long    opModeNanos;
+
+    public SimulatedOpModeRunner(SimulatedRobot robot) {
+        this.robot = robot;
+    }
+
+    public void setTiming(Timing timing)   { this.timing = timing; }
+
+    /** Set the time each hub transaction is assumed to take on a robot.  The default is 2 mS. */
+    public void setTransactionMillis(double millis) { transactionSeconds = millis / 1000.0; }
+
+    /** Set how long INIT lasts for OpModes that don't call waitForStart().  The default is 0.5 S. */
+    public void setInitSeconds(double seconds) { initSeconds = seconds; }
+
+    /** Set how long after START the runner presses STOP, in simulated seconds.  The default is 30 S. */
+    public void setMaxSeconds(double seconds)  { maxSeconds = seconds; }
+
+    public void setDriver(Driver driver)       { this.driver = driver; }
+
+    /**
+     * Run an OpMode from INIT to the end.
+     */
+    public Report run(final LinearOpMode opMode) throws InterruptedException {
+        this.opMode        = opMode;
+
+        opMode.hardwareMap = robot.getHardwareMap();
+        opMode.telemetry   = telemetry.getTelemetry();
+        opMode.gamepad1    = new Gamepad();
+        opMode.gamepad2    = new Gamepad();
+
+        started          = false;
+        stopRequested    = false;
+        failure          = null;
+        simNanos         = robot.getNanos();
+        startSimNanos    = simNanos;
+        lastTransactions = robot.getHub().getReadTransactions() + robot.getHub().getWriteTransactions();
+        loops            = 0;
+        loopSeconds      = 0;
+        maxLoop          = 0;
+        opModeNanos      = 0;
+
+        telemetry.setUpdateListener(new Runnable() {
+            @Override
+            public void run() {
+                tick();
+            }
+        });
+
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    opMode.runOpMode();
+                } catch (InterruptedException e) {
+                    // Stopped.
+                } catch (Throwable t) {
+                    failure = t;
+                }
+            }
+        }, opMode.getClass().getSimpleName());
+
+        long wallStart = System.nanoTime();
+        long stopWall  = 0;
+        lastTickEnd    = wallStart;
+        lastWall       = wallStart;
+        thread.start();
+
+        while (thread.isAlive()) {
+            double wall = (System.nanoTime() - wallStart) / 1e9;
+            if (!started && (thread.getState() == Thread.State.WAITING || wall >= initSeconds)) {
+                start();
+            }
+            // Simulated time normally runs ahead of real time, but not if the OpMode never updates telemetry.
+            if (started && !stopRequested && wall >= initSeconds + maxSeconds) {
+                requestStop();
+            }
+            if (stopRequested) {
+                if (stopWall == 0) {
+                    stopWall = System.nanoTime();
+                    thread.interrupt();
+                } else if (System.nanoTime() - stopWall > 2_000_000_000L) {
+                    failure = new IllegalStateException("OpMode did not stop within 2 S of STOP");
+                    break;
+                }
+            }
+            thread.join(1);
+        }
+        telemetry.setUpdateListener(null);
+
+        double seconds = (simNanos - startSimNanos) / 1e9;
+        return new Report(opMode.getClass().getSimpleName(), started ? seconds : 0,
+                (System.nanoTime() - wallStart) / 1e9, loops,
+                loops > 0 ? loopSeconds / loops * 1000 : 0, maxLoop * 1000,
+                loops > 0 ? opModeNanos / 1e3 / loops : 0, robot, stopRequested, failure);
+    }
+
+    // The end of one OpMode loop: advance the simulation by the loop's duration.
+    private void tick() {
+        long now = System.nanoTime();
+        long transactions = robot.getHub().getReadTransactions() + robot.getHub().getWriteTransactions();
+        double io = (transactions - lastTransactions) * transactionSeconds;
+        lastTransactions = transactions;
+        if (started) {
+            opModeNanos += now - lastTickEnd;
+        }
+
+        double dt;
+        if (timing == Timing.REAL_TIME) {
+            long due = now + (long) (io * 1e9);
+            while (now < due) {
+                try {
+                    Thread.sleep((due - now) / 1_000_000, (int) ((due - now) % 1_000_000));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();     // Let the OpMode see the STOP.
+                    break;
+                }
+                now = System.nanoTime();
+            }
+            dt = (now - lastWall) / 1e9;
+            lastWall = now;
+        } else {
+            dt = io + (now - lastTickEnd) / 1e9;
+        }
+
+        robot.step(dt);
+        simNanos = robot.getNanos();
+
+        if (started) {
+            loops++;
+            loopSeconds += dt;
+            maxLoop = Math.max(maxLoop, dt);
+            double seconds = (simNanos - startSimNanos) / 1e9;
+            if (seconds >= maxSeconds) {
+                requestStop();
+            } else if (driver != null) {
+                driver.update(seconds, opMode.gamepad1, opMode.gamepad2);
+            }
+        } else if ((simNanos - startSimNanos) / 1e9 >= initSeconds) {
+            start();
+        }
+        lastTickEnd = System.nanoTime();
+    }
+
+    // Press START.
+    private synchronized void start() {
+        if (started) {
+            return;
+        }
+        startSimNanos = simNanos;
+        started = true;
+        opMode.start();             // Also wakes waitForStart().
+    }
+
+    // Press STOP.  The runner's thread also interrupts the OpMode, to cut short any sleep().
+    private synchronized void requestStop() {
+        stopRequested = true;
+        opMode.stop();
+    }
+}
@@ -0,0 +1,207 @@
+package org.firstinspires.ftc.teamcode.sim;
+
+import com.qualcomm.robotcore.hardware.HardwareMap;
+
+/*
+ * A simulated robot on a flat field: drive motors, encoders, an IMU and a downward-facing color sensor, all
+ * registered in a HardwareMap under the names the SDK samples use, so an unmodified OpMode can drive it.
+ *
+ *   Tank:    "left_drive", "right_drive"
+ *   Mecanum: "left_front_drive", "left_back_drive", "right_front_drive", "right_back_drive"
+ *   Both:    "imu", "sensor_color"
+ *
+ * The motors are modelled by a SimulatedDrivetrain (first-order speed response, hub RUN_TO_POSITION loop).
+ * Each step, the wheel speeds are turned into a robot velocity with the drive's kinematics, and integrated into a
+ * field pose, which sets the IMU heading and what the color sensor sees.
+ * The left side motors are mounted mirrored, as on a real drivetrain: that's why the samples reverse them.
+ *
+ * The pose is in inches and radians, with the robot starting at (0, 0) facing +X, and heading CCW positive.
+ * Wheel slip, robot inertia and battery sag are not modelled.
+ */
+public class SimulatedRobot {
+
+    public enum Drive { TANK, MECANUM }
+
+    /**
+     * What the color sensor sees on the field.
+     */
+    public interface Surface {
+        /** Write the reflectance at field position (x, y) inches into rgb[0..2], 0 to 1 at a gain of 1. */
+        void colorAt(double x, double y, float[] rgb);
+
+        /**
+         * Grey tiles, with a strip of white tape across the field at x = lineX.
+         */
+        static Surface whiteLine(final double lineX, final double widthInches) {
+            return new Surface() {
+                @Override
+                public void colorAt(double x, double y, float[] rgb) {
+                    float level = (Math.abs(x - lineX) <= widthInches / 2) ? 0.10f : 0.02f;
+                    rgb[0] = level;
+                    rgb[1] = level;
+                    rgb[2] = level;
+                }
+            };
+        }
+    }
+
+    private static final double MAX_STEP = 0.001;     // Largest physics step, in seconds.
+
+    private final Drive               drive;
+    private final double              countsPerInch;
+    private final double              trackWidth;
+    private final double              wheelBase;
+    private final FakeLynxModule      hub;
+    private final FakeDcMotorEx[]     motors;
+    private final double[]            mounting;          // +1, or -1 for a mirrored motor.
+    private final SimulatedDrivetrain motorModel;
+    private final FakeImu             imu;
+    private final FakeColorSensor     colorSensor;
+    private final HardwareMap         hardwareMap;
+    private final float[]             rgb = new float[3];
+
+    private Surface surface       = Surface.whiteLine(Double.MAX_VALUE, 0);
+    private double  sensorForward = 0;
+    private double  sensorLeft    = 0;
+
+    private double x, y, heading, turnRate;
+
+    /**
+     * A two-motor tank (differential) drive.
+     *
+     * @param countsPerInch     encoder counts per inch of wheel travel.
+     * @param maxTicksPerSecond motor free speed, in encoder ticks per second.
+     * @param trackWidth        distance between the left and right wheels, in inches.
+     */
+    public static SimulatedRobot tank(double countsPerInch, double maxTicksPerSecond, double trackWidth) {
+        return new SimulatedRobot(Drive.TANK, countsPerInch, maxTicksPerSecond, trackWidth, 0,
+                "left_drive", "right_drive");
+    }
+
+    /**
+     * A four-motor mecanum drive.
+     *
+     * @param countsPerInch     encoder counts per inch of wheel travel.
+     * @param maxTicksPerSecond motor free speed, in encoder ticks per second.
+     * @param trackWidth        distance between the left and right wheels, in inches.
+     * @param wheelBase         distance between the front and back wheels, in inches.
+     */
+    public static SimulatedRobot mecanum(double countsPerInch, double maxTicksPerSecond, double trackWidth,
+                                         double wheelBase) {
+        return new SimulatedRobot(Drive.MECANUM, countsPerInch, maxTicksPerSecond, trackWidth, wheelBase,
+                "left_front_drive", "left_back_drive", "right_front_drive", "right_back_drive");
+    }
+
+    private SimulatedRobot(Drive drive, double countsPerInch, double maxTicksPerSecond, double trackWidth,
+                           double wheelBase, String... motorNames) {
+        this.drive         = drive;
+        this.countsPerInch = countsPerInch;
+        this.trackWidth    = trackWidth;
+        this.wheelBase     = wheelBase;
+        this.hub           = new FakeLynxModule("Control Hub");
+        this.motors        = new FakeDcMotorEx[motorNames.length];
+        this.mounting      = new double[motorNames.length];
+        this.hardwareMap   = new HardwareMap(null, null);
+
+        for (int i = 0; i < motorNames.length; i++) {
+            motors[i]   = new FakeDcMotorEx(hub, i, motorNames[i]);
+            mounting[i] = motorNames[i].startsWith("left") ? -1 : 1;
+            hardwareMap.put(motorNames[i], motors[i]);
+        }
+        motorModel  = new SimulatedDrivetrain(maxTicksPerSecond, 0.1, motors);
+        imu         = new FakeImu(hub, "imu");
+        colorSensor = new FakeColorSensor(hub, 1, "sensor_color");
+        hardwareMap.put("imu", imu);
+        hardwareMap.put("sensor_color", colorSensor);
+        updateSensors();
+    }
+
+    /** Set what the color sensor sees on the field. */
+    public void setSurface(Surface surface) {
+        this.surface = surface;
+        updateSensors();
+    }
+
+    /** Set where the color sensor is, relative to the center of the robot, in inches. */
+    public void setColorSensorOffset(double forward, double left) {
+        sensorForward = forward;
+        sensorLeft    = left;
+        updateSensors();
+    }
+
+    /** Place the robot on the field, stationary. */
+    public void setPose(double x, double y, double heading) {
+        this.x        = x;
+        this.y        = y;
+        this.heading  = heading;
+        this.turnRate = 0;
+        updateSensors();
+    }
+
+    /**
+     * Advance the simulation.  Long steps are split up, so any step length is accurate.
+     *
+     * @param seconds simulated time to advance.
+     */
+    public void step(double seconds) {
+        int    steps = Math.max(1, (int) Math.ceil(seconds / MAX_STEP));
+        double h     = seconds / steps;
+
+        for (int s = 0; s < steps; s++) {
+            motorModel.step(h);
+
+            double forward, left;
+            if (drive == Drive.TANK) {
+                double l = wheelSpeed(0), r = wheelSpeed(1);
+                forward  = (l + r) / 2;
+                left     = 0;
+                turnRate = (r - l) / trackWidth;
+            } else {
+                double lf = wheelSpeed(0), lb = wheelSpeed(1), rf = wheelSpeed(2), rb = wheelSpeed(3);
+                forward  = (lf + lb + rf + rb) / 4;
+                left     = (-lf + lb + rf - rb) / 4;
+                turnRate = (-lf - lb + rf + rb) / (2 * (trackWidth + wheelBase));
+            }
+
+            double mid = heading + turnRate * h / 2;
+            x       += (forward * Math.cos(mid) - left * Math.sin(mid)) * h;
+            y       += (forward * Math.sin(mid) + left * Math.cos(mid)) * h;
+            heading += turnRate * h;
+        }
+        updateSensors();
+    }
+
+    // Wheel surface speed in inches per second, positive driving the robot forward.
+    private double wheelSpeed(int motor) {
+        return mounting[motor] * motors[motor].getSimulatedVelocity() / countsPerInch;
+    }
+
+    private void updateSensors() {
+        imu.setSimulatedHeading(heading, turnRate, getNanos());
+
+        double c = Math.cos(heading), s = Math.sin(heading);
+        surface.colorAt(x + sensorForward * c - sensorLeft * s, y + sensorForward * s + sensorLeft * c, rgb);
+        colorSensor.setSimulatedColor(rgb[0], rgb[1], rgb[2]);
+    }
+
+    /** @return the HardwareMap to hand to the OpMode. */
+    public HardwareMap getHardwareMap()     { return hardwareMap; }
+
+    /** @return the hub that all of the devices are attached to, with its transaction counts. */
+    public FakeLynxModule getHub()          { return hub; }
+
+    public FakeImu getImu()                 { return imu; }
+    public FakeColorSensor getColorSensor() { return colorSensor; }
+
+    /** @return simulated time since the robot was created. */
+    public long getNanos()                  { return motorModel.getNanos(); }
+
+    /** @return field X position, in inches. */
+    public double getX()                    { return x; }
+
+    /** @return field Y position, in inches. */
+    public double getY()                    { return y; }
+
+    /** @return heading in radians, CCW positive, in the range -PI to PI. */
+    public double getHeading()              { return Math.atan2(Math.sin(heading), Math.cos(heading)); }
+}
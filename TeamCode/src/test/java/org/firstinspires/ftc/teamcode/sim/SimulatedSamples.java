@@ -0,0 +1,70 @@
+package org.firstinspires.ftc.teamcode.sim;
+
+import com.qualcomm.robotcore.hardware.Gamepad;
+
+import org.firstinspires.ftc.robotcontroller.external.samples.BasicOmniOpMode_Linear;
+import org.firstinspires.ftc.robotcontroller.external.samples.RobotAutoDriveByEncoder_Linear;
+import org.firstinspires.ftc.robotcontroller.external.samples.RobotAutoDriveByGyro_Linear;
+import org.firstinspires.ftc.robotcontroller.external.samples.RobotAutoDriveToLine_Linear;
+
+/*
+ * Runs the SDK's drive samples, unmodified, on simulated robots, and reports on each one.
+ *
+ * Each robot is built to match the constants in its sample (encoder counts, wheel size), so the reported final
+ * pose shows whether the sample's path came out as intended, and the loop and hardware figures show what it cost.
+ * SimulatedSamplesTest runs them all; the gyro sample has to run in real time (about 10 S).
+ */
+public class SimulatedSamples {
+
+    // TETRIX motors with 4 inch wheels, as in RobotAutoDriveByEncoder_Linear.
+    static final double TETRIX_COUNTS_PER_INCH = 1440 / (4.0 * 3.1415);
+    static final double TETRIX_MAX_TICKS       = 1440 * 152 / 60.0;
+
+    // goBILDA 312 RPM motors with 4 inch wheels, as in RobotAutoDriveByGyro_Linear.
+    static final double GOBILDA_COUNTS_PER_INCH = 537.7 / (4.0 * 3.1415);
+    static final double GOBILDA_MAX_TICKS       = 537.7 * 312 / 60.0;
+
+    static final double TRACK_WIDTH = 15.0;    // inches
+    static final double WHEEL_BASE  = 13.0;    // inches
+
+    /** RobotAutoDriveByEncoder_Linear: forward 48 in, turn right 12 in, back 24 in. */
+    public static SimulatedOpModeRunner.Report encoderDrive() throws InterruptedException {
+        SimulatedRobot robot = SimulatedRobot.tank(TETRIX_COUNTS_PER_INCH, TETRIX_MAX_TICKS, TRACK_WIDTH);
+        return new SimulatedOpModeRunner(robot).run(new RobotAutoDriveByEncoder_Linear());
+    }
+
+    /** RobotAutoDriveToLine_Linear: creep forward until the color sensor sees a white line 36 in ahead. */
+    public static SimulatedOpModeRunner.Report driveToLine() throws InterruptedException {
+        SimulatedRobot robot = SimulatedRobot.tank(TETRIX_COUNTS_PER_INCH, TETRIX_MAX_TICKS, TRACK_WIDTH);
+        robot.setColorSensorOffset(6, 0);
+        robot.setSurface(SimulatedRobot.Surface.whiteLine(36, 2));
+        SimulatedOpModeRunner runner = new SimulatedOpModeRunner(robot);
+        runner.setMaxSeconds(15);
+        return runner.run(new RobotAutoDriveToLine_Linear());
+    }
+
+    /** BasicOmniOpMode_Linear: drive forward, strafe right, then turn on the spot, then stop. */
+    public static SimulatedOpModeRunner.Report omniTeleOp() throws InterruptedException {
+        SimulatedRobot robot = SimulatedRobot.mecanum(GOBILDA_COUNTS_PER_INCH, GOBILDA_MAX_TICKS, TRACK_WIDTH,
+                WHEEL_BASE);
+        SimulatedOpModeRunner runner = new SimulatedOpModeRunner(robot);
+        runner.setMaxSeconds(4);
+        runner.setDriver(new SimulatedOpModeRunner.Driver() {
+            @Override
+            public void update(double seconds, Gamepad gamepad1, Gamepad gamepad2) {
+                gamepad1.left_stick_y  = (seconds < 1) ? -0.5f : 0;     // Pushing forward is negative.
+                gamepad1.left_stick_x  = (seconds >= 1 && seconds < 2) ? 0.5f : 0;
+                gamepad1.right_stick_x = (seconds >= 2 && seconds < 3) ? 0.3f : 0;
+            }
+        });
+        return runner.run(new BasicOmniOpMode_Linear());
+    }
+
+    /** RobotAutoDriveByGyro_Linear: a zig-zag path with gyro-corrected turns, ending near the start. */
+    public static SimulatedOpModeRunner.Report gyroDrive() throws InterruptedException {
+        SimulatedRobot robot = SimulatedRobot.tank(GOBILDA_COUNTS_PER_INCH, GOBILDA_MAX_TICKS, TRACK_WIDTH);
+        SimulatedOpModeRunner runner = new SimulatedOpModeRunner(robot);
+        runner.setTiming(SimulatedOpModeRunner.Timing.REAL_TIME);   // holdHeading() is timed with an ElapsedTime.
+        return runner.run(new RobotAutoDriveByGyro_Linear());
+    }
+}
@@ -0,0 +1,63 @@
+package org.firstinspires.ftc.teamcode.sim;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/*
+ * Runs the SDK's drive samples on SimulatedSamples' robots, and checks that each one ends where its path says it
+ * should, at what it should cost.
+ */
+public class SimulatedSamplesTest {
+
+    @Test
+    public void encoderDriveFollowsItsPath() throws InterruptedException {
+        SimulatedOpModeRunner.Report report = SimulatedSamples.encoderDrive();
+        assertFinished(report);
+        // Forward 48 in, a right turn on the spot, then back 24 in.
+        assertEquals(report.summary(), 50.5, report.getX(), 1.0);
+        assertEquals(report.summary(), 24.3, report.getY(), 1.0);
+        assertEquals(report.summary(), -90, report.getHeadingDegrees(), 2.0);
+        assertEquals(report.summary(), 34, report.getHubWrites());
+    }
+
+    @Test
+    public void driveToLineStopsAtTheLine() throws InterruptedException {
+        SimulatedOpModeRunner.Report report = SimulatedSamples.driveToLine();
+        assertFinished(report);
+        // The line is 36 in ahead, and the sensor 6 in ahead of the robot's center.
+        assertEquals(report.summary(), 29.5, report.getX(), 1.0);
+        assertEquals(report.summary(), 0, report.getY(), 0.1);
+        assertTrue(report.summary(), report.getColorReads() > 0);
+    }
+
+    @Test
+    public void omniTeleOpFollowsTheSticks() throws InterruptedException {
+        SimulatedOpModeRunner.Report report = SimulatedSamples.omniTeleOp();
+        assertNull(report.summary(), report.getFailure());
+        assertTrue(report.summary(), report.isStoppedByRunner());
+        assertEquals(report.summary(), 4, report.getSimulatedSeconds(), 0.1);
+        // Forward, then right, then a turn to the right.
+        assertTrue(report.summary(), report.getX() > 20);
+        assertTrue(report.summary(), report.getY() < -20);
+        assertTrue(report.summary(), report.getHeadingDegrees() < -45);
+        assertEquals(report.summary(), 0, report.getHubReads());
+    }
+
+    @Test
+    public void gyroDriveEndsNearTheStart() throws InterruptedException {
+        SimulatedOpModeRunner.Report report = SimulatedSamples.gyroDrive();
+        assertFinished(report);
+        assertEquals(report.summary(), 0, Math.hypot(report.getX(), report.getY()), 6.0);
+        assertEquals(report.summary(), 0, report.getHeadingDegrees(), 2.0);
+        assertTrue(report.summary(), report.getImuReads() > 0);
+    }
+
+    private static void assertFinished(SimulatedOpModeRunner.Report report) {
+        assertNull(report.summary(), report.getFailure());
+        assertFalse(report.summary(), report.isStoppedByRunner());
+    }
+}
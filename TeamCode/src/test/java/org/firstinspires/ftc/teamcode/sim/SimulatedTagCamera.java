@@ -0,0 +1,191 @@
+package org.firstinspires.ftc.teamcode.sim;
+
+import org.firstinspires.ftc.robotcore.external.navigation.Quaternion;
+import org.firstinspires.ftc.teamcode.localization.LatencyCompensatedPoseEstimator;
+import org.firstinspires.ftc.vision.apriltag.AprilTagDetection;
+import org.firstinspires.ftc.vision.apriltag.AprilTagPoseFtc;
+import org.opencv.core.Point;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/*
+ * A pinhole camera on a simulated robot, that produces the AprilTagDetections it would see from a given field pose.
+ *
+ * Tags are placed as in MultiTagLocalizer.addTag(), plus a tilt for tags that lean back, and the camera is described
+ * in the same terms, so the two can be checked against each other.  orientation() gives a tag's tilt as the
+ * fieldOrientation quaternion the SDK's libraries use.  A tag is detected when it faces the camera, all four corners are in the image, and it
+ * is at least MIN_TAG_PIXELS across.  For each detection:
+ *  - the corners are projected, then given Gaussian noise (pixelSigma),
+ *  - the decision margin falls with the tag's size in the image, as a real decoder's does,
+ *  - ftcPose is the true tag position in the camera frame, with Gaussian yaw noise (yawSigmaDegrees), which stands in
+ *    for the error of solving a pose from one tag's corners.
+ *
+ * The camera is assumed level (pitch 0), since ftcPose is reported as if it were.
+ */
+public class SimulatedTagCamera {
+
+    public static final double MIN_TAG_PIXELS = 12;
+
+    private final double fx, fy, cx, cy;
+    private final int    width, height;
+
+    private double cameraForward, cameraLeft, cameraHeight;
+
+    private final List<double[]> tags = new ArrayList<>();      // {id, x, y, z, facing, size, tilt}
+
+    private final Random random;
+    private double pixelSigma      = 0;
+    private double yawSigmaDegrees = 0;
+
+    /**
+     * @param fx, fy, cx, cy lens intrinsics, in pixels.
+     * @param width, height  image size, in pixels.
+     * @param seed           random seed for the noise.
+     */
+    public SimulatedTagCamera(double fx, double fy, double cx, double cy, int width, int height, long seed) {
+        this.fx     = fx;
+        this.fy     = fy;
+        this.cx     = cx;
+        this.cy     = cy;
+        this.width  = width;
+        this.height = height;
+        random      = new Random(seed);
+    }
+
+    /**
+     * A Logitech C920 at 640x480, with the SDK's calibration for it.
+     */
+    public static SimulatedTagCamera c920(long seed) {
+        return new SimulatedTagCamera(622.001, 622.001, 319.803, 241.251, 640, 480, seed);
+    }
+
+    /**
+     * Add two backdrops of three tags, placed as on the CENTERSTAGE field (IDs 1-6, 2 inch tags 6 inches apart, facing
+     * -X).
+     *
+     * @param tilt how far (radians) the tags lean back from vertical.  The field's backdrops lean back 30 degrees.
+     */
+    public void addBackdropTags(double tilt) {
+        for (int i = 0; i < 3; i++) {
+            addTag(1 + i, 60.25,  41.41 - 6 * i, 4, Math.PI, 2, tilt);
+            addTag(4 + i, 60.25, -29.41 - 6 * i, 4, Math.PI, 2, tilt);
+        }
+    }
+
+    /**
+     * Add one tag.  The arguments are as for MultiTagLocalizer.addTag(), and tilt is how far (radians) the tag leans
+     * back from vertical, turning its face upwards.
+     */
+    public void addTag(int id, double x, double y, double z, double facing, double size, double tilt) {
+        tags.add(new double[] {id, x, y, z, facing, size, tilt});
+    }
+
+    /** @return the tags, as {id, x, y, z, facing, size, tilt}. */
+    public List<double[]> getTags() { return tags; }
+
+    /**
+     * @return the fieldOrientation of a tag facing the given direction and leaning back by tilt.  A tag facing +X
+     *         with no tilt is (0.5, -0.5, -0.5, 0.5), as in the SDK's libraries: X to the viewer's right, Y down
+     *         the face, Z into it.
+     */
+    public static Quaternion orientation(double facing, double tilt) {
+        // Turn to face the right way, after leaning back about the tag's own X axis.
+        double[] q = multiply(new double[] {Math.cos(facing / 2), 0, 0, Math.sin(facing / 2)},
+                              multiply(new double[] {0.5, -0.5, -0.5, 0.5},
+                                       new double[] {Math.cos(tilt / 2), -Math.sin(tilt / 2), 0, 0}));
+        return new Quaternion((float) q[0], (float) q[1], (float) q[2], (float) q[3], 0);
+    }
+
+    // Hamilton product of two quaternions, {w, x, y, z}.
+    private static double[] multiply(double[] a, double[] b) {
+        return new double[] {
+                a[0] * b[0] - a[1] * b[1] - a[2] * b[2] - a[3] * b[3],
+                a[0] * b[1] + a[1] * b[0] + a[2] * b[3] - a[3] * b[2],
+                a[0] * b[2] - a[1] * b[3] + a[2] * b[0] + a[3] * b[1],
+                a[0] * b[3] + a[1] * b[2] - a[2] * b[1] + a[3] * b[0],
+        };
+    }
+
+    /**
+     * Set where the camera is on the robot, as MultiTagLocalizer.setCamera() (with no pitch).
+     */
+    public void setCamera(double forward, double left, double height) {
+        cameraForward = forward;
+        cameraLeft    = left;
+        cameraHeight  = height;
+    }
+
+    /**
+     * @param pixelSigma      standard deviation of each corner coordinate's noise, in pixels.
+     * @param yawSigmaDegrees standard deviation of ftcPose.yaw's noise, in degrees.
+     */
+    public void setNoise(double pixelSigma, double yawSigmaDegrees) {
+        this.pixelSigma      = pixelSigma;
+        this.yawSigmaDegrees = yawSigmaDegrees;
+    }
+
+    /**
+     * @return the detections seen with the robot at a field pose, in tag order.
+     */
+    public List<AprilTagDetection> detect(double robotX, double robotY, double robotHeading, long captureNanos) {
+        double cos = Math.cos(robotHeading), sin = Math.sin(robotHeading);
+        double lensX = robotX + cameraForward * cos - cameraLeft * sin;
+        double lensY = robotY + cameraForward * sin + cameraLeft * cos;
+
+        List<AprilTagDetection> detections = new ArrayList<>();
+        for (double[] tag : tags) {
+            double facing = tag[4], half = tag[5] / 2, tilt = tag[6];
+            double vx = tag[1] - lensX, vy = tag[2] - lensY, vz = tag[3] - cameraHeight;
+            double normalX = Math.cos(tilt) * Math.cos(facing), normalY = Math.cos(tilt) * Math.sin(facing);
+            if (vx * normalX + vy * normalY + vz * Math.sin(tilt) >= 0) {
+                continue;                                       // We're behind the tag.
+            }
+
+            // Corners bottom-left, bottom-right, top-right, top-left, as the detector lists them.  Leaning back tips
+            // the tag's up direction away from the viewer.
+            double rightX = -Math.sin(facing) * half, rightY = Math.cos(facing) * half;
+            double upX = -Math.sin(tilt) * Math.cos(facing) * half, upY = -Math.sin(tilt) * Math.sin(facing) * half;
+            double upZ = Math.cos(tilt) * half;
+            double[] side = {-1, 1, 1, -1};
+            double[] up   = {-1, -1, 1, 1};
+            Point[] corners = new Point[4];
+            double minX = Double.MAX_VALUE, maxX = -Double.MAX_VALUE;
+            boolean inImage = true;
+            for (int k = 0; k < 4; k++) {
+                double px = vx + side[k] * rightX + up[k] * upX, py = vy + side[k] * rightY + up[k] * upY;
+                double pz = vz + up[k] * upZ;
+                double ahead = px * cos + py * sin;
+                double right = px * sin - py * cos;
+                if (ahead < 1) {
+                    inImage = false;
+                    break;
+                }
+                double u = cx + fx * right / ahead + pixelSigma * random.nextGaussian();
+                double v = cy - fy * pz / ahead + pixelSigma * random.nextGaussian();
+                inImage &= u >= 0 && u < width && v >= 0 && v < height;
+                corners[k] = new Point(u, v);
+                minX = Math.min(minX, u);
+                maxX = Math.max(maxX, u);
+            }
+            if (!inImage || maxX - minX < MIN_TAG_PIXELS) {
+                continue;
+            }
+
+            double right = vx * sin - vy * cos;
+            double ahead = vx * cos + vy * sin;
+            double yaw   = Math.toDegrees(LatencyCompensatedPoseEstimator.normalize(facing + Math.PI - robotHeading))
+                           + yawSigmaDegrees * random.nextGaussian();
+            AprilTagPoseFtc pose = new AprilTagPoseFtc(right, ahead, vz, yaw, 0, 0,
+                    Math.sqrt(right * right + ahead * ahead + vz * vz),
+                    Math.toDegrees(-Math.atan2(right, ahead)), Math.toDegrees(Math.atan2(vz, ahead)));
+
+            float margin = (float) Math.min(200, 2.5 * (maxX - minX));
+            Point center = new Point((corners[0].x + corners[2].x) / 2, (corners[0].y + corners[2].y) / 2);
+            detections.add(new AprilTagDetection((int) tag[0], 0, margin, center, corners, null, pose, null,
+                                                 captureNanos));
+        }
+        return detections;
+    }
+}
@@ -0,0 +1,119 @@
+package org.firstinspires.ftc.teamcode.sim;
+
+import org.firstinspires.ftc.robotcore.internal.camera.calibration.CameraCalibration;
+import org.firstinspires.ftc.teamcode.vision.AprilTagRoiTracker;
+import org.firstinspires.ftc.vision.apriltag.AprilTagDetection;
+import org.opencv.core.Mat;
+import org.opencv.core.Point;
+import org.opencv.core.Rect;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/*
+ * An AprilTagRoiTracker.Detector that "detects" what a SimulatedTagCamera sees, and models what the search costs.
+ *
+ * Call setRobotPose() before each frame.  A search finds the camera's tags that lie wholly inside the region searched,
+ * and that are at least SimulatedTagCamera.MIN_TAG_PIXELS across after decimation.  Decimation also coarsens the
+ * corners: their noise grows in proportion to it.
+ *
+ * The cost model is that of the detector's stages: decimating touches every pixel of the frame, the search is in
+ * proportion to the pixels it covers (after decimation), and each tag found costs a fixed amount to decode and
+ * solve.  The constants only set the scale; ConceptAprilTagRoiTracking measures the real thing on a robot.
+ */
+public class SimulatedTagDetector implements AprilTagRoiTracker.Detector {
+
+    public static final double DECIMATE_MICROS_PER_PIXEL = 0.01;
+    public static final double SEARCH_MICROS_PER_PIXEL   = 0.12;
+    public static final double MICROS_PER_TAG            = 800;
+
+    private final SimulatedTagCamera camera;
+    private final Random random;
+    private final double pixelSigma;
+
+    private int width, height;
+    private List<AprilTagDetection> visible = Collections.emptyList();
+    private double micros   = 0;
+    private long   searches = 0;
+
+    /**
+     * @param camera     the camera, with its tags, placement and noise set.
+     * @param pixelSigma the camera's corner noise, which is scaled up by decimation.
+     */
+    public SimulatedTagDetector(SimulatedTagCamera camera, double pixelSigma, long seed) {
+        this.camera     = camera;
+        this.pixelSigma = pixelSigma;
+        random          = new Random(seed);
+    }
+
+    /**
+     * Move the robot, for the next frame.
+     */
+    public void setRobotPose(double x, double y, double heading, long captureNanos) {
+        visible = camera.detect(x, y, heading, captureNanos);
+    }
+
+    @Override
+    public void init(int width, int height, CameraCalibration calibration) {
+        this.width  = width;
+        this.height = height;
+    }
+
+    @Override
+    public List<AprilTagDetection> detect(Mat frame, Rect region, float decimation, long captureNanos) {
+        int left = 0, top = 0, right = width, bottom = height;
+        if (region != null) {
+            left   = region.x;
+            top    = region.y;
+            right  = region.x + region.width;
+            bottom = region.y + region.height;
+        }
+        double pixels = (double) (right - left) * (bottom - top);
+        micros += SEARCH_MICROS_PER_PIXEL * pixels / (decimation * decimation);
+        if (decimation > 1) {
+            micros += DECIMATE_MICROS_PER_PIXEL * pixels;
+        }
+        searches++;
+
+        double extraSigma = pixelSigma * Math.sqrt(decimation * decimation - 1);
+        List<AprilTagDetection> found = new ArrayList<>();
+        for (AprilTagDetection tag : visible) {
+            double minX = Double.MAX_VALUE, maxX = -Double.MAX_VALUE;
+            boolean inside = true;
+            for (Point corner : tag.corners) {
+                inside &= corner.x >= left && corner.x < right && corner.y >= top && corner.y < bottom;
+                minX = Math.min(minX, corner.x);
+                maxX = Math.max(maxX, corner.x);
+            }
+            if (!inside || (maxX - minX) / decimation < SimulatedTagCamera.MIN_TAG_PIXELS) {
+                continue;
+            }
+            micros += MICROS_PER_TAG;
+            if (extraSigma == 0) {
+                found.add(tag);
+                continue;
+            }
+            Point[] corners = new Point[4];
+            for (int k = 0; k < 4; k++) {
+                corners[k] = new Point(tag.corners[k].x + extraSigma * random.nextGaussian(),
+                                       tag.corners[k].y + extraSigma * random.nextGaussian());
+            }
+            found.add(new AprilTagDetection(tag.id, tag.hamming, tag.decisionMargin / decimation, tag.center, corners,
+                                            tag.metadata, tag.ftcPose, tag.rawPose, tag.frameAcquisitionNanoTime));
+        }
+        return found;
+    }
+
+    /** @return modelled detector time, in microseconds, since the last reset. */
+    public double getMicros()    { return micros; }
+
+    /** @return searches (whole frames and regions) since the last reset. */
+    public long getSearches()    { return searches; }
+
+    public void resetStatistics() {
+        micros   = 0;
+        searches = 0;
+    }
+}
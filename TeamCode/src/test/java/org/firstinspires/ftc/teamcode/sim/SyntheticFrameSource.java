@@ -0,0 +1,100 @@
+package org.firstinspires.ftc.teamcode.sim;
+
+import org.firstinspires.ftc.teamcode.vision.AprilTagPublisher;
+import org.firstinspires.ftc.vision.apriltag.AprilTagDetection;
+
+import java.util.List;
+
+/*
+ * Drives an AprilTagPublisher from a background thread, the way a VisionPortal would, but without a camera.
+ *
+ * Each frame period the source records a capture time, waits for the configured pipeline latency (standing in
+ * for the time the AprilTag processor would take), asks the generator for that frame's detections, and publishes
+ * them.  This reproduces the timing relationship between the camera thread and the control loop on a desktop JVM.
+ */
+public class SyntheticFrameSource {
+
+    /**
+     * Produces the detections "seen" in each synthetic frame.
+     */
+    public interface FrameGenerator {
+        /**
+         * @param frameNumber  frame count, starting at 1.
+         * @param captureNanos System.nanoTime() at which the frame was "captured".
+         * @return the detections for this frame (may be empty, must not be null).
+         */
+        List<AprilTagDetection> detectionsFor(long frameNumber, long captureNanos);
+    }
+
+    private final AprilTagPublisher publisher;
+    private final FrameGenerator    generator;
+    private final long              framePeriodNanos;
+    private final long              latencyNanos;
+
+    private Thread thread = null;
+    private volatile boolean running = false;
+    private volatile long framesPublished = 0;
+
+    /**
+     * @param publisher        the publisher to feed.
+     * @param generator        supplies each frame's detections.
+     * @param framesPerSecond  simulated camera frame rate.
+     * @param latencyMs        simulated time from frame capture to detections being available.
+     */
+    public SyntheticFrameSource(AprilTagPublisher publisher, FrameGenerator generator,
+                                double framesPerSecond, double latencyMs) {
+        this.publisher        = publisher;
+        this.generator        = generator;
+        this.framePeriodNanos = (long) (1e9 / framesPerSecond);
+        this.latencyNanos     = (long) (latencyMs * 1e6);
+    }
+
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::run, "SyntheticFrameSource");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized void stop() throws InterruptedException {
+        if (thread == null) {
+            return;
+        }
+        running = false;
+        thread.interrupt();
+        thread.join();
+        thread = null;
+    }
+
+    /** @return number of frames published so far. */
+    public long getFramesPublished() {
+        return framesPublished;
+    }
+
+    private void run() {
+        long frameNumber = 0;
+        long nextFrame = System.nanoTime();
+        try {
+            while (running) {
+                long capture = System.nanoTime();
+                sleepNanos(latencyNanos);
+                publisher.publish(generator.detectionsFor(++frameNumber, capture), capture);
+                framesPublished = frameNumber;
+
+                nextFrame += framePeriodNanos;
+                sleepNanos(nextFrame - System.nanoTime());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleepNanos(long nanos) throws InterruptedException {
+        if (nanos > 0) {
+            Thread.sleep(nanos / 1_000_000L, (int) (nanos % 1_000_000L));
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package org.firstinspires.ftc.teamcode.telemetry;
+
+import org.firstinspires.ftc.teamcode.sim.FakeTelemetry;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/*
+ * Checks what FastTelemetry sends, and that a Line is only rendered again when something it shows has changed.
+ */
+public class FastTelemetryTest {
+
+    private FakeTelemetry fake;
+    private FastTelemetry fast;
+
+    @Before
+    public void setUp() {
+        fake = new FakeTelemetry();
+        fast = new FastTelemetry(fake.getTelemetry(), 0);
+    }
+
+    @Test
+    public void rendersEachKindOfField() {
+        FastTelemetry.Line line = fast.addLine("Pose", "%6.1f in, %3d tags, %s (100%%)");
+        line.set(0, 12.345).set(1, 7).setText(2, "tracking");
+        fast.forceUpdate();
+        assertEquals("  12.3 in,   7 tags, tracking (100%)", line.getRendered());
+    }
+
+    @Test
+    public void unchangedValuesAreNotRenderedAgain() {
+        FastTelemetry.Line line = fast.addLine("Heading", "%5.1f deg, %s");
+        line.set(0, 90.0).setText(1, "hold");
+        fast.forceUpdate();
+        long renders = fast.getRenderCount();
+
+        line.set(0, 90.01).setText(1, new StringBuilder("hold"));    // Same at the displayed precision.
+        fast.forceUpdate();
+        assertEquals(renders, fast.getRenderCount());
+
+        line.set(0, 90.1);
+        fast.forceUpdate();
+        assertEquals(renders + 1, fast.getRenderCount());
+        assertEquals(" 90.1 deg, hold", line.getRendered());
+    }
+
+    @Test
+    public void nonFiniteValuesAreShownAsStringFormatShowsThem() {
+        FastTelemetry.Line line = fast.addLine("Range", "%6.1f in, %4d");
+        line.set(0, Double.NaN).set(1, Double.POSITIVE_INFINITY);
+        fast.forceUpdate();
+        assertEquals(String.format("%6.1f in, %4s", Double.NaN, "Infinity"), line.getRendered());
+
+        line.set(0, Double.NEGATIVE_INFINITY).set(1, Double.NaN);
+        fast.forceUpdate();
+        assertEquals(String.format("%6.1f in, %4s", Double.NEGATIVE_INFINITY, "NaN"), line.getRendered());
+        long renders = fast.getRenderCount();
+
+        line.set(0, Double.NEGATIVE_INFINITY).set(1, Double.NaN);     // NaN is unchanged, though NaN != NaN.
+        fast.forceUpdate();
+        assertEquals(renders, fast.getRenderCount());
+
+        // Back to a finite value, even one equal to the value stored before the field went non-finite.
+        line.set(0, 0.0).set(1, 0L);
+        fast.forceUpdate();
+        assertEquals("   0.0 in,    0", line.getRendered());
+    }
+
+    @Test
+    public void reusedBuilderIsComparedWithItsLastValue() {
+        FastTelemetry.Line line = fast.addLine("Tags", "%s");
+        StringBuilder ids = new StringBuilder();
+
+        ids.append("1 2");
+        line.setText(0, ids);
+        fast.forceUpdate();
+        assertEquals("1 2", line.getRendered());
+
+        // The same builder, changed in place: the line must still see the change.
+        ids.setLength(0);
+        ids.append("3");
+        line.setText(0, ids);
+        fast.forceUpdate();
+        assertEquals("3", line.getRendered());
+
+        // Changing the builder after setText() doesn't change what's shown until it's set again.
+        ids.append(" 4");
+        fast.forceUpdate();
+        assertEquals("3", line.getRendered());
+        line.setText(0, ids);
+        fast.forceUpdate();
+        assertEquals("3 4", line.getRendered());
+    }
+
+    @Test
+    public void nullTextIsShownAsNull() {
+        FastTelemetry.Line line = fast.addLine("Mode", "%s");
+        fast.forceUpdate();
+        assertEquals("null", line.getRendered());
+
+        line.setText(0, "auto");
+        fast.forceUpdate();
+        assertEquals("auto", line.getRendered());
+
+        line.setText(0, null);
+        fast.forceUpdate();
+        assertEquals("null", line.getRendered());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void textCanOnlyBeSetOnTextFields() {
+        fast.addLine("Speed", "%4.1f").setText(0, "fast");
+    }
+}
@@ -0,0 +1,201 @@
+package org.firstinspires.ftc.teamcode.telemetry;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/*
+ * Writes recordings with FlightRecorder and reads them back with FlightRecordDecoder: the header, every column type,
+ * sticky values, and the oldest-first order once the file has wrapped around.
+ */
+public class FlightRecorderTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private int position;
+    private int heading;
+
+    private FlightRecorder.Schema schema() {
+        FlightRecorder.Schema schema = new FlightRecorder.Schema();
+        position = schema.addInt("left.position");
+        heading  = schema.addFloat("imu.heading (deg)");
+        return schema;
+    }
+
+    @Test
+    public void recordsReadBackAsWritten() throws IOException {
+        File file = folder.newFile("flight.bin");
+        FlightRecorder recorder = new FlightRecorder(file, schema(), 16);
+        recorder.set(position, -1234).set(heading, 90.5f).commit(1_000);
+        recorder.set(position, Integer.MAX_VALUE).set(heading, Float.NaN).commit(2_000);
+        recorder.set(position, 7).commit(3_000);                     // The heading is still NaN.
+        recorder.close();
+
+        FlightRecordDecoder decoder = new FlightRecordDecoder(file);
+        assertEquals(3, decoder.getRecordCount());
+        assertEquals(3, decoder.getCommittedCount());
+        assertEquals(2, decoder.getColumnCount());
+        assertEquals("left.position", decoder.getColumnName(position));
+        assertEquals("imu.heading (deg)", decoder.getColumnName(heading));
+        assertFalse(decoder.isFloat(position));
+        assertTrue(decoder.isFloat(heading));
+
+        assertEquals(1_000, decoder.getNanos(0));
+        assertEquals(2_000, decoder.getNanos(1));
+        assertEquals(3_000, decoder.getNanos(2));
+        assertEquals(-1234, decoder.getInt(position, 0));
+        assertEquals(Integer.MAX_VALUE, decoder.getInt(position, 1));
+        assertEquals(7, decoder.getInt(position, 2));
+        assertEquals(90.5f, decoder.getFloat(heading, 0), 0);
+        assertTrue(Float.isNaN(decoder.getFloat(heading, 1)));
+        assertTrue(Float.isNaN(decoder.getFloat(heading, 2)));
+    }
+
+    @Test
+    public void wrappedRecordingKeepsTheLatestRecordsOldestFirst() throws IOException {
+        File file = folder.newFile("flight.bin");
+        FlightRecorder recorder = new FlightRecorder(file, schema(), 4);
+        for (int i = 0; i < 10; i++) {
+            recorder.set(position, i).set(heading, i * 0.5).commit(i * 1_000L);
+        }
+        assertEquals(10, recorder.getRecordCount());
+        recorder.close();
+
+        FlightRecordDecoder decoder = new FlightRecordDecoder(file);
+        assertEquals(4, decoder.getRecordCount());
+        assertEquals(10, decoder.getCommittedCount());
+        for (int r = 0; r < 4; r++) {
+            int loop = 6 + r;
+            assertEquals(loop * 1_000L, decoder.getNanos(r));
+            assertEquals(loop, decoder.getInt(position, r));
+            assertEquals(loop * 0.5f, decoder.getFloat(heading, r), 0);
+        }
+    }
+
+    @Test
+    public void wrappingExactlyAtTheCapacityKeepsEveryRecord() throws IOException {
+        File file = folder.newFile("flight.bin");
+        FlightRecorder recorder = new FlightRecorder(file, schema(), 4);
+        for (int i = 0; i < 4; i++) {
+            recorder.set(position, i).commit(i);
+        }
+        recorder.close();
+
+        FlightRecordDecoder decoder = new FlightRecordDecoder(file);
+        assertEquals(4, decoder.getRecordCount());
+        for (int r = 0; r < 4; r++) {
+            assertEquals(r, decoder.getInt(position, r));
+        }
+    }
+
+    @Test
+    public void decoderSeesTheRecordsCommittedBeforeItOpened() throws IOException {
+        File file = folder.newFile("flight.bin");
+        FlightRecorder recorder = new FlightRecorder(file, schema(), 8);
+        recorder.set(position, 1).commit(1);
+        recorder.set(position, 2).commit(2);
+
+        FlightRecordDecoder decoder = new FlightRecordDecoder(file);
+        recorder.set(position, 3).commit(3);
+        recorder.close();
+
+        assertEquals(2, decoder.getRecordCount());
+        assertEquals(2, decoder.getInt(position, 1));
+    }
+
+    @Test
+    public void commitAfterCloseIsIgnored() throws IOException {
+        File file = folder.newFile("flight.bin");
+        FlightRecorder recorder = new FlightRecorder(file, schema(), 8);
+        recorder.set(position, 1).commit(1);
+        recorder.close();
+        recorder.commit(2);
+        recorder.close();
+
+        assertEquals(1, recorder.getRecordCount());
+        assertEquals(1, new FlightRecordDecoder(file).getRecordCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void settingAFloatInAnIntColumnThrows() throws IOException {
+        FlightRecorder recorder = new FlightRecorder(folder.newFile("flight.bin"), schema(), 8);
+        try {
+            recorder.set(position, 1.5f);
+        } finally {
+            recorder.close();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void decoderRejectsAFileThatIsNotARecording() throws IOException {
+        new FlightRecordDecoder(folder.newFile("empty.bin"));
+    }
+
+    @Test
+    public void csvHasAHeaderThenOneRowPerRecord() throws IOException {
+        File file = folder.newFile("flight.bin");
+        FlightRecorder recorder = new FlightRecorder(file, schema(), 2);
+        for (int i = 0; i < 3; i++) {
+            recorder.set(position, i).set(heading, i + 0.25).commit();
+        }
+        recorder.close();
+
+        StringWriter csv = new StringWriter();
+        new FlightRecordDecoder(file).writeCsv(csv);
+        String[] rows = csv.toString().split("\\r?\\n");
+        assertEquals(3, rows.length);
+        assertEquals("time_s,left.position,imu.heading (deg)", rows[0]);
+        // The time depends on when the recording was created; the values don't.
+        assertEquals("1,1.25", rows[1].substring(rows[1].indexOf(',') + 1));
+        assertEquals("2,2.25", rows[2].substring(rows[2].indexOf(',') + 1));
+    }
+
+    @Test
+    public void columnsAreRawLittleEndianFiles() throws IOException {
+        File file = folder.newFile("flight.bin");
+        FlightRecorder recorder = new FlightRecorder(file, schema(), 2);
+        for (int i = 0; i < 3; i++) {
+            recorder.set(position, 0x01020304 * i).set(heading, -i * 1f).commit();
+        }
+        recorder.close();
+
+        File directory = new File(folder.getRoot(), "columns");
+        new FlightRecordDecoder(file).writeColumns(directory);
+
+        assertArrayEquals(new int[] {0x01020304, 0x02040608}, readInts(new File(directory, "left.position.i32")));
+        int[] headings = readInts(new File(directory, "imu.heading__deg_.f32"));
+        assertEquals(-1f, Float.intBitsToFloat(headings[0]), 0);
+        assertEquals(-2f, Float.intBitsToFloat(headings[1]), 0);
+        assertEquals(2 * 8, new File(directory, "time_ns.i64").length());
+
+        try (BufferedReader manifest = new BufferedReader(new FileReader(new File(directory, "columns.csv")))) {
+            assertEquals("name,type,file,count", manifest.readLine());
+            assertEquals("time_ns,int64,time_ns.i64,2", manifest.readLine());
+            assertEquals("left.position,int32,left.position.i32,2", manifest.readLine());
+        }
+    }
+
+    private static int[] readInts(File file) throws IOException {
+        int[] values = new int[(int) (file.length() / 4)];
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            for (int i = 0; i < values.length; i++) {
+                values[i] = Integer.reverseBytes(in.readInt());
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,120 @@
+package org.firstinspires.ftc.teamcode.telemetry;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/*
+ * Feeds LoopProfiler known loop and section times, and checks the statistics snapshot() works out from them.
+ */
+public class LoopProfilerTest {
+
+    private static final long US = 1000L;
+    private static final long MS = 1_000_000L;
+
+    // Run loops with the given periods, starting at time 0.  Returns the time of the last loop().
+    private static long loops(LoopProfiler profiler, long... periods) {
+        long now = 0;
+        profiler.loop(now);
+        for (long period : periods) {
+            now += period;
+            profiler.loop(now);
+        }
+        return now;
+    }
+
+    @Test
+    public void percentilesUseTheNearestRank() {
+        LoopProfiler profiler = new LoopProfiler(20);
+        // Periods of 1 to 100 uS, in a scrambled order.
+        long[] periods = new long[100];
+        for (int i = 0; i < 100; i++) {
+            periods[i] = ((i * 37) % 100 + 1) * US;
+        }
+        loops(profiler, periods);
+
+        LoopProfiler.SectionStats loop = profiler.snapshot(0).sections[LoopProfiler.LOOP];
+        assertEquals(100, loop.count);
+        assertEquals(100, loop.samples);
+        assertEquals(50.5, loop.mean, 1e-9);
+        assertEquals(50, loop.p50);
+        assertEquals(95, loop.p95);
+        assertEquals(99, loop.p99);
+        assertEquals(100, loop.max);
+    }
+
+    @Test
+    public void statisticsCoverOnlyTheLatestHistoryOnceTheRingWraps() {
+        LoopProfiler profiler = new LoopProfiler(20, 8);
+        long[] periods = new long[20];
+        for (int i = 0; i < 20; i++) {
+            periods[i] = (i + 1) * MS;          // 1 to 20 mS: the ring keeps 13 to 20.
+        }
+        loops(profiler, periods);
+
+        LoopProfiler.Snapshot snapshot = profiler.snapshot(3);
+        LoopProfiler.SectionStats loop = snapshot.sections[LoopProfiler.LOOP];
+        assertEquals(20, snapshot.loops);
+        assertEquals(8, loop.samples);
+        assertEquals(16_500, loop.mean, 1e-9);
+        assertEquals(16_000, loop.p50);
+        assertEquals(20_000, loop.p95);
+        assertEquals(20_000, loop.max);
+        assertArrayEquals(new int[] {18_000, 19_000, 20_000}, snapshot.recentLoops);
+        assertEquals(20_000, profiler.getLastMicros(LoopProfiler.LOOP));
+    }
+
+    @Test
+    public void historyIsRoundedUpToAPowerOfTwo() {
+        LoopProfiler profiler = new LoopProfiler(20, 5);
+        loops(profiler, MS, MS, MS, MS, MS, MS, MS, MS, MS, MS);
+        assertEquals(8, profiler.snapshot(0).sections[LoopProfiler.LOOP].samples);
+    }
+
+    @Test
+    public void onlyPeriodsLongerThanTheDeadlineAreMissed() {
+        LoopProfiler profiler = new LoopProfiler(20);
+        loops(profiler, 10 * MS, 25 * MS, 20 * MS, 20 * MS + 1, 5 * MS);
+        LoopProfiler.Snapshot snapshot = profiler.snapshot(10);
+        assertEquals(2, snapshot.missedDeadlines);
+        assertEquals(5, snapshot.loops);
+        assertEquals(20.0, snapshot.deadlineMs, 0);
+        assertArrayEquals(new int[] {10_000, 25_000, 20_000, 20_000, 5_000}, snapshot.recentLoops);
+    }
+
+    @Test
+    public void marksSplitTheLoopIntoSections() {
+        LoopProfiler profiler = new LoopProfiler(20);
+        int read    = profiler.addSection("read");
+        int control = profiler.addSection("control");
+        for (int i = 0; i < 4; i++) {
+            long start = i * 10 * MS;
+            profiler.loop(start);
+            profiler.mark(read, start + (2 + i) * MS);
+            profiler.mark(control, start + 7 * MS);
+        }
+        profiler.loop(40 * MS);
+
+        LoopProfiler.Snapshot snapshot = profiler.snapshot(0);
+        assertEquals("read", snapshot.sections[read].name);
+        assertEquals(4, snapshot.sections[read].count);
+        assertEquals(3_500, snapshot.sections[read].mean, 1e-9);
+        assertEquals(5_000, snapshot.sections[read].max);
+        assertEquals(3_000, snapshot.sections[control].p50);        // Of 5, 4, 3 and 2 mS.
+        assertEquals(5_000, snapshot.sections[control].max);
+        assertEquals(10_000, snapshot.sections[LoopProfiler.LOOP].max);
+        assertEquals(2_000, profiler.getLastMicros(control));
+    }
+
+    @Test
+    public void snapshotBeforeTheFirstLoopIsEmpty() {
+        LoopProfiler profiler = new LoopProfiler(20);
+        profiler.addSection("read");
+        LoopProfiler.Snapshot snapshot = profiler.snapshot(10);
+        assertEquals(0, snapshot.loops);
+        assertEquals(0, snapshot.sections[1].samples);
+        assertEquals(0, snapshot.recentLoops.length);
+        assertEquals(0, profiler.getLastMicros(LoopProfiler.LOOP));
+    }
+}
@@ -0,0 +1,68 @@
+package org.firstinspires.ftc.teamcode.vision;
+
+import org.firstinspires.ftc.vision.apriltag.AprilTagDetection;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/*
+ * Checks the frame statistics an AprilTagPublisher keeps for a CameraScheduler, with the portal's calls made
+ * directly: the start stage, then the (simulated) AprilTag processing, then the publisher.
+ */
+public class AprilTagPublisherTest {
+
+    static final long CAMERA_NANOS  = 40_000_000;   // Exposure, transfer and queueing before processing starts.
+    static final long PROCESS_NANOS = 5_000_000;
+
+    private final List<List<AprilTagDetection>> fresh = new ArrayList<>();
+    private final AprilTagPublisher publisher = new AprilTagPublisher(new AprilTagPublisher.DetectionSource() {
+        @Override
+        public List<AprilTagDetection> getFreshDetections() {
+            return fresh.isEmpty() ? null : fresh.remove(0);
+        }
+    });
+
+    @Test
+    public void startStageTimesTheProcessingOnly() throws InterruptedException {
+        for (int frame = 0; frame < 3; frame++) {
+            runFrame(true, true);
+        }
+        assertEquals(3, publisher.getFramesPublished());
+        assertTrue(publisher.getTotalPipelineNanos() >= 3 * (CAMERA_NANOS + PROCESS_NANOS));
+        assertTrue(publisher.getTotalProcessNanos() >= 3 * PROCESS_NANOS);
+        assertTrue(publisher.getTotalProcessNanos() < 3 * CAMERA_NANOS);
+    }
+
+    @Test
+    public void withoutTheStartStageTheWholePipelineIsCounted() throws InterruptedException {
+        runFrame(false, true);
+        assertEquals(publisher.getTotalPipelineNanos(), publisher.getTotalProcessNanos());
+    }
+
+    @Test
+    public void framesWithoutDetectionsAreSeenButNotTimed() throws InterruptedException {
+        runFrame(true, false);      // The AprilTag processor is disabled.
+        runFrame(true, true);
+        assertEquals(2, publisher.getFramesSeen());
+        assertEquals(1, publisher.getFramesPublished());
+        assertTrue(publisher.getTotalProcessNanos() < CAMERA_NANOS);
+    }
+
+    // One frame through the portal, captured CAMERA_NANOS before processing starts.
+    private void runFrame(boolean startStage, boolean processed) throws InterruptedException {
+        long capture = System.nanoTime() - CAMERA_NANOS;
+        if (startStage) {
+            publisher.getStartStage().processFrame(null, capture);
+        }
+        if (processed) {
+            Thread.sleep(PROCESS_NANOS / 1_000_000);
+            fresh.add(Collections.<AprilTagDetection>emptyList());
+        }
+        publisher.processFrame(null, capture);
+    }
+}
@@ -0,0 +1,130 @@
+package org.firstinspires.ftc.teamcode.vision;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/*
+ * Runs ExposureTuner against a RecordedExposureSweep of a modelled camera, whose best setting is known, and checks
+ * the search converges on it.
+ *
+ * The model: at 6 mS or more, a tag is seen in every frame; below that, motion blur loses it in every other frame.
+ * The decision margin grows with exposure and gain (3 per mS, 1 per 4 of gain), and so does the processing time
+ * with gain, as noise adds candidate quads.  Reliable needs a 90% detection rate and a margin of 20, so the
+ * shortest reliable exposure is 6 mS, where every gain from 10 up is reliable and 10 scores best.
+ */
+public class ExposureTunerTest {
+
+    static final int MIN_EXPOSURE = 1;
+    static final int MAX_EXPOSURE = 30;
+    static final int MIN_GAIN     = 0;
+    static final int MAX_GAIN     = 80;
+    static final int FRAMES       = 10;      // Recorded per setting.
+
+    // Record FRAMES frames at every exposure from MIN_EXPOSURE to maxExposure, for gains in steps of 10.
+    static RecordedExposureSweep modelledSweep(int maxExposure) {
+        RecordedExposureSweep sweep = new RecordedExposureSweep();
+        for (int exposure = MIN_EXPOSURE; exposure <= maxExposure; exposure++) {
+            for (int gain = MIN_GAIN; gain <= MAX_GAIN; gain += 10) {
+                double margin       = 3 * exposure + gain / 4.0;
+                double processingMs = 4 + (gain / 20.0) * (gain / 20.0);
+                for (int frame = 0; frame < FRAMES; frame++) {
+                    boolean seen = exposure >= 6 || frame % 2 == 0;
+                    sweep.record(exposure, gain, seen ? 1 : 0, seen ? margin : 0, processingMs);
+                }
+            }
+        }
+        return sweep;
+    }
+
+    private static ExposureTuner tuner(RecordedExposureSweep sweep, int maxExposure) {
+        ExposureTuner tuner = new ExposureTuner(sweep, MIN_EXPOSURE, maxExposure, MIN_GAIN, MAX_GAIN);
+        tuner.setFrames(2, FRAMES);
+        tuner.setReliability(0.9, 20);
+        return tuner;
+    }
+
+    @Test
+    public void convergesOnTheShortestReliableExposureAndItsBestGain() {
+        RecordedExposureSweep sweep = RecordedExposureSweep.fromCsv(modelledSweep(MAX_EXPOSURE).toCsv());
+        ExposureTuner tuner = tuner(sweep, MAX_EXPOSURE);
+        sweep.run(tuner, 100_000);
+
+        assertTrue(tuner.isDone());
+        ExposureTuner.Trial best = tuner.getBest();
+        assertEquals(6, best.getExposureMs());
+        assertEquals(10, best.getGain());
+        assertTrue(tuner.isReliable(best));
+        assertEquals(1.0, best.getDetectionRate(), 0);
+        assertEquals(20.5, best.getMeanMargin(), 1e-9);
+        assertEquals(4.25, best.getMeanProcessingMs(), 1e-9);
+    }
+
+    @Test
+    public void searchesCoarselyThenFinelyThenDownTheGains() {
+        RecordedExposureSweep sweep = modelledSweep(MAX_EXPOSURE);
+        ExposureTuner tuner = tuner(sweep, MAX_EXPOSURE);
+        int frames = sweep.run(tuner, 100_000);
+
+        // Exposures grow by 50% until 8 mS is reliable, then a binary search between 5 and 8 finds 6; then the gain
+        // steps down from 70 until 0 is unreliable.
+        int[][] expected = {
+                {1, 80}, {2, 80}, {3, 80}, {5, 80}, {8, 80}, {6, 80},
+                {6, 70}, {6, 60}, {6, 50}, {6, 40}, {6, 30}, {6, 20}, {6, 10}, {6, 0},
+        };
+        List<ExposureTuner.Trial> trials = tuner.getTrials();
+        assertEquals(expected.length, trials.size());
+        for (int t = 0; t < expected.length; t++) {
+            assertEquals("trial " + t, expected[t][0], trials.get(t).getExposureMs());
+            assertEquals("trial " + t, expected[t][1], trials.get(t).getGain());
+            assertEquals("trial " + t, FRAMES, trials.get(t).getFrames());
+        }
+        assertFalse(tuner.isReliable(trials.get(3)));                   // 5 mS: half the frames.
+        assertFalse(tuner.isReliable(trials.get(trials.size() - 1)));   // Gain 0: a margin of 18.
+        assertEquals(expected.length * (2 + FRAMES), frames);
+        assertEquals(expected.length + 1, sweep.getApplyCount());        // The last leaves the camera at the best.
+    }
+
+    @Test
+    public void withNothingReliableTheBestScoringTrialIsChosen() {
+        RecordedExposureSweep sweep = modelledSweep(5);
+        ExposureTuner tuner = tuner(sweep, 5);
+        sweep.run(tuner, 100_000);
+
+        assertTrue(tuner.isDone());
+        assertEquals(4, tuner.getTrials().size());                      // 1, 2, 3 and 5 mS at full gain.
+        ExposureTuner.Trial best = tuner.getBest();
+        assertEquals(5, best.getExposureMs());
+        assertEquals(MAX_GAIN, best.getGain());
+        assertFalse(tuner.isReliable(best));
+        assertEquals(0.5, best.getDetectionRate(), 0);
+    }
+
+    @Test
+    public void frameLogRecordsASweepThatReplaysTheSameSearch() {
+        RecordedExposureSweep camera   = modelledSweep(MAX_EXPOSURE);
+        RecordedExposureSweep recorded = new RecordedExposureSweep();
+        ExposureTuner live = tuner(camera, MAX_EXPOSURE);
+        live.setFrameLog(recorded);
+        camera.run(live, 100_000);
+
+        assertEquals(live.getTrials().size(), recorded.getSettingCount());
+        RecordedExposureSweep replay = RecordedExposureSweep.fromCsv(recorded.toCsv());
+        ExposureTuner replayed = tuner(replay, MAX_EXPOSURE);
+        replay.run(replayed, 100_000);
+
+        assertEquals(live.getTrials().size(), replayed.getTrials().size());
+        assertEquals(live.getBest().getExposureMs(), replayed.getBest().getExposureMs());
+        assertEquals(live.getBest().getGain(), replayed.getBest().getGain());
+        assertEquals(live.getBest().getScore(), replayed.getBest().getScore(), 1e-9);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void malformedCsvIsRejected() {
+        RecordedExposureSweep.fromCsv("6,10,1,20.5\n");
+    }
+}
@@ -0,0 +1,217 @@
+package org.firstinspires.ftc.teamcode.vision;
+
+import android.graphics.Canvas;
+
+import org.firstinspires.ftc.robotcore.internal.camera.calibration.CameraCalibration;
+import org.firstinspires.ftc.vision.VisionProcessor;
+import org.junit.Test;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/*
+ * Replays in-memory frames through pure-Java processors that take a known time, and checks the order FrameReplay
+ * calls them in, the output lines, the timings it reports and the frames it drops at the original timing.
+ */
+public class FrameReplayTest {
+
+    static final long MS = 1_000_000L;
+
+    private final List<String> calls = new ArrayList<>();
+    private int released = 0;
+
+    /**
+     * Frames of 64x48 pixels, captured periodNanos apart.
+     */
+    class MemoryFrames implements FrameReplay.FrameSource {
+        private final int  count;
+        private final long periodNanos;
+
+        MemoryFrames(int count, long periodNanos) {
+            this.count       = count;
+            this.periodNanos = periodNanos;
+        }
+
+        @Override public int size()                        { return count; }
+        @Override public String getName(int index)         { return "frame" + index; }
+        @Override public long getCaptureNanos(int index)   { return 5_000 * MS + index * periodNanos; }
+
+        @Override
+        public Mat load(int index) {
+            return new Mat(48, 64, CvType.CV_8UC3) {
+                @Override
+                public void release() {
+                    released++;
+                    super.release();
+                }
+            };
+        }
+    }
+
+    /**
+     * Takes workNanos per frame, and returns the frame's capture time.
+     */
+    class TimedProcessor implements VisionProcessor {
+        private final String name;
+        private final long   workNanos;
+
+        TimedProcessor(String name, long workNanos) {
+            this.name      = name;
+            this.workNanos = workNanos;
+        }
+
+        @Override
+        public void init(int width, int height, CameraCalibration calibration) {
+            calls.add(name + " init " + width + "x" + height);
+        }
+
+        @Override
+        public Object processFrame(Mat frame, long captureTimeNanos) {
+            calls.add(name + " frame");
+            long end = System.nanoTime() + workNanos;
+            while (System.nanoTime() < end) {
+                try {
+                    Thread.sleep(0, 100_000);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            return captureTimeNanos;
+        }
+
+        @Override
+        public void onDrawFrame(Canvas canvas, int onscreenWidth, int onscreenHeight, float scaleBmpPxToCanvasPx,
+                                float scaleCanvasDensity, Object userContext) {
+        }
+    }
+
+    @Test
+    public void processorsAreInitializedOnceThenRunInChainOrder() throws InterruptedException {
+        FrameReplay replay = new FrameReplay(null, new TimedProcessor("a", 0), new TimedProcessor("b", 0));
+        FrameReplay.Report report = replay.run(new MemoryFrames(3, 33 * MS), FrameReplay.Timing.MAX_SPEED, null);
+
+        assertEquals(Arrays.asList("a init 64x48", "b init 64x48",
+                                   "a frame", "b frame", "a frame", "b frame", "a frame", "b frame"), calls);
+        assertEquals(3, report.getFramesProcessed());
+        assertEquals(0, report.getFramesDropped());
+        assertEquals(3, released);
+        assertEquals(2, report.getStageCount());
+        assertEquals("TimedProcessor", report.getStageName(0));
+        assertTrue(report.getOutput().isEmpty());
+    }
+
+    @Test
+    public void outputDescribesEachFrameFromTheProcessorResults() throws InterruptedException {
+        FrameReplay replay = new FrameReplay(null, new TimedProcessor("a", 0), new TimedProcessor("b", 0));
+        FrameReplay.Report report = replay.run(new MemoryFrames(2, 33 * MS), FrameReplay.Timing.MAX_SPEED,
+                new FrameReplay.OutputWriter() {
+                    @Override
+                    public String describe(String frameName, Object[] processorResults) {
+                        return frameName + " " + processorResults.length;
+                    }
+                });
+        assertEquals(Arrays.asList("frame0 2", "frame1 2"), report.getOutput());
+    }
+
+    @Test
+    public void maxSpeedTimesEachStageAndTheChain() throws InterruptedException {
+        FrameReplay replay = new FrameReplay(null, new TimedProcessor("slow", 4 * MS), new TimedProcessor("fast", 0));
+        FrameReplay.Report report = replay.run(new MemoryFrames(10, 100 * MS), FrameReplay.Timing.MAX_SPEED, null);
+
+        assertEquals(10, report.getFramesProcessed());
+        assertTrue(report.getStageMs(0, 50) >= 4);
+        assertTrue(report.getStageMs(1, 100) < 4);
+        assertTrue(report.getChainMs(50) >= report.getStageMs(0, 50));
+        // Each frame is released as the chain becomes free, so there is no waiting: latency is the chain time.
+        assertEquals(report.getChainMs(50), report.getLatencyMs(50), 0);
+        // Frames are 100 mS apart, but processed back to back.
+        assertTrue(report.getWallNanos() >= 10 * 4 * MS);
+        assertTrue(report.getWallNanos() < 9 * 100 * MS);
+        assertTrue(report.getThroughputFps() <= 1000.0 / 4);
+    }
+
+    @Test
+    public void originalTimingReleasesFramesAtTheirCaptureTimes() throws InterruptedException {
+        FrameReplay replay = new FrameReplay(null, new TimedProcessor("a", MS));
+        FrameReplay.Report report = replay.run(new MemoryFrames(5, 40 * MS), FrameReplay.Timing.ORIGINAL, null);
+
+        assertEquals(5, report.getFramesProcessed());
+        assertEquals(0, report.getFramesDropped());
+        assertTrue(report.getWallNanos() >= 4 * 40 * MS);
+        assertTrue(report.getLatencyMs(50) < 40);
+    }
+
+    @Test
+    public void originalTimingDropsFramesTheChainIsTooSlowFor() throws InterruptedException {
+        // Frames every 10 mS take 25 mS each, so the chain keeps falling more than a frame behind.
+        FrameReplay replay = new FrameReplay(null, new TimedProcessor("a", 25 * MS));
+        FrameReplay.Report report = replay.run(new MemoryFrames(12, 10 * MS), FrameReplay.Timing.ORIGINAL, null);
+
+        assertEquals(12, report.getFramesProcessed() + report.getFramesDropped());
+        assertTrue(report.getFramesDropped() >= 5);
+        assertTrue(report.getFramesProcessed() >= 2);
+        assertEquals(report.getFramesProcessed(), released);     // Dropped frames aren't loaded.
+        assertTrue(report.getLatencyMs(100) >= 25);
+    }
+
+    @Test
+    public void framesAreReleasedWhenAProcessorThrows() throws InterruptedException {
+        VisionProcessor failing = new TimedProcessor("a", 0) {
+            @Override
+            public Object processFrame(Mat frame, long captureTimeNanos) {
+                throw new IllegalStateException("bad frame");
+            }
+        };
+        try {
+            new FrameReplay(null, failing).run(new MemoryFrames(3, 33 * MS), FrameReplay.Timing.MAX_SPEED, null);
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals(1, released);
+        }
+    }
+
+    @Test
+    public void percentilesUseTheNearestRank() {
+        long[] stage   = new long[100];
+        long[] chain   = new long[100];
+        long[] latency = new long[100];
+        for (int i = 0; i < 100; i++) {
+            stage[i]   = (100 - i) * MS;        // 100 down to 1 mS: the report sorts them.
+            chain[i]   = (100 - i) * MS + MS;
+            latency[i] = (100 - i) * 2 * MS;
+        }
+        FrameReplay.Report report = new FrameReplay.Report(new String[] {"stage"}, new long[][] {stage, chain},
+                latency, Collections.<String>emptyList(), 100, 7, 2_000 * MS);
+
+        assertEquals(50, report.getStageMs(0, 50), 0);
+        assertEquals(90, report.getStageMs(0, 90), 0);
+        assertEquals(99, report.getStageMs(0, 99), 0);
+        assertEquals(100, report.getStageMs(0, 100), 0);
+        assertEquals(1, report.getStageMs(0, 0), 0);
+        assertEquals(51, report.getChainMs(50), 0);
+        assertEquals(200, report.getLatencyMs(100), 0);
+        assertEquals(50, report.getThroughputFps(), 1e-9);
+        assertEquals(7, report.getFramesDropped());
+    }
+
+    @Test
+    public void goldenOutputAllowsSmallMovesAndSkipsDroppedFrames() {
+        List<String> golden = Arrays.asList("f0 2:311.4:240.9 5:402.0:236.2", "f1 2:312.0:241.0", "f2");
+        assertEquals(Collections.emptyList(), AprilTagGoldenOutput.compare(golden,
+                Arrays.asList("f0 2:311.9:241.2 5:401.6:236.0", "f2"), 1.0));
+
+        assertEquals(Arrays.asList("f0: tag 5 moved 2.0 px", "f1: expected 1 tags, got 0",
+                                   "f2: expected tag 7:1.0:1.0, got 8:1.0:1.0", "f3: not in the golden output"),
+                AprilTagGoldenOutput.compare(Arrays.asList("f0 2:311.4:240.9 5:402.0:236.2", "f1 2:312.0:241.0",
+                                                           "f2 7:1.0:1.0"),
+                        Arrays.asList("f0 2:311.4:240.9 5:404.0:236.2", "f1", "f2 8:1.0:1.0", "f3"), 1.0));
+    }
+}